@@ -27,12 +27,12 @@ import eu.excitementproject.eop.common.representation.parse.representation.basic
 import eu.excitementproject.eop.common.representation.parse.tree.TreeAndParentMap;
 import eu.excitementproject.eop.common.representation.parse.tree.TreeAndParentMap.TreeAndParentMapException;
 import eu.excitementproject.eop.common.representation.parse.tree.dependency.basic.BasicNode;
-import eu.excitementproject.eop.transformations.alignment.AlignmentCalculator;
 import eu.excitementproject.eop.transformations.operations.OperationException;
 import eu.excitementproject.eop.transformations.operations.rules.RuleBaseException;
 import eu.excitementproject.eop.transformations.operations.specifications.Specification;
 import eu.excitementproject.eop.transformations.representation.ExtendedInfo;
 import eu.excitementproject.eop.transformations.representation.ExtendedNode;
+import eu.excitementproject.eop.transformations.utilities.IncrementalTreeEvaluations;
 import eu.excitementproject.eop.transformations.utilities.SingleTreeEvaluations;
 import eu.excitementproject.eop.transformations.utilities.TeEngineMlException;
 
@@ -226,6 +226,7 @@ public class AStarLocalCreativeStateCalculations implements StateCalculations<AS
 			{
 				generator.setAffectedNodes(affectedNodes);
 			}
+			generator.setEvaluations(treeEvaluationsOf(element));
 			generator.generateTrees();
 			
 			Set<TreeAndFeatureVector> generatedTrees = generator.getGeneratedTrees();
@@ -237,11 +238,13 @@ public class AStarLocalCreativeStateCalculations implements StateCalculations<AS
 				TreeHistory history = historyMap.get(generatedTree);
 				Specification lastSpec = history.getSpecifications().get(history.getSpecifications().size()-1);
 				
-				TreeAndParentMap<ExtendedInfo, ExtendedNode> treeAndParentMap = 
-					new TreeAndParentMap<ExtendedInfo, ExtendedNode>(generatedTree.getTree());
-				
 				// SingleTreeEvaluations evaluations = SingleTreeEvaluations.create(treeAndParentMap, operationsEnvironment.getHypothesis(), hypothesisLemmasLowerCase, numberOfHypothesisNodes);
-				SingleTreeEvaluations evaluations = createSingleTreeEvaluations(treeAndParentMap);
+				IncrementalTreeEvaluations treeEvaluations = generator.getMapEvaluations().get(generatedTree.getTree());
+				if (null==treeEvaluations)
+				{
+					treeEvaluations = createTreeEvaluations(new TreeAndParentMap<ExtendedInfo, ExtendedNode>(generatedTree.getTree()));
+				}
+				SingleTreeEvaluations evaluations = treeEvaluations.getEvaluations();
 				boolean itIsGoal = false;
 				if (0==evaluations.getMissingRelations()) itIsGoal=true;
 				double unweightedFutureEstimation = GeneratedTreeStateCalculations.generateUnweightedFutureEstimation(evaluations);
@@ -265,6 +268,7 @@ public class AStarLocalCreativeStateCalculations implements StateCalculations<AS
 							costProfitGain,
 							compareByCostPlusFuture
 							);
+				childElement.setTreeEvaluations(treeEvaluations);
 				
 				children.add(childElement);
 				if ((!itIsGoal) && (localIteration<NUMBER_OF_LOCAL_ITERATIONS))
@@ -286,9 +290,22 @@ public class AStarLocalCreativeStateCalculations implements StateCalculations<AS
 	}
 	
 	
-	protected SingleTreeEvaluations createSingleTreeEvaluations(TreeAndParentMap<ExtendedInfo, ExtendedNode> textTree)
+	/**
+	 * Returns the evaluations of the tree of the given element. They are calculated from scratch only
+	 * for elements whose evaluations were not calculated from their parent's evaluations, like the initial elements.
+	 */
+	protected IncrementalTreeEvaluations treeEvaluationsOf(AStarLocalCreativeElement element) throws TreeAndParentMapException
+	{
+		if (null==element.getTreeEvaluations())
+		{
+			element.setTreeEvaluations(createTreeEvaluations(new TreeAndParentMap<ExtendedInfo, ExtendedNode>(element.getTree())));
+		}
+		return element.getTreeEvaluations();
+	}
+	
+	protected IncrementalTreeEvaluations createTreeEvaluations(TreeAndParentMap<ExtendedInfo, ExtendedNode> textTree)
 	{
-		return new AlignmentCalculator(operationsEnvironment.getAlignmentCriteria(), textTree, operationsEnvironment.getHypothesis()).getEvaluations(operationsEnvironment.getHypothesisLemmasLowerCase(), operationsEnvironment.getHypothesisNumberOfNodes());
+		return IncrementalTreeEvaluations.create(operationsEnvironment.getAlignmentCriteria(), textTree, operationsEnvironment.getHypothesis(), operationsEnvironment.getHypothesisLemmasLowerCase(), operationsEnvironment.getHypothesisNumberOfNodes()).withoutTextTree();
 	}
 
 
@@ -5,6 +5,7 @@ import java.util.Map;
 import eu.excitementproject.eop.biutee.rteflow.macro.TreeHistory;
 import eu.excitementproject.eop.transformations.operations.specifications.Specification;
 import eu.excitementproject.eop.transformations.representation.ExtendedNode;
+import eu.excitementproject.eop.transformations.utilities.IncrementalTreeEvaluations;
 
 
 /**
@@ -130,6 +131,23 @@ public class AbstractAStarElement<S extends AbstractAStarElement<S>>
 	{
 		this.children = children;
 	}
+	
+	/**
+	 * Returns the evaluations of the tree of this element, from which the evaluations
+	 * of its children are calculated, or <code>null</code> if they were not calculated yet.
+	 * They are kept without the parent map of the tree (see {@link IncrementalTreeEvaluations#withoutTextTree()}),
+	 * since many elements are kept in the open list.
+	 * @return
+	 */
+	public IncrementalTreeEvaluations getTreeEvaluations()
+	{
+		return treeEvaluations;
+	}
+
+	public void setTreeEvaluations(IncrementalTreeEvaluations treeEvaluations)
+	{
+		this.treeEvaluations = (null==treeEvaluations) ? null : treeEvaluations.withoutTextTree();
+	}
 
 
 
@@ -156,5 +174,7 @@ public class AbstractAStarElement<S extends AbstractAStarElement<S>>
 	protected double believedFuture = 0;
 	
 	protected List<AStarElement> children = null;
+	
+	protected IncrementalTreeEvaluations treeEvaluations = null;
 
 }
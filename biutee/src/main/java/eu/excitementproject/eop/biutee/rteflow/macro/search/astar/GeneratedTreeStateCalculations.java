@@ -24,12 +24,12 @@ import eu.excitementproject.eop.common.representation.parse.representation.basic
 import eu.excitementproject.eop.common.representation.parse.tree.TreeAndParentMap;
 import eu.excitementproject.eop.common.representation.parse.tree.TreeAndParentMap.TreeAndParentMapException;
 import eu.excitementproject.eop.common.representation.parse.tree.dependency.basic.BasicNode;
-import eu.excitementproject.eop.transformations.alignment.AlignmentCalculator;
 import eu.excitementproject.eop.transformations.operations.OperationException;
 import eu.excitementproject.eop.transformations.operations.rules.RuleBaseException;
 import eu.excitementproject.eop.transformations.operations.specifications.Specification;
 import eu.excitementproject.eop.transformations.representation.ExtendedInfo;
 import eu.excitementproject.eop.transformations.representation.ExtendedNode;
+import eu.excitementproject.eop.transformations.utilities.IncrementalTreeEvaluations;
 import eu.excitementproject.eop.transformations.utilities.SingleTreeEvaluations;
 import eu.excitementproject.eop.transformations.utilities.TeEngineMlException;
 
@@ -205,6 +205,7 @@ public class GeneratedTreeStateCalculations implements AStarAlgorithm.StateCalcu
 					newElement.setChildren(knownElement.getChildren());
 					newElement.setBeliefTTL(knownElement.getBeliefTTL());
 					newElement.setBelievedFuture(knownElement.getBelievedFuture());
+					newElement.setTreeEvaluations(knownElement.getTreeEvaluations());
 					
 					ret.add(newElement);
 				}
@@ -223,6 +224,7 @@ public class GeneratedTreeStateCalculations implements AStarAlgorithm.StateCalcu
 					ImmutableList<SingleOperationItem> operations = script.getItemListForIteration(state.getIteration(), setTrees);
 					TreesGeneratorByOperations generator = 
 						new TreesGeneratorByOperations(treeAndFeatureVector, operations, script,  state.getHistory(),this.operationsEnvironment);
+					generator.setEvaluations(treeEvaluationsOf(state));
 
 					generator.generateTrees();
 
@@ -246,7 +248,7 @@ public class GeneratedTreeStateCalculations implements AStarAlgorithm.StateCalcu
 			if ( (ret.size()==0) && (logger.isDebugEnabled()) )
 			{
 				// SingleTreeEvaluations evalsOriginalState = SingleTreeEvaluations.create(new TreeAndParentMap<ExtendedInfo, ExtendedNode>(state.getTree()) , operationsEnvironment.getHypothesis(), hypothesisLemmasLowerCase, numberOfHypothesisNodes);
-				SingleTreeEvaluations evalsOriginalState = createSingleTreeEvaluations(new TreeAndParentMap<ExtendedInfo, ExtendedNode>(state.getTree()));
+				SingleTreeEvaluations evalsOriginalState = treeEvaluationsOf(state).getEvaluations();
 				logger.debug("No children for state with missing relations: "+evalsOriginalState.getMissingRelations());
 			}
 			return ret;
@@ -291,6 +293,7 @@ public class GeneratedTreeStateCalculations implements AStarAlgorithm.StateCalcu
 		ImmutableList<SingleOperationItem> operations = script.getItemListForIteration(state.getIteration(), setTrees);
 		TreesGeneratorByOperations generator = 
 			new TreesGeneratorByOperations(treeAndFeatureVector, operations, script, state.getHistory(), this.operationsEnvironment);
+		generator.setEvaluations(treeEvaluationsOf(state));
 
 		generator.generateTrees();
 		
@@ -304,15 +307,14 @@ public class GeneratedTreeStateCalculations implements AStarAlgorithm.StateCalcu
 			
 			for (TreeAndFeatureVector generatedTree : mapGenerated.get(operationItem))
 			{
-				TreeAndParentMap<ExtendedInfo, ExtendedNode> treeAndParentMap =
-					new TreeAndParentMap<ExtendedInfo, ExtendedNode>(generatedTree.getTree());
 				TreeHistory history = generatedTreesHistory.get(generatedTree);
 				Specification lastSpec = history.getSpecifications().get(history.getSpecifications().size()-1);
 				
 				double cost = generateCost(classifier, generatedTree.getFeatureVector(), weightOfCost);
 				
 				// SingleTreeEvaluations evaluations = SingleTreeEvaluations.create(treeAndParentMap, operationsEnvironment.getHypothesis(), hypothesisLemmasLowerCase, numberOfHypothesisNodes);
-				SingleTreeEvaluations evaluations = createSingleTreeEvaluations(treeAndParentMap);
+				IncrementalTreeEvaluations treeEvaluations = treeEvaluationsOfGeneratedTree(generator, generatedTree.getTree());
+				SingleTreeEvaluations evaluations = treeEvaluations.getEvaluations();
 				double unweightedFutureEstimation = generateUnweightedFutureEstimation(evaluations);
 				double futureEstimation = generateFutureEstimation(evaluations, weightOfFuture);
 				
@@ -325,6 +327,7 @@ public class GeneratedTreeStateCalculations implements AStarAlgorithm.StateCalcu
 					new AStarElement(state.getIteration()+1, generatedTree.getTree(),
 							state.getOriginalSentence(), generatedTree.getFeatureVector(), lastSpec,
 							history, state, cost, unweightedFutureEstimation, futureEstimation, itIsGoal);
+				element.setTreeEvaluations(treeEvaluations);
 				
 				if ( (level<preferLevelOfItem) && (!itIsGoal) )
 				{
@@ -345,7 +348,7 @@ public class GeneratedTreeStateCalculations implements AStarAlgorithm.StateCalcu
 
 	}
 	
-	protected List<AStarElement> regularGetChildren(AStarElement state, TreesGeneratorByOperations generator) throws TreeAndParentMapException, ClassifierException
+	protected List<AStarElement> regularGetChildren(AStarElement state, TreesGeneratorByOperations generator) throws TreeAndParentMapException, ClassifierException, TeEngineMlException
 	{
 		Set<TreeAndFeatureVector> generatedTrees = generator.getGeneratedTrees();
 		Map<TreeAndFeatureVector,TreeHistory> generatedTreesHistory = generator.getHistoryMap();
@@ -353,15 +356,14 @@ public class GeneratedTreeStateCalculations implements AStarAlgorithm.StateCalcu
 		List<AStarElement> ret = new ArrayList<AStarElement>(generatedTrees.size());
 		for(TreeAndFeatureVector generatedTree : generatedTrees)
 		{
-			TreeAndParentMap<ExtendedInfo, ExtendedNode> treeAndParentMap =
-				new TreeAndParentMap<ExtendedInfo, ExtendedNode>(generatedTree.getTree());
 			TreeHistory history = generatedTreesHistory.get(generatedTree);
 			Specification lastSpec = history.getSpecifications().get(history.getSpecifications().size()-1);
 			
 			double cost = generateCost(classifier, generatedTree.getFeatureVector(), weightOfCost);
 			
 			// SingleTreeEvaluations evaluations = SingleTreeEvaluations.create(treeAndParentMap, operationsEnvironment.getHypothesis(), hypothesisLemmasLowerCase, numberOfHypothesisNodes);
-			SingleTreeEvaluations evaluations = createSingleTreeEvaluations(treeAndParentMap);
+			IncrementalTreeEvaluations treeEvaluations = treeEvaluationsOfGeneratedTree(generator, generatedTree.getTree());
+			SingleTreeEvaluations evaluations = treeEvaluations.getEvaluations();
 			double unweightedFutureEstimation = generateUnweightedFutureEstimation(evaluations);
 			double futureEstimation = generateFutureEstimation(evaluations, weightOfFuture);
 			
@@ -374,6 +376,7 @@ public class GeneratedTreeStateCalculations implements AStarAlgorithm.StateCalcu
 				new AStarElement(state.getIteration()+1, generatedTree.getTree(),
 						state.getOriginalSentence(), generatedTree.getFeatureVector(), lastSpec,
 						history, state, cost, unweightedFutureEstimation, futureEstimation, itIsGoal);
+			element.setTreeEvaluations(treeEvaluations);
 			
 			if (logger.isDebugEnabled())
 			{
@@ -400,8 +403,6 @@ public class GeneratedTreeStateCalculations implements AStarAlgorithm.StateCalcu
 			Set<TreeAndFeatureVector> generatedTrees = mapGenerated.get(operationItem);
 			for (TreeAndFeatureVector generatedTree : generatedTrees)
 			{
-				TreeAndParentMap<ExtendedInfo, ExtendedNode> treeAndParentMap =
-					new TreeAndParentMap<ExtendedInfo, ExtendedNode>(generatedTree.getTree());
 				TreeHistory history = generatedTreesHistory.get(generatedTree);
 				if (null==history) throw new TeEngineMlException("BUG");
 				Specification lastSpec = history.getSpecifications().get(history.getSpecifications().size()-1);
@@ -410,7 +411,8 @@ public class GeneratedTreeStateCalculations implements AStarAlgorithm.StateCalcu
 				
 				
 				// SingleTreeEvaluations evaluations = SingleTreeEvaluations.create(treeAndParentMap, operationsEnvironment.getHypothesis(), hypothesisLemmasLowerCase, numberOfHypothesisNodes);
-				SingleTreeEvaluations evaluations = createSingleTreeEvaluations(treeAndParentMap);
+				IncrementalTreeEvaluations treeEvaluations = treeEvaluationsOfGeneratedTree(generator, generatedTree.getTree());
+				SingleTreeEvaluations evaluations = treeEvaluations.getEvaluations();
 				int beliefTTL;
 				double futureEstimation;
 				double believedFutureEstimation;
@@ -439,10 +441,8 @@ public class GeneratedTreeStateCalculations implements AStarAlgorithm.StateCalcu
 					{
 						double belief = getBeliefForOperationItem(operationItem);
 						
-						TreeAndParentMap<ExtendedInfo, ExtendedNode> previousTreeAndParentMap =
-							new TreeAndParentMap<ExtendedInfo, ExtendedNode>(state.getTree());
 						// SingleTreeEvaluations previousEvaluations = SingleTreeEvaluations.create(previousTreeAndParentMap, operationsEnvironment.getHypothesis(), hypothesisLemmasLowerCase, numberOfHypothesisNodes);
-						SingleTreeEvaluations previousEvaluations = createSingleTreeEvaluations(previousTreeAndParentMap);
+						SingleTreeEvaluations previousEvaluations = treeEvaluationsOf(state).getEvaluations();
 						
 						believedFutureEstimation = generateFutureEstimationWithBelief(previousEvaluations,belief,hypothesisLemmasLowerCase,numberOfHypothesisNodes,this.weightOfFuture);
 						double calculatedFutureEstimation =
@@ -468,6 +468,7 @@ public class GeneratedTreeStateCalculations implements AStarAlgorithm.StateCalcu
 				
 				element.setBeliefTTL(beliefTTL);
 				element.setBelievedFuture(believedFutureEstimation);
+				element.setTreeEvaluations(treeEvaluations);
 				
 				if (logger.isDebugEnabled())
 				{
@@ -482,9 +483,32 @@ public class GeneratedTreeStateCalculations implements AStarAlgorithm.StateCalcu
 		
 	}
 	
-	protected SingleTreeEvaluations createSingleTreeEvaluations(TreeAndParentMap<ExtendedInfo, ExtendedNode> textTree)
+	/**
+	 * Returns the evaluations of the tree of the given state. They are calculated from scratch only
+	 * for states whose evaluations were not calculated from their parent's evaluations, like the initial states.
+	 */
+	protected IncrementalTreeEvaluations treeEvaluationsOf(AStarElement state) throws TreeAndParentMapException
 	{
-		return new AlignmentCalculator(operationsEnvironment.getAlignmentCriteria(), textTree, operationsEnvironment.getHypothesis()).getEvaluations(operationsEnvironment.getHypothesisLemmasLowerCase(), operationsEnvironment.getHypothesisNumberOfNodes());
+		if (null==state.getTreeEvaluations())
+		{
+			state.setTreeEvaluations(createTreeEvaluations(new TreeAndParentMap<ExtendedInfo, ExtendedNode>(state.getTree())));
+		}
+		return state.getTreeEvaluations();
+	}
+	
+	protected IncrementalTreeEvaluations treeEvaluationsOfGeneratedTree(TreesGeneratorByOperations generator, ExtendedNode generatedTree) throws TeEngineMlException, TreeAndParentMapException
+	{
+		IncrementalTreeEvaluations ret = generator.getMapEvaluations().get(generatedTree);
+		if (null==ret)
+		{
+			ret = createTreeEvaluations(new TreeAndParentMap<ExtendedInfo, ExtendedNode>(generatedTree));
+		}
+		return ret;
+	}
+	
+	protected IncrementalTreeEvaluations createTreeEvaluations(TreeAndParentMap<ExtendedInfo, ExtendedNode> textTree)
+	{
+		return IncrementalTreeEvaluations.create(operationsEnvironment.getAlignmentCriteria(), textTree, operationsEnvironment.getHypothesis(), operationsEnvironment.getHypothesisLemmasLowerCase(), operationsEnvironment.getHypothesisNumberOfNodes()).withoutTextTree();
 	}
 	
 	
@@ -35,6 +35,7 @@ public class ReduceFutureStateManipulator implements StateManipulator<AStarEleme
 					state.getUnweightedFutureEstimation(),
 					future,
 					state.isGoal());
+		ret.setTreeEvaluations(state.getTreeEvaluations());
 		
 		return ret;
 	}
@@ -34,12 +34,11 @@ import eu.excitementproject.eop.common.representation.parse.tree.TreeAndParentMa
 import eu.excitementproject.eop.common.representation.parse.tree.dependency.basic.BasicNode;
 import eu.excitementproject.eop.common.utilities.Utils;
 import eu.excitementproject.eop.lap.biu.lemmatizer.Lemmatizer;
-import eu.excitementproject.eop.transformations.alignment.AlignmentCalculator;
 import eu.excitementproject.eop.transformations.operations.OperationException;
 import eu.excitementproject.eop.transformations.operations.rules.RuleBaseException;
 import eu.excitementproject.eop.transformations.representation.ExtendedInfo;
 import eu.excitementproject.eop.transformations.representation.ExtendedNode;
-import eu.excitementproject.eop.transformations.utilities.SingleTreeEvaluations;
+import eu.excitementproject.eop.transformations.utilities.IncrementalTreeEvaluations;
 import eu.excitementproject.eop.transformations.utilities.TeEngineMlException;
 import eu.excitementproject.eop.transformations.utilities.parsetreeutils.AdvancedEqualities;
 import eu.excitementproject.eop.transformations.utilities.parsetreeutils.TreeUtilities;
@@ -127,6 +126,7 @@ public class BeamSearchTextTreesProcessor extends AbstractTextTreesProcessor imp
 		this.mapTreeToSentence = new LinkedHashMap<TreeAndFeatureVector, String>();
 		this.historyMap = new LinkedHashMap<TreeAndFeatureVector, TreeHistory>();
 		this.evaluationHistoryMap = new LinkedHashMap<TreeAndFeatureVector, TreeEvaluationsHistory>();
+		this.treeEvaluationsMap = new LinkedHashMap<TreeAndFeatureVector, IncrementalTreeEvaluations>();
 		
 		// Initializing set of trees with the original text trees
 		for (ExtendedNode textTree : this.originalTextTrees)
@@ -138,7 +138,9 @@ public class BeamSearchTextTreesProcessor extends AbstractTextTreesProcessor imp
 			treesSet.add(treeAndFeatureVector);
 			historyMap.put(treeAndFeatureVector, new TreeHistory(TreeHistoryComponent.onlyFeatureVector(initialFeatureVector)));
 			mapTreeToSentence.put(treeAndFeatureVector, this.originalMapTreesToSentences.get(textTree));
-			evaluationHistoryMap.put(treeAndFeatureVector, new TreeEvaluationsHistory(createEvaluationForTree(textTreeAndParentMap)));
+			IncrementalTreeEvaluations treeEvaluations = createTreeEvaluations(textTreeAndParentMap);
+			treeEvaluationsMap.put(treeAndFeatureVector, treeEvaluations);
+			evaluationHistoryMap.put(treeAndFeatureVector, new TreeEvaluationsHistory(treeEvaluations.getEvaluations()));
 		}
 		
 		logger.debug("Starting beam search loop");
@@ -171,6 +173,7 @@ public class BeamSearchTextTreesProcessor extends AbstractTextTreesProcessor imp
 			this.historyMap = shrinkMap(treesSet, matchingTrees, this.historyMap);
 			this.mapTreeToSentence = shrinkMap(treesSet, matchingTrees, mapTreeToSentence);
 			this.evaluationHistoryMap = shrinkMap(treesSet, matchingTrees, evaluationHistoryMap);
+			this.treeEvaluationsMap = shrinkMap(treesSet, treeEvaluationsMap);
 			
 			if (iterationIndexAfterConversion>0)
 				++iterationIndexAfterConversion;
@@ -193,6 +196,7 @@ public class BeamSearchTextTreesProcessor extends AbstractTextTreesProcessor imp
 		historyMap = shrinkMap(matchingTrees, historyMap);
 		mapTreeToSentence = shrinkMap(matchingTrees, mapTreeToSentence);
 		evaluationHistoryMap = shrinkMap(matchingTrees, evaluationHistoryMap);
+		treeEvaluationsMap = null;
 		
 		
 		// Processing done.
@@ -263,6 +267,12 @@ public class BeamSearchTextTreesProcessor extends AbstractTextTreesProcessor imp
 		TreesGeneratorByOperations generator =
 			new TreesGeneratorByOperations(textTree, operations, script, historyMap.get(textTree),this.operationsEnvironment);
 		if (USE_CACHE_OF_GENERATED_TREES) generator.setCache(cache);
+		IncrementalTreeEvaluations textTreeEvaluations = treeEvaluationsMap.get(textTree);
+		if (null==textTreeEvaluations)
+		{
+			textTreeEvaluations = createTreeEvaluations(new TreeAndParentMap<ExtendedInfo, ExtendedNode>(textTree.getTree()));
+		}
+		generator.setEvaluations(textTreeEvaluations);
 		generator.generateTrees();
 		if (USE_CACHE_OF_GENERATED_TREES) this.generatedSingleIteration.putAll(generator.getGeneratedTreesAsMap());
 		if (USE_CACHE_OF_GENERATED_TREES) this.debugFoundInCacheCount += generator.getDebugFoundInCacheCount();
@@ -275,9 +285,14 @@ public class BeamSearchTextTreesProcessor extends AbstractTextTreesProcessor imp
 			mapTreeToSentence.put(generatedTree, originalSentence);
 			
 			// Asher 10-June-2011
-			TreeAndParentMap<ExtendedInfo, ExtendedNode> treeAndParentMap =
-				new TreeAndParentMap<ExtendedInfo, ExtendedNode>(generatedTree.getTree());
-			evaluationHistoryMap.put(generatedTree, new TreeEvaluationsHistory(evaluationHistoryMap.get(textTree),createEvaluationForTree(treeAndParentMap)));
+			// The trees taken from the cache were not generated now, so they are evaluated from scratch.
+			IncrementalTreeEvaluations treeEvaluations = generator.getMapEvaluations().get(generatedTree.getTree());
+			if (null==treeEvaluations)
+			{
+				treeEvaluations = createTreeEvaluations(new TreeAndParentMap<ExtendedInfo, ExtendedNode>(generatedTree.getTree()));
+			}
+			treeEvaluationsMap.put(generatedTree, treeEvaluations);
+			evaluationHistoryMap.put(generatedTree, new TreeEvaluationsHistory(evaluationHistoryMap.get(textTree),treeEvaluations.getEvaluations()));
 		}
 		this.historyMap.putAll(generator.getHistoryMap());
 		
@@ -460,11 +475,9 @@ public class BeamSearchTextTreesProcessor extends AbstractTextTreesProcessor imp
 
 	}
 	
-	private SingleTreeEvaluations createEvaluationForTree(TreeAndParentMap<ExtendedInfo, ExtendedNode> tree)
+	private IncrementalTreeEvaluations createTreeEvaluations(TreeAndParentMap<ExtendedInfo, ExtendedNode> tree)
 	{
-		AlignmentCalculator alignmentCalculator =
-				new AlignmentCalculator(operationsEnvironment.getAlignmentCriteria(), tree, operationsEnvironment.getHypothesis());
-		return alignmentCalculator.getEvaluations(hypothesisLemmasLowerCase,hypothesisNumberOfNodes);
+		return IncrementalTreeEvaluations.create(operationsEnvironment.getAlignmentCriteria(), tree, operationsEnvironment.getHypothesis(), hypothesisLemmasLowerCase, hypothesisNumberOfNodes).withoutTextTree();
 		
 //		int missingNodes;
 //		int missingRelations;
@@ -501,6 +514,7 @@ public class BeamSearchTextTreesProcessor extends AbstractTextTreesProcessor imp
 	
 	private EvaluationFunction evaluationFunction = new EvaluationFunction();
 	private Map<TreeAndFeatureVector,TreeEvaluationsHistory> evaluationHistoryMap;
+	private Map<TreeAndFeatureVector,IncrementalTreeEvaluations> treeEvaluationsMap;
 
 	
 	private Set<String> hypothesisLemmasLowerCase;
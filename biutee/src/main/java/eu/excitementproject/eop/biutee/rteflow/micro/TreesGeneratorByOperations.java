@@ -41,6 +41,7 @@ import eu.excitementproject.eop.transformations.operations.specifications.Specif
 import eu.excitementproject.eop.transformations.representation.ExtendedInfo;
 import eu.excitementproject.eop.transformations.representation.ExtendedNode;
 import eu.excitementproject.eop.transformations.utilities.Constants;
+import eu.excitementproject.eop.transformations.utilities.IncrementalTreeEvaluations;
 import eu.excitementproject.eop.transformations.utilities.TeEngineMlException;
 
 /**
@@ -182,6 +183,24 @@ public class TreesGeneratorByOperations
 		this.filterSpecifications = new FilterSpecifications(this.textTree.getTree(), this.affectedNodes);
 	}
 	
+	/**
+	 * Sets the evaluations of the given tree (the tree given in the constructor).
+	 * <P>
+	 * If this method is called, then the evaluations of each generated tree are
+	 * calculated from these evaluations and from the operation that generated the tree
+	 * (see {@link IncrementalTreeEvaluations}), and are returned by {@link #getMapEvaluations()}.
+	 * 
+	 * @param evaluations the evaluations of the given tree. They may be without their tree
+	 * (see {@link IncrementalTreeEvaluations#withoutTextTree()}), since the parent map of the tree
+	 * that is built by {@link #generateTrees()} is used.
+	 * @throws TeEngineMlException
+	 */
+	public void setEvaluations(IncrementalTreeEvaluations evaluations) throws TeEngineMlException
+	{
+		if (null==evaluations) throw new TeEngineMlException("Null evaluations");
+		this.evaluations = evaluations;
+	}
+	
 	
 
 	/**
@@ -203,7 +222,12 @@ public class TreesGeneratorByOperations
 		this.generatedTreesAsMap = new LinkedHashMap<TreeAndOperationItem, Set<TreeAndHistory>>();
 		this.mapGeneratedByOperation = new LinkedHashMap<SingleOperationItem, Set<TreeAndFeatureVector>>();
 		this.mapAffectedNodes = new LinkedHashMap<ExtendedNode, Set<ExtendedNode>>();
+		this.mapEvaluations = new LinkedHashMap<ExtendedNode, IncrementalTreeEvaluations>();
 		TreeAndParentMap<ExtendedInfo,ExtendedNode> textTreeAndParentMap = new TreeAndParentMap<ExtendedInfo,ExtendedNode>(textTree.getTree());
+		if (this.evaluations!=null)
+		{
+			this.evaluations = this.evaluations.withTextTree(textTreeAndParentMap);
+		}
 		
 		// For each operation-item, generated the trees. 
 		for (SingleOperationItem item : operations)
@@ -343,6 +367,19 @@ public class TreesGeneratorByOperations
 		return mapAffectedNodes;
 	}
 	
+	/**
+	 * Returns the evaluations of each newly-generated tree, if {@link #setEvaluations(IncrementalTreeEvaluations)}
+	 * was called. Trees that were taken from the cache have no evaluations in this map.
+	 * The evaluations are without their trees (see {@link IncrementalTreeEvaluations#withoutTextTree()}).
+	 * @return
+	 * @throws TeEngineMlException
+	 */
+	public Map<ExtendedNode, IncrementalTreeEvaluations> getMapEvaluations() throws TeEngineMlException
+	{
+		if (mapEvaluations==null) throw new TeEngineMlException("Null. Map of evaluations was not created (seems that generateTrees() was not called).");
+		return mapEvaluations;
+	}
+	
 	////////////////////////////// PRIVATE /////////////////////////////
 
 	
@@ -458,6 +495,13 @@ public class TreesGeneratorByOperations
 
 						// Store the set of affected nodes of this tree. Used by LLGS (LocalCreativeTextTreesProcessor)
 						mapAffectedNodes.put(generatedTree, operation.getAffectedNodes());
+						
+						// Evaluate the new tree from the evaluations of the tree it was generated from.
+						if (this.evaluations!=null)
+						{
+							// The parent map of the generated tree is not kept: it is built again if the tree is expanded.
+							mapEvaluations.put(generatedTree, this.evaluations.update(operation).withoutTextTree());
+						}
 
 						// Create a new feature vector that describes this newly created tree.
 						Map<Integer,Double> featureVector = performFactory.getUpdater(textTreeAndParentMap,this.hypothesis).updateFeatureVector(textTree.getFeatureVector(), this.featureUpdate, textTreeAndParentMap, this.hypothesis, operation, spec);
@@ -683,6 +727,9 @@ public class TreesGeneratorByOperations
 	
 	private Map<ExtendedNode,Set<ExtendedNode>> mapAffectedNodes = null;
 	
+	private IncrementalTreeEvaluations evaluations = null;
+	private Map<ExtendedNode,IncrementalTreeEvaluations> mapEvaluations = null;
+	
 	private PerformFactoryFactory performFactoryFactory = null;
 	
 	
@@ -2,7 +2,10 @@ package eu.excitementproject.eop.biutee.rteflow.systems.excitement;
 
 import java.io.IOException;
 import java.net.MalformedURLException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import org.apache.log4j.Logger;
 import org.apache.uima.jcas.JCas;
@@ -16,6 +19,7 @@ import eu.excitementproject.eop.biutee.script.ScriptException;
 import eu.excitementproject.eop.biutee.utilities.BiuteeException;
 import eu.excitementproject.eop.biutee.utilities.SystemInformationLog;
 import eu.excitementproject.eop.common.EDABasic;
+import eu.excitementproject.eop.common.EDAConcurrentProcessing;
 import eu.excitementproject.eop.common.EDAException;
 import eu.excitementproject.eop.common.TEDecision;
 import eu.excitementproject.eop.common.configuration.CommonConfig;
@@ -31,12 +35,15 @@ import eu.excitementproject.eop.transformations.utilities.TeEngineMlException;
 
 /**
  * BIUTEE implementation of {@link EDABasic}.
+ * <P>
+ * The pairs given to {@link #processDataSetConcurrently(List)} are processed by the thread pool
+ * of the underlying system, whose size is the number of threads given in the configuration file.
  * 
  * @author Asher Stern
  * @since Jan 23, 2013
  *
  */
-public class BiuteeEDA implements EDABasic<TEDecision>
+public class BiuteeEDA implements EDABasic<TEDecision>, EDAConcurrentProcessing
 {
 	public static final String TEMPORARY_CONFIGURATION_FILE_PREFIX = "biutee_configuration_file";
 	public static final String TEMPORARY_CONFIGURATION_FILE_SUFFIX = ".xml";
@@ -93,15 +100,62 @@ public class BiuteeEDA implements EDABasic<TEDecision>
 		}
 		catch (TeEngineMlException | AnnotatorException | OperationException | ClassifierException | MalformedURLException | TreeCoreferenceInformationException | ScriptException | RuleBaseException | LemmatizerException | InterruptedException | ExecutionException e)
 		{
-			String pairIdDetail = "";
-			if (pairId == null) {
-				pairIdDetail = "(Pair ID unknown)";
+			throw processingFailure(pairId, e);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see eu.excitementproject.eop.common.EDAConcurrentProcessing#processDataSetConcurrently(java.util.List)
+	 */
+	@Override
+	public List<TEDecision> processDataSetConcurrently(List<JCas> casList) throws EDAException, ComponentException
+	{
+		if (hasBeenShutDown) throw new EDAException("After calling the method shutdown(), no method should be called.");
+		if (null == underlyingSystem) throw new EDAException("Method initialize must be called before calling method processDataSetConcurrently.");
+		List<String> pairIds = new ArrayList<String>(casList.size());
+		List<Future<PairResult>> futures = new ArrayList<Future<PairResult>>(casList.size());
+		String pairId = null;
+		try
+		{
+			logger.info(String.format("Submitting %d T-H pairs...", casList.size()));
+			for (JCas aCas : casList)
+			{
+				pairId = BiuteeEdaUtilities.getPairIdFromJCas(aCas);
+				PairData pairData = BiuteeEdaUtilities.convertJCasToPairData(aCas);
+				pairIds.add(pairId);
+				futures.add(underlyingSystem.submit(pairData));
+			}
+			logger.info("Submitting T-H pairs - done.");
+			
+			List<TEDecision> decisions = new ArrayList<TEDecision>(casList.size());
+			for (int index=0;index<futures.size();++index)
+			{
+				pairId = pairIds.get(index);
+				decisions.add(BiuteeEdaUtilities.createDecisionFromPairResult(pairId,futures.get(index).get(),underlyingSystem.getClassifierForPredictions()));
 			}
-			else {
-				pairIdDetail = String.format("(Pair ID: %s)", pairId);
+			return decisions;
+		}
+		catch (TeEngineMlException | ClassifierException | InterruptedException | ExecutionException e)
+		{
+			for (Future<PairResult> future : futures)
+			{
+				future.cancel(true);
 			}
-			throw new EDAException(String.format("Failed to process given CAS %s. See nested exception.", pairIdDetail),e);
+			throw processingFailure(pairId, e);
+		}
+	}
+	
+	private static EDAException processingFailure(String pairId, Exception e)
+	{
+		String pairIdDetail = "";
+		if (pairId == null) {
+			pairIdDetail = "(Pair ID unknown)";
+		}
+		else {
+			pairIdDetail = String.format("(Pair ID: %s)", pairId);
 		}
+		return new EDAException(String.format("Failed to process given CAS %s. See nested exception.", pairIdDetail),e);
 	}
 
 	/*
@@ -9,6 +9,7 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.log4j.Logger;
 
@@ -128,10 +129,24 @@ public class BiuteeEdaUnderlyingSystem extends SystemInitialization
 	 * @throws InterruptedException 
 	 */
 	public PairResult process(PairData pairData) throws TeEngineMlException, AnnotatorException, TreeCoreferenceInformationException, OperationException, ClassifierException, ScriptException, RuleBaseException, MalformedURLException, LemmatizerException, InterruptedException, ExecutionException
+	{
+		return submit(pairData).get();
+	}
+	
+	/**
+	 * Submits the given {@link PairData} to the thread pool of the system, and returns
+	 * immediately. The pairs submitted are processed concurrently, by the number of
+	 * threads given in the configuration file (each thread with its own script).
+	 * 
+	 * @param pairData
+	 * @return a {@link Future} of the result of the pair, as returned by {@link #process(PairData)}
+	 * @throws TeEngineMlException
+	 */
+	public Future<PairResult> submit(PairData pairData) throws TeEngineMlException
 	{
 		if (!initDone) throw new TeEngineMlException("Initialization has not been completed properly. The method process can be called only after a successful initialization.");
 		if (cleanUpHasBeenCalled) throw new TeEngineMlException("Cannot process after calling cleanUp.");
-		return threadPool.submit(new Processor(pairData)).get();
+		return threadPool.submit(new Processor(pairData));
 	}
 	
 
@@ -0,0 +1,143 @@
+package eu.excitementproject.eop.biutee.small_unit_tests;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import eu.excitementproject.eop.biutee.rteflow.systems.rtepairs.PairData;
+import eu.excitementproject.eop.biutee.rteflow.systems.rtepairs.RTESerializedPairsReader;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.Info;
+import eu.excitementproject.eop.common.representation.parse.tree.TreeAndParentMap;
+import eu.excitementproject.eop.common.representation.parse.tree.TreeAndParentMap.TreeAndParentMapException;
+import eu.excitementproject.eop.common.representation.parse.tree.TreeCopier;
+import eu.excitementproject.eop.common.representation.parse.tree.dependency.basic.BasicNode;
+import eu.excitementproject.eop.transformations.representation.AdditionalInformationServices;
+import eu.excitementproject.eop.transformations.representation.ExtendedInfo;
+import eu.excitementproject.eop.transformations.representation.ExtendedNode;
+import eu.excitementproject.eop.transformations.representation.ExtendedNodeConstructor;
+import eu.excitementproject.eop.transformations.utilities.TeEngineMlException;
+import eu.excitementproject.eop.transformations.utilities.parsetreeutils.AdvancedEqualities;
+import eu.excitementproject.eop.transformations.utilities.parsetreeutils.ContentAncestorSetter;
+import eu.excitementproject.eop.transformations.utilities.parsetreeutils.TreeUtilities;
+
+
+/**
+ * Compares the two modes of {@link AdvancedEqualities#findMissingNodes(TreeAndParentMap, TreeAndParentMap)}
+ * and {@link AdvancedEqualities#findMissingRelations(TreeAndParentMap, TreeAndParentMap)} (nested loops, and
+ * an index of the text tree) on the trees of an RTE data-set: checks that their results are identical, and prints
+ * their run times.
+ * <P>
+ * Usage: <code>DemoAdvancedEqualitiesTextIndex &lt;pairs serialization file&gt; [rounds]</code>, where the file
+ * is created by the RTE pairs pre-processor.
+ *
+ */
+public class DemoAdvancedEqualitiesTextIndex
+{
+	public static void main(String[] args)
+	{
+		try
+		{
+			if (args.length<1) throw new TeEngineMlException("Usage: DemoAdvancedEqualitiesTextIndex <pairs serialization file> [rounds]");
+			int rounds = (args.length>1)?Integer.parseInt(args[1]):10;
+			new DemoAdvancedEqualitiesTextIndex(args[0],rounds).go();
+		}
+		catch(Exception e)
+		{
+			e.printStackTrace(System.out);
+		}
+	}
+
+	public DemoAdvancedEqualitiesTextIndex(String pairsSerializationFileName, int rounds)
+	{
+		super();
+		this.pairsSerializationFileName = pairsSerializationFileName;
+		this.rounds = rounds;
+	}
+
+	public void go() throws Exception
+	{
+		RTESerializedPairsReader reader = new RTESerializedPairsReader(pairsSerializationFileName);
+		reader.read();
+		List<TreeAndParentMap<ExtendedInfo, ExtendedNode>> texts = new ArrayList<TreeAndParentMap<ExtendedInfo, ExtendedNode>>();
+		List<TreeAndParentMap<ExtendedInfo, ExtendedNode>> hypotheses = new ArrayList<TreeAndParentMap<ExtendedInfo, ExtendedNode>>();
+		for (PairData pairData : reader.getPairsData())
+		{
+			TreeAndParentMap<ExtendedInfo, ExtendedNode> hypothesis = convert(pairData.getHypothesisTree());
+			for (BasicNode textTree : pairData.getTextTrees())
+			{
+				texts.add(convert(textTree));
+				hypotheses.add(hypothesis);
+			}
+		}
+		System.out.println(reader.getPairsData().size()+" pairs, "+texts.size()+" text trees.");
+
+		List<List<ExtendedNode>> nestedLoopsResults = run(false, texts, hypotheses);
+		List<List<ExtendedNode>> textIndexResults = run(true, texts, hypotheses);
+		if (!nestedLoopsResults.equals(textIndexResults)) throw new TeEngineMlException("The results of the two modes differ.");
+		System.out.println("The results of the two modes are identical.");
+
+		long nestedLoopsTime = time(false, texts, hypotheses);
+		long textIndexTime = time(true, texts, hypotheses);
+		System.out.println("Nested loops: "+nestedLoopsTime/1000000+" ms");
+		System.out.println("Text index: "+textIndexTime/1000000+" ms");
+	}
+
+	private List<List<ExtendedNode>> run(boolean useTextIndex, List<TreeAndParentMap<ExtendedInfo, ExtendedNode>> texts, List<TreeAndParentMap<ExtendedInfo, ExtendedNode>> hypotheses)
+	{
+		boolean originalMode = AdvancedEqualities.USE_TEXT_INDEX;
+		AdvancedEqualities.USE_TEXT_INDEX = useTextIndex;
+		try
+		{
+			List<List<ExtendedNode>> results = new ArrayList<List<ExtendedNode>>();
+			for (int index=0;index<texts.size();++index)
+			{
+				Set<ExtendedNode> missingNodes = AdvancedEqualities.findMissingNodes(texts.get(index), hypotheses.get(index));
+				Set<ExtendedNode> missingRelations = AdvancedEqualities.findMissingRelations(texts.get(index), hypotheses.get(index));
+				results.add(new ArrayList<ExtendedNode>(missingNodes));
+				results.add(new ArrayList<ExtendedNode>(missingRelations));
+			}
+			return results;
+		}
+		finally
+		{
+			AdvancedEqualities.USE_TEXT_INDEX = originalMode;
+		}
+	}
+
+	private long time(boolean useTextIndex, List<TreeAndParentMap<ExtendedInfo, ExtendedNode>> texts, List<TreeAndParentMap<ExtendedInfo, ExtendedNode>> hypotheses)
+	{
+		run(useTextIndex, texts, hypotheses); // warm up
+		long startTime = System.nanoTime();
+		for (int round=0;round<rounds;++round)
+		{
+			run(useTextIndex, texts, hypotheses);
+		}
+		return System.nanoTime()-startTime;
+	}
+
+	private static TreeAndParentMap<ExtendedInfo, ExtendedNode> convert(BasicNode tree) throws TreeAndParentMapException, TeEngineMlException
+	{
+		TreeCopier<Info, BasicNode, ExtendedInfo, ExtendedNode> treeCopier =
+				new TreeCopier<Info, BasicNode, ExtendedInfo, ExtendedNode>(
+						tree,
+						new TreeCopier.InfoConverter<BasicNode,ExtendedInfo>()
+						{
+							public ExtendedInfo convert(BasicNode node)
+							{
+								return new ExtendedInfo(node.getInfo(), AdditionalInformationServices.emptyInformation());
+							}
+						},
+						new ExtendedNodeConstructor()
+						);
+		treeCopier.copy();
+		ExtendedNode extendedTree = treeCopier.getGeneratedTree();
+		if (!TreeUtilities.isArtificialRoot(extendedTree))
+		{
+			extendedTree = TreeUtilities.addArtificialRoot(extendedTree);
+		}
+		extendedTree = ContentAncestorSetter.generateWithAncestorInformation(extendedTree);
+		return new TreeAndParentMap<ExtendedInfo, ExtendedNode>(extendedTree);
+	}
+
+	private final String pairsSerializationFileName;
+	private final int rounds;
+}
@@ -4,6 +4,8 @@ import java.util.List;
 
 import org.apache.uima.jcas.JCas;
 
+import eu.excitementproject.eop.common.exception.ComponentException;
+
 
 /** The goal of this interface is to provide an access method for 
  * EDAs (and/or EDA wrappers) that can process a set of entailment 
@@ -26,7 +28,8 @@ import org.apache.uima.jcas.JCas;
  * <P> This interface can be directly implemented by an EDA (i.e., a class that already 
  * implements EDABasic and/or other interfaces). It can be also implemented by a concurrent 
  * running wrapper (a "runner") for the EDA, if the implementation of this interface does 
- * not lend itself naturally to the internal structure of the EDA.
+ * not lend itself naturally to the internal structure of the EDA. See {@link EDAConcurrentRunner} 
+ * for a helper that runs a set of EDA instances. 
  * 
  * @author Gil
  * [see Spec 1.1DRAFT Section 4.8 for complete info] 
@@ -34,6 +37,6 @@ import org.apache.uima.jcas.JCas;
 
 public interface EDAConcurrentProcessing {
 
-	public List<TEDecision> processDataSetConcurrently(List<JCas> casList);
+	public List<TEDecision> processDataSetConcurrently(List<JCas> casList) throws EDAException, ComponentException;
 	
 }
@@ -0,0 +1,144 @@
+package eu.excitementproject.eop.common;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.apache.uima.jcas.JCas;
+
+import eu.excitementproject.eop.common.configuration.NameValueTable;
+import eu.excitementproject.eop.common.exception.ComponentException;
+import eu.excitementproject.eop.common.exception.ConfigurationException;
+
+/**
+ * A helper for implementations of {@link EDAConcurrentProcessing}: it processes a data set
+ * with a fixed set of initialized EDA instances, one thread per instance. Each instance is
+ * used by a single thread at a time, so the instances (and their components) need not be
+ * thread-safe. The decisions are returned in the order of the given CASes.
+ *
+ * <P> Typically, the EDA gives itself as the first instance, plus instances of its own class
+ * that it has initialized with the same configuration (sharing with them whatever is
+ * read-only, like a trained model).
+ */
+public class EDAConcurrentRunner {
+
+	/**
+	 * The name of the (optional) parameter of the EDA section that holds the number of threads
+	 * for processDataSetConcurrently(). The default is the number of available processors.
+	 */
+	public static final String THREADS_PARAMETER_NAME = "threads";
+
+	/**
+	 * @param edaInstances the initialized EDA instances, one per thread
+	 */
+	public EDAConcurrentRunner(List<? extends EDABasic<? extends TEDecision>> edaInstances)
+	{
+		if (edaInstances.isEmpty())
+			throw new IllegalArgumentException("At least one EDA instance is needed");
+		this.freeInstances = new LinkedBlockingQueue<EDABasic<? extends TEDecision>>(edaInstances);
+		this.executor = Executors.newFixedThreadPool(edaInstances.size());
+	}
+
+	/**
+	 * Processes the CASes concurrently, and blocks until all of them are processed.
+	 *
+	 * @param casList the T-H pairs
+	 * @return the decisions, in the order of the given CASes
+	 * @throws EDAException
+	 * @throws ComponentException
+	 */
+	public List<TEDecision> process(List<JCas> casList) throws EDAException, ComponentException
+	{
+		List<Future<TEDecision>> futures = new ArrayList<Future<TEDecision>>(casList.size());
+		for (final JCas aCas : casList)
+		{
+			futures.add(executor.submit(new Callable<TEDecision>() {
+				@Override
+				public TEDecision call() throws Exception
+				{
+					EDABasic<? extends TEDecision> eda = freeInstances.take();
+					try {
+						return eda.process(aCas);
+					}
+					finally {
+						freeInstances.put(eda);
+					}
+				}
+			}));
+		}
+
+		List<TEDecision> decisions = new ArrayList<TEDecision>(casList.size());
+		try {
+			for (Future<TEDecision> future : futures)
+			{
+				decisions.add(future.get());
+			}
+		}
+		catch (InterruptedException e)
+		{
+			cancel(futures);
+			Thread.currentThread().interrupt();
+			throw new EDAException("Interrupted while processing the data set", e);
+		}
+		catch (ExecutionException e)
+		{
+			cancel(futures);
+			if (e.getCause() instanceof EDAException)
+				throw (EDAException) e.getCause();
+			if (e.getCause() instanceof ComponentException)
+				throw (ComponentException) e.getCause();
+			throw new EDAException("Failed to process the data set", e.getCause());
+		}
+		return decisions;
+	}
+
+	/**
+	 * Stops the threads. The EDA instances are not shut down: this is done by their owner.
+	 */
+	public void shutdown()
+	{
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Reads the number of threads from the EDA section of the configuration (see
+	 * THREADS_PARAMETER_NAME).
+	 *
+	 * @param edaSection the section of the EDA, can be null
+	 * @return the number of threads
+	 * @throws ConfigurationException if the value is not a positive integer
+	 */
+	public static int getNumberOfThreads(NameValueTable edaSection) throws ConfigurationException
+	{
+		String threads = (edaSection == null) ? null : edaSection.getString(THREADS_PARAMETER_NAME);
+		if (threads == null)
+			return Runtime.getRuntime().availableProcessors();
+		try {
+			int value = Integer.parseInt(threads.trim());
+			if (value < 1)
+				throw new ConfigurationException("The number of threads must be positive: " + threads);
+			return value;
+		}
+		catch (NumberFormatException e)
+		{
+			throw new ConfigurationException("The number of threads is not an integer: " + threads);
+		}
+	}
+
+	private void cancel(List<Future<TEDecision>> futures)
+	{
+		for (Future<TEDecision> future : futures)
+		{
+			future.cancel(true);
+		}
+	}
+
+	private final BlockingQueue<EDABasic<? extends TEDecision>> freeInstances;
+	private final ExecutorService executor;
+}
@@ -0,0 +1,39 @@
+package eu.excitementproject.eop.common.component.lexicalknowledge;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * A {@link LexicalResource} that can answer the queries of many {@code <lemma, POS>} terms at once, e.g. with a single
+ * database round trip, instead of one query per term.
+ * <p>
+ * The callers should not check for this interface themselves: {@link BatchLexicalResourceUtils} queries any {@link LexicalResource}
+ * in a batch, and falls back to one query per term for resources that do not implement this interface.
+ * <p>
+ * The results must be the same as those of the single-term methods of {@link LexicalResource}: the returned map has an entry
+ * (possibly an empty list) for each distinct term of the given collection, in the order of the collection, and its value is the
+ * list that {@link #getRulesForLeft(String, eu.excitementproject.eop.common.representation.partofspeech.PartOfSpeech)} (or
+ * {@link #getRulesForRight(String, eu.excitementproject.eop.common.representation.partofspeech.PartOfSpeech)}) would have returned
+ * for that term.
+ *
+ * @param <I> type of the additional information a rule contains
+ */
+public interface BatchLexicalResource<I extends RuleInfo> extends LexicalResource<I>
+{
+	/**
+	 * Return, for each of the given terms, the list of lexical rules whose left side matches the term.
+	 * @param terms
+	 * @return the rules, by term
+	 * @throws LexicalResourceException
+	 */
+	Map<LemmaPos, List<LexicalRule<? extends I>>> getRulesForLeft(Collection<LemmaPos> terms) throws LexicalResourceException;
+
+	/**
+	 * Return, for each of the given terms, the list of lexical rules whose right side matches the term.
+	 * @param terms
+	 * @return the rules, by term
+	 * @throws LexicalResourceException
+	 */
+	Map<LemmaPos, List<LexicalRule<? extends I>>> getRulesForRight(Collection<LemmaPos> terms) throws LexicalResourceException;
+}
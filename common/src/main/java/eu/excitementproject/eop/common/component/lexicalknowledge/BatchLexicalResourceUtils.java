@@ -0,0 +1,72 @@
+package eu.excitementproject.eop.common.component.lexicalknowledge;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Batch queries of any {@link LexicalResource}: the resources that implement {@link BatchLexicalResource} answer them natively,
+ * the others are queried once per term.
+ */
+public final class BatchLexicalResourceUtils
+{
+	/**
+	 * The maximum number of terms the native implementations should put in one query (e.g. in one SQL <code>IN (...)</code> list).
+	 */
+	public static final int MAXIMUM_TERMS_PER_QUERY = 500;
+
+	/**
+	 * Return, for each of the given terms, the rules of the given resource whose left side matches the term.
+	 * @param resource
+	 * @param terms
+	 * @return the rules, by term, in the order of the given terms
+	 * @throws LexicalResourceException
+	 * @see BatchLexicalResource#getRulesForLeft(Collection)
+	 */
+	public static <I extends RuleInfo> Map<LemmaPos, List<LexicalRule<? extends I>>> getRulesForLeft(LexicalResource<I> resource, Collection<LemmaPos> terms) throws LexicalResourceException
+	{
+		if (resource instanceof BatchLexicalResource)
+			return ((BatchLexicalResource<I>) resource).getRulesForLeft(terms);
+		return getRulesOneByOne(resource, terms, false);
+	}
+
+	/**
+	 * Return, for each of the given terms, the rules of the given resource whose right side matches the term.
+	 * @param resource
+	 * @param terms
+	 * @return the rules, by term, in the order of the given terms
+	 * @throws LexicalResourceException
+	 * @see BatchLexicalResource#getRulesForRight(Collection)
+	 */
+	public static <I extends RuleInfo> Map<LemmaPos, List<LexicalRule<? extends I>>> getRulesForRight(LexicalResource<I> resource, Collection<LemmaPos> terms) throws LexicalResourceException
+	{
+		if (resource instanceof BatchLexicalResource)
+			return ((BatchLexicalResource<I>) resource).getRulesForRight(terms);
+		return getRulesOneByOne(resource, terms, true);
+	}
+
+	/**
+	 * The fallback of the batch queries: queries the resource once per distinct term. Implementations of {@link BatchLexicalResource}
+	 * that cannot answer some batch natively (e.g. subclasses that override the single-term methods) may use it too.
+	 * @param resource
+	 * @param terms
+	 * @param isRHS <code>true</code> for rules whose right side matches the terms
+	 * @return the rules, by term, in the order of the given terms
+	 * @throws LexicalResourceException
+	 */
+	public static <I extends RuleInfo> Map<LemmaPos, List<LexicalRule<? extends I>>> getRulesOneByOne(LexicalResource<I> resource, Collection<LemmaPos> terms, boolean isRHS) throws LexicalResourceException
+	{
+		Map<LemmaPos, List<LexicalRule<? extends I>>> rules = new LinkedHashMap<LemmaPos, List<LexicalRule<? extends I>>>();
+		for (LemmaPos term : terms)
+		{
+			if (!rules.containsKey(term))
+			{
+				rules.put(term, isRHS ? resource.getRulesForRight(term.getLemma(), term.getPos()) : resource.getRulesForLeft(term.getLemma(), term.getPos()));
+			}
+		}
+		return rules;
+	}
+
+	private BatchLexicalResourceUtils() {}
+}
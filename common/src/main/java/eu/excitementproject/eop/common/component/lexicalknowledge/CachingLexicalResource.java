@@ -0,0 +1,399 @@
+package eu.excitementproject.eop.common.component.lexicalknowledge;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import eu.excitementproject.eop.common.configuration.NameValueTable;
+import eu.excitementproject.eop.common.exception.ConfigurationException;
+import eu.excitementproject.eop.common.representation.partofspeech.PartOfSpeech;
+import eu.excitementproject.eop.common.utilities.ConcurrentCache;
+
+/**
+ * A {@link LexicalResource} that wraps another {@link LexicalResource} and memoizes the
+ * results of its queries, by lemma, part of speech and relation, in a bounded
+ * {@link ConcurrentCache}.
+ * <P>
+ * The cache is identified by a name, and all the {@link CachingLexicalResource}s
+ * created with the same name in the same JVM share it. This way, the EDA instances
+ * (e.g. of different threads, see EDAConcurrentProcessing) that use the same lexical
+ * resource with the same configuration query it only once for each lemma. <B>Resources
+ * that are different, or configured differently, must not use the same cache name.</B>
+ * The capacity of a shared cache is set by the first {@link CachingLexicalResource} that
+ * uses it.
+ * <P>
+ * The decorator is thread safe if the wrapped resource is. Each call returns a new
+ * list, so the caller may modify it. Exceptions of the wrapped resource are not cached.
+ * <P>
+ * Batch queries (see {@link BatchLexicalResource}) are answered from the cache, and only the
+ * terms missing from it are sent to the wrapped resource, in one batch.
+ * <P>
+ * The wrapped resources are usually created from a configuration section; see
+ * {@link #wrapIfConfigured(LexicalResource, NameValueTable)} for the
+ * parameters of the cache in that section.
+ *
+ * @param <I> the {@link RuleInfo} of the wrapped resource
+ */
+public class CachingLexicalResource<I extends RuleInfo> implements BatchLexicalResource<I>
+{
+	/**
+	 * Parameter of the resource's configuration section: the maximum number of
+	 * queries in the cache. Without it, the resource is not cached.
+	 */
+	public static final String CACHE_SIZE_PARAMETER_NAME = "cacheSize";
+	/**
+	 * Optional parameter of the resource's configuration section: the name of the
+	 * (shared) cache. The default is derived from the class of the resource and the other
+	 * parameters of the section, see {@link #getDefaultCacheName(LexicalResource, NameValueTable)}.
+	 */
+	public static final String CACHE_NAME_PARAMETER_NAME = "cacheName";
+	/**
+	 * Optional parameter of the resource's configuration section: the number of seconds
+	 * after which the cached results expire. The default is never.
+	 */
+	public static final String CACHE_TIME_TO_LIVE_PARAMETER_NAME = "cacheTimeToLiveSeconds";
+
+	/**
+	 * Wraps the given resource with a {@link CachingLexicalResource}, if the
+	 * given configuration section has the parameter {@value #CACHE_SIZE_PARAMETER_NAME}.
+	 * Resources that implement {@link LexicalResourceWithRelation} are wrapped by a
+	 * {@link CachingLexicalResourceWithRelation}.
+	 *
+	 * @param resource the resource
+	 * @param section the configuration section of the resource
+	 * @return the wrapped resource, or the given resource if the section has no cache size
+	 * @throws ConfigurationException if a parameter of the cache is invalid
+	 */
+	public static <I extends RuleInfo> LexicalResource<I> wrapIfConfigured(LexicalResource<I> resource, NameValueTable section) throws ConfigurationException
+	{
+		return wrapIfConfigured(resource, section, null);
+	}
+
+	/**
+	 * Like {@link #wrapIfConfigured(LexicalResource, NameValueTable)}, for a resource that
+	 * is one of several resources created differently from the same configuration section
+	 * (e.g. one for each relation). The variant is appended to the name of the cache, so
+	 * that these resources don't share it.
+	 *
+	 * @param resource the resource
+	 * @param section the configuration section of the resource
+	 * @param variant describes how the resource differs from the others of the section, or null
+	 * @return the wrapped resource, or the given resource if the section has no cache size
+	 * @throws ConfigurationException if a parameter of the cache is invalid
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public static <I extends RuleInfo> LexicalResource<I> wrapIfConfigured(LexicalResource<I> resource, NameValueTable section, String variant) throws ConfigurationException
+	{
+		if (!section.keySet().contains(CACHE_SIZE_PARAMETER_NAME))
+			return resource;
+
+		int capacity = section.getInteger(CACHE_SIZE_PARAMETER_NAME);
+		String cacheName;
+		if (section.keySet().contains(CACHE_NAME_PARAMETER_NAME))
+			cacheName = section.getString(CACHE_NAME_PARAMETER_NAME);
+		else
+			cacheName = getDefaultCacheName(resource, section);
+		if (variant!=null)
+			cacheName = cacheName+"|"+variant;
+		long timeToLiveMillis = 0;
+		if (section.keySet().contains(CACHE_TIME_TO_LIVE_PARAMETER_NAME))
+			timeToLiveMillis = 1000L*section.getInteger(CACHE_TIME_TO_LIVE_PARAMETER_NAME);
+		if (capacity<1 || timeToLiveMillis<0)
+			throw new ConfigurationException("Invalid cache parameters for the lexical resource "+resource.getClass().getName()+": size="+capacity+", time to live="+timeToLiveMillis+"ms");
+
+		if (resource instanceof LexicalResourceWithRelation)
+			return new CachingLexicalResourceWithRelation((LexicalResourceWithRelation) resource, cacheName, capacity, timeToLiveMillis);
+		return new CachingLexicalResource<I>(resource, cacheName, capacity, timeToLiveMillis);
+	}
+
+	/**
+	 * Returns the name of the cache of a resource whose section does not give it: the class
+	 * of the resource, followed by all the other parameters of the section (but the cache
+	 * parameters), sorted by name. So, resources of the same class share a cache only if
+	 * they are configured the same way, even if their sections have different names.
+	 *
+	 * @param resource the resource
+	 * @param section the configuration section of the resource
+	 * @return the name of the cache
+	 * @throws ConfigurationException if a parameter can't be read
+	 */
+	public static String getDefaultCacheName(LexicalResource<?> resource, NameValueTable section) throws ConfigurationException
+	{
+		StringBuilder name = new StringBuilder(resource.getClass().getName());
+		for (String parameter : new TreeSet<String>(section.keySet()))
+		{
+			if (CACHE_PARAMETER_NAMES.contains(parameter))
+				continue;
+			name.append('|').append(parameter).append('=').append(section.getString(parameter));
+		}
+		return name.toString();
+	}
+
+	/**
+	 * @param resource the resource to wrap
+	 * @param cacheName the name of the (shared) cache
+	 * @param capacity the maximum number of queries in the cache
+	 */
+	public CachingLexicalResource(LexicalResource<I> resource, String cacheName, int capacity)
+	{
+		this(resource, cacheName, capacity, 0);
+	}
+
+	/**
+	 * @param resource the resource to wrap
+	 * @param cacheName the name of the (shared) cache
+	 * @param capacity the maximum number of queries in the cache
+	 * @param timeToLiveMillis the time after which the cached results expire, or 0 for never
+	 */
+	public CachingLexicalResource(LexicalResource<I> resource, String cacheName, int capacity, long timeToLiveMillis)
+	{
+		if (null==resource) throw new IllegalArgumentException("The wrapped resource is null");
+		this.resource = resource;
+		this.cacheName = cacheName;
+		this.cache = getSharedCache(cacheName, capacity, timeToLiveMillis);
+	}
+
+	public List<LexicalRule<? extends I>> getRulesForLeft(String lemma, PartOfSpeech pos) throws LexicalResourceException
+	{
+		return query(new Query(QueryType.LEFT, lemma, pos, null, null, null));
+	}
+
+	public List<LexicalRule<? extends I>> getRulesForRight(String lemma, PartOfSpeech pos) throws LexicalResourceException
+	{
+		return query(new Query(QueryType.RIGHT, null, null, lemma, pos, null));
+	}
+
+	public List<LexicalRule<? extends I>> getRules(String leftLemma, PartOfSpeech leftPos, String rightLemma, PartOfSpeech rightPos) throws LexicalResourceException
+	{
+		return query(new Query(QueryType.BOTH, leftLemma, leftPos, rightLemma, rightPos, null));
+	}
+
+	public Map<LemmaPos, List<LexicalRule<? extends I>>> getRulesForLeft(Collection<LemmaPos> terms) throws LexicalResourceException
+	{
+		return batchQuery(terms, false);
+	}
+
+	public Map<LemmaPos, List<LexicalRule<? extends I>>> getRulesForRight(Collection<LemmaPos> terms) throws LexicalResourceException
+	{
+		return batchQuery(terms, true);
+	}
+
+	/**
+	 * Closes the wrapped resource. The shared cache is kept for the other users of its name.
+	 */
+	public void close() throws LexicalResourceCloseException
+	{
+		resource.close();
+	}
+
+	/**
+	 * @return the wrapped resource
+	 */
+	public LexicalResource<I> getResource()
+	{
+		return resource;
+	}
+
+	/**
+	 * @return the name of the shared cache
+	 */
+	public String getCacheName()
+	{
+		return cacheName;
+	}
+
+	/**
+	 * @return the number of queries answered by the cache (by all the users of the cache)
+	 */
+	public long getHitCount()
+	{
+		return cache.getHitCount();
+	}
+
+	/**
+	 * @return the number of queries sent to a resource (by all the users of the cache)
+	 */
+	public long getMissCount()
+	{
+		return cache.getMissCount();
+	}
+
+	/**
+	 * Drops the shared cache of the given name. The {@link CachingLexicalResource}s
+	 * that already use it keep using it.
+	 *
+	 * @param cacheName the name of the cache
+	 */
+	public static void removeSharedCache(String cacheName)
+	{
+		sharedCaches.remove(cacheName);
+	}
+
+
+
+	/**
+	 * Sends the query to the wrapped resource.
+	 */
+	protected List<LexicalRule<? extends I>> retrieve(Query query) throws LexicalResourceException
+	{
+		switch (query.type)
+		{
+		case LEFT:
+			return resource.getRulesForLeft(query.leftLemma, query.leftPos);
+		case RIGHT:
+			return resource.getRulesForRight(query.rightLemma, query.rightPos);
+		case BOTH:
+			return resource.getRules(query.leftLemma, query.leftPos, query.rightLemma, query.rightPos);
+		default:
+			throw new LexicalResourceException("BUG: unsupported query type "+query.type);
+		}
+	}
+
+	protected List<LexicalRule<? extends I>> query(Query query) throws LexicalResourceException
+	{
+		@SuppressWarnings("unchecked")
+		List<LexicalRule<? extends I>> rules = (List<LexicalRule<? extends I>>) cache.get(query);
+		if (null==rules)
+		{
+			List<LexicalRule<? extends I>> retrieved = retrieve(query);
+			rules = Collections.unmodifiableList(new ArrayList<LexicalRule<? extends I>>(retrieved));
+			cache.put(query, rules);
+		}
+		return new ArrayList<LexicalRule<? extends I>>(rules);
+	}
+
+	protected Map<LemmaPos, List<LexicalRule<? extends I>>> batchQuery(Collection<LemmaPos> terms, boolean isRHS) throws LexicalResourceException
+	{
+		Map<LemmaPos, List<LexicalRule<? extends I>>> rules = new LinkedHashMap<LemmaPos, List<LexicalRule<? extends I>>>();
+		List<LemmaPos> missing = new ArrayList<LemmaPos>();
+		for (LemmaPos term : terms)
+		{
+			if (rules.containsKey(term)) continue;
+			@SuppressWarnings("unchecked")
+			List<LexicalRule<? extends I>> cached = (List<LexicalRule<? extends I>>) cache.get(toQuery(term, isRHS));
+			rules.put(term, cached); // null until retrieved, to keep the order of the terms
+			if (null==cached)
+				missing.add(term);
+		}
+
+		if (missing.size()>0)
+		{
+			Map<LemmaPos, List<LexicalRule<? extends I>>> retrieved = isRHS ?
+					BatchLexicalResourceUtils.getRulesForRight(resource, missing)
+					: BatchLexicalResourceUtils.getRulesForLeft(resource, missing);
+			for (LemmaPos term : missing)
+			{
+				List<LexicalRule<? extends I>> termRules = retrieved.get(term);
+				if (null==termRules) throw new LexicalResourceException("BUG: the batch query of "+resource.getClass().getName()+" did not return the rules of "+term);
+				termRules = Collections.unmodifiableList(new ArrayList<LexicalRule<? extends I>>(termRules));
+				cache.put(toQuery(term, isRHS), termRules);
+				rules.put(term, termRules);
+			}
+		}
+
+		for (Map.Entry<LemmaPos, List<LexicalRule<? extends I>>> entry : rules.entrySet())
+		{
+			entry.setValue(new ArrayList<LexicalRule<? extends I>>(entry.getValue()));
+		}
+		return rules;
+	}
+
+	private static Query toQuery(LemmaPos term, boolean isRHS)
+	{
+		return isRHS ? new Query(QueryType.RIGHT, null, null, term.getLemma(), term.getPos(), null)
+				: new Query(QueryType.LEFT, term.getLemma(), term.getPos(), null, null, null);
+	}
+
+	protected static enum QueryType
+	{
+		LEFT, RIGHT, BOTH, LEFT_WITH_RELATION, RIGHT_WITH_RELATION, BOTH_WITH_RELATION;
+	}
+
+	/**
+	 * The key of the cache. Queries for the left side only (or the right side only) leave
+	 * the other side null.
+	 */
+	protected static final class Query
+	{
+		protected Query(QueryType type, String leftLemma, PartOfSpeech leftPos, String rightLemma, PartOfSpeech rightPos, RelationSpecifier relation)
+		{
+			this.type = type;
+			this.leftLemma = leftLemma;
+			this.leftPos = leftPos;
+			this.rightLemma = rightLemma;
+			this.rightPos = rightPos;
+			this.relation = relation;
+
+			int hash = type.hashCode();
+			hash = 31*hash + ((leftLemma == null) ? 0 : leftLemma.hashCode());
+			hash = 31*hash + ((leftPos == null) ? 0 : leftPos.hashCode());
+			hash = 31*hash + ((rightLemma == null) ? 0 : rightLemma.hashCode());
+			hash = 31*hash + ((rightPos == null) ? 0 : rightPos.hashCode());
+			hash = 31*hash + ((relation == null) ? 0 : relation.hashCode());
+			this.hashCode = hash;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj)
+		{
+			if (this == obj) return true;
+			if (!(obj instanceof Query)) return false;
+			Query other = (Query) obj;
+			return (hashCode == other.hashCode) && (type == other.type)
+					&& equal(leftLemma, other.leftLemma) && equal(leftPos, other.leftPos)
+					&& equal(rightLemma, other.rightLemma) && equal(rightPos, other.rightPos)
+					&& equal(relation, other.relation);
+		}
+
+		private static boolean equal(Object a, Object b)
+		{
+			return (a == null) ? (b == null) : a.equals(b);
+		}
+
+		protected final QueryType type;
+		protected final String leftLemma;
+		protected final PartOfSpeech leftPos;
+		protected final String rightLemma;
+		protected final PartOfSpeech rightPos;
+		protected final RelationSpecifier relation;
+		private final int hashCode;
+	}
+
+
+	private static ConcurrentCache<Query, List<?>> getSharedCache(String cacheName, int capacity, long timeToLiveMillis)
+	{
+		ConcurrentCache<Query, List<?>> cache = sharedCaches.get(cacheName);
+		if (null==cache)
+		{
+			ConcurrentCache<Query, List<?>> newCache = new ConcurrentCache<Query, List<?>>(capacity, null, timeToLiveMillis, ConcurrentCache.DEFAULT_CONCURRENCY_LEVEL);
+			cache = sharedCaches.putIfAbsent(cacheName, newCache);
+			if (null==cache)
+				cache = newCache;
+		}
+		return cache;
+	}
+
+	private static final Set<String> CACHE_PARAMETER_NAMES = new HashSet<String>(Arrays.asList(
+			CACHE_SIZE_PARAMETER_NAME, CACHE_NAME_PARAMETER_NAME, CACHE_TIME_TO_LIVE_PARAMETER_NAME));
+
+	private static final ConcurrentMap<String, ConcurrentCache<Query, List<?>>> sharedCaches = new ConcurrentHashMap<String, ConcurrentCache<Query, List<?>>>();
+
+	protected final LexicalResource<I> resource;
+	private final String cacheName;
+	private final ConcurrentCache<Query, List<?>> cache;
+}
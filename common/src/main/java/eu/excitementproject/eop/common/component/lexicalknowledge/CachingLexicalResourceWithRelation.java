@@ -0,0 +1,64 @@
+package eu.excitementproject.eop.common.component.lexicalknowledge;
+
+import java.util.List;
+
+import eu.excitementproject.eop.common.representation.partofspeech.PartOfSpeech;
+
+/**
+ * A {@link CachingLexicalResource} for resources that implement {@link LexicalResourceWithRelation}:
+ * the queries with a relation are cached too, the relation being part of the key. The
+ * relations should implement <code>equals()</code> (enum relations do).
+ *
+ * @param <I>
+ * @param <R>
+ */
+public class CachingLexicalResourceWithRelation<I extends RuleInfo, R extends RelationSpecifier> extends CachingLexicalResource<I> implements LexicalResourceWithRelation<I, R>
+{
+	/**
+	 * @param resource the resource to wrap
+	 * @param cacheName the name of the (shared) cache
+	 * @param capacity the maximum number of queries in the cache
+	 * @param timeToLiveMillis the time after which the cached results expire, or 0 for never
+	 */
+	public CachingLexicalResourceWithRelation(LexicalResourceWithRelation<I, R> resource, String cacheName, int capacity, long timeToLiveMillis)
+	{
+		super(resource, cacheName, capacity, timeToLiveMillis);
+		this.resourceWithRelation = resource;
+	}
+
+	public List<LexicalRule<? extends I>> getRulesForLeft(String lemma, PartOfSpeech pos, R relation) throws LexicalResourceException
+	{
+		return query(new Query(QueryType.LEFT_WITH_RELATION, lemma, pos, null, null, relation));
+	}
+
+	public List<LexicalRule<? extends I>> getRulesForRight(String lemma, PartOfSpeech pos, R relation) throws LexicalResourceException
+	{
+		return query(new Query(QueryType.RIGHT_WITH_RELATION, null, null, lemma, pos, relation));
+	}
+
+	public List<LexicalRule<? extends I>> getRules(String leftLemma, PartOfSpeech leftPos, String rightLemma, PartOfSpeech rightPos, R relation) throws LexicalResourceException
+	{
+		return query(new Query(QueryType.BOTH_WITH_RELATION, leftLemma, leftPos, rightLemma, rightPos, relation));
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	protected List<LexicalRule<? extends I>> retrieve(Query query) throws LexicalResourceException
+	{
+		// only the queries of this class have a relation, and its type is R
+		R relation = (R) query.relation;
+		switch (query.type)
+		{
+		case LEFT_WITH_RELATION:
+			return resourceWithRelation.getRulesForLeft(query.leftLemma, query.leftPos, relation);
+		case RIGHT_WITH_RELATION:
+			return resourceWithRelation.getRulesForRight(query.rightLemma, query.rightPos, relation);
+		case BOTH_WITH_RELATION:
+			return resourceWithRelation.getRules(query.leftLemma, query.leftPos, query.rightLemma, query.rightPos, relation);
+		default:
+			return super.retrieve(query);
+		}
+	}
+
+	private final LexicalResourceWithRelation<I, R> resourceWithRelation;
+}
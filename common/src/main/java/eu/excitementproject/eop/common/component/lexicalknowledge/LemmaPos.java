@@ -0,0 +1,76 @@
+package eu.excitementproject.eop.common.component.lexicalknowledge;
+import java.io.Serializable;
+
+import eu.excitementproject.eop.common.representation.partofspeech.PartOfSpeech;
+
+
+/**
+ * A {@code <lemma, part of speech>} query term of a {@link BatchLexicalResource}. As in
+ * {@link LexicalResource}, the part of speech may be <code>null</code>, meaning all the parts of speech.
+ * <p>
+ * <b>Immutable</b>. This class implements hashCode() and equals().
+ */
+public final class LemmaPos implements Serializable
+{
+	private static final long serialVersionUID = 2907165627283617504L;
+
+	/**
+	 * Ctor
+	 * @param lemma
+	 * @param pos can be <code>null</code>
+	 * @throws LexicalResourceException if the lemma is null
+	 */
+	public LemmaPos(String lemma, PartOfSpeech pos) throws LexicalResourceException
+	{
+		if (null==lemma) throw new LexicalResourceException("null lemma");
+		this.lemma = lemma;
+		this.pos = pos;
+		this.hashCode = 31*lemma.hashCode() + ((pos == null) ? 0 : pos.hashCode());
+	}
+
+	public String getLemma()
+	{
+		return lemma;
+	}
+
+	/**
+	 * @return the part of speech, or <code>null</code> for all the parts of speech
+	 */
+	public PartOfSpeech getPos()
+	{
+		return pos;
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return hashCode;
+	}
+
+	@Override
+	public boolean equals(Object obj)
+	{
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		LemmaPos other = (LemmaPos) obj;
+		if (!lemma.equals(other.lemma))
+			return false;
+		if (pos == null)
+			return (other.pos == null);
+		return pos.equals(other.pos);
+	}
+
+	@Override
+	public String toString()
+	{
+		return lemma + ":" + pos;
+	}
+
+	private final String lemma;
+	private final PartOfSpeech pos;
+	private final int hashCode;
+}
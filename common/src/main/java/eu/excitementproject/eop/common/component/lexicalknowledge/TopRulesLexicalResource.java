@@ -0,0 +1,44 @@
+package eu.excitementproject.eop.common.component.lexicalknowledge;
+import java.util.List;
+
+import eu.excitementproject.eop.common.representation.partofspeech.PartOfSpeech;
+
+
+/**
+ * A {@link LexicalResource} that can retrieve only the best rules of a {@code <lemma, POS>} term: at most a given number of rules,
+ * whose confidence is not lower than a given score, e.g. by pushing the limit and the score into the database query, instead of
+ * retrieving all the rules of the term.
+ * <p>
+ * The callers should not check for this interface themselves: {@link TopRulesLexicalResourceUtils} queries any {@link LexicalResource}
+ * for its top rules, and falls back to filtering all the rules of the term for resources that do not implement this interface.
+ * <p>
+ * The results must be the rules that {@link TopRulesLexicalResourceUtils#selectTopRules(List, int, double)} would have selected out of
+ * the rules of {@link #getRulesForLeft(String, PartOfSpeech)} (or {@link #getRulesForRight(String, PartOfSpeech)}), in decreasing
+ * order of confidence. Rules of equal confidence may be in a different order.
+ *
+ * @param <I> type of the additional information a rule contains
+ */
+public interface TopRulesLexicalResource<I extends RuleInfo> extends LexicalResource<I>
+{
+	/**
+	 * Return the best lexical rules whose left side matches the given lemma and POS.
+	 * @param lemma
+	 * @param pos may be <code>null</code>, meaning all the parts of speech
+	 * @param maximumRules the maximum number of rules to return. Zero means no limit.
+	 * @param minimumConfidence only rules with at least this confidence are returned
+	 * @return the rules, in decreasing order of confidence
+	 * @throws LexicalResourceException
+	 */
+	List<LexicalRule<? extends I>> getTopRulesForLeft(String lemma, PartOfSpeech pos, int maximumRules, double minimumConfidence) throws LexicalResourceException;
+
+	/**
+	 * Return the best lexical rules whose right side matches the given lemma and POS.
+	 * @param lemma
+	 * @param pos may be <code>null</code>, meaning all the parts of speech
+	 * @param maximumRules the maximum number of rules to return. Zero means no limit.
+	 * @param minimumConfidence only rules with at least this confidence are returned
+	 * @return the rules, in decreasing order of confidence
+	 * @throws LexicalResourceException
+	 */
+	List<LexicalRule<? extends I>> getTopRulesForRight(String lemma, PartOfSpeech pos, int maximumRules, double minimumConfidence) throws LexicalResourceException;
+}
@@ -0,0 +1,86 @@
+package eu.excitementproject.eop.common.component.lexicalknowledge;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import eu.excitementproject.eop.common.representation.partofspeech.PartOfSpeech;
+
+
+/**
+ * Top rules queries of any {@link LexicalResource}: the resources that implement {@link TopRulesLexicalResource} answer them natively,
+ * for the others all the rules of the term are retrieved and filtered with {@link #selectTopRules(List, int, double)}.
+ */
+public final class TopRulesLexicalResourceUtils
+{
+	/**
+	 * Return the best rules of the given resource whose left side matches the given lemma and POS.
+	 * @param resource
+	 * @param lemma
+	 * @param pos may be <code>null</code>
+	 * @param maximumRules the maximum number of rules to return. Zero means no limit.
+	 * @param minimumConfidence only rules with at least this confidence are returned
+	 * @return the rules, in decreasing order of confidence
+	 * @throws LexicalResourceException
+	 * @see TopRulesLexicalResource#getTopRulesForLeft(String, PartOfSpeech, int, double)
+	 */
+	public static <I extends RuleInfo> List<LexicalRule<? extends I>> getTopRulesForLeft(LexicalResource<I> resource, String lemma, PartOfSpeech pos, int maximumRules, double minimumConfidence) throws LexicalResourceException
+	{
+		if (resource instanceof TopRulesLexicalResource)
+			return ((TopRulesLexicalResource<I>) resource).getTopRulesForLeft(lemma, pos, maximumRules, minimumConfidence);
+		return selectTopRules(resource.getRulesForLeft(lemma, pos), maximumRules, minimumConfidence);
+	}
+
+	/**
+	 * Return the best rules of the given resource whose right side matches the given lemma and POS.
+	 * @param resource
+	 * @param lemma
+	 * @param pos may be <code>null</code>
+	 * @param maximumRules the maximum number of rules to return. Zero means no limit.
+	 * @param minimumConfidence only rules with at least this confidence are returned
+	 * @return the rules, in decreasing order of confidence
+	 * @throws LexicalResourceException
+	 * @see TopRulesLexicalResource#getTopRulesForRight(String, PartOfSpeech, int, double)
+	 */
+	public static <I extends RuleInfo> List<LexicalRule<? extends I>> getTopRulesForRight(LexicalResource<I> resource, String lemma, PartOfSpeech pos, int maximumRules, double minimumConfidence) throws LexicalResourceException
+	{
+		if (resource instanceof TopRulesLexicalResource)
+			return ((TopRulesLexicalResource<I>) resource).getTopRulesForRight(lemma, pos, maximumRules, minimumConfidence);
+		return selectTopRules(resource.getRulesForRight(lemma, pos), maximumRules, minimumConfidence);
+	}
+
+	/**
+	 * The fallback of the top rules queries: the rules whose confidence is at least <code>minimumConfidence</code>, sorted (stably) in
+	 * decreasing order of confidence, and truncated to <code>maximumRules</code> rules.
+	 * @param rules
+	 * @param maximumRules the maximum number of rules to return. Zero means no limit.
+	 * @param minimumConfidence
+	 * @return a new list
+	 * @throws LexicalResourceException if maximumRules is negative
+	 */
+	public static <I extends RuleInfo> List<LexicalRule<? extends I>> selectTopRules(List<LexicalRule<? extends I>> rules, int maximumRules, double minimumConfidence) throws LexicalResourceException
+	{
+		if (maximumRules < 0) throw new LexicalResourceException("The maximum number of rules must be positive, or zero to mean 'no limit'. I got " + maximumRules);
+		List<LexicalRule<? extends I>> topRules = new ArrayList<LexicalRule<? extends I>>(rules.size());
+		for (LexicalRule<? extends I> rule : rules)
+		{
+			if (rule.getConfidence() >= minimumConfidence)
+				topRules.add(rule);
+		}
+		Collections.sort(topRules, DECREASING_CONFIDENCE_COMPARATOR);
+		if (maximumRules > 0 && topRules.size() > maximumRules)
+			topRules.subList(maximumRules, topRules.size()).clear();
+		return topRules;
+	}
+
+	private static final Comparator<LexicalRule<?>> DECREASING_CONFIDENCE_COMPARATOR = new Comparator<LexicalRule<?>>()
+	{
+		@Override
+		public int compare(LexicalRule<?> rule1, LexicalRule<?> rule2)
+		{
+			return Double.compare(rule2.getConfidence(), rule1.getConfidence());
+		}
+	};
+
+	private TopRulesLexicalResourceUtils() {}
+}
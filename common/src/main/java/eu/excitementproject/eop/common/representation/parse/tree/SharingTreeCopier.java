@@ -0,0 +1,237 @@
+package eu.excitementproject.eop.common.representation.parse.tree;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import eu.excitementproject.eop.common.datastructures.BidirectionalMap;
+import eu.excitementproject.eop.common.datastructures.SimpleBidirectionalMap;
+
+/**
+ * Creates a new version of a given tree, in which only the changed nodes and their ancestors
+ * are new nodes, while all the other subtrees are shared with the given tree (path copying).
+ * <P>
+ * This class is used like {@link TreeCopier}, for trees of the same type. The information of each
+ * node in the new tree is specified by the {@link TreeCopier.InfoConverter}, which returns the node's own
+ * information (the same object) for nodes that should not be changed.
+ * <BR>
+ * A node of the given tree is copied to a new node if:
+ * <UL>
+ * <LI>The {@link TreeCopier.InfoConverter} returns for it another information, or</LI>
+ * <LI>it is one of the "nodes to copy", given in the constructor, or</LI>
+ * <LI>one of its descendants is copied, or</LI>
+ * <LI>its antecedent is copied (see {@link AbstractNode#getAntecedent()}).</LI>
+ * </UL>
+ * Any other node is not copied, but is a node of both trees. This is possible since the nodes do not
+ * refer to their parents (the parents are given by the {@link TreeAndParentMap} of each tree).
+ * The new tree is an ordinary tree of {@link AbstractNode}s, so it can be used by any code that uses
+ * such trees, as long as it does not change them.
+ * <P>
+ * <B>The nodes of the given tree must not be changed afterwards</B>, since they might be nodes of the new
+ * tree as well. Only the copied nodes, which are the nodes to copy and their ancestors, may be changed
+ * by the caller (e.g., by adding children to them).
+ *
+ * @see TreeCopier
+ *
+ * @param <T> The information type of the nodes
+ * @param <S> The type of the nodes
+ */
+public class SharingTreeCopier<T, S extends AbstractNode<T, S>>
+{
+	public SharingTreeCopier(S originalTree, TreeCopier.InfoConverter<S, T> infoConverter,
+			AbstractNodeConstructor<T, S> nodeConstructor)
+	{
+		this(originalTree, infoConverter, nodeConstructor, Collections.<S>emptySet());
+	}
+
+	/**
+	 * @param originalTree the given tree
+	 * @param infoConverter returns the information of each node in the new tree
+	 * @param nodeConstructor
+	 * @param nodesToCopy nodes of the given tree which should be copied, even if their information is not changed.
+	 */
+	public SharingTreeCopier(S originalTree, TreeCopier.InfoConverter<S, T> infoConverter,
+			AbstractNodeConstructor<T, S> nodeConstructor, Set<S> nodesToCopy)
+	{
+		super();
+		this.originalTree = originalTree;
+		this.infoConverter = infoConverter;
+		this.nodeConstructor = nodeConstructor;
+		this.nodesToCopy = nodesToCopy;
+	}
+
+	/**
+	 * Creates the new tree.
+	 */
+	public void copy()
+	{
+		parentMap = new HashMap<S, S>();
+		nodesWithAntecedent = new ArrayList<S>();
+		infosOfCopiedNodes = new HashMap<S, T>();
+		markCopiedNodes(originalTree);
+		markNodesWithCopiedAntecedent();
+
+		nodesMap = new SimpleBidirectionalMap<S, S>();
+		generatedTree = copySubTree(originalTree);
+		copyAntecedents();
+
+		parentMap = null;
+		nodesWithAntecedent = null;
+	}
+
+	/**
+	 * Returns the new tree
+	 *
+	 * @return the new tree
+	 */
+	public S getGeneratedTree()
+	{
+		return generatedTree;
+	}
+
+	/**
+	 * Returns a one-to-one mapping of the nodes from the given tree to the new tree.
+	 * Nodes that were not copied are mapped to themselves.
+	 *
+	 * @return a one-to-one mapping of the nodes from the given tree to the new tree.
+	 */
+	public BidirectionalMap<S, S> getNodesMap()
+	{
+		return nodesMap;
+	}
+
+	/**
+	 * Returns the number of nodes of the given tree that were copied to new nodes.
+	 *
+	 * @return the number of copied nodes.
+	 */
+	public int getNumberOfCopiedNodes()
+	{
+		return infosOfCopiedNodes.size();
+	}
+
+
+
+
+	/**
+	 * Marks the nodes of the given subtree that have to be copied.
+	 *
+	 * @param subtree
+	 * @return <tt>true</tt> if the root of the subtree has to be copied.
+	 */
+	private boolean markCopiedNodes(S subtree)
+	{
+		boolean copied = false;
+		if (subtree.getChildren()!=null)
+		{
+			for (S child : subtree.getChildren())
+			{
+				parentMap.put(child, subtree);
+				if (markCopiedNodes(child))
+				{
+					copied = true;
+				}
+			}
+		}
+		if (subtree.getAntecedent()!=null)
+		{
+			nodesWithAntecedent.add(subtree);
+		}
+
+		T info = infoConverter.convert(subtree);
+		if ( (info!=subtree.getInfo()) || nodesToCopy.contains(subtree) )
+		{
+			copied = true;
+		}
+		if (copied)
+		{
+			infosOfCopiedNodes.put(subtree, info);
+		}
+		return copied;
+	}
+
+	/**
+	 * A node whose antecedent is copied must be copied as well, so its antecedent would be
+	 * a node of the new tree. This might cause more antecedents to be copied.
+	 */
+	private void markNodesWithCopiedAntecedent()
+	{
+		boolean marked = true;
+		while (marked)
+		{
+			marked = false;
+			for (S node : nodesWithAntecedent)
+			{
+				if ( (!infosOfCopiedNodes.containsKey(node)) && (infosOfCopiedNodes.containsKey(node.getAntecedent())) )
+				{
+					// The converter has returned the node's own information for it and for its ancestors that are not yet marked.
+					for (S ancestor = node; (ancestor!=null) && (!infosOfCopiedNodes.containsKey(ancestor)); ancestor = parentMap.get(ancestor))
+					{
+						infosOfCopiedNodes.put(ancestor, ancestor.getInfo());
+					}
+					marked = true;
+				}
+			}
+		}
+	}
+
+	private S copySubTree(S subtree)
+	{
+		if (!infosOfCopiedNodes.containsKey(subtree))
+		{
+			mapSharedSubTree(subtree);
+			return subtree;
+		}
+
+		S generatedSubTree = nodeConstructor.newNode(infosOfCopiedNodes.get(subtree));
+		if (subtree.getChildren()!=null)
+		{
+			for (S child : subtree.getChildren())
+			{
+				generatedSubTree.addChild(copySubTree(child));
+			}
+		}
+		nodesMap.put(subtree, generatedSubTree);
+		return generatedSubTree;
+	}
+
+	private void mapSharedSubTree(S subtree)
+	{
+		nodesMap.put(subtree, subtree);
+		if (subtree.getChildren()!=null)
+		{
+			for (S child : subtree.getChildren())
+			{
+				mapSharedSubTree(child);
+			}
+		}
+	}
+
+	private void copyAntecedents()
+	{
+		for (S originalNode : infosOfCopiedNodes.keySet())
+		{
+			if (originalNode.getAntecedent()!=null)
+			{
+				nodesMap.leftGet(originalNode).setAntecedent(nodesMap.leftGet(originalNode.getAntecedent()));
+			}
+		}
+	}
+
+
+
+	private final S originalTree;
+	private final TreeCopier.InfoConverter<S, T> infoConverter;
+	private final AbstractNodeConstructor<T, S> nodeConstructor;
+	private final Set<S> nodesToCopy;
+
+	private Map<S, S> parentMap;
+	private List<S> nodesWithAntecedent;
+	private Map<S, T> infosOfCopiedNodes;
+
+	private S generatedTree;
+	private BidirectionalMap<S, S> nodesMap;
+}
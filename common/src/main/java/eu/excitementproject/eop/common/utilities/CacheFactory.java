@@ -1,7 +1,15 @@
 package eu.excitementproject.eop.common.utilities;
 
 /**
- * 
+ * Creates the caches used in the system.
+ * <P>
+ * The thread safe caches returned by {@link #getCache()}, {@link #getCache(int)} and
+ * {@link #getThreadSafeCache(int)} are by default {@link TwoMapsCache}s wrapped
+ * by a {@link ThreadSafeCache}, i.e., every call is synchronized on one lock. If the
+ * system property {@value #CACHE_IMPLEMENTATION_PROPERTY_NAME} is set to
+ * {@value #CONCURRENT_CACHE_IMPLEMENTATION}, they are {@link ConcurrentCache}s
+ * instead, which scale better when many threads use the same cache.
+ *
  * @author Asher Stern
  *
  * @param <K>
@@ -9,21 +17,64 @@ package eu.excitementproject.eop.common.utilities;
  */
 public class CacheFactory<K,V>
 {
+	public static final String CACHE_IMPLEMENTATION_PROPERTY_NAME = "eop.cache.implementation";
+	public static final String CONCURRENT_CACHE_IMPLEMENTATION = "concurrent";
+
 	public Cache<K, V> getCache()
 	{
+		if (concurrentCacheConfigured())
+			return new ConcurrentCache<K, V>(TwoMapsCache.MINIMUM_CAPACITY);
 		//return new ThreadSafeCache<K, V>(new ListMapCache<K, V>(ListMapCache.MINIMUM_CAPACITY));
 		return new ThreadSafeCache<K, V>(new TwoMapsCache<K, V>());
 	}
-	
+
 	public Cache<K,V> getCache(int capacity)
 	{
+		if (concurrentCacheConfigured())
+			return new ConcurrentCache<K, V>(capacity);
 		//return new ThreadSafeCache<K, V>(new ListMapCache<K, V>(capacity));
 		return new ThreadSafeCache<K, V>(new TwoMapsCache<K, V>(capacity));
 	}
-	
+
 	public Cache<K,V> getThreadSafeCache(int capacity)
 	{
+		if (concurrentCacheConfigured())
+			return new ConcurrentCache<K, V>(capacity);
 		return new ThreadSafeCache<K, V>(new TwoMapsCache<K, V>(capacity));
 	}
 
+	/**
+	 * Returns a {@link ConcurrentCache} of the given capacity, regardless of the
+	 * system property {@value #CACHE_IMPLEMENTATION_PROPERTY_NAME}.
+	 *
+	 * @param capacity the maximum number of elements in the cache
+	 * @return a new cache
+	 */
+	public ConcurrentCache<K,V> getConcurrentCache(int capacity)
+	{
+		return new ConcurrentCache<K, V>(capacity);
+	}
+
+	/**
+	 * Returns a {@link ConcurrentCache} whose size is limited by the total weight of its
+	 * elements, and whose elements expire.
+	 *
+	 * @param maximumWeight the maximum total weight of the elements in the cache
+	 * @param weigher computes the weight of an element, or <code>null</code> for weight 1
+	 * @param timeToLiveMillis the time after which an element expires, or 0 for never
+	 * @return a new cache
+	 *
+	 * @see ConcurrentCache#ConcurrentCache(long, CacheWeigher, long, int)
+	 */
+	public ConcurrentCache<K,V> getConcurrentCache(long maximumWeight, CacheWeigher<K, V> weigher, long timeToLiveMillis)
+	{
+		return new ConcurrentCache<K, V>(maximumWeight, weigher, timeToLiveMillis, ConcurrentCache.DEFAULT_CONCURRENCY_LEVEL);
+	}
+
+
+	private static boolean concurrentCacheConfigured()
+	{
+		return CONCURRENT_CACHE_IMPLEMENTATION.equalsIgnoreCase(System.getProperty(CACHE_IMPLEMENTATION_PROPERTY_NAME));
+	}
+
 }
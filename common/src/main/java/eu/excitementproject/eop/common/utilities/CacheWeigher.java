@@ -0,0 +1,19 @@
+package eu.excitementproject.eop.common.utilities;
+
+/**
+ * Computes the weight of a cache element, for caches whose size is limited by the
+ * total weight of their elements rather than by their number (see {@link ConcurrentCache}).
+ * The weight of an element is computed once, when it is put in the cache.
+ *
+ * @param <K>
+ * @param <V>
+ */
+public interface CacheWeigher<K, V>
+{
+	/**
+	 * @param key the key of the element
+	 * @param value the value of the element (might be <code>null</code>)
+	 * @return the weight of the element, which must not be negative
+	 */
+	public int weigh(K key, V value);
+}
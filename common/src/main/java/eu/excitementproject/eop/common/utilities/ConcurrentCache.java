@@ -0,0 +1,286 @@
+package eu.excitementproject.eop.common.utilities;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A thread safe implementation of {@link Cache}, for caches that are used by many
+ * threads at the same time.
+ * <P>
+ * Unlike {@link ThreadSafeCache}, which synchronizes every call on one lock, this cache
+ * is split into segments ("lock striping"): each key belongs to one segment, and only
+ * the segment of the key is locked. Each segment is an LRU cache holding an equal share
+ * of the capacity, so the least recently used element of the segment (and not
+ * necessarily of the whole cache) is the one that is dropped.
+ * <P>
+ * Optionally:
+ * <UL>
+ * <LI>the size of the cache is limited by the total weight of its elements, as computed
+ * by a {@link CacheWeigher}, rather than by their number</LI>
+ * <LI>the elements expire after a given time since they were put in the cache</LI>
+ * </UL>
+ * The cache counts hits and misses of {@link #get(Object)}, and evictions (including
+ * the removal of expired elements).
+ * <P>
+ * <code>null</code> values are supported, <code>null</code> keys are not.
+ *
+ * @see CacheFactory
+ *
+ * @param <K>
+ * @param <V>
+ */
+public class ConcurrentCache<K, V> implements Cache<K, V>
+{
+	public static final int DEFAULT_CONCURRENCY_LEVEL = 4*Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * Constructs a cache that holds up to <code>capacity</code> elements, which never expire.
+	 *
+	 * @param capacity the maximum number of elements in the cache
+	 */
+	public ConcurrentCache(int capacity)
+	{
+		this(capacity, null, 0, DEFAULT_CONCURRENCY_LEVEL);
+	}
+
+	/**
+	 * Constructs a cache.
+	 *
+	 * @param maximumWeight the maximum total weight of the elements in the cache. If
+	 * <code>weigher</code> is <code>null</code>, this is the maximum number of elements.
+	 * @param weigher computes the weight of the elements, or <code>null</code> for
+	 * weight 1 for every element
+	 * @param timeToLiveMillis the time (in milliseconds) after which an element that was
+	 * put in the cache expires, or 0 for elements that never expire
+	 * @param concurrencyLevel the estimated number of threads that use the cache at the
+	 * same time. The cache has at least as many segments, unless the
+	 * segments would become too small.
+	 */
+	public ConcurrentCache(long maximumWeight, CacheWeigher<K, V> weigher, long timeToLiveMillis, int concurrencyLevel)
+	{
+		if (maximumWeight<1) throw new IllegalArgumentException("The maximum weight of the cache must be positive: "+maximumWeight);
+		if (timeToLiveMillis<0) throw new IllegalArgumentException("The time to live must not be negative: "+timeToLiveMillis);
+		if (concurrencyLevel<1) throw new IllegalArgumentException("The concurrency level must be positive: "+concurrencyLevel);
+		this.weigher = weigher;
+		this.timeToLiveNanos = TimeUnit.MILLISECONDS.toNanos(timeToLiveMillis);
+
+		int numberOfSegments = 1;
+		while ( (numberOfSegments<concurrencyLevel) && (maximumWeight/(numberOfSegments*2)>=MINIMUM_SEGMENT_WEIGHT) )
+		{
+			numberOfSegments *= 2;
+		}
+		this.segmentMaximumWeight = (maximumWeight+numberOfSegments-1)/numberOfSegments;
+		this.segments = new ArrayList<Segment>(numberOfSegments);
+		for (int index=0;index<numberOfSegments;++index)
+		{
+			this.segments.add(new Segment());
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see eu.excitementproject.eop.common.utilities.Cache#containsKey(java.lang.Object)
+	 */
+	public boolean containsKey(K key)
+	{
+		Segment segment = segmentFor(key);
+		synchronized(segment)
+		{
+			Element<V> element = segment.map.get(key);
+			if (null==element) return false;
+			if (expired(element))
+			{
+				segment.remove(key, element);
+				return false;
+			}
+			return true;
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see eu.excitementproject.eop.common.utilities.Cache#get(java.lang.Object)
+	 */
+	public V get(K key)
+	{
+		Segment segment = segmentFor(key);
+		synchronized(segment)
+		{
+			Element<V> element = segment.map.get(key);
+			if ( (null!=element) && expired(element) )
+			{
+				segment.remove(key, element);
+				element = null;
+			}
+			if (null==element)
+			{
+				missCount.incrementAndGet();
+				return null;
+			}
+			hitCount.incrementAndGet();
+			return element.value;
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see eu.excitementproject.eop.common.utilities.Cache#put(java.lang.Object, java.lang.Object)
+	 */
+	public void put(K key, V value)
+	{
+		int weight = 1;
+		if (weigher!=null)
+		{
+			weight = weigher.weigh(key, value);
+			if (weight<0) throw new IllegalArgumentException("Negative weight of a cache element: "+weight);
+		}
+		long expirationTime = (timeToLiveNanos>0) ? System.nanoTime()+timeToLiveNanos : 0;
+		Element<V> element = new Element<V>(value, weight, expirationTime);
+
+		Segment segment = segmentFor(key);
+		synchronized(segment)
+		{
+			Element<V> previous = segment.map.put(key, element);
+			if (previous!=null)
+			{
+				segment.weight -= previous.weight;
+			}
+			segment.weight += weight;
+
+			// drop the least recently used elements (this might be the new element itself,
+			// if it is heavier than the segment)
+			Iterator<Map.Entry<K, Element<V>>> iterator = segment.map.entrySet().iterator();
+			while ( (segment.weight>segmentMaximumWeight) && iterator.hasNext() )
+			{
+				Element<V> eldest = iterator.next().getValue();
+				iterator.remove();
+				segment.weight -= eldest.weight;
+				evictionCount.incrementAndGet();
+			}
+		}
+	}
+
+	/**
+	 * Removes all the elements of the cache. The statistics are not reset.
+	 */
+	public void clear()
+	{
+		for (Segment segment : segments)
+		{
+			synchronized(segment)
+			{
+				segment.map.clear();
+				segment.weight = 0;
+			}
+		}
+	}
+
+	/**
+	 * @return the number of elements in the cache (including expired elements
+	 * that were not removed yet)
+	 */
+	public int size()
+	{
+		int size = 0;
+		for (Segment segment : segments)
+		{
+			synchronized(segment)
+			{
+				size += segment.map.size();
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * @return the number of calls to {@link #get(Object)} that found the key
+	 */
+	public long getHitCount()
+	{
+		return hitCount.get();
+	}
+
+	/**
+	 * @return the number of calls to {@link #get(Object)} that did not find the key
+	 */
+	public long getMissCount()
+	{
+		return missCount.get();
+	}
+
+	/**
+	 * @return the number of elements that were dropped from the cache, since it was
+	 * full or since they expired
+	 */
+	public long getEvictionCount()
+	{
+		return evictionCount.get();
+	}
+
+	@Override
+	public String toString()
+	{
+		return "ConcurrentCache [size="+size()+", hits="+getHitCount()+", misses="+getMissCount()+", evictions="+getEvictionCount()+"]";
+	}
+
+
+
+	private Segment segmentFor(K key)
+	{
+		if (null==key) throw new NullPointerException("null keys are not supported by "+ConcurrentCache.class.getSimpleName());
+		int hash = key.hashCode();
+		// spread the high bits, since only the low bits select the segment
+		hash ^= (hash>>>16);
+		hash ^= (hash>>>8);
+		return segments.get(hash & (segments.size()-1));
+	}
+
+	private boolean expired(Element<V> element)
+	{
+		return (timeToLiveNanos>0) && (System.nanoTime()-element.expirationTime>=0);
+	}
+
+	private static final class Element<V>
+	{
+		public Element(V value, int weight, long expirationTime)
+		{
+			this.value = value;
+			this.weight = weight;
+			this.expirationTime = expirationTime;
+		}
+
+		private final V value;
+		private final int weight;
+		private final long expirationTime;
+	}
+
+	private final class Segment
+	{
+		private void remove(K key, Element<V> element)
+		{
+			map.remove(key);
+			weight -= element.weight;
+			evictionCount.incrementAndGet();
+		}
+
+		// access-ordered: the iteration starts at the least recently used element
+		private final LinkedHashMap<K, Element<V>> map = new LinkedHashMap<K, Element<V>>(16, 0.75f, true);
+		private long weight = 0;
+	}
+
+	private static final int MINIMUM_SEGMENT_WEIGHT = 8;
+
+	private final List<Segment> segments;
+	private final long segmentMaximumWeight;
+	private final CacheWeigher<K, V> weigher;
+	private final long timeToLiveNanos;
+
+	private final AtomicLong hitCount = new AtomicLong(0);
+	private final AtomicLong missCount = new AtomicLong(0);
+	private final AtomicLong evictionCount = new AtomicLong(0);
+}
@@ -0,0 +1,172 @@
+package eu.excitementproject.eop.common.utilities.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A read only file that maps string keys to lists of records (byte sequences), written by
+ * {@link MappedRecordsFileWriter}. The file is mapped to memory, and a key is found by a binary
+ * search over the keys, which are sorted by their UTF-8 bytes. The records of a key are stored
+ * together, right after the key.
+ * <P>
+ * The records are returned as read only {@link ByteBuffer}s, which can be read with the relative
+ * get methods of {@link ByteBuffer}, and with {@link #getString(ByteBuffer)} for strings written
+ * by {@link MappedRecordsFileWriter#writeString(java.io.DataOutput, String)}.
+ * <P>
+ * <B>Thread safe</B>
+ *
+ * @see MappedRecordsFileWriter
+ */
+public class MappedRecordsFile
+{
+	public static final Charset UTF8 = Charset.forName("UTF-8");
+
+	/**
+	 * Maps the given file to memory. The file is closed, and the mapping is released by the
+	 * garbage collector.
+	 *
+	 * @param file a file written by {@link MappedRecordsFileWriter}
+	 * @throws IOException
+	 */
+	public MappedRecordsFile(File file) throws IOException
+	{
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+		try
+		{
+			FileChannel channel = randomAccessFile.getChannel();
+			if (channel.size()>Integer.MAX_VALUE) throw new IOException(file+" is too large to be mapped to memory");
+			this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).asReadOnlyBuffer();
+		}
+		finally
+		{
+			randomAccessFile.close();
+		}
+		if ( (buffer.capacity()<HEADER_SIZE) || (buffer.getInt(0)!=MAGIC) ) throw new IOException(file+" is not a records file");
+		int version = buffer.getInt(4);
+		if (version!=VERSION) throw new IOException(file+" has version "+version+", expected "+VERSION);
+		this.numberOfKeys = buffer.getInt(8);
+	}
+
+	/**
+	 * @param key
+	 * @return the records of the key, in the order they were added, or an empty list if the
+	 * file does not contain the key
+	 */
+	public List<ByteBuffer> getRecords(String key)
+	{
+		int position = find(key.getBytes(UTF8));
+		if (position<0) return Collections.emptyList();
+
+		position += 2 + (buffer.getShort(position) & 0xFFFF);
+		int numberOfRecords = buffer.getInt(position);
+		position += 4;
+		List<ByteBuffer> records = new ArrayList<ByteBuffer>(numberOfRecords);
+		for (int index=0;index<numberOfRecords;++index)
+		{
+			int length = buffer.getInt(position);
+			position += 4;
+			records.add(slice(position, length));
+			position += length;
+		}
+		return records;
+	}
+
+	/**
+	 * @param key
+	 * @return <code>true</code> if the file contains the key
+	 */
+	public boolean containsKey(String key)
+	{
+		return find(key.getBytes(UTF8))>=0;
+	}
+
+	/**
+	 * @return the number of keys in the file
+	 */
+	public int size()
+	{
+		return numberOfKeys;
+	}
+
+	/**
+	 * Reads a string written by {@link MappedRecordsFileWriter#writeString(java.io.DataOutput, String)}
+	 * at the position of the given buffer, and advances the position.
+	 *
+	 * @param record
+	 * @return the string
+	 */
+	public static String getString(ByteBuffer record)
+	{
+		byte[] bytes = new byte[record.getShort() & 0xFFFF];
+		record.get(bytes);
+		return new String(bytes, UTF8);
+	}
+
+
+
+	/**
+	 * Binary search of the keys
+	 * @return the position of the key entry, or -1
+	 */
+	private int find(byte[] key)
+	{
+		int low = 0;
+		int high = numberOfKeys-1;
+		while (low<=high)
+		{
+			int middle = (low+high)>>>1;
+			int position = buffer.getInt(HEADER_SIZE+4*middle);
+			int comparison = compare(position, key);
+			if (comparison<0)
+				low = middle+1;
+			else if (comparison>0)
+				high = middle-1;
+			else
+				return position;
+		}
+		return -1;
+	}
+
+	/**
+	 * Compares the key at the given position with the given key, by their unsigned bytes
+	 */
+	private int compare(int position, byte[] key)
+	{
+		int length = buffer.getShort(position) & 0xFFFF;
+		int common = Math.min(length, key.length);
+		for (int index=0;index<common;++index)
+		{
+			int difference = (buffer.get(position+2+index) & 0xFF) - (key[index] & 0xFF);
+			if (difference!=0) return difference;
+		}
+		return length-key.length;
+	}
+
+	private ByteBuffer slice(int position, int length)
+	{
+		ByteBuffer duplicate = buffer.duplicate();
+		duplicate.position(position);
+		duplicate.limit(position+length);
+		return duplicate.slice();
+	}
+
+	/**
+	 * The file starts with {@link #MAGIC}, {@link #VERSION} and the number of keys, followed by
+	 * the positions of the key entries, sorted by the keys. A key entry is the length of the key
+	 * (unsigned short), the key (UTF-8), the number of records (int), and the records, each of them
+	 * preceded by its length (int).
+	 */
+	static final int MAGIC = 0x52454344; // "RECD"
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 12;
+
+	private final ByteBuffer buffer;
+	private final int numberOfKeys;
+}
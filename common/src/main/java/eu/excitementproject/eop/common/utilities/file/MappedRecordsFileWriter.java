@@ -0,0 +1,196 @@
+package eu.excitementproject.eop.common.utilities.file;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes a {@link MappedRecordsFile}.
+ * <P>
+ * The records can be added in any order, and the records of the same key need not be added one
+ * after the other. They are written to a temporary file, and only their positions are kept in
+ * memory. {@link #close()} sorts the keys and writes the file.
+ * <P>
+ * Not thread safe.
+ *
+ * @see MappedRecordsFile
+ */
+public class MappedRecordsFileWriter
+{
+	/**
+	 * @param file the file to write. It is written by {@link #close()}.
+	 * @throws IOException
+	 */
+	public MappedRecordsFileWriter(File file) throws IOException
+	{
+		this.file = file;
+		this.recordsFile = new File(file.getPath()+".records.tmp");
+		this.recordsStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(recordsFile)));
+	}
+
+	/**
+	 * Adds a record to the given key.
+	 *
+	 * @param key
+	 * @param record
+	 * @throws IOException
+	 */
+	public void add(String key, byte[] record) throws IOException
+	{
+		if (null==recordsStream) throw new IOException("The writer is closed");
+		if (key.getBytes(MappedRecordsFile.UTF8).length>MAXIMUM_STRING_LENGTH) throw new IOException("The key is too long: "+key);
+		RecordsOfKey recordsOfKey = recordsOfKeys.get(key);
+		if (null==recordsOfKey)
+		{
+			recordsOfKey = new RecordsOfKey();
+			recordsOfKeys.put(key, recordsOfKey);
+		}
+		recordsOfKey.positions.add(recordsPosition);
+		recordsOfKey.lengths.add(record.length);
+		recordsOfKey.size += 4+record.length;
+		recordsStream.write(record);
+		recordsPosition += record.length;
+	}
+
+	/**
+	 * Writes the file, and deletes the temporary file.
+	 *
+	 * @throws IOException
+	 */
+	public void close() throws IOException
+	{
+		if (null==recordsStream) return;
+		recordsStream.close();
+		recordsStream = null;
+		try
+		{
+			writeFile();
+		}
+		finally
+		{
+			recordsFile.delete();
+		}
+	}
+
+	/**
+	 * Writes a string as its length in bytes (unsigned short) and its UTF-8 bytes. The string is
+	 * read by {@link MappedRecordsFile#getString(java.nio.ByteBuffer)}.
+	 *
+	 * @param out
+	 * @param string
+	 * @throws IOException
+	 */
+	public static void writeString(DataOutput out, String string) throws IOException
+	{
+		byte[] bytes = string.getBytes(MappedRecordsFile.UTF8);
+		if (bytes.length>MAXIMUM_STRING_LENGTH) throw new IOException("The string is too long: "+string);
+		out.writeShort(bytes.length);
+		out.write(bytes);
+	}
+
+
+
+	private void writeFile() throws IOException
+	{
+		List<byte[]> keys = new ArrayList<byte[]>(recordsOfKeys.size());
+		Map<byte[], RecordsOfKey> recordsOfEncodedKeys = new LinkedHashMap<byte[], RecordsOfKey>();
+		long size = MappedRecordsFile.HEADER_SIZE;
+		for (Map.Entry<String, RecordsOfKey> entry : recordsOfKeys.entrySet())
+		{
+			byte[] key = entry.getKey().getBytes(MappedRecordsFile.UTF8);
+			keys.add(key);
+			recordsOfEncodedKeys.put(key, entry.getValue());
+			size += 4+2+key.length+4+entry.getValue().size;
+		}
+		if (size>Integer.MAX_VALUE) throw new IOException("The file would be too large to be mapped to memory: "+size+" bytes");
+		Collections.sort(keys, UNSIGNED_BYTES_COMPARATOR);
+
+		RandomAccessFile records = new RandomAccessFile(recordsFile, "r");
+		try
+		{
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+			try
+			{
+				out.writeInt(MappedRecordsFile.MAGIC);
+				out.writeInt(MappedRecordsFile.VERSION);
+				out.writeInt(keys.size());
+				long position = MappedRecordsFile.HEADER_SIZE+4L*keys.size();
+				for (byte[] key : keys)
+				{
+					out.writeInt((int)position);
+					position += 2+key.length+4+recordsOfEncodedKeys.get(key).size;
+				}
+
+				byte[] bytes = new byte[1024];
+				for (byte[] key : keys)
+				{
+					RecordsOfKey recordsOfKey = recordsOfEncodedKeys.get(key);
+					out.writeShort(key.length);
+					out.write(key);
+					out.writeInt(recordsOfKey.positions.size());
+					for (int index=0;index<recordsOfKey.positions.size();++index)
+					{
+						int length = recordsOfKey.lengths.get(index);
+						if (bytes.length<length) bytes = new byte[length];
+						records.seek(recordsOfKey.positions.get(index));
+						records.readFully(bytes, 0, length);
+						out.writeInt(length);
+						out.write(bytes, 0, length);
+					}
+				}
+			}
+			finally
+			{
+				out.close();
+			}
+		}
+		finally
+		{
+			records.close();
+		}
+	}
+
+	/**
+	 * The positions of the records of one key in the temporary file, their lengths, and
+	 * the number of bytes they take in the file (including their lengths)
+	 */
+	private static final class RecordsOfKey
+	{
+		private final List<Long> positions = new ArrayList<Long>(1);
+		private final List<Integer> lengths = new ArrayList<Integer>(1);
+		private long size = 0;
+	}
+
+	private static final Comparator<byte[]> UNSIGNED_BYTES_COMPARATOR = new Comparator<byte[]>()
+	{
+		@Override
+		public int compare(byte[] key1, byte[] key2)
+		{
+			int common = Math.min(key1.length, key2.length);
+			for (int index=0;index<common;++index)
+			{
+				int difference = (key1[index] & 0xFF) - (key2[index] & 0xFF);
+				if (difference!=0) return difference;
+			}
+			return key1.length-key2.length;
+		}
+	};
+
+	private static final int MAXIMUM_STRING_LENGTH = 0xFFFF;
+
+	private final File file;
+	private final File recordsFile;
+	private DataOutputStream recordsStream;
+	private long recordsPosition = 0;
+	private final Map<String, RecordsOfKey> recordsOfKeys = new LinkedHashMap<String, RecordsOfKey>();
+}
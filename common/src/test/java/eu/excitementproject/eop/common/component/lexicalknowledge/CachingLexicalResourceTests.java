@@ -0,0 +1,170 @@
+package eu.excitementproject.eop.common.component.lexicalknowledge;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import eu.excitementproject.eop.common.configuration.NameValueTable;
+import eu.excitementproject.eop.common.representation.partofspeech.ByCanonicalPartOfSpeech;
+import eu.excitementproject.eop.common.representation.partofspeech.PartOfSpeech;
+import eu.excitementproject.eop.common.utilities.configuration.ImplNameValueTable;
+
+/**
+ * JUnit tests for {@link CachingLexicalResource}.
+ */
+public class CachingLexicalResourceTests {
+
+	@Test
+	public void testHits() throws Exception {
+		PartOfSpeech noun = new ByCanonicalPartOfSpeech("N");
+		SuffixResource resource = new SuffixResource("-hits");
+		CachingLexicalResource<RuleInfo> caching = new CachingLexicalResource<RuleInfo>(resource, uniqueName("hits"), 100);
+
+		List<LexicalRule<? extends RuleInfo>> first = caching.getRulesForLeft("dog", noun);
+		List<LexicalRule<? extends RuleInfo>> second = caching.getRulesForLeft("dog", noun);
+		assertEquals("dog-hits", second.get(0).getRLemma());
+		assertEquals(first, second);
+		assertNotSame("each call must return a new list", first, second);
+		caching.getRulesForRight("dog", noun);
+		assertEquals("the cached query was sent to the resource", 2, resource.getNumberOfQueries());
+		assertEquals(1, caching.getHitCount());
+		assertEquals(2, caching.getMissCount());
+
+		// a batch with a cached term and a new one: only the new one is sent to the resource
+		Map<LemmaPos, List<LexicalRule<? extends RuleInfo>>> batch = caching.getRulesForLeft(
+				Arrays.asList(new LemmaPos("dog", noun), new LemmaPos("cat", noun)));
+		assertEquals(first, batch.get(new LemmaPos("dog", noun)));
+		assertEquals("cat-hits", batch.get(new LemmaPos("cat", noun)).get(0).getRLemma());
+		assertEquals(3, resource.getNumberOfQueries());
+	}
+
+	@Test
+	public void testDifferentConfigurationsDoNotShareCaches() throws Exception {
+		PartOfSpeech noun = new ByCanonicalPartOfSpeech("N");
+		String path = uniqueName("path");
+
+		SuffixResource resource1 = new SuffixResource("-1");
+		SuffixResource resource2 = new SuffixResource("-2");
+		// the sections have the same cache parameters, but the resources are configured differently
+		LexicalResource<RuleInfo> caching1 = CachingLexicalResource.wrapIfConfigured(resource1, section(path, "1"));
+		LexicalResource<RuleInfo> caching2 = CachingLexicalResource.wrapIfConfigured(resource2, section(path, "2"));
+		assertTrue(caching1 instanceof CachingLexicalResource);
+		assertFalse(((CachingLexicalResource<?>) caching1).getCacheName().equals(((CachingLexicalResource<?>) caching2).getCacheName()));
+
+		assertEquals("dog-1", caching1.getRulesForLeft("dog", noun).get(0).getRLemma());
+		assertEquals("the rules of another configuration were returned", "dog-2", caching2.getRulesForLeft("dog", noun).get(0).getRLemma());
+		assertEquals(1, resource1.getNumberOfQueries());
+		assertEquals(1, resource2.getNumberOfQueries());
+	}
+
+	@Test
+	public void testSameConfigurationSharesCache() throws Exception {
+		PartOfSpeech noun = new ByCanonicalPartOfSpeech("N");
+		String path = uniqueName("path");
+
+		SuffixResource resource1 = new SuffixResource("-shared");
+		SuffixResource resource2 = new SuffixResource("-shared");
+		LexicalResource<RuleInfo> caching1 = CachingLexicalResource.wrapIfConfigured(resource1, section(path, "1"));
+		LexicalResource<RuleInfo> caching2 = CachingLexicalResource.wrapIfConfigured(resource2, section(path, "1"));
+		assertEquals(((CachingLexicalResource<?>) caching1).getCacheName(), ((CachingLexicalResource<?>) caching2).getCacheName());
+
+		assertEquals("dog-shared", caching1.getRulesForLeft("dog", noun).get(0).getRLemma());
+		assertEquals("dog-shared", caching2.getRulesForLeft("dog", noun).get(0).getRLemma());
+		assertEquals(1, resource1.getNumberOfQueries());
+		assertEquals("the second resource did not use the shared cache", 0, resource2.getNumberOfQueries());
+	}
+
+	@Test
+	public void testVariantsOfSameSectionDoNotShareCaches() throws Exception {
+		PartOfSpeech noun = new ByCanonicalPartOfSpeech("N");
+		NameValueTable section = section(uniqueName("path"), "1");
+
+		// e.g. one resource for each relation of the section
+		SuffixResource resource1 = new SuffixResource("-hypernym");
+		SuffixResource resource2 = new SuffixResource("-synonym");
+		LexicalResource<RuleInfo> caching1 = CachingLexicalResource.wrapIfConfigured(resource1, section, "HYPERNYM");
+		LexicalResource<RuleInfo> caching2 = CachingLexicalResource.wrapIfConfigured(resource2, section, "SYNONYM");
+		assertFalse(((CachingLexicalResource<?>) caching1).getCacheName().equals(((CachingLexicalResource<?>) caching2).getCacheName()));
+
+		assertEquals("dog-hypernym", caching1.getRulesForLeft("dog", noun).get(0).getRLemma());
+		assertEquals("the rules of another variant were returned", "dog-synonym", caching2.getRulesForLeft("dog", noun).get(0).getRLemma());
+		assertEquals(1, resource1.getNumberOfQueries());
+		assertEquals(1, resource2.getNumberOfQueries());
+	}
+
+	@Test
+	public void testExplicitCacheName() throws Exception {
+		String cacheName = uniqueName("explicit");
+		NameValueTable section = section(uniqueName("path"), "1");
+		section.setString(CachingLexicalResource.CACHE_NAME_PARAMETER_NAME, cacheName);
+		LexicalResource<RuleInfo> caching = CachingLexicalResource.wrapIfConfigured(new SuffixResource("-x"), section);
+		assertEquals(cacheName, ((CachingLexicalResource<?>) caching).getCacheName());
+
+		NameValueTable withoutCache = new ImplNameValueTable();
+		withoutCache.setString("path", "whatever");
+		SuffixResource resource = new SuffixResource("-x");
+		assertSame("a resource without cache size was wrapped", resource, CachingLexicalResource.wrapIfConfigured(resource, withoutCache));
+	}
+
+	private static NameValueTable section(String path, String version) {
+		NameValueTable section = new ImplNameValueTable();
+		section.setString("path", path);
+		section.setString("version", version);
+		section.setString(CachingLexicalResource.CACHE_SIZE_PARAMETER_NAME, "100");
+		return section;
+	}
+
+	// the caches are shared by the whole JVM, so each test uses its own names
+	private static String uniqueName(String prefix) {
+		return CachingLexicalResourceTests.class.getName() + "-" + prefix + "-" + System.nanoTime();
+	}
+
+	/**
+	 * A resource whose only rule for each lemma entails the lemma with a suffix.
+	 * It counts the queries it answers.
+	 */
+	private static class SuffixResource implements LexicalResource<RuleInfo> {
+
+		public SuffixResource(String suffix) {
+			this.suffix = suffix;
+		}
+
+		public List<LexicalRule<? extends RuleInfo>> getRulesForLeft(String lemma, PartOfSpeech pos) throws LexicalResourceException {
+			return getRules(lemma, pos, lemma + suffix, pos);
+		}
+
+		public List<LexicalRule<? extends RuleInfo>> getRulesForRight(String lemma, PartOfSpeech pos) throws LexicalResourceException {
+			return getRules(lemma.replace(suffix, ""), pos, lemma, pos);
+		}
+
+		public synchronized List<LexicalRule<? extends RuleInfo>> getRules(String leftLemma, PartOfSpeech leftPos, String rightLemma, PartOfSpeech rightPos) throws LexicalResourceException {
+			numberOfQueries++;
+			List<LexicalRule<? extends RuleInfo>> rules = new ArrayList<LexicalRule<? extends RuleInfo>>();
+			rules.add(new LexicalRule<RuleInfo>(leftLemma, leftPos, rightLemma, rightPos, "suffix", "SuffixResource", SuffixRuleInfo.INSTANCE));
+			return rules;
+		}
+
+		public void close() throws LexicalResourceCloseException {
+		}
+
+		public synchronized int getNumberOfQueries() {
+			return numberOfQueries;
+		}
+
+		private final String suffix;
+		private int numberOfQueries = 0;
+	}
+
+	/**
+	 * The (empty) info of the rules of {@link SuffixResource}
+	 */
+	private static class SuffixRuleInfo implements RuleInfo {
+		private static final long serialVersionUID = 1L;
+		public static final SuffixRuleInfo INSTANCE = new SuffixRuleInfo();
+	}
+}
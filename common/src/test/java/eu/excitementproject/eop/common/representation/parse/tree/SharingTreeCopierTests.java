@@ -0,0 +1,286 @@
+package eu.excitementproject.eop.common.representation.parse.tree;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import eu.excitementproject.eop.common.datastructures.BidirectionalMap;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.DefaultEdgeInfo;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.DefaultInfo;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.DefaultNodeInfo;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.DefaultSyntacticInfo;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.Info;
+import eu.excitementproject.eop.common.representation.parse.tree.dependency.basic.BasicNode;
+import eu.excitementproject.eop.common.representation.parse.tree.dependency.basic.BasicNodeConstructor;
+
+/**
+ * JUnit tests for {@link SharingTreeCopier}.
+ */
+public class SharingTreeCopierTests {
+
+	@Test
+	public void testChangedNodesAndTheirAncestorsAreCopied() {
+		BasicNode d = node("d");
+		BasicNode c = node("c", d);
+		BasicNode b = node("b");
+		BasicNode a = node("a", b, c);
+		BasicNode f = node("f");
+		BasicNode e = node("e", f);
+		BasicNode g = node("g");
+		BasicNode root = node("root", a, e, g);
+		Map<BasicNode, Snapshot> snapshot = snapshot(root);
+
+		final Info newInfoOfD = info("d2");
+		SharingTreeCopier<Info, BasicNode> copier = new SharingTreeCopier<Info, BasicNode>(root, changing(d, newInfoOfD),
+				new BasicNodeConstructor(), Collections.singleton(f));
+		copier.copy();
+		BidirectionalMap<BasicNode, BasicNode> map = copier.getNodesMap();
+
+		assertEquals("wrong number of copied nodes", 6, copier.getNumberOfCopiedNodes());
+		for (BasicNode copied : new BasicNode[] { root, a, c, d, e, f }) {
+			assertNotSame("not copied: " + copied.getInfo().getId(), copied, map.leftGet(copied));
+		}
+		for (BasicNode shared : new BasicNode[] { b, g }) {
+			assertSame("not shared: " + shared.getInfo().getId(), shared, map.leftGet(shared));
+		}
+		assertSame("wrong info of the changed node", newInfoOfD, map.leftGet(d).getInfo());
+		assertSame("wrong info of a copied node", c.getInfo(), map.leftGet(c).getInfo());
+		assertSame("wrong generated tree", map.leftGet(root), copier.getGeneratedTree());
+
+		assertGeneratedTreeMatches(root, copier);
+		assertUnchanged(root, snapshot);
+	}
+
+	@Test
+	public void testNothingChanged() {
+		BasicNode root = node("root", node("a", node("b")), node("c"));
+		Map<BasicNode, Snapshot> snapshot = snapshot(root);
+		SharingTreeCopier<Info, BasicNode> copier = new SharingTreeCopier<Info, BasicNode>(root, changing(null, null), new BasicNodeConstructor());
+		copier.copy();
+
+		assertSame("the whole tree should be shared", root, copier.getGeneratedTree());
+		assertEquals("wrong number of copied nodes", 0, copier.getNumberOfCopiedNodes());
+		assertGeneratedTreeMatches(root, copier);
+		assertUnchanged(root, snapshot);
+	}
+
+	@Test
+	public void testNodesWithCopiedAntecedentsAreCopied() {
+		BasicNode b = node("b");
+		BasicNode a = node("a", b);
+		BasicNode d = node("d");
+		BasicNode c = node("c", d);
+		BasicNode h = node("h");
+		BasicNode e = node("e", h);
+		BasicNode y = node("y");
+		BasicNode x = node("x", y);
+		BasicNode root = node("root", a, c, e, x);
+		// d is changed, so b is copied, and then h is copied as well
+		b.setAntecedent(d);
+		h.setAntecedent(b);
+		// neither is copied
+		y.setAntecedent(x);
+		Map<BasicNode, Snapshot> snapshot = snapshot(root);
+
+		SharingTreeCopier<Info, BasicNode> copier = new SharingTreeCopier<Info, BasicNode>(root, changing(d, info("d2")), new BasicNodeConstructor());
+		copier.copy();
+		BidirectionalMap<BasicNode, BasicNode> map = copier.getNodesMap();
+
+		assertEquals("wrong number of copied nodes", 7, copier.getNumberOfCopiedNodes());
+		assertSame("x should be shared", x, map.leftGet(x));
+		assertSame("wrong antecedent of b", map.leftGet(d), map.leftGet(b).getAntecedent());
+		assertSame("wrong antecedent of h", map.leftGet(b), map.leftGet(h).getAntecedent());
+		assertSame("wrong antecedent of y", x, y.getAntecedent());
+
+		assertGeneratedTreeMatches(root, copier);
+		assertUnchanged(root, snapshot);
+	}
+
+	@Test
+	public void testRandomTrees() {
+		Random random = new Random(4);
+		int numberOfSharedNodes = 0;
+		for (int iteration = 0; iteration < 200; iteration++) {
+			BasicNode root = randomTree(random, 5);
+			List<BasicNode> nodes = AbstractNodeUtils.treeToList(root);
+			for (BasicNode node : nodes) {
+				if (random.nextInt(4) == 0) {
+					node.setAntecedent(nodes.get(random.nextInt(nodes.size())));
+				}
+			}
+			Map<BasicNode, Snapshot> snapshot = snapshot(root);
+
+			final Map<BasicNode, Info> changes = new LinkedHashMap<BasicNode, Info>();
+			Set<BasicNode> nodesToCopy = new LinkedHashSet<BasicNode>();
+			for (BasicNode node : nodes) {
+				int kind = random.nextInt(12);
+				if (kind == 0) {
+					changes.put(node, info(node.getInfo().getId() + "'"));
+				} else if (kind == 1) {
+					nodesToCopy.add(node);
+				}
+			}
+			SharingTreeCopier<Info, BasicNode> copier = new SharingTreeCopier<Info, BasicNode>(root, new TreeCopier.InfoConverter<BasicNode, Info>() {
+				@Override
+				public Info convert(BasicNode node) {
+					return changes.containsKey(node) ? changes.get(node) : node.getInfo();
+				}
+			}, new BasicNodeConstructor(), nodesToCopy);
+			copier.copy();
+			BidirectionalMap<BasicNode, BasicNode> map = copier.getNodesMap();
+
+			// The copied nodes are the smallest set that contains the changed nodes and the nodes to copy, and is
+			// closed under taking the parent, and under taking the nodes whose antecedent is in the set.
+			Map<BasicNode, BasicNode> parentMap = AbstractNodeUtils.parentMap(root);
+			Set<BasicNode> expectedCopied = new HashSet<BasicNode>(changes.keySet());
+			expectedCopied.addAll(nodesToCopy);
+			boolean added = true;
+			while (added) {
+				added = false;
+				for (BasicNode node : nodes) {
+					if (!expectedCopied.contains(node)) {
+						boolean childCopied = false;
+						if (node.getChildren() != null) {
+							for (BasicNode child : node.getChildren()) {
+								childCopied |= expectedCopied.contains(child);
+							}
+						}
+						if (childCopied || expectedCopied.contains(node.getAntecedent())) {
+							expectedCopied.add(node);
+							added = true;
+						}
+					}
+				}
+			}
+			for (BasicNode node : nodes) {
+				assertEquals("copied or shared: " + node.getInfo().getId(), expectedCopied.contains(node), map.leftGet(node) != node);
+				Info expectedInfo = changes.containsKey(node) ? changes.get(node) : node.getInfo();
+				assertSame("wrong info: " + node.getInfo().getId(), expectedInfo, map.leftGet(node).getInfo());
+				if (!expectedCopied.contains(node) && parentMap.containsKey(node)) {
+					numberOfSharedNodes++;
+				}
+			}
+			assertEquals("wrong number of copied nodes", expectedCopied.size(), copier.getNumberOfCopiedNodes());
+			assertGeneratedTreeMatches(root, copier);
+			assertUnchanged(root, snapshot);
+		}
+		assertTrue("no node was shared", numberOfSharedNodes > 0);
+	}
+
+
+	/**
+	 * Checks that the generated tree has the structure and the antecedents of the original tree, and that the
+	 * nodes map is a one-to-one mapping of all the original nodes to all the generated nodes.
+	 */
+	private static void assertGeneratedTreeMatches(BasicNode originalTree, SharingTreeCopier<Info, BasicNode> copier) {
+		BidirectionalMap<BasicNode, BasicNode> map = copier.getNodesMap();
+		List<BasicNode> originalNodes = AbstractNodeUtils.treeToList(originalTree);
+		List<BasicNode> generatedNodes = AbstractNodeUtils.treeToList(copier.getGeneratedTree());
+		assertEquals("wrong number of mapped nodes", originalNodes.size(), map.size());
+		assertEquals("wrong number of generated nodes", originalNodes.size(), generatedNodes.size());
+		assertEquals("the map does not cover the generated tree", new HashSet<BasicNode>(generatedNodes), map.rightSet().getMutableSetCopy());
+		for (BasicNode original : originalNodes) {
+			BasicNode generated = map.leftGet(original);
+			assertSame("not one-to-one", original, map.rightGet(generated));
+			List<BasicNode> expectedChildren = new ArrayList<BasicNode>();
+			if (original.getChildren() != null) {
+				for (BasicNode child : original.getChildren()) {
+					expectedChildren.add(map.leftGet(child));
+				}
+			}
+			assertEquals("wrong children: " + original.getInfo().getId(), expectedChildren, childrenOf(generated));
+			BasicNode expectedAntecedent = (original.getAntecedent() == null) ? null : map.leftGet(original.getAntecedent());
+			assertSame("wrong antecedent: " + original.getInfo().getId(), expectedAntecedent, generated.getAntecedent());
+		}
+	}
+
+	private static void assertUnchanged(BasicNode originalTree, Map<BasicNode, Snapshot> snapshot) {
+		assertEquals("the original tree was changed", snapshot, snapshot(originalTree));
+	}
+
+	/**
+	 * The information, the children and the antecedent of each node of the given tree.
+	 */
+	private static Map<BasicNode, Snapshot> snapshot(BasicNode tree) {
+		Map<BasicNode, Snapshot> snapshot = new LinkedHashMap<BasicNode, Snapshot>();
+		for (BasicNode node : AbstractNodeUtils.treeToList(tree)) {
+			snapshot.put(node, new Snapshot(node));
+		}
+		return snapshot;
+	}
+
+	private static final class Snapshot {
+		Snapshot(BasicNode node) {
+			this.info = node.getInfo();
+			this.children = childrenOf(node);
+			this.antecedent = node.getAntecedent();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Snapshot)) {
+				return false;
+			}
+			Snapshot other = (Snapshot) obj;
+			return (info == other.info) && children.equals(other.children) && (antecedent == other.antecedent);
+		}
+
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(info);
+		}
+
+		private final Info info;
+		private final List<BasicNode> children;
+		private final BasicNode antecedent;
+	}
+
+	private static List<BasicNode> childrenOf(BasicNode node) {
+		return (node.getChildren() == null) ? new ArrayList<BasicNode>() : new ArrayList<BasicNode>(node.getChildren());
+	}
+
+	/**
+	 * @return a converter that gives the new information to the given node, and keeps the information of any other node.
+	 */
+	private static TreeCopier.InfoConverter<BasicNode, Info> changing(final BasicNode changed, final Info newInfo) {
+		return new TreeCopier.InfoConverter<BasicNode, Info>() {
+			@Override
+			public Info convert(BasicNode node) {
+				return (node == changed) ? newInfo : node.getInfo();
+			}
+		};
+	}
+
+	private static BasicNode randomTree(Random random, int depth) {
+		BasicNode root = node("n" + random.nextInt(1000));
+		if (depth > 1) {
+			int children = random.nextInt(4);
+			for (int child = 0; child < children; child++) {
+				root.addChild(randomTree(random, depth - 1));
+			}
+		}
+		return root;
+	}
+
+	private static BasicNode node(String id, BasicNode... children) {
+		BasicNode node = new BasicNode(info(id));
+		for (BasicNode child : children) {
+			node.addChild(child);
+		}
+		return node;
+	}
+
+	private static Info info(String id) {
+		return new DefaultInfo(id, new DefaultNodeInfo(id, id, 0, null, new DefaultSyntacticInfo(null)), new DefaultEdgeInfo(null));
+	}
+}
@@ -0,0 +1,118 @@
+package eu.excitementproject.eop.common.utilities;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+/**
+ * JUnit tests for {@link ConcurrentCache}.
+ */
+public class ConcurrentCacheTests {
+
+	@Test
+	public void testGetAndStatistics() {
+		ConcurrentCache<String, Integer> cache = new ConcurrentCache<String, Integer>(100);
+		cache.put("a", 1);
+		cache.put("b", null);
+		assertTrue("missing key", cache.containsKey("a"));
+		assertTrue("null values must be supported", cache.containsKey("b"));
+		assertFalse("unexpected key", cache.containsKey("c"));
+		assertEquals("wrong value", Integer.valueOf(1), cache.get("a"));
+		assertNull("wrong value", cache.get("c"));
+		assertEquals("wrong hit count", 1, cache.getHitCount());
+		assertEquals("wrong miss count", 1, cache.getMissCount());
+		assertEquals("wrong eviction count", 0, cache.getEvictionCount());
+	}
+
+	@Test
+	public void testCapacity() {
+		// a single segment, so that the LRU order is exact
+		ConcurrentCache<Integer, Integer> cache = new ConcurrentCache<Integer, Integer>(10, null, 0, 1);
+		for (int i = 0; i < 10; i++) {
+			cache.put(i, i);
+		}
+		cache.get(0); // 0 becomes the most recently used
+		cache.put(10, 10);
+		assertEquals("wrong size", 10, cache.size());
+		assertTrue("the most recently used element was dropped", cache.containsKey(0));
+		assertFalse("the least recently used element was not dropped", cache.containsKey(1));
+		assertEquals("wrong eviction count", 1, cache.getEvictionCount());
+	}
+
+	@Test
+	public void testWeight() {
+		CacheWeigher<String, String> byLength = new CacheWeigher<String, String>() {
+			@Override
+			public int weigh(String key, String value) {
+				return value.length();
+			}
+		};
+		ConcurrentCache<String, String> cache = new ConcurrentCache<String, String>(10, byLength, 0, 1);
+		cache.put("a", "12345");
+		cache.put("b", "1234");
+		cache.put("c", "12");
+		assertFalse("the total weight exceeds the maximum", cache.containsKey("a"));
+		assertTrue(cache.containsKey("b"));
+		assertTrue(cache.containsKey("c"));
+		cache.put("d", "12345678901");
+		assertFalse("an element heavier than the cache was kept", cache.containsKey("d"));
+	}
+
+	@Test
+	public void testExpiration() throws InterruptedException {
+		ConcurrentCache<String, String> cache = new ConcurrentCache<String, String>(10, null, 50, 1);
+		cache.put("a", "a");
+		assertTrue(cache.containsKey("a"));
+		Thread.sleep(100);
+		assertFalse("the element did not expire", cache.containsKey("a"));
+		assertNull(cache.get("a"));
+		assertEquals("wrong eviction count", 1, cache.getEvictionCount());
+	}
+
+	@Test
+	public void testConcurrentAccess() throws Exception {
+		final ConcurrentCache<Integer, Integer> cache = new ConcurrentCache<Integer, Integer>(1000);
+		final int keysPerThread = 5000;
+		final int numberOfThreads = 8;
+		// each worker returns the keys whose cached value was wrong; the assertions are done here,
+		// since a failed assertion in a worker thread would not fail the test
+		List<Callable<List<Integer>>> workers = new ArrayList<Callable<List<Integer>>>();
+		for (int t = 0; t < numberOfThreads; t++) {
+			final int offset = t * keysPerThread;
+			workers.add(new Callable<List<Integer>>() {
+				@Override
+				public List<Integer> call() {
+					List<Integer> wrongKeys = new ArrayList<Integer>();
+					for (int i = offset; i < offset + keysPerThread; i++) {
+						cache.put(i, i);
+						Integer value = cache.get(i);
+						if ( (value != null) && (value.intValue() != i) )
+							wrongKeys.add(i);
+					}
+					return wrongKeys;
+				}
+			});
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
+		try {
+			for (Future<List<Integer>> future : executor.invokeAll(workers)) {
+				// get() rethrows (as ExecutionException) anything thrown by the worker
+				assertEquals("wrong cached values", Collections.<Integer>emptyList(), future.get());
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+		assertTrue("the cache exceeds its capacity", cache.size() <= 1000 + ConcurrentCache.DEFAULT_CONCURRENCY_LEVEL);
+		assertEquals("wrong number of calls", numberOfThreads * keysPerThread, cache.getHitCount() + cache.getMissCount());
+		assertEquals("wrong eviction count", numberOfThreads * keysPerThread - cache.size(), cache.getEvictionCount());
+	}
+}
@@ -0,0 +1,63 @@
+package eu.excitementproject.eop.common.utilities.file;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * JUnit tests for {@link MappedRecordsFile} and {@link MappedRecordsFileWriter}.
+ */
+public class MappedRecordsFileTests {
+
+	@Test
+	public void testWriteAndRead() throws IOException {
+		File file = File.createTempFile("records", ".bin");
+		try {
+			MappedRecordsFileWriter writer = new MappedRecordsFileWriter(file);
+			writer.add("dog", record("animal", 1.0));
+			writer.add("cat", record("feline", 0.5));
+			writer.add("dog", record("canine", 0.25));
+			writer.add("été", record("summer", 2.0));
+			writer.add("d", record("letter", 3.0));
+			writer.close();
+
+			MappedRecordsFile records = new MappedRecordsFile(file);
+			assertEquals("wrong number of keys", 4, records.size());
+			assertTrue(records.containsKey("d"));
+			assertFalse(records.containsKey("do"));
+			assertTrue("missing records", records.getRecords("cow").isEmpty());
+
+			List<ByteBuffer> dog = records.getRecords("dog");
+			assertEquals("wrong number of records", 2, dog.size());
+			assertRecord(dog.get(0), "animal", 1.0);
+			assertRecord(dog.get(1), "canine", 0.25);
+			assertRecord(records.getRecords("cat").get(0), "feline", 0.5);
+			assertRecord(records.getRecords("été").get(0), "summer", 2.0);
+			assertRecord(records.getRecords("d").get(0), "letter", 3.0);
+		} finally {
+			file.delete();
+		}
+	}
+
+	private static byte[] record(String string, double number) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		MappedRecordsFileWriter.writeString(out, string);
+		out.writeDouble(number);
+		out.close();
+		return bytes.toByteArray();
+	}
+
+	private static void assertRecord(ByteBuffer record, String string, double number) {
+		assertEquals("wrong string", string, MappedRecordsFile.getString(record));
+		assertEquals("wrong number", number, record.getDouble(), 0);
+		assertFalse("unexpected bytes at the end of the record", record.hasRemaining());
+	}
+}
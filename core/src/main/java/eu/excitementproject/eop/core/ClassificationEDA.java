@@ -20,14 +20,19 @@ import org.apache.uima.jcas.cas.TOP;
 import eu.excitement.type.entailment.Pair;
 import eu.excitementproject.eop.common.DecisionLabel;
 import eu.excitementproject.eop.common.EDABasic;
+import eu.excitementproject.eop.common.EDAConcurrentProcessing;
+import eu.excitementproject.eop.common.EDAConcurrentRunner;
 import eu.excitementproject.eop.common.EDAException;
+import eu.excitementproject.eop.common.TEDecision;
 import eu.excitementproject.eop.common.component.distance.DistanceCalculation;
 import eu.excitementproject.eop.common.component.distance.DistanceValue;
 import eu.excitementproject.eop.common.configuration.CommonConfig;
+import eu.excitementproject.eop.common.configuration.NameValueTable;
 import eu.excitementproject.eop.common.exception.ComponentException;
 import eu.excitementproject.eop.common.exception.ConfigurationException;
 import eu.excitementproject.eop.core.component.distance.BagOfWordsSimilarity;
 import eu.excitementproject.eop.lap.PlatformCASProber;
+import eu.excitementproject.eop.lap.XmiDirectoryIterator;
 
 //import eu.excitementproject.eop.core.component.distance.BagOfLemmasSimilarity;
 
@@ -44,10 +49,17 @@ import eu.excitementproject.eop.lap.PlatformCASProber;
  * The testing calculates the distance between the input instance and the model
  * scores and select the closest label.
  * 
+ * The section of the EDA in the configuration (named after the class) is
+ * optional. It can hold the number of threads used by
+ * <code>processDataSetConcurrently</code>, in the parameter
+ * <code>threads</code> (see <code>EDAConcurrentRunner.THREADS_PARAMETER_NAME</code>);
+ * by default, the number of available processors.
+ * 
  * @author Rui Wang
  * @since November 2012
  */
-public class ClassificationEDA implements EDABasic<ClassificationTEDecision> {
+public class ClassificationEDA implements EDABasic<ClassificationTEDecision>,
+		EDAConcurrentProcessing {
 
 	/**
 	 * get the language flag
@@ -96,6 +108,26 @@ public class ClassificationEDA implements EDABasic<ClassificationTEDecision> {
 	 */
 	private String xmiDIR;
 
+	/**
+	 * the model, if it has been read in once for all the pairs (by
+	 * <code>processDataSetConcurrently</code>); otherwise <code>process</code>
+	 * reads it from the model file
+	 */
+	private HashMap<String, Vector<Double>> loadedModel;
+
+	/**
+	 * the additional instances used by <code>processDataSetConcurrently</code>,
+	 * and the runner that dispatches the pairs to them
+	 */
+	private List<ClassificationEDA> concurrentInstances;
+	private EDAConcurrentRunner concurrentRunner;
+
+	/**
+	 * the section of the EDA in the configuration, or <code>null</code> if
+	 * there is none
+	 */
+	private NameValueTable edaSection;
+
 	@Override
 	public void initialize(CommonConfig config) throws ConfigurationException,
 			EDAException, ComponentException {
@@ -114,26 +146,24 @@ public class ClassificationEDA implements EDABasic<ClassificationTEDecision> {
 		modelFile = "./src/test/resources/ClassificationEDAModel" + language;
 
 		xmiDIR = "./target/" + language + "/";
+
+		edaSection = null;
+		if (null != config) {
+			try {
+				edaSection = config.getSection(this.getClass().getName());
+			} catch (ConfigurationException e) {
+				// the section is optional: all the parameters have defaults
+			}
+		}
 	}
 
-	@SuppressWarnings("unchecked")
 	@Override
 	public ClassificationTEDecision process(JCas aCas) throws EDAException,
 			ComponentException {
 		// read in the model
-		HashMap<String, Vector<Double>> model = null;
-		try {
-			ObjectInputStream in = new ObjectInputStream(new FileInputStream(
-					modelFile));
-			model = (HashMap<String, Vector<Double>>) in.readObject();
-			in.close();
-		} catch (IOException e) {
-			throw new EDAException(e.getMessage());
-		} catch (ClassNotFoundException e) {
-			throw new EDAException(e.getMessage());
-		}
+		HashMap<String, Vector<Double>> model = loadedModel;
 		if (null == model) {
-			throw new EDAException("No model is loaded!");
+			model = readModel();
 		}
 
 		Vector<Double> featureVector = new Vector<Double>();
@@ -178,8 +208,77 @@ public class ClassificationEDA implements EDABasic<ClassificationTEDecision> {
 
 	}
 
+	/**
+	 * read in the model from the model file
+	 * 
+	 * @return the model
+	 * @throws EDAException
+	 */
+	@SuppressWarnings("unchecked")
+	private HashMap<String, Vector<Double>> readModel() throws EDAException {
+		HashMap<String, Vector<Double>> model = null;
+		try {
+			ObjectInputStream in = new ObjectInputStream(new FileInputStream(
+					modelFile));
+			model = (HashMap<String, Vector<Double>>) in.readObject();
+			in.close();
+		} catch (IOException e) {
+			throw new EDAException(e.getMessage());
+		} catch (ClassNotFoundException e) {
+			throw new EDAException(e.getMessage());
+		}
+		if (null == model) {
+			throw new EDAException("No model is loaded!");
+		}
+		return model;
+	}
+
+	/**
+	 * The model is read in once and shared by all the threads (it is only read
+	 * when classifying a pair); each thread has its own instance of the EDA,
+	 * with its own components. The number of threads is read from the
+	 * <code>threads</code> parameter of the section of the EDA (by default,
+	 * the number of available processors).
+	 */
+	@Override
+	public List<TEDecision> processDataSetConcurrently(List<JCas> casList)
+			throws EDAException, ComponentException {
+		if (null == concurrentRunner) {
+			try {
+				loadedModel = readModel();
+				int threads = EDAConcurrentRunner.getNumberOfThreads(edaSection);
+				List<ClassificationEDA> instances = new ArrayList<ClassificationEDA>(
+						threads);
+				instances.add(this);
+				concurrentInstances = new ArrayList<ClassificationEDA>(
+						threads - 1);
+				for (int i = 1; i < threads; i++) {
+					ClassificationEDA instance = new ClassificationEDA();
+					instance.initialize(null);
+					instance.modelFile = modelFile;
+					instance.loadedModel = loadedModel;
+					concurrentInstances.add(instance);
+					instances.add(instance);
+				}
+				concurrentRunner = new EDAConcurrentRunner(instances);
+			} catch (ConfigurationException e) {
+				throw new EDAException(e.getMessage());
+			}
+		}
+		return concurrentRunner.process(casList);
+	}
+
 	@Override
 	public void shutdown() {
+		if (null != concurrentRunner) {
+			concurrentRunner.shutdown();
+			for (ClassificationEDA instance : concurrentInstances) {
+				instance.shutdown();
+			}
+			concurrentRunner = null;
+			concurrentInstances = null;
+		}
+		loadedModel = null;
 		components.clear();
 		modelFile = "";
 		xmiDIR = "";
@@ -192,64 +291,66 @@ public class ClassificationEDA implements EDABasic<ClassificationTEDecision> {
 		// the model trained, consisting of parameter name and value pairs
 		HashMap<String, Vector<Double>> model = new HashMap<String, Vector<Double>>();
 
-		for (File xmi : new File(xmiDIR).listFiles()) {
-			if (!xmi.getName().endsWith(".xmi")) {
-				continue;
-			}
-			cas = PlatformCASProber.probeXmi(xmi, System.out);
-			String goldAnswer = getGoldLabel(cas);
-			if (null == getGoldLabel(cas)) {
-				continue;
-			}
-			Vector<Double> featureVector = new Vector<Double>();
-			if (model.containsKey(goldAnswer)) {
-				// update the number of instances
-				Vector<Double> number = model.get("#" + goldAnswer);
-				number.set(0, number.get(0) + 1.0d);
-				model.put("#" + goldAnswer, number);
-
-				// update the scores
-				featureVector = model.get(goldAnswer);
-				int index = 0;
-				for (DistanceCalculation component : components) {
-					DistanceValue dValue = component.calculation(cas);
-					Vector<Double> distanceVector = component
-							.calculateScores(cas);
-					// if (null == dValue.getDistanceVector() ||
-					// dValue.getDistanceVector().size() == 0) {
-					if (null == distanceVector || distanceVector.size() == 0) {
-						featureVector.set(index, featureVector.get(index)
-								+ dValue.getDistance());
-						index++;
-						continue;
-					}
-					for (Double value : distanceVector) {
-						featureVector.set(index, featureVector.get(index)
-								+ value);
-						index++;
-					}
+		// the files are read in parallel into pooled JCases
+		XmiDirectoryIterator xmiIterator = PlatformCASProber.probeXmiDirectory(new File(xmiDIR), System.out);
+		try {
+			while (xmiIterator.hasNext()) {
+				cas = xmiIterator.next();
+				String goldAnswer = getGoldLabel(cas);
+				if (null == getGoldLabel(cas)) {
+					continue;
 				}
-			} else {
-				// first count
-				Vector<Double> number = new Vector<Double>();
-				number.add(1.0d);
-				model.put("#" + goldAnswer, number);
-
-				// first score
-				for (DistanceCalculation component : components) {
-					DistanceValue dValue = component.calculation(cas);
-					Vector<Double> vec = component.calculateScores(cas);
-					// if (null == dValue.getDistanceVector() ||
-					// dValue.getDistanceVector().size() == 0) {
-					if (null == vec || vec.size() == 0) {
-						featureVector.add(dValue.getDistance());
-						continue;
+				Vector<Double> featureVector = new Vector<Double>();
+				if (model.containsKey(goldAnswer)) {
+					// update the number of instances
+					Vector<Double> number = model.get("#" + goldAnswer);
+					number.set(0, number.get(0) + 1.0d);
+					model.put("#" + goldAnswer, number);
+
+					// update the scores
+					featureVector = model.get(goldAnswer);
+					int index = 0;
+					for (DistanceCalculation component : components) {
+						DistanceValue dValue = component.calculation(cas);
+						Vector<Double> distanceVector = component
+								.calculateScores(cas);
+						// if (null == dValue.getDistanceVector() ||
+						// dValue.getDistanceVector().size() == 0) {
+						if (null == distanceVector || distanceVector.size() == 0) {
+							featureVector.set(index, featureVector.get(index)
+									+ dValue.getDistance());
+							index++;
+							continue;
+						}
+						for (Double value : distanceVector) {
+							featureVector.set(index, featureVector.get(index)
+									+ value);
+							index++;
+						}
+					}
+				} else {
+					// first count
+					Vector<Double> number = new Vector<Double>();
+					number.add(1.0d);
+					model.put("#" + goldAnswer, number);
+
+					// first score
+					for (DistanceCalculation component : components) {
+						DistanceValue dValue = component.calculation(cas);
+						Vector<Double> vec = component.calculateScores(cas);
+						// if (null == dValue.getDistanceVector() ||
+						// dValue.getDistanceVector().size() == 0) {
+						if (null == vec || vec.size() == 0) {
+							featureVector.add(dValue.getDistance());
+							continue;
+						}
+						featureVector.addAll(vec);
 					}
-					featureVector.addAll(vec);
 				}
+				model.put(goldAnswer, featureVector);
 			}
-			model.put(goldAnswer, featureVector);
-			cas.reset();
+		} finally {
+			xmiIterator.close();
 		}
 
 		// store all the averaged scores in model
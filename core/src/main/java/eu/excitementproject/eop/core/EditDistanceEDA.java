@@ -2,8 +2,7 @@ package eu.excitementproject.eop.core;
 
 import java.util.List;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
+import java.util.Arrays;
 import java.util.logging.Logger;
 import java.io.*;
 import java.lang.reflect.Constructor;
@@ -21,6 +20,8 @@ import org.w3c.dom.*;
 
 import eu.excitementproject.eop.common.DecisionLabel;
 import eu.excitementproject.eop.common.EDABasic;
+import eu.excitementproject.eop.common.EDAConcurrentProcessing;
+import eu.excitementproject.eop.common.EDAConcurrentRunner;
 import eu.excitementproject.eop.common.EDAException;
 import eu.excitementproject.eop.common.TEDecision;
 import eu.excitementproject.eop.common.component.distance.DistanceComponentException;
@@ -32,6 +33,7 @@ import eu.excitementproject.eop.common.exception.ConfigurationException;
 import eu.excitementproject.eop.core.component.distance.*;
 import eu.excitement.type.entailment.Pair;
 import eu.excitementproject.eop.lap.PlatformCASProber;
+import eu.excitementproject.eop.lap.XmiDirectoryIterator;
 
 
 /**
@@ -48,7 +50,7 @@ import eu.excitementproject.eop.lap.PlatformCASProber;
  * 
  */
 public class EditDistanceEDA<T extends TEDecision>
-		implements EDABasic<EditDistanceTEDecision> {
+		implements EDABasic<EditDistanceTEDecision>, EDAConcurrentProcessing {
 	
 	/**
 	 * the threshold that has to be learnt on a training set and then used
@@ -119,6 +121,19 @@ public class EditDistanceEDA<T extends TEDecision>
 	 */
     private String measureToOptimize;
     
+    /**
+	 * the configuration the EDA has been initialized with; it is used to
+	 * initialize the additional instances of processDataSetConcurrently()
+	 */
+    private CommonConfig config;
+    
+    /**
+	 * the additional instances used by processDataSetConcurrently(), and the runner
+	 * that dispatches the pairs to them (both are created at the first call)
+	 */
+    private List<EditDistanceEDA<T>> concurrentInstances;
+    private EDAConcurrentRunner concurrentRunner;
+    
 	/**
 	 * if the EDA has to write the learnt model at the end of the training phase
 	 * 
@@ -380,6 +395,7 @@ public class EditDistanceEDA<T extends TEDecision>
         this.trainDIR = null;
         this.language = null;
         this.measureToOptimize = null;
+        this.config = null;
         
         logger.info("done.");
         
@@ -415,6 +431,8 @@ public class EditDistanceEDA<T extends TEDecision>
         	//checking the configuration file
 			checkConfiguration(config);
 			
+			this.config = config;
+			
 			//getting the name value table of the EDA
 			NameValueTable nameValueTable = config.getSection(this.getType());
 			
@@ -505,10 +523,70 @@ public class EditDistanceEDA<T extends TEDecision>
 		
 	}
 	
+	@Override
+	public List<TEDecision> processDataSetConcurrently(List<JCas> casList) throws EDAException, ComponentException {
+		
+		if (component == null)
+			throw new EDAException("The EDA has not been initialized");
+		
+		if (concurrentRunner == null)
+			initializeConcurrentInstances();
+		
+		return concurrentRunner.process(casList);
+		
+	}
+	
+	/**
+	 * Creates the instances used by processDataSetConcurrently(): one per thread, this
+	 * instance included. Each one has its own edit distance component, with the weights
+	 * and the threshold of this instance.
+	 */
+	@SuppressWarnings("unchecked")
+	private void initializeConcurrentInstances() throws EDAException, ComponentException {
+		
+		try {
+			
+			int threads = EDAConcurrentRunner.getNumberOfThreads(config.getSection(this.getType()));
+			logger.info("Creating " + (threads - 1) + " additional instances for concurrent processing");
+			
+			List<EditDistanceEDA<T>> instances = new ArrayList<EditDistanceEDA<T>>(threads);
+			instances.add(this);
+			this.concurrentInstances = new ArrayList<EditDistanceEDA<T>>(threads - 1);
+			for (int i = 1; i < threads; i++) {
+				EditDistanceEDA<T> instance = this.getClass().newInstance();
+				// the weights of this instance can come from the optimizer (e.g. EditDistancePSOEDA)
+				instance.setmMatchWeight(mMatchWeight);
+				instance.setmDeleteWeight(mDeleteWeight);
+				instance.setmInsertWeight(mInsertWeight);
+				instance.setmSubstituteWeight(mSubstituteWeight);
+				instance.initialize(config);
+				instance.threshold = this.threshold;
+				concurrentInstances.add(instance);
+				instances.add(instance);
+			}
+			
+			this.concurrentRunner = new EDAConcurrentRunner(instances);
+			
+		} catch (ConfigurationException e) {
+			throw new EDAException(e.getMessage());
+		} catch (InstantiationException | IllegalAccessException e) {
+			throw new EDAException(e.getMessage());
+		}
+		
+	}
+	
 	@Override
 	public void shutdown() {
 		
 		logger.info("Shutting down ...");
+		
+		if (concurrentRunner != null) {
+			concurrentRunner.shutdown();
+			for (EditDistanceEDA<T> instance : concurrentInstances)
+				instance.shutdown();
+			concurrentRunner = null;
+			concurrentInstances = null;
+		}
 	        	
 		if (component != null)
 			((FixedWeightEditDistance)component).shutdown();
@@ -542,8 +620,6 @@ public class EditDistanceEDA<T extends TEDecision>
 			List<DistanceValue> distanceValueList = new ArrayList<DistanceValue>();
 			//contains the entailment annotation between each pair of T-H
 			List<String> entailmentValueList = new ArrayList<String>();
-			//contains the entailment annotation and the distance between each pair of T-H
-			List<Annotation> annotationList;
 			
 			File f = new File(trainDIR);
 			if (f.exists() == false) {
@@ -551,29 +627,148 @@ public class EditDistanceEDA<T extends TEDecision>
 			}
 			
 			int filesCounter = 0;
-			for (File xmi : f.listFiles()) {
-				if (!xmi.getName().endsWith(".xmi")) {
-					continue;
-				}
-				
-				JCas cas = PlatformCASProber.probeXmi(xmi, null);
+			// the files are read in parallel into pooled JCases
+			XmiDirectoryIterator xmiIterator = PlatformCASProber.probeXmiDirectory(f, null);
+			try {
+				while (xmiIterator.hasNext()) {
 					
-				getDistanceValues(cas, distanceValueList);
-				getEntailmentAnnotation(cas, entailmentValueList);
-				
-				filesCounter++;
+					JCas cas = xmiIterator.next();
+						
+					getDistanceValues(cas, distanceValueList);
+					getEntailmentAnnotation(cas, entailmentValueList);
+					
+					filesCounter++;
+				}
+			} finally {
+				xmiIterator.close();
 			}
 			
-			annotationList = merge(distanceValueList, entailmentValueList);
-		
 			if (filesCounter == 0)
 				throw new ConfigurationException("trainDIR:" + f.getAbsolutePath() + " empty!");
 			
+			//the distances and the encoded entailment annotations of the pairs
+			double[] distances = new double[distanceValueList.size()];
+			boolean[] entailments = new boolean[distanceValueList.size()];
+			for (int i = 0; i < distances.length; i++) {
+				distances[i] = distanceValueList.get(i).getDistance();
+				entailments[i] = isEntailment(entailmentValueList.get(i));
+			}
+			
 			//array of two elements; the first element is the calculated threshold whereas the
 			//second one is the obtained accuracy
-			double[] thresholdAndAccuracy = 
-					//sequentialSearch(distanceValueList, entailmentValueList, measureToOptimize);
-					sequentialSearch(annotationList, measureToOptimize);
+			double[] thresholdAndAccuracy = sequentialSearch(distances, entailments, measureToOptimize);
+			
+			this.threshold = thresholdAndAccuracy[0];
+			this.trainingAccuracy = thresholdAndAccuracy[1];
+			
+			//it saves the calculated model into the configuration file itself
+			if (this.writeModel == true)
+				saveModel(config);
+			
+		} catch (ConfigurationException e) {
+			throw e;
+		} catch (EDAException e) {
+			throw e;
+		} catch (ComponentException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new EDAException(e.getMessage());
+		}
+		
+		logger.info("done.");
+		
+	}
+	
+	/**
+     * Reads the pairs of the training data set of the specified configuration and prepares them
+     * for the edit distance (see {@link FixedWeightEditDistance#prepare(JCas)}). The prepared pairs
+     * don't depend on the weights of the edit operations, so that the EDA can be trained on them
+     * with different weights (see {@link #startTraining(CommonConfig, List)}) without reading and
+     * matching the pairs again.
+     * 
+     * @param config the configuration
+     * 
+     * @return the prepared pairs, with their entailment annotations
+     * 
+     * @throws ConfigurationException, EDAException, ComponentException
+     */
+	public List<TrainingPair> prepareTrainingPairs(CommonConfig config) throws ConfigurationException, EDAException, ComponentException {
+		
+		logger.info("Preparing the training pairs ...");
+		
+		List<TrainingPair> trainingPairs = new ArrayList<TrainingPair>();
+		
+		try {
+			
+			initialize(config);
+			
+			File f = new File(trainDIR);
+			if (f.exists() == false) {
+				throw new ConfigurationException("trainDIR:" + f.getAbsolutePath() + " not found!");
+			}
+			
+			// the files are read in parallel into pooled JCases
+			XmiDirectoryIterator xmiIterator = PlatformCASProber.probeXmiDirectory(f, null);
+			try {
+				while (xmiIterator.hasNext()) {
+					
+					JCas cas = xmiIterator.next();
+					
+					List<String> entailmentValueList = new ArrayList<String>(1);
+					getEntailmentAnnotation(cas, entailmentValueList);
+					trainingPairs.add(new TrainingPair(component.prepare(cas), isEntailment(entailmentValueList.get(0))));
+					
+				}
+			} finally {
+				xmiIterator.close();
+			}
+			
+			if (trainingPairs.size() == 0)
+				throw new ConfigurationException("trainDIR:" + f.getAbsolutePath() + " empty!");
+			
+		} catch (ConfigurationException e) {
+			throw e;
+		} catch (EDAException e) {
+			throw e;
+		} catch (ComponentException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new EDAException(e.getMessage());
+		}
+		
+		logger.info("done.");
+		
+		return trainingPairs;
+		
+	}
+	
+	/**
+     * Trains the EDA on the specified prepared pairs, instead of reading the training data
+     * set of the configuration: only the edit distance of each pair is calculated again, with
+     * the weights of the configuration (or the ones set on the EDA).
+     * 
+     * @param config the configuration
+     * @param trainingPairs the pairs prepared by {@link #prepareTrainingPairs(CommonConfig)}
+     * 
+     * @throws ConfigurationException, EDAException, ComponentException
+     */
+	public void startTraining(CommonConfig config, List<TrainingPair> trainingPairs) throws ConfigurationException, EDAException, ComponentException {
+		
+		logger.info("Training ...");
+		
+		try {
+			
+			initialize(config);
+			
+			double[] distances = new double[trainingPairs.size()];
+			boolean[] entailments = new boolean[trainingPairs.size()];
+			for (int i = 0; i < distances.length; i++) {
+				TrainingPair trainingPair = trainingPairs.get(i);
+				distances[i] = component.distance(trainingPair.getPair()).getDistance();
+				entailments[i] = trainingPair.isEntailment();
+			}
+			
+			double[] thresholdAndAccuracy = sequentialSearch(distances, entailments, measureToOptimize);
 			
 			this.threshold = thresholdAndAccuracy[0];
 			this.trainingAccuracy = thresholdAndAccuracy[1];
@@ -613,14 +808,21 @@ public class EditDistanceEDA<T extends TEDecision>
 	}
 	
 	/**
-     * Returns the threshold that best separates the positive and negative examples in the training data
+     * Returns the threshold that best separates the positive and negative examples in the training data.
+     * 
+     * A threshold classifies as ENTAILMENT all the examples whose distance is not above it, so the
+     * candidate thresholds are the distinct distances of the examples, plus one below all of them. The
+     * distances of the positive and of the negative examples are sorted once, and the candidates are
+     * visited in increasing order, so that the true and false positives of each candidate are counted
+     * from the ones of the previous candidate.
      * 
-     * @return the threshold and the accuracy
+     * @param distances the distances of the examples
+     * @param entailments whether each example is a positive example (ENTAILMENT)
+     * @param measureToOptimize accuracy or f1
      * 
-     * @throws ComponentException, EDAException, Exception
+     * @return the threshold and the accuracy (or the f1 measure)
      */
-	private double[] sequentialSearch(List<Annotation> annotationList, String measureToOptimize) 
-			throws ComponentException, EDAException, Exception {
+	static double[] sequentialSearch(double[] distances, boolean[] entailments, String measureToOptimize) {
 		
 		//double[0] is the calculated threshold
 		//double[1] is the accuracy or the f1 measure
@@ -635,78 +837,78 @@ public class EditDistanceEDA<T extends TEDecision>
 		double recall = 0.0;
 		double precision = 0.0;
 		
-		if ( (annotationList != null && annotationList.size() == 0) ||
-				annotationList == null) {
+		if (distances.length == 0) {
 			results[0] = 0.0;
 			results[1] = 0.0;
 			
 			return results;
 		}
 		
-		try {
-			
-			//A copy of the specified list sorted in increasing order from smallest
-			List<Annotation> sortedAnnotationList = sortAnnotationList(annotationList);
+		//the sorted distances of the positive and of the negative examples
+		int totNumberOfEntailment = 0;
+		for (boolean entailment : entailments) {
+			if (entailment)
+				totNumberOfEntailment++;
+		}
+		int totNumberOfNonEntailment = distances.length - totNumberOfEntailment;
+		double[] entailmentDistances = new double[totNumberOfEntailment];
+		double[] nonEntailmentDistances = new double[totNumberOfNonEntailment];
+		for (int i = 0, e = 0, n = 0; i < distances.length; i++) {
+			if (entailments[i])
+				entailmentDistances[e++] = distances[i];
+			else
+				nonEntailmentDistances[n++] = distances[i];
+		}
+		Arrays.sort(entailmentDistances);
+		Arrays.sort(nonEntailmentDistances);
+		
+		// true positive
+		int tp = 0; 
+		// false positive
+		int fp = 0; 
+		
+		//the first candidate classifies all the examples as NONENTAILMENT
+		double threshold = Math.nextAfter(Math.min(
+				totNumberOfEntailment > 0 ? entailmentDistances[0] : Double.POSITIVE_INFINITY,
+				totNumberOfNonEntailment > 0 ? nonEntailmentDistances[0] : Double.POSITIVE_INFINITY),
+				Double.NEGATIVE_INFINITY);
+		
+		while (true) {
 			
-			// true positive
-			double tp = 0; 
-			// false positive
-			double fp = 0; 
-			// true negative
-			double tn = 0; 
 			// false negative
-			double fn = 0;
-			
-			int totNumberOfEntailment = 0;
-			int totNumberOfNonEntailment = 0;
-			for (int i = 0; i < sortedAnnotationList.size(); i++) {
-				if (sortedAnnotationList.get(i).getEntailmentRelation().equals("ENTAILMENT"))
-					totNumberOfEntailment++;
-				else
-					totNumberOfNonEntailment++;
-				//System.out.println(sortedAnnotationList.get(i).getDistance().getDistance() + "\t" + sortedAnnotationList.get(i).getEntailmentRelation());
-			}
+			int fn = totNumberOfEntailment - tp;
+			// true negative
+			int tn = totNumberOfNonEntailment - fp;
 			
-			for (int j = -1; j < sortedAnnotationList.size(); j++) {
-					
-				double distanceValue = 0;
-				String entailmentRelation = "";
-				
-				if ( j != -1 ) {
-					
-					distanceValue = sortedAnnotationList.get(j).getDistanceValue().getDistance();
-					entailmentRelation = sortedAnnotationList.get(j).getEntailmentRelation();
-				
-					if (entailmentRelation.equals("ENTAILMENT"))
-						tp = tp + 1;
-					else
-						fp = fp + 1;
-				
-				}
-				
-				fn = totNumberOfEntailment - tp;
-				tn = totNumberOfNonEntailment - fp;
-				
-				accuracy = (tp + fp + fn + tn == 0) ? 0 : (tp+tn)/(tp + fp + fn + tn);
-				precision = (tp + fp == 0) ? 1 : tp / (tp + fp);
-				recall = (tp + fn == 0) ? 0 : tp / (tp + fn);
-				f1 = (precision + recall == 0) ? 0: (2 * precision * recall)/(precision + recall);
-				
-				//System.out.println(f1 + "\t" + precision + "\t" + recall + "\t" + accuracy);
-				
-				if (accuracy > maxAccuracy) {
-					maxAccuracy = accuracy;
-					accuracyThreshold = distanceValue;
-				}
-				if (f1 > maxF1) {
-					maxF1 = f1;
-					f1Threshold = distanceValue;
-				}
-				
+			accuracy = (double)(tp + tn) / distances.length;
+			precision = (tp + fp == 0) ? 1 : (double)tp / (tp + fp);
+			recall = (tp + fn == 0) ? 0 : (double)tp / (tp + fn);
+			f1 = (precision + recall == 0) ? 0: (2 * precision * recall)/(precision + recall);
+			
+			if (accuracy > maxAccuracy) {
+				maxAccuracy = accuracy;
+				accuracyThreshold = threshold;
+			}
+			if (f1 > maxF1) {
+				maxF1 = f1;
+				f1Threshold = threshold;
 			}
 			
-		} catch(Exception e) {
-			throw e;
+			if (tp == totNumberOfEntailment && fp == totNumberOfNonEntailment)
+				break;
+			
+			//the next candidate is the smallest distance not classified as ENTAILMENT yet;
+			//all the examples with that distance become ENTAILMENT together
+			if (fp == totNumberOfNonEntailment || 
+					(tp < totNumberOfEntailment && Double.compare(entailmentDistances[tp], nonEntailmentDistances[fp]) <= 0))
+				threshold = entailmentDistances[tp];
+			else
+				threshold = nonEntailmentDistances[fp];
+			while (tp < totNumberOfEntailment && Double.compare(entailmentDistances[tp], threshold) <= 0)
+				tp++;
+			while (fp < totNumberOfNonEntailment && Double.compare(nonEntailmentDistances[fp], threshold) <= 0)
+				fp++;
+			
 		}
 		
 		if (measureToOptimize.equals("f1")) {
@@ -722,6 +924,19 @@ public class EditDistanceEDA<T extends TEDecision>
 		
 	}
 	
+	/**
+     * Returns whether the specified entailment annotation is a positive one
+     * 
+     * @param entailmentValue the gold answer of a pair
+     * 
+     * @return true for ENTAILMENT
+     */
+	private static boolean isEntailment(String entailmentValue) {
+		
+		return "ENTAILMENT".equals(entailmentValue);
+		
+	}
+	
 	/**
      * Returns the pair identifier of the pair contained in the specified CAS
      *
@@ -744,33 +959,6 @@ public class EditDistanceEDA<T extends TEDecision>
 		
 	}
 	
-	/**
-     * Returns a copy of the specified list sorted in increasing order from smallest
-     * to largest
-     *
-     * @param distanceValues the list of distance values
-     * 
-     * @return a copy of the specified list sorted in increasing order
-     */
-	private List<Annotation> sortAnnotationList(List<Annotation> annotationList) {
-		
-		List<Annotation> newAnnotationList = new ArrayList<Annotation>(annotationList);
-		
-		Collections.copy(newAnnotationList, annotationList);
-				
-		Collections.sort(newAnnotationList, new Comparator<Annotation>(){
-			 
-            public int compare(Annotation a1,  Annotation a2) {
-                return a1.getDistanceValue().getDistance() > a2.getDistanceValue().getDistance() ? 1 :
-                	a1.getDistanceValue().getDistance() == a2.getDistanceValue().getDistance() ? 0 : -1;
-            }
-  
-        });
-		
-		return newAnnotationList;
-		
-	}
-	
 	/**
      * Puts distance values calculating for each of the pair T and H
      * of the specified list of Cas into the distanceValues list. 
@@ -823,36 +1011,6 @@ public class EditDistanceEDA<T extends TEDecision>
 				
 	}	
 	
-	/**
-     * For each T/H pair puts its entailment annotation value and distance into a list of Annotations. 
-     *
-     * @param distanceValues
-     * @param entailmentValueList
-     * 
-     * @return a list of Annotation
-     * 
-     * @throws Exception
-     */
-	private List<Annotation> merge(List<DistanceValue> distanceValues, List<String> entailmentValueList) 
-			throws Exception {
-			
-		List<Annotation>  annotationList = new ArrayList<Annotation>();
-		
-		try {
-			
-			for (int i = 0; i < distanceValues.size(); i++) {
-				Annotation annotation = new Annotation(distanceValues.get(i), entailmentValueList.get(i));
-				annotationList.add(annotation);
-			}
-			
-		} catch(Exception e) {
-			throw e;
-		}
-			
-		return annotationList;
-				
-	}	
-	
 	/**
      * Save the optimized parameters (e.g. threshold) into the configuration file itself
      */
@@ -980,30 +1138,37 @@ public class EditDistanceEDA<T extends TEDecision>
 	    
     }
     
-    /* 
-     * This class represents the entailment annotation between a T/H pair with its edit distance.
+    /**
+     * The <code>TrainingPair</code> class represents a training T/H pair prepared for the edit distance,
+     * with its entailment annotation.
      */
-    private class Annotation {
+    public static final class TrainingPair {
     	
-    	DistanceValue distance;
-    	String entailmentRelation;
+    	private final FixedWeightEditDistance.PreparedPair pair;
+    	private final boolean entailment;
     	
-    	Annotation(DistanceValue distance, String entailmentRelation) {
+    	TrainingPair(FixedWeightEditDistance.PreparedPair pair, boolean entailment) {
     		
-    		this.distance = distance;
-    		this.entailmentRelation = entailmentRelation;
+    		this.pair = pair;
+    		this.entailment = entailment;
     		
     	}
     	
-    	DistanceValue getDistanceValue() {
+    	/**
+    	 * @return the pair prepared for the edit distance
+    	 */
+    	public FixedWeightEditDistance.PreparedPair getPair() {
     		
-    		return distance;
+    		return pair;
     		
     	}
     	
-    	String getEntailmentRelation() {
+    	/**
+    	 * @return whether the pair is annotated as ENTAILMENT
+    	 */
+    	public boolean isEntailment() {
     		
-    		return entailmentRelation;
+    		return entailment;
     		
     	}
     	
@@ -2,6 +2,7 @@ package eu.excitementproject.eop.core;
 
 import eu.fbk.hlt.pso.*;
 import java.io.*;
+import java.util.List;
 
 import eu.excitementproject.eop.common.configuration.CommonConfig;
 import eu.excitementproject.eop.common.utilities.configuration.ImplCommonConfig;
@@ -22,6 +23,14 @@ public class EditDistanceFitnessFunction extends FitnessFunction {
 	 */
 	static CommonConfig CONFIG;
 	
+	/* 
+	 * the training pairs prepared for the edit distance, shared by all the evaluations;
+	 * without them each evaluation reads the training data set again. PSO creates the
+	 * fitness functions from their class, so the pairs can't be given to them; EditDistancePSOEDA
+	 * sets them before running PSO and clears them when PSO is done.
+	 */
+	static List<EditDistanceEDA.TrainingPair> TRAINING_PAIRS;
+	
 	@Override
 	public FitnessFunction call() throws Exception {
 		
@@ -63,7 +72,10 @@ public class EditDistanceFitnessFunction extends FitnessFunction {
 		/*
 		 * starting the training phase by using the updated weights
 		 */
-		editDistanceEDA.startTraining(cc);
+		if (TRAINING_PAIRS != null)
+			editDistanceEDA.startTraining(cc, TRAINING_PAIRS);
+		else
+			editDistanceEDA.startTraining(cc);
 		
 		/*
 		 * this is the measure to be optimized by PSO; the smaller the value the better
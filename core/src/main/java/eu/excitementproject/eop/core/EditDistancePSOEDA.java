@@ -149,6 +149,12 @@ public class EditDistancePSOEDA<T extends TEDecision> extends EditDistanceEDA<T>
 			
 			//EditDistanceFitnessFunction represents the function to be optimized by PSO
 			EditDistanceFitnessFunction.CONFIG = config;
+			
+			//the training pairs are read and matched once, and each evaluation of PSO
+			//only calculates their edit distance with its weights
+			EditDistanceEDA<EditDistanceTEDecision> preparingEDA = new EditDistanceEDA<EditDistanceTEDecision>();
+			EditDistanceFitnessFunction.TRAINING_PAIRS = preparingEDA.prepareTrainingPairs(config);
+			preparingEDA.shutdown();
 			//EditDistanceFitnessFunction.CANONICAL_NAME = getCanonicalName();
 			
 			Class<?> fitnessFunction = EditDistanceFitnessFunction.class;
@@ -187,8 +193,15 @@ public class EditDistancePSOEDA<T extends TEDecision> extends EditDistanceEDA<T>
 		
 		try {
 		
-			PSO pso = initializePSO(config);
-			Position gBestPosition = pso.execute();
+			Position gBestPosition;
+			try {
+				PSO pso = initializePSO(config);
+				gBestPosition = pso.execute();
+			} finally {
+				//the prepared pairs are only needed by the evaluations of this training;
+				//they must not be kept alive, nor used by the next one
+				EditDistanceFitnessFunction.TRAINING_PAIRS = null;
+			}
 			
 			//these are the optimized values of the edit distance operations calculated by PSO
 			setmMatchWeight(0.0);
@@ -4,8 +4,15 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Logger;
 
 import opennlp.maxent.DoubleStringPair;
@@ -28,7 +35,10 @@ import org.apache.uima.jcas.cas.TOP;
 import eu.excitement.type.entailment.Pair;
 import eu.excitementproject.eop.common.DecisionLabel;
 import eu.excitementproject.eop.common.EDABasic;
+import eu.excitementproject.eop.common.EDAConcurrentProcessing;
+import eu.excitementproject.eop.common.EDAConcurrentRunner;
 import eu.excitementproject.eop.common.EDAException;
+import eu.excitementproject.eop.common.TEDecision;
 import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalResourceException;
 import eu.excitementproject.eop.common.component.scoring.ScoringComponent;
 import eu.excitementproject.eop.common.component.scoring.ScoringComponentException;
@@ -40,8 +50,10 @@ import eu.excitementproject.eop.core.component.scoring.BagOfLexesPosScoringDE;
 import eu.excitementproject.eop.core.component.scoring.BagOfLexesScoringDE;
 import eu.excitementproject.eop.core.component.scoring.BagOfLexesScoringEN;
 import eu.excitementproject.eop.core.component.scoring.BagOfWordsScoring;
+import eu.excitementproject.eop.core.component.scoring.PairFeatureContext;
 import eu.excitementproject.eop.lap.LAPException;
 import eu.excitementproject.eop.lap.PlatformCASProber;
+import eu.excitementproject.eop.lap.XmiDirectoryIterator;
 
 /**
  * The <code>MaxEntClassificationEDA</code> class implements the
@@ -68,7 +80,7 @@ import eu.excitementproject.eop.lap.PlatformCASProber;
  * @since December 2012
  */
 public class MaxEntClassificationEDA implements
-		EDABasic<ClassificationTEDecision> {
+		EDABasic<ClassificationTEDecision>, EDAConcurrentProcessing {
 
 	/**
 	 * the logger
@@ -106,6 +118,20 @@ public class MaxEntClassificationEDA implements
 	 */
 	private MaxentModel model;
 
+	/**
+	 * the configuration, kept for initializing the instances used by
+	 * <code>processDataSetConcurrently</code>
+	 */
+	private CommonConfig config;
+
+	/**
+	 * the additional instances used by <code>processDataSetConcurrently</code>
+	 * (they share the model with this instance, but have their own components),
+	 * and the runner that dispatches the pairs to them
+	 */
+	private List<MaxEntClassificationEDA> concurrentInstances;
+	private EDAConcurrentRunner concurrentRunner;
+
 	/**
 	 * get the list of components
 	 * 
@@ -163,6 +189,8 @@ public class MaxEntClassificationEDA implements
 	@Override
 	public final void initialize(CommonConfig config)
 			throws ConfigurationException, EDAException, ComponentException {
+		this.config = config;
+
 		// initialize the language
 		initializeEDA(config);
 
@@ -436,18 +464,194 @@ public class MaxEntClassificationEDA implements
 	protected final String[] constructContext(JCas aCas)
 			throws ScoringComponentException {
 		List<String> featList = new ArrayList<String>();
-		for (ScoringComponent comp : components) {
-			Vector<Double> scores = comp.calculateScores(aCas);
-			for (int i = 0; i < scores.size(); i++) {
-				featList.add(comp.getComponentName() + "_" + i + "="
-						+ scores.get(i).floatValue());
+		// the components share the bags and the trees of the pair
+		PairFeatureContext pairContext = PairFeatureContext.open(aCas);
+		try {
+			for (ScoringComponent comp : components) {
+				Vector<Double> scores = comp.calculateScores(aCas);
+				for (int i = 0; i < scores.size(); i++) {
+					featList.add(comp.getComponentName() + "_" + i + "="
+							+ scores.get(i).floatValue());
+				}
 			}
+		} finally {
+			pairContext.close();
 		}
 		return featList.toArray(new String[featList.size()]);
 	}
 
+	@Override
+	public final List<TEDecision> processDataSetConcurrently(List<JCas> casList)
+			throws EDAException, ComponentException {
+		if (null == model) {
+			throw new EDAException("The EDA has not been initialized");
+		}
+		if (null == concurrentRunner) {
+			initializeConcurrentInstances();
+		}
+		prewarmLexicalComponents(casList);
+		return concurrentRunner.process(casList);
+	}
+
+	/**
+	 * look up the lemmas of the given pairs in the lexical resources of all
+	 * the instances in advance (see <code>BagOfLexesScoringEN.prewarm</code>),
+	 * so that scoring the pairs makes no more lookups. The lemmas are
+	 * collected in this thread; each instance looks them up in a thread of its
+	 * own, since each instance has its own resources.
+	 * 
+	 * @param casList
+	 *            the T-H pairs
+	 * @throws EDAException
+	 * @throws ComponentException
+	 */
+	private void prewarmLexicalComponents(List<JCas> casList)
+			throws EDAException, ComponentException {
+		List<BagOfLexesScoringEN> lexComps = getLexicalComponents();
+		if (lexComps.isEmpty()) {
+			return;
+		}
+		final Set<String> lemmas = new LinkedHashSet<String>();
+		for (JCas aCas : casList) {
+			lemmas.addAll(lexComps.get(0).getTextLemmas(aCas));
+		}
+
+		List<MaxEntClassificationEDA> instances = new ArrayList<MaxEntClassificationEDA>();
+		instances.add(this);
+		instances.addAll(concurrentInstances);
+		ExecutorService executor = Executors.newFixedThreadPool(instances
+				.size());
+		try {
+			List<Future<Void>> futures = new ArrayList<Future<Void>>();
+			for (final MaxEntClassificationEDA instance : instances) {
+				futures.add(executor.submit(new Callable<Void>() {
+					@Override
+					public Void call() throws ScoringComponentException {
+						for (BagOfLexesScoringEN comp : instance
+								.getLexicalComponents()) {
+							comp.prewarm(lemmas);
+						}
+						return null;
+					}
+				}));
+			}
+			for (Future<Void> future : futures) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new EDAException(
+					"Interrupted while looking up the lemmas of the data set", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof ComponentException) {
+				throw (ComponentException) e.getCause();
+			}
+			throw new EDAException(
+					"Failed to look up the lemmas of the data set", e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * look up the lemmas of the training pairs in the lexical resources in
+	 * advance (see <code>BagOfLexesScoringEN.prewarm</code>). The pairs of a
+	 * directory are read once more, for their lemmas only, since
+	 * <code>readInXmiFiles</code> gives the JCas of each pair back to the pool
+	 * before it reads the next one.
+	 * 
+	 * @param filePath
+	 *            the xmi file or directory path of the dataset
+	 * @throws ConfigurationException
+	 */
+	private void prewarmLexicalComponents(String filePath)
+			throws ConfigurationException {
+		List<BagOfLexesScoringEN> lexComps = getLexicalComponents();
+		File dir = new File(filePath);
+		if (lexComps.isEmpty() || !dir.isDirectory()) {
+			return;
+		}
+		try {
+			Set<String> lemmas = new LinkedHashSet<String>();
+			XmiDirectoryIterator xmiIterator = PlatformCASProber
+					.probeXmiDirectory(dir, null);
+			try {
+				while (xmiIterator.hasNext()) {
+					lemmas.addAll(lexComps.get(0).getTextLemmas(
+							xmiIterator.next()));
+				}
+			} finally {
+				xmiIterator.close();
+			}
+			for (BagOfLexesScoringEN comp : lexComps) {
+				comp.prewarm(lemmas);
+			}
+		} catch (LAPException e) {
+			throw new ConfigurationException(e.getMessage());
+		} catch (ScoringComponentException e) {
+			throw new ConfigurationException(e.getMessage());
+		}
+	}
+
+	/**
+	 * @return the components of this instance which look up the lemmas of the
+	 *         pairs in lexical resources
+	 */
+	private List<BagOfLexesScoringEN> getLexicalComponents() {
+		List<BagOfLexesScoringEN> lexComps = new ArrayList<BagOfLexesScoringEN>();
+		for (ScoringComponent comp : components) {
+			if (comp instanceof BagOfLexesScoringEN) {
+				lexComps.add((BagOfLexesScoringEN) comp);
+			}
+		}
+		return lexComps;
+	}
+
+	/**
+	 * create the instances used by <code>processDataSetConcurrently</code>,
+	 * one per thread (this instance included). The model is only read when
+	 * evaluating a pair, so it is shared; the scoring components are not
+	 * thread-safe, so each instance has its own.
+	 * 
+	 * @throws EDAException
+	 * @throws ComponentException
+	 */
+	private void initializeConcurrentInstances() throws EDAException,
+			ComponentException {
+		try {
+			int threads = EDAConcurrentRunner.getNumberOfThreads(config
+					.getSection(this.getClass().getName()));
+			List<MaxEntClassificationEDA> instances = new ArrayList<MaxEntClassificationEDA>(
+					threads);
+			instances.add(this);
+			concurrentInstances = new ArrayList<MaxEntClassificationEDA>(
+					threads - 1);
+			for (int i = 1; i < threads; i++) {
+				MaxEntClassificationEDA instance = new MaxEntClassificationEDA();
+				instance.config = config;
+				instance.language = language;
+				instance.modelFile = modelFile;
+				instance.model = model;
+				instance.initializeComponents(config);
+				concurrentInstances.add(instance);
+				instances.add(instance);
+			}
+			concurrentRunner = new EDAConcurrentRunner(instances);
+		} catch (ConfigurationException e) {
+			throw new EDAException(e.getMessage());
+		}
+	}
+
 	@Override
 	public final void shutdown() {
+		if (null != concurrentRunner) {
+			concurrentRunner.shutdown();
+			for (MaxEntClassificationEDA instance : concurrentInstances) {
+				instance.shutdown();
+			}
+			concurrentRunner = null;
+			concurrentInstances = null;
+		}
 		if (null != components) {
 			for (ScoringComponent comp : components) {
 				try {
@@ -462,11 +666,14 @@ public class MaxEntClassificationEDA implements
 		trainDIR = "";
 		testDIR = "";
 		model = null;
+		config = null;
 	}
 
 	@Override
 	public final void startTraining(CommonConfig c)
 			throws ConfigurationException, EDAException, ComponentException {
+		this.config = c;
+
 		// initialize the language
 		initializeEDA(c);
 
@@ -495,6 +702,7 @@ public class MaxEntClassificationEDA implements
 		// double sigma = 1.0;
 
 		File outputFile = new File(modelFile);
+		prewarmLexicalComponents(trainDIR);
 		try {
 			// GIS.SMOOTHING_OBSERVATION = SMOOTHING_OBSERVATION;
 			model = GIS.trainModel(max_iteration,
@@ -522,13 +730,20 @@ public class MaxEntClassificationEDA implements
 		if (dir.isFile()) {
 			eventList.add(readInXmiFile(dir.getAbsolutePath()));
 		} else if (dir.isDirectory()) {
-			for (File file : dir.listFiles()) {
-				// ignore all the non-xmi files
-				if (!file.getName().endsWith(".xmi")) {
-					continue;
+			// the xmi files are read in parallel into pooled JCases
+			try {
+				XmiDirectoryIterator xmiIterator = PlatformCASProber
+						.probeXmiDirectory(dir, System.out);
+				try {
+					while (xmiIterator.hasNext()) {
+						// add the instance to the dataset
+						eventList.add(casToEvent(xmiIterator.next()));
+					}
+				} finally {
+					xmiIterator.close();
 				}
-				// add the instance to the dataset
-				eventList.add(readInXmiFile(file.getAbsolutePath()));
+			} catch (LAPException e) {
+				throw new ConfigurationException(e.getMessage());
 			}
 		}
 		return new ListEventStream(eventList);
@@ -2,8 +2,17 @@ package eu.excitementproject.eop.core.component.alignment.lexicallink;
 
 import java.lang.reflect.Constructor;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.log4j.Logger;
 import org.apache.uima.cas.CASException;
@@ -17,6 +26,9 @@ import eu.excitement.type.alignment.Link.Direction;
 import eu.excitement.type.alignment.Target;
 import eu.excitementproject.eop.common.component.alignment.AlignmentComponent;
 import eu.excitementproject.eop.common.component.alignment.AlignmentComponentException;
+import eu.excitementproject.eop.common.component.lexicalknowledge.BatchLexicalResourceUtils;
+import eu.excitementproject.eop.common.component.lexicalknowledge.CachingLexicalResource;
+import eu.excitementproject.eop.common.component.lexicalknowledge.LemmaPos;
 import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalResource;
 import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalResourceCloseException;
 import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalResourceException;
@@ -55,6 +67,8 @@ public class LexicalAligner implements AlignmentComponent {
 	private static final String LEXICAL_RESOURCES_CONF_SECTION = "LexicalResources";
 	private static final String GENERAL_PARAMS_CONF_SECTION = "GeneralParameters";
 	private static final String MAX_PHRASE_KEY = "maxPhraseLength";
+	private static final String BATCH_LOOKUP_KEY = "batchLookup";
+	private static final String PARALLEL_RESOURCES_KEY = "parallelResources";
 	private static final String WORDNET = "wordnet";
 	private static final String USE_LEMMA_PARAM = "useLemma";
 	private static final String LEFT_SIDE_POS_PARAM = "leftSidePOS";
@@ -66,6 +80,8 @@ public class LexicalAligner implements AlignmentComponent {
 	private List<Token> hypoTokens;
 	private List<LexicalResource<? extends RuleInfo>> lexicalResources;
 	private int maxPhrase = 0;
+	private boolean batchLookup = false;
+	private ExecutorService resourcesExecutor = null;
 	private HashMap<String, LexicalResourceInformation> lexicalResourcesInformation;
 	private static final Logger logger = Logger.getLogger(LexicalAligner.class);
 	
@@ -100,6 +116,13 @@ public class LexicalAligner implements AlignmentComponent {
 	 * The lexical aligner looks at every phrase t in the text and every phrase
 	 * h in the hypothesis, and uses the lexical resources to find rules with
 	 * lhs = t and rhs = h.  
+	 * <P>
+	 * If the <code>batchLookup</code> general parameter is set, each resource
+	 * is queried only once per distinct text phrase (rules t->* and *->t), and
+	 * the other side of the returned rules is joined with an index of the 
+	 * hypothesis phrases. If <code>parallelResources</code> is also set, the
+	 * resources are queried concurrently; the links are added to the CAS in
+	 * the same order in both cases.
 	 * @param aJCas the JCAS object with the text and hypothesis view.
 	 * @throws AlignmentComponentException 
 	 */
@@ -113,49 +136,10 @@ public class LexicalAligner implements AlignmentComponent {
 			// Get the tokens and lemmas of the text and hypothesis
 			getTokenAnnotations(aJCas);
 			
-			// Check in all the resources for rules of type textPhrase -> hypoPhrase 
-			for (LexicalResource<? extends RuleInfo> resource : lexicalResources) {
-				
-				LexicalResourceInformation resourceInfo = 
-						lexicalResourcesInformation.get(resource.getClass().getName());
-				
-				// For every phrase t in T and phrase h in H, check the lexical
-				// resources if they contain a rule t->h
-				String textPhrase = "", hypoPhrase = "";
-				
-				for (int textStart = 0; textStart < textTokens.size(); ++textStart) {
-					for (int textEnd = textStart; textEnd < Math.min(textTokens.size(), 
-							textStart + maxPhrase); ++textEnd) {
-						
-						textPhrase = getPhrase(textTokens, textStart, textEnd, 
-								resourceInfo.useLemma());
-						
-						for (int hypoStart = 0; hypoStart < hypoTokens.size(); ++hypoStart) {
-							for (int hypoEnd = hypoStart; hypoEnd < Math.min(hypoTokens.size(), 
-									hypoStart + maxPhrase); ++hypoEnd) {
-								
-								hypoPhrase = getPhrase(hypoTokens, hypoStart, hypoEnd, 
-										resourceInfo.useLemma());
-								
-								// Get the rules textPhrase -> hypoPhrase
-								List<LexicalRule<? extends RuleInfo>> ruleFromLeft = 
-										getRules(resource, textPhrase, hypoPhrase,
-												resourceInfo.getLeftSidePOS(), resourceInfo.getRightSidePOS());
-								
-								// Get the rules hypoPhrase -> textPhrase
-								List<LexicalRule<? extends RuleInfo>> ruleFromRight = 
-										getRules(resource, hypoPhrase, textPhrase,
-												resourceInfo.getLeftSidePOS(), resourceInfo.getRightSidePOS());
-								
-								// Create the alignment links for the rules
-								createAlignmentLinks(
-										aJCas, textStart, textEnd,
-										hypoStart, hypoEnd, ruleFromLeft, ruleFromRight,
-										resourceInfo.getVersion());
-							}
-						}
-					}
-				}
+			if (batchLookup) {
+				annotateBatched(aJCas);
+			} else {
+				annotateExhaustive(aJCas);
 			}
 			
 			logger.info("Finished annotating a text and hypothesis pair using lexical aligner");
@@ -188,6 +172,11 @@ public class LexicalAligner implements AlignmentComponent {
 	 */
 	public void cleanUp() {
 
+		// Stop the threads used to query the resources
+		if (resourcesExecutor != null) {
+			resourcesExecutor.shutdown();
+		}
+		
 		// Close the lexical resources
 		for (LexicalResource<? extends RuleInfo> lexicalResource : lexicalResources) {
 			try {
@@ -219,6 +208,11 @@ public class LexicalAligner implements AlignmentComponent {
 		}
 		
 		maxPhrase = paramsSection.getInteger(MAX_PHRASE_KEY);
+		
+		// Look up the resources by text phrase rather than by phrase pair 
+		if (paramsSection.getString(BATCH_LOOKUP_KEY) != null) {
+			batchLookup = Boolean.parseBoolean(paramsSection.getString(BATCH_LOOKUP_KEY));
+		}
 				
 		// Get the Lexical Resources configuration section
 		NameValueTable lexicalResourcesSection = null;
@@ -245,6 +239,9 @@ public class LexicalAligner implements AlignmentComponent {
 					createLexicalResource(resourceClassName, resourceParams);
 			
 			if (lexicalResource != null) {
+				// Memoize the queries, if the resource's section has a cache size
+				lexicalResource = CachingLexicalResource.wrapIfConfigured(
+						lexicalResource, resourceParams);
 				lexicalResources.add(lexicalResource);
 				
 				PartOfSpeech leftSidePOS = null, rightSidePOS = null;
@@ -272,13 +269,456 @@ public class LexicalAligner implements AlignmentComponent {
 					}
 				}
 				
-				lexicalResourcesInformation.put(lexicalResource.getClass().getName(), 
+				lexicalResourcesInformation.put(getResourceClassName(lexicalResource), 
 						new LexicalResourceInformation(
 								resourceParams.getString(VERSION_PARAM), 
 								resourceParams.getBoolean(USE_LEMMA_PARAM),
 								leftSidePOS, rightSidePOS));
 			}
 		}
+		
+		// Query the resources concurrently (batch lookup only)
+		if (batchLookup && (paramsSection.getString(PARALLEL_RESOURCES_KEY) != null) &&
+				Boolean.parseBoolean(paramsSection.getString(PARALLEL_RESOURCES_KEY)) &&
+				(lexicalResources.size() > 1)) {
+			resourcesExecutor = Executors.newFixedThreadPool(lexicalResources.size());
+		}
+	}
+	
+	/**
+	 * Align the text and the hypothesis by looking up every pair of
+	 * text phrase and hypothesis phrase in each of the resources.
+	 * @param aJCas the JCAS object with the text and hypothesis view.
+	 * @throws CASException
+	 * @throws LexicalResourceException
+	 */
+	private void annotateExhaustive(JCas aJCas) throws CASException, LexicalResourceException {
+		
+		// Check in all the resources for rules of type textPhrase -> hypoPhrase 
+		for (LexicalResource<? extends RuleInfo> resource : lexicalResources) {
+			
+			LexicalResourceInformation resourceInfo = 
+					lexicalResourcesInformation.get(getResourceClassName(resource));
+			
+			// For every phrase t in T and phrase h in H, check the lexical
+			// resources if they contain a rule t->h
+			String textPhrase = "", hypoPhrase = "";
+			
+			for (int textStart = 0; textStart < textTokens.size(); ++textStart) {
+				for (int textEnd = textStart; textEnd < Math.min(textTokens.size(), 
+						textStart + maxPhrase); ++textEnd) {
+					
+					textPhrase = getPhrase(textTokens, textStart, textEnd, 
+							resourceInfo.useLemma());
+					
+					for (int hypoStart = 0; hypoStart < hypoTokens.size(); ++hypoStart) {
+						for (int hypoEnd = hypoStart; hypoEnd < Math.min(hypoTokens.size(), 
+								hypoStart + maxPhrase); ++hypoEnd) {
+							
+							hypoPhrase = getPhrase(hypoTokens, hypoStart, hypoEnd, 
+									resourceInfo.useLemma());
+							
+							// Get the rules textPhrase -> hypoPhrase
+							List<LexicalRule<? extends RuleInfo>> ruleFromLeft = 
+									getRules(resource, textPhrase, hypoPhrase,
+											resourceInfo.getLeftSidePOS(), resourceInfo.getRightSidePOS());
+							
+							// Get the rules hypoPhrase -> textPhrase
+							List<LexicalRule<? extends RuleInfo>> ruleFromRight = 
+									getRules(resource, hypoPhrase, textPhrase,
+											resourceInfo.getLeftSidePOS(), resourceInfo.getRightSidePOS());
+							
+							// Create the alignment links for the rules
+							createAlignmentLinks(
+									aJCas, textStart, textEnd,
+									hypoStart, hypoEnd, ruleFromLeft, ruleFromRight,
+									resourceInfo.getVersion());
+						}
+					}
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Align the text and the hypothesis by looking up each distinct text 
+	 * phrase once per resource (as the left and as the right side of the rules),
+	 * and joining the other side of the rules with the hypothesis phrases.
+	 * @param aJCas the JCAS object with the text and hypothesis view.
+	 * @throws CASException
+	 * @throws LexicalResourceException
+	 */
+	private void annotateBatched(JCas aJCas) throws CASException, LexicalResourceException {
+		
+		List<List<PhraseAlignment>> resourcesAlignments = 
+				new ArrayList<List<PhraseAlignment>>(lexicalResources.size());
+		
+		// The phrases are read from the CAS here, on the calling thread: even 
+		// reading the tokens' features is not safe from several threads, so
+		// the tasks below only get these maps and query the resources
+		final Map<Boolean, Map<String, List<int[]>>> textPhrases = 
+				new HashMap<Boolean, Map<String, List<int[]>>>();
+		final Map<Boolean, Map<String, List<int[]>>> hypoPhrases = 
+				new HashMap<Boolean, Map<String, List<int[]>>>();
+		
+		for (boolean useLemma : new boolean[] {false, true}) {
+			textPhrases.put(useLemma, getPhrasePositions(textTokens, useLemma));
+			hypoPhrases.put(useLemma, getPhrasePositions(hypoTokens, useLemma));
+		}
+		
+		if (resourcesExecutor == null) {
+			
+			for (LexicalResource<? extends RuleInfo> resource : lexicalResources) {
+				resourcesAlignments.add(findPhraseAlignments(resource, textPhrases, hypoPhrases));
+			}
+			
+		} else {
+			
+			List<Future<List<PhraseAlignment>>> futures = 
+					new ArrayList<Future<List<PhraseAlignment>>>(lexicalResources.size());
+			
+			for (final LexicalResource<? extends RuleInfo> resource : lexicalResources) {
+				futures.add(resourcesExecutor.submit(new Callable<List<PhraseAlignment>>() {
+					@Override
+					public List<PhraseAlignment> call() throws Exception {
+						return findPhraseAlignments(resource, textPhrases, hypoPhrases);
+					}
+				}));
+			}
+			
+			try {
+				for (Future<List<PhraseAlignment>> future : futures) {
+					resourcesAlignments.add(future.get());
+				}
+			} catch (InterruptedException | ExecutionException e) {
+				throw new LexicalResourceException("Querying the lexical resources failed", e);
+			}
+		}
+		
+		// The CAS is not thread safe: the links are added here, resource by resource
+		for (int resourceIndex = 0; resourceIndex < lexicalResources.size(); ++resourceIndex) {
+			
+			LexicalResourceInformation resourceInfo = lexicalResourcesInformation.get(
+					getResourceClassName(lexicalResources.get(resourceIndex)));
+			
+			for (PhraseAlignment alignment : resourcesAlignments.get(resourceIndex)) {
+				createAlignmentLinks(
+						aJCas, alignment.textStart, alignment.textEnd,
+						alignment.hypoStart, alignment.hypoEnd, 
+						alignment.rulesFromLeft, alignment.rulesFromRight,
+						resourceInfo.getVersion());
+			}
+		}
+	}
+	
+	/**
+	 * Find the phrase alignments supported by the rules of one lexical
+	 * resource. Each distinct text phrase is looked up once as the lhs 
+	 * and once as the rhs of the rules.
+	 * <P>
+	 * This method may run on several threads at once, so it does not 
+	 * access the CAS: the phrases are given by the caller.
+	 * @param resource The lexical resource to use
+	 * @param allTextPhrases The text phrases with their positions (see 
+	 * {@link #getPhrasePositions}), by whether they are made of lemmas
+	 * @param allHypoPhrases The hypothesis phrases with their positions, 
+	 * by whether they are made of lemmas
+	 * @return The phrase alignments, sorted by the text and hypothesis positions
+	 */
+	private List<PhraseAlignment> findPhraseAlignments(
+			LexicalResource<? extends RuleInfo> resource,
+			Map<Boolean, Map<String, List<int[]>>> allTextPhrases,
+			Map<Boolean, Map<String, List<int[]>>> allHypoPhrases) {
+		
+		LexicalResourceInformation resourceInfo = 
+				lexicalResourcesInformation.get(getResourceClassName(resource));
+		
+		Map<String, List<int[]>> textPhrases = allTextPhrases.get(resourceInfo.useLemma());
+		Map<String, List<int[]>> hypoPhrases = allHypoPhrases.get(resourceInfo.useLemma());
+		
+		List<PhraseAlignment> alignments = new ArrayList<PhraseAlignment>();
+		
+		// The rules of all the text phrases, retrieved at once (a single query
+		// for resources that support batch queries), or null if that failed
+		Map<LemmaPos, ? extends List<? extends LexicalRule<? extends RuleInfo>>> 
+				textRulesForLeft = getRulesForPhrases(resource, textPhrases.keySet(), 
+						resourceInfo.getLeftSidePOS(), false);
+		Map<LemmaPos, ? extends List<? extends LexicalRule<? extends RuleInfo>>> 
+				textRulesForRight = getRulesForPhrases(resource, textPhrases.keySet(), 
+						resourceInfo.getRightSidePOS(), true);
+		
+		for (Map.Entry<String, List<int[]>> textEntry : textPhrases.entrySet()) {
+			
+			String textPhrase = textEntry.getKey();
+			
+			// Rules textPhrase -> hypoPhrase and hypoPhrase -> textPhrase, by hypoPhrase
+			Map<String, List<LexicalRule<? extends RuleInfo>>> rulesFromLeft = 
+					getRulesForLeft(resource, textPhrase, hypoPhrases.keySet(),
+							resourceInfo.getLeftSidePOS(), resourceInfo.getRightSidePOS(),
+							getPhraseRules(textRulesForLeft, textPhrase, resourceInfo.getLeftSidePOS()));
+			Map<String, List<LexicalRule<? extends RuleInfo>>> rulesFromRight = 
+					getRulesForRight(resource, textPhrase, hypoPhrases.keySet(),
+							resourceInfo.getLeftSidePOS(), resourceInfo.getRightSidePOS(),
+							getPhraseRules(textRulesForRight, textPhrase, resourceInfo.getRightSidePOS()));
+			
+			for (Map.Entry<String, List<int[]>> hypoEntry : hypoPhrases.entrySet()) {
+				
+				String hypoPhrase = hypoEntry.getKey();
+				
+				if (!rulesFromLeft.containsKey(hypoPhrase) && 
+						!rulesFromRight.containsKey(hypoPhrase)) {
+					continue;
+				}
+				
+				for (int[] textPosition : textEntry.getValue()) {
+					for (int[] hypoPosition : hypoEntry.getValue()) {
+						alignments.add(new PhraseAlignment(
+								textPosition[0], textPosition[1],
+								hypoPosition[0], hypoPosition[1],
+								getRulesCopy(rulesFromLeft.get(hypoPhrase)),
+								getRulesCopy(rulesFromRight.get(hypoPhrase))));
+					}
+				}
+			}
+		}
+		
+		Collections.sort(alignments);
+		
+		return alignments;
+	}
+	
+	/**
+	 * Get all the phrases of up to maxPhrase tokens, with the positions
+	 * where they occur
+	 * @param tokens The list of tokens
+	 * @param supportLemma Use the lemmas rather than the surface words
+	 * @return A map from each distinct phrase to its (start, end) positions
+	 */
+	private Map<String, List<int[]>> getPhrasePositions(List<Token> tokens, boolean supportLemma) {
+		
+		Map<String, List<int[]>> phrases = new LinkedHashMap<String, List<int[]>>();
+		
+		for (int start = 0; start < tokens.size(); ++start) {
+			for (int end = start; end < Math.min(tokens.size(), start + maxPhrase); ++end) {
+				
+				String phrase = getPhrase(tokens, start, end, supportLemma);
+				List<int[]> positions = phrases.get(phrase);
+				
+				if (positions == null) {
+					positions = new ArrayList<int[]>();
+					phrases.put(phrase, positions);
+				}
+				
+				positions.add(new int[] {start, end});
+			}
+		}
+		
+		return phrases;
+	}
+	
+	/**
+	 * Get the rules of the given phrases with a batch query to the lexical
+	 * resource (see {@link BatchLexicalResourceUtils})
+	 * @param resource The lexical resource to use
+	 * @param phrases The phrases
+	 * @param partOfSpeech The POS of the phrases, or null
+	 * @param isRHS Get the rules whose rhs (rather than lhs) is the phrase
+	 * @return The rules, by phrase, or null if the query failed
+	 */
+	private Map<LemmaPos, ? extends List<? extends LexicalRule<? extends RuleInfo>>> 
+						getRulesForPhrases(LexicalResource<? extends RuleInfo> resource,
+								Set<String> phrases, PartOfSpeech partOfSpeech, boolean isRHS) {
+		
+		try {
+			
+			List<LemmaPos> terms = new ArrayList<LemmaPos>(phrases.size());
+			
+			for (String phrase : phrases) {
+				terms.add(new LemmaPos(phrase, partOfSpeech));
+			}
+			
+			return isRHS ? BatchLexicalResourceUtils.getRulesForRight(resource, terms) :
+				BatchLexicalResourceUtils.getRulesForLeft(resource, terms);
+			
+		} catch (Exception e) {
+			logger.warn("Could not get the rules of the text phrases from " + 
+						getResourceSimpleName(resource) + 
+						". The phrases will be queried one by one.", e);
+			return null;
+		}
+	}
+	
+	/**
+	 * Get the rules of a phrase from the result of {@link #getRulesForPhrases}
+	 * @param rules The rules, by phrase, or null
+	 * @param phrase The phrase
+	 * @param partOfSpeech The POS of the phrase, or null
+	 * @return The rules of the phrase, or null if they were not retrieved
+	 */
+	private List<? extends LexicalRule<? extends RuleInfo>> getPhraseRules(
+			Map<LemmaPos, ? extends List<? extends LexicalRule<? extends RuleInfo>>> rules,
+			String phrase, PartOfSpeech partOfSpeech) {
+		
+		if (rules == null) {
+			return null;
+		}
+		
+		try {
+			return rules.get(new LemmaPos(phrase, partOfSpeech));
+		} catch (LexicalResourceException e) {
+			return null;
+		}
+	}
+	
+	/**
+	 * Get rules of type textPhrase -> h, for every hypothesis phrase h, 
+	 * with a single query to the lexical resource
+	 * @param resource The lexical resource to use
+	 * @param textPhrase The phrase that will be looked for as lhs of a rule
+	 * @param hypoPhrases The hypothesis phrases
+	 * @param leftSidePOS The POS of the lhs, or null
+	 * @param rightSidePOS The POS of the rhs, or null
+	 * @param retrievedRules The rules textPhrase -> * if they were already 
+	 * retrieved, or null to query the resource
+	 * @return The rules, by their rhs
+	 */
+	private Map<String, List<LexicalRule<? extends RuleInfo>>> 
+						getRulesForLeft(LexicalResource<? extends RuleInfo> resource,
+								String textPhrase, Set<String> hypoPhrases, 
+								PartOfSpeech leftSidePOS, PartOfSpeech rightSidePOS,
+								List<? extends LexicalRule<? extends RuleInfo>> retrievedRules) {
+		
+		Map<String, List<LexicalRule<? extends RuleInfo>>> rules = 
+				new HashMap<String, List<LexicalRule<? extends RuleInfo>>>();
+		
+		try {
+			
+			for (LexicalRule<? extends RuleInfo> rule : (retrievedRules != null) ? 
+					retrievedRules : resource.getRulesForLeft(textPhrase, leftSidePOS)) {
+				
+				if (hypoPhrases.contains(rule.getRLemma()) && 
+						matchesPOS(rule.getRPos(), rightSidePOS) &&
+						isSenseMatch(resource, rule, textPhrase, rule.getRLemma())) {
+					
+					addRuleToMap(rules, rule.getRLemma(), rule);
+				}
+			}
+			
+		} catch (Exception e) {
+			logger.warn("Could not add rules from " + 
+						getResourceSimpleName(resource) + " for " +
+						textPhrase + "->*", e);
+		}
+		
+		return rules;
+	}
+	
+	/**
+	 * Get rules of type h -> textPhrase, for every hypothesis phrase h,
+	 * with a single query to the lexical resource
+	 * @param resource The lexical resource to use
+	 * @param textPhrase The phrase that will be looked for as rhs of a rule
+	 * @param hypoPhrases The hypothesis phrases
+	 * @param leftSidePOS The POS of the lhs, or null
+	 * @param rightSidePOS The POS of the rhs, or null
+	 * @param retrievedRules The rules * -> textPhrase if they were already 
+	 * retrieved, or null to query the resource
+	 * @return The rules, by their lhs
+	 */
+	private Map<String, List<LexicalRule<? extends RuleInfo>>> 
+						getRulesForRight(LexicalResource<? extends RuleInfo> resource,
+								String textPhrase, Set<String> hypoPhrases, 
+								PartOfSpeech leftSidePOS, PartOfSpeech rightSidePOS,
+								List<? extends LexicalRule<? extends RuleInfo>> retrievedRules) {
+		
+		Map<String, List<LexicalRule<? extends RuleInfo>>> rules = 
+				new HashMap<String, List<LexicalRule<? extends RuleInfo>>>();
+		
+		try {
+			
+			for (LexicalRule<? extends RuleInfo> rule : (retrievedRules != null) ? 
+					retrievedRules : resource.getRulesForRight(textPhrase, rightSidePOS)) {
+				
+				if (hypoPhrases.contains(rule.getLLemma()) && 
+						matchesPOS(rule.getLPos(), leftSidePOS) &&
+						isSenseMatch(resource, rule, rule.getLLemma(), textPhrase)) {
+					
+					addRuleToMap(rules, rule.getLLemma(), rule);
+				}
+			}
+			
+		} catch (Exception e) {
+			logger.warn("Could not add rules from " + 
+						getResourceSimpleName(resource) + " for *->" +
+						textPhrase, e);
+		}
+		
+		return rules;
+	}
+	
+	/**
+	 * Adds a rule to the list of rules of the given phrase (see {@link #addRuleToList})
+	 * @param rules The rules, by phrase
+	 * @param phrase The phrase
+	 * @param rule The new rule to add
+	 */
+	private void addRuleToMap(Map<String, List<LexicalRule<? extends RuleInfo>>> rules,
+			String phrase, LexicalRule<? extends RuleInfo> rule) {
+		
+		List<LexicalRule<? extends RuleInfo>> phraseRules = rules.get(phrase);
+		
+		if (phraseRules == null) {
+			phraseRules = new ArrayList<LexicalRule<? extends RuleInfo>>();
+			rules.put(phrase, phraseRules);
+		}
+		
+		addRuleToList(phraseRules, rule);
+	}
+	
+	/**
+	 * Returns a modifiable copy of a list of rules, or an empty list
+	 * @param rules The list of rules, or null
+	 * @return The copy
+	 */
+	private List<LexicalRule<? extends RuleInfo>> getRulesCopy(
+			List<LexicalRule<? extends RuleInfo>> rules) {
+		
+		return (rules == null) ? new ArrayList<LexicalRule<? extends RuleInfo>>() :
+			new ArrayList<LexicalRule<? extends RuleInfo>>(rules);
+	}
+	
+	/**
+	 * Returns true if the POS of a rule side agrees with the requested POS 
+	 * @param rulePOS The POS of the rule side
+	 * @param requestedPOS The requested POS, or null for any POS
+	 * @return Whether the POS agree
+	 */
+	private boolean matchesPOS(PartOfSpeech rulePOS, PartOfSpeech requestedPOS) {
+		
+		return ((requestedPOS == null) || (rulePOS == null) ||
+				(requestedPOS.getCanonicalPosTag() == rulePOS.getCanonicalPosTag()));
+	}
+	
+	/**
+	 * WordNet workaround (see {@link #getRules}): the synsets of the rule 
+	 * sides must contain the phrases. Always true for other resources.
+	 * @param resource The lexical resource
+	 * @param rule The rule
+	 * @param leftSide The lhs phrase
+	 * @param rightSide The rhs phrase
+	 * @return Whether the rule can be used for these phrases
+	 */
+	private boolean isSenseMatch(LexicalResource<? extends RuleInfo> resource,
+			LexicalRule<? extends RuleInfo> rule, String leftSide, String rightSide) {
+		
+		if (!getResourceClassName(resource).toLowerCase().contains(WORDNET)) {
+			return true;
+		}
+		
+		WordnetRuleInfo ruleInfo = (WordnetRuleInfo)rule.getInfo();
+		
+		return ((ruleInfo.getLeftSense().getWords().contains(leftSide)) &&
+				(ruleInfo.getRightSense().getWords().contains(rightSide)));
 	}
 	
 	/**
@@ -352,7 +792,7 @@ public class LexicalAligner implements AlignmentComponent {
 			// Make sure the synsets of the right and left sides of the rule
 			// are equal to the right and left phrases.
 			// (WN returns rules associated with any of the words in the phrase)
-			if (resource.getClass().getName().toLowerCase().contains(WORDNET)) {
+			if (getResourceClassName(resource).toLowerCase().contains(WORDNET)) {
 				
 				for (LexicalRule<? extends RuleInfo> rule : 
 						resource.getRules(leftSide, leftSidePOS, rightSide, rightSidePOS)) {
@@ -378,7 +818,7 @@ public class LexicalAligner implements AlignmentComponent {
 				
 		} catch (Exception e) {
 			logger.warn("Could not add rules from " + 
-						resource.getClass().getSimpleName() + " for " +
+						getResourceSimpleName(resource) + " for " +
 						leftSide + "->" + rightSide, e);
 		}
 		
@@ -533,6 +973,37 @@ public class LexicalAligner implements AlignmentComponent {
 		return type;
 	}
 
+	/**
+	 * Returns the class name of the given resource, or of the resource
+	 * wrapped by it if it is a {@link CachingLexicalResource}
+	 * @param resource The lexical resource
+	 * @return The class name of the (wrapped) lexical resource
+	 */
+	private static String getResourceClassName(LexicalResource<? extends RuleInfo> resource) {
+		
+		return getResourceClass(resource).getName();
+	}
+	
+	/**
+	 * Returns the simple class name of the given resource, or of the resource
+	 * wrapped by it if it is a {@link CachingLexicalResource}, for the log
+	 * @param resource The lexical resource
+	 * @return The simple class name of the (wrapped) lexical resource
+	 */
+	private static String getResourceSimpleName(LexicalResource<? extends RuleInfo> resource) {
+		
+		return getResourceClass(resource).getSimpleName();
+	}
+	
+	private static Class<?> getResourceClass(LexicalResource<? extends RuleInfo> resource) {
+		
+		if (resource instanceof CachingLexicalResource) {
+			return ((CachingLexicalResource<? extends RuleInfo>) resource).getResource().getClass();
+		}
+		
+		return resource.getClass();
+	}
+	
 	/**
 	 * Constructs a {@link LexicalResource} for the given class name
 	 * and a configuration subsection with parameters related to it. 
@@ -652,4 +1123,42 @@ public class LexicalAligner implements AlignmentComponent {
 				((Math.abs(firstRule.getConfidence() - 
 						secondRule.getConfidence()) <= 0.000001)));
 	}
+	
+	/**
+	 * The rules found by a resource between a text phrase 
+	 * and a hypothesis phrase, in both directions
+	 */
+	private static class PhraseAlignment implements Comparable<PhraseAlignment> {
+		
+		private final int textStart;
+		private final int textEnd;
+		private final int hypoStart;
+		private final int hypoEnd;
+		private final List<LexicalRule<? extends RuleInfo>> rulesFromLeft;
+		private final List<LexicalRule<? extends RuleInfo>> rulesFromRight;
+		
+		public PhraseAlignment(int textStart, int textEnd, int hypoStart, int hypoEnd,
+				List<LexicalRule<? extends RuleInfo>> rulesFromLeft,
+				List<LexicalRule<? extends RuleInfo>> rulesFromRight) {
+			
+			this.textStart = textStart;
+			this.textEnd = textEnd;
+			this.hypoStart = hypoStart;
+			this.hypoEnd = hypoEnd;
+			this.rulesFromLeft = rulesFromLeft;
+			this.rulesFromRight = rulesFromRight;
+		}
+		
+		/**
+		 * Same order in which the exhaustive lookup visits the phrase pairs
+		 */
+		@Override
+		public int compareTo(PhraseAlignment other) {
+			
+			if (textStart != other.textStart) return Integer.compare(textStart, other.textStart);
+			if (textEnd != other.textEnd) return Integer.compare(textEnd, other.textEnd);
+			if (hypoStart != other.hypoStart) return Integer.compare(hypoStart, other.hypoStart);
+			return Integer.compare(hypoEnd, other.hypoEnd);
+		}
+	}
 }
@@ -1,5 +1,7 @@
 package eu.excitementproject.eop.core.component.alignment.phraselink;
 
+import java.io.File;
+
 import org.apache.uima.cas.CASException;
 import org.apache.uima.jcas.JCas;
 
@@ -39,6 +41,26 @@ public class MeteorPhraseLinkerEN extends MeteorPhraseResourceAligner {
 		this.alignerVersion = "MeteorEnglishPP15"; 
 		this.linkInfo = "paraphrase"; 
 	}
+	
+	/**
+	 * Same as above, but memory-maps the table converted once by MeteorPhraseTable.convert() (or its main()) 
+	 * into the given file, instead of loading the text table. 
+	 * 
+	 * @param mappedTableFile
+	 * @throws AlignmentComponentException
+	 */
+	public MeteorPhraseLinkerEN(File mappedTableFile) throws AlignmentComponentException 
+	{
+		super(mappedTableFile, 7); 
+		
+		// set language ID for language check 
+		languageId = "EN"; 
+		
+		// override link metadata 
+		this.alignerID = "MeteorPhraseLink";
+		this.alignerVersion = "MeteorEnglishPP15"; 
+		this.linkInfo = "paraphrase"; 
+	}
 
 	public void annotate(JCas aJCas) throws AlignmentComponentException 
 	{
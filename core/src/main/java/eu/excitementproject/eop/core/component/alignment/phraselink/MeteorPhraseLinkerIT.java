@@ -1,5 +1,7 @@
 package eu.excitementproject.eop.core.component.alignment.phraselink;
 
+import java.io.File;
+
 import org.apache.uima.cas.CASException;
 import org.apache.uima.jcas.JCas;
 
@@ -41,6 +43,26 @@ public class MeteorPhraseLinkerIT extends MeteorPhraseResourceAligner {
 		this.alignerVersion = "FBKViviItlianPP10"; 
 		this.linkInfo = "paraphrase"; 
 	}
+	
+	/**
+	 * Same as above, but memory-maps the table converted once by MeteorPhraseTable.convert() (or its main()) 
+	 * into the given file, instead of loading the text table. 
+	 * 
+	 * @param mappedTableFile
+	 * @throws AlignmentComponentException
+	 */
+	public MeteorPhraseLinkerIT(File mappedTableFile) throws AlignmentComponentException 
+	{
+		super(mappedTableFile, 7); 
+		
+		// set language ID for language check 
+		languageId = "IT"; 
+		
+		// override link metadata 
+		this.alignerID = "MeteorPhraseLink";
+		this.alignerVersion = "FBKViviItlianPP10"; 
+		this.linkInfo = "paraphrase"; 
+	}
 
 	public void annotate(JCas aJCas) throws AlignmentComponentException 
 	{
@@ -1,5 +1,6 @@
 package eu.excitementproject.eop.core.component.alignment.phraselink;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -63,6 +64,29 @@ public class MeteorPhraseResourceAligner implements AlignmentComponent {
 		}
 	}
 	
+	/**
+	 * Same as above, but memory-maps a table converted by MeteorPhraseTable.convert(), 
+	 * instead of loading the text table from the resource path. 
+	 * 
+	 * @param mappedTableFile
+	 * @param maxPhraseLength
+	 * @throws AlignmentComponentException
+	 */
+	public MeteorPhraseResourceAligner(File mappedTableFile, int maxPhraseLength) throws AlignmentComponentException
+	{
+		this.resourcePath = mappedTableFile.getPath(); 
+		this.maxPhraseLength = maxPhraseLength; 
+		
+		// map table. 
+		try {
+			this.table = new MeteorPhraseTable(mappedTableFile); 
+		}
+		catch (IOException e)
+		{
+			throw new AlignmentComponentException("Mapping the converted paraphrase table in the following file have failed: " + mappedTableFile, e); 
+		}
+	}
+	
 	public void annotate(JCas aJCas) throws AlignmentComponentException 
 	{
 		// intro log
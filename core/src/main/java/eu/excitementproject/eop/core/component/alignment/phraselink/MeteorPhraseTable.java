@@ -1,17 +1,26 @@
 package eu.excitementproject.eop.core.component.alignment.phraselink;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map; 
 import java.util.HashMap; 
 
 import org.apache.log4j.Logger;
 
+import eu.excitementproject.eop.common.utilities.file.MappedRecordsFile;
+import eu.excitementproject.eop.common.utilities.file.MappedRecordsFileWriter;
+
 /**
  * This class represents Meteor Phrase Table. 
  * 
@@ -22,6 +31,13 @@ import org.apache.log4j.Logger;
  *   This table provides the capability to load and look up meteor-like phrase table
  *   by querying "LHS phrase" and get [(rhs, probability of lhs->rhs), ... ]  
  *   
+ *   The table can also be converted once (see convert() and main()) to a sorted binary file 
+ *   (a MappedRecordsFile, whose keys are the LHS phrases), which the File constructor memory-maps 
+ *   instead of loading the text table into the heap. Loading is then near-instant, and JVMs on the 
+ *   same host share the pages of the file. 
+ *   The converted file is mapped as a single buffer, so it must be smaller than 2GB (Integer.MAX_VALUE 
+ *   bytes); convert() fails on larger tables. (The converted English table is far smaller.) 
+ *   
  * 
  * @author Tae-Gil Noh
  * @since June 2014
@@ -69,7 +85,110 @@ public class MeteorPhraseTable {
 		final long duration = ( loadEnd - loadStart ) / 1000; 
 
 		logger.info("loading complelte, " + ec + " entries. (in " + duration + " seconds)") ; 
+		mappedTable = null; 
+	}
+
+	/**
+	 * Memory-map a table converted by convert(). 
+	 * The file must be smaller than 2GB (Integer.MAX_VALUE bytes), the limit of a single memory mapping. 
+	 * 
+	 * @param mappedTableFile
+	 * @throws IOException
+	 */
+	public MeteorPhraseTable(File mappedTableFile) throws IOException
+	{
+		logger = Logger.getLogger(this.getClass().toString()); 
+		entryPairsAsMap = null; 
+		logger.info("Mapping converted Meteor Paraphrase table: " + mappedTableFile); 
+		mappedTable = new MappedRecordsFile(mappedTableFile); 
+		logger.info("mapping complete, " + mappedTable.size() + " LHS phrases."); 
+	}
+
+	/**
+	 * Convert the text table in the given resource path (the same path the String constructor gets)
+	 * to the binary file of the File constructor. This is done once per table. 
+	 * 
+	 * @param resourcePath
+	 * @param mappedTableFile
+	 * @return number of converted entries 
+	 * @throws IOException if the table cannot be read, or if the converted file would be 2GB or larger 
+	 */
+	public static int convert(String resourcePath, File mappedTableFile) throws IOException
+	{
+		InputStream is = MeteorPhraseTable.class.getResourceAsStream(resourcePath);
+		if (is == null)
+			throw new IOException("No such resource: " + resourcePath); 
+		return convert(is, mappedTableFile); 
+	}
+
+	/**
+	 * Convert the text table in the given file (e.g. an unpacked copy of the table) 
+	 * to the binary file of the File constructor. This is done once per table. 
+	 * 
+	 * @param tableFile
+	 * @param mappedTableFile
+	 * @return number of converted entries 
+	 * @throws IOException if the table cannot be read, or if the converted file would be 2GB or larger 
+	 */
+	public static int convert(File tableFile, File mappedTableFile) throws IOException
+	{
+		return convert(new FileInputStream(tableFile), mappedTableFile); 
+	}
+
+	private static int convert(InputStream is, File mappedTableFile) throws IOException
+	{
+		BufferedReader tableReader = new BufferedReader(new InputStreamReader(is)); 
+		int ec = 0; 
+		try 
+		{
+			MappedRecordsFileWriter writer = new MappedRecordsFileWriter(mappedTableFile); 
+			try 
+			{
+				String line1 = null; 
+				while((line1 = tableReader.readLine()) != null)
+				{
+					float prob = Float.parseFloat(line1); 
+					String lhs = tableReader.readLine(); 
+					String rhs = tableReader.readLine(); 
+
+					// record is (rhs, probability), and lhs is the key 
+					ByteArrayOutputStream bytes = new ByteArrayOutputStream(); 
+					DataOutputStream record = new DataOutputStream(bytes); 
+					MappedRecordsFileWriter.writeString(record, rhs); 
+					record.writeFloat(prob); 
+					record.close(); 
+					writer.add(lhs, bytes.toByteArray()); 
+					ec++; 
+				}
+			}
+			finally
+			{
+				writer.close(); 
+			}
+		}
+		finally
+		{
+			tableReader.close(); 
+		}
+		return ec; 
+	}
 
+	/**
+	 * Converts a table; see convert(). 
+	 * 
+	 * @param args resource path of the text table (e.g. /meteor-1.5/data/paraphrase-en) or path of a text table file, and the output file 
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException
+	{
+		if (args.length != 2)
+		{
+			System.out.println("Usage: eu.excitementproject.eop.core.component.alignment.phraselink.MeteorPhraseTable <resource path of the table, or table file> <output file>"); 
+			System.exit(0); 
+		}
+		File tableFile = new File(args[0]); 
+		int ec = tableFile.isFile() ? convert(tableFile, new File(args[1])) : convert(args[0], new File(args[1])); 
+		System.out.println("Converted " + ec + " entries."); 
 	}
 
 	/**
@@ -83,6 +202,11 @@ public class MeteorPhraseTable {
 	 */
 	public List<ScoredString> lookupParaphrasesFor(String phrase)
 	{
+		if (mappedTable != null)
+		{
+			return lookupMappedTable(phrase); 
+		}
+		
 		ArrayList<ScoredString> phrList = new ArrayList<ScoredString>(); 
 
 		// check if the phrase exist as LHS in the paraphrase table 
@@ -109,6 +233,31 @@ public class MeteorPhraseTable {
 		return phrList; 
 	}
 
+	/**
+	 * lookupParaphrasesFor() of a memory-mapped table. 
+	 * (As with the map of the text table, a later entry of the same (lhs, rhs) replaces an earlier one.) 
+	 * 
+	 * @param phrase
+	 * @return
+	 */
+	private List<ScoredString> lookupMappedTable(String phrase)
+	{
+		List<ByteBuffer> records = mappedTable.getRecords(phrase); 
+		Map<String,Float> mapForLhs = new LinkedHashMap<String,Float>(); 
+		for (ByteBuffer record : records)
+		{
+			String rhs = MappedRecordsFile.getString(record); 
+			mapForLhs.put(rhs, record.getFloat()); 
+		}
+		
+		ArrayList<ScoredString> phrList = new ArrayList<ScoredString>(mapForLhs.size()); 
+		for (Map.Entry<String,Float> rhsAndProb : mapForLhs.entrySet())
+		{
+			phrList.add(new ScoredString(rhsAndProb.getKey(), rhsAndProb.getValue())); 
+		}
+		return phrList; 
+	}
+
 	/**
 	 * A simple class that represents a tuple of String (that holds a phrase)
 	 * and its score. 
@@ -148,7 +297,11 @@ public class MeteorPhraseTable {
 	// lhs as the key for outer map, 
 	// rhs as the key for inner map, 
 	// and probability value is in the value of the inner map. 
+	// (null, if the table is memory-mapped) 
 	private final Map<String,Map<String,Float>> entryPairsAsMap; 
+	
+	// the converted table, if memory-mapped (null, if the text table was loaded) 
+	private final MappedRecordsFile mappedTable; 
 	private final Logger logger; 
 	
 }
@@ -5,12 +5,15 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.Vector;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Logger;
 
 import org.apache.uima.cas.text.AnnotationIndex;
@@ -28,6 +31,7 @@ import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
 import eu.excitementproject.eop.common.component.distance.DistanceCalculation;
 import eu.excitementproject.eop.common.component.distance.DistanceComponentException;
 import eu.excitementproject.eop.common.component.distance.DistanceValue;
+import eu.excitementproject.eop.common.component.lexicalknowledge.CachingLexicalResource;
 import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalResource;
 import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalResourceException;
 import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalRule;
@@ -38,11 +42,14 @@ import eu.excitementproject.eop.common.exception.ComponentException;
 import eu.excitementproject.eop.common.exception.ConfigurationException;
 import eu.excitementproject.eop.common.representation.partofspeech.ByCanonicalPartOfSpeech;
 import eu.excitementproject.eop.common.representation.partofspeech.PartOfSpeech;
+import eu.excitementproject.eop.common.utilities.Cache;
+import eu.excitementproject.eop.common.utilities.CacheFactory;
 import eu.excitementproject.eop.common.utilities.Utils;
 import eu.excitementproject.eop.core.component.lexicalknowledge.germanet.GermaNetWrapper;
 import eu.excitementproject.eop.core.component.lexicalknowledge.wikipedia.WikiExtractionType;
 import eu.excitementproject.eop.core.component.lexicalknowledge.wikipedia.WikiLexicalResource;
 import eu.excitementproject.eop.core.component.lexicalknowledge.wikipedia.it.WikiLexicalResourceIT;
+import eu.excitementproject.eop.core.component.lexicalknowledge.wordnet.WordnetClosureIndex;
 import eu.excitementproject.eop.core.component.lexicalknowledge.wordnet.WordnetLexicalResource;
 import eu.excitementproject.eop.core.utilities.dictionary.wordnet.WordNetRelation;
 
@@ -81,6 +88,20 @@ public abstract class FixedWeightEditDistance implements DistanceCalculation {
 	private static final String PATH_STOP_WORD = "pathStopWordFile";
 	private static final String STOP_WORD_TYPE = "stopWordRemoval";
 	
+	/**
+	 * the maximum number of entries in the lexical match cache
+	 */
+	private static final int LEXICAL_MATCH_CACHE_CAPACITY = 500000;
+	/**
+	 * process-wide cache of the lexical matches found in the resources. It is shared
+	 * among all the instances of the component; keys start with the signature of the
+	 * resources that produced the match so that different configurations do not mix.
+	 */
+	private static final Cache<String, Boolean> lexicalMatchCache = 
+			new CacheFactory<String, Boolean>().getThreadSafeCache(LEXICAL_MATCH_CACHE_CAPACITY);
+	private static final AtomicLong lexicalMatchCacheHits = new AtomicLong(0);
+	private static final AtomicLong lexicalMatchCacheMisses = new AtomicLong(0);
+	
 	/**
 	 * weight for match
 	 */
@@ -114,6 +135,12 @@ public abstract class FixedWeightEditDistance implements DistanceCalculation {
     Set<WordNetRelation> relations = new HashSet<WordNetRelation>();
 	private HashSet<String> ignoreSet = null;
 	private String normalizationType;
+	/**
+	 * signature of the configured resources, used as prefix of the lexical match cache keys.
+	 * It lists each resource with the parameters it was created with (path or database,
+	 * relations, chaining length), see {@link #addLexicalResource(LexicalResource, String)}
+	 */
+	private String resourcesSignature = "";
 
     static Logger logger = Logger.getLogger(FixedWeightEditDistance.class.getName());
     
@@ -224,20 +251,31 @@ public abstract class FixedWeightEditDistance implements DistanceCalculation {
 	    	    	NameValueTable instanceNameValueTable = config.getSubSection(this.getClass().getCanonicalName(), instance);
 	        	
 		    		String multiWordnet = instanceNameValueTable.getString("path");
+		    		//optional: the WordNet rules precomputed by WordnetClosureIndexBuilder
+		    		String closureIndex = instanceNameValueTable.getString("closure-index");
 		    		
 		    		if (language.equals("IT") && multiWordnet != null && !multiWordnet.equals("")) {
 			    		try {
 			    			
-			    			initializeWordnet(multiWordnet);
+			    			initializeWordnet(multiWordnet, instanceNameValueTable);
 			    			
 			    		} catch (LexicalResourceException e) {
 			    			throw new ComponentException(e.getMessage());
 			    		}
 		    		}
+			    	else if (language.equals("EN") && closureIndex != null && !closureIndex.equals("")) {
+			    		try {
+			    			
+			    			initializeWordnetClosureIndex(closureIndex, instanceNameValueTable);
+			    			
+			    		} catch (LexicalResourceException e) {
+			    			throw new ComponentException(e.getMessage());
+			    		}
+			    	}
 			    	else if (language.equals("EN") && multiWordnet != null && !multiWordnet.equals("")) {
 			    		try {
 			    			
-			    			initializeWordnet(multiWordnet);
+			    			initializeWordnet(multiWordnet, instanceNameValueTable);
 			    			
 			    		} catch (LexicalResourceException e) {
 			    			throw new ComponentException(e.getMessage());
@@ -246,7 +284,7 @@ public abstract class FixedWeightEditDistance implements DistanceCalculation {
 			    	else if (language.equals("DE") && multiWordnet != null && !multiWordnet.equals("")) {
 			    		try {
 			    			
-			    			initializeGermaNet(multiWordnet);
+			    			initializeGermaNet(multiWordnet, instanceNameValueTable);
 			    			
 			    		} catch (LexicalResourceException e) {
 			    			throw new ComponentException(e.getMessage());
@@ -266,7 +304,7 @@ public abstract class FixedWeightEditDistance implements DistanceCalculation {
 		    		if (language.equals("IT")) {
 			    		try {
 			    			
-			    			initializeItalianWikipedia(dbConnection, dbUser, dbPasswd);
+			    			initializeItalianWikipedia(dbConnection, dbUser, dbPasswd, instanceNameValueTable);
 			    			
 			    		} catch (LexicalResourceException e) {
 			    			throw new ComponentException(e.getMessage());
@@ -275,7 +313,7 @@ public abstract class FixedWeightEditDistance implements DistanceCalculation {
 		    		else if (language.equals("EN")) {
 			    		try {
 			    			
-			    			initializeEnglishWikipedia(dbConnection, dbUser, dbPasswd);
+			    			initializeEnglishWikipedia(dbConnection, dbUser, dbPasswd, instanceNameValueTable);
 			    			
 			    		} catch (LexicalResourceException e) {
 			    			throw new ComponentException(e.getMessage());
@@ -377,7 +415,7 @@ public abstract class FixedWeightEditDistance implements DistanceCalculation {
 	    	if (language.equals("IT") && multiWordnet != null && !multiWordnet.equals("")) {
 	    		try {
 			    			
-	    			initializeWordnet(multiWordnet);
+	    			initializeWordnet(multiWordnet, null);
 			    			
 	    		} catch (LexicalResourceException e) {
 	    			throw new ComponentException(e.getMessage());
@@ -386,7 +424,7 @@ public abstract class FixedWeightEditDistance implements DistanceCalculation {
 	    	else if (language.equals("EN") && multiWordnet != null && !multiWordnet.equals("")) {
 	    		try {
 			    			
-	    			initializeWordnet(multiWordnet);
+	    			initializeWordnet(multiWordnet, null);
 			    			
 	    		} catch (LexicalResourceException e) {
 	    			throw new ComponentException(e.getMessage());
@@ -395,7 +433,7 @@ public abstract class FixedWeightEditDistance implements DistanceCalculation {
 	    	else if (language.equals("DE") && multiWordnet != null && !multiWordnet.equals("")) {
 	    		try {
 			    			
-	    			initializeGermaNet(multiWordnet);
+	    			initializeGermaNet(multiWordnet, null);
 			    			
 	    		} catch (LexicalResourceException e) {
 	    			throw new ComponentException(e.getMessage());
@@ -418,7 +456,7 @@ public abstract class FixedWeightEditDistance implements DistanceCalculation {
 				if (language.equals("IT")) {
 					try {
 			    			
-						initializeItalianWikipedia(dbConnection, dbUser, dbPasswd);
+						initializeItalianWikipedia(dbConnection, dbUser, dbPasswd, null);
 			    			
 					} catch (LexicalResourceException e) {
 						throw new ComponentException(e.getMessage());
@@ -427,7 +465,7 @@ public abstract class FixedWeightEditDistance implements DistanceCalculation {
 		    	else if (language.equals("EN")) {
 			    	try {
 			    			
-			    		initializeEnglishWikipedia(dbConnection, dbUser, dbPasswd);
+			    		initializeEnglishWikipedia(dbConnection, dbUser, dbPasswd, null);
 			    			
 			    	} catch (LexicalResourceException e) {
 			    		throw new ComponentException(e.getMessage());
@@ -742,35 +780,23 @@ public abstract class FixedWeightEditDistance implements DistanceCalculation {
  
     	
     	try {
+    		
+    		PreparedPair pair = prepare(source, target);
+    		int[] sourceCodes = pair.sourceCodes;
+    		int[] targetCodes = pair.targetCodes;
+    		boolean[][] matchMatrix = pair.matchMatrix;
     	
     		for (int i = 1; i <= source.size(); i++)
                 for (int j = 1; j <= target.size(); j++) {
 
                 	distanceTable[i][j] = minimum(
-                			compare(getTokenBaseForm(source.get(i-1)),getTokenBaseForm(target.get(j-1))) || (
-                                       
-                					// it doesn't use the PoS to look for the relations in the lexical resource
-                					/* lexR != null && 
-                					source.get(i-1).getPos().getType().getName().equals(target.get(j-1).getPos().getType().getName()) && 
-                					getRulesFromResource(getTokenBaseForm(source.get(i-1)), null,
-                                   	getTokenBaseForm(target.get(j-1)), null))
-                					 */
-
-                                    // it uses the PoS to look for the relations in the lexical resource
-                					lexR != null && lexR.size() > 0 &&
-                						source.get(i-1).getPos().getType().getName().equals(target.get(j-1).getPos().getType().getName()) && 
-                						getRulesFromResource(getTokenBaseForm(source.get(i-1)), new ByCanonicalPartOfSpeech(source.get(i-1).getPos().getType().getShortName()),
-                								getTokenBaseForm(target.get(j-1)), new ByCanonicalPartOfSpeech(target.get(j-1).getPos().getType().getShortName())))
-        							
-        
+                			matchMatrix[sourceCodes[i-1]][targetCodes[j-1]]
                                         ? distanceTable[i - 1][j - 1] + getmMatchWeight(source.get(i-1))
                                     : distanceTable[i - 1][j - 1] + getmSubstituteWeight(source.get(i-1), target.get(j-1)),
                                     distanceTable[i - 1][j] + getmDeleteWeight(source.get(i-1)),
                                     distanceTable[i][j - 1] + getmInsertWeight(target.get(j-1)));
                 }
 
-    		
-    	
     	} catch(Exception e) {
     		e.printStackTrace();
     		throw new ArithmeticException(e.getMessage());
@@ -796,6 +822,225 @@ public abstract class FixedWeightEditDistance implements DistanceCalculation {
      }
     
     
+    /**
+     * Prepares the specified T-H pair for {@link #distance(PreparedPair)}: the pair is
+     * read from the CAS and its tokens are matched (also in the lexical resources),
+     * once. The prepared pair doesn't depend on the weights of the edit operations,
+     * so it can be kept and measured again with other weights (e.g. while they are
+     * tuned) without the CAS.
+     * 
+     * @param jcas the CAS of the pair
+     * 
+     * @return the prepared pair
+     * 
+     * @throws DistanceComponentException
+     */
+    public PreparedPair prepare(JCas jcas) throws DistanceComponentException {
+    	
+    	try {
+    		
+	    	List<Token> tTokensSequence = getTokenSequences(jcas.getView("TextView"));
+	    	List<Token> hTokensSequence = getTokenSequences(jcas.getView("HypothesisView"));
+	    	
+	    	return prepare(tTokensSequence, hTokensSequence);
+	    	
+    	} catch (Exception e) {
+    		throw new DistanceComponentException(e.getMessage());
+    	}
+    	
+    }
+    
+    
+    /**
+     * Returns the weighted edit distance of the specified prepared pair, with the
+     * current constant weights of the edit operations. It is the same as the
+     * distance calculated from the CAS of the pair with the same weights.
+     * 
+     * @param pair the pair prepared by {@link #prepare(JCas)}
+     * 
+     * @return The edit distance between the sequences of tokens of the pair
+     */
+    public DistanceValue distance(PreparedPair pair) {
+    	
+    	int sourceSize = pair.sourceCodes.length;
+    	int targetSize = pair.targetCodes.length;
+    	
+    	// the rows i-1 and i of the distance table
+    	double[] previousRow = new double[targetSize + 1];
+    	double[] currentRow = new double[targetSize + 1];
+    	
+    	previousRow[0] = 0;
+    	for (int j = 1; j <= targetSize; j++)
+    		previousRow[j] = previousRow[j-1] + mInsertWeight;
+    	double insertAll = previousRow[targetSize];
+    	
+    	for (int i = 1; i <= sourceSize; i++) {
+    		currentRow[0] = previousRow[0] + mDeleteWeight;
+    		boolean[] matchRow = pair.matchMatrix[pair.sourceCodes[i-1]];
+    		for (int j = 1; j <= targetSize; j++) {
+    			currentRow[j] = minimum(
+    					matchRow[pair.targetCodes[j-1]]
+    							? previousRow[j - 1] + mMatchWeight
+    							: previousRow[j - 1] + mSubstituteWeight,
+    					previousRow[j] + mDeleteWeight,
+    					currentRow[j - 1] + mInsertWeight);
+    		}
+    		double[] row = previousRow;
+    		previousRow = currentRow;
+    		currentRow = row;
+    	}
+    	
+    	double distance = previousRow[targetSize];
+    	double deleteAll = previousRow[0];
+    	
+    	double norm;
+    	if(LONG.equalsIgnoreCase(normalizationType)){
+    		norm = sourceSize + targetSize;
+    	}else {
+    		norm = deleteAll + insertAll;
+    	}
+    	
+    	return new EditDistanceValue(distance/norm, false, distance);
+    	
+    }
+    
+    
+    /**
+     * Codes the tokens of the specified sequences with the id of their (base form, pos) pair,
+     * and resolves the matches once for each distinct pair of codes.
+     * 
+     * @param source first token sequence
+     * @param target second token sequence
+     * 
+     * @return the prepared pair
+     * 
+     * @throws Exception
+     */
+    private PreparedPair prepare(List<Token> source, List<Token> target) throws Exception {
+    	
+    	int[] sourceCodes = new int[source.size()];
+    	int[] targetCodes = new int[target.size()];
+    	List<Token> sourceDistinct = encodeTokens(source, sourceCodes);
+    	List<Token> targetDistinct = encodeTokens(target, targetCodes);
+    	
+    	return new PreparedPair(sourceCodes, targetCodes, getMatchMatrix(sourceDistinct, targetDistinct));
+    	
+    }
+    
+    
+    /**
+     * Assigns to each token of the sequence the code of its (base form, pos) pair.
+     * 
+     * @param tokens the token sequence
+     * @param codes the array where the code of each token is stored
+     * 
+     * @return the list of the distinct tokens; the code of a token is its position in this list
+     */
+    private List<Token> encodeTokens(List<Token> tokens, int[] codes) {
+    	
+    	List<Token> distinctTokens = new ArrayList<Token>();
+    	Map<String,Integer> codesMap = new HashMap<String,Integer>();
+    	
+    	for (int i = 0; i < tokens.size(); i++) {
+    		Token token = tokens.get(i);
+    		String key = getTokenBaseForm(token);
+    		if (lexR.size() > 0)
+    			key = key + "\t" + token.getPos().getType().getName();
+    		Integer code = codesMap.get(key);
+    		if (code == null) {
+    			code = distinctTokens.size();
+    			codesMap.put(key, code);
+    			distinctTokens.add(token);
+    		}
+    		codes[i] = code;
+    	}
+    	
+    	return distinctTokens;
+    	
+    }
+    
+    
+    /**
+     * Returns the match matrix between the distinct tokens of source and target:
+     * two tokens match if they have the same base form or if the configured resources
+     * contain a relation between them (this requires the tokens to have the same pos).
+     * 
+     * @param source the distinct tokens of the source sequence
+     * @param target the distinct tokens of the target sequence
+     * 
+     * @return the match matrix
+     * 
+     * @throws Exception
+     */
+    private boolean[][] getMatchMatrix(List<Token> source, List<Token> target) throws Exception {
+    	
+    	boolean[][] matchMatrix = new boolean[source.size()][target.size()];
+    	
+    	String[] targetBaseForms = new String[target.size()];
+    	for (int j = 0; j < target.size(); j++)
+    		targetBaseForms[j] = getTokenBaseForm(target.get(j));
+    	
+    	// the parts of speech are created once for each distinct token and only when needed
+    	PartOfSpeech[] targetPoS = new PartOfSpeech[target.size()];
+    	
+    	for (int i = 0; i < source.size(); i++) {
+    		
+    		Token sourceToken = source.get(i);
+    		String sourceBaseForm = getTokenBaseForm(sourceToken);
+    		PartOfSpeech sourcePoS = null;
+    		
+    		for (int j = 0; j < target.size(); j++) {
+    			
+    			if (compare(sourceBaseForm, targetBaseForms[j])) {
+    				matchMatrix[i][j] = true;
+    				continue;
+    			}
+    			
+    			Token targetToken = target.get(j);
+    			if (lexR.size() > 0 &&
+    					sourceToken.getPos().getType().getName().equals(targetToken.getPos().getType().getName())) {
+    				if (sourcePoS == null)
+    					sourcePoS = new ByCanonicalPartOfSpeech(sourceToken.getPos().getType().getShortName());
+    				if (targetPoS[j] == null)
+    					targetPoS[j] = new ByCanonicalPartOfSpeech(targetToken.getPos().getType().getShortName());
+    				matchMatrix[i][j] = getRulesFromResource(sourceBaseForm, sourcePoS, targetBaseForms[j], targetPoS[j]);
+    			}
+    			
+    		}
+    		
+    	}
+    	
+    	return matchMatrix;
+    	
+    }
+    
+    
+    /**
+     * Returns the number of lookups answered by the lexical match cache
+     * since the JVM started.
+     * 
+     * @return the number of cache hits
+     */
+    public static long getLexicalMatchCacheHits() {
+    	
+    	return lexicalMatchCacheHits.get();
+    	
+    }
+    
+    
+    /**
+     * Returns the number of lookups that had to query the lexical resources
+     * since the JVM started.
+     * 
+     * @return the number of cache misses
+     */
+    public static long getLexicalMatchCacheMisses() {
+    	
+    	return lexicalMatchCacheMisses.get();
+    	
+    }
+    
+    
 	private boolean compare(String tokenBaseForm, String tokenBaseForm2) {
 		if(ignoreCase){
 			return tokenBaseForm.equalsIgnoreCase(tokenBaseForm2);
@@ -836,10 +1081,11 @@ public abstract class FixedWeightEditDistance implements DistanceCalculation {
      * Initialize English Wordnet
      * 
      * @param path the path of the resource
+     * @param section the configuration section of the resource, or null
      * 
      * @throws LexicalResourceException
      */
-    private void initializeWordnet(String path) throws LexicalResourceException {
+    private void initializeWordnet(String path, NameValueTable section) throws LexicalResourceException {
     	
     	logger.info("Wordnet initialization ...");
     	
@@ -851,7 +1097,43 @@ public abstract class FixedWeightEditDistance implements DistanceCalculation {
 			@SuppressWarnings("rawtypes")
 			LexicalResource resource = new WordnetLexicalResource(new File(path), false, false, relations, 3);
 			
-			lexR.add(resource);
+			addLexicalResource(wrapIfConfigured(resource, section), "wordnet:" + path + ":" + new TreeSet<WordNetRelation>(relations) + ":3");
+			
+		} catch (Exception e) {
+			throw new LexicalResourceException(e.getMessage());
+		}
+    	
+    	logger.info("done.");
+		
+    }
+    
+    
+    /**
+     * Initialize English Wordnet from a closure index built by WordnetClosureIndexBuilder,
+     * with the same relations and chaining length as {@link #initializeWordnet(String)}
+     * 
+     * @param path the path of the closure index file
+     * @param section the configuration section of the resource, or null
+     * 
+     * @throws LexicalResourceException
+     */
+    private void initializeWordnetClosureIndex(String path, NameValueTable section) throws LexicalResourceException {
+    	
+    	logger.info("Wordnet closure index initialization ...");
+    	
+    	try {
+    	
+			relations.add(WordNetRelation.SYNONYM);
+			relations.add(WordNetRelation.HYPERNYM);
+			
+			WordnetClosureIndex closureIndex = new WordnetClosureIndex(new File(path));
+			if (closureIndex.getChainingLength() != 3)
+				throw new LexicalResourceException("The closure index must be built with chaining length 3, got " + closureIndex.getChainingLength());
+			
+			@SuppressWarnings("rawtypes")
+			LexicalResource resource = new WordnetLexicalResource(closureIndex, false, false, relations);
+			
+			addLexicalResource(wrapIfConfigured(resource, section), "wordnet-closure-index:" + path + ":" + new TreeSet<WordNetRelation>(relations) + ":3");
 			
 		} catch (Exception e) {
 			throw new LexicalResourceException(e.getMessage());
@@ -866,10 +1148,11 @@ public abstract class FixedWeightEditDistance implements DistanceCalculation {
      * Initialize GermaNet
      * 
      * @param path the path of the resource
+     * @param section the configuration section of the resource, or null
      * 
      * @throws LexicalResourceException
      */
-    private void initializeGermaNet(String path) throws LexicalResourceException {
+    private void initializeGermaNet(String path, NameValueTable section) throws LexicalResourceException {
     	
     	logger.info("GermaNet initialization ...");
     	
@@ -877,7 +1160,7 @@ public abstract class FixedWeightEditDistance implements DistanceCalculation {
 			
 			@SuppressWarnings("rawtypes")
 			LexicalResource resource = new GermaNetWrapper(path);
-			lexR.add(resource);
+			addLexicalResource(wrapIfConfigured(resource, section), "germanet:" + path);
 			
 		} catch (Exception e) {
 			throw new LexicalResourceException(e.getMessage());
@@ -894,10 +1177,11 @@ public abstract class FixedWeightEditDistance implements DistanceCalculation {
      * @param dbConnection the db address
      * @param dbUser the user name
      * @param dbPasswd the user passwd
+     * @param section the configuration section of the resource, or null
      * 
      * @throws LexicalResourceException
      */
-    private void initializeEnglishWikipedia(String dbConnection, String dbUser, String dbPasswd) throws LexicalResourceException {
+    private void initializeEnglishWikipedia(String dbConnection, String dbUser, String dbPasswd, NameValueTable section) throws LexicalResourceException {
     	
     	logger.info("English Wikipedia initialization ...");
     	
@@ -911,7 +1195,7 @@ public abstract class FixedWeightEditDistance implements DistanceCalculation {
 			
 			@SuppressWarnings("rawtypes")
 			LexicalResource resource = new WikiLexicalResource(stopWordsFile, extractionTypes, dbConnection, dbUser, dbPasswd, 0.01);
-			lexR.add(resource);
+			addLexicalResource(wrapIfConfigured(resource, section), "wikipedia-en:" + dbConnection + ":" + dbUser + ":" + new TreeSet<WikiExtractionType>(extractionTypes) + ":0.01");
 			
 		} catch (Exception e) {
 			throw new LexicalResourceException(e.getMessage());
@@ -928,10 +1212,11 @@ public abstract class FixedWeightEditDistance implements DistanceCalculation {
      * @param dbConnection the db address
      * @param dbUser the user name
      * @param dbPasswd the user passwd
+     * @param section the configuration section of the resource, or null
      * 
      * @throws LexicalResourceException
      */
-    private void initializeItalianWikipedia(String dbConnection, String dbUser, String dbPasswd) throws LexicalResourceException {
+    private void initializeItalianWikipedia(String dbConnection, String dbUser, String dbPasswd, NameValueTable section) throws LexicalResourceException {
     	
     	logger.info("Italian Wikipedia initialization ...");
     	
@@ -948,7 +1233,7 @@ public abstract class FixedWeightEditDistance implements DistanceCalculation {
 			
 			@SuppressWarnings("rawtypes")
 			LexicalResource resource =  new WikiLexicalResourceIT(stopWordsFile, extractionTypes, dbConnection, dbUser, dbPasswd, 0.01);
-			lexR.add(resource);
+			addLexicalResource(wrapIfConfigured(resource, section), "wikipedia-it:" + dbConnection + ":" + dbUser + ":" + new TreeSet<WikiExtractionType>(extractionTypes) + ":0.01");
 			
 		} catch (Exception e) {
 			throw new LexicalResourceException(e.getMessage());
@@ -959,9 +1244,47 @@ public abstract class FixedWeightEditDistance implements DistanceCalculation {
 	}
     
     
+    /**
+     * Adds a lexical resource to the resources used for matching tokens.
+     * 
+     * @param resource the resource
+     * @param signature describes the resource and all the parameters that affect its rules
+     * (e.g. its path, relations and chaining length); resources with different rules must have
+     * different signatures, since the lexical match cache is shared among all the instances
+     */
+    @SuppressWarnings("rawtypes")
+	protected void addLexicalResource(LexicalResource resource, String signature) {
+    	
+    	lexR.add(resource);
+    	resourcesSignature = resourcesSignature + "[" + signature + "]";
+    	
+    }
+    
+    
+    /**
+     * Wraps the resource with a {@link CachingLexicalResource} if its configuration
+     * section sets a cache size, see {@link CachingLexicalResource#wrapIfConfigured(LexicalResource, NameValueTable)}.
+     * 
+     * @param resource the resource
+     * @param section the configuration section of the resource, or null if it was not
+     * configured by a section (the resource is then returned as it is)
+     * @return the (wrapped) resource
+     * @throws ConfigurationException
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+	private static LexicalResource wrapIfConfigured(LexicalResource resource, NameValueTable section) throws ConfigurationException {
+    	
+    	if (section == null)
+    		return resource;
+    	return CachingLexicalResource.wrapIfConfigured(resource, section);
+    	
+    }
+    
+    
     /**
      * Return true if it exists a relation between leftLemma and rightLemma
-     * in the lexical resource.
+     * in the lexical resource. The answers are stored in the process-wide 
+     * lexical match cache; lookups that fail with an exception are not cached.
      * 
      * @param leftLemma
      * @param leftPos
@@ -973,21 +1296,32 @@ public abstract class FixedWeightEditDistance implements DistanceCalculation {
      * @throws LexicalResourceException
      */
     @SuppressWarnings("unchecked")
-	private boolean getRulesFromResource(String leftLemma, PartOfSpeech leftPos, 
+	boolean getRulesFromResource(String leftLemma, PartOfSpeech leftPos, 
     		String rightLemma, PartOfSpeech rightPos) throws LexicalResourceException {
     	
     	//logger.info("leftLemma:" + leftLemma + " leftPos:" + leftPos + "\t" + "rightLemma:" + rightLemma + " " + "rightPos:" + rightPos);
     	
+    	String key = resourcesSignature + "\t" + leftLemma + "\t" + leftPos + "\t" + rightLemma + "\t" + rightPos;
+    	Boolean cachedMatch = lexicalMatchCache.get(key);
+    	if (cachedMatch != null) {
+    		lexicalMatchCacheHits.incrementAndGet();
+    		return cachedMatch.booleanValue();
+    	}
+    	lexicalMatchCacheMisses.incrementAndGet();
+    	
     	List<LexicalRule<?>> rules = null;
     	
 		try {
 			
-			for (int i = 0; i < lexR.size(); i++) {
+			boolean match = false;
+			for (int i = 0; i < lexR.size() && !match; i++) {
 				rules = lexR.get(i).getRules(leftLemma, leftPos, rightLemma, rightPos);
 				if (rules != null && rules.size() > 0) {
-					return true;
+					match = true;
 				}
 			}
+			lexicalMatchCache.put(key, match);
+			return match;
 			
 		} catch (LexicalResourceException e) {
 		    logger.severe(e.getMessage());
@@ -1016,4 +1350,26 @@ public abstract class FixedWeightEditDistance implements DistanceCalculation {
     	
     }
     
+    
+    /**
+     * The <code>PreparedPair</code> class holds a T-H pair as the edit distance sees it,
+     * independently of the weights of the edit operations: the codes of the tokens of T and H,
+     * and which codes of T match which codes of H.
+     */
+    public static final class PreparedPair {
+    	
+    	private final int[] sourceCodes;
+    	private final int[] targetCodes;
+    	private final boolean[][] matchMatrix;
+    	
+    	private PreparedPair(int[] sourceCodes, int[] targetCodes, boolean[][] matchMatrix) {
+    		
+    		this.sourceCodes = sourceCodes;
+    		this.targetCodes = targetCodes;
+    		this.matchMatrix = matchMatrix;
+    		
+    	}
+    	
+    }
+    
 }
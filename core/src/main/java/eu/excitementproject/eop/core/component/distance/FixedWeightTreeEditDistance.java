@@ -8,6 +8,7 @@ import java.io.InputStreamReader;
 import java.io.UnsupportedEncodingException;
 import java.lang.reflect.Constructor;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -104,6 +105,11 @@ public class FixedWeightTreeEditDistance implements DistanceCalculation {
      * if the punctuation has to be removed from the trees
      */
     private boolean punctuationRemoval;
+    /**
+     * if the costs of the replace operations have to be calculated once for each pair
+     * of nodes before the tree edit distance calculation
+     */
+    private boolean replaceCostsPrecomputation;
 	/**
 	 * verbose level
 	 */
@@ -125,6 +131,7 @@ public class FixedWeightTreeEditDistance implements DistanceCalculation {
         this.aligner = null;
         this.alignments = null;
         this.punctuationRemoval = false;
+        this.replaceCostsPrecomputation = true;
         
     }
 
@@ -180,6 +187,11 @@ public class FixedWeightTreeEditDistance implements DistanceCalculation {
 			punctuationRemoval = Boolean.parseBoolean(instanceNameValueTable.getString("punctuation-removal"));
 			logger.fine("punctuation removal:" + punctuationRemoval);
 			
+			//if the replace costs have to be precomputed (default true)
+			if (instanceNameValueTable.getString("replace-costs-precomputation") != null)
+				replaceCostsPrecomputation = Boolean.parseBoolean(instanceNameValueTable.getString("replace-costs-precomputation"));
+			logger.fine("replace costs precomputation:" + replaceCostsPrecomputation);
+			
 			//the alignments provided by users
 			this.userAlignments = loadUserAlignements(instanceNameValueTable.getString("alignments-file"));
 			logger.fine("user alignments:" + this.userAlignments.size());
@@ -346,45 +358,14 @@ public class FixedWeightTreeEditDistance implements DistanceCalculation {
     		alignments = getAlignments(jcas);
     	    //get the Text
 	    	JCas tView = jcas.getView(LAP_ImplBase.TEXTVIEW);
-	    	//get the dependency tree of Text
-	    	String t_tree = cas2CoNLLX(tView);
-	    	logger.fine("\nThe Tree of Text:\n" + t_tree);
-	    	
-	    	if(checkMultiTree(t_tree)){
-	    		t_tree = mergeTrees(t_tree);
-	    		logger.fine("\nThe Merged Tree of Text:\n" + t_tree);
-	    	}
-
-	    	//remove punctuation
-	    	if (this.punctuationRemoval) {
-	    		t_tree = removePunctuation(t_tree);
-	    		System.out.println("THIS TREE HAS TWO TREES");
-	    		logger.info("\nThe Tree of Text after removing punctuation:\n" + t_tree);
-	    	}
-	    	
-	    	//create the Text fragment
-	    	Fragment t_fragment = getFragment(t_tree);
+	    	//create the Text fragment from the dependency tree of Text
+	    	Fragment t_fragment = getFragment(tView, this.punctuationRemoval);
+	    	logger.fine("\nThe Tree of Text:" + t_fragment);
 	    	//get the Hypothesis
 	    	JCas hView = jcas.getView(LAP_ImplBase.HYPOTHESISVIEW); 
-	    	//the dependency tree of Hypothesis
-	    	String h_tree = cas2CoNLLX(hView);
-	    	logger.fine("\nThe Tree of Hypothesis:\n" + h_tree);
-
-	    	if(checkMultiTree(h_tree)){
-	    		System.out.println("THIS TREE");
-	    		h_tree = mergeTrees(h_tree);
-	    		logger.fine("\nThe Merged Tree of Hypothesis:\n" + h_tree);
-	    	}
-	
-	    	//remove punctuation
-	    	if (this.punctuationRemoval) {
-		    	h_tree = removePunctuation(h_tree);
-		    	logger.fine("\nThe Tree of Hypothesis after removing punctuation:\n" + h_tree);
-	    	}
-
-
-	    	//create the Hypothesis fragment
-	    	Fragment h_fragment = getFragment(h_tree);
+	    	//create the Hypothesis fragment from the dependency tree of Hypothesis
+	    	Fragment h_fragment = getFragment(hView, this.punctuationRemoval);
+	    	logger.fine("\nThe Tree of Hypothesis:" + h_fragment);
             //calculate the distance between T and H by using the matches
 	    	//provided by the aligner component.
 	    	distanceValue = distance(t_fragment, h_fragment, alignments);
@@ -412,47 +393,14 @@ public class FixedWeightTreeEditDistance implements DistanceCalculation {
     		alignments = getAlignments(jcas);
 	 	   	// get Text
 		    JCas tView = jcas.getView(LAP_ImplBase.TEXTVIEW);
-		    //get the dependency tree of Text
-
-		    String t_tree = cas2CoNLLX(tView);
-		    logger.fine("Text:\n" + t_tree);
-		    
-		    if(checkMultiTree(t_tree)){
-		    	t_tree = mergeTrees(t_tree);
-		    	System.out.println("THIS TREE");
-		    	logger.info("Merged text:\n" + t_tree);
-		    }
-		    
-		  //remove punctuation
-	    	if (this.punctuationRemoval) {
-				t_tree = removePunctuation(t_tree);
-				logger.fine("\nThe Cleaned Tree of Text:\n" + t_tree);
-	    	}
-		    
-		    
-		    //create the Text fragment
-		    Fragment t_fragment = getFragment(t_tree);
+		    //create the Text fragment from the dependency tree of Text
+		    Fragment t_fragment = getFragment(tView, this.punctuationRemoval);
+		    logger.fine("Text:" + t_fragment);
 		    //get Hypothesis
 		    JCas hView = jcas.getView(LAP_ImplBase.HYPOTHESISVIEW); 
-		    //the dependency tree of Hypothesis
-		    String h_tree = cas2CoNLLX(hView);
-		    
-		    logger.fine("Hypothesis:\n" + h_tree);
-		    
-		    if(checkMultiTree(h_tree)){
-		    	System.out.println("THIS TREE");
-		    	h_tree = mergeTrees(h_tree);
-		    	logger.info("Merged hypothesis:\n" + h_tree);
-		    }
-
-		    //remove punctuation
-	    	if (this.punctuationRemoval) {
-				h_tree = removePunctuation(h_tree);
-				logger.fine("\nThe Cleaned Tree of Hypothesis:\n" + h_tree);
-	    	}
-
-		    //create the Hypothesis fragment
-		    Fragment h_fragment = getFragment(h_tree);
+		    //create the Hypothesis fragment from the dependency tree of Hypothesis
+		    Fragment h_fragment = getFragment(hView, this.punctuationRemoval);
+		    logger.fine("Hypothesis:" + h_fragment);
 		    
 	        //calculate the distance between T and H by using the matches
 		    //provided by the aligner component.
@@ -764,101 +712,11 @@ public class FixedWeightTreeEditDistance implements DistanceCalculation {
     
     
     /**
-     * This method accepts in input a tree (it has been produced by cas2CoNLLX
-     * and it is in CoNLL-X format and returns a fragment containing all the tokens in the tree
-     * 
-     * @param dependencyTree
-     * 
-     * @return the fragment
-     *
-     * @throws Exception
-     */
-    private Fragment getFragment(String dependencyTree) throws Exception {
-    	
-    	Fragment fragment = null;
-    	
-    	/* here we need to parse the tree CoNLLX format (i.e. dependencyTree)
-    	/ and for each line of it we would need to create an object of the class Token
-    	/ and the put it into the Fragment
-    	*/
-    	try {
-    		
-    		fragment = new Fragment();
-
-	    	String[] lines = dependencyTree.split("\n");
-	    	
-	    	for (int i = 0; i < lines.length; i++) {
-	    		String[] fields = lines[i].split("\\s");
-	    		int tokenId = Integer.parseInt(fields[0]) - 1;
-	    		String form = fields[1];	
-	    		String lemma = fields[2];	
-	    		String pos = fields[3];	
-	    		
-	    		int head;
-	    		if (fields[6].equals("_")) {
-	    			head = -1;
-	    		}
-	    		else
-	    			head = Integer.parseInt(fields[6]) - 1;
-	    			
-	    		String deprel = fields[7];
-	    	    //and for each line of it we would need to create an object of the class FToken
-	    	    //and then put it into the Fragment
-	    		FToken token_i = new FToken(tokenId, form, lemma, pos, head, deprel);
-	    		fragment.addToken(token_i);
-	    	}
-	    	
-	    } catch (Exception e) {
-    		
-    		throw new Exception(e.getMessage());
-    		
-    	}
-    	
-    	return fragment;
-    	
-    }
-    
-   private boolean checkMultiTree(String tree){
-	   String[] trees = tree.split("\n\n");
-	   return trees.length>1;
-   }
-
-   private String mergeTrees(String multiTree){
-	   String[] trees = multiTree.split("\n\n");
-	   String newTree = "";
-	   //add new node
-	   newTree+="1\t_\t_\t_\t_\t_\t_\t_\t_\t_\n";
-	   int prevtreelenght = 1;
-	   for (int i = 0; i < trees.length; i++){
-		   	String tree = trees[i];
-		   	String[] lines = tree.split("\n");
-		   	for(int j = 0; j<lines.length; j++){
-			   	String[] fields = lines[j].split("\\s");
-	   			int tokenId = Integer.parseInt(fields[0]);
-	   			fields[0] = (tokenId + prevtreelenght) + "";
-	   			if(fields[6].equals("_")){
-		   	    	fields[6] = "1";
-	   			}
-	   			else {
-	   				fields[6] = (Integer.parseInt(fields[6]) + prevtreelenght) + "";
-	   			}
-	   			String line = "";
-    			for (String field:fields){
-    				line+= field + "\t"; 
-    			}
-    			lines[j]=line;
-    			newTree+=line+"\n";
-    			
-		   	}
-		   	prevtreelenght+=lines.length;
-	   }
-	   return newTree;
-   }
-
-    
-    /**
-     * Given a cas (it contains the T view or the H view) in input it produces a
-     * string containing the tree in the CoNLL-X format, e.g. 
+     * Given a cas (it contains the T view or the H view) in input it produces the
+     * fragment containing all the tokens of its dependency tree. The tree is built directly
+     * from the Token and Dependency annotations: when the cas contains more sentences, their
+     * trees are merged under a new root node and, if requested, the punctuation is removed.
+     * The result is the same of producing the tree in the CoNLL-X format, e.g. 
      * 
      * 1	A	a	DT	_	_	3	det	_	_
      * 2	soccer	soccer	NN	_	_	3	nn	_	_
@@ -872,151 +730,47 @@ public class FixedWeightTreeEditDistance implements DistanceCalculation {
 	 * 10	net	net	NN	_	_	7	pobj	_	_
 	 * 11	.	.	.	_	_	6	punct	_	_
      * 
-     *  @param aJCas the cas
-     *  
-     *  @return the tree in the CoNLL-X format
-     */
-
-    private String cas2CoNLLX(JCas aJCas) throws Exception {
-    	
-    	StringBuffer result = new StringBuffer();
-    	
-    	try { 
-    	
-	        // StringBuilder conllSb = new StringBuilder();
-	        for (Sentence sentence : select(aJCas, Sentence.class)) {
-	            // Map of token and the dependent (token address used as a Key)
-	            Map<Integer, Integer> dependentMap = new HashMap<Integer, Integer>();
-	            // Map of governor token address and its token position
-	            Map<Integer, Integer> dependencyMap = new HashMap<Integer, Integer>();
-	            // Map of governor token address and its dependency function value
-	            Map<Integer, String> dependencyTypeMap = new HashMap<Integer, String>();
-	
-	            for (Dependency dependecny : selectCovered(Dependency.class, sentence)) {
-	                dependentMap.put(dependecny.getDependent()
-	                        .getAddress(), dependecny.getGovernor().getAddress());
-	            }
-	
-	            int i = 1;
-	            for (Token token : selectCovered(Token.class, sentence)) {
-	                dependencyMap.put(token.getAddress(), i);
-	                i++;
-	            }
-	
-	            for (Dependency dependecny : selectCovered(Dependency.class, sentence)) {
-	                dependencyTypeMap.put(dependecny.getDependent().getAddress(),
-	                        dependecny.getDependencyType());
-	            }
-	
-	            int j = 1;
-	            for (Token token : selectCovered(Token.class, sentence)) {
-	                String lemma = token.getLemma() == null ? "_" : token.getLemma().getValue();
-	                String pos = token.getPos() == null ? "_" : token.getPos().getPosValue();
-	                String dependent = "_";
-	
-	                if (dependentMap.get(token.getAddress()) != null) {
-	                    if (dependencyMap.get(dependentMap.get(token.getAddress())) != null) {
-	                        dependent = "" + dependencyMap.get(dependentMap.get(token.getAddress()));
-	                    }
-	                }
-	                String type = dependencyTypeMap.get(token.getAddress()) == null ? "_"
-	                        : dependencyTypeMap.get(token.getAddress());
-	
-	                if (dependentMap.get(token.getAddress()) != null
-	                        && dependencyMap.get(dependentMap.get(token.getAddress())) != null
-	                        && j == dependencyMap.get(dependentMap.get(token.getAddress()))) {
-	                   // IOUtils.write(j + "\t" + token.getCoveredText() + "\t" + lemma + "\t" + pos
-	                           // + "\t_\t_\t" + 0 + "\t" + type + "\t_\t_\n", aOs, aEncoding);
-	                    result.append(j + "\t" + token.getCoveredText() + "\t" + lemma + "\t" + pos
-	                            + "\t_\t_\t" + 0 + "\t" + type + "\t_\t_\n");
-	                }
-	                else {
-	                    //IOUtils.write(j + "\t" + token.getCoveredText() + "\t" + lemma + "\t" + pos
-	                          //  + "\t_\t_\t" + dependent + "\t" + type + "\t_\t_\n", aOs, aEncoding);
-	                    result.append(j + "\t" + token.getCoveredText() + "\t" + lemma + "\t" + pos
-	                            + "\t_\t_\t" + dependent + "\t" + type + "\t_\t_\n");
-	                }
-	                j++;
-	            }
-	            
-	            //IOUtils.write("\n", aOs, aEncoding);
-	            //System.out.print("\n");
-	            result.append("\n");
-	            
-	        }
-        
-    	} catch (Exception e) {
-		
-    		throw new Exception(e.getMessage());
-		
-    	}
-        
-        return result.toString();
-        
-    }
-
-    
-    /**
-     * Given a dependency tree it removes the punctuation (the punct marker in the
-     * CoNLL-X file is used to recognize the punctuation). 
-     * 
-     * @param dependencyTree the tree
+     * and parsing it again, without creating any string.
      * 
-     * @return the tree in input without the punctuation
+     * @param aJCas the cas
+     * @param punctuationRemoval true if the punctuation has to be removed
      * 
+     * @return the fragment
+     *
+     * @throws Exception
      */
-    private String removePunctuation(String dependencyTree){
-
-    	String cleaned_tree = "";
+    static Fragment getFragment(JCas aJCas, boolean punctuationRemoval) throws Exception {
     	
-    	Boolean hasChild = false;
-    	String[] lines = dependencyTree.split("\n");
-     
-    	for (int i = 0; i < lines.length; i++) {
-    		if(!lines[i].isEmpty()){
-    			String[] fields = lines[i].split("\\s");
-    			int tokenId = Integer.parseInt(fields[0]);
-    				if(fields[7].equals("punct")){
-    					//checking for children
-    					for (int j = 0; j < lines.length; j++){
-    						if(!lines[j].isEmpty()){
-    							String[] fieldsj = lines[j].split("\\s");
-    							if(fieldsj[6].equals(tokenId+"")){
-    								hasChild = true;
-    							}
-    						}
-    					}
-    					//update stage
-    					if (!hasChild) {
-    						lines[i]="";
-    						for (int j = 0; j < lines.length; j++){
-    							if(!lines[j].isEmpty()){
-    								String[] fieldsj = lines[j].split("\\s");
-    								//updating the IDs for the deletion
-    								if(Integer.parseInt(fieldsj[0]) >= tokenId){
-    									fieldsj[0] = (Integer.parseInt(fieldsj[0])-1)+"";
-    								}
-    								//updating the heads. I assume that the root cannot be a punctuation mark
-    								if(!fieldsj[6].equals("_") && Integer.parseInt(fieldsj[6]) > tokenId){
-    									fieldsj[6] = (Integer.parseInt(fieldsj[6])-1)+"";
-    								}
-    								String line = "";
-    								for (String field:fieldsj){
-    									line+= field + "\t";
-    								}
-    								lines[j]=line;
-    							}
-    						}
-    					}
-    				}
+    	Fragment fragment = null;
+    	
+    	try {
+    		
+    		List<DependencyTree> sentenceTrees = new ArrayList<DependencyTree>();
+    		for (Sentence sentence : select(aJCas, Sentence.class)) {
+    			sentenceTrees.add(new DependencyTree(sentence));
     		}
-    	}
-    	for (int i = 0; i < lines.length; i++){
-    		if(!lines[i].isEmpty())
-    			cleaned_tree+=lines[i]+"\n";
+    		
+    		DependencyTree tree;
+    		if (sentenceTrees.size() > 1)
+    			tree = new DependencyTree(sentenceTrees);
+    		else if (sentenceTrees.size() == 1)
+    			tree = sentenceTrees.get(0);
+    		else
+    			throw new Exception("No sentences in view " + aJCas.getViewName());
+    		
+    		//remove punctuation
+    		if (punctuationRemoval)
+    			tree.removePunctuation();
+    		
+    		fragment = tree.getFragment();
+    		
+	    } catch (Exception e) {
+    		
+    		throw new Exception(e.getMessage());
+    		
     	}
     	
-    	return cleaned_tree+"\n";
+    	return fragment;
     	
     }
     
@@ -1150,24 +904,282 @@ public class FixedWeightTreeEditDistance implements DistanceCalculation {
     }
    
     
+    /**
+     * The dependency tree of a view as parallel arrays, with the same information of 
+     * the CoNLL-X format: the ids of the nodes start from 1 and the head of the root is 
+     * 0 (the parser attached the node to itself) or NO_HEAD (the node has no governor). 
+     */
+    private static class DependencyTree {
+    	
+    	/**
+    	 * the head of the nodes without governor (i.e. `_` in the CoNLL-X format)
+    	 */
+    	private static final int NO_HEAD = -1;
+    	/**
+    	 * the value of the missing fields (i.e. `_` in the CoNLL-X format)
+    	 */
+    	private static final String NO_VALUE = "_";
+    	/**
+    	 * the dependency relation of the punctuation
+    	 */
+    	private static final String PUNCT = "punct";
+    	
+    	private int size;
+    	private int[] ids;
+    	private int[] heads;
+    	private String[] forms;
+    	private String[] lemmas;
+    	private String[] pos;
+    	private String[] deprels;
+    	
+    	
+    	/**
+    	 * Build the tree of a sentence from its Token and Dependency annotations
+    	 * 
+    	 * @param sentence the sentence
+    	 */
+    	DependencyTree(Sentence sentence) {
+    		
+    		// Map of token and its governor (token address used as a Key)
+    		Map<Integer, Integer> governorMap = new HashMap<Integer, Integer>();
+    		// Map of token and its dependency function value (token address used as a Key)
+    		Map<Integer, String> dependencyTypeMap = new HashMap<Integer, String>();
+    		for (Dependency dependency : selectCovered(Dependency.class, sentence)) {
+    			governorMap.put(dependency.getDependent().getAddress(), dependency.getGovernor().getAddress());
+    			dependencyTypeMap.put(dependency.getDependent().getAddress(), dependency.getDependencyType());
+    		}
+    		
+    		List<Token> tokens = selectCovered(Token.class, sentence);
+    		// Map of token address and its token position
+    		Map<Integer, Integer> positionMap = new HashMap<Integer, Integer>();
+    		for (int i = 0; i < tokens.size(); i++) {
+    			positionMap.put(tokens.get(i).getAddress(), i + 1);
+    		}
+    		
+    		allocate(tokens.size());
+    		
+    		for (int i = 0; i < tokens.size(); i++) {
+    			Token token = tokens.get(i);
+    			ids[i] = i + 1;
+    			forms[i] = token.getCoveredText();
+    			lemmas[i] = token.getLemma() == null ? NO_VALUE : token.getLemma().getValue();
+    			pos[i] = token.getPos() == null ? NO_VALUE : token.getPos().getPosValue();
+    			Integer governor = governorMap.get(token.getAddress());
+    			Integer governorPosition = governor == null ? null : positionMap.get(governor);
+    			if (governorPosition == null)
+    				heads[i] = NO_HEAD;
+    			else if (governorPosition == i + 1)
+    				heads[i] = 0;
+    			else
+    				heads[i] = governorPosition;
+    			String type = dependencyTypeMap.get(token.getAddress());
+    			deprels[i] = type == null ? NO_VALUE : type;
+    		}
+    		
+    	}
+    	
+    	
+    	/**
+    	 * Merge the trees of more sentences into a single tree: a new node is added
+    	 * as the first node and the nodes without governor are attached to it.
+    	 * 
+    	 * @param trees the trees of the sentences
+    	 */
+    	DependencyTree(List<DependencyTree> trees) {
+    		
+    		int mergedSize = 1;
+    		for (DependencyTree tree : trees)
+    			mergedSize += tree.size;
+    		
+    		allocate(mergedSize);
+    		
+    		//add new node
+    		ids[0] = 1;
+    		heads[0] = NO_HEAD;
+    		forms[0] = NO_VALUE;
+    		lemmas[0] = NO_VALUE;
+    		pos[0] = NO_VALUE;
+    		deprels[0] = NO_VALUE;
+    		
+    		int prevTreeLength = 1;
+    		for (DependencyTree tree : trees) {
+    			for (int i = 0; i < tree.size; i++) {
+    				int node = prevTreeLength + i;
+    				ids[node] = tree.ids[i] + prevTreeLength;
+    				heads[node] = tree.heads[i] == NO_HEAD ? 1 : tree.heads[i] + prevTreeLength;
+    				forms[node] = tree.forms[i];
+    				lemmas[node] = tree.lemmas[i];
+    				pos[node] = tree.pos[i];
+    				deprels[node] = tree.deprels[i];
+    			}
+    			prevTreeLength += tree.size;
+    		}
+    		
+    	}
+    	
+    	
+    	private void allocate(int size) {
+    		
+    		this.size = size;
+    		this.ids = new int[size];
+    		this.heads = new int[size];
+    		this.forms = new String[size];
+    		this.lemmas = new String[size];
+    		this.pos = new String[size];
+    		this.deprels = new String[size];
+    		
+    	}
+    	
+    	
+    	/**
+    	 * Remove the punctuation (the punct dependency relation is used to recognize it).
+    	 * Ids and heads of the remaining nodes are shifted accordingly. As in the removal
+    	 * done on the CoNLL-X format, once a punctuation node with children has been found
+    	 * the following punctuation nodes are kept.
+    	 */
+    	void removePunctuation() {
+    		
+    		boolean[] removed = new boolean[size];
+    		boolean hasChild = false;
+    		
+    		for (int i = 0; i < size; i++) {
+    			if (removed[i] || !deprels[i].equals(PUNCT))
+    				continue;
+    			int tokenId = ids[i];
+    			//checking for children
+    			for (int j = 0; j < size; j++) {
+    				if (!removed[j] && heads[j] == tokenId)
+    					hasChild = true;
+    			}
+    			//update stage
+    			if (!hasChild) {
+    				removed[i] = true;
+    				for (int j = 0; j < size; j++) {
+    					if (removed[j])
+    						continue;
+    					//updating the IDs for the deletion
+    					if (ids[j] >= tokenId)
+    						ids[j]--;
+    					//updating the heads. I assume that the root cannot be a punctuation mark
+    					if (heads[j] != NO_HEAD && heads[j] > tokenId)
+    						heads[j]--;
+    				}
+    			}
+    		}
+    		
+    		int kept = 0;
+    		for (int i = 0; i < size; i++) {
+    			if (removed[i])
+    				continue;
+    			ids[kept] = ids[i];
+    			heads[kept] = heads[i];
+    			forms[kept] = forms[i];
+    			lemmas[kept] = lemmas[i];
+    			pos[kept] = pos[i];
+    			deprels[kept] = deprels[i];
+    			kept++;
+    		}
+    		size = kept;
+    		
+    	}
+    	
+    	
+    	/**
+    	 * Create the fragment containing the tokens of the tree; the ids and 
+    	 * the heads of the tokens start from 0 and the roots have head -1.
+    	 * 
+    	 * @return the fragment
+    	 */
+    	Fragment getFragment() {
+    		
+    		Fragment fragment = new Fragment();
+    		
+    		for (int i = 0; i < size; i++) {
+    			int head = (heads[i] == NO_HEAD) ? -1 : heads[i] - 1;
+    			fragment.addToken(new FToken(ids[i] - 1, forms[i], lemmas[i], pos[i], head, deprels[i]));
+    		}
+    		
+    		return fragment;
+    		
+    	}
+    	
+    }
+    
+    
     /**
 	 * The class ScoreImpl define the method for the tree edit distance operations
-	 * with their weights and basic logic.
+	 * with their weights and basic logic. When the replace costs precomputation is
+	 * active, the cost of replacing each node of tree1 with each node of tree2 is
+	 * calculated once in the constructor and then read from a table, given that
+	 * the tree edit distance algorithm asks for it O(n^2*m^2) times.
 	 */
     class ScoreImpl implements EditScore {
 		
 		private final LabeledTree tree1, tree2;
+		/**
+		 * the replace costs (null if they are calculated on demand)
+		 */
+		private final double[][] replaceCosts;
 		
 		public ScoreImpl(LabeledTree tree1, LabeledTree tree2, Map<String,Link> alignments) {
 			
 			this.tree1 = tree1;
 			this.tree2 = tree2;
+			this.replaceCosts = replaceCostsPrecomputation ? calculateReplaceCosts() : null;
+			
+		}
+		
+		/**
+		 * Calculate the table of the replace costs. The pairs of nodes with the same dprel 
+		 * relation are found first: the alignments are looked up only for them.
+		 * 
+		 * @return the replace costs
+		 */
+		private double[][] calculateReplaceCosts() {
+			
+			int size1 = tree1.size();
+			int size2 = tree2.size();
+			
+			FToken[] tokens_t = new FToken[size1];
+			for (int node1 = 0; node1 < size1; node1++)
+				tokens_t[node1] = tree1.getToken(tree1.getLabel(node1));
+			FToken[] tokens_h = new FToken[size2];
+			for (int node2 = 0; node2 < size2; node2++)
+				tokens_h[node2] = tree2.getToken(tree2.getLabel(node2));
+			
+			//bit node1*size2+node2 is set if the 2 nodes have the same dprel relation
+			BitSet sameDeprel = new BitSet(size1 * size2);
+			for (int node1 = 0; node1 < size1; node1++)
+				for (int node2 = 0; node2 < size2; node2++)
+					if (tokens_t[node1].getDeprel().equals(tokens_h[node2].getDeprel()))
+						sameDeprel.set(node1 * size2 + node2);
+			
+			double[][] costs = new double[size1][size2];
+			for (int node1 = 0; node1 < size1; node1++) {
+				for (int node2 = 0; node2 < size2; node2++) {
+					if (!sameDeprel.get(node1 * size2 + node2)) {
+						//no alignments when the dprel relations are different
+						costs[node1][node2] = mSubstituteWeight;
+						continue;
+					}
+					String alignment = getAlignmentType(tokens_t[node1], tokens_h[node2])[0];
+					if (alignment != null && alignment.equals("LOCAL-ENTAILMENT"))
+						costs[node1][node2] = mMatchWeight;
+					else
+						costs[node1][node2] = mSubstituteWeight/2;
+				}
+			}
+			
+			return costs;
 			
 		}
 
 		@Override
 		public double replace(int node1, int node2) {
 			
+			if (replaceCosts != null)
+				return replaceCosts[node1][node2];
+			
 			//match
 			FToken token_t = tree1.getToken(tree1.getLabel(node1));
 			FToken token_h = tree2.getToken(tree2.getLabel(node2));
@@ -1196,4 +1208,4 @@ public class FixedWeightTreeEditDistance implements DistanceCalculation {
 		
 	}
     
-}
\ No newline at end of file
+}
@@ -0,0 +1,126 @@
+package eu.excitementproject.eop.core.component.lexicalknowledge.catvardb;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalResourceException;
+import eu.excitementproject.eop.common.utilities.file.MappedRecordsFileWriter;
+
+/**
+ * Exports the catvar database (the tables {@code cluster_term} and {@code term}, see {@link CatvarDBLexicalResource}) to the file read by
+ * {@link CatvarFileLexicalResource}.
+ * <p>
+ * Usage: <code>CatvarDBFileExporter &lt;db connection string&gt; &lt;db user&gt; &lt;db password&gt; &lt;output file&gt;</code>
+ */
+public class CatvarDBFileExporter
+{
+	/**
+	 * every pair of terms in the same cluster (including each term with itself)
+	 */
+	private static final String CLUSTER_PAIRS_QUERY = "SELECT t1.lemma, t1.pos, t2.lemma, t2.pos FROM term t1, cluster_term ct1, cluster_term ct2, term t2 " +
+			"WHERE t1.term_id = ct1.term_id AND ct1.cluster_id = ct2.cluster_id AND ct2.term_id = t2.term_id";
+
+	/**
+	 * Ctor
+	 * @param dbConnectionString connection string to catvar database. e.g. "jdbc:mysql://qa-srv:3308/catvar"
+	 * @param dbUser may be null
+	 * @param dbPassword may be null
+	 * @throws LexicalResourceException
+	 */
+	public CatvarDBFileExporter(String dbConnectionString, String dbUser, String dbPassword) throws LexicalResourceException
+	{
+		try
+		{
+			con = DriverManager.getConnection(dbConnectionString, dbUser, dbPassword);
+		} catch (SQLException e) 	{
+			throw new LexicalResourceException("Couldn't open a connection with this connection string: " + dbConnectionString, e);	}
+	}
+
+	/**
+	 * Write all the clusters to the given file
+	 * @param file
+	 * @return the number of exported records
+	 * @throws LexicalResourceException
+	 */
+	public int export(File file) throws LexicalResourceException
+	{
+		int numberOfRecords = 0;
+		try
+		{
+			MappedRecordsFileWriter writer = new MappedRecordsFileWriter(file);
+			Statement stmt = con.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+			try
+			{
+				stmt.setFetchSize(Integer.MIN_VALUE);	// stream the rows (MySQL)
+				ResultSet rs = stmt.executeQuery(CLUSTER_PAIRS_QUERY);
+				while (rs.next())
+				{
+					addPair(writer, rs.getString(1), rs.getString(2), rs.getString(3), rs.getString(4));
+					numberOfRecords++;
+				}
+				rs.close();
+			}
+			finally
+			{
+				stmt.close();
+				writer.close();
+			}
+		}
+		catch (SQLException e)	{	throw new LexicalResourceException("Error executing the query " + CLUSTER_PAIRS_QUERY, e);	}
+		catch (IOException e)	{	throw new LexicalResourceException("Error writing " + file, e);	}
+		return numberOfRecords;
+	}
+
+	public void close() throws LexicalResourceException
+	{
+		try	{	con.close();	}
+		catch (SQLException e)	{	throw new LexicalResourceException("Error closing the connection", e);	}
+	}
+
+	public static void main(String[] args) throws Exception
+	{
+		if (args.length != 4) {
+			System.out.println("Usage: eu.excitementproject.eop.core.component.lexicalknowledge.catvardb.CatvarDBFileExporter <db connection string> <db user> <db password> <output file>");
+			System.exit(0);
+		}
+		CatvarDBFileExporter exporter = new CatvarDBFileExporter(args[0], args[1], args[2]);
+		try
+		{
+			System.out.println("Exported " + exporter.export(new File(args[3])) + " records.");
+		}
+		finally
+		{
+			exporter.close();
+		}
+	}
+
+	/**
+	 * Add the record of a pair of terms in the same cluster, under the lemma of the first term (in lower case, since the DB compares
+	 * the lemmas ignoring case)
+	 * @param writer
+	 * @param lemma
+	 * @param pos the catvar POS of the lemma
+	 * @param otherLemma
+	 * @param otherPos the catvar POS of the other lemma
+	 * @throws IOException
+	 */
+	static void addPair(MappedRecordsFileWriter writer, String lemma, String pos, String otherLemma, String otherPos) throws IOException
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream record = new DataOutputStream(bytes);
+		MappedRecordsFileWriter.writeString(record, otherLemma);
+		MappedRecordsFileWriter.writeString(record, otherPos);
+		MappedRecordsFileWriter.writeString(record, pos);
+		record.close();
+		writer.add(lemma.toLowerCase(), bytes.toByteArray());
+	}
+
+	private final Connection con;
+}
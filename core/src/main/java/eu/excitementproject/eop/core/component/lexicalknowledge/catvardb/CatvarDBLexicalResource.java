@@ -3,26 +3,30 @@
  */
 package eu.excitementproject.eop.core.component.lexicalknowledge.catvardb;
 
-import static eu.excitementproject.eop.common.representation.partofspeech.SimplerPosTagConvertor.simplerPos;
-
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.Vector;
 
 import eu.excitementproject.eop.core.component.lexicalknowledge.EmptyRuleInfo;
 import eu.excitementproject.eop.core.component.lexicalknowledge.LexicalResourceNothingToClose;
+import eu.excitementproject.eop.common.component.lexicalknowledge.BatchLexicalResource;
+import eu.excitementproject.eop.common.component.lexicalknowledge.BatchLexicalResourceUtils;
+import eu.excitementproject.eop.common.component.lexicalknowledge.LemmaPos;
 import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalResource;
 import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalResourceException;
 import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalRule;
 import eu.excitementproject.eop.common.component.lexicalknowledge.RuleInfo;
-import eu.excitementproject.eop.common.representation.partofspeech.BySimplerCanonicalPartOfSpeech;
 import eu.excitementproject.eop.common.representation.partofspeech.PartOfSpeech;
-import eu.excitementproject.eop.common.representation.partofspeech.SimplerCanonicalPosTag;
-import eu.excitementproject.eop.common.representation.partofspeech.UnsupportedPosTagStringException;
 import eu.excitementproject.eop.common.utilities.configuration.ConfigurationException;
 import eu.excitementproject.eop.common.utilities.configuration.ConfigurationParams;
 
@@ -37,6 +41,8 @@ import eu.excitementproject.eop.common.utilities.configuration.ConfigurationPara
  * <li>{@code term} containing rows like {@code <term_id, lemma, pos>} (pos is one of {'a','n','r','v'} representing the part-of-speech).<br>
  * Notice how this means the resource in essence is undirected.
  * <br>The user may alter these and other db parameters in the constructor. 
+ * <p>
+ * The batch queries of {@link BatchLexicalResource} retrieve the rules of all the lemmas of the same POS with one query.
  * 
  * 
  * 
@@ -45,7 +51,7 @@ import eu.excitementproject.eop.common.utilities.configuration.ConfigurationPara
  * 
  */
 @Deprecated 
-public class CatvarDBLexicalResource extends LexicalResourceNothingToClose<RuleInfo> 
+public class CatvarDBLexicalResource extends LexicalResourceNothingToClose<RuleInfo> implements BatchLexicalResource<RuleInfo> 
 {
 	private static final String RESOURCE_NAME = "Catvar";
 	private static final String PARAM_DB_CONNECTION_STRING = "db-connection-string"; 
@@ -68,6 +74,18 @@ public class CatvarDBLexicalResource extends LexicalResourceNothingToClose<RuleI
 	private static final  String CLUSTERS_TERMS_QUERY_STR = CLUSTERS_TERMS_QUERY_BEGIN + CLUSTERS_ID_QUERY_STR + CLUSTERS_TERMS_QUERY_END;
 	private static final  String CLUSTERS_TERMS_QUERY_STR_NO_POS = CLUSTERS_TERMS_QUERY_BEGIN + CLUSTERS_ID_QUERY_STR_NO_POS + CLUSTERS_TERMS_QUERY_END;
 
+	/**
+	 * batch version of {@link #CLUSTERS_TERMS_QUERY_STR}: retrieve the cluster terms of each of the lemmas of an <code>IN (...)</code> list
+	 * (given as {@link #BATCH_LEMMAS}), with the lemma they were retrieved for
+	 */
+	private static final String BATCH_LEMMAS = "#LEMMAS#";
+	private static final String BATCH_CLUSTERS_ID_QUERY_STR = "SELECT cluster_id, pos, lemma AS queried_lemma FROM cluster_term ct, term " +
+			"WHERE term.term_id = ct.term_id and " +
+			"lemma IN (" + BATCH_LEMMAS + ")";
+	private static final String BATCH_CLUSTERS_TERMS_QUERY_BEGIN = "select lemma, term.pos, termClusters.pos, termClusters.queried_lemma FROM term, cluster_term ct, (";
+	private static final String BATCH_CLUSTERS_TERMS_QUERY_STR = BATCH_CLUSTERS_TERMS_QUERY_BEGIN + BATCH_CLUSTERS_ID_QUERY_STR + " and pos = ?" + CLUSTERS_TERMS_QUERY_END;
+	private static final String BATCH_CLUSTERS_TERMS_QUERY_STR_NO_POS = BATCH_CLUSTERS_TERMS_QUERY_BEGIN + BATCH_CLUSTERS_ID_QUERY_STR + CLUSTERS_TERMS_QUERY_END;
+
 	private static final String X_CLUSTERS_QUERY_BEGIN = "SELECT leftTermClusters.cluster_id, leftTermClusters.pos, rightTermClusters.pos FROM (";
 	private static final String X_CLUSTERS_QUERY_MIDDLE = ") leftTermClusters, (";
 	private static final String X_CLUSTERS_QUERY_END = ") rightTermClusters WHERE leftTermClusters.cluster_id = rightTermClusters.cluster_id ";
@@ -83,6 +101,8 @@ public class CatvarDBLexicalResource extends LexicalResourceNothingToClose<RuleI
 	private final PreparedStatement common_terms_stmt;
 	private final PreparedStatement common_terms_stmt_no_pos;
 	
+	private final Connection con;
+	
 	protected static final RuleInfo EMPTY_RULE_INFO = EmptyRuleInfo.getInstance();
 
 	/**
@@ -113,9 +133,19 @@ public class CatvarDBLexicalResource extends LexicalResourceNothingToClose<RuleI
 	@Deprecated
 	public CatvarDBLexicalResource(String dbConnectionString, String dbUser, String dbPassword) throws LexicalResourceException 
 	{
+		this(getConnection(dbConnectionString, dbUser, dbPassword));
+	}
+	
+	/**
+	 * Ctor over an open connection to the catvar database (or a stand-in of it)
+	 * @param con
+	 * @throws LexicalResourceException
+	 */
+	CatvarDBLexicalResource(Connection con) throws LexicalResourceException 
+	{
+		this.con = con;
 		try
 		{
-			Connection con = DriverManager.getConnection(dbConnectionString, dbUser, dbPassword);
 			common_terms_stmt = con.prepareStatement(CLUSTERS_TERMS_QUERY_STR);
 			common_terms_stmt_no_pos = con.prepareStatement(CLUSTERS_TERMS_QUERY_STR_NO_POS);
 			common_clusters_stmt = con.prepareStatement(constructXClustersQueryString(CLUSTERS_ID_QUERY_STR,CLUSTERS_ID_QUERY_STR));
@@ -123,8 +153,7 @@ public class CatvarDBLexicalResource extends LexicalResourceNothingToClose<RuleI
 			common_clusters_stmt_no_left_pos = con.prepareStatement(constructXClustersQueryString(CLUSTERS_ID_QUERY_STR_NO_POS,CLUSTERS_ID_QUERY_STR));  
 			common_clusters_stmt_no_right_pos = con.prepareStatement(constructXClustersQueryString(CLUSTERS_ID_QUERY_STR,CLUSTERS_ID_QUERY_STR_NO_POS));  
 		} catch (SQLException e) 	{ 
-			throw new LexicalResourceException("Couldn't open and use a connection with this connection string: " + dbConnectionString +
-					" and credentials: " + dbUser + "/" + dbPassword, e);	}
+			throw new LexicalResourceException("Couldn't prepare the catvar queries with the connection " + con, e);	}
 	}
 
 	/* (non-Javadoc)
@@ -174,40 +203,27 @@ public class CatvarDBLexicalResource extends LexicalResourceNothingToClose<RuleI
 		return rules;
 	}
 
+	/* (non-Javadoc)
+	 * @see eu.excitementproject.eop.common.component.lexicalknowledge.BatchLexicalResource#getRulesForRight(java.util.Collection)
+	 */
+	public Map<LemmaPos, List<LexicalRule<? extends RuleInfo>>> getRulesForRight(Collection<LemmaPos> terms) throws LexicalResourceException {
+		return getRules(terms, true);
+	}
+
+	/* (non-Javadoc)
+	 * @see eu.excitementproject.eop.common.component.lexicalknowledge.BatchLexicalResource#getRulesForLeft(java.util.Collection)
+	 */
+	public Map<LemmaPos, List<LexicalRule<? extends RuleInfo>>> getRulesForLeft(Collection<LemmaPos> terms) throws LexicalResourceException {
+		return getRules(terms, false);
+	}
+
 	/**
 	 * return the catvar POS matching the given POS. if null, return all POSs
 	 * @param pos
 	 * @return
 	 */
 	public String toShortPos(PartOfSpeech pos) {
-		{
-			if (pos == null)
-				return null;
-			else
-				switch(simplerPos(pos.getCanonicalPosTag()) )
-				{
-				case ADJECTIVE:
-					return "a";
-				case ADVERB:
-					return "r";
-				case DETERMINER:
-					return "d";
-				case NOUN:
-					return "n";
-				case VERB:
-					return "v";
-				case PREPOSITION:
-					return "p";
-				case PRONOUN:
-					return "pro";
-				case PUNCTUATION:
-					return "punc";
-				case OTHER:
-					return "o";
-				default:
-					return "o";
-				}
-		}
+		return CatvarPosUtils.toShortPos(pos);
 	}
 	
 	////////////////////////////////////////// PRIVATE ////////////////////////////////////////////////////////////////
@@ -263,6 +279,118 @@ public class CatvarDBLexicalResource extends LexicalResourceNothingToClose<RuleI
 		return rules;
 	}
 		
+	/**
+	 * The batch version of {@link #getRules(String, PartOfSpeech, boolean)}: one query for all the lemmas of the same catvar POS.<br>
+	 * The rows are matched to the lemmas ignoring case, like the (case insensitive) comparison of the DB.
+	 * 
+	 * @param terms
+	 * @param isRHS
+	 * @return
+	 * @throws LexicalResourceException
+	 */
+	private Map<LemmaPos, List<LexicalRule<? extends RuleInfo>>> getRules(Collection<LemmaPos> terms, boolean isRHS) throws LexicalResourceException 
+	{
+		// the lemmas of each catvar POS (the null POS is a wildcard)
+		Map<String, Set<String>> lemmasByShortPos = new LinkedHashMap<String, Set<String>>();
+		for (LemmaPos term : terms)
+		{
+			String shortPos = toShortPos(term.getPos());
+			Set<String> lemmas = lemmasByShortPos.get(shortPos);
+			if (lemmas == null)
+			{
+				lemmas = new LinkedHashSet<String>();
+				lemmasByShortPos.put(shortPos, lemmas);
+			}
+			lemmas.add(term.getLemma());
+		}
+		
+		Map<String, Map<String, List<String[]>>> rowsByShortPos = new LinkedHashMap<String, Map<String, List<String[]>>>();
+		for (Map.Entry<String, Set<String>> entry : lemmasByShortPos.entrySet())
+		{
+			Map<String, List<String[]>> rows = new LinkedHashMap<String, List<String[]>>();
+			List<String> lemmas = new ArrayList<String>(entry.getValue());
+			for (int start = 0; start < lemmas.size(); start += BatchLexicalResourceUtils.MAXIMUM_TERMS_PER_QUERY)
+				queryBatch(lemmas.subList(start, Math.min(lemmas.size(), start + BatchLexicalResourceUtils.MAXIMUM_TERMS_PER_QUERY)), entry.getKey(), rows);
+			rowsByShortPos.put(entry.getKey(), rows);
+		}
+		
+		Map<LemmaPos, List<LexicalRule<? extends RuleInfo>>> rulesByTerm = new LinkedHashMap<LemmaPos, List<LexicalRule<? extends RuleInfo>>>();
+		for (LemmaPos term : terms)
+		{
+			if (rulesByTerm.containsKey(term)) continue;
+			String lemma = term.getLemma();
+			List<LexicalRule<? extends RuleInfo>> rules = new Vector<LexicalRule<? extends RuleInfo>>();
+			List<String[]> rows = rowsByShortPos.get(toShortPos(term.getPos())).get(lemma.toLowerCase());
+			if (rows != null)
+			{
+				for (String[] row : rows)
+				{
+					String otherLemma = row[0];	
+					PartOfSpeech otherPos = toPartOfSpeech(row[1]);
+					PartOfSpeech posFromQuery = toPartOfSpeech(row[2]); // it's possible that pos is null, so we take the POS from the result
+
+					if (!lemma.equals(otherLemma) || !posFromQuery.equals(otherPos))	// don't create a reflexive rule
+					{
+						rules.add( isRHS ? 	
+							new LexicalRule<RuleInfo>(otherLemma, otherPos, lemma, posFromQuery, null, RESOURCE_NAME, EMPTY_RULE_INFO) 
+								:
+							new LexicalRule<RuleInfo>(lemma, posFromQuery, otherLemma, otherPos, null, RESOURCE_NAME, EMPTY_RULE_INFO) 
+						);
+					}
+				}
+			}
+			rulesByTerm.put(term, rules);
+		}
+		return rulesByTerm;
+	}
+	
+	/**
+	 * Query the cluster terms of the given lemmas, and add the rows {@code <lemma, pos, queried pos>} to <code>rows</code>, by the 
+	 * lower case of the lemma they were retrieved for
+	 * 
+	 * @param lemmas
+	 * @param shortPos may be null
+	 * @param rows
+	 * @throws LexicalResourceException
+	 */
+	private void queryBatch(List<String> lemmas, String shortPos, Map<String, List<String[]>> rows) throws LexicalResourceException
+	{
+		StringBuilder inList = new StringBuilder();
+		for (int index = 0; index < lemmas.size(); index++)
+			inList.append(index == 0 ? "?" : ", ?");
+		String query = (shortPos == null ? BATCH_CLUSTERS_TERMS_QUERY_STR_NO_POS : BATCH_CLUSTERS_TERMS_QUERY_STR).replace(BATCH_LEMMAS, inList.toString());
+		try
+		{
+			PreparedStatement stmt = con.prepareStatement(query);
+			try
+			{
+				int index = 1;
+				for (String lemma : lemmas)
+					stmt.setString(index++, lemma);
+				if (shortPos != null)
+					stmt.setString(index, shortPos);
+				ResultSet rs = stmt.executeQuery();
+				while (rs.next())
+				{
+					String key = rs.getString(4).toLowerCase();
+					List<String[]> lemmaRows = rows.get(key);
+					if (lemmaRows == null)
+					{
+						lemmaRows = new ArrayList<String[]>();
+						rows.put(key, lemmaRows);
+					}
+					lemmaRows.add(new String[] {rs.getString(1), rs.getString(2), rs.getString(3)});
+				}
+				rs.close();
+			}
+			finally
+			{
+				stmt.close();
+			}
+		}
+		catch (SQLException e) 	{	throw new LexicalResourceException("Error executing the query " + query, e);	}
+	}
+		
 	/**
 	 * @param lemma
 	 * @param shortPos
@@ -340,6 +468,23 @@ public class CatvarDBLexicalResource extends LexicalResourceNothingToClose<RuleI
 		return stmt;
 	}
 	
+	/**
+	 * @param dbConnectionString
+	 * @param dbUser
+	 * @param dbPassword
+	 * @return a connection to the catvar database
+	 * @throws LexicalResourceException
+	 */
+	private static Connection getConnection(String dbConnectionString, String dbUser, String dbPassword) throws LexicalResourceException
+	{
+		try
+		{
+			return DriverManager.getConnection(dbConnectionString, dbUser, dbPassword);
+		} catch (SQLException e) 	{ 
+			throw new LexicalResourceException("Couldn't open and use a connection with this connection string: " + dbConnectionString +
+					" and credentials: " + dbUser + "/" + dbPassword, e);	}
+	}
+	
 	/**
 	 * @param otherShortPos
 	 * @return
@@ -347,46 +492,7 @@ public class CatvarDBLexicalResource extends LexicalResourceNothingToClose<RuleI
 	 */
 	private PartOfSpeech toPartOfSpeech(String shortPos) throws LexicalResourceException
 	{
-	 	SimplerCanonicalPosTag canonicalPosTag;
-		 
-		 switch(shortPos.charAt(0) )
-		 {
-			case 'a':
-				canonicalPosTag = SimplerCanonicalPosTag.ADJECTIVE;
-				 break;
-	
-			 case 'r':
-				 canonicalPosTag = SimplerCanonicalPosTag.ADVERB;
-				 break;
-
-			 case 'd':
-				 canonicalPosTag = SimplerCanonicalPosTag.DETERMINER;
-				 break;
-	
-			 case 'n':
-				 canonicalPosTag = SimplerCanonicalPosTag.NOUN;
-				 break;
-			
-			 case 'v':
-				 canonicalPosTag = SimplerCanonicalPosTag.VERB;
-				 break;
-
-			 default:
-			 	if (shortPos.equals("p"))
-		 			canonicalPosTag = SimplerCanonicalPosTag.PREPOSITION;
-			 	else if (shortPos.equals("pro"))
-			 			canonicalPosTag = SimplerCanonicalPosTag.PRONOUN;
-			 	else if (shortPos.equals("punc"))
-			 		canonicalPosTag = SimplerCanonicalPosTag.PUNCTUATION;
-			 	else
-			 		canonicalPosTag = SimplerCanonicalPosTag.OTHER;
-		 }
-		 try {
-			return new BySimplerCanonicalPartOfSpeech(canonicalPosTag);
-		} catch (UnsupportedPosTagStringException e) 
-		{
-			throw new LexicalResourceException("This is some strange bug regarding UnspecifiedPartOfSpeech", e);
-		}
+		return CatvarPosUtils.toPartOfSpeech(shortPos);
 	}
 	
 	/**
@@ -0,0 +1,148 @@
+package eu.excitementproject.eop.core.component.lexicalknowledge.catvardb;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Vector;
+
+import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalResource;
+import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalResourceException;
+import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalRule;
+import eu.excitementproject.eop.common.component.lexicalknowledge.RuleInfo;
+import eu.excitementproject.eop.common.representation.partofspeech.PartOfSpeech;
+import eu.excitementproject.eop.common.utilities.configuration.ConfigurationException;
+import eu.excitementproject.eop.common.utilities.configuration.ConfigurationParams;
+import eu.excitementproject.eop.common.utilities.file.MappedRecordsFile;
+import eu.excitementproject.eop.core.component.lexicalknowledge.EmptyRuleInfo;
+import eu.excitementproject.eop.core.component.lexicalknowledge.LexicalResourceNothingToClose;
+
+/**
+ * This {@link LexicalResource} returns the same rules as {@link CatvarDBLexicalResource}, but reads them from a {@link MappedRecordsFile}
+ * exported from the catvar database by {@link CatvarDBFileExporter}, instead of querying the database.
+ * <p>
+ * The file maps each lemma (in lower case, since the database compares lemmas ignoring case) to the terms of its catvar <i>clusters</i>.
+ * Each record is {@code <other lemma, other pos, pos of the lemma>}, where the POSs are catvar POSs.
+ * <p>
+ * <b>Thread safe</b>
+ */
+public class CatvarFileLexicalResource extends LexicalResourceNothingToClose<RuleInfo>
+{
+	public static final String PARAM_CATVAR_DB_FILE = "catvar-db-file";
+
+	/**
+	 * Ctor
+	 * @param params must contain {@link #PARAM_CATVAR_DB_FILE}
+	 * @throws LexicalResourceException
+	 * @throws ConfigurationException
+	 */
+	public CatvarFileLexicalResource(ConfigurationParams params) throws LexicalResourceException, ConfigurationException
+	{
+		this(params.getFile(PARAM_CATVAR_DB_FILE));
+	}
+
+	/**
+	 * Ctor
+	 * @param catvarFile a file written by {@link CatvarDBFileExporter}
+	 * @throws LexicalResourceException
+	 */
+	public CatvarFileLexicalResource(File catvarFile) throws LexicalResourceException
+	{
+		try
+		{
+			this.catvarFile = new MappedRecordsFile(catvarFile);
+		}
+		catch (IOException e)
+		{
+			throw new LexicalResourceException("Could not read the catvar file " + catvarFile, e);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see eu.excitementproject.eop.common.component.lexicalknowledge.LexicalResource#getRulesForRight(java.lang.String, eu.excitementproject.eop.common.representation.partofspeech.PartOfSpeech)
+	 */
+	public List<LexicalRule<? extends RuleInfo>> getRulesForRight(String lemma, PartOfSpeech pos) throws LexicalResourceException {
+		return getRules(lemma, pos, true);
+	}
+
+	/* (non-Javadoc)
+	 * @see eu.excitementproject.eop.common.component.lexicalknowledge.LexicalResource#getRulesForLeft(java.lang.String, eu.excitementproject.eop.common.representation.partofspeech.PartOfSpeech)
+	 */
+	public List<LexicalRule<? extends RuleInfo>> getRulesForLeft(String lemma, PartOfSpeech pos) throws LexicalResourceException {
+		return getRules(lemma, pos, false);
+	}
+
+	/* (non-Javadoc)
+	 * @see eu.excitementproject.eop.common.component.lexicalknowledge.LexicalResource#getRules(java.lang.String, eu.excitementproject.eop.common.representation.partofspeech.PartOfSpeech, java.lang.String, eu.excitementproject.eop.common.representation.partofspeech.PartOfSpeech)
+	 */
+	public List<LexicalRule<? extends RuleInfo>> getRules(String lLemma, PartOfSpeech lPos, String rLemma, PartOfSpeech rPos) throws LexicalResourceException
+	{
+		if (lLemma == null)
+			throw new LexicalResourceException("got null lLemma");
+		if (rLemma == null)
+			throw new LexicalResourceException("got null rLemma");
+		String shortLPos = CatvarPosUtils.toShortPos(lPos);
+		String shortRPos = CatvarPosUtils.toShortPos(rPos);
+
+		// a rule for each cluster that has both terms
+		List<LexicalRule<? extends RuleInfo>> rules = new Vector<LexicalRule<? extends RuleInfo>>();
+		for (ByteBuffer record : catvarFile.getRecords(lLemma.toLowerCase()))
+		{
+			String otherLemma = MappedRecordsFile.getString(record);
+			String otherShortPos = MappedRecordsFile.getString(record);
+			String lemmaShortPos = MappedRecordsFile.getString(record);
+			if (otherLemma.equalsIgnoreCase(rLemma) &&
+					(shortLPos == null || shortLPos.equals(lemmaShortPos)) &&
+					(shortRPos == null || shortRPos.equals(otherShortPos)))
+				rules.add(new LexicalRule<RuleInfo>(lLemma, CatvarPosUtils.toPartOfSpeech(lemmaShortPos), rLemma, CatvarPosUtils.toPartOfSpeech(otherShortPos),
+						null, RESOURCE_NAME, EMPTY_RULE_INFO));
+		}
+		return rules;
+	}
+
+	////////////////////////////////////////// PRIVATE ////////////////////////////////////////////////////////////////
+
+	private static final String RESOURCE_NAME = "Catvar";
+	private static final RuleInfo EMPTY_RULE_INFO = EmptyRuleInfo.getInstance();
+
+	private final MappedRecordsFile catvarFile;
+
+	/**
+	 * Retrieve all the catvar rules that feature the given lemma+pos in either their left or right side.<br>
+	 * the pos may be null, to signify a wildcard
+	 *
+	 * @param lemma
+	 * @param pos
+	 * @param isRHS
+	 * @return
+	 * @throws LexicalResourceException
+	 */
+	private List<LexicalRule<? extends RuleInfo>> getRules(String lemma, PartOfSpeech pos, boolean isRHS) throws LexicalResourceException
+	{
+		if (lemma == null)
+			throw new LexicalResourceException("got null lemma");
+		String shortPos = CatvarPosUtils.toShortPos(pos);
+
+		List<LexicalRule<? extends RuleInfo>> rules = new Vector<LexicalRule<? extends RuleInfo>>();
+		for (ByteBuffer record : catvarFile.getRecords(lemma.toLowerCase()))
+		{
+			String otherLemma = MappedRecordsFile.getString(record);
+			String otherShortPos = MappedRecordsFile.getString(record);
+			String lemmaShortPos = MappedRecordsFile.getString(record);
+			if (shortPos != null && !shortPos.equals(lemmaShortPos))
+				continue;
+
+			PartOfSpeech otherPos = CatvarPosUtils.toPartOfSpeech(otherShortPos);
+			PartOfSpeech posFromFile = CatvarPosUtils.toPartOfSpeech(lemmaShortPos); // it's possible that pos is null, so we take the POS from the file
+			if (!lemma.equals(otherLemma) || !posFromFile.equals(otherPos))	// don't create a reflexive rule
+			{
+				rules.add( isRHS ?
+					new LexicalRule<RuleInfo>(otherLemma, otherPos, lemma, posFromFile, null, RESOURCE_NAME, EMPTY_RULE_INFO)
+						:
+					new LexicalRule<RuleInfo>(lemma, posFromFile, otherLemma, otherPos, null, RESOURCE_NAME, EMPTY_RULE_INFO)
+				);
+			}
+		}
+		return rules;
+	}
+}
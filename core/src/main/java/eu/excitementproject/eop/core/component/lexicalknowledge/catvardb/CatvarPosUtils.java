@@ -0,0 +1,105 @@
+package eu.excitementproject.eop.core.component.lexicalknowledge.catvardb;
+
+import static eu.excitementproject.eop.common.representation.partofspeech.SimplerPosTagConvertor.simplerPos;
+
+import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalResourceException;
+import eu.excitementproject.eop.common.representation.partofspeech.BySimplerCanonicalPartOfSpeech;
+import eu.excitementproject.eop.common.representation.partofspeech.PartOfSpeech;
+import eu.excitementproject.eop.common.representation.partofspeech.SimplerCanonicalPosTag;
+import eu.excitementproject.eop.common.representation.partofspeech.UnsupportedPosTagStringException;
+
+/**
+ * Converts between {@link PartOfSpeech}s and the POSs of the catvar database ('a', 'n', 'r', 'v' etc.), for
+ * {@link CatvarDBLexicalResource} and {@link CatvarFileLexicalResource}.
+ */
+final class CatvarPosUtils
+{
+	/**
+	 * return the catvar POS matching the given POS. if null, return all POSs
+	 * @param pos
+	 * @return
+	 */
+	static String toShortPos(PartOfSpeech pos) {
+		{
+			if (pos == null)
+				return null;
+			else
+				switch(simplerPos(pos.getCanonicalPosTag()) )
+				{
+				case ADJECTIVE:
+					return "a";
+				case ADVERB:
+					return "r";
+				case DETERMINER:
+					return "d";
+				case NOUN:
+					return "n";
+				case VERB:
+					return "v";
+				case PREPOSITION:
+					return "p";
+				case PRONOUN:
+					return "pro";
+				case PUNCTUATION:
+					return "punc";
+				case OTHER:
+					return "o";
+				default:
+					return "o";
+				}
+		}
+	}
+
+	/**
+	 * @param shortPos
+	 * @return
+	 * @throws LexicalResourceException
+	 */
+	static PartOfSpeech toPartOfSpeech(String shortPos) throws LexicalResourceException
+	{
+	 	SimplerCanonicalPosTag canonicalPosTag;
+
+		 switch(shortPos.charAt(0) )
+		 {
+			case 'a':
+				canonicalPosTag = SimplerCanonicalPosTag.ADJECTIVE;
+				 break;
+
+			 case 'r':
+				 canonicalPosTag = SimplerCanonicalPosTag.ADVERB;
+				 break;
+
+			 case 'd':
+				 canonicalPosTag = SimplerCanonicalPosTag.DETERMINER;
+				 break;
+
+			 case 'n':
+				 canonicalPosTag = SimplerCanonicalPosTag.NOUN;
+				 break;
+
+			 case 'v':
+				 canonicalPosTag = SimplerCanonicalPosTag.VERB;
+				 break;
+
+			 default:
+			 	if (shortPos.equals("p"))
+		 			canonicalPosTag = SimplerCanonicalPosTag.PREPOSITION;
+			 	else if (shortPos.equals("pro"))
+			 			canonicalPosTag = SimplerCanonicalPosTag.PRONOUN;
+			 	else if (shortPos.equals("punc"))
+			 		canonicalPosTag = SimplerCanonicalPosTag.PUNCTUATION;
+			 	else
+			 		canonicalPosTag = SimplerCanonicalPosTag.OTHER;
+		 }
+		 try {
+			return new BySimplerCanonicalPartOfSpeech(canonicalPosTag);
+		} catch (UnsupportedPosTagStringException e)
+		{
+			throw new LexicalResourceException("This is some strange bug regarding UnspecifiedPartOfSpeech", e);
+		}
+	}
+
+	private CatvarPosUtils()
+	{
+	}
+}
@@ -4,6 +4,7 @@
 package eu.excitementproject.eop.core.component.lexicalknowledge.similarity;
 import static eu.excitementproject.eop.common.representation.partofspeech.SimplerPosTagConvertor.simplerPos;
 
+import java.io.File;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.PreparedStatement;
@@ -73,7 +74,8 @@ public abstract class AbstractDirectLexicalResource extends AbstractSimilarityLe
 	 */
 	public AbstractDirectLexicalResource(ConfigurationParams params) throws LexicalResourceException, ConfigurationException
 	{
-		this(params.getString(PARAM_CONNECTION_STRING), null, null, params.getInt(PARAM_RULES_LIMIT));
+		this(params.containsKey(PARAM_LOCAL_INDEX_FILE) ? null : params.getString(PARAM_CONNECTION_STRING), null, null,
+				params.containsKey(PARAM_LOCAL_INDEX_FILE) ? params.getFile(PARAM_LOCAL_INDEX_FILE) : null, params.getInt(PARAM_RULES_LIMIT));
 	}
 	
 	/**
@@ -87,15 +89,33 @@ public abstract class AbstractDirectLexicalResource extends AbstractSimilarityLe
 	 */
 	public AbstractDirectLexicalResource(String connStr, String user, String password, int limitOnRetrievedRules) throws LexicalResourceException
 	{
-		super(limitOnRetrievedRules);
-		PreparedStatement getRulesForLeftStmt_noun;
-		PreparedStatement getRulesForLeftStmt_verb;
-		PreparedStatement getRulesForRightStmt_noun;
-		PreparedStatement getRulesForRightStmt_verb;
-		PreparedStatement getScoresStmt_noun;
-		PreparedStatement getScoresStmt_verb;
+		this(connStr, user, password, null, limitOnRetrievedRules);
+	}
+	
+	/**
+	 * Ctor of a resource that reads its tables from a local index, instead of the DB
+	 * @param localIndexFile a local index written by {@link SimilarityTablesFileExporter}
+	 * @param limitOnRetrievedRules  must be non negative. zero means all rules matching the query will be retrieved. 
+	 * A positive value X means that only the top X rules are retrieved. 
+	 * @throws LexicalResourceException
+	 */
+	public AbstractDirectLexicalResource(File localIndexFile, int limitOnRetrievedRules) throws LexicalResourceException
+	{
+		this(null, null, null, localIndexFile, limitOnRetrievedRules);
+	}
+	
+	private AbstractDirectLexicalResource(String connStr, String user, String password, File localIndexFile, int limitOnRetrievedRules) throws LexicalResourceException
+	{
+		super(limitOnRetrievedRules, localIndexFile);
+		// the statements are null when reading a local index
+		PreparedStatement getRulesForLeftStmt_noun = null;
+		PreparedStatement getRulesForLeftStmt_verb = null;
+		PreparedStatement getRulesForRightStmt_noun = null;
+		PreparedStatement getRulesForRightStmt_verb = null;
+		PreparedStatement getScoresStmt_noun = null;
+		PreparedStatement getScoresStmt_verb = null;
 
-		try
+		if (localIndexFile == null) try
 		{
 			Class.forName(JDBC_DRIVER_CLASS).newInstance();
 			con = (user != null && password != null?
@@ -118,14 +138,14 @@ public abstract class AbstractDirectLexicalResource extends AbstractSimilarityLe
 			throw new LexicalResourceException("Could not instantiate the JDBC driver: " + JDBC_DRIVER_CLASS + " " + e.toString());
 		}
 		
-		final PreparedStatementAndPos GET_RULES_FOR_RIGHT_STMT_NOUN_WITH_POS = new PreparedStatementAndPos(getRulesForRightStmt_noun, NOUN );
-		final PreparedStatementAndPos GET_RULES_FOR_RIGHT_STMT_VERB_WITH_POS = new PreparedStatementAndPos(getRulesForRightStmt_verb, VERB );
+		final PreparedStatementAndPos GET_RULES_FOR_RIGHT_STMT_NOUN_WITH_POS = new PreparedStatementAndPos(getRulesForRightStmt_noun, NOUN, getNounTableName() );
+		final PreparedStatementAndPos GET_RULES_FOR_RIGHT_STMT_VERB_WITH_POS = new PreparedStatementAndPos(getRulesForRightStmt_verb, VERB, getVerbTableName() );
 		
-		final PreparedStatementAndPos GET_RULES_FOR_LEFT_STMT_NOUN_WITH_POS = new PreparedStatementAndPos(getRulesForLeftStmt_noun, NOUN );
-		final PreparedStatementAndPos GET_RULES_FOR_LEFT_STMT_VERB_WITH_POS = new PreparedStatementAndPos(getRulesForLeftStmt_verb, VERB );
+		final PreparedStatementAndPos GET_RULES_FOR_LEFT_STMT_NOUN_WITH_POS = new PreparedStatementAndPos(getRulesForLeftStmt_noun, NOUN, getNounTableName() );
+		final PreparedStatementAndPos GET_RULES_FOR_LEFT_STMT_VERB_WITH_POS = new PreparedStatementAndPos(getRulesForLeftStmt_verb, VERB, getVerbTableName() );
 
-		final PreparedStatementAndPos GET_SCORES_STMT_NOUN_WITH_POS = new PreparedStatementAndPos(getScoresStmt_noun, NOUN );
-		final PreparedStatementAndPos GET_SCORES_STMT_VERB_WITH_POS = new PreparedStatementAndPos(getScoresStmt_verb, VERB );
+		final PreparedStatementAndPos GET_SCORES_STMT_NOUN_WITH_POS = new PreparedStatementAndPos(getScoresStmt_noun, NOUN, getNounTableName() );
+		final PreparedStatementAndPos GET_SCORES_STMT_VERB_WITH_POS = new PreparedStatementAndPos(getScoresStmt_verb, VERB, getVerbTableName() );
 
 		
 		ALL_RULES_FOR_RIGHT_STMTS.add(GET_RULES_FOR_RIGHT_STMT_VERB_WITH_POS);
@@ -144,15 +164,26 @@ public abstract class AbstractDirectLexicalResource extends AbstractSimilarityLe
 		VERB_SCORE_STMT_SET .add(GET_SCORES_STMT_VERB_WITH_POS);
 	}
 	
+	@Override
 	public void close() throws LexicalResourceCloseException
 	{
 		try
 		{
-			this.con.close();
+			super.close();	// the statements of the threads
 		}
-		catch (SQLException e)
+		finally
 		{
-			throw new LexicalResourceCloseException("DB failed to close the connection.",e);
+			if (con != null)	// not a local index
+			{
+				try
+				{
+					this.con.close();
+				}
+				catch (SQLException e)
+				{
+					throw new LexicalResourceCloseException("DB failed to close the connection.",e);
+				}
+			}
 		}
 	}
 
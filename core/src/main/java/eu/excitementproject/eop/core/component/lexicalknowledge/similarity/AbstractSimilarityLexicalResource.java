@@ -1,23 +1,42 @@
 package eu.excitementproject.eop.core.component.lexicalknowledge.similarity;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import eu.excitementproject.eop.core.component.lexicalknowledge.EmptyRuleInfo;
 import eu.excitementproject.eop.core.component.lexicalknowledge.LexicalResourceNothingToClose;
+import eu.excitementproject.eop.common.component.lexicalknowledge.BatchLexicalResource;
+import eu.excitementproject.eop.common.component.lexicalknowledge.BatchLexicalResourceUtils;
+import eu.excitementproject.eop.common.component.lexicalknowledge.LemmaPos;
 import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalResource;
+import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalResourceCloseException;
 import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalResourceException;
 import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalRule;
 import eu.excitementproject.eop.common.component.lexicalknowledge.RuleInfo;
+import eu.excitementproject.eop.common.component.lexicalknowledge.TopRulesLexicalResource;
+import eu.excitementproject.eop.common.component.lexicalknowledge.TopRulesLexicalResourceUtils;
 import eu.excitementproject.eop.common.representation.partofspeech.BySimplerCanonicalPartOfSpeech;
 import eu.excitementproject.eop.common.representation.partofspeech.PartOfSpeech;
 import eu.excitementproject.eop.common.representation.partofspeech.SimplerCanonicalPosTag;
 import eu.excitementproject.eop.common.representation.partofspeech.UnsupportedPosTagStringException;
 import eu.excitementproject.eop.common.utilities.configuration.ConfigurationParams;
+import eu.excitementproject.eop.common.utilities.file.MappedRecordsFile;
 
 
 /**
@@ -31,6 +50,18 @@ import eu.excitementproject.eop.common.utilities.configuration.ConfigurationPara
  * <p>
  *  The int Ctor parameter <code>limitOnRetrievedRules</code> must be non negative. zero means all rules matching the query will be retrieved. 
  * A positive value X means that only the top X rules are retrieved.
+ * <p>
+ * The batch queries of {@link BatchLexicalResource} query each table once (per {@link BatchLexicalResourceUtils#MAXIMUM_TERMS_PER_QUERY}
+ * lemmas), with a <code>UNION ALL</code> of one sub-query per lemma, each with its own <code>LIMIT</code>, so that the limit on the
+ * retrieved rules applies to each lemma, like in its single query. This needs the rule statements of the subclass to know their table
+ * (see {@link PreparedStatementAndPos#getTableName()}). Otherwise, the lemmas are queried one by one.
+ * <p>
+ * The queries of {@link TopRulesLexicalResource} push the limit and the minimum similarity into the SQL query. The statements of the
+ * tables are prepared once per thread (and table and query), so that threads sharing the resource do not share statements.
+ * <p>
+ * Instead of the DB, the resource may read its tables from a <i>local index</i>: a {@link MappedRecordsFile} exported from the
+ * DB with {@link SimilarityTablesFileExporter}, whose lookups are done in-process. The subclasses support it with a ctor that
+ * gets the file, or with the {@link #PARAM_LOCAL_INDEX_FILE} parameter.
  * <P>
  * See also: http://irsrv2/wiki/index.php/Lexical_Resources
  * 
@@ -38,7 +69,7 @@ import eu.excitementproject.eop.common.utilities.configuration.ConfigurationPara
  * @since 16/05/2011
  * 
  */
-public abstract class AbstractSimilarityLexicalResource extends LexicalResourceNothingToClose<RuleInfo>
+public abstract class AbstractSimilarityLexicalResource extends LexicalResourceNothingToClose<RuleInfo> implements BatchLexicalResource<RuleInfo>, TopRulesLexicalResource<RuleInfo>
 {
 	protected static final String DIGIT_REPLACEMENT = "@";
 	protected static final RuleInfo EMPTY_RULE_INFO = EmptyRuleInfo.getInstance();
@@ -47,12 +78,41 @@ public abstract class AbstractSimilarityLexicalResource extends LexicalResourceN
 	 * A positive value X means that only the top X rules are retrieved.  
 	 */
 	protected static final String PARAM_RULES_LIMIT = "limit on retrieved rules";
+	/**
+	 * name of an optional {@link ConfigurationParams} file parameter: a local index written by {@link SimilarityTablesFileExporter}, to read
+	 * the rules from instead of the DB  
+	 */
+	protected static final String PARAM_LOCAL_INDEX_FILE = "local index file";
+	/**
+	 * the minimum similarity of {@link #getRulesForSide(String, PartOfSpeech, boolean)}, which retrieves rules of any similarity
+	 */
+	private static final double NO_MINIMUM_SIMILARITY = Double.NEGATIVE_INFINITY;
 	
 	protected final String RESOURCE_NAME = getResourceName();
 	/**
 	 * the sql clause at the end of a statement that goes " ... limit X"
 	 */
 	private final String LIMIT_CLAUSE;
+	private final int limitOnRetrievedRules;
+	/**
+	 * the tables of the DB, or null if the tables are read from the DB
+	 */
+	protected final MappedRecordsFile localIndex;
+	/**
+	 * the statements prepared by each thread, by their query
+	 */
+	private final ThreadLocal<Map<String, PreparedStatement>> threadStatements = new ThreadLocal<Map<String, PreparedStatement>>()
+	{
+		@Override
+		protected Map<String, PreparedStatement> initialValue()
+		{
+			return new HashMap<String, PreparedStatement>();
+		}
+	};
+	/**
+	 * all the statements of {@link #threadStatements}, of all the threads, to be closed by {@link #close()}
+	 */
+	private final Queue<PreparedStatement> allThreadStatements = new ConcurrentLinkedQueue<PreparedStatement>();
 
 	protected final PartOfSpeech ADJECTIVE;
 	protected final PartOfSpeech NOUN;
@@ -69,6 +129,17 @@ public abstract class AbstractSimilarityLexicalResource extends LexicalResourceN
 	 * @throws LexicalResourceException 
 	 */
 	public AbstractSimilarityLexicalResource(int limitOnRetrievedRules) throws LexicalResourceException {
+		this(limitOnRetrievedRules, null);
+	}
+	
+	/**
+	 * Ctor
+	 * @param limitOnRetrievedRules 
+	 * @param localIndexFile a local index written by {@link SimilarityTablesFileExporter}, or null to query the DB. When reading a local index,
+	 * the {@link PreparedStatementAndPos}s of the subclass need no statements, but must have the names of their tables.
+	 * @throws LexicalResourceException 
+	 */
+	protected AbstractSimilarityLexicalResource(int limitOnRetrievedRules, File localIndexFile) throws LexicalResourceException {
 		try {
 			ADJECTIVE = new BySimplerCanonicalPartOfSpeech(SimplerCanonicalPosTag.ADJECTIVE);
 			NOUN = new BySimplerCanonicalPartOfSpeech(SimplerCanonicalPosTag.NOUN);
@@ -80,6 +151,15 @@ public abstract class AbstractSimilarityLexicalResource extends LexicalResourceN
 		if (limitOnRetrievedRules < 0)
 			throw new LexicalResourceException("the limitOnRetrievedRules must be positive, or zero to mean 'no limit'. I got " + limitOnRetrievedRules);
 		LIMIT_CLAUSE = (limitOnRetrievedRules > 0 ? " LIMIT " + limitOnRetrievedRules : "");
+		this.limitOnRetrievedRules = limitOnRetrievedRules;
+		
+		if (localIndexFile == null)
+			localIndex = null;
+		else
+		{
+			try 					{	localIndex = new MappedRecordsFile(localIndexFile);	}
+			catch (IOException e) 	{	throw new LexicalResourceException("Error reading the local index " + localIndexFile, e);	}
+		}
 	}
 	/**
 	 * replace digits with '@'
@@ -104,38 +184,120 @@ public abstract class AbstractSimilarityLexicalResource extends LexicalResourceN
 	 */
 	protected List<LexicalRule<? extends RuleInfo>> getRulesForSide(String lemma,	PartOfSpeech pos, boolean isRHS) throws LexicalResourceException
 	{
+		return getRulesForSide(lemma, pos, isRHS, 0, NO_MINIMUM_SIMILARITY);
+	}
+	
+	/**
+	 * Like {@link #getRulesForSide(String, PartOfSpeech, boolean)}, but retrieve from each table only the <code>maximumRules</code> rules 
+	 * (if positive, and up to the limit of the ctor) with the highest similarity, and only rules with at least <code>minimumSimilarity</code>.
+	 * The rules of each table are in decreasing order of similarity. 
+	 * 
+	 * @param lemma
+	 * @param pos
+	 * @param isRHS
+	 * @param maximumRules
+	 * @param minimumSimilarity
+	 * @return
+	 * @throws LexicalResourceException
+	 */
+	protected List<LexicalRule<? extends RuleInfo>> getRulesForSide(String lemma,	PartOfSpeech pos, boolean isRHS, int maximumRules, double minimumSimilarity) 
+			throws LexicalResourceException
+	{
+		if (maximumRules < 0)
+			throw new LexicalResourceException("the maximum number of rules must be positive, or zero to mean 'no limit'. I got " + maximumRules);
+		int limit = (limitOnRetrievedRules > 0 && (maximumRules == 0 || limitOnRetrievedRules < maximumRules)) ? limitOnRetrievedRules : maximumRules;
+		
 		lemma = cleanLemma(lemma);
 		List<LexicalRule<? extends RuleInfo>> rules = new Vector<LexicalRule<? extends RuleInfo>>();
 		
 		Set<PreparedStatementAndPos> stmts = posToRulesStmts(pos, isRHS);	// it's possible the pos doesn't match any table, and we have an empty set
 		for (PreparedStatementAndPos stmtAndPos : stmts)	
 		{
-			PreparedStatement stmt = stmtAndPos.getStmt();
-			ResultSet rs;
-			try 					
+			List<LemmaAndScore> rows = (localIndex != null) ?
+					lookUpLocalIndex(stmtAndPos, lemma, isRHS, limit, minimumSimilarity)
+					:
+					queryRules(stmtAndPos, lemma, isRHS, limit, minimumSimilarity);
+			
+			// create a rule for each result
+			PartOfSpeech posFromQuery = stmtAndPos.getPos();
+			for (LemmaAndScore row : rows)
+			{
+				rules.add( isRHS ? 	new LexicalRule<RuleInfo>(row.lemma, posFromQuery, lemma, posFromQuery, row.score, null, RESOURCE_NAME, EMPTY_RULE_INFO) 
+								:
+									new LexicalRule<RuleInfo>(lemma, posFromQuery, row.lemma, posFromQuery, row.score, null, RESOURCE_NAME, EMPTY_RULE_INFO) ); 
+			}
+		}
+		return rules;
+	}
+	
+	/**
+	 * The batch version of {@link #getRulesForSide(String, PartOfSpeech, boolean)}: each statement (table) is queried once for all the 
+	 * lemmas that use it. The rules of each lemma are the same as those of {@link #getRulesForSide(String, PartOfSpeech, boolean)}, 
+	 * including the limit of the ctor, which applies to each lemma; but rules of equal similarity may be in a different order (and, at 
+	 * the limit, another one of them may be kept). The rows are matched to the lemmas ignoring case, like the (case insensitive)
+	 * comparison of the DB.
+	 * 
+	 * @param terms
+	 * @param isRHS
+	 * @return
+	 * @throws LexicalResourceException
+	 */
+	protected Map<LemmaPos, List<LexicalRule<? extends RuleInfo>>> getRulesForSide(Collection<LemmaPos> terms, boolean isRHS) throws LexicalResourceException
+	{
+		// the lookups of the local index are in-process, so there is nothing to gain from a batch
+		if (localIndex != null)
+			return BatchLexicalResourceUtils.getRulesOneByOne(this, terms, isRHS);
+		
+		// the cleaned lemmas of each statement
+		Map<PreparedStatementAndPos, Set<String>> lemmasByStmt = new LinkedHashMap<PreparedStatementAndPos, Set<String>>();
+		for (LemmaPos term : terms)
+		{
+			for (PreparedStatementAndPos stmtAndPos : posToRulesStmts(term.getPos(), isRHS))
 			{
-				// query for this lemma+pos  
-				stmt.setString(1, lemma);
-				rs = stmt.executeQuery();	
-			} 
-			catch (SQLException e) 	{	throw new LexicalResourceException("Error executing the query " + stmt,e);	}
-			try 					
+				if (stmtAndPos.getTableName() == null)
+					return BatchLexicalResourceUtils.getRulesOneByOne(this, terms, isRHS);
+				Set<String> lemmas = lemmasByStmt.get(stmtAndPos);
+				if (lemmas == null)
+				{
+					lemmas = new LinkedHashSet<String>();
+					lemmasByStmt.put(stmtAndPos, lemmas);
+				}
+				lemmas.add(cleanLemma(term.getLemma()));
+			}
+		}
+		
+		// the rows of each statement, by the lower case of the queried lemma
+		Map<PreparedStatementAndPos, Map<String, List<LemmaAndScore>>> rowsByStmt = new LinkedHashMap<PreparedStatementAndPos, Map<String, List<LemmaAndScore>>>();
+		for (Map.Entry<PreparedStatementAndPos, Set<String>> entry : lemmasByStmt.entrySet())
+		{
+			Map<String, List<LemmaAndScore>> rows = new LinkedHashMap<String, List<LemmaAndScore>>();
+			for (List<String> lemmas : partition(new ArrayList<String>(entry.getValue())))
 			{
-				// create a rule for each result
-				if(rs.first()) do {
-					String otherLemma = rs.getString(1);
-					double score;	 
-					try 							{score = Double.parseDouble( rs.getString(2) );	} 
-					catch (NumberFormatException e) {throw new LexicalResourceException("Database error: this is not a double " + rs.getString(1), e);	}
-					PartOfSpeech posFromQuery = stmtAndPos.getPos();
-					rules.add( isRHS ? 	new LexicalRule<RuleInfo>(otherLemma, posFromQuery, lemma, posFromQuery, score, null, RESOURCE_NAME, EMPTY_RULE_INFO) 
+				queryBatch(entry.getKey(), lemmas, isRHS, rows);
+			}
+			rowsByStmt.put(entry.getKey(), rows);
+		}
+		
+		// create the rules of each term, in the order of its statements
+		Map<LemmaPos, List<LexicalRule<? extends RuleInfo>>> rules = new LinkedHashMap<LemmaPos, List<LexicalRule<? extends RuleInfo>>>();
+		for (LemmaPos term : terms)
+		{
+			if (rules.containsKey(term)) continue;
+			String lemma = cleanLemma(term.getLemma());
+			List<LexicalRule<? extends RuleInfo>> termRules = new Vector<LexicalRule<? extends RuleInfo>>();
+			for (PreparedStatementAndPos stmtAndPos : posToRulesStmts(term.getPos(), isRHS))
+			{
+				List<LemmaAndScore> rows = rowsByStmt.get(stmtAndPos).get(lemma.toLowerCase());
+				if (rows == null) continue;
+				PartOfSpeech posFromQuery = stmtAndPos.getPos();
+				for (LemmaAndScore row : rows)
+				{
+					termRules.add( isRHS ? 	new LexicalRule<RuleInfo>(row.lemma, posFromQuery, lemma, posFromQuery, row.score, null, RESOURCE_NAME, EMPTY_RULE_INFO) 
 									:
-										new LexicalRule<RuleInfo>(lemma, posFromQuery, otherLemma, posFromQuery, score, null, RESOURCE_NAME, EMPTY_RULE_INFO) ); 
-				} while (rs.next());
-
-//				rs.close();
+										new LexicalRule<RuleInfo>(lemma, posFromQuery, row.lemma, posFromQuery, row.score, null, RESOURCE_NAME, EMPTY_RULE_INFO) );
+				}
 			}
-			catch (SQLException e) 	{	throw new LexicalResourceException("Error reading the result set of the query " + stmt,e);	}
+			rules.put(term, termRules);
 		}
 		return rules;
 	}
@@ -173,6 +335,22 @@ public abstract class AbstractSimilarityLexicalResource extends LexicalResourceN
 		return "SELECT " + SIM_COL() + " FROM " + tableName + " WHERE " + L_COL() + " = ? AND " + R_COL() + " = ? ORDER BY " + SIM_COL() + " DESC" + LIMIT_CLAUSE;
 	}
 	
+	/**
+	 * The query of {@link #getRulesForSide(String, PartOfSpeech, boolean, int, double)}. Its parameters are the lemma, then the minimum 
+	 * similarity (if <code>withMinimumSimilarity</code>), then the limit (if <code>withLimit</code>) 
+	 * 
+	 * @param tableName
+	 * @param isRHS
+	 * @param withMinimumSimilarity
+	 * @param withLimit
+	 * @return
+	 */
+	private String getTopRulesQueryStr(String tableName, boolean isRHS, boolean withMinimumSimilarity, boolean withLimit)
+	{
+		return "SELECT " + (isRHS ? L_COL() : R_COL()) + ", " + SIM_COL() + " FROM " + tableName + " WHERE " + (isRHS ? R_COL() : L_COL()) + " = ?" + 
+				(withMinimumSimilarity ? " AND " + SIM_COL() + " >= ?" : "") + " ORDER BY " + SIM_COL() + " DESC" + (withLimit ? " LIMIT ?" : "");
+	}
+	
 	///////////////////////////////////////////////// PUBLIC /////////////////////////////////////////////////////////////////////
 
 	/* (non-Javadoc)
@@ -191,6 +369,40 @@ public abstract class AbstractSimilarityLexicalResource extends LexicalResourceN
 		return getRulesForSide(lemma, pos, false);
 	}
 
+	/* (non-Javadoc)
+	 * @see eu.excitementproject.eop.common.component.lexicalknowledge.BatchLexicalResource#getRulesForRight(java.util.Collection)
+	 */
+	public Map<LemmaPos, List<LexicalRule<? extends RuleInfo>>> getRulesForRight(Collection<LemmaPos> terms) throws LexicalResourceException
+	{
+		return getRulesForSide(terms, true);
+	}
+	
+	/* (non-Javadoc)
+	 * @see eu.excitementproject.eop.common.component.lexicalknowledge.BatchLexicalResource#getRulesForLeft(java.util.Collection)
+	 */
+	public Map<LemmaPos, List<LexicalRule<? extends RuleInfo>>> getRulesForLeft(Collection<LemmaPos> terms) throws LexicalResourceException
+	{
+		return getRulesForSide(terms, false);
+	}
+	
+	/* (non-Javadoc)
+	 * @see eu.excitementproject.eop.common.component.lexicalknowledge.TopRulesLexicalResource#getTopRulesForRight(java.lang.String, eu.excitementproject.eop.common.representation.partofspeech.PartOfSpeech, int, double)
+	 */
+	public List<LexicalRule<? extends RuleInfo>> getTopRulesForRight(String lemma, PartOfSpeech pos, int maximumRules, double minimumConfidence) throws LexicalResourceException
+	{
+		// with several tables (POSs), the rules of all the tables are merged
+		return TopRulesLexicalResourceUtils.selectTopRules(getRulesForSide(lemma, pos, true, maximumRules, minimumConfidence), maximumRules, minimumConfidence);
+	}
+	
+	/* (non-Javadoc)
+	 * @see eu.excitementproject.eop.common.component.lexicalknowledge.TopRulesLexicalResource#getTopRulesForLeft(java.lang.String, eu.excitementproject.eop.common.representation.partofspeech.PartOfSpeech, int, double)
+	 */
+	public List<LexicalRule<? extends RuleInfo>> getTopRulesForLeft(String lemma, PartOfSpeech pos, int maximumRules, double minimumConfidence) throws LexicalResourceException
+	{
+		// with several tables (POSs), the rules of all the tables are merged
+		return TopRulesLexicalResourceUtils.selectTopRules(getRulesForSide(lemma, pos, false, maximumRules, minimumConfidence), maximumRules, minimumConfidence);
+	}
+
 	/* (non-Javadoc)
 	 * @see ac.biu.cs.nlp.lexical.resource.LexResource#getRules(java.lang.String, ac.biu.nlp.nlp.representation.PartOfSpeech, java.lang.String, ac.biu.nlp.nlp.representation.PartOfSpeech)
 	 */
@@ -207,36 +419,355 @@ public abstract class AbstractSimilarityLexicalResource extends LexicalResourceN
 			Set<PreparedStatementAndPos> stmts = posToScoreStmt(posForConstructingQuery);
 			for (PreparedStatementAndPos stmtAndPos : stmts)
 			{
-				ResultSet rs;
-				PreparedStatement stmt = stmtAndPos.getStmt();
-				try 					
+				Double score = (localIndex != null) ?
+						lookUpLocalIndex(stmtAndPos, lLemma, rLemma)
+						:
+						queryScore(stmtAndPos, lLemma, rLemma);
+				if (score != null)
 				{
-					// query for this lemma+pos, lemma+pos  
-					stmt.setString(1, lLemma);
-					stmt.setString(2, rLemma); 
-					rs = stmt.executeQuery();
-				} 
-				catch (SQLException e) 	{	throw new LexicalResourceException("Error executing the query " + stmt,e);	}
-				try 					
+					PartOfSpeech posFromQuery = stmtAndPos.getPos();
+					rules.add(new LexicalRule<RuleInfo>(lLemma, posFromQuery, rLemma, posFromQuery, score, null, RESOURCE_NAME, EMPTY_RULE_INFO));
+				}
+			}
+		}
+		return rules;
+	}
+	
+	/**
+	 * Close the statements that the threads prepared for their queries. Subclasses that override this method should call it too.
+	 */
+	@Override
+	public void close() throws LexicalResourceCloseException
+	{
+		SQLException firstException = null;
+		PreparedStatement stmt;
+		while ((stmt = allThreadStatements.poll()) != null)
+		{
+			try 					{	stmt.close();	}
+			catch (SQLException e) 	{	if (firstException == null) firstException = e;	}
+		}
+		if (firstException != null)
+			throw new LexicalResourceCloseException("Failed to close the statements of the threads", firstException);
+	}
+
+	///////////////////////////////////////////////////////////// PRIVATE ///////////////////////////////////////////////////////
+	
+	/**
+	 * Query the table of the given statement for the rules of the lemma, with a statement of this thread. If the table is unknown, use the
+	 * statement itself (with the limit of the ctor), and filter its rows.
+	 * 
+	 * @param stmtAndPos
+	 * @param lemma
+	 * @param isRHS
+	 * @param limit zero means no limit
+	 * @param minimumSimilarity
+	 * @return the rows, in decreasing order of similarity
+	 * @throws LexicalResourceException
+	 */
+	private List<LemmaAndScore> queryRules(PreparedStatementAndPos stmtAndPos, String lemma, boolean isRHS, int limit, double minimumSimilarity) throws LexicalResourceException
+	{
+		PreparedStatement stmt = stmtAndPos.getStmt();
+		try
+		{
+			if (stmtAndPos.getTableName() == null)
+			{
+				synchronized (stmt)
+				{
+					stmt.setString(1, lemma);
+					return readRules(stmt.executeQuery(), limit, minimumSimilarity);
+				}
+			}
+			
+			boolean withMinimumSimilarity = minimumSimilarity > NO_MINIMUM_SIMILARITY;
+			stmt = getThreadStatement(stmt.getConnection(), getTopRulesQueryStr(stmtAndPos.getTableName(), isRHS, withMinimumSimilarity, limit > 0));
+			int parameterIndex = 1;
+			stmt.setString(parameterIndex++, lemma);
+			if (withMinimumSimilarity)
+				stmt.setDouble(parameterIndex++, minimumSimilarity);
+			if (limit > 0)
+				stmt.setInt(parameterIndex++, limit);
+			return readRules(stmt.executeQuery(), limit, minimumSimilarity);
+		}
+		catch (SQLException e) 	{	throw new LexicalResourceException("Error executing the query " + stmt,e);	}
+	}
+	
+	/**
+	 * Read and close the result set of a rules query
+	 * 
+	 * @param rs
+	 * @param limit
+	 * @param minimumSimilarity
+	 * @return
+	 * @throws SQLException
+	 * @throws LexicalResourceException
+	 */
+	private List<LemmaAndScore> readRules(ResultSet rs, int limit, double minimumSimilarity) throws SQLException, LexicalResourceException
+	{
+		List<LemmaAndScore> rows = new ArrayList<LemmaAndScore>();
+		try
+		{
+			while ((limit == 0 || rows.size() < limit) && rs.next())
+			{
+				double score;	 
+				try 							{score = Double.parseDouble( rs.getString(2) );	} 
+				catch (NumberFormatException e) {throw new LexicalResourceException("Database error: this is not a double " + rs.getString(2), e);	}
+				if (score >= minimumSimilarity)
+					rows.add(new LemmaAndScore(rs.getString(1), score));
+			}
+		}
+		finally
+		{
+			rs.close();
+		}
+		return rows;
+	}
+	
+	/**
+	 * Query the table of the given score statement for the similarity of the two lemmas
+	 * 
+	 * @param stmtAndPos
+	 * @param lLemma
+	 * @param rLemma
+	 * @return null if there is no such rule
+	 * @throws LexicalResourceException
+	 */
+	private Double queryScore(PreparedStatementAndPos stmtAndPos, String lLemma, String rLemma) throws LexicalResourceException
+	{
+		PreparedStatement stmt = stmtAndPos.getStmt();
+		try
+		{
+			if (stmtAndPos.getTableName() == null)
+			{
+				synchronized (stmt)
+				{
+					return readScore(stmt, lLemma, rLemma);
+				}
+			}
+			stmt = getThreadStatement(stmt.getConnection(), getRulesForBothSidesQueryStr(stmtAndPos.getTableName()));
+			return readScore(stmt, lLemma, rLemma);
+		}
+		catch (SQLException e) 	{	throw new LexicalResourceException("Error executing the query " + stmt,e);	}
+	}
+	
+	private Double readScore(PreparedStatement stmt, String lLemma, String rLemma) throws SQLException, LexicalResourceException
+	{
+		// query for this lemma+pos, lemma+pos  
+		stmt.setString(1, lLemma);
+		stmt.setString(2, rLemma); 
+		ResultSet rs = stmt.executeQuery();
+		try
+		{
+			if (!rs.next())
+				return null;
+			double score;
+			try 							{score = Double.parseDouble( rs.getString(1) );	} 
+			catch (NumberFormatException e) {throw new LexicalResourceException("Database error: this is not a double " + rs.getString(1), e);	}
+			if (rs.next())
+				throw new LexicalResourceException("Bug alert! got two different lin rules featuring: " +
+						lLemma + ", " + rLemma + " using this query: " + stmt);
+			return score;
+		}
+		finally
+		{
+			rs.close();
+		}
+	}
+	
+	/**
+	 * @param con
+	 * @param query
+	 * @return the statement of this thread for the given query
+	 * @throws SQLException
+	 */
+	private PreparedStatement getThreadStatement(Connection con, String query) throws SQLException
+	{
+		Map<String, PreparedStatement> statements = threadStatements.get();
+		PreparedStatement stmt = statements.get(query);
+		if (stmt == null)
+		{
+			stmt = con.prepareStatement(query);
+			statements.put(query, stmt);
+			allThreadStatements.add(stmt);
+		}
+		return stmt;
+	}
+	
+	/**
+	 * Read the rules of the lemma from the local index. The records of each key are in decreasing order of similarity.
+	 * 
+	 * @param stmtAndPos
+	 * @param lemma
+	 * @param isRHS
+	 * @param limit zero means no limit
+	 * @param minimumSimilarity
+	 * @return
+	 * @throws LexicalResourceException
+	 */
+	private List<LemmaAndScore> lookUpLocalIndex(PreparedStatementAndPos stmtAndPos, String lemma, boolean isRHS, int limit, double minimumSimilarity) 
+			throws LexicalResourceException
+	{
+		List<LemmaAndScore> rows = new ArrayList<LemmaAndScore>();
+		for (ByteBuffer record : localIndex.getRecords(localIndexKey(getTableName(stmtAndPos), isRHS, lemma)))
+		{
+			if (limit > 0 && rows.size() >= limit)
+				break;
+			String otherLemma = MappedRecordsFile.getString(record);
+			double score = record.getDouble();
+			if (score < minimumSimilarity)
+				break;
+			rows.add(new LemmaAndScore(otherLemma, score));
+		}
+		return rows;
+	}
+	
+	/**
+	 * Read the similarity of the two lemmas from the local index
+	 * 
+	 * @param stmtAndPos
+	 * @param lLemma
+	 * @param rLemma
+	 * @return null if there is no such rule
+	 * @throws LexicalResourceException
+	 */
+	private Double lookUpLocalIndex(PreparedStatementAndPos stmtAndPos, String lLemma, String rLemma) throws LexicalResourceException
+	{
+		for (ByteBuffer record : localIndex.getRecords(localIndexKey(getTableName(stmtAndPos), false, lLemma)))
+		{
+			if (MappedRecordsFile.getString(record).equalsIgnoreCase(rLemma))
+				return record.getDouble();
+		}
+		return null;
+	}
+	
+	private static String getTableName(PreparedStatementAndPos stmtAndPos) throws LexicalResourceException
+	{
+		if (stmtAndPos.getTableName() == null)
+			throw new LexicalResourceException("Bug: a statement without a table name can't be looked up in the local index");
+		return stmtAndPos.getTableName();
+	}
+	
+	/**
+	 * @param tableName
+	 * @param isRHS
+	 * @param lemma
+	 * @return the key of the local index under which the rules of the given lemma and side, in the given table, are kept. The lemmas are 
+	 * in lower case, since the DB compares them ignoring case. 
+	 */
+	static String localIndexKey(String tableName, boolean isRHS, String lemma)
+	{
+		return tableName + (isRHS ? "\tR\t" : "\tL\t") + lemma.toLowerCase();
+	}
+	
+	/**
+	 * Query the table of the given statement for all the given lemmas, and add the rows (at most limitOnRetrievedRules per lemma, in 
+	 * decreasing order of similarity) to <code>rows</code>, by the lower case of the lemma they match.
+	 * <P>
+	 * The query is a union of one sub-query per lemma, each with the query's limit, so that the limit applies to each lemma (like in
+	 * {@link #getRulesForSide(String, PartOfSpeech, boolean)}) rather than to the whole batch, and no rows beyond it are read. 
+	 * Each sub-query selects the position of its lemma too, so the rows are matched to the queried lemma, whatever the collation of the DB 
+	 * considers equal to it.
+	 * 
+	 * @param stmtAndPos
+	 * @param lemmas
+	 * @param isRHS
+	 * @param rows
+	 * @throws LexicalResourceException
+	 */
+	private void queryBatch(PreparedStatementAndPos stmtAndPos, List<String> lemmas, boolean isRHS, Map<String, List<LemmaAndScore>> rows) throws LexicalResourceException
+	{
+		// the DB compares the lemmas ignoring case, so lemmas that differ only in case have the same rows
+		List<String> keys = new ArrayList<String>();
+		for (String lemma : lemmas)
+		{
+			String key = lemma.toLowerCase();
+			if (!rows.containsKey(key))
+			{
+				rows.put(key, new ArrayList<LemmaAndScore>());
+				keys.add(key);
+			}
+		}
+		if (keys.isEmpty())
+			return;
+		
+		String query = getBatchRulesQueryStr(stmtAndPos.getTableName(), isRHS, keys.size());
+		try
+		{
+			PreparedStatement stmt = stmtAndPos.getStmt().getConnection().prepareStatement(query);
+			try
+			{
+				for (int index = 0; index < keys.size(); index++)
+					stmt.setString(index + 1, keys.get(index));
+				ResultSet rs = stmt.executeQuery();
+				try
 				{
-					// create a rule for each result
-					if(rs.first())
+					while (rs.next())
 					{
-						double score;
-						try 							{score = Double.parseDouble( rs.getString(1) );	} 
-						catch (NumberFormatException e) {throw new LexicalResourceException("Database error: this is not a double " + rs.getString(1), e);	}
-						PartOfSpeech posFromQuery = stmtAndPos.getPos();
-						rules.add(new LexicalRule<RuleInfo>(lLemma, posFromQuery, rLemma, posFromQuery, score, null, RESOURCE_NAME, EMPTY_RULE_INFO));
-						if (rs.next())
-							throw new LexicalResourceException("Bug alert! got two different lin rules featuring: " +
-									lLemma + ", " + lPos + ", " + rLemma + ", " + rPos + " using this query: " + stmt);
+						List<LemmaAndScore> lemmaRows = rows.get(keys.get(rs.getInt(1)));
+						if (limitOnRetrievedRules > 0 && lemmaRows.size() >= limitOnRetrievedRules)
+							continue;
+						double score;	 
+						try 							{score = Double.parseDouble( rs.getString(3) );	} 
+						catch (NumberFormatException e) {throw new LexicalResourceException("Database error: this is not a double " + rs.getString(3), e);	}
+						lemmaRows.add(new LemmaAndScore(rs.getString(2), score));
 					}
+				}
+				finally
+				{
 					rs.close();
 				}
-				catch (SQLException e) 	{	throw new LexicalResourceException("Error reading the result set of the query " + stmt,e);	}
+			}
+			finally
+			{
+				stmt.close();
 			}
 		}
-		return rules;
+		catch (SQLException e) 	{	throw new LexicalResourceException("Error executing the query " + query, e);	}
+	}
+	
+	/**
+	 * The query of {@link #queryBatch(PreparedStatementAndPos, List, boolean, Map)}: the union of one sub-query per lemma, which is
+	 * the query of {@link #getRulesForSide(String, PartOfSpeech, boolean)} with the position of the lemma as the first column. 
+	 * Its parameters are the lemmas.
+	 * 
+	 * @param tableName
+	 * @param isRHS
+	 * @param numberOfLemmas
+	 * @return
+	 */
+	private String getBatchRulesQueryStr(String tableName, boolean isRHS, int numberOfLemmas)
+	{
+		String keyCol = isRHS ? R_COL() : L_COL();
+		String otherCol = isRHS ? L_COL() : R_COL();
+		StringBuilder query = new StringBuilder();
+		for (int index = 0; index < numberOfLemmas; index++)
+		{
+			if (index > 0)
+				query.append(" UNION ALL ");
+			query.append("(SELECT ").append(index).append(", ").append(otherCol).append(", ").append(SIM_COL())
+					.append(" FROM ").append(tableName).append(" WHERE ").append(keyCol).append(" = ? ORDER BY ").append(SIM_COL()).append(" DESC")
+					.append(LIMIT_CLAUSE).append(")");
+		}
+		// the rows of each lemma, in decreasing order of similarity
+		return query.append(" ORDER BY 1, 3 DESC").toString();
+	}
+	
+	private static List<List<String>> partition(List<String> lemmas)
+	{
+		List<List<String>> chunks = new ArrayList<List<String>>();
+		for (int start = 0; start < lemmas.size(); start += BatchLexicalResourceUtils.MAXIMUM_TERMS_PER_QUERY)
+			chunks.add(lemmas.subList(start, Math.min(lemmas.size(), start + BatchLexicalResourceUtils.MAXIMUM_TERMS_PER_QUERY)));
+		return chunks;
+	}
+	
+	private static final class LemmaAndScore
+	{
+		private LemmaAndScore(String lemma, double score)
+		{
+			this.lemma = lemma;
+			this.score = score;
+		}
+		private final String lemma;
+		private final double score;
 	}
 
 	///////////////////////////////////////////////////////////// protected abstract ///////////////////////////////////////////////////////
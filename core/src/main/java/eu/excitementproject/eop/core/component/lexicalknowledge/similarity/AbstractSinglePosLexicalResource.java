@@ -2,9 +2,14 @@
  * 
  */
 package eu.excitementproject.eop.core.component.lexicalknowledge.similarity;
+import java.io.File;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
+import eu.excitementproject.eop.common.component.lexicalknowledge.LemmaPos;
 import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalResourceException;
 import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalRule;
 import eu.excitementproject.eop.common.component.lexicalknowledge.RuleInfo;
@@ -33,6 +38,16 @@ public abstract class AbstractSinglePosLexicalResource extends AbstractSimilarit
 	public AbstractSinglePosLexicalResource(int limitOnRetrievedRules)	throws LexicalResourceException {
 		super(limitOnRetrievedRules);
 	}
+	
+	/**
+	 * Ctor
+	 * @param limitOnRetrievedRules
+	 * @param localIndexFile a local index written by {@link SimilarityTablesFileExporter}, or null to query the DB
+	 * @throws LexicalResourceException
+	 */
+	protected AbstractSinglePosLexicalResource(int limitOnRetrievedRules, File localIndexFile)	throws LexicalResourceException {
+		super(limitOnRetrievedRules, localIndexFile);
+	}
 
 	/* (non-Javadoc)
 	 * @see ac.biu.cs.nlp.lexical.resource.impl.AbstractLexResource#getRulesForRight(java.lang.String, ac.biu.nlp.nlp.representation.PartOfSpeech)
@@ -50,6 +65,40 @@ public abstract class AbstractSinglePosLexicalResource extends AbstractSimilarit
 		return changePosToOriginal(super.getRulesForLeft(lemma, getDEFAULT_POS()),pos);
 	}
 	
+	/* (non-Javadoc)
+	 * @see eu.excitementproject.eop.core.component.lexicalknowledge.similarity.AbstractSimilarityLexicalResource#getTopRulesForRight(java.lang.String, eu.excitementproject.eop.common.representation.partofspeech.PartOfSpeech, int, double)
+	 */
+	@Override
+	public List<LexicalRule<? extends RuleInfo>> getTopRulesForRight(String lemma, PartOfSpeech pos, int maximumRules, double minimumConfidence) throws LexicalResourceException {
+		return changePosToOriginal(super.getTopRulesForRight(lemma, getDEFAULT_POS(), maximumRules, minimumConfidence),pos);
+	}
+	
+	/* (non-Javadoc)
+	 * @see eu.excitementproject.eop.core.component.lexicalknowledge.similarity.AbstractSimilarityLexicalResource#getTopRulesForLeft(java.lang.String, eu.excitementproject.eop.common.representation.partofspeech.PartOfSpeech, int, double)
+	 */
+	@Override
+	public List<LexicalRule<? extends RuleInfo>> getTopRulesForLeft(String lemma, PartOfSpeech pos, int maximumRules, double minimumConfidence) throws LexicalResourceException {
+		return changePosToOriginal(super.getTopRulesForLeft(lemma, getDEFAULT_POS(), maximumRules, minimumConfidence),pos);
+	}
+	
+	/* (non-Javadoc)
+	 * @see eu.excitementproject.eop.core.component.lexicalknowledge.similarity.AbstractSimilarityLexicalResource#getRulesForSide(java.util.Collection, boolean)
+	 */
+	@Override
+	protected Map<LemmaPos, List<LexicalRule<? extends RuleInfo>>> getRulesForSide(Collection<LemmaPos> terms, boolean isRHS) throws LexicalResourceException {
+		// query all the lemmas with the default POS, and return the rules with the original POSs
+		List<LemmaPos> defaultPosTerms = new ArrayList<LemmaPos>(terms.size());
+		for (LemmaPos term : terms)
+			defaultPosTerms.add(new LemmaPos(term.getLemma(), getDEFAULT_POS()));
+		Map<LemmaPos, List<LexicalRule<? extends RuleInfo>>> defaultPosRules = super.getRulesForSide(defaultPosTerms, isRHS);
+		
+		Map<LemmaPos, List<LexicalRule<? extends RuleInfo>>> rules = new LinkedHashMap<LemmaPos, List<LexicalRule<? extends RuleInfo>>>();
+		for (LemmaPos term : terms)
+			if (!rules.containsKey(term))
+				rules.put(term, changePosToOriginal(defaultPosRules.get(new LemmaPos(term.getLemma(), getDEFAULT_POS())), term.getPos()));
+		return rules;
+	}
+	
 	/**
 	 * Convenience method for retrieving rules without specifying the parts of speech - as all methods of this class ignore them. 
 	 * 
@@ -2,6 +2,7 @@
  * 
  */
 package eu.excitementproject.eop.core.component.lexicalknowledge.similarity;
+import java.io.File;
 import java.util.List;
 
 import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalResourceException;
@@ -79,6 +80,16 @@ public class Direct1000LexicalResource extends AbstractDirectLexicalResource {
 	public Direct1000LexicalResource(String connStr, String user,	String password, int limitOnRetrievedRules) throws LexicalResourceException {
 		super(connStr, user, password, limitOnRetrievedRules);
 	}
+	
+	/**
+	 * Ctor of a resource that reads its tables from a local index, instead of the DB
+	 * @param localIndexFile a local index written by {@link SimilarityTablesFileExporter}
+	 * @param limitOnRetrievedRules 
+	 * @throws LexicalResourceException
+	 */
+	public Direct1000LexicalResource(File localIndexFile, int limitOnRetrievedRules) throws LexicalResourceException {
+		super(localIndexFile, limitOnRetrievedRules);
+	}
 
 	/* (non-Javadoc)
 	 * @see ac.biu.cs.nlp.lexical.resource.impl.similarity.AbstractDirectLexicalResource#getNounTableName()
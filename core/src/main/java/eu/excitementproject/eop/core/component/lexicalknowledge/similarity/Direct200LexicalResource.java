@@ -2,6 +2,7 @@
  * 
  */
 package eu.excitementproject.eop.core.component.lexicalknowledge.similarity;
+import java.io.File;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
@@ -77,6 +78,16 @@ public class Direct200LexicalResource extends AbstractDirectLexicalResource
 		super(connStr, user, password, limitOnRetrievedRules);
 	}
 	
+	/**
+	 * Ctor of a resource that reads its tables from a local index, instead of the DB
+	 * @param localIndexFile a local index written by {@link SimilarityTablesFileExporter}
+	 * @param limitOnRetrievedRules 
+	 * @throws LexicalResourceException
+	 */
+	public Direct200LexicalResource(File localIndexFile, int limitOnRetrievedRules) throws LexicalResourceException {
+		super(localIndexFile, limitOnRetrievedRules);
+	}
+	
 	private static final String RESOURCE_NAME = "Direct200";
 
 	private static final String NOUN_TABLE = "nouns_200"; 
@@ -4,6 +4,7 @@
 package eu.excitementproject.eop.core.component.lexicalknowledge.similarity;
 import static eu.excitementproject.eop.common.representation.partofspeech.SimplerPosTagConvertor.simplerPos;
 
+import java.io.File;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.PreparedStatement;
@@ -92,18 +93,35 @@ public class LinDependencyOriginalLexicalResource extends AbstractSimilarityLexi
 	 */
 	public LinDependencyOriginalLexicalResource(String connStr, String user, String password, int limitOnRetrievedRules) throws LexicalResourceException
 	{
-		super(limitOnRetrievedRules);
-		PreparedStatement getRulesForLeftStmt_noun;
-		PreparedStatement getRulesForLeftStmt_verb;
-		PreparedStatement getRulesForLeftStmt_adjective;
-		PreparedStatement getRulesForRightStmt_noun;
-		PreparedStatement getRulesForRightStmt_verb;
-		PreparedStatement getRulesForRightStmt_adjective;
-		PreparedStatement getScoresStmt_noun;
-		PreparedStatement getScoresStmt_verb;
-		PreparedStatement getScoresStmt_adjective;
+		this(connStr, user, password, null, limitOnRetrievedRules);
+	}
+	
+	/**
+	 * Ctor of a resource that reads its tables from a local index, instead of the DB
+	 * @param localIndexFile a local index written by {@link SimilarityTablesFileExporter}
+	 * @param limitOnRetrievedRules
+	 * @throws LexicalResourceException
+	 */
+	public LinDependencyOriginalLexicalResource(File localIndexFile, int limitOnRetrievedRules) throws LexicalResourceException
+	{
+		this(null, null, null, localIndexFile, limitOnRetrievedRules);
+	}
+	
+	private LinDependencyOriginalLexicalResource(String connStr, String user, String password, File localIndexFile, int limitOnRetrievedRules) throws LexicalResourceException
+	{
+		super(limitOnRetrievedRules, localIndexFile);
+		// the statements are null when reading a local index
+		PreparedStatement getRulesForLeftStmt_noun = null;
+		PreparedStatement getRulesForLeftStmt_verb = null;
+		PreparedStatement getRulesForLeftStmt_adjective = null;
+		PreparedStatement getRulesForRightStmt_noun = null;
+		PreparedStatement getRulesForRightStmt_verb = null;
+		PreparedStatement getRulesForRightStmt_adjective = null;
+		PreparedStatement getScoresStmt_noun = null;
+		PreparedStatement getScoresStmt_verb = null;
+		PreparedStatement getScoresStmt_adjective = null;
 
-		try
+		if (localIndexFile == null) try
 		{
 			Connection con = DriverManager.getConnection(connStr, user, password);
 			getRulesForLeftStmt_noun 		= con.prepareStatement(getRulesForLeftQueryStr(NOUN_TABLE));
@@ -120,17 +138,17 @@ public class LinDependencyOriginalLexicalResource extends AbstractSimilarityLexi
 					" and credentials: " + user + "/" + password, e);	
 		}
 		
-		final PreparedStatementAndPos GET_RULES_FOR_RIGHT_STMT_ADJECTIVE_WITH_POS = new PreparedStatementAndPos(getRulesForRightStmt_adjective, ADJECTIVE );
-		final PreparedStatementAndPos GET_RULES_FOR_RIGHT_STMT_NOUN_WITH_POS = new PreparedStatementAndPos(getRulesForRightStmt_noun, NOUN );
-		final PreparedStatementAndPos GET_RULES_FOR_RIGHT_STMT_VERB_WITH_POS = new PreparedStatementAndPos(getRulesForRightStmt_verb, VERB );
+		final PreparedStatementAndPos GET_RULES_FOR_RIGHT_STMT_ADJECTIVE_WITH_POS = new PreparedStatementAndPos(getRulesForRightStmt_adjective, ADJECTIVE, ADJECTIVE_TABLE );
+		final PreparedStatementAndPos GET_RULES_FOR_RIGHT_STMT_NOUN_WITH_POS = new PreparedStatementAndPos(getRulesForRightStmt_noun, NOUN, NOUN_TABLE );
+		final PreparedStatementAndPos GET_RULES_FOR_RIGHT_STMT_VERB_WITH_POS = new PreparedStatementAndPos(getRulesForRightStmt_verb, VERB, VERB_TABLE );
 		
-		final PreparedStatementAndPos GET_RULES_FOR_LEFT_STMT_ADJECTIVE_WITH_POS = new PreparedStatementAndPos(getRulesForLeftStmt_adjective, ADJECTIVE );
-		final PreparedStatementAndPos GET_RULES_FOR_LEFT_STMT_NOUN_WITH_POS = new PreparedStatementAndPos(getRulesForLeftStmt_noun, NOUN );
-		final PreparedStatementAndPos GET_RULES_FOR_LEFT_STMT_VERB_WITH_POS = new PreparedStatementAndPos(getRulesForLeftStmt_verb, VERB );
+		final PreparedStatementAndPos GET_RULES_FOR_LEFT_STMT_ADJECTIVE_WITH_POS = new PreparedStatementAndPos(getRulesForLeftStmt_adjective, ADJECTIVE, ADJECTIVE_TABLE );
+		final PreparedStatementAndPos GET_RULES_FOR_LEFT_STMT_NOUN_WITH_POS = new PreparedStatementAndPos(getRulesForLeftStmt_noun, NOUN, NOUN_TABLE );
+		final PreparedStatementAndPos GET_RULES_FOR_LEFT_STMT_VERB_WITH_POS = new PreparedStatementAndPos(getRulesForLeftStmt_verb, VERB, VERB_TABLE );
 
-		final PreparedStatementAndPos GET_SCORES_STMT_ADJECTIVE_WITH_POS = new PreparedStatementAndPos(getScoresStmt_adjective, ADJECTIVE );
-		final PreparedStatementAndPos GET_SCORES_STMT_NOUN_WITH_POS = new PreparedStatementAndPos(getScoresStmt_noun, NOUN );
-		final PreparedStatementAndPos GET_SCORES_STMT_VERB_WITH_POS = new PreparedStatementAndPos(getScoresStmt_verb, VERB );
+		final PreparedStatementAndPos GET_SCORES_STMT_ADJECTIVE_WITH_POS = new PreparedStatementAndPos(getScoresStmt_adjective, ADJECTIVE, ADJECTIVE_TABLE );
+		final PreparedStatementAndPos GET_SCORES_STMT_NOUN_WITH_POS = new PreparedStatementAndPos(getScoresStmt_noun, NOUN, NOUN_TABLE );
+		final PreparedStatementAndPos GET_SCORES_STMT_VERB_WITH_POS = new PreparedStatementAndPos(getScoresStmt_verb, VERB, VERB_TABLE );
 		
 		SET_OF_ALL_RIGHT_STMTS.add(GET_RULES_FOR_RIGHT_STMT_ADJECTIVE_WITH_POS);
 		SET_OF_ALL_RIGHT_STMTS.add(GET_RULES_FOR_RIGHT_STMT_NOUN_WITH_POS);
@@ -157,9 +175,10 @@ public class LinDependencyOriginalLexicalResource extends AbstractSimilarityLexi
 	public LinDependencyOriginalLexicalResource(ConfigurationParams params) throws LexicalResourceException, ConfigurationException
 	{
 		this(
-				params.getString(PARAM_CONNECTION_STRING),
-				params.getString(PARAM_USER),
-				params.getString(PARAM_PASSWORD),
+				params.containsKey(PARAM_LOCAL_INDEX_FILE) ? null : params.getString(PARAM_CONNECTION_STRING),
+				params.containsKey(PARAM_LOCAL_INDEX_FILE) ? null : params.getString(PARAM_USER),
+				params.containsKey(PARAM_LOCAL_INDEX_FILE) ? null : params.getString(PARAM_PASSWORD),
+				params.containsKey(PARAM_LOCAL_INDEX_FILE) ? params.getFile(PARAM_LOCAL_INDEX_FILE) : null,
 				params.getInt(PARAM_RULES_LIMIT)
 				);
 	}
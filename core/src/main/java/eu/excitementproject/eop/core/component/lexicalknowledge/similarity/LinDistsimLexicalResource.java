@@ -76,7 +76,8 @@ public class LinDistsimLexicalResource extends AbstractSinglePosLexicalResource
 	 */
 	public LinDistsimLexicalResource(ConfigurationParams params) throws LexicalResourceException, ConfigurationException
 	{
-		this(params.getString(PARAM_CONNECTION_STRING), null, null, params.getInt(PARAM_RULES_LIMIT)	);
+		this(params.containsKey(PARAM_LOCAL_INDEX_FILE) ? null : params.getString(PARAM_CONNECTION_STRING), null, null,
+				params.containsKey(PARAM_LOCAL_INDEX_FILE) ? params.getFile(PARAM_LOCAL_INDEX_FILE) : null, params.getInt(PARAM_RULES_LIMIT)	);
 	}
 	
 	/**
@@ -92,17 +93,33 @@ public class LinDistsimLexicalResource extends AbstractSinglePosLexicalResource
 	 */
 	public LinDistsimLexicalResource(String connStr, String user, String password, int limitOnRetrievedRules) throws LexicalResourceException
 	{
-		super(limitOnRetrievedRules);
+		this(connStr, user, password, null, limitOnRetrievedRules);
+	}
+	
+	/**
+	 * Ctor of a resource that reads its table from a local index, instead of the DB
+	 * @param localIndexFile a local index written by {@link SimilarityTablesFileExporter}
+	 * @param limitOnRetrievedRules
+	 * @throws LexicalResourceException
+	 */
+	public LinDistsimLexicalResource(File localIndexFile, int limitOnRetrievedRules) throws LexicalResourceException
+	{
+		this(null, null, null, localIndexFile, limitOnRetrievedRules);
+	}
+	
+	private LinDistsimLexicalResource(String connStr, String user, String password, File localIndexFile, int limitOnRetrievedRules) throws LexicalResourceException
+	{
+		super(limitOnRetrievedRules, localIndexFile);
 		
 		// DEFAULT_POS must be initialized first thing, cos subsequent statements read it
 		try 										{ DEFAULT_POS = new BySimplerCanonicalPartOfSpeech(SimplerCanonicalPosTag.NOUN);	} 
 		catch (UnsupportedPosTagStringException e) 	{ throw new LexicalResourceException("Bug: couldn't construct a new UnspecifiedPartOfSpeech(SimplerCanonicalPosTag.OTHER)",e);		}		
 		
-		PreparedStatement getRulesForLeftStmt;
-		PreparedStatement getRulesForRightStmt;
-		PreparedStatement getScoresStmt;
+		PreparedStatement getRulesForLeftStmt = null;	// the statements are null when reading a local index
+		PreparedStatement getRulesForRightStmt = null;
+		PreparedStatement getScoresStmt = null;
 		
-		try
+		if (localIndexFile == null) try
 		{
 			Connection con = DriverManager.getConnection(connStr, user, password);
 			getRulesForLeftStmt = con.prepareStatement(getRulesForLeftQueryStr(getTable()));
@@ -112,9 +129,9 @@ public class LinDistsimLexicalResource extends AbstractSinglePosLexicalResource
 			throw new LexicalResourceException("Couldn't open and use a connection with this connection string: " + connStr +
 					" and credentials: " + user + "/" + password, e);	}
 
-		setOfGetRulesForLeftStmt.add(new PreparedStatementAndPos(getRulesForLeftStmt, getDEFAULT_POS()));
-		setOfGetRulesForRightStmt.add(new PreparedStatementAndPos(getRulesForRightStmt, getDEFAULT_POS()));
-		setOfGetScoresStmt.add(new PreparedStatementAndPos(getScoresStmt, getDEFAULT_POS())) ;
+		setOfGetRulesForLeftStmt.add(new PreparedStatementAndPos(getRulesForLeftStmt, getDEFAULT_POS(), getTable()));
+		setOfGetRulesForRightStmt.add(new PreparedStatementAndPos(getRulesForRightStmt, getDEFAULT_POS(), getTable()));
+		setOfGetScoresStmt.add(new PreparedStatementAndPos(getScoresStmt, getDEFAULT_POS(), getTable())) ;
 	}
 
 	///////////////////////////////////////////////////////////// PRIVATE METHODS ///////////////////////////////////////////////////////
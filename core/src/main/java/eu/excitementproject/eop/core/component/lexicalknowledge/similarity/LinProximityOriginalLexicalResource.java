@@ -1,5 +1,6 @@
 package eu.excitementproject.eop.core.component.lexicalknowledge.similarity;
 
+import java.io.File;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.PreparedStatement;
@@ -60,7 +61,8 @@ public class LinProximityOriginalLexicalResource extends AbstractSinglePosLexica
 	 */
 	public LinProximityOriginalLexicalResource(ConfigurationParams params) throws LexicalResourceException, ConfigurationException 
 	{
-		this(params.getString(PARAM_CONNECTION_STRING), null, null, params.getInt(PARAM_RULES_LIMIT)	);
+		this(params.containsKey(PARAM_LOCAL_INDEX_FILE) ? null : params.getString(PARAM_CONNECTION_STRING), null, null,
+				params.containsKey(PARAM_LOCAL_INDEX_FILE) ? params.getFile(PARAM_LOCAL_INDEX_FILE) : null, params.getInt(PARAM_RULES_LIMIT)	);
 	}	
 
 	/**
@@ -76,17 +78,33 @@ public class LinProximityOriginalLexicalResource extends AbstractSinglePosLexica
 	 */
 	public LinProximityOriginalLexicalResource(String connStr, String user, String password, int limitOnRetrievedRules) throws LexicalResourceException
 	{
-		super(limitOnRetrievedRules);
+		this(connStr, user, password, null, limitOnRetrievedRules);
+	}
+	
+	/**
+	 * Ctor of a resource that reads its table from a local index, instead of the DB
+	 * @param localIndexFile a local index written by {@link SimilarityTablesFileExporter}
+	 * @param limitOnRetrievedRules
+	 * @throws LexicalResourceException
+	 */
+	public LinProximityOriginalLexicalResource(File localIndexFile, int limitOnRetrievedRules) throws LexicalResourceException
+	{
+		this(null, null, null, localIndexFile, limitOnRetrievedRules);
+	}
+	
+	private LinProximityOriginalLexicalResource(String connStr, String user, String password, File localIndexFile, int limitOnRetrievedRules) throws LexicalResourceException
+	{
+		super(limitOnRetrievedRules, localIndexFile);
 		
 		// DEFAULT_POS must be initialized first thing, cos subsequent statements read it
 		try 										{ DEFAULT_POS = new BySimplerCanonicalPartOfSpeech(SimplerCanonicalPosTag.OTHER);	} 
 		catch (UnsupportedPosTagStringException e) 	{ throw new LexicalResourceException("Bug: couldn't construct a new UnspecifiedPartOfSpeech(SimplerCanonicalPosTag.OTHER)",e);		}
 		
-		PreparedStatement getRulesForLeftStmt;
-		PreparedStatement getRulesForRightStmt;
-		PreparedStatement getScoresStmt;
+		PreparedStatement getRulesForLeftStmt = null;	// the statements are null when reading a local index
+		PreparedStatement getRulesForRightStmt = null;
+		PreparedStatement getScoresStmt = null;
 		
-		try
+		if (localIndexFile == null) try
 		{
 			Connection con = DriverManager.getConnection(connStr, user, password);
 			getRulesForLeftStmt = con.prepareStatement(getRulesForLeftQueryStr(TABLE));
@@ -96,9 +114,9 @@ public class LinProximityOriginalLexicalResource extends AbstractSinglePosLexica
 			throw new LexicalResourceException("Couldn't open and use a connection with this connection string: " + connStr +
 					" and credentials: " + user + "/" + password, e);	}
 
-		setOfGetRulesForLeftStmt.add(new PreparedStatementAndPos(getRulesForLeftStmt, getDEFAULT_POS()));
-		setOfGetRulesForRightStmt.add(new PreparedStatementAndPos(getRulesForRightStmt, getDEFAULT_POS()));
-		setOfGetScoresStmt.add(new PreparedStatementAndPos(getScoresStmt, getDEFAULT_POS())) ;
+		setOfGetRulesForLeftStmt.add(new PreparedStatementAndPos(getRulesForLeftStmt, getDEFAULT_POS(), TABLE));
+		setOfGetRulesForRightStmt.add(new PreparedStatementAndPos(getRulesForRightStmt, getDEFAULT_POS(), TABLE));
+		setOfGetScoresStmt.add(new PreparedStatementAndPos(getScoresStmt, getDEFAULT_POS(), TABLE)) ;
 	}
 
 	///////////////////////////////////////////////////////////// PROTECTED METHODS ///////////////////////////////////////////////////////
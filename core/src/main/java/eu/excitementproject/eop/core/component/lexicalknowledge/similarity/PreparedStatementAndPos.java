@@ -16,15 +16,28 @@ public class PreparedStatementAndPos {
 	
 	private final PreparedStatement stmt;
 	private final PartOfSpeech pos;
+	private final String tableName;
 	/**
 	 * Ctor
 	 * @param stmt
 	 * @param pos
 	 */
 	public PreparedStatementAndPos(PreparedStatement stmt, PartOfSpeech pos) {
+		this(stmt, pos, null);
+	}
+	
+	/**
+	 * Ctor for statements with the table they query, so that the batch queries of {@link AbstractSimilarityLexicalResource} 
+	 * can query it too, and its threads can prepare their own statements for it 
+	 * @param stmt null if the resource reads the table from a local index
+	 * @param pos
+	 * @param tableName
+	 */
+	public PreparedStatementAndPos(PreparedStatement stmt, PartOfSpeech pos, String tableName) {
 		super();
 		this.stmt = stmt;
 		this.pos = pos;
+		this.tableName = tableName;
 	}
 	
 	/**
@@ -40,5 +53,12 @@ public class PreparedStatementAndPos {
 	public PreparedStatement getStmt() {
 		return stmt;
 	}
+	
+	/**
+	 * @return the table queried by the statement, or null if unknown
+	 */
+	public String getTableName() {
+		return tableName;
+	}
 }
 
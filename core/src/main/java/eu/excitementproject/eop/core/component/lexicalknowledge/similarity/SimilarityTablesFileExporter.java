@@ -0,0 +1,145 @@
+package eu.excitementproject.eop.core.component.lexicalknowledge.similarity;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalResourceException;
+import eu.excitementproject.eop.common.utilities.file.MappedRecordsFileWriter;
+
+/**
+ * Exports the {@code <lemma, lemma, similarity>} tables of an {@link AbstractSimilarityLexicalResource} from its DB to a local index,
+ * which the resource can read instead of the DB (see the ctors of the subclasses that get a local index file).
+ * <p>
+ * The rules of each table are kept twice: under the lhs (for getRulesForLeft) and under the rhs (for getRulesForRight), each in decreasing
+ * order of similarity. All the rules are exported, regardless of the limit on retrieved rules of the resource.
+ * <p>
+ * Usage: <code>SimilarityTablesFileExporter &lt;resource class&gt; &lt;db connection string&gt; &lt;db user&gt; &lt;db password&gt; &lt;output file&gt;</code>,
+ * where the resource class is e.g. {@link LinDistsimLexicalResource} or {@link Direct1000LexicalResource}.
+ */
+public class SimilarityTablesFileExporter
+{
+	/**
+	 * Write all the tables of the given resource, which reads the DB, to the given file
+	 * @param resource
+	 * @param file
+	 * @return the number of exported rules
+	 * @throws LexicalResourceException
+	 */
+	public static int export(AbstractSimilarityLexicalResource resource, File file) throws LexicalResourceException
+	{
+		if (resource.localIndex != null)
+			throw new LexicalResourceException("The resource reads a local index, not the DB");
+
+		// the tables of all the statements of the resource, with their connections
+		Map<String, Connection> tables = new LinkedHashMap<String, Connection>();
+		try
+		{
+			for (PreparedStatementAndPos stmtAndPos : resource.posToRulesStmts(null, false))
+				addTable(tables, stmtAndPos);
+			for (PreparedStatementAndPos stmtAndPos : resource.posToRulesStmts(null, true))
+				addTable(tables, stmtAndPos);
+			for (PreparedStatementAndPos stmtAndPos : resource.posToScoreStmt(null))
+				addTable(tables, stmtAndPos);
+		}
+		catch (SQLException e) 	{	throw new LexicalResourceException("Error reading the connection of a statement", e);	}
+
+		int numberOfRules = 0;
+		try
+		{
+			MappedRecordsFileWriter writer = new MappedRecordsFileWriter(file);
+			try
+			{
+				for (Map.Entry<String, Connection> table : tables.entrySet())
+					numberOfRules += exportTable(resource, table.getKey(), table.getValue(), writer);
+			}
+			finally
+			{
+				writer.close();
+			}
+		}
+		catch (IOException e) 	{	throw new LexicalResourceException("Error writing " + file, e);	}
+		return numberOfRules;
+	}
+
+	public static void main(String[] args) throws Exception
+	{
+		if (args.length != 5) {
+			System.out.println("Usage: eu.excitementproject.eop.core.component.lexicalknowledge.similarity.SimilarityTablesFileExporter <resource class> <db connection string> <db user> <db password> <output file>");
+			System.exit(0);
+		}
+		AbstractSimilarityLexicalResource resource = Class.forName(args[0]).asSubclass(AbstractSimilarityLexicalResource.class)
+				.getConstructor(String.class, String.class, String.class, int.class).newInstance(args[1], args[2], args[3], 0);
+		try
+		{
+			System.out.println("Exported " + export(resource, new File(args[4])) + " rules.");
+		}
+		finally
+		{
+			resource.close();
+		}
+	}
+
+	////////////////////////////////////////////////// PRIVATE	///////////////////////////////////////////////////
+
+	private static void addTable(Map<String, Connection> tables, PreparedStatementAndPos stmtAndPos) throws LexicalResourceException, SQLException
+	{
+		if (stmtAndPos.getTableName() == null)
+			throw new LexicalResourceException("The resource has a statement without a table name, so it can't be exported");
+		if (!tables.containsKey(stmtAndPos.getTableName()))
+			tables.put(stmtAndPos.getTableName(), stmtAndPos.getStmt().getConnection());
+	}
+
+	private static int exportTable(AbstractSimilarityLexicalResource resource, String tableName, Connection con, MappedRecordsFileWriter writer)
+			throws LexicalResourceException, IOException
+	{
+		// in decreasing order of similarity, so that the records of each key are in that order too
+		String query = "SELECT " + resource.L_COL() + ", " + resource.R_COL() + ", " + resource.SIM_COL() + " FROM " + tableName +
+				" ORDER BY " + resource.SIM_COL() + " DESC";
+		int numberOfRules = 0;
+		try
+		{
+			Statement stmt = con.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+			try
+			{
+				stmt.setFetchSize(Integer.MIN_VALUE);	// stream the rows (MySQL)
+				ResultSet rs = stmt.executeQuery(query);
+				while (rs.next())
+				{
+					String lLemma = rs.getString(1);
+					String rLemma = rs.getString(2);
+					double score;
+					try 							{score = Double.parseDouble( rs.getString(3) );	}
+					catch (NumberFormatException e) {throw new LexicalResourceException("Database error: this is not a double " + rs.getString(3), e);	}
+					writer.add(AbstractSimilarityLexicalResource.localIndexKey(tableName, false, lLemma), record(rLemma, score));
+					writer.add(AbstractSimilarityLexicalResource.localIndexKey(tableName, true, rLemma), record(lLemma, score));
+					numberOfRules++;
+				}
+				rs.close();
+			}
+			finally
+			{
+				stmt.close();
+			}
+		}
+		catch (SQLException e) 	{	throw new LexicalResourceException("Error executing the query " + query, e);	}
+		return numberOfRules;
+	}
+
+	private static byte[] record(String otherLemma, double score) throws IOException
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		MappedRecordsFileWriter.writeString(out, otherLemma);
+		out.writeDouble(score);
+		out.close();
+		return bytes.toByteArray();
+	}
+}
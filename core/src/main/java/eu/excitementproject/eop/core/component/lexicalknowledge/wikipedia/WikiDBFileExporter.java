@@ -0,0 +1,144 @@
+package eu.excitementproject.eop.core.component.lexicalknowledge.wikipedia;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalResourceException;
+import eu.excitementproject.eop.common.utilities.file.MappedRecordsFileWriter;
+
+
+/**
+ * Exports the rules of the wikipedia DB (the tables <code>rules_new, rules_stats</code> and <code>terms</code>) to the file read by
+ * {@link WikiLexicalResourceFileServices}. Each rule is written twice: under the key of its lhs and under the key of its rhs.
+ * <p>
+ * Rules with no <code>rules_stats</code> row get a NaN condDice, so they are retrieved only when there is no cooccurrence threshold.
+ * <p>
+ * Usage: <code>WikiDBFileExporter &lt;db connection string&gt; &lt;db user&gt; &lt;db password&gt; &lt;output file&gt;</code>
+ */
+public class WikiDBFileExporter {
+
+	private static final String ALL_RULES_QUERY =
+		  "select lhs.term as lhs, rhs.term as rhs, r.method, r.rule_perc, rc.condDice "
+		+ "from rules_new r join terms lhs on lhs.id = r.lhs join terms rhs on rhs.id = r.rhs "
+		+ "left join rules_stats rc on r.lhs = rc.lhs and r.rhs = rc.rhs";
+
+	/**
+	 * Ctor
+	 * @param dbConnectionString	e.g. "jdbc:mysql://qa-srv:3308/wikikb"
+	 * @param dbUser	may be null
+	 * @param dbPassword	may be null
+	 * @throws LexicalResourceException
+	 */
+	public WikiDBFileExporter(String dbConnectionString, String dbUser, String dbPassword) throws LexicalResourceException
+	{
+		try {
+			Class.forName(WikiLexicalResourceDBServicesThreadSafe.JDBC_DRIVER_CLASS).newInstance();
+			if (dbUser != null && dbPassword != null)
+				con = DriverManager.getConnection(dbConnectionString, dbUser, dbPassword);
+			else
+				con = DriverManager.getConnection(dbConnectionString);
+		} catch (SQLException e) {
+			throw new LexicalResourceException("error in establishing a connection to " + dbConnectionString, e);
+		} catch (InstantiationException e) {
+			throw new LexicalResourceException("Could not instantiate the JDBC driver: " + WikiLexicalResourceDBServicesThreadSafe.JDBC_DRIVER_CLASS, e);
+		} catch (IllegalAccessException e) {
+			throw new LexicalResourceException("Could not instantiate the JDBC driver: " + WikiLexicalResourceDBServicesThreadSafe.JDBC_DRIVER_CLASS, e);
+		} catch (ClassNotFoundException e) {
+			throw new LexicalResourceException("Could not instantiate the JDBC driver: " + WikiLexicalResourceDBServicesThreadSafe.JDBC_DRIVER_CLASS, e);
+		}
+	}
+
+	/**
+	 * Write all the rules to the given file
+	 * @param file
+	 * @return the number of exported rules
+	 * @throws LexicalResourceException
+	 */
+	public int export(File file) throws LexicalResourceException
+	{
+		int numberOfRules = 0;
+		try {
+			MappedRecordsFileWriter writer = new MappedRecordsFileWriter(file);
+			Statement stmt = con.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+			try {
+				stmt.setFetchSize(Integer.MIN_VALUE);	// stream the rows (MySQL)
+				ResultSet resultSet = stmt.executeQuery(ALL_RULES_QUERY);
+				while (resultSet.next()) {
+					String lhs = resultSet.getString(1);
+					String rhs = resultSet.getString(2);
+					String method = resultSet.getString(3);
+					double rulePerc = resultSet.getDouble(4);
+					double condDice = resultSet.getDouble(5);
+					if (resultSet.wasNull())
+						condDice = Double.NaN;
+					addRule(writer, lhs, rhs, method, rulePerc, condDice);
+					numberOfRules++;
+				}
+				resultSet.close();
+			} finally {
+				stmt.close();
+				writer.close();
+			}
+		}
+		catch (SQLException e) {	throw new LexicalResourceException("Error executing sql query: " + ALL_RULES_QUERY, e);	}
+		catch (IOException e) {	throw new LexicalResourceException("Error writing " + file, e);	}
+		return numberOfRules;
+	}
+
+	public void close() throws LexicalResourceException
+	{
+		try {	con.close();	}
+		catch (SQLException e) {	throw new LexicalResourceException("Error closing the connection", e);	}
+	}
+
+	public static void main(String[] args) throws Exception
+	{
+		if (args.length != 4) {
+			System.out.println("Usage: eu.excitementproject.eop.core.component.lexicalknowledge.wikipedia.WikiDBFileExporter <db connection string> <db user> <db password> <output file>");
+			System.exit(0);
+		}
+		WikiDBFileExporter exporter = new WikiDBFileExporter(args[0], args[1], args[2]);
+		try {
+			System.out.println("Exported " + exporter.export(new File(args[3])) + " rules.");
+		} finally {
+			exporter.close();
+		}
+	}
+
+	/**
+	 * Add the records of a rule, under its lhs and under its rhs (in lower case, since the DB compares the terms ignoring case)
+	 * @param writer
+	 * @param lhs
+	 * @param rhs
+	 * @param method the extraction types of the rule
+	 * @param rulePerc
+	 * @param condDice NaN if the rule has no stats
+	 * @throws IOException
+	 */
+	static void addRule(MappedRecordsFileWriter writer, String lhs, String rhs, String method, double rulePerc, double condDice) throws IOException
+	{
+		writer.add(WikiLexicalResourceFileServices.LEFT_KEY_PREFIX + lhs.toLowerCase(), record(rhs, method, rulePerc, condDice));
+		writer.add(WikiLexicalResourceFileServices.RIGHT_KEY_PREFIX + rhs.toLowerCase(), record(lhs, method, rulePerc, condDice));
+	}
+
+	private static byte[] record(String otherTerm, String method, double rulePerc, double condDice) throws IOException
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		MappedRecordsFileWriter.writeString(out, otherTerm);
+		MappedRecordsFileWriter.writeString(out, method);
+		out.writeDouble(rulePerc);
+		out.writeDouble(condDice);
+		out.close();
+		return bytes.toByteArray();
+	}
+
+	private final Connection con;
+}
@@ -3,12 +3,18 @@ import static eu.excitementproject.eop.common.representation.partofspeech.Simple
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.Vector;
 
+import eu.excitementproject.eop.common.component.lexicalknowledge.BatchLexicalResource;
+import eu.excitementproject.eop.common.component.lexicalknowledge.LemmaPos;
 import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalResource;
 import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalResourceException;
 import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalRule;
@@ -22,7 +28,8 @@ import eu.excitementproject.eop.core.component.lexicalknowledge.LexicalResourceN
 
 
 /**
- * A {@link LexicalResource} for wikipedia. It is backed by a DB table: <code>wikikb.rules_new, wikikb.rules_stats </code>and <code>wikikb.terms</code>
+ * A {@link LexicalResource} for wikipedia. It is backed by a DB table: <code>wikikb.rules_new, wikikb.rules_stats </code>and <code>wikikb.terms</code>,
+ * or by a file exported from these tables with {@link WikiDBFileExporter}
  * <p>
  * Wiki supports only nouns. In case the user gives a POS that is not a noun nor null, the class returns a an empty list (not null).
  * <p>
@@ -30,12 +37,14 @@ import eu.excitementproject.eop.core.component.lexicalknowledge.LexicalResourceN
  * its lhs and rhs.
  * <p>
  * Retrieved rules are sorted according to their rank, in a descending order.
+ * <p>
+ * The batch queries of {@link BatchLexicalResource} retrieve the rules of many lemmas with one DB query.
  * 
  * @author Amnon Lotan
  *
  * @since Dec 4, 2011
  */
-public class WikiLexicalResource extends LexicalResourceNothingToClose<WikiRuleInfo> {
+public class WikiLexicalResource extends LexicalResourceNothingToClose<WikiRuleInfo> implements BatchLexicalResource<WikiRuleInfo> {
 
 	public static final String WIKIPEDIA_RESOURCE_NAME = "WIKIPEDIA";
 	
@@ -49,6 +58,11 @@ public class WikiLexicalResource extends LexicalResourceNothingToClose<WikiRuleI
 
 	protected static final String PARAM_COOCURRENCE_THRESHOLD = "cooccurrence threshold";
 
+	/**
+	 * optional. A file written by {@link WikiDBFileExporter}, to read the rules from instead of the DB 
+	 */
+	protected static final String PARAM_RULES_FILE = "wikiKB rules file";
+
 	protected Double COOCURENCE_THRESHOLD;
 	protected Set<String> STOP_WORDS;
 	protected final WikiLexicalResourceDBServicesThreadSafe wikiDbServices;
@@ -66,7 +80,8 @@ public class WikiLexicalResource extends LexicalResourceNothingToClose<WikiRuleI
 		this(
 				params.getFile(PARAM_STOP_WORDS),
 				WikiExtractionType.parseExtractionTypeListOfStrings(params.getString(PARAM_EXTRACTION_TYPES)),
-				params.getString(PARAM_DB_CONN_STRING),	null, null,
+				params.containsKey(PARAM_RULES_FILE) ? null : params.getString(PARAM_DB_CONN_STRING),	null, null,
+				params.containsKey(PARAM_RULES_FILE) ? params.getFile(PARAM_RULES_FILE) : null,
 				params.getDouble(PARAM_COOCURRENCE_THRESHOLD));
 	}
 	
@@ -82,6 +97,27 @@ public class WikiLexicalResource extends LexicalResourceNothingToClose<WikiRuleI
 	 */
 	public WikiLexicalResource(File stopWordsFile, Set<WikiExtractionType> permittedExtractionTypes, String dbConnectionString, String dbUser, String dbPassword, 
 			Double coocurrenceThreshold) throws LexicalResourceException {
+		this(stopWordsFile, permittedExtractionTypes, dbConnectionString, dbUser, dbPassword, null, coocurrenceThreshold);
+	}
+	
+	/**
+	 * Ctor of a resource that reads the rules from a file written by {@link WikiDBFileExporter}, in-process, instead of querying the DB
+	 * @param stopWordsFile	e.g. "//qa-srv/Data/RESOURCES/stopwords-Eyal.txt"
+	 * @param permittedExtractionTypes	Only rules with these extraction types will be retrieved
+	 * @param rulesFile	the exported rules
+	 * @param coocurrenceThreshold Only rules with a larger coocurrence score will be retrieved
+	 * @throws LexicalResourceException
+	 */
+	public WikiLexicalResource(File stopWordsFile, Set<WikiExtractionType> permittedExtractionTypes, File rulesFile, Double coocurrenceThreshold) 
+			throws LexicalResourceException {
+		this(stopWordsFile, permittedExtractionTypes, null, null, null, rulesFile, coocurrenceThreshold);
+	}
+	
+	/**
+	 * The ctor of all the ctors. Either a DB connection string or a rules file must be given.
+	 */
+	private WikiLexicalResource(File stopWordsFile, Set<WikiExtractionType> permittedExtractionTypes, String dbConnectionString, String dbUser, String dbPassword, 
+			File rulesFile, Double coocurrenceThreshold) throws LexicalResourceException {
 		if (stopWordsFile == null)
 			throw new LexicalResourceException("stop words file is null");
 		if (!stopWordsFile.exists())
@@ -95,14 +131,17 @@ public class WikiLexicalResource extends LexicalResourceNothingToClose<WikiRuleI
 		if (permittedExtractionTypes.size() == 0)
 			throw new LexicalResourceException("Got no wiki extraction types");
 		
-		if (dbConnectionString == null)
+		if (dbConnectionString == null && rulesFile == null)
 			throw new LexicalResourceException("got null connection string");
 		
 		if (coocurrenceThreshold != null && coocurrenceThreshold < 0)
 			throw new LexicalResourceException("coocorrenceThreshold must be positive, or null. I got " + coocurrenceThreshold);
 		this.COOCURENCE_THRESHOLD  = coocurrenceThreshold;
 		
-		wikiDbServices = new WikiLexicalResourceDBServicesThreadSafe(dbConnectionString, dbUser, dbPassword, COOCURENCE_THRESHOLD, permittedExtractionTypes);
+		if (rulesFile != null)
+			wikiDbServices = new WikiLexicalResourceFileServices(rulesFile, COOCURENCE_THRESHOLD, permittedExtractionTypes);
+		else
+			wikiDbServices = new WikiLexicalResourceDBServicesThreadSafe(dbConnectionString, dbUser, dbPassword, COOCURENCE_THRESHOLD, permittedExtractionTypes);
 	}
 	
 	/* (non-Javadoc)
@@ -141,8 +180,66 @@ public class WikiLexicalResource extends LexicalResourceNothingToClose<WikiRuleI
 		return rules;
 	}
 	
+	/* (non-Javadoc)
+	 * @see eu.excitementproject.eop.common.component.lexicalknowledge.BatchLexicalResource#getRulesForRight(java.util.Collection)
+	 */
+	@Override
+	public Map<LemmaPos, List<LexicalRule<? extends WikiRuleInfo>>> getRulesForRight(Collection<LemmaPos> terms) throws LexicalResourceException {
+		return getRulesForSide(terms, true);
+	}
+
+	/* (non-Javadoc)
+	 * @see eu.excitementproject.eop.common.component.lexicalknowledge.BatchLexicalResource#getRulesForLeft(java.util.Collection)
+	 */
+	@Override
+	public Map<LemmaPos, List<LexicalRule<? extends WikiRuleInfo>>> getRulesForLeft(Collection<LemmaPos> terms) throws LexicalResourceException {
+		return getRulesForSide(terms, false);
+	}
+	
 	////////////////////////////////////////////////////////////////// PRIVATE	//////////////////////////////////////////
 	
+	/**
+	 * The batch version of {@link #getRulesForSide(String, PartOfSpeech, boolean)}: one DB query for all the lemmas that are not filtered
+	 * out by their POS or as stop words
+	 * @param terms
+	 * @param getRuleForRight
+	 * @return
+	 * @throws LexicalResourceException
+	 */
+	private Map<LemmaPos, List<LexicalRule<? extends WikiRuleInfo>>> getRulesForSide(Collection<LemmaPos> terms, boolean getRuleForRight) throws LexicalResourceException {
+		Map<LemmaPos, List<LexicalRule<? extends WikiRuleInfo>>> rules = new LinkedHashMap<LemmaPos, List<LexicalRule<? extends WikiRuleInfo>>>();
+		List<String> lemmas = new ArrayList<String>(terms.size());
+		for (LemmaPos term : terms)
+		{
+			PartOfSpeech pos = term.getPos();
+			//Wiki supports only nouns. pos can be null
+			//	avoid rules with a stop word as one of their sides
+			if ( (pos != null && !SimplerCanonicalPosTag.NOUN.equals(simplerPos(pos.getCanonicalPosTag()))) || STOP_WORDS.contains(term.getLemma()) )
+				rules.put(term, new Vector<LexicalRule<? extends WikiRuleInfo>>());
+			else
+			{
+				rules.put(term, null);	// to keep the order of the terms
+				lemmas.add(term.getLemma());
+			}
+		}
+		
+		if (!lemmas.isEmpty())
+		{
+			Map<String, List<LexicalRule<? extends WikiRuleInfo>>> rulesByLemma = wikiDbServices.getRulesForSideImpl(lemmas, getRuleForRight);
+			for (Map.Entry<LemmaPos, List<LexicalRule<? extends WikiRuleInfo>>> entry : rules.entrySet())
+			{
+				if (entry.getValue() == null)
+				{
+					// a new list for each term, since terms with the same lemma and different POSs get the same rules
+					List<LexicalRule<? extends WikiRuleInfo>> lemmaRules = new ArrayList<LexicalRule<? extends WikiRuleInfo>>(rulesByLemma.get(entry.getKey().getLemma()));
+					filterRules(lemmaRules, getRuleForRight);
+					entry.setValue(lemmaRules);
+				}
+			}
+		}
+		return rules;
+	}
+	
 	/**
 	 * @param lemma
 	 * @param pos
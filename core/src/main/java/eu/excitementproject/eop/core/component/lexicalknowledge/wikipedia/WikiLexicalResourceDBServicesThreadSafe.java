@@ -7,12 +7,14 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import eu.excitementproject.eop.common.component.lexicalknowledge.BatchLexicalResourceUtils;
 import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalResourceException;
 import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalRule;
 import eu.excitementproject.eop.common.representation.partofspeech.BySimplerCanonicalPartOfSpeech;
@@ -101,6 +103,18 @@ public class WikiLexicalResourceDBServicesThreadSafe {
 		+ "from terms t1, rules_new r, terms t2 "
 		+ "where t1.term = '"+ARG1+"' and t2.term = '"+ARG2+"' and t1.id = r.rhs and t2.id = r.lhs  Limit 1";
 	
+	/**
+	 * batch versions of the queries above: the terms are given as an <code>IN (...)</code> list
+	 */
+	private static final String GET_RULES_FROM_RIGHT_BATCH_QUERY = 
+		GET_RULES_FROM_RIGHT_QUERY.replace("t1.term = '"+ARG1+"'", "t1.term IN ("+ARG1+")");
+	private static final String GET_RULES_FROM_RIGHT_BATCH_QUERY_2 = 
+		GET_RULES_FROM_RIGHT_QUERY_2.replace("rhs.term = '"+ARG1+"'", "rhs.term IN ("+ARG1+")");
+	private static final String GET_RULES_FROM_LEFT_BATCH_QUERY = 
+		GET_RULES_FROM_LEFT_QUERY.replace("t2.term = '"+ARG1+"'", "t2.term IN ("+ARG1+")");
+	private static final String GET_RULES_FROM_LEFT_BATCH_QUERY_2 = 
+		GET_RULES_FROM_LEFT_QUERY_2.replace("lhs.term = '"+ARG1+"'", "lhs.term IN ("+ARG1+")");
+	
 	/**
 	 * the term as an ngram version 
 	 */
@@ -124,6 +138,8 @@ public class WikiLexicalResourceDBServicesThreadSafe {
 	protected WikiLexicalResourceDBServicesThreadSafe(String dbConnectionString, String dbUser, String dbPassword, Double cocurrence_threshold, 
 			Set<WikiExtractionType> permittedExtractionTypes) throws LexicalResourceException 
 	{
+		this(cocurrence_threshold, permittedExtractionTypes);
+		
 		// setup the prepared statements
 		
 		System.out.println(this.getClass().toString() + " connecting: " + dbConnectionString + " / user: " + dbUser + " / password: " + dbPassword );
@@ -150,7 +166,16 @@ public class WikiLexicalResourceDBServicesThreadSafe {
 		} catch (ClassNotFoundException e) {
 			throw new LexicalResourceException("Could not instantiate the JDBC driver: " + JDBC_DRIVER_CLASS + " " + e.toString(),e);
 		}
-
+	}
+	
+	/**
+	 * Ctor for subclasses that do not read the rules from the DB. {@link #con} is not initialized. 
+	 * @param cocurrence_threshold	may be null
+	 * @param permittedExtractionTypes
+	 * @throws LexicalResourceException
+	 */
+	protected WikiLexicalResourceDBServicesThreadSafe(Double cocurrence_threshold, Set<WikiExtractionType> permittedExtractionTypes) throws LexicalResourceException 
+	{
 		COOCURENCE_THRESHOLD = cocurrence_threshold;	// may be null
 		this.PERMITTED_EXTRACTION_TYPES = permittedExtractionTypes ;
 		try {	NOUN = new BySimplerCanonicalPartOfSpeech(SimplerCanonicalPosTag.NOUN);	}
@@ -216,6 +241,41 @@ public class WikiLexicalResourceDBServicesThreadSafe {
 		return rules;
 	}
 	
+	/**
+	 * Retrieve from the DB all rules to/from each of the lemmas, with one query per {@link BatchLexicalResourceUtils#MAXIMUM_TERMS_PER_QUERY} lemmas. The rules of each 
+	 * lemma are the same as those of {@link #getRulesForSideImpl(String, boolean)}.<br>
+	 * The rows are matched to the lemmas ignoring case, like the (case insensitive) comparison of the DB.
+	 * @param lemmas
+	 * @param getRulesFromRight
+	 * @return the rules of each distinct lemma, in the order of the given lemmas
+	 * @throws LexicalResourceException 
+	 */
+	protected Map<String, List<LexicalRule<? extends WikiRuleInfo>>> getRulesForSideImpl(Collection<String> lemmas, boolean getRulesFromRight) throws LexicalResourceException 
+	{
+		Map<String, List<LexicalRule<? extends WikiRuleInfo>>> rulesByLemma = new LinkedHashMap<String, List<LexicalRule<? extends WikiRuleInfo>>>();
+		List<String> chunk = new ArrayList<String>();
+		for (String lemma : lemmas)
+		{
+			if (!rulesByLemma.containsKey(lemma))
+			{
+				rulesByLemma.put(lemma, new ArrayList<LexicalRule<? extends WikiRuleInfo>>());
+				chunk.add(lemma);
+				if (chunk.size() == BatchLexicalResourceUtils.MAXIMUM_TERMS_PER_QUERY)
+				{
+					getRulesForSideImpl(chunk, getRulesFromRight, rulesByLemma);
+					chunk.clear();
+				}
+			}
+		}
+		if (!chunk.isEmpty())
+			getRulesForSideImpl(chunk, getRulesFromRight, rulesByLemma);
+		
+		// sort rules in descending rank and coocurrence order
+		for (List<LexicalRule<? extends WikiRuleInfo>> rules : rulesByLemma.values())
+			Collections.sort(rules, RULE_RANK_AND_COOCURRENCE_COMPARATOR);
+		return rulesByLemma;
+	}
+	
 	/**
 	 * Query the DB for one rule from left to right 
 	 * @param leftLemma
@@ -249,6 +309,80 @@ public class WikiLexicalResourceDBServicesThreadSafe {
 
 	/////////////////////////////////////////////////////// PRIVATE	//////////////////////////////////////////////////////////
 	
+	/**
+	 * Run one batch query for the given lemmas, and add the rules to the (empty) lists of the lemmas in <code>rulesByLemma</code>
+	 * @param lemmas
+	 * @param getRulesFromRight
+	 * @param rulesByLemma
+	 * @throws LexicalResourceException
+	 */
+	private void getRulesForSideImpl(List<String> lemmas, boolean getRulesFromRight, Map<String, List<LexicalRule<? extends WikiRuleInfo>>> rulesByLemma) 
+			throws LexicalResourceException
+	{
+		// the lemmas, by their lower case, since the DB compares the terms ignoring case
+		Map<String, List<String>> lemmasByLowerCase = new LinkedHashMap<String, List<String>>();
+		StringBuilder inList = new StringBuilder();
+		for (String lemma : lemmas)
+		{
+			String key = lemma.toLowerCase();
+			List<String> sameLemmas = lemmasByLowerCase.get(key);
+			if (sameLemmas == null)
+			{
+				sameLemmas = new ArrayList<String>(1);
+				lemmasByLowerCase.put(key, sameLemmas);
+				if (inList.length() > 0)
+					inList.append(", ");
+				inList.append('\'').append(escape(lemma)).append('\'');
+			}
+			sameLemmas.add(lemma);
+		}
+		
+		String query;
+		if (getRulesFromRight)
+			query = (COOCURENCE_THRESHOLD == null) ? GET_RULES_FROM_RIGHT_BATCH_QUERY : GET_RULES_FROM_RIGHT_BATCH_QUERY_2;
+		else
+			query = (COOCURENCE_THRESHOLD == null) ? GET_RULES_FROM_LEFT_BATCH_QUERY : GET_RULES_FROM_LEFT_BATCH_QUERY_2;
+		if (COOCURENCE_THRESHOLD != null)
+			query = query.replace(ARG2, COOCURENCE_THRESHOLD.toString());
+		query = query.replace(ARG1, inList.toString());
+		
+		try {
+			Statement stmt = con.createStatement();
+			try {
+				ResultSet resultSet = stmt.executeQuery(query);
+				// used to detect duplicate rules, for each lemma
+				Map<String, Map<LhsRhs, LexicalRule<WikiRuleInfo>>> mapsLemmasToRules = new LinkedHashMap<String, Map<LhsRhs, LexicalRule<WikiRuleInfo>>>();
+				while (resultSet.next()) {
+					String term = resultSet.getString(getRulesFromRight ? 2 : 1);
+					List<String> sameLemmas = lemmasByLowerCase.get(term.toLowerCase());
+					if (sameLemmas == null)
+						continue;
+					for (String lemma : sameLemmas)
+					{
+						Map<LhsRhs, LexicalRule<WikiRuleInfo>> mapLemmasToRules = mapsLemmasToRules.get(lemma);
+						if (mapLemmasToRules == null)
+						{
+							mapLemmasToRules = new LinkedHashMap<LhsRhs, LexicalRule<WikiRuleInfo>>();
+							mapsLemmasToRules.put(lemma, mapLemmasToRules);
+						}
+						// as in getRulesForSideImpl(String, boolean), the rule is constructed with the escaped lemma
+						LexicalRule<WikiRuleInfo> rule = constructRule(resultSet, escape(lemma), getRulesFromRight);
+						addToRules(rulesByLemma.get(lemma), rule, mapLemmasToRules);
+					}
+				}
+				resultSet.close();
+			} finally {
+				stmt.close();
+			}
+		} catch (SQLException e) {
+			throw new LexicalResourceException("Error executing sql query: "+query+" See nested", e);
+		}
+	}
+	
+	private static String escape(String lemma) {
+		return lemma.replace("'", "\\'");	//escape apostrophe (e.g. Sophie's Choice)
+	}
+	
 	/**
 	 * Construct a new {@link LexicalRule} from the db query result set
 	 * @param resultSet
@@ -400,7 +534,7 @@ public class WikiLexicalResourceDBServicesThreadSafe {
 	 * @return
 	 * @throws LexicalResourceException
 	 */
-	private Set<WikiExtractionType> getExtractionTypes(String extractionTypesStr, double rulePrecisionScore) throws LexicalResourceException {
+	protected Set<WikiExtractionType> getExtractionTypes(String extractionTypesStr, double rulePrecisionScore) throws LexicalResourceException {
 		Set<WikiExtractionType> extractionTypes = WikiExtractionType.parseExtractionTypeDBEntry(extractionTypesStr, rulePrecisionScore);
 		// retain only the permitted extraction types
 		extractionTypes.retainAll(PERMITTED_EXTRACTION_TYPES);	
@@ -0,0 +1,141 @@
+package eu.excitementproject.eop.core.component.lexicalknowledge.wikipedia;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalResourceException;
+import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalRule;
+import eu.excitementproject.eop.common.utilities.file.MappedRecordsFile;
+
+
+/**
+ * A version of {@link WikiLexicalResourceDBServicesThreadSafe} that reads the rules from a {@link MappedRecordsFile} written by
+ * {@link WikiDBFileExporter}, instead of querying the DB. The lookups are done in-process, with no DB connection.
+ * <p>
+ * The keys of the file are the terms in lower case (the DB compares the terms ignoring case), prefixed by {@link #LEFT_KEY_PREFIX}
+ * for the rules whose lhs is the term, and by {@link #RIGHT_KEY_PREFIX} for the rules whose rhs is the term. Each record is
+ * <code>&lt;other term, method, rule_perc, condDice&gt;</code>.
+ * <p>
+ * The rules are constructed like those of the DB queries with a cooccurrence threshold, using the condDice score of the file.
+ * If the threshold is null, the cooccurrence score of the rules is {@link Integer#MAX_VALUE}, like the DB queries without a threshold.
+ * <p>
+ * <b>Thread safe</b>
+ */
+public class WikiLexicalResourceFileServices extends WikiLexicalResourceDBServicesThreadSafe {
+
+	static final String LEFT_KEY_PREFIX = "L";
+	static final String RIGHT_KEY_PREFIX = "R";
+
+	/**
+	 * Ctor
+	 * @param rulesFile	a file written by {@link WikiDBFileExporter}
+	 * @param cocurrence_threshold	may be null
+	 * @param permittedExtractionTypes
+	 * @throws LexicalResourceException
+	 */
+	protected WikiLexicalResourceFileServices(File rulesFile, Double cocurrence_threshold, Set<WikiExtractionType> permittedExtractionTypes)
+			throws LexicalResourceException
+	{
+		super(cocurrence_threshold, permittedExtractionTypes);
+		try {	this.rulesFile = new MappedRecordsFile(rulesFile);	}
+		catch (IOException e) {	throw new LexicalResourceException("error reading the wiki rules file " + rulesFile, e);	}
+	}
+
+	/**
+	 * Retrieve from the file all rules to/from the lemma. Rules with identical lemmas are consolidated.
+	 * @see WikiLexicalResourceDBServicesThreadSafe#getRulesForSideImpl(String, boolean)
+	 */
+	@Override
+	protected List<LexicalRule<? extends WikiRuleInfo>> getRulesForSideImpl(String lemma, boolean getRulesFromRight) throws LexicalResourceException
+	{
+		List<LexicalRule<? extends WikiRuleInfo>> rules = new ArrayList<LexicalRule<? extends WikiRuleInfo>>();
+		Map<LhsRhs, LexicalRule<WikiRuleInfo>> mapLemmasToRules = new LinkedHashMap<LhsRhs, LexicalRule<WikiRuleInfo>>();	//	used to detect duplicate rules
+		for (ByteBuffer record : rulesFile.getRecords(key(lemma, getRulesFromRight)))
+			addToRules(rules, constructRule(record, lemma, getRulesFromRight), mapLemmasToRules);
+
+		// sort rules in descending rank and coocurrence order
+		Collections.sort(rules, RULE_RANK_AND_COOCURRENCE_COMPARATOR);
+		return rules;
+	}
+
+	/**
+	 * @see WikiLexicalResourceDBServicesThreadSafe#getRulesForSideImpl(Collection, boolean)
+	 */
+	@Override
+	protected Map<String, List<LexicalRule<? extends WikiRuleInfo>>> getRulesForSideImpl(Collection<String> lemmas, boolean getRulesFromRight)
+			throws LexicalResourceException
+	{
+		Map<String, List<LexicalRule<? extends WikiRuleInfo>>> rulesByLemma = new LinkedHashMap<String, List<LexicalRule<? extends WikiRuleInfo>>>();
+		for (String lemma : lemmas)
+			if (!rulesByLemma.containsKey(lemma))
+				rulesByLemma.put(lemma, getRulesForSideImpl(lemma, getRulesFromRight));
+		return rulesByLemma;
+	}
+
+	/**
+	 * Look up the file for one rule from left to right
+	 * @see WikiLexicalResourceDBServicesThreadSafe#getRulesFromDb(String, String)
+	 */
+	@Override
+	public List<LexicalRule<? extends WikiRuleInfo>> getRulesFromDb(String leftLemma, String rightLemma) throws LexicalResourceException
+	{
+		List<LexicalRule<? extends WikiRuleInfo>> ruleList = new ArrayList<LexicalRule<? extends WikiRuleInfo>>();
+		for (ByteBuffer record : rulesFile.getRecords(key(leftLemma, false)))
+		{
+			if (MappedRecordsFile.getString(record.duplicate()).equalsIgnoreCase(rightLemma))
+			{
+				LexicalRule<WikiRuleInfo> rule = constructRule(record, leftLemma, false);
+				if (rule != null)
+					ruleList.add(rule);
+				break;
+			}
+		}
+		return ruleList;
+	}
+
+	/////////////////////////////////////////////////////// PRIVATE	//////////////////////////////////////////////////////////
+
+	private final MappedRecordsFile rulesFile;
+
+	private static String key(String lemma, boolean lemmaIsOnTheRight)
+	{
+		return (lemmaIsOnTheRight ? RIGHT_KEY_PREFIX : LEFT_KEY_PREFIX) + lemma.toLowerCase();
+	}
+
+	/**
+	 * Construct a new {@link LexicalRule} from a record of the file, like {@link #constructRule(java.sql.ResultSet, String, boolean)}
+	 * @param record
+	 * @param lemma
+	 * @param lemmaIsOnTheRight
+	 * @return null if the rule is below the threshold, or has no permitted extraction types
+	 * @throws LexicalResourceException
+	 */
+	private LexicalRule<WikiRuleInfo> constructRule(ByteBuffer record, String lemma, boolean lemmaIsOnTheRight) throws LexicalResourceException
+	{
+		String otherLemma = MappedRecordsFile.getString(record);
+		String extractionTypesStr = MappedRecordsFile.getString(record);
+		double rulePrecision = record.getDouble();
+		double condDice = record.getDouble();
+		double coocurenceScore = (COOCURENCE_THRESHOLD != null) ? condDice : Integer.MAX_VALUE;
+		// rules with no condDice (NaN) are never above the threshold, like in the DB's inner join with rules_stats
+		if (COOCURENCE_THRESHOLD != null && !(coocurenceScore > COOCURENCE_THRESHOLD))
+			return null;
+
+		Set<WikiExtractionType> extractionTypes = getExtractionTypes(extractionTypesStr, rulePrecision);
+		if (extractionTypes.isEmpty())
+			return null;
+		String lhsLemma = lemmaIsOnTheRight ? otherLemma : lemma;
+		String rhsLemma = lemmaIsOnTheRight ? lemma : otherLemma;
+		WikiRuleInfo wikiInfo = new WikiRuleInfo(extractionTypes, coocurenceScore);
+		return new LexicalRule<WikiRuleInfo>(lhsLemma, NOUN, rhsLemma, NOUN, wikiInfo.getRank(), wikiInfo.getBestExtractionType().toString(),
+				WikiLexicalResource.WIKIPEDIA_RESOURCE_NAME, wikiInfo);
+	}
+}
@@ -4,12 +4,16 @@ import static eu.excitementproject.eop.common.representation.partofspeech.Simple
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.Vector;
 
+import eu.excitementproject.eop.common.component.lexicalknowledge.BatchLexicalResourceUtils;
+import eu.excitementproject.eop.common.component.lexicalknowledge.LemmaPos;
 import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalResource;
 import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalResourceException;
 import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalRule;
@@ -122,6 +126,22 @@ public class WikiLexicalResourceIT extends WikiLexicalResource {
 		return rules;
 	}
 	
+	/**
+	 * The Italian DB services have no batch queries: the terms are queried one by one
+	 */
+	@Override
+	public Map<LemmaPos, List<LexicalRule<? extends WikiRuleInfo>>> getRulesForRight(Collection<LemmaPos> terms) throws LexicalResourceException {
+		return BatchLexicalResourceUtils.getRulesOneByOne(this, terms, true);
+	}
+
+	/**
+	 * The Italian DB services have no batch queries: the terms are queried one by one
+	 */
+	@Override
+	public Map<LemmaPos, List<LexicalRule<? extends WikiRuleInfo>>> getRulesForLeft(Collection<LemmaPos> terms) throws LexicalResourceException {
+		return BatchLexicalResourceUtils.getRulesOneByOne(this, terms, false);
+	}
+	
 	////////////////////////////////////////////////////////////////// PRIVATE	//////////////////////////////////////////
 	
 	/**
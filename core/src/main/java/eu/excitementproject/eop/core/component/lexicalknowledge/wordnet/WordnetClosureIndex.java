@@ -0,0 +1,517 @@
+package eu.excitementproject.eop.core.component.lexicalknowledge.wordnet;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalResourceException;
+import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalRule;
+import eu.excitementproject.eop.common.representation.partofspeech.PartOfSpeech;
+import eu.excitementproject.eop.core.utilities.dictionary.wordnet.LexicographerFileInformation;
+import eu.excitementproject.eop.core.utilities.dictionary.wordnet.SensedWord;
+import eu.excitementproject.eop.core.utilities.dictionary.wordnet.Synset;
+import eu.excitementproject.eop.core.utilities.dictionary.wordnet.WordAndUsage;
+import eu.excitementproject.eop.core.utilities.dictionary.wordnet.WordNetException;
+import eu.excitementproject.eop.core.utilities.dictionary.wordnet.WordNetMethodNotSupportedException;
+import eu.excitementproject.eop.core.utilities.dictionary.wordnet.WordNetPartOfSpeech;
+import eu.excitementproject.eop.core.utilities.dictionary.wordnet.WordNetRelation;
+
+/**
+ * A read only, memory mapped file that holds the rules of a {@link WordnetLexicalResource}, precomputed by
+ * {@link WordnetClosureIndexBuilder} for a fixed set of {@link WordNetRelation}s and a fixed chaining length.
+ * <p>
+ * The {@link WordnetLexicalResource} that is constructed with such an index answers its queries from the file,
+ * instead of walking the transitive closures of the relations in Wordnet on every query. The rules are the same
+ * rules that {@link WordnetLexicalResourceServices} returns, except that the {@link Synset}s in their
+ * {@link WordnetRuleInfo}s only support {@link Synset#getWords()}, {@link Synset#getPartOfSpeech()} and
+ * {@link Synset#getOffset()}.
+ * <p>
+ * The file is keyed by lemma+POS. The lemmas are matched ignoring case, like Wordnet does.
+ * <p>
+ * <b>Thread safe</b>
+ *
+ * @see WordnetClosureIndexBuilder
+ */
+public class WordnetClosureIndex
+{
+	static final int MAGIC = 0x574E4349;	// "WNCI"
+	static final int VERSION = 1;
+	static final Charset UTF8 = Charset.forName("UTF-8");
+
+	/**
+	 * Ctor
+	 * @param indexFile a file written by {@link WordnetClosureIndexBuilder}
+	 * @throws LexicalResourceException
+	 */
+	public WordnetClosureIndex(File indexFile) throws LexicalResourceException
+	{
+		if (!indexFile.isFile())
+			throw new LexicalResourceException(indexFile + " doesn't exist or isn't a file");
+		try
+		{
+			// the mapping stays valid after the file is closed
+			RandomAccessFile randomAccessFile = new RandomAccessFile(indexFile, "r");
+			try
+			{
+				FileChannel channel = randomAccessFile.getChannel();
+				if (channel.size() > Integer.MAX_VALUE)
+					throw new LexicalResourceException(indexFile + " is too large to be mapped to memory");
+				this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			}
+			finally
+			{
+				randomAccessFile.close();
+			}
+		}
+		catch (IOException e)
+		{
+			throw new LexicalResourceException("failed to map the wordnet closure index " + indexFile, e);
+		}
+
+		try
+		{
+			int position = 0;
+			if (buffer.getInt(position) != MAGIC)
+				throw new LexicalResourceException(indexFile + " isn't a wordnet closure index");
+			position += 4;
+			int version = buffer.getInt(position);
+			if (version != VERSION)
+				throw new LexicalResourceException("The wordnet closure index " + indexFile + " has version " + version + ", expected " + VERSION);
+			position += 4;
+			this.chainingLength = buffer.getInt(position);
+			position += 4;
+
+			int numberOfRelations = buffer.getInt(position);
+			position += 4;
+			this.indexedRelations = new WordNetRelation[numberOfRelations];
+			for (int index = 0; index < numberOfRelations; index++)
+			{
+				String relationName = readString(position);
+				position += 2 + (buffer.getShort(position) & 0xFFFF);
+				try	{	indexedRelations[index] = WordNetRelation.valueOf(relationName);	}
+				catch (IllegalArgumentException e)	{	throw new LexicalResourceException("Unknown relation in the wordnet closure index: " + relationName, e);	}
+				relationIndexes.put(indexedRelations[index], index);
+			}
+
+			this.stringsTable = position + 4;
+			this.strings = new String[buffer.getInt(position)];
+			this.synsetsTablePosition = buffer.getInt(stringsTable + 4 * strings.length);
+			this.synsets = new IndexedSynset[buffer.getInt(synsetsTablePosition)];
+			this.entriesTablePosition = buffer.getInt(stringsTable + 4 * strings.length + 4);
+			this.numberOfEntries = buffer.getInt(entriesTablePosition);
+		}
+		catch (IndexOutOfBoundsException e)
+		{
+			throw new LexicalResourceException("The wordnet closure index " + indexFile + " is corrupted", e);
+		}
+	}
+
+	/**
+	 * @return the chaining length the index was built with
+	 */
+	public int getChainingLength()
+	{
+		return chainingLength;
+	}
+
+	/**
+	 * @return the relations the index was built with
+	 */
+	public Set<WordNetRelation> getRelations()
+	{
+		return Collections.unmodifiableSet(relationIndexes.keySet());
+	}
+
+	///////////////////////////////////////////////////////////////// PACKAGE VISIBlE ///////////////////////////////////////////////////////////
+
+	/**
+	 * Nothing to release: the file is closed once mapped, and the mapping is released by the garbage collector.
+	 */
+	void close()
+	{
+	}
+
+	/**
+	 * Same as {@link WordnetLexicalResourceServices#getRulesForSide(String, PartOfSpeech, Set, WordnetRuleInfo, int, boolean)}, with the chaining
+	 * length of the index.
+	 *
+	 * @param lemma
+	 * @param pos
+	 * @param relations
+	 * @param info
+	 * @param isFromRight
+	 * @return
+	 * @throws LexicalResourceException
+	 */
+	List<LexicalRule<? extends WordnetRuleInfo>> getRulesForSide(String lemma, PartOfSpeech pos,
+			Set<WordNetRelation> relations, WordnetRuleInfo info, boolean isFromRight) throws LexicalResourceException
+	{
+		boolean[] selectedRelations = selectRelations(relations);
+		checkInfo(info);
+		if (lemma == null)
+			throw new LexicalResourceException("got null lemma");
+
+		int sourceSenseNum, targetSenseNum;
+		if(isFromRight){
+			sourceSenseNum = info.getRightSenseNo();
+			targetSenseNum = info.getLeftSenseNo();
+		}else{
+			sourceSenseNum = info.getLeftSenseNo();
+			targetSenseNum = info.getRightSenseNo();
+		}
+
+		List<LexicalRule<? extends WordnetRuleInfo>> rulesList = new ArrayList<LexicalRule<? extends WordnetRuleInfo>>();
+		for (WordNetPartOfSpeech wnPos : toWordNetPartOfspeech(pos))
+		{
+			int entry = findEntry(lemma, wnPos);
+			if (entry < 0)
+				continue;
+
+			int position = rulesPosition(entry, isFromRight);
+			int numberOfRules = buffer.getInt(position);
+			position += 4;
+			for (int ruleIndex = 0; ruleIndex < numberOfRules; ruleIndex++, position += RULE_SIZE)
+			{
+				int relationIndex = buffer.get(position);
+				int sourceSynsetNo = buffer.getShort(position + 1);
+				int targetSynsetNo = buffer.getShort(position + 11);
+				if (!selectedRelations[relationIndex] ||
+						(sourceSenseNum != -1 && sourceSenseNum != sourceSynsetNo) ||
+						(targetSenseNum != -1 && targetSenseNum != targetSynsetNo))
+					continue;
+
+				Synset sourceSynset = getSense(entry, sourceSynsetNo);
+				Synset targetSynset = getSynset(buffer.getInt(position + 7));
+				String targetLemma = getString(buffer.getInt(position + 3));
+				rulesList.add(newDirectedRule(targetLemma, targetSynset, targetSynsetNo, lemma, sourceSynset, sourceSynsetNo, indexedRelations[relationIndex], isFromRight));
+			}
+		}
+		return rulesList;
+	}
+
+	/**
+	 * Same as {@link WordnetLexicalResourceServices#getRules(String, PartOfSpeech, String, PartOfSpeech, Set, WordnetRuleInfo, int)}, with the
+	 * chaining length of the index. The rules are picked from the rules of the left lemma+pos.
+	 *
+	 * @param lLemma
+	 * @param lPos
+	 * @param rLemma
+	 * @param rPos
+	 * @param relations
+	 * @param info
+	 * @return
+	 * @throws LexicalResourceException
+	 */
+	List<LexicalRule<? extends WordnetRuleInfo>> getRules(String lLemma, PartOfSpeech lPos, String rLemma,
+			PartOfSpeech rPos, Set<WordNetRelation> relations, WordnetRuleInfo info) throws LexicalResourceException
+	{
+		boolean[] selectedRelations = selectRelations(relations);
+		checkInfo(info);
+		if (lLemma == null)
+			throw new LexicalResourceException("got null lLemma");
+		if (rLemma == null)
+			throw new LexicalResourceException("got null rLemma");
+		WordNetPartOfSpeech rWnPos = null;
+		if (rPos != null)
+		{
+			rWnPos = WordNetPartOfSpeech.toWordNetPartOfspeech(rPos);
+			if (rWnPos == null)
+				return new ArrayList<LexicalRule<? extends WordnetRuleInfo>>();
+		}
+		int leftSenseNum = info.getLeftSenseNo();
+		int rightSenseNum = info.getRightSenseNo();
+		Integer synonymIndex = relationIndexes.get(WordNetRelation.SYNONYM);
+
+		List<LexicalRule<? extends WordnetRuleInfo>> rules = new ArrayList<LexicalRule<? extends WordnetRuleInfo>>();
+		for (WordNetPartOfSpeech wnPos : toWordNetPartOfspeech(lPos))
+		{
+			int entry = findEntry(lLemma, wnPos);
+			if (entry < 0)
+				continue;
+
+			// a lemma is a synonym of itself, within each of its synsets
+			if (synonymIndex != null && selectedRelations[synonymIndex] && lLemma.equalsIgnoreCase(rLemma) && (rWnPos == null || rWnPos == wnPos))
+			{
+				int numberOfSenses = buffer.getShort(entryPosition(entry) + 5);
+				for (int synsetNo = 1; synsetNo <= numberOfSenses; synsetNo++)
+					if ((leftSenseNum == -1 || leftSenseNum == synsetNo) && (rightSenseNum == -1 || rightSenseNum == synsetNo))
+					{
+						Synset synset = getSense(entry, synsetNo);
+						rules.add(newDirectedRule(rLemma, synset, synsetNo, lLemma, synset, synsetNo, WordNetRelation.SYNONYM, false));
+					}
+			}
+
+			int position = rulesPosition(entry, false);
+			int numberOfRules = buffer.getInt(position);
+			position += 4;
+			for (int ruleIndex = 0; ruleIndex < numberOfRules; ruleIndex++, position += RULE_SIZE)
+			{
+				int relationIndex = buffer.get(position);
+				int sourceSynsetNo = buffer.getShort(position + 1);
+				int targetSynsetNo = buffer.getShort(position + 11);
+				if (!selectedRelations[relationIndex] ||
+						(leftSenseNum != -1 && leftSenseNum != sourceSynsetNo) ||
+						(rightSenseNum != -1 && rightSenseNum != targetSynsetNo) ||
+						!getString(buffer.getInt(position + 3)).equalsIgnoreCase(rLemma))
+					continue;
+
+				IndexedSynset targetSynset = getSynset(buffer.getInt(position + 7));
+				if (rWnPos != null && rWnPos != targetSynset.pos)
+					continue;
+				rules.add(newDirectedRule(rLemma, targetSynset, targetSynsetNo, lLemma, getSense(entry, sourceSynsetNo), sourceSynsetNo,
+						indexedRelations[relationIndex], false));
+			}
+		}
+		return rules;
+	}
+
+	////////////////////////////////////////////////////////////////	PRIVATE	///////////////////////////////////////////////////////////
+
+	/**
+	 * The size of a rule record: relation index (byte), source synset ordinal (short), target lemma (int), target synset (int),
+	 * target synset ordinal (short)
+	 */
+	static final int RULE_SIZE = 1 + 2 + 4 + 4 + 2;
+
+	private static final WordNetPartOfSpeech[] ALL_POS = WordNetPartOfSpeech.values();
+	private static final WordNetPartOfSpeech[] EMPTY_ARRAY_OF_POS = new WordNetPartOfSpeech[0];
+
+	private LexicalRule<WordnetRuleInfo> newDirectedRule(String lemma1, Synset synset1, int synset1No, String lemma2, Synset synset2, int synset2No,
+			WordNetRelation relation, boolean isNotCrossed) throws LexicalResourceException
+	{
+		PartOfSpeech pos1, pos2;
+		try
+		{
+			pos1 = synset1.getPartOfSpeech().toPartOfSpeech();
+			pos2 = synset2.getPartOfSpeech().toPartOfSpeech();
+		}
+		catch (WordNetException e)	{	throw new LexicalResourceException("Bug! invalid POS in the wordnet closure index", e);	}
+		return isNotCrossed ?
+				new LexicalRule<WordnetRuleInfo>(lemma1, pos1, lemma2, pos2, relation.toString(), RESOURCE_NAME, new WordnetRuleInfo(synset1, synset1No, synset2, synset2No, relation))
+					:
+				new LexicalRule<WordnetRuleInfo>(lemma2, pos2, lemma1, pos1, relation.toString(), RESOURCE_NAME, new WordnetRuleInfo(synset2, synset2No, synset1, synset1No, relation));
+	}
+
+	private boolean[] selectRelations(Set<WordNetRelation> relations) throws LexicalResourceException
+	{
+		if (relations == null)
+			throw new LexicalResourceException("The relations set is null. You must first call setDefaultRelationSet(), " +
+					"or use a getRules*() method that explicitly sets the relations");
+		boolean[] selected = new boolean[indexedRelations.length];
+		for (WordNetRelation relation : relations)
+		{
+			Integer index = relationIndexes.get(relation);
+			if (index == null)
+				throw new LexicalResourceException("The relation " + relation + " isn't in the wordnet closure index, which has only " + getRelations());
+			selected[index] = true;
+		}
+		return selected;
+	}
+
+	private void checkInfo(WordnetRuleInfo info) throws LexicalResourceException
+	{
+		if (info == null)
+			throw new LexicalResourceException("got null info");
+		if ((info.getLeftSenseNo() != -1 && info.getLeftSenseNo() < 1) ||
+				(info.getRightSenseNo() != -1 && info.getRightSenseNo() < 1))
+			throw new LexicalResourceException("one of the sense ordinal in the input WordnetRuleInfo is not valid, got "+
+					info.getLeftSenseNo() +" for left and for right "+ info.getRightSenseNo());
+	}
+
+	private WordNetPartOfSpeech[] toWordNetPartOfspeech(PartOfSpeech genericPos)
+	{
+		if (genericPos == null)
+			return ALL_POS;	// null is a wildcard POS
+		WordNetPartOfSpeech wnPos = WordNetPartOfSpeech.toWordNetPartOfspeech(genericPos);
+		return wnPos != null ? new WordNetPartOfSpeech[]{wnPos} : EMPTY_ARRAY_OF_POS;
+	}
+
+	/**
+	 * Binary search of the entries, which are sorted by lemma and then by POS
+	 * @return the index of the entry of the given lemma+pos, or -1
+	 */
+	private int findEntry(String lemma, WordNetPartOfSpeech pos)
+	{
+		String key = lemma.toLowerCase();
+		int low = 0;
+		int high = numberOfEntries - 1;
+		while (low <= high)
+		{
+			int middle = (low + high) >>> 1;
+			int position = entryPosition(middle);
+			int comparison = getString(buffer.getInt(position)).compareTo(key);
+			if (comparison == 0)
+				comparison = buffer.get(position + 4) - pos.ordinal();
+			if (comparison < 0)
+				low = middle + 1;
+			else if (comparison > 0)
+				high = middle - 1;
+			else
+				return middle;
+		}
+		return -1;
+	}
+
+	/**
+	 * An entry is: lemma (int), POS (byte), number of senses (short), the senses (int each), the left rules and the right rules. The rules of
+	 * each side are: number of rules (int) and the rules ({@link #RULE_SIZE} bytes each).
+	 */
+	private int entryPosition(int entry)
+	{
+		return buffer.getInt(entriesTablePosition + 4 + 4 * entry);
+	}
+
+	private int rulesPosition(int entry, boolean isFromRight)
+	{
+		int position = entryPosition(entry) + 5;
+		position += 2 + 4 * buffer.getShort(position);
+		if (isFromRight)
+			position += 4 + RULE_SIZE * buffer.getInt(position);
+		return position;
+	}
+
+	private IndexedSynset getSense(int entry, int synsetNo)
+	{
+		return getSynset(buffer.getInt(entryPosition(entry) + 7 + 4 * (synsetNo - 1)));
+	}
+
+	/**
+	 * A synset is: POS (byte), offset (long), number of words (short) and the words (int each)
+	 */
+	private IndexedSynset getSynset(int id)
+	{
+		IndexedSynset synset = synsets[id];
+		if (synset == null)
+		{
+			int position = buffer.getInt(synsetsTablePosition + 4 + 4 * id);
+			WordNetPartOfSpeech pos = ALL_POS[buffer.get(position)];
+			long offset = buffer.getLong(position + 1);
+			int numberOfWords = buffer.getShort(position + 9);
+			Set<String> words = new LinkedHashSet<String>();
+			for (int index = 0; index < numberOfWords; index++)
+				words.add(getString(buffer.getInt(position + 11 + 4 * index)));
+			synset = new IndexedSynset(pos, offset, Collections.unmodifiableSet(words));
+			synsets[id] = synset;	// a race here just builds an equal synset twice
+		}
+		return synset;
+	}
+
+	private String getString(int id)
+	{
+		String string = strings[id];
+		if (string == null)
+		{
+			string = readString(buffer.getInt(stringsTable + 4 * id));
+			strings[id] = string;
+		}
+		return string;
+	}
+
+	/**
+	 * A string is: length in bytes (unsigned short) and UTF-8 bytes
+	 */
+	private String readString(int position)
+	{
+		byte[] bytes = new byte[buffer.getShort(position) & 0xFFFF];
+		for (int index = 0; index < bytes.length; index++)
+			bytes[index] = buffer.get(position + 2 + index);
+		return new String(bytes, UTF8);
+	}
+
+	private static final String RESOURCE_NAME = "WORDNET";
+
+	private final ByteBuffer buffer;
+	private final int chainingLength;
+	private final WordNetRelation[] indexedRelations;
+	private final Map<WordNetRelation, Integer> relationIndexes = new EnumMap<WordNetRelation, Integer>(WordNetRelation.class);
+	private final int stringsTable;
+	private final String[] strings;
+	private final int synsetsTablePosition;
+	private final IndexedSynset[] synsets;
+	private final int entriesTablePosition;
+	private final int numberOfEntries;
+
+	/**
+	 * A {@link Synset} read from the index. Only its words, part of speech and offset are known.
+	 */
+	private static final class IndexedSynset implements Synset
+	{
+		private static final long serialVersionUID = 2744021508815716390L;
+
+		private IndexedSynset(WordNetPartOfSpeech pos, long offset, Set<String> words)
+		{
+			this.pos = pos;
+			this.offset = offset;
+			this.words = words;
+		}
+
+		public Set<String> getWords() throws WordNetException {return words;}
+		public WordNetPartOfSpeech getPartOfSpeech() throws WordNetException {return pos;}
+		public long getOffset() throws WordNetException {return offset;}
+
+		public List<WordAndUsage> getWordsAndUsages() throws WordNetException {throw notSupported();}
+		public String getGloss() throws WordNetException {throw notSupported();}
+		public Set<Synset> getNeighbors(WordNetRelation relationType) throws WordNetException {throw notSupported();}
+		public Set<Synset> getRelatedSynsets(WordNetRelation relation, int chainingLength) throws WordNetException {throw notSupported();}
+		public Set<Synset> getAttributes() throws WordNetException {throw notSupported();}
+		public Set<Synset> getCauses() throws WordNetException {throw notSupported();}
+		public Set<Synset> getHypernyms() throws WordNetException {throw notSupported();}
+		public Set<Synset> getHyponyms() throws WordNetException {throw notSupported();}
+		public Set<Synset> getEntailments() throws WordNetException {throw notSupported();}
+		public Set<Synset> getHolonyms() throws WordNetException {throw notSupported();}
+		public Set<Synset> getMemberHolonyms() throws WordNetException {throw notSupported();}
+		public Set<Synset> getMemberMeronyms() throws WordNetException {throw notSupported();}
+		public Set<Synset> getMeronyms() throws WordNetException {throw notSupported();}
+		public Set<Synset> getPartHolonyms() throws WordNetException {throw notSupported();}
+		public Set<Synset> getPartMeronyms() throws WordNetException {throw notSupported();}
+		public Set<Synset> getSubstanceHolonyms() throws WordNetException {throw notSupported();}
+		public Set<Synset> getSubstanceMeronyms() throws WordNetException {throw notSupported();}
+		public Set<Synset> getSynonyms() throws WordNetException {throw notSupported();}
+		public Set<Synset> getVerbGroup() throws WordNetException {throw notSupported();}
+		public long getUsageOf(String word) throws WordNetException {throw notSupported();}
+		public List<SensedWord> getAllSensedWords() throws WordNetException {throw notSupported();}
+		public LexicographerFileInformation getLexicographerFileInformation() throws WordNetException {throw notSupported();}
+
+		@Override
+		public int hashCode()
+		{
+			return 31 * pos.hashCode() + (int) (offset ^ (offset >>> 32));
+		}
+
+		@Override
+		public boolean equals(Object obj)
+		{
+			if (this == obj)
+				return true;
+			if (obj == null || getClass() != obj.getClass())
+				return false;
+			IndexedSynset other = (IndexedSynset) obj;
+			return offset == other.offset && pos == other.pos;
+		}
+
+		@Override
+		public String toString()
+		{
+			return "IndexedSynset [pos=" + pos + ", offset=" + offset + ", words=" + words + "]";
+		}
+
+		private static WordNetMethodNotSupportedException notSupported()
+		{
+			return new WordNetMethodNotSupportedException("A synset of a wordnet closure index only has words, part of speech and offset");
+		}
+
+		private final WordNetPartOfSpeech pos;
+		private final long offset;
+		private final Set<String> words;
+	}
+}
@@ -0,0 +1,421 @@
+package eu.excitementproject.eop.core.component.lexicalknowledge.wordnet;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalResourceException;
+import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalRule;
+import eu.excitementproject.eop.common.representation.partofspeech.PartOfSpeech;
+import eu.excitementproject.eop.common.utilities.configuration.ConfigurationFile;
+import eu.excitementproject.eop.common.utilities.configuration.ConfigurationParams;
+import eu.excitementproject.eop.common.utilities.configuration.ImplCommonConfig;
+import eu.excitementproject.eop.core.utilities.dictionary.wordnet.Synset;
+import eu.excitementproject.eop.core.utilities.dictionary.wordnet.WordNetException;
+import eu.excitementproject.eop.core.utilities.dictionary.wordnet.WordNetPartOfSpeech;
+import eu.excitementproject.eop.core.utilities.dictionary.wordnet.WordNetRelation;
+import eu.excitementproject.eop.core.utilities.dictionary.wordnet.WordnetDictionaryImplementationType;
+
+/**
+ * Builds a {@link WordnetClosureIndex}: for every lemma+POS in the <code>index.*</code> files of a Wordnet dictionary directory, it retrieves
+ * the rules of both sides, for all the senses, with {@link WordnetLexicalResourceServices}, and writes them to one file.
+ * <p>
+ * The index holds the rules of the given relations and chaining length only. The sense filtering is done when the index is queried.
+ * <p>
+ * Usage: <code>WordnetClosureIndexBuilder &lt;configuration file&gt; &lt;wordnet section name&gt; &lt;output file&gt;</code>, where the
+ * section is a {@link WordnetLexicalResource} section (see {@link WordnetLexicalResource#WordnetLexicalResource(ConfigurationParams)}).
+ *
+ * @see WordnetClosureIndex
+ */
+public class WordnetClosureIndexBuilder
+{
+	/**
+	 * Ctor
+	 * @param wnDictionaryDir e.g. "d:/data/RESOURCES/WordNet/3.0/dict.wn.orig"
+	 * @param relations the relations to index. may not be empty.
+	 * @param chainingLength the chaining length of the rules. Must be positive.
+	 * @param wordnetDictionaryImplementation The client's choice of underlying Wordnet dictionary implementation. May be null.
+	 * @throws LexicalResourceException
+	 */
+	public WordnetClosureIndexBuilder(File wnDictionaryDir, Set<WordNetRelation> relations, int chainingLength,
+			WordnetDictionaryImplementationType wordnetDictionaryImplementation) throws LexicalResourceException
+	{
+		if (relations == null || relations.isEmpty())
+			throw new LexicalResourceException("The relations set cannot be null or empty");
+		if (relations.size() > Byte.MAX_VALUE)
+			throw new LexicalResourceException("Too many relations: " + relations.size());
+		if (chainingLength < 1)
+			throw new LexicalResourceException("the chaining length must be positive. I got " + chainingLength);
+		this.wnDictionaryDir = wnDictionaryDir;
+		this.relations = new LinkedHashSet<WordNetRelation>(relations);
+		this.chainingLength = chainingLength;
+		this.services = new WordnetLexicalResourceServices(wnDictionaryDir, wordnetDictionaryImplementation);
+	}
+
+	/**
+	 * Writes the index to the given file
+	 * @param indexFile
+	 * @throws LexicalResourceException
+	 */
+	public void build(File indexFile) throws LexicalResourceException
+	{
+		build(indexFile, null);
+	}
+
+	/**
+	 * Writes an index of the given lemmas only (e.g. for tests): the other lemmas have no rules in it, though they may be the other side
+	 * of the rules of the given lemmas.
+	 * @param indexFile
+	 * @param lemmasToIndex lower case lemmas, with spaces; or null for all the lemmas of Wordnet
+	 * @throws LexicalResourceException
+	 */
+	void build(File indexFile, Set<String> lemmasToIndex) throws LexicalResourceException
+	{
+		File entriesFile = new File(indexFile.getPath() + ".entries.tmp");
+		try
+		{
+			// the entries are written first, since they define the strings and the synsets
+			List<Integer> entryPositions = new ArrayList<Integer>();
+			DataOutputStream entriesStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(entriesFile)));
+			try
+			{
+				for (String lemma : readLemmas())
+					for (WordNetPartOfSpeech pos : WordNetPartOfSpeech.values())
+						if (lemmas.get(pos).contains(lemma) && (lemmasToIndex == null || lemmasToIndex.contains(lemma)))
+						{
+							entryPositions.add(entriesStream.size());
+							writeEntry(entriesStream, lemma, pos);
+						}
+			}
+			finally
+			{
+				entriesStream.close();
+			}
+			writeIndex(indexFile, entriesFile, entryPositions);
+		}
+		catch (IOException e)
+		{
+			throw new LexicalResourceException("failed to write the wordnet closure index " + indexFile, e);
+		}
+		finally
+		{
+			entriesFile.delete();
+		}
+	}
+
+	public void close()
+	{
+		services.close();
+	}
+
+	public static void main(String[] args) throws Exception
+	{
+		if (args.length != 3) {
+			System.out.println("Usage: eu.excitementproject.eop.core.component.lexicalknowledge.wordnet.WordnetClosureIndexBuilder <configuration file> <wordnet section name> <output file>");
+			System.exit(0);
+		}
+
+		ConfigurationFile confFile = new ConfigurationFile(new ImplCommonConfig(new File(args[0])));
+		ConfigurationParams params = confFile.getModuleConfiguration(args[1]);
+		WordnetClosureIndexBuilder builder = new WordnetClosureIndexBuilder(
+				params.getDirectory(WordnetLexicalResource.PARAM_WN_DIR),
+				params.getEnumSet(WordNetRelation.class, WordnetLexicalResource.PARAM_DEFAULT_RELATIONS),
+				params.getInt(WordnetLexicalResource.PARAM_CHAINING_LENGTH),
+				params.containsKey(WordnetLexicalResource.PARAM_WORDNET_DICTIONARY_IMPLEMENTATION_TYPE) ?
+					params.getEnum(WordnetDictionaryImplementationType.class, WordnetLexicalResource.PARAM_WORDNET_DICTIONARY_IMPLEMENTATION_TYPE) : null);
+		try
+		{
+			builder.build(new File(args[2]));
+		}
+		finally
+		{
+			builder.close();
+		}
+		System.out.println("Done.");
+	}
+
+	////////////////////////////////////////////////////////////////	PRIVATE	///////////////////////////////////////////////////////////
+
+	/**
+	 * Reads the lemmas of each POS from the <code>index.*</code> files of the dictionary. The lines of these files start with the lemma,
+	 * with underscores instead of spaces. The license lines start with spaces.
+	 * @return all the lemmas, sorted like {@link WordnetClosureIndex} searches them
+	 */
+	private Set<String> readLemmas() throws IOException, LexicalResourceException
+	{
+		Set<String> allLemmas = new TreeSet<String>();
+		for (WordNetPartOfSpeech pos : WordNetPartOfSpeech.values())
+		{
+			File indexOfPos = new File(wnDictionaryDir, INDEX_FILE_NAMES.get(pos));
+			if (!indexOfPos.isFile())
+				throw new LexicalResourceException("Cannot find the lemmas of " + pos + ", since " + indexOfPos + " doesn't exist");
+			Set<String> lemmasOfPos = new LinkedHashSet<String>();
+			BufferedReader reader = new BufferedReader(new FileReader(indexOfPos));
+			try
+			{
+				String line;
+				while ((line = reader.readLine()) != null)
+				{
+					if (line.length() == 0 || line.charAt(0) == ' ')
+						continue;
+					int end = line.indexOf(' ');
+					String lemma = (end < 0 ? line : line.substring(0, end)).replace('_', ' ').toLowerCase();
+					lemmasOfPos.add(lemma);
+				}
+			}
+			finally
+			{
+				reader.close();
+			}
+			lemmas.put(pos, lemmasOfPos);
+			allLemmas.addAll(lemmasOfPos);
+		}
+		return allLemmas;
+	}
+
+	private void writeEntry(DataOutputStream out, String lemma, WordNetPartOfSpeech pos) throws IOException, LexicalResourceException
+	{
+		PartOfSpeech genericPos;
+		try	{	genericPos = pos.toPartOfSpeech();	}
+		catch (WordNetException e)	{	throw new LexicalResourceException("Bug! " + pos + " isn't a valid POS", e);	}
+
+		List<Synset> senses = services.getSynsets(lemma, genericPos);
+		out.writeInt(stringId(lemma));
+		out.writeByte(pos.ordinal());
+		out.writeShort(senses.size());
+		for (Synset sense : senses)
+			out.writeInt(synsetId(sense));
+
+		WordnetRuleInfo allSenses = new WordnetRuleInfoWithSenseNumsOnly(-1, -1);
+		for (boolean isFromRight : new boolean[]{false, true})
+		{
+			List<LexicalRule<? extends WordnetRuleInfo>> rules = services.getRulesForSide(lemma, genericPos, relations, allSenses, chainingLength, isFromRight);
+			out.writeInt(rules.size());
+			for (LexicalRule<? extends WordnetRuleInfo> rule : rules)
+			{
+				WordnetRuleInfo info = rule.getInfo();
+				out.writeByte(relationIndex(info.getTypedRelation()));
+				if (isFromRight)
+				{
+					out.writeShort(info.getRightSenseNo());
+					out.writeInt(stringId(rule.getLLemma()));
+					out.writeInt(synsetId(info.getLeftSense()));
+					out.writeShort(info.getLeftSenseNo());
+				}
+				else
+				{
+					out.writeShort(info.getLeftSenseNo());
+					out.writeInt(stringId(rule.getRLemma()));
+					out.writeInt(synsetId(info.getRightSense()));
+					out.writeShort(info.getRightSenseNo());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Writes the header, the strings, the synsets, and the entries. Each of the last three sections starts with the number of its records,
+	 * followed by the positions of the records in the file. See {@link WordnetClosureIndex} for the records.
+	 */
+	private void writeIndex(File indexFile, File entriesFile, List<Integer> entryPositions) throws IOException, LexicalResourceException
+	{
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile)));
+		try
+		{
+			out.writeInt(WordnetClosureIndex.MAGIC);
+			out.writeInt(WordnetClosureIndex.VERSION);
+			out.writeInt(chainingLength);
+			out.writeInt(relations.size());
+			for (WordNetRelation relation : relations)
+				writeString(out, encode(relation.name()));
+
+			List<byte[]> encodedStrings = new ArrayList<byte[]>(stringIds.size());
+			long stringsSize = 0;
+			for (String string : stringIds.keySet())
+			{
+				byte[] encoded = encode(string);
+				encodedStrings.add(encoded);
+				stringsSize += 2 + encoded.length;
+			}
+			long synsetsSize = 4 + 4L * synsetIds.size();
+			for (SynsetRecord synset : synsetIds.keySet())
+				synsetsSize += 1 + 8 + 2 + 4 * synset.words.size();
+
+			long position = out.size() + 4 + 4L * encodedStrings.size() + 4 + 4;
+			long synsetsPosition = position + stringsSize;
+			long entriesPosition = synsetsPosition + synsetsSize;
+			long entriesDataPosition = entriesPosition + 4 + 4L * entryPositions.size();
+			if (entriesDataPosition + entriesFile.length() > Integer.MAX_VALUE)
+				throw new LexicalResourceException("The wordnet closure index is too large to be mapped to memory");
+
+			// strings
+			out.writeInt(encodedStrings.size());
+			for (byte[] encoded : encodedStrings)
+			{
+				out.writeInt((int) position);
+				position += 2 + encoded.length;
+			}
+			out.writeInt((int) synsetsPosition);
+			out.writeInt((int) entriesPosition);
+			for (byte[] encoded : encodedStrings)
+				writeString(out, encoded);
+
+			// synsets
+			out.writeInt(synsetIds.size());
+			position = synsetsPosition + 4 + 4L * synsetIds.size();
+			for (SynsetRecord synset : synsetIds.keySet())
+			{
+				out.writeInt((int) position);
+				position += 1 + 8 + 2 + 4 * synset.words.size();
+			}
+			for (SynsetRecord synset : synsetIds.keySet())
+			{
+				out.writeByte(synset.pos.ordinal());
+				out.writeLong(synset.offset);
+				out.writeShort(synset.words.size());
+				for (String word : synset.words)
+					out.writeInt(stringId(word));
+			}
+
+			// entries
+			out.writeInt(entryPositions.size());
+			for (Integer entryPosition : entryPositions)
+				out.writeInt((int) entriesDataPosition + entryPosition);
+			InputStream entries = new BufferedInputStream(new FileInputStream(entriesFile));
+			try
+			{
+				byte[] bytes = new byte[64 * 1024];
+				int read;
+				while ((read = entries.read(bytes)) > 0)
+					out.write(bytes, 0, read);
+			}
+			finally
+			{
+				entries.close();
+			}
+		}
+		finally
+		{
+			out.close();
+		}
+	}
+
+	private static byte[] encode(String string) throws LexicalResourceException
+	{
+		byte[] encoded = string.getBytes(WordnetClosureIndex.UTF8);
+		if (encoded.length > 0xFFFF)
+			throw new LexicalResourceException("String too long for the wordnet closure index: " + string);
+		return encoded;
+	}
+
+	private static void writeString(DataOutputStream out, byte[] encoded) throws IOException
+	{
+		out.writeShort(encoded.length);
+		out.write(encoded);
+	}
+
+	private int relationIndex(WordNetRelation relation) throws LexicalResourceException
+	{
+		int index = 0;
+		for (WordNetRelation indexed : relations)
+		{
+			if (indexed.equals(relation))
+				return index;
+			index++;
+		}
+		throw new LexicalResourceException("Bug! got a rule of relation " + relation + ", which isn't one of " + relations);
+	}
+
+	private int stringId(String string)
+	{
+		Integer id = stringIds.get(string);
+		if (id == null)
+		{
+			id = stringIds.size();
+			stringIds.put(string, id);
+		}
+		return id;
+	}
+
+	private int synsetId(Synset synset) throws LexicalResourceException
+	{
+		SynsetRecord record;
+		try	{	record = new SynsetRecord(synset.getPartOfSpeech(), synset.getOffset(), synset.getWords());	}
+		catch (WordNetException e)	{	throw new LexicalResourceException("wordnet error occured, see nested", e);	}
+		Integer id = synsetIds.get(record);
+		if (id == null)
+		{
+			id = synsetIds.size();
+			synsetIds.put(record, id);
+			for (String word : record.words)
+				stringId(word);
+		}
+		return id;
+	}
+
+	/**
+	 * The part of a {@link Synset} that is written to the index. Identified by POS and offset.
+	 */
+	private static final class SynsetRecord
+	{
+		private SynsetRecord(WordNetPartOfSpeech pos, long offset, Set<String> words)
+		{
+			this.pos = pos;
+			this.offset = offset;
+			this.words = new ArrayList<String>(words);
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return 31 * pos.hashCode() + (int) (offset ^ (offset >>> 32));
+		}
+
+		@Override
+		public boolean equals(Object obj)
+		{
+			if (this == obj)
+				return true;
+			if (obj == null || getClass() != obj.getClass())
+				return false;
+			SynsetRecord other = (SynsetRecord) obj;
+			return offset == other.offset && pos == other.pos;
+		}
+
+		private final WordNetPartOfSpeech pos;
+		private final long offset;
+		private final List<String> words;
+	}
+
+	private static final Map<WordNetPartOfSpeech, String> INDEX_FILE_NAMES = new LinkedHashMap<WordNetPartOfSpeech, String>();
+	static
+	{
+		INDEX_FILE_NAMES.put(WordNetPartOfSpeech.ADJECTIVE, "index.adj");
+		INDEX_FILE_NAMES.put(WordNetPartOfSpeech.ADVERB, "index.adv");
+		INDEX_FILE_NAMES.put(WordNetPartOfSpeech.NOUN, "index.noun");
+		INDEX_FILE_NAMES.put(WordNetPartOfSpeech.VERB, "index.verb");
+	}
+
+	private final File wnDictionaryDir;
+	private final Set<WordNetRelation> relations;
+	private final int chainingLength;
+	private final WordnetLexicalResourceServices services;
+
+	private final Map<WordNetPartOfSpeech, Set<String>> lemmas = new LinkedHashMap<WordNetPartOfSpeech, Set<String>>();
+	private final Map<String, Integer> stringIds = new LinkedHashMap<String, Integer>();
+	private final Map<SynsetRecord, Integer> synsetIds = new LinkedHashMap<SynsetRecord, Integer>();
+}
@@ -52,6 +52,9 @@ import eu.excitementproject.eop.core.utilities.dictionary.wordnet.jwnl.JwnlUtils
  * Note that some relations do not work due to third party limitations (currently,
  * CATEGORY_MEMBER, TROPONYM and DERIVED might not work. See {@link ExtJwnlUtils},
  * {@link JwnlUtils}, {@link JwiUtils}.
+ * <P>
+ * Instead of Wordnet, the rules can be read from a {@link WordnetClosureIndex}, which holds them precomputed for fixed relations and 
+ * chaining length (see {@link WordnetClosureIndexBuilder}).
  * 
  * @author Amnon Lotan
  * @since 28/05/2011
@@ -68,6 +71,11 @@ public class WordnetLexicalResource implements LexicalResource<WordnetRuleInfo>
 	 * optional parameter
 	 */
 	public static final String PARAM_WORDNET_DICTIONARY_IMPLEMENTATION_TYPE = "wordnet dictionary implementation type";
+	/**
+	 * optional parameter. If set, the rules are read from this {@link WordnetClosureIndex} file instead of from Wordnet, and {@link #PARAM_WN_DIR}
+	 * is ignored
+	 */
+	public static final String PARAM_CLOSURE_INDEX_FILE = "closure-index-file";
 
 	
 	/////////////////////////////////////////////// CONSTRUCTORS ////////////////////////////////////////////////////////////////////
@@ -153,26 +161,65 @@ public class WordnetLexicalResource implements LexicalResource<WordnetRuleInfo>
 			File wnDictionaryDir,boolean useFirstSenseOnlyLeft, boolean useFirstSenseOnlyRight, Set<WordNetRelation> defaultRelations, 
 			int chainingLength, WordnetDictionaryImplementationType wordnetDictionaryImplementation) throws LexicalResourceException
 	{
-		wordnetLexResourceServices = new WordnetLexicalResourceServices(wnDictionaryDir, wordnetDictionaryImplementation); 
-		this.useFirstSenseOnlyLeft = useFirstSenseOnlyLeft;
-		this.useFirstSenseOnlyRight = useFirstSenseOnlyRight;
-		if (defaultRelations != null)	setDefaultRelationSet(defaultRelations); 
-		if (chainingLength < 1)
-			throw new LexicalResourceException("the left chaining length must be positive. I got " + chainingLength);
-		this.chainingLength = chainingLength;
+		this(new WordnetLexicalResourceServices(wnDictionaryDir, wordnetDictionaryImplementation), null, 
+				useFirstSenseOnlyLeft, useFirstSenseOnlyRight, defaultRelations, chainingLength);
+	}
+	
+	/**
+	 * Ctor of a resource that answers from a precomputed {@link WordnetClosureIndex}, rather than from Wordnet. The chaining length is the one 
+	 * the index was built with, and the relations must be among the relations the index was built with.
+	 * @param closureIndex see {@link WordnetClosureIndexBuilder}
+	 * @param useFirstSenseOnlyLeft if true, only the first sense of each term will be considered. otherwise, all senses will be considered
+	 * @param useFirstSenseOnlyRight if true, only the first sense of each term will be considered. otherwise, all senses will be considered
+	 * @param defaultRelations may be null (to leave undefined) but not empty
+	 * @throws LexicalResourceException
+	 */
+	public WordnetLexicalResource(
+			WordnetClosureIndex closureIndex, boolean useFirstSenseOnlyLeft, boolean useFirstSenseOnlyRight, Set<WordNetRelation> defaultRelations) 
+					throws LexicalResourceException
+	{
+		this(null, closureIndex, useFirstSenseOnlyLeft, useFirstSenseOnlyRight, defaultRelations, closureIndex.getChainingLength());
 	}
 	
 
 	public WordnetLexicalResource(ConfigurationParams params) throws LexicalResourceException, ConfigurationException
 	{
 		this(
-				params.getDirectory(PARAM_WN_DIR),
+				params.containsKey(PARAM_CLOSURE_INDEX_FILE) ? null : 
+					new WordnetLexicalResourceServices(params.getDirectory(PARAM_WN_DIR), 
+						params.containsKey(PARAM_WORDNET_DICTIONARY_IMPLEMENTATION_TYPE) ? 
+							params.getEnum(WordnetDictionaryImplementationType.class, PARAM_WORDNET_DICTIONARY_IMPLEMENTATION_TYPE) : null),
+				params.containsKey(PARAM_CLOSURE_INDEX_FILE) ? new WordnetClosureIndex(params.getFile(PARAM_CLOSURE_INDEX_FILE)) : null,
 				params.getBoolean(PARAM_ONLY_FIRST_LEFT),
 				params.getBoolean(PARAM_ONLY_FIRST_RIGHT),
 				params.getEnumSet(WordNetRelation.class, PARAM_DEFAULT_RELATIONS),
-				params.getInt(PARAM_CHAINING_LENGTH),
-				params.containsKey(PARAM_WORDNET_DICTIONARY_IMPLEMENTATION_TYPE) ? 
-					params.getEnum(WordnetDictionaryImplementationType.class, PARAM_WORDNET_DICTIONARY_IMPLEMENTATION_TYPE) : null);
+				params.getInt(PARAM_CHAINING_LENGTH));
+	}
+	
+	/**
+	 * Exactly one of wordnetLexResourceServices and closureIndex is not null
+	 */
+	private WordnetLexicalResource(WordnetLexicalResourceServices wordnetLexResourceServices, WordnetClosureIndex closureIndex,
+			boolean useFirstSenseOnlyLeft, boolean useFirstSenseOnlyRight, Set<WordNetRelation> defaultRelations, int chainingLength) 
+					throws LexicalResourceException
+	{
+		this.wordnetLexResourceServices = wordnetLexResourceServices;
+		this.closureIndex = closureIndex;
+		this.useFirstSenseOnlyLeft = useFirstSenseOnlyLeft;
+		this.useFirstSenseOnlyRight = useFirstSenseOnlyRight;
+		if (defaultRelations != null)	setDefaultRelationSet(defaultRelations); 
+		if (chainingLength < 1)
+			throw new LexicalResourceException("the left chaining length must be positive. I got " + chainingLength);
+		this.chainingLength = chainingLength;
+		if (closureIndex != null)
+		{
+			if (chainingLength != closureIndex.getChainingLength())
+				throw new LexicalResourceException("the chaining length is " + chainingLength + ", but the closure index was built with " + 
+						closureIndex.getChainingLength());
+			if (defaultRelations != null && !closureIndex.getRelations().containsAll(defaultRelations))
+				throw new LexicalResourceException("the closure index was built with the relations " + closureIndex.getRelations() + 
+						", which do not include all of " + defaultRelations);
+		}
 	}
 
 	///////////////////////////////////////////// PUBLIC ////////////////////////////////////////////////////////////////////
@@ -183,7 +230,10 @@ public class WordnetLexicalResource implements LexicalResource<WordnetRuleInfo>
 	 */
 	public void close()
 	{
-		this.wordnetLexResourceServices.close();
+		if (this.wordnetLexResourceServices != null)
+			this.wordnetLexResourceServices.close();
+		else
+			this.closureIndex.close();
 	}
 
 	
@@ -236,6 +286,8 @@ public class WordnetLexicalResource implements LexicalResource<WordnetRuleInfo>
 			int rightSenseNum = useFirstSenseOnlyRight ? 1 : -1;
 			info = new WordnetRuleInfoWithSenseNumsOnly(leftSenseNum, rightSenseNum);
 		}
+		if (closureIndex != null)
+			return closureIndex.getRulesForSide(lemma, pos, relations, info, true);
 		return wordnetLexResourceServices.getRulesForSide(lemma, pos, relations, info, chainingLength, true);
 	}
 
@@ -286,6 +338,8 @@ public class WordnetLexicalResource implements LexicalResource<WordnetRuleInfo>
 			int rightSenseNum = useFirstSenseOnlyRight ? 1 : -1;
 			info = new WordnetRuleInfoWithSenseNumsOnly(leftSenseNum, rightSenseNum);
 		}
+		if (closureIndex != null)
+			return closureIndex.getRulesForSide(lemma, pos, relations, info, false);
 		return wordnetLexResourceServices.getRulesForSide(lemma, pos, relations, info, chainingLength, false);
 	}
 	
@@ -339,6 +393,8 @@ public class WordnetLexicalResource implements LexicalResource<WordnetRuleInfo>
 			int rightSenseNum = useFirstSenseOnlyRight ? 1 : -1;
 			info = new WordnetRuleInfoWithSenseNumsOnly(leftSenseNum, rightSenseNum);
 		}
+		if (closureIndex != null)
+			return closureIndex.getRules(leftLemma, leftPos, rightLemma, rightPos, relations, info);
 		return wordnetLexResourceServices.getRules(leftLemma, leftPos, rightLemma, rightPos, relations, info, chainingLength);
 	}
 	
@@ -373,7 +429,14 @@ public class WordnetLexicalResource implements LexicalResource<WordnetRuleInfo>
 
 	///////////////////////////////////////////////// PROTECTED + PRIVATE ////////////////////////////////////////////////////////////////////
 
+	/**
+	 * null when the rules are read from {@link #closureIndex}
+	 */
 	protected final WordnetLexicalResourceServices wordnetLexResourceServices;
+	/**
+	 * null when the rules are read from Wordnet
+	 */
+	protected final WordnetClosureIndex closureIndex;
 	protected boolean useFirstSenseOnlyRight;
 	protected boolean useFirstSenseOnlyLeft;
 	protected Set<WordNetRelation> defaultRelations;
@@ -226,6 +226,19 @@ public class WordnetLexicalResourceServices {
 		return rulesList;
 	}
 	
+	/**
+	 * Return all the synsets of the given lemma+pos, sorted by their sense numbers
+	 *
+	 * @param lemma
+	 * @param pos
+	 * @return
+	 * @throws LexicalResourceException
+	 */
+	List<Synset> getSynsets(String lemma, PartOfSpeech pos) throws LexicalResourceException
+	{
+		return pullSynsets(lemma, pos, -1);
+	}
+
 	/**
 	 * Get the ordinal sense number of a lamma+pos with a given synset offset
 	 * @param lemma
@@ -8,11 +8,7 @@ import java.util.Vector;
 
 import org.apache.uima.cas.CASException;
 import org.apache.uima.jcas.JCas;
-import org.apache.uima.jcas.tcas.Annotation;
-import org.uimafit.util.JCasUtil;
 
-import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
-import de.tudarmstadt.ukp.dkpro.core.api.syntax.type.dependency.Dependency;
 import eu.excitementproject.eop.common.component.scoring.ScoringComponentException;
 
 /**
@@ -122,61 +118,14 @@ public class BagOfDepsScoring extends BagOfWordsScoring {
 	}
 
 	protected Map<String, Integer> countTokenPoses(JCas text) {
-		Map<String, Integer> tokenNumMap = new HashMap<String, Integer>();
-		Iterator<Annotation> tokenIter = text.getAnnotationIndex(Token.type)
-				.iterator();
-		while (tokenIter.hasNext()) {
-			Token curr = (Token) tokenIter.next();
-			String tokenText = curr.getLemma().getValue().replace("#", "\\#")
-					+ " ### " + curr.getPos().getPosValue();
-			Integer num = tokenNumMap.get(tokenText);
-			if (null == num) {
-				tokenNumMap.put(tokenText, 1);
-			} else {
-				tokenNumMap.put(tokenText, num + 1);
-			}
-		}
-		return tokenNumMap;
+		return PairFeatureContext.escapedLemmaPoses(text);
 	}
 
 	protected Map<String, String> indexDepTree(JCas text) {
-		Map<String, String> depTree = new HashMap<String, String>();
-
-		// format: key: 1 ### word ### pos; value: dep_rel ## 2 ### word ### pos
-		// escape: .replace("#", "\\#")
-		// depTree.put("1 ### The ### Det", "DET ## 2 ### dog ### N");
-		// depTree.put("2 ### dog ### N", "SUBJ ## 3 ### chases ### V");
-		// depTree.put("3 ### chases ### V", "ROOT ## 0 ### NULL ### NULL");
-		// depTree.put("4 ### The ### Det", "DET ## 5 ### cat ### N");
-		// depTree.put("5 ### cat ### N", "OBJ ## 3 ### chases ### V");
-		for (Dependency dep : JCasUtil.select(text, Dependency.class)) {
-			Token child = dep.getDependent();
-			Token parent = dep.getGovernor();
-			depTree.put(child.getBegin() + " ### "
-					+ child.getCoveredText().replace("#", "\\#") + " ### "
-					+ child.getPos().getPosValue(), dep.getDependencyType()
-					+ " ## " + parent.getBegin() + " ### "
-					+ parent.getCoveredText().replace("#", "\\#") + " ### "
-					+ parent.getPos().getPosValue());
-		}
-
-		return depTree;
+		return PairFeatureContext.depTree(text);
 	}
 
 	protected Map<String, String> indexLemmaDepTree(JCas text) {
-		Map<String, String> depTree = new HashMap<String, String>();
-
-		for (Dependency dep : JCasUtil.select(text, Dependency.class)) {
-			Token child = dep.getDependent();
-			Token parent = dep.getGovernor();
-			depTree.put(child.getBegin() + " ### "
-					+ child.getLemma().getValue().replace("#", "\\#") + " ### "
-					+ child.getPos().getPosValue(), dep.getDependencyType()
-					+ " ## " + parent.getBegin() + " ### "
-					+ parent.getLemma().getValue().replace("#", "\\#")
-					+ " ### " + parent.getPos().getPosValue());
-		}
-
-		return depTree;
+		return PairFeatureContext.lemmaDepTree(text);
 	}
 }
@@ -1,14 +1,11 @@
 package eu.excitementproject.eop.core.component.scoring;
 
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.Vector;
 
 import org.apache.uima.cas.CASException;
 import org.apache.uima.jcas.JCas;
-import org.apache.uima.jcas.tcas.Annotation;
 
-import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
 import eu.excitementproject.eop.common.component.scoring.ScoringComponentException;
 
 /**
@@ -66,19 +63,6 @@ public class BagOfLemmasScoring extends BagOfWordsScoring {
 	 *         the form of <Lemma, Frequency>
 	 */
 	protected HashMap<String, Integer> countTokens(JCas text) {
-		HashMap<String, Integer> tokenNumMap = new HashMap<String, Integer>();
-		Iterator<Annotation> tokenIter = text.getAnnotationIndex(Token.type)
-				.iterator();
-		while (tokenIter.hasNext()) {
-			Token curr = (Token) tokenIter.next();
-			String tokenText = curr.getLemma().getValue();
-			Integer num = tokenNumMap.get(tokenText);
-			if (null == num) {
-				tokenNumMap.put(tokenText, 1);
-			} else {
-				tokenNumMap.put(tokenText, num + 1);
-			}
-		}
-		return tokenNumMap;
+		return PairFeatureContext.lemmas(text);
 	}
 }
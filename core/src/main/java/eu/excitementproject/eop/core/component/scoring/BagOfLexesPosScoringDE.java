@@ -8,9 +8,7 @@ import java.util.logging.Logger;
 
 import org.apache.uima.cas.CASException;
 import org.apache.uima.jcas.JCas;
-import org.apache.uima.jcas.tcas.Annotation;
 
-import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
 import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalResource;
 import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalResourceCloseException;
 import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalResourceException;
@@ -192,21 +190,7 @@ public class BagOfLexesPosScoringDE extends BagOfLexesScoringDE {
 	 *         text, in the form of <Lemma ### POS, Frequency>
 	 */
 	protected HashMap<String, Integer> countTokenPoses(JCas text) {
-		HashMap<String, Integer> tokenNumMap = new HashMap<String, Integer>();
-		Iterator<Annotation> tokenIter = text.getAnnotationIndex(Token.type)
-				.iterator();
-		while (tokenIter.hasNext()) {
-			Token curr = (Token) tokenIter.next();
-			String tokenText = curr.getLemma().getValue() + " ### "
-					+ curr.getPos().getPosValue();
-			Integer num = tokenNumMap.get(tokenText);
-			if (null == num) {
-				tokenNumMap.put(tokenText, 1);
-			} else {
-				tokenNumMap.put(tokenText, num + 1);
-			}
-		}
-		return tokenNumMap;
+		return PairFeatureContext.lemmaPoses(text);
 	}
 
 	@Override
@@ -1,10 +1,16 @@
 package eu.excitementproject.eop.core.component.scoring;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.Vector;
@@ -13,6 +19,10 @@ import java.util.logging.Logger;
 import org.apache.uima.cas.CASException;
 import org.apache.uima.jcas.JCas;
 
+import eu.excitementproject.eop.common.component.lexicalknowledge.BatchLexicalResourceUtils;
+import eu.excitementproject.eop.common.component.lexicalknowledge.CachingLexicalResource;
+import eu.excitementproject.eop.common.component.lexicalknowledge.LemmaPos;
+import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalResource;
 import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalResourceCloseException;
 import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalResourceException;
 import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalRule;
@@ -23,7 +33,9 @@ import eu.excitementproject.eop.common.configuration.NameValueTable;
 import eu.excitementproject.eop.common.exception.ConfigurationException;
 import eu.excitementproject.eop.core.component.lexicalknowledge.verb_ocean.RelationType;
 import eu.excitementproject.eop.core.component.lexicalknowledge.verb_ocean.VerbOceanLexicalResource;
+import eu.excitementproject.eop.core.component.lexicalknowledge.verb_ocean.VerbOceanRuleInfo;
 import eu.excitementproject.eop.core.component.lexicalknowledge.wordnet.WordnetLexicalResource;
+import eu.excitementproject.eop.core.component.lexicalknowledge.wordnet.WordnetRuleInfo;
 import eu.excitementproject.eop.core.utilities.dictionary.wordnet.WordNetRelation;
 
 /**
@@ -49,9 +61,17 @@ public class BagOfLexesScoringEN extends BagOfLemmasScoring {
 		return numOfFeats;
 	}
 
-	private Set<WordnetLexicalResource> wnlrSet;
+	private Set<LexicalResource<WordnetRuleInfo>> wnlrSet;
 
-	private Set<VerbOceanLexicalResource> volrSet;
+	private Set<LexicalResource<VerbOceanRuleInfo>> volrSet;
+
+	/**
+	 * the memo of the lexical resources: for each resource (i.e. each
+	 * relation, or set of collapsed relations), the right-hand side lemmas of
+	 * the rules of each left-hand side lemma (the POS is always
+	 * <code>null</code>)
+	 */
+	private final Map<LexicalResource<? extends RuleInfo>, Map<String, List<String>>> ruleMemo = new IdentityHashMap<LexicalResource<? extends RuleInfo>, Map<String, List<String>>>();
 	
 	/**
 	 * the constructor using parameters
@@ -96,7 +116,7 @@ public class BagOfLexesScoringEN extends BagOfLemmasScoring {
 				throw new ConfigurationException(
 						"Wrong configuation: didn't find any (correct) relations for the WordNet");
 			}
-			wnlrSet = new HashSet<WordnetLexicalResource>();
+			wnlrSet = new HashSet<LexicalResource<WordnetRuleInfo>>();
 			File wnFile = new File(wnPath);			
 			if (!wnFile.exists()) {
 				throw new ConfigurationException("cannot find WordNet at: " + wnPath);
@@ -139,7 +159,7 @@ public class BagOfLexesScoringEN extends BagOfLemmasScoring {
 				throw new ConfigurationException(
 						"Wrong configuation: didn't find any (correct) relations for the VerbOcean");
 			}
-			volrSet = new HashSet<VerbOceanLexicalResource>();
+			volrSet = new HashSet<LexicalResource<VerbOceanRuleInfo>>();
 			File voFile = new File(voPath);
 			if (!voFile.exists()) {
 				throw new ConfigurationException("cannot find VerbOcean at: " + voPath);
@@ -227,7 +247,7 @@ public class BagOfLexesScoringEN extends BagOfLemmasScoring {
 					wnPath = wnComp.getString("wordNetFilesPath");
 				}
 			}
-			wnlrSet = new HashSet<WordnetLexicalResource>();
+			wnlrSet = new HashSet<LexicalResource<WordnetRuleInfo>>();
 			File wnFile = new File(wnPath);			
 			if (!wnFile.exists()) {
 				throw new ConfigurationException("cannot find WordNet at: " + wnPath);
@@ -235,14 +255,14 @@ public class BagOfLexesScoringEN extends BagOfLemmasScoring {
 			if (isCollapsed) {
 				WordnetLexicalResource wnlr = new WordnetLexicalResource(wnFile, useFirstSenseOnlyLeft,
 						useFirstSenseOnlyRight, wnRelSet);
-				wnlrSet.add(wnlr);
+				wnlrSet.add(wrapIfConfigured(wnlr, wnComp, null));
 				numOfFeats++;
 			} else {
 				for (WordNetRelation wnr : wnRelSet) {
 					WordnetLexicalResource wnlr = new WordnetLexicalResource(
 							wnFile, useFirstSenseOnlyLeft,
 							useFirstSenseOnlyRight, Collections.singleton(wnr));
-					wnlrSet.add(wnlr);
+					wnlrSet.add(wrapIfConfigured(wnlr, wnComp, wnr.name()));
 					numOfFeats++;
 				}
 			}
@@ -286,7 +306,7 @@ public class BagOfLexesScoringEN extends BagOfLemmasScoring {
 					voPath = voComp.getString("verbOceanFilePath");
 				}
 			}
-			volrSet = new HashSet<VerbOceanLexicalResource>();
+			volrSet = new HashSet<LexicalResource<VerbOceanRuleInfo>>();
 			File voFile = new File(voPath);
 			if (!voFile.exists()) {
 				throw new ConfigurationException("cannot find VerbOcean at: " + voPath);
@@ -294,13 +314,13 @@ public class BagOfLexesScoringEN extends BagOfLemmasScoring {
 			if (isCollapsed) {
 				VerbOceanLexicalResource volr = new VerbOceanLexicalResource(1,
 						voFile, voRelSet);
-				volrSet.add(volr);
+				volrSet.add(wrapIfConfigured(volr, voComp, null));
 				numOfFeats++;
 			} else {
 				for (RelationType vor : voRelSet) {
 					VerbOceanLexicalResource volr = new VerbOceanLexicalResource(
 							1, voFile, Collections.singleton(vor));
-					volrSet.add(volr);
+					volrSet.add(wrapIfConfigured(volr, voComp, vor.name()));
 					numOfFeats++;
 				}
 			}
@@ -308,30 +328,61 @@ public class BagOfLexesScoringEN extends BagOfLemmasScoring {
 		}
 	}
 
+	/**
+	 * wrap the lexical resource with a <code>CachingLexicalResource</code>, if
+	 * its configuration section sets a cache size (see
+	 * <code>CachingLexicalResource.wrapIfConfigured</code>), so that the
+	 * instances of the component with the same configuration (e.g. of
+	 * different threads) share the results of the resource
+	 * 
+	 * @param lr
+	 *            the lexical resource
+	 * @param section
+	 *            the configuration section of the resource, or
+	 *            <code>null</code>
+	 * @param relation
+	 *            the relation of the resource if the relations are not
+	 *            collapsed, since the resources of the different relations
+	 *            are created from the same section and must not share their
+	 *            cache; <code>null</code> otherwise
+	 * @return the (wrapped) lexical resource
+	 * @throws ConfigurationException
+	 */
+	private static <I extends RuleInfo> LexicalResource<I> wrapIfConfigured(
+			LexicalResource<I> lr, NameValueTable section, String relation)
+			throws ConfigurationException {
+		if (null == section) {
+			return lr;
+		}
+		return CachingLexicalResource.wrapIfConfigured(lr, section, relation);
+	}
+
 	@Override
 	public String getComponentName() {
 		return "BagOfLexesScoringEN";
 	}
 
 	/**
-	 * close the component by closing the lexical resources.
+	 * close the component by closing the lexical resources, and drop the memo
+	 * of their rules.
 	 */
 	@Override
 	public void close() throws ScoringComponentException {
 		try {
 			if (null != wnlrSet) {
-				for (WordnetLexicalResource wnlr : wnlrSet) {
+				for (LexicalResource<WordnetRuleInfo> wnlr : wnlrSet) {
 					wnlr.close();
 				}
 			}
 			if (null != volrSet) {
-				for (VerbOceanLexicalResource volr : volrSet) {
+				for (LexicalResource<VerbOceanRuleInfo> volr : volrSet) {
 					volr.close();
 				}
 			}
 		} catch (LexicalResourceCloseException e) {
 			throw new ScoringComponentException(e.getMessage());
 		}
+		ruleMemo.clear();
 	}
 
 	@Override
@@ -349,13 +400,13 @@ public class BagOfLexesScoringEN extends BagOfLemmasScoring {
 			HashMap<String, Integer> hBag = countTokens(hView);
 
 			if (null != wnlrSet && wnlrSet.size() != 0) {
-				for (WordnetLexicalResource wnlr : wnlrSet) {
+				for (LexicalResource<WordnetRuleInfo> wnlr : wnlrSet) {
 					scoresVector.add(calculateSingleLexScoreWithWNRelations(
 							tBag, hBag, wnlr));
 				}
 			}
 			if (null != volrSet && volrSet.size() != 0) {
-				for (VerbOceanLexicalResource volr : volrSet) {
+				for (LexicalResource<VerbOceanRuleInfo> volr : volrSet) {
 					scoresVector.add(calculateSingleLexScoreWithVORelations(
 							tBag, hBag, volr));
 				}
@@ -366,6 +417,63 @@ public class BagOfLexesScoringEN extends BagOfLemmasScoring {
 		return scoresVector;
 	}
 
+	/**
+	 * Look up the given lemmas in all the lexical resources in advance, and
+	 * memoize the results, so that scoring the pairs which contain them doesn't
+	 * query the resources anymore. The lemmas already memoized are skipped.
+	 * 
+	 * @param lemmas
+	 *            the lemmas, e.g. the vocabulary of a dataset
+	 * @throws ScoringComponentException
+	 */
+	public void prewarm(Collection<String> lemmas)
+			throws ScoringComponentException {
+		if (null != wnlrSet) {
+			for (LexicalResource<WordnetRuleInfo> wnlr : wnlrSet) {
+				prewarm(wnlr, lemmas);
+			}
+		}
+		if (null != volrSet) {
+			for (LexicalResource<VerbOceanRuleInfo> volr : volrSet) {
+				prewarm(volr, lemmas);
+			}
+		}
+	}
+
+	/**
+	 * Look up the lemmas of the texts of the given pairs in all the lexical
+	 * resources in advance; see {@link #prewarm(Collection)}.
+	 * 
+	 * @param casList
+	 *            the T-H pairs of a dataset
+	 * @throws ScoringComponentException
+	 */
+	public void prewarmFromDataSet(List<JCas> casList)
+			throws ScoringComponentException {
+		Set<String> lemmas = new LinkedHashSet<String>();
+		for (JCas aCas : casList) {
+			lemmas.addAll(getTextLemmas(aCas));
+		}
+		prewarm(lemmas);
+	}
+
+	/**
+	 * @param aCas
+	 *            a T-H pair
+	 * @return the lemmas that scoring the pair looks up in the lexical
+	 *         resources, i.e. the lemmas of its text. The set may be shared,
+	 *         so it must not be modified.
+	 * @throws ScoringComponentException
+	 */
+	public Set<String> getTextLemmas(JCas aCas)
+			throws ScoringComponentException {
+		try {
+			return countTokens(aCas.getView("TextView")).keySet();
+		} catch (CASException e) {
+			throw new ScoringComponentException(e.getMessage());
+		}
+	}
+
 	/**
 	 * calculate the similarity score between T and H based on WordNet relations
 	 * 
@@ -380,7 +488,7 @@ public class BagOfLexesScoringEN extends BagOfLemmasScoring {
 	 */
 	protected double calculateSingleLexScoreWithWNRelations(
 			HashMap<String, Integer> tBag, HashMap<String, Integer> hBag,
-			WordnetLexicalResource wnlr) throws ScoringComponentException {
+			LexicalResource<WordnetRuleInfo> wnlr) throws ScoringComponentException {
 		double score = 0.0d;
 		HashMap<String, Integer> tWordBag = new HashMap<String, Integer>();
 
@@ -389,19 +497,14 @@ public class BagOfLexesScoringEN extends BagOfLemmasScoring {
 			Entry<String, Integer> entry = iter.next();
 			final String word = entry.getKey();
 			final int counts = entry.getValue().intValue();
-			try {
-				tWordBag.put(word, counts);
-				for (LexicalRule<? extends RuleInfo> rule : wnlr
-						.getRulesForLeft(word, null)) {
-					if (tWordBag.containsKey(rule.getRLemma())) {
-						int tmp = tWordBag.get(rule.getRLemma());
-						tWordBag.put(rule.getRLemma(), tmp + counts);
-					} else {
-						tWordBag.put(rule.getRLemma(), counts);
-					}
+			tWordBag.put(word, counts);
+			for (String rLemma : getRightLemmas(wnlr, word)) {
+				if (tWordBag.containsKey(rLemma)) {
+					int tmp = tWordBag.get(rLemma);
+					tWordBag.put(rLemma, tmp + counts);
+				} else {
+					tWordBag.put(rLemma, counts);
 				}
-			} catch (LexicalResourceException e) {
-				throw new ScoringComponentException(e.getMessage());
 			}
 		}
 
@@ -425,7 +528,7 @@ public class BagOfLexesScoringEN extends BagOfLemmasScoring {
 	 */
 	protected double calculateSingleLexScoreWithVORelations(
 			HashMap<String, Integer> tBag, HashMap<String, Integer> hBag,
-			VerbOceanLexicalResource volr) throws ScoringComponentException {
+			LexicalResource<VerbOceanRuleInfo> volr) throws ScoringComponentException {
 		double score = 0.0d;
 		HashMap<String, Integer> tWordBag = new HashMap<String, Integer>();
 
@@ -434,19 +537,14 @@ public class BagOfLexesScoringEN extends BagOfLemmasScoring {
 			Entry<String, Integer> entry = iter.next();
 			final String word = entry.getKey();
 			final int counts = entry.getValue().intValue();
-			try {
-				tWordBag.put(word, counts);
-				for (LexicalRule<? extends RuleInfo> rule : volr
-						.getRulesForLeft(word, null)) {
-					if (tWordBag.containsKey(rule.getRLemma())) {
-						int tmp = tWordBag.get(rule.getRLemma());
-						tWordBag.put(rule.getRLemma(), tmp + counts);
-					} else {
-						tWordBag.put(rule.getRLemma(), counts);
-					}
+			tWordBag.put(word, counts);
+			for (String rLemma : getRightLemmas(volr, word)) {
+				if (tWordBag.containsKey(rLemma)) {
+					int tmp = tWordBag.get(rLemma);
+					tWordBag.put(rLemma, tmp + counts);
+				} else {
+					tWordBag.put(rLemma, counts);
 				}
-			} catch (LexicalResourceException e) {
-				throw new ScoringComponentException(e.getMessage());
 			}
 		}
 
@@ -454,4 +552,77 @@ public class BagOfLexesScoringEN extends BagOfLemmasScoring {
 
 		return score;
 	}
+
+	/**
+	 * @param lr
+	 *            the lexical resource
+	 * @param lemma
+	 *            the left-hand side lemma
+	 * @return the right-hand side lemmas of the rules of the lemma, from the
+	 *         memo if it's there
+	 * @throws ScoringComponentException
+	 */
+	List<String> getRightLemmas(LexicalResource<? extends RuleInfo> lr,
+			String lemma) throws ScoringComponentException {
+		Map<String, List<String>> memo = getMemo(lr);
+		List<String> rLemmas = memo.get(lemma);
+		if (null == rLemmas) {
+			try {
+				rLemmas = toRightLemmas(lr.getRulesForLeft(lemma, null));
+			} catch (LexicalResourceException e) {
+				throw new ScoringComponentException(e.getMessage());
+			}
+			memo.put(lemma, rLemmas);
+		}
+		return rLemmas;
+	}
+
+	/**
+	 * look up the lemmas which are not in the memo of the resource, and add
+	 * them to it
+	 * 
+	 * @param lr
+	 *            the lexical resource
+	 * @param lemmas
+	 *            the left-hand side lemmas
+	 * @throws ScoringComponentException
+	 */
+	<I extends RuleInfo> void prewarm(LexicalResource<I> lr,
+			Collection<String> lemmas) throws ScoringComponentException {
+		Map<String, List<String>> memo = getMemo(lr);
+		try {
+			List<LemmaPos> terms = new ArrayList<LemmaPos>();
+			for (String lemma : lemmas) {
+				if (!memo.containsKey(lemma)) {
+					terms.add(new LemmaPos(lemma, null));
+				}
+			}
+			for (Entry<LemmaPos, List<LexicalRule<? extends I>>> entry : BatchLexicalResourceUtils
+					.getRulesForLeft(lr, terms).entrySet()) {
+				memo.put(entry.getKey().getLemma(),
+						toRightLemmas(entry.getValue()));
+			}
+		} catch (LexicalResourceException e) {
+			throw new ScoringComponentException(e.getMessage());
+		}
+	}
+
+	private Map<String, List<String>> getMemo(
+			LexicalResource<? extends RuleInfo> lr) {
+		Map<String, List<String>> memo = ruleMemo.get(lr);
+		if (null == memo) {
+			memo = new HashMap<String, List<String>>();
+			ruleMemo.put(lr, memo);
+		}
+		return memo;
+	}
+
+	private static List<String> toRightLemmas(
+			List<? extends LexicalRule<? extends RuleInfo>> rules) {
+		List<String> rLemmas = new ArrayList<String>(rules.size());
+		for (LexicalRule<? extends RuleInfo> rule : rules) {
+			rLemmas.add(rule.getRLemma());
+		}
+		return rLemmas;
+	}
 }
@@ -10,10 +10,8 @@ import java.util.Vector;
 
 import org.apache.uima.cas.CASException;
 import org.apache.uima.jcas.JCas;
-import org.apache.uima.jcas.tcas.Annotation;
 import org.uimafit.util.JCasUtil;
 
-import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
 import eu.excitement.type.entailment.EntailmentMetadata;
 import eu.excitementproject.eop.common.component.scoring.ScoringComponent;
 import eu.excitementproject.eop.common.component.scoring.ScoringComponentException;
@@ -110,20 +108,7 @@ public class BagOfWordsScoring implements ScoringComponent {
 	 *         the form of <Token, Frequency>
 	 */
 	protected HashMap<String, Integer> countTokens(JCas text) {
-		HashMap<String, Integer> tokenNumMap = new HashMap<String, Integer>();
-		Iterator<Annotation> tokenIter = text.getAnnotationIndex(Token.type)
-				.iterator();
-		while (tokenIter.hasNext()) {
-			Token curr = (Token) tokenIter.next();
-			String tokenText = curr.getCoveredText();
-			Integer num = tokenNumMap.get(tokenText);
-			if (null == num) {
-				tokenNumMap.put(tokenText, 1);
-			} else {
-				tokenNumMap.put(tokenText, num + 1);
-			}
-		}
-		return tokenNumMap;
+		return PairFeatureContext.tokens(text);
 	}
 
 	/**
@@ -0,0 +1,278 @@
+package eu.excitementproject.eop.core.component.scoring;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.apache.uima.cas.CASException;
+import org.apache.uima.jcas.JCas;
+import org.uimafit.util.JCasUtil;
+
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
+import de.tudarmstadt.ukp.dkpro.core.api.syntax.type.dependency.Dependency;
+
+/**
+ * The <code>PairFeatureContext</code> class holds the bags (of tokens, lemmas,
+ * lemma+POSes) and the dependency trees of the T and H views of one T-H pair,
+ * so that all the scoring components which score the pair share them, instead
+ * of each component walking the views and counting them again.
+ *
+ * The EDA opens a context before calling its components on a pair, and closes
+ * it afterwards:
+ *
+ * <pre>
+ * PairFeatureContext context = PairFeatureContext.open(aCas);
+ * try {
+ * 	// call the components
+ * } finally {
+ * 	context.close();
+ * }
+ * </pre>
+ *
+ * The static methods (e.g. {@link #tokens(JCas)}) return the features of a
+ * view: each feature is extracted once per view, when it is first asked for,
+ * while a context for the pair is open in the current thread; otherwise (e.g.
+ * when a component is used standalone) it is extracted on each call. The
+ * returned maps may be shared, so the callers must not modify them.
+ *
+ * The context is kept per thread, so the EDAs which score pairs concurrently
+ * can open one context in each of their threads.
+ */
+public final class PairFeatureContext {
+
+	/**
+	 * Open a context for the given T-H pair in the current thread, replacing
+	 * the open one, if any
+	 *
+	 * @param aCas
+	 *            the T-H pair, with the "TextView" and the "HypothesisView"
+	 * @return the context, to be closed once the pair has been scored
+	 */
+	public static PairFeatureContext open(JCas aCas) {
+		PairFeatureContext context = new PairFeatureContext(aCas);
+		currentContext.set(context);
+		return context;
+	}
+
+	/**
+	 * Close the context: the features it holds are dropped, and the
+	 * components go back to extracting them on each call
+	 */
+	public void close() {
+		if (currentContext.get() == this) {
+			currentContext.remove();
+		}
+		views.clear();
+	}
+
+	/**
+	 * @param view
+	 *            the T or the H view
+	 * @return the bag of tokens of the view, in the form of <Token, Frequency>
+	 */
+	public static HashMap<String, Integer> tokens(JCas view) {
+		ViewFeatures features = featuresOf(view);
+		if (null == features) {
+			return countTokens(view);
+		}
+		if (null == features.tokens) {
+			features.tokens = countTokens(view);
+		}
+		return features.tokens;
+	}
+
+	/**
+	 * @param view
+	 *            the T or the H view
+	 * @return the bag of lemmas of the view, in the form of <Lemma, Frequency>
+	 */
+	public static HashMap<String, Integer> lemmas(JCas view) {
+		ViewFeatures features = featuresOf(view);
+		if (null == features) {
+			return countLemmas(view);
+		}
+		if (null == features.lemmas) {
+			features.lemmas = countLemmas(view);
+		}
+		return features.lemmas;
+	}
+
+	/**
+	 * @param view
+	 *            the T or the H view
+	 * @return the bag of lemmas and POSes of the view, in the form of <Lemma
+	 *         ### POS, Frequency>
+	 */
+	public static HashMap<String, Integer> lemmaPoses(JCas view) {
+		ViewFeatures features = featuresOf(view);
+		if (null == features) {
+			return countLemmaPoses(view, false);
+		}
+		if (null == features.lemmaPoses) {
+			features.lemmaPoses = countLemmaPoses(view, false);
+		}
+		return features.lemmaPoses;
+	}
+
+	/**
+	 * The same as {@link #lemmaPoses(JCas)}, except that the "#" in the lemmas
+	 * are escaped
+	 *
+	 * @param view
+	 *            the T or the H view
+	 * @return the bag of (escaped) lemmas and POSes of the view
+	 */
+	public static HashMap<String, Integer> escapedLemmaPoses(JCas view) {
+		ViewFeatures features = featuresOf(view);
+		if (null == features) {
+			return countLemmaPoses(view, true);
+		}
+		if (null == features.escapedLemmaPoses) {
+			features.escapedLemmaPoses = countLemmaPoses(view, true);
+		}
+		return features.escapedLemmaPoses;
+	}
+
+	/**
+	 * @param view
+	 *            the T or the H view
+	 * @return the dependency tree of the view over the word forms, in the
+	 *         form of <begin ### word ### pos, dep_rel ## begin ### word ###
+	 *         pos>
+	 */
+	public static Map<String, String> depTree(JCas view) {
+		ViewFeatures features = featuresOf(view);
+		if (null == features) {
+			return indexDepTree(view, false);
+		}
+		if (null == features.depTree) {
+			features.depTree = indexDepTree(view, false);
+		}
+		return features.depTree;
+	}
+
+	/**
+	 * The same as {@link #depTree(JCas)}, except that it is over the lemmas
+	 *
+	 * @param view
+	 *            the T or the H view
+	 * @return the dependency tree of the view over the lemmas
+	 */
+	public static Map<String, String> lemmaDepTree(JCas view) {
+		ViewFeatures features = featuresOf(view);
+		if (null == features) {
+			return indexDepTree(view, true);
+		}
+		if (null == features.lemmaDepTree) {
+			features.lemmaDepTree = indexDepTree(view, true);
+		}
+		return features.lemmaDepTree;
+	}
+
+	private PairFeatureContext(JCas aCas) {
+		views = new IdentityHashMap<JCas, ViewFeatures>();
+		addView(aCas, "TextView");
+		addView(aCas, "HypothesisView");
+	}
+
+	private void addView(JCas aCas, String viewName) {
+		try {
+			views.put(aCas.getView(viewName), new ViewFeatures());
+		} catch (CASException e) {
+			// the components will fail on the missing view themselves
+		}
+	}
+
+	/**
+	 * @return the features of the given view in the open context, or
+	 *         <code>null</code> if there's no open context for its pair
+	 */
+	private static ViewFeatures featuresOf(JCas view) {
+		PairFeatureContext context = currentContext.get();
+		if (null == context) {
+			return null;
+		}
+		return context.views.get(view);
+	}
+
+	private static HashMap<String, Integer> countTokens(JCas view) {
+		HashMap<String, Integer> tokenNumMap = new HashMap<String, Integer>();
+		for (Token token : JCasUtil.select(view, Token.class)) {
+			add(tokenNumMap, token.getCoveredText());
+		}
+		return tokenNumMap;
+	}
+
+	private static HashMap<String, Integer> countLemmas(JCas view) {
+		HashMap<String, Integer> tokenNumMap = new HashMap<String, Integer>();
+		for (Token token : JCasUtil.select(view, Token.class)) {
+			add(tokenNumMap, token.getLemma().getValue());
+		}
+		return tokenNumMap;
+	}
+
+	private static HashMap<String, Integer> countLemmaPoses(JCas view,
+			boolean escape) {
+		HashMap<String, Integer> tokenNumMap = new HashMap<String, Integer>();
+		for (Token token : JCasUtil.select(view, Token.class)) {
+			String lemma = token.getLemma().getValue();
+			if (escape) {
+				lemma = lemma.replace("#", "\\#");
+			}
+			add(tokenNumMap, lemma + " ### " + token.getPos().getPosValue());
+		}
+		return tokenNumMap;
+	}
+
+	private static void add(Map<String, Integer> tokenNumMap, String key) {
+		Integer num = tokenNumMap.get(key);
+		if (null == num) {
+			tokenNumMap.put(key, 1);
+		} else {
+			tokenNumMap.put(key, num + 1);
+		}
+	}
+
+	private static Map<String, String> indexDepTree(JCas view,
+			boolean useLemmas) {
+		Map<String, String> depTree = new HashMap<String, String>();
+
+		// format: key: 1 ### word ### pos; value: dep_rel ## 2 ### word ### pos
+		// escape: .replace("#", "\\#")
+		// depTree.put("1 ### The ### Det", "DET ## 2 ### dog ### N");
+		// depTree.put("2 ### dog ### N", "SUBJ ## 3 ### chases ### V");
+		// depTree.put("3 ### chases ### V", "ROOT ## 0 ### NULL ### NULL");
+		for (Dependency dep : JCasUtil.select(view, Dependency.class)) {
+			Token child = dep.getDependent();
+			Token parent = dep.getGovernor();
+			depTree.put(child.getBegin() + " ### " + word(child, useLemmas)
+					+ " ### " + child.getPos().getPosValue(),
+					dep.getDependencyType() + " ## " + parent.getBegin()
+							+ " ### " + word(parent, useLemmas) + " ### "
+							+ parent.getPos().getPosValue());
+		}
+		return depTree;
+	}
+
+	private static String word(Token token, boolean useLemma) {
+		String word = useLemma ? token.getLemma().getValue() : token
+				.getCoveredText();
+		return word.replace("#", "\\#");
+	}
+
+	/**
+	 * The features of one view, each extracted when it is first asked for
+	 */
+	private static final class ViewFeatures {
+		private HashMap<String, Integer> tokens;
+		private HashMap<String, Integer> lemmas;
+		private HashMap<String, Integer> lemmaPoses;
+		private HashMap<String, Integer> escapedLemmaPoses;
+		private Map<String, String> depTree;
+		private Map<String, String> lemmaDepTree;
+	}
+
+	private static final ThreadLocal<PairFeatureContext> currentContext = new ThreadLocal<PairFeatureContext>();
+
+	private final Map<JCas, ViewFeatures> views;
+}
@@ -6,13 +6,25 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import org.apache.log4j.Logger;
+import org.apache.uima.cas.CAS;
 import org.apache.uima.jcas.JCas;
+import org.apache.uima.util.CasCopier;
 import org.uimafit.util.JCasUtil;
 
 //import weka.classifiers.Classifier;
@@ -32,8 +44,10 @@ import eu.excitementproject.eop.common.configuration.CommonConfig;
 import eu.excitementproject.eop.common.configuration.NameValueTable;
 import eu.excitementproject.eop.common.exception.ComponentException;
 import eu.excitementproject.eop.common.exception.ConfigurationException;
+import eu.excitementproject.eop.lap.JCasPool;
 import eu.excitementproject.eop.lap.LAPException;
 import eu.excitementproject.eop.lap.PlatformCASProber;
+import eu.excitementproject.eop.lap.XmiDirectoryIterator;
 
 /**
  * The <code>MetaEDA</code> performs as a higher level EDA. It implements the
@@ -59,6 +73,10 @@ import eu.excitementproject.eop.lap.PlatformCASProber;
  *  - "modelFile": path to model file
  *  - "trainDir": path to training data directory
  *  - "testDir": path to test data directory
+ *  - "confidenceCacheFile" (optional): path to a file where the confidences of the EDABasic instances on the training data are cached, 
+ *    so that training the classifier again on the same data does not run the EDABasic instances again. 
+ *    The cache is recomputed when the training files or the EDABasic classes change; 
+ *    it must be deleted by hand when the configuration of an EDABasic instance changes.
  *  A sample configuration file can be found in core/src/test/resources/configuration-file/MetaEDATest1_DE.xml
  *  
  *  Alternatively, it can be initialized with the parameters parameters listed above directly,
@@ -73,6 +91,12 @@ import eu.excitementproject.eop.lap.PlatformCASProber;
  *     Again, the MetaEDA does not check whether the required annotation layers are there.
  *     For details about the annotation layers required by each EDABasic, refer to the specific EDABasic's documentation.
  *  
+ * The EDABasic instances process each pair concurrently, each instance in its own thread ("lane"), 
+ * so the EDABasic instances need not be thread-safe. A UIMA CAS is not thread-safe, and some EDABasic 
+ * instances add annotations to the JCas they process (e.g. the alignment links), so each lane but the 
+ * first one processes its own copy of the pair's JCas. With <code>setConcurrentMembers(false)</code>, the EDABasic instances 
+ * process the given JCas one after the other instead, in the calling thread.
+ *  
  * For usage examples see <code>SimpleMetaEDAConfidenceFeaturesUsageExample.java</code>.
  * 
  * @author Julia Kreutzer
@@ -182,85 +206,7 @@ public class SimpleMetaEDAConfidenceFeatures implements EDABasic<TEDecision>{
 		}
 		else {
 			//mode 2
-			logger.info("Start training with confidences from EDABasic instances as features.");
-			
-			ArrayList<String> goldAnswers = new ArrayList<String>(); //stores gold answers
-			
-			//xmi files in training directory
-			File [] xmis = new File(this.trainDir).listFiles();
-			
-			//create attributes: for each EDABasic instance use their name and index as attribute name
-			FastVector attrs = getAttributes();
-			
-			//build up the dataset from training data
-			Instances instances = new Instances("EOP", attrs, xmis.length);  
-			
-			for (File xmi : xmis) {
-			    if (!xmi.getName().endsWith(".xmi")) {
-			      continue;
-			    }
-			    // The annotated pair is added into the CAS.
-			    JCas jcas = PlatformCASProber.probeXmi(xmi, null);
-				Pair pair = JCasUtil.selectSingle(jcas, Pair.class);
-				logger.debug("processing pair "+pair.getPairID());
-				int pairID = Integer.parseInt(pair.getPairID());
-				
-				String goldAnswer = pair.getGoldAnswer(); //get gold annotation
-				logger.debug("gold answer: "+goldAnswer);
-				
-				//get features from BasicEDAs' confidence scores
-				ArrayList<Double> scores = getFeatures(jcas, pairID);
-								
-				//Store gold answer
-				goldAnswers.add(goldAnswer);
-				
-				//add new instance to dataset
-				Instance instance = new Instance(scores.size());
-				instance.setDataset(instances);
-				for (int j = 0; j < scores.size(); j++){
-					Double score = scores.get(j);
-					instance.setValue((Attribute) attrs.elementAt(j), score);
-				}
-				instances.add(instance);
-			}
-			
-			//last attribute is class prediction (either nonentailment or entailment)
-			FastVector values = new FastVector(); 
-		    values.addElement("NONENTAILMENT");          
-		    values.addElement("ENTAILMENT");
-		    Attribute gold = new Attribute("gold", values);
-		    instances.insertAttributeAt(gold, instances.numAttributes());	
-			instances.setClassIndex(instances.numAttributes()-1); // set class attribute -> last attribute (gold label)
-			
-			//set gold labels for instances
-			logger.info(instances.numInstances()+" training instances loaded with "+instances.numAttributes()+" attributes");
-			for (int k = 0; k<instances.numInstances(); k++){
-				instances.instance(k).setValue(instances.numAttributes()-1, goldAnswers.get(k).toUpperCase());
-			}
-			
-			//train the classifier
-			logger.info("Training the classifier...");
-			
-			//classifier is a Logistic classifier with default options and parameters
-			this.classifier = new Logistic();
-
-			try {
-				//train the classifier on training data set
-				this.classifier.buildClassifier(instances);
-
-				//print the classifiers coefficients on debug level
-				logger.debug(Arrays.deepToString(this.classifier.coefficients()));
-				
-				//serialize and store classifier in model file
-				ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(this.modelFile));
-				oos.writeObject(this.classifier);
-				oos.flush();
-				oos.close();
-				logger.info("Serialized model and stored as "+this.modelFile);
-			} catch (Exception e) {
-				e.printStackTrace();
-			}
-			logger.info("training done.");
+			trainClassifier();
 		}
 	}
 
@@ -285,82 +231,192 @@ public class SimpleMetaEDAConfidenceFeatures implements EDABasic<TEDecision>{
 		}
 		else {
 			//mode 2
-			logger.info("Start training with confidences from EDABasic instances as features.");
+			trainClassifier();
+		}
+	}
 	
-			ArrayList<String> goldAnswers = new ArrayList<String>(); //stores gold answers
+	/**
+	 * Sets the file where the confidences of the EDABasic instances on the training data are cached
+	 * (see the "confidenceCacheFile" parameter). Must be called after the initialization.
+	 * @param confidenceCacheFile path to the cache file, or null for no cache
+	 */
+	public void setConfidenceCacheFile(String confidenceCacheFile) {
+		this.confidenceCacheFile = confidenceCacheFile;
+	}
 	
-			//xmi files in training directory
-			File [] xmis = new File(this.trainDir).listFiles();
+	/**
+	 * Trains the Logistic classifier on the confidences of the EDABasic instances for the training data, 
+	 * and stores it in the model file.
+	 */
+	private void trainClassifier() throws EDAException, LAPException {
+		logger.info("Start training with confidences from EDABasic instances as features.");
+		
+		//get the confidences of the EDABasic instances for all training pairs
+		ConfidenceMatrix matrix = getTrainingConfidences();
+		
+		//create attributes: for each EDABasic instance use their name and index as attribute name
+		FastVector attrs = getAttributes();
+		
+		//build up the dataset from training data
+		Instances instances = new Instances("EOP", attrs, matrix.confidences.length);  
+		for (double[] scores : matrix.confidences){
+			Instance instance = new Instance(scores.length);
+			instance.setDataset(instances);
+			for (int j = 0; j < scores.length; j++){
+				instance.setValue((Attribute) attrs.elementAt(j), scores[j]);
+			}
+			instances.add(instance);
+		}
+		
+		//last attribute is class prediction (either nonentailment or entailment)
+		FastVector values = new FastVector(); 
+	    values.addElement("NONENTAILMENT");          
+	    values.addElement("ENTAILMENT");
+	    Attribute gold = new Attribute("gold", values);
+	    instances.insertAttributeAt(gold, instances.numAttributes());	
+		instances.setClassIndex(instances.numAttributes()-1); // set class attribute -> last attribute (gold label)
+		
+		//set gold labels for instances
+		logger.info(instances.numInstances()+" training instances loaded with "+instances.numAttributes()+" attributes");
+		for (int k = 0; k<instances.numInstances(); k++){
+			instances.instance(k).setValue(instances.numAttributes()-1, matrix.goldAnswers[k].toUpperCase());
+		}
+		
+		//train the classifier
+		logger.info("Training the classifier...");
+		
+		//classifier is a Logistic classifier with default options and parameters
+		this.classifier = new Logistic();
+
+		try {
+			//train the classifier on training data set
+			this.classifier.buildClassifier(instances);
+
+			//print the classifiers coefficients on debug level
+			logger.debug("logistic classifier's coefficients: "+Arrays.deepToString(this.classifier.coefficients()));
 			
-			//create attributes: for each EDABasic instance use their name and index as attribute name
-			FastVector attrs = getAttributes();
+			//serialize and store classifier in model file
+			ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(this.modelFile));
+			oos.writeObject(this.classifier);
+			oos.flush();
+			oos.close();
+			logger.info("Serialized model and stored as "+this.modelFile);
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+		logger.info("training done.");
+	}
 	
-			//build up the dataset from training data
-			Instances instances = new Instances("EOP", attrs, xmis.length);
-			
-			for (File xmi : xmis) {
-				if (!xmi.getName().endsWith(".xmi")) {
-					continue;
+	/**
+	 * Gets the confidences of the EDABasic instances for all the pairs of the training directory:
+	 * from the cache file if it is up to date, otherwise by processing the training data 
+	 * (and then the cache file is written).
+	 * @return the confidences and gold answers of the training pairs
+	 */
+	private ConfidenceMatrix getTrainingConfidences() throws EDAException, LAPException {
+		String signature = getTrainingSignature();
+		File cacheFile = (null == this.confidenceCacheFile) ? null : new File(this.confidenceCacheFile);
+		
+		if (null != cacheFile && cacheFile.exists()){
+			ConfidenceMatrix matrix = readConfidenceMatrix(cacheFile);
+			if (null != matrix && signature.equals(matrix.signature)){
+				logger.info("Read the confidences of the EDABasic instances from "+cacheFile.getAbsolutePath());
+				for (int k = 0; k < matrix.pairIDs.length; k++){
+					double[] resultsForPair = new double[this.edas.size()+2];
+					System.arraycopy(matrix.confidences[k], 0, resultsForPair, 1, this.edas.size());
+					this.results.put(matrix.pairIDs[k], resultsForPair);
 				}
-				// The annotated pair is added into the CAS.
-				JCas jcas = PlatformCASProber.probeXmi(xmi, null);
+				return matrix;
+			}
+			logger.info("The cached confidences in "+cacheFile.getAbsolutePath()+" are out of date.");
+		}
+		
+		List<Integer> pairIDs = new ArrayList<Integer>();
+		List<String> goldAnswers = new ArrayList<String>(); //stores gold answers
+		List<double[]> confidences = new ArrayList<double[]>();
+		
+		// the xmi files are read in parallel into pooled JCases
+		XmiDirectoryIterator xmiIterator = PlatformCASProber.probeXmiDirectory(new File(this.trainDir), null);
+		try {
+			while (xmiIterator.hasNext()) {
+				JCas jcas = xmiIterator.next();
 				Pair pair = JCasUtil.selectSingle(jcas, Pair.class);
 				int pairID = Integer.parseInt(pair.getPairID());
 				logger.debug("processing pair "+pairID);
 				String goldAnswer = pair.getGoldAnswer(); //get gold annotation
 				logger.debug("gold answer: "+goldAnswer);
+				
 				//get features from BasicEDAs' confidence scores
 				ArrayList<Double> scores = getFeatures(jcas, pairID);
+				double[] row = new double[scores.size()];
+				for (int j = 0; j < row.length; j++){
+					row[j] = scores.get(j);
+				}
 				
-				//Store gold answer
+				pairIDs.add(pairID);
 				goldAnswers.add(goldAnswer);
-	
-				//add new instance to dataset
-				Instance instance = new Instance(scores.size());
-				instance.setDataset(instances);
-				for (int j = 0; j < scores.size(); j++){
-					Double score = scores.get(j);
-					instance.setValue((Attribute) attrs.elementAt(j), score);
-				}
-				instances.add(instance);
+				confidences.add(row);
 			}
-	
-			//last attribute is class prediction (either nonentailment or entailment)
-			FastVector values = new FastVector();
-			values.addElement("NONENTAILMENT");
-			values.addElement("ENTAILMENT");
-			Attribute gold = new Attribute("gold", values);
-			instances.insertAttributeAt(gold, instances.numAttributes());	
-			instances.setClassIndex(instances.numAttributes()-1); // set class attribute -> last attribute (gold label)
-			
-			//set gold labels for instances
-			logger.info(instances.numInstances()+" training instances loaded with "+instances.numAttributes()+" attributes");
-			for (int k = 0; k<instances.numInstances(); k++){
-				instances.instance(k).setValue(instances.numAttributes()-1, goldAnswers.get(k).toUpperCase());
+		} finally {
+			xmiIterator.close();
+		}
+		
+		ConfidenceMatrix matrix = new ConfidenceMatrix();
+		matrix.signature = signature;
+		matrix.pairIDs = new int[pairIDs.size()];
+		for (int k = 0; k < matrix.pairIDs.length; k++){
+			matrix.pairIDs[k] = pairIDs.get(k);
+		}
+		matrix.goldAnswers = goldAnswers.toArray(new String[goldAnswers.size()]);
+		matrix.confidences = confidences.toArray(new double[confidences.size()][]);
+		
+		if (null != cacheFile){
+			try {
+				ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(cacheFile));
+				oos.writeObject(matrix);
+				oos.close();
+				logger.info("Cached the confidences of the EDABasic instances in "+cacheFile.getAbsolutePath());
+			} catch (IOException e) {
+				logger.warn("Could not write the confidence cache "+cacheFile.getAbsolutePath()+": "+e.getMessage());
 			}
+		}
+		return matrix;
+	}
 	
-			//train the classifier
-			logger.info("Training the classifier...");
+	/**
+	 * The cache is only valid for the same EDABasic classes (in the same order) and the same training files.
+	 * @return a string identifying the EDABasic instances and the training data
+	 */
+	private String getTrainingSignature(){
+		StringBuilder signature = new StringBuilder();
+		for (EDABasic<? extends TEDecision> eda : this.edas){
+			signature.append(eda.getClass().getName()).append(';');
+		}
+		File[] files = new File(this.trainDir).listFiles();
+		if (null != files){
+			Arrays.sort(files);
+			for (File file : files){
+				signature.append(file.getName()).append(':').append(file.length()).append(':').append(file.lastModified()).append(';');
+			}
+		}
+		return signature.toString();
+	}
 	
-			//classifier is a BayesianLogisticRegression classifier with default options and parameters
-			this.classifier = new Logistic();
+	/**
+	 * @param cacheFile the cache file
+	 * @return the cached confidences, or null if the file can't be read
+	 */
+	private ConfidenceMatrix readConfidenceMatrix(File cacheFile){
+		try {
+			ObjectInputStream ois = new ObjectInputStream(new FileInputStream(cacheFile));
 			try {
-				//train the classifier on training data set
-				this.classifier.buildClassifier(instances);
-				
-				//print the classifiers coefficients on debug level
-				logger.debug("logistic classifier's coefficients: "+Arrays.deepToString(this.classifier.coefficients()));
-				
-				//serialize and store classifier in model file
-				ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(this.modelFile));
-				oos.writeObject(this.classifier);
-				oos.flush();
-				oos.close();
-				logger.info("Serialized model and stored as "+this.modelFile);
-			} catch (Exception e) {
-				e.printStackTrace();
+				return (ConfidenceMatrix) ois.readObject();
+			} finally {
+				ois.close();
 			}
-			logger.info("training done.");
+		} catch (IOException | ClassNotFoundException | ClassCastException e) {
+			logger.warn("Could not read the confidence cache "+cacheFile.getAbsolutePath()+": "+e.getMessage());
+			return null;
 		}
 	}
 	
@@ -477,7 +533,6 @@ public class SimpleMetaEDAConfidenceFeatures implements EDABasic<TEDecision>{
 	public void shutdown() {
 		//disengage resources or reset to default value
 		this.confidenceAsFeature = false;
-		this.edas = null;
 		this.language = "";
 		this.modelFile = "";
 		this.trainDir = "";
@@ -486,6 +541,15 @@ public class SimpleMetaEDAConfidenceFeatures implements EDABasic<TEDecision>{
 		this.isTrain = false;
 		this.isTest = false;
 		this.overwrite = false;
+		this.confidenceCacheFile = null;
+		this.edas = null;
+		if (null != this.memberLanes){
+			for (ExecutorService lane : this.memberLanes){
+				lane.shutdownNow();
+			}
+			this.memberLanes = null;
+			this.laneJCasPool = null;
+		}
 	}
 
 	/**
@@ -545,6 +609,23 @@ public class SimpleMetaEDAConfidenceFeatures implements EDABasic<TEDecision>{
 		return overwrite;
 	}
 
+	/**
+	 * whether the EDABasic instances process each pair concurrently (each one on its own copy of the JCas)
+	 * @return true if the EDABasic instances run concurrently, false if they run one after the other
+	 */
+	public boolean isConcurrentMembers() {
+		return concurrentMembers;
+	}
+
+	/**
+	 * sets whether the EDABasic instances process each pair concurrently, each one on its own copy of
+	 * the JCas (the default), or one after the other on the given JCas, in the calling thread
+	 * @param concurrentMembers true to run the EDABasic instances concurrently
+	 */
+	public void setConcurrentMembers(boolean concurrentMembers) {
+		this.concurrentMembers = concurrentMembers;
+	}
+
 	/**
 	 * set the isTest parameter to distinguish between test and training mode
 	 * @param true or false
@@ -624,6 +705,41 @@ public class SimpleMetaEDAConfidenceFeatures implements EDABasic<TEDecision>{
 	 * when true: overwrites existing models while training, false: appends "_old" to existing model file
 	 */
 	private boolean overwrite = false;
+	
+	/**
+	 * the path to the file caching the EDABasic instances' confidences on the training data, null for no cache
+	 */
+	private String confidenceCacheFile;
+	
+	/**
+	 * the threads ("lanes") running the EDABasic instances: the instance at index i runs on memberLanes.get(i),
+	 * an instance that occurs more than once in the list always runs on the same lane
+	 */
+	private List<ExecutorService> memberLanes;
+	
+	/**
+	 * the JCases the lanes process their copies of the pair's JCas in (the first lane processes the given JCas itself)
+	 */
+	private JCasPool laneJCasPool;
+	
+	/**
+	 * when true: the EDABasic instances process each pair concurrently, on their lanes
+	 */
+	private boolean concurrentMembers = true;
+	
+	/**
+	 * the confidences of the EDABasic instances on the training data, as cached in the confidence cache file
+	 */
+	private static class ConfidenceMatrix implements Serializable {
+		private static final long serialVersionUID = 5216532466473520573L;
+		
+		/** identifies the EDABasic classes and the training files, see getTrainingSignature() */
+		private String signature;
+		private int[] pairIDs;
+		private String[] goldAnswers;
+		/** one row per training pair, one column per EDABasic instance */
+		private double[][] confidences;
+	}
 
 	/**
 	 * Initializes the EDA:
@@ -861,6 +977,7 @@ public class SimpleMetaEDAConfidenceFeatures implements EDABasic<TEDecision>{
 				logger.warn("Warning: Please specify the testing data directory.");
 			}
 		}
+		this.confidenceCacheFile = EDA.getString("confidenceCacheFile"); //optional
 	}
 	
 	/**
@@ -908,28 +1025,20 @@ public class SimpleMetaEDAConfidenceFeatures implements EDABasic<TEDecision>{
 	/**
 	 * Retrieves confidence scores from all BasicEDAs for one given JCas.
 	 * Each BasicEDA instance produces one feature each. N edas -> N features.
+	 * The BasicEDA instances process the JCas concurrently, each lane on its own copy of the JCas
+	 * (unless concurrentMembers is false).
 	 * @param jcas the JCas to process
 	 * @param pairID the according pairID
 	 * @return an ArrayList of features for the given JCas.
 	 */
-		private ArrayList<Double> getFeatures(JCas jcas, int pairID) {
+		private ArrayList<Double> getFeatures(final JCas jcas, int pairID) throws EDAException {
+			TEDecision[] decisions = this.concurrentMembers ? getConcurrentDecisions(jcas) : getSequentialDecisions(jcas);
+			
 			ArrayList<Double> features = new ArrayList<Double>();
 			double[] resultsForPair = new double[this.edas.size()+2];
 			for (int i=0; i<this.edas.size(); i++){
-				EDABasic<? extends TEDecision> eda = this.edas.get(i);
-				//process aCas and get confidence
-				TEDecision decision = null;
-				try {
-					decision = eda.process(jcas);
-					logger.debug(eda.getClass().getSimpleName()+i+"'s decision: "+decision.getDecision()+" "+decision.getConfidence());
-					
-					if (decision.equals(null)){
-						throw new EDAException("The internal EDA "+eda.getClass().getSimpleName()+i+"could not process the data." +
-								"Please check the internal EDA's configuration");
-					}
-				} catch (EDAException | ComponentException e) {
-					e.printStackTrace();
-				}
+				TEDecision decision = decisions[i];
+				logger.debug(this.edas.get(i).getClass().getSimpleName()+i+"'s decision: "+decision.getDecision()+" "+decision.getConfidence());
 				double confidence = decision.getConfidence();
 				DecisionLabel label = decision.getDecision();
 				
@@ -939,10 +1048,159 @@ public class SimpleMetaEDAConfidenceFeatures implements EDABasic<TEDecision>{
 				}
 				features.add(confidence);
 				resultsForPair[i+1]= confidence;
-				this.results.put(pairID, resultsForPair);
 			}
+			this.results.put(pairID, resultsForPair);
 			logger.debug("SimpleMetaEDAConfidenceFeatures features from EDABasic confidences: "+features.toString());
 			return features;
 		}
+		
+	/**
+	 * Processes the JCas with the BasicEDA instances one after the other, in the calling thread.
+	 * @param jcas the JCas to process
+	 * @return the decisions, by index of the BasicEDA instance
+	 */
+		private TEDecision[] getSequentialDecisions(JCas jcas) throws EDAException {
+			TEDecision[] decisions = new TEDecision[this.edas.size()];
+			for (int i=0; i<this.edas.size(); i++){
+				try {
+					decisions[i] = this.edas.get(i).process(jcas);
+				} catch (Exception e) {
+					throw new EDAException("The internal EDA "+this.edas.get(i).getClass().getSimpleName()+i+" could not process the data. " +
+							"Please check the internal EDA's configuration", e);
+				}
+				if (null == decisions[i]){
+					throw new EDAException("The internal EDA "+this.edas.get(i).getClass().getSimpleName()+i+" could not process the data. " +
+							"Please check the internal EDA's configuration");
+				}
+			}
+			return decisions;
+		}
+		
+	/**
+	 * Processes the JCas with the BasicEDA instances concurrently, each one on its lane.
+	 * The first lane processes the given JCas; every other lane processes its own copy, made before
+	 * any lane starts, so that no CAS is ever used by two threads.
+	 * @param jcas the JCas to process
+	 * @return the decisions, by index of the BasicEDA instance
+	 */
+		private TEDecision[] getConcurrentDecisions(JCas jcas) throws EDAException {
+			List<ExecutorService> lanes = getMemberLanes();
+			Map<ExecutorService, JCas> jcasOfLane = new IdentityHashMap<ExecutorService, JCas>();
+			try {
+				for (ExecutorService lane : lanes){
+					if (!jcasOfLane.containsKey(lane)){
+						jcasOfLane.put(lane, jcasOfLane.isEmpty() ? jcas : copyOf(jcas));
+					}
+				}
+				
+				List<Future<TEDecision>> futures = new ArrayList<Future<TEDecision>>(this.edas.size());
+				for (int i=0; i<this.edas.size(); i++){
+					final EDABasic<? extends TEDecision> eda = this.edas.get(i);
+					final JCas laneJCas = jcasOfLane.get(lanes.get(i));
+					//process the lane's JCas and get confidence
+					futures.add(lanes.get(i).submit(new Callable<TEDecision>() {
+						@Override
+						public TEDecision call() throws Exception {
+							return eda.process(laneJCas);
+						}
+					}));
+				}
+				
+				//wait for all the lanes before failing: the JCases must not be released while a lane still uses them
+				TEDecision[] decisions = new TEDecision[this.edas.size()];
+				EDAException failure = null;
+				for (int i=0; i<this.edas.size(); i++){
+					try {
+						decisions[i] = futures.get(i).get();
+					} catch (InterruptedException e) {
+						for (Future<TEDecision> future : futures){
+							future.cancel(true);
+						}
+						Thread.currentThread().interrupt();
+						throw new EDAException("Interrupted while waiting for the internal EDAs", e);
+					} catch (ExecutionException e) {
+						if (null == failure){
+							failure = new EDAException("The internal EDA "+this.edas.get(i).getClass().getSimpleName()+i+" could not process the data. " +
+									"Please check the internal EDA's configuration", e.getCause());
+						}
+					}
+				}
+				for (int i=0; null == failure && i<this.edas.size(); i++){
+					if (null == decisions[i]){
+						failure = new EDAException("The internal EDA "+this.edas.get(i).getClass().getSimpleName()+i+" could not process the data. " +
+								"Please check the internal EDA's configuration");
+					}
+				}
+				if (null != failure){
+					throw failure;
+				}
+				return decisions;
+			}
+			finally {
+				for (JCas laneJCas : jcasOfLane.values()){
+					if (laneJCas != jcas){
+						this.laneJCasPool.release(laneJCas);
+					}
+				}
+			}
+		}
+		
+	/**
+	 * Copies all the views of a JCas into a JCas of the lanes' pool.
+	 * @param jcas the JCas to copy
+	 * @return the copy, to be released to the lanes' pool
+	 */
+		private JCas copyOf(JCas jcas) throws EDAException {
+			JCas copy;
+			try {
+				copy = this.laneJCasPool.borrow();
+			} catch (LAPException e) {
+				throw new EDAException("Failed to create a JCas for the internal EDAs", e);
+			}
+			try {
+				CasCopier copier = new CasCopier(jcas.getCas(), copy.getCas());
+				Iterator<CAS> views = jcas.getCas().getViewIterator();
+				while (views.hasNext()){
+					copier.copyCasView(views.next(), true);
+				}
+			} catch (RuntimeException e) {
+				this.laneJCasPool.release(copy);
+				throw new EDAException("Failed to copy the JCas for the internal EDAs", e);
+			}
+			return copy;
+		}
+		
+	/**
+	 * Creates the lanes of the BasicEDA instances at the first call: one single thread per instance,
+	 * so that each instance is never used by two threads at the same time.
+	 * @return the lanes, by index of the BasicEDA instance
+	 */
+		private List<ExecutorService> getMemberLanes() {
+			if (null == this.memberLanes){
+				ThreadFactory daemonFactory = new ThreadFactory() {
+					@Override
+					public Thread newThread(Runnable r) {
+						// the lanes must not keep the JVM alive
+						Thread thread = new Thread(r, "meta-eda-lane");
+						thread.setDaemon(true);
+						return thread;
+					}
+				};
+				Map<EDABasic<? extends TEDecision>, ExecutorService> laneOfEda = new IdentityHashMap<EDABasic<? extends TEDecision>, ExecutorService>();
+				List<ExecutorService> lanes = new ArrayList<ExecutorService>(this.edas.size());
+				for (EDABasic<? extends TEDecision> eda : this.edas){
+					ExecutorService lane = laneOfEda.get(eda);
+					if (null == lane){
+						lane = Executors.newSingleThreadExecutor(daemonFactory);
+						laneOfEda.put(eda, lane);
+					}
+					lanes.add(lane);
+				}
+				this.memberLanes = lanes;
+				// every lane but the first one processes a copy of the JCas
+				this.laneJCasPool = new JCasPool(Math.max(1, laneOfEda.size() - 1));
+			}
+			return this.memberLanes;
+		}
 
 }
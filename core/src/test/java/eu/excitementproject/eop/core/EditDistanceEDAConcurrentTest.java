@@ -0,0 +1,114 @@
+package eu.excitementproject.eop.core;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.uima.jcas.JCas;
+import org.junit.Test;
+
+import eu.excitementproject.eop.common.TEDecision;
+import eu.excitementproject.eop.common.utilities.configuration.ImplCommonConfig;
+import eu.excitementproject.eop.lap.implbase.ExampleLAP;
+
+/**
+ * Checks that {@link EditDistanceEDA#processDataSetConcurrently(List)}, with more than one thread,
+ * returns in the order of the given pairs the decisions that {@link EditDistanceEDA#process(JCas)}
+ * returns for one pair at a time.
+ */
+public class EditDistanceEDAConcurrentTest {
+
+	@Test
+	public void testConcurrentDecisionsEqualSequentialDecisions() throws Exception {
+
+		ExampleLAP lap = new ExampleLAP();
+		List<JCas> sequentialPairs = new ArrayList<JCas>();
+		List<JCas> concurrentPairs = new ArrayList<JCas>();
+		for (String[] pair : PAIRS) {
+			sequentialPairs.add(lap.generateSingleTHPairCAS(pair[0], pair[1], pair[2]));
+			concurrentPairs.add(lap.generateSingleTHPairCAS(pair[0], pair[1], pair[2]));
+		}
+
+		EditDistanceEDA<EditDistanceTEDecision> eda = new EditDistanceEDA<EditDistanceTEDecision>();
+		try {
+			eda.initialize(new ImplCommonConfig(createConfigurationFile()));
+
+			List<TEDecision> expected = new ArrayList<TEDecision>();
+			for (JCas jcas : sequentialPairs) {
+				expected.add(eda.process(jcas));
+			}
+
+			// twice, so that the instances are reused
+			for (int run = 0; run < 2; run++) {
+				List<TEDecision> decisions = eda.processDataSetConcurrently(concurrentPairs);
+				assertEquals(expected.size(), decisions.size());
+				for (int i = 0; i < expected.size(); i++) {
+					String message = "pair " + i + ": " + PAIRS[i][0] + " / " + PAIRS[i][1];
+					assertEquals(message, expected.get(i).getDecision(), decisions.get(i).getDecision());
+					assertEquals(message, expected.get(i).getConfidence(), decisions.get(i).getConfidence(), 0.0);
+					assertEquals(message, expected.get(i).getPairID(), decisions.get(i).getPairID());
+				}
+			}
+		} finally {
+			eda.shutdown();
+		}
+
+	}
+
+	private static File createConfigurationFile() throws Exception {
+
+		File configFile = File.createTempFile("EditDistanceEDAConcurrentTest", ".xml");
+		configFile.deleteOnExit();
+		Writer writer = new OutputStreamWriter(new FileOutputStream(configFile), "UTF-8");
+		try {
+			writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+					"<configuration>\n" +
+					"	<section name=\"PlatformConfiguration\">\n" +
+					"		<property name=\"activatedEDA\">eu.excitementproject.eop.core.EditDistanceEDA</property>\n" +
+					"		<property name=\"language\">EN</property>\n" +
+					"	</section>\n" +
+					"	<section name=\"eu.excitementproject.eop.core.component.distance.FixedWeightTokenEditDistance\">\n" +
+					"		<property name=\"stopWordRemoval\">false</property>\n" +
+					"		<property name=\"ignoreCase\">true</property>\n" +
+					"		<property name=\"normalizationType\">default</property>\n" +
+					"		<property name=\"instances\">basic</property>\n" +
+					"		<subsection name=\"basic\"/>\n" +
+					"	</section>\n" +
+					"	<section name=\"eu.excitementproject.eop.core.EditDistanceEDA\">\n" +
+					"		<property name=\"match\">0.0</property>\n" +
+					"		<property name=\"delete\">0.0</property>\n" +
+					"		<property name=\"insert\">1.0</property>\n" +
+					"		<property name=\"substitute\">1.0</property>\n" +
+					"		<property name=\"measure\">accuracy</property>\n" +
+					"		<property name=\"components\">eu.excitementproject.eop.core.component.distance.FixedWeightTokenEditDistance</property>\n" +
+					"		<property name=\"threads\">3</property>\n" +
+					"	</section>\n" +
+					"	<section name=\"model\">\n" +
+					"		<property name=\"threshold\">0.4</property>\n" +
+					"	</section>\n" +
+					"</configuration>\n");
+		} finally {
+			writer.close();
+		}
+		return configFile;
+
+	}
+
+	static final String[][] PAIRS = {
+			{ "The person is hired as a postdoc.", "The person must have a PhD.", "NONENTAILMENT" },
+			{ "The cat sat on the mat and the cat slept.", "The cat slept on the mat.", "ENTAILMENT" },
+			{ "Nobody came.", "Nobody came.", "ENTAILMENT" },
+			{ "A dog barks at the postman every morning.", "A man walks.", "NONENTAILMENT" },
+			{ "Kennedy was killed in Dallas.", "Kennedy was killed.", "ENTAILMENT" },
+			{ "The assassin was convicted and sentenced to death penalty.", "The killer has been accused of murder.", "NONENTAILMENT" },
+			{ "Rome is the capital of Italy.", "Rome is in Italy.", "ENTAILMENT" },
+			{ "The company reported a loss of two million dollars last year.", "The company made a profit.", "NONENTAILMENT" },
+			{ "Mary bought a red car and drove it home.", "Mary bought a car.", "ENTAILMENT" },
+	};
+
+}
@@ -0,0 +1,170 @@
+package eu.excitementproject.eop.core;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+/**
+ * Checks the threshold search of {@link EditDistanceEDA}: its result is the one of trying every
+ * candidate threshold, and on distances without ties it is the result of the previous search, which
+ * moved the threshold over the sorted examples one at a time.
+ */
+public class EditDistanceEDASearchTest {
+
+	@Test
+	public void testEqualsTryingEveryCandidate() {
+		Random random = new Random(7);
+		for (int n = 0; n < 500; n++) {
+			// few distinct distances, so that there are many ties with different labels
+			int size = 1 + random.nextInt(20);
+			double[] distances = new double[size];
+			boolean[] entailments = new boolean[size];
+			for (int i = 0; i < size; i++) {
+				distances[i] = random.nextInt(6) / 5.0;
+				entailments[i] = random.nextBoolean();
+			}
+			for (String measure : MEASURES) {
+				assertArrayEquals(Arrays.toString(distances) + " " + Arrays.toString(entailments) + " " + measure,
+						tryEveryCandidate(distances, entailments, measure),
+						EditDistanceEDA.sequentialSearch(distances, entailments, measure), 0.0);
+			}
+		}
+	}
+
+	@Test
+	public void testEqualsPreviousSearchWithoutTies() {
+		Random random = new Random(11);
+		for (int n = 0; n < 500; n++) {
+			int size = 1 + random.nextInt(20);
+			double[] distances = new double[size];
+			boolean[] entailments = new boolean[size];
+			TreeSet<Double> distinct = new TreeSet<Double>();
+			for (int i = 0; i < size; i++) {
+				do {
+					distances[i] = random.nextDouble();
+				} while (!distinct.add(distances[i]));
+				entailments[i] = random.nextBoolean();
+			}
+			for (String measure : MEASURES) {
+				String message = Arrays.toString(distances) + " " + Arrays.toString(entailments) + " " + measure;
+				double[] previous = previousSearch(distances, entailments, measure);
+				double[] results = EditDistanceEDA.sequentialSearch(distances, entailments, measure);
+				assertEquals(message, previous[1], results[1], 0.0);
+				if (previous[0] == 0.0 && previous[1] > 0)
+					// the previous search reported 0 for "all the examples are NONENTAILMENT"
+					assertEquals(message, Math.nextAfter(distinct.first(), Double.NEGATIVE_INFINITY), results[0], 0.0);
+				else
+					assertEquals(message, previous[0], results[0], 0.0);
+			}
+		}
+	}
+
+	@Test
+	public void testTies() {
+		// the examples at 0.5 can only be ENTAILMENT together: 3 out of 4 at best
+		double[] results = EditDistanceEDA.sequentialSearch(new double[] { 0.2, 0.5, 0.5, 0.9 },
+				new boolean[] { true, true, false, false }, "accuracy");
+		assertEquals(0.2, results[0], 0.0);
+		assertEquals(0.75, results[1], 0.0);
+
+		// the tied examples are both ENTAILMENT
+		results = EditDistanceEDA.sequentialSearch(new double[] { 0.4, 0.4, 0.7 },
+				new boolean[] { true, true, false }, "accuracy");
+		assertEquals(0.4, results[0], 0.0);
+		assertEquals(1.0, results[1], 0.0);
+
+		// all the examples are NONENTAILMENT: the threshold is just below the smallest distance
+		results = EditDistanceEDA.sequentialSearch(new double[] { 0.4, 0.4, 0.7 },
+				new boolean[] { false, false, false }, "accuracy");
+		assertEquals(Math.nextAfter(0.4, Double.NEGATIVE_INFINITY), results[0], 0.0);
+		assertEquals(1.0, results[1], 0.0);
+		assertTrue(results[0] < 0.4);
+
+		// no examples
+		assertArrayEquals(new double[] { 0.0, 0.0 },
+				EditDistanceEDA.sequentialSearch(new double[0], new boolean[0], "f1"), 0.0);
+	}
+
+	// the first best of the candidate thresholds (every distinct distance, and one below all of them),
+	// counting the true and false positives of each candidate from scratch
+	private static double[] tryEveryCandidate(double[] distances, boolean[] entailments, String measure) {
+		TreeSet<Double> candidates = new TreeSet<Double>();
+		for (double distance : distances)
+			candidates.add(distance);
+		candidates.add(Math.nextAfter(candidates.first(), Double.NEGATIVE_INFINITY));
+
+		double[] best = { -1.0, 0.0 };
+		for (double threshold : candidates) {
+			int tp = 0, fp = 0, fn = 0, tn = 0;
+			for (int i = 0; i < distances.length; i++) {
+				boolean positive = distances[i] <= threshold;
+				if (positive && entailments[i]) tp++;
+				else if (positive) fp++;
+				else if (entailments[i]) fn++;
+				else tn++;
+			}
+			double value = measure(tp, fp, fn, tn, measure);
+			if (value > best[1]) {
+				best[0] = threshold;
+				best[1] = value;
+			}
+		}
+		return best;
+	}
+
+	// the search of EditDistanceEDA before the labels were encoded, for distances without ties:
+	// the examples sorted by distance become ENTAILMENT one at a time, after a first step with none
+	// of them, which reported the threshold 0
+	private static double[] previousSearch(double[] distances, boolean[] entailments, String measure) {
+		Integer[] order = new Integer[distances.length];
+		for (int i = 0; i < order.length; i++)
+			order[i] = i;
+		final double[] sortedBy = distances;
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				return Double.compare(sortedBy[a], sortedBy[b]);
+			}
+		});
+		int totNumberOfEntailment = 0;
+		for (boolean entailment : entailments)
+			if (entailment)
+				totNumberOfEntailment++;
+		int totNumberOfNonEntailment = distances.length - totNumberOfEntailment;
+
+		double[] best = { -1.0, 0.0 };
+		int tp = 0, fp = 0;
+		for (int j = -1; j < order.length; j++) {
+			double distanceValue = 0;
+			if (j != -1) {
+				distanceValue = distances[order[j]];
+				if (entailments[order[j]])
+					tp++;
+				else
+					fp++;
+			}
+			double value = measure(tp, fp, totNumberOfEntailment - tp, totNumberOfNonEntailment - fp, measure);
+			if (value > best[1]) {
+				best[0] = distanceValue;
+				best[1] = value;
+			}
+		}
+		return best;
+	}
+
+	private static double measure(int tp, int fp, int fn, int tn, String measure) {
+		if (measure.equals("f1")) {
+			double precision = (tp + fp == 0) ? 1 : (double)tp / (tp + fp);
+			double recall = (tp + fn == 0) ? 0 : (double)tp / (tp + fn);
+			return (precision + recall == 0) ? 0 : (2 * precision * recall) / (precision + recall);
+		}
+		return (double)(tp + tn) / (tp + fp + fn + tn);
+	}
+
+	private static final String[] MEASURES = { "accuracy", "f1" };
+}
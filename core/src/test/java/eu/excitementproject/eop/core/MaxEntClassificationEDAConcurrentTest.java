@@ -0,0 +1,95 @@
+package eu.excitementproject.eop.core;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.uima.jcas.JCas;
+import org.junit.Test;
+
+import eu.excitementproject.eop.common.TEDecision;
+import eu.excitementproject.eop.common.utilities.configuration.ImplCommonConfig;
+import eu.excitementproject.eop.lap.implbase.ExampleLAP;
+
+/**
+ * Checks that {@link MaxEntClassificationEDA#processDataSetConcurrently(List)}, with more than one
+ * thread, returns in the order of the given pairs the decisions that
+ * {@link MaxEntClassificationEDA#process(JCas)} returns for one pair at a time. The model is the
+ * bag of words and bag of lemmas model for English.
+ */
+public class MaxEntClassificationEDAConcurrentTest {
+
+	@Test
+	public void testConcurrentDecisionsEqualSequentialDecisions() throws Exception {
+
+		ExampleLAP lap = new ExampleLAP();
+		String[][] pairs = EditDistanceEDAConcurrentTest.PAIRS;
+		List<JCas> sequentialPairs = new ArrayList<JCas>();
+		List<JCas> concurrentPairs = new ArrayList<JCas>();
+		for (String[] pair : pairs) {
+			sequentialPairs.add(lap.generateSingleTHPairCAS(pair[0], pair[1], pair[2]));
+			concurrentPairs.add(lap.generateSingleTHPairCAS(pair[0], pair[1], pair[2]));
+		}
+
+		MaxEntClassificationEDA eda = new MaxEntClassificationEDA();
+		try {
+			eda.initialize(new ImplCommonConfig(createConfigurationFile()));
+
+			List<TEDecision> expected = new ArrayList<TEDecision>();
+			for (JCas jcas : sequentialPairs) {
+				expected.add(eda.process(jcas));
+			}
+
+			// twice, so that the instances are reused
+			for (int run = 0; run < 2; run++) {
+				List<TEDecision> decisions = eda.processDataSetConcurrently(concurrentPairs);
+				assertEquals(expected.size(), decisions.size());
+				for (int i = 0; i < expected.size(); i++) {
+					String message = "pair " + i + ": " + pairs[i][0] + " / " + pairs[i][1];
+					assertEquals(message, expected.get(i).getDecision(), decisions.get(i).getDecision());
+					assertEquals(message, expected.get(i).getConfidence(), decisions.get(i).getConfidence(), 0.0);
+					assertEquals(message, expected.get(i).getPairID(), decisions.get(i).getPairID());
+				}
+			}
+		} finally {
+			eda.shutdown();
+		}
+
+	}
+
+	private static File createConfigurationFile() throws Exception {
+
+		File configFile = File.createTempFile("MaxEntClassificationEDAConcurrentTest", ".xml");
+		configFile.deleteOnExit();
+		Writer writer = new OutputStreamWriter(new FileOutputStream(configFile), "UTF-8");
+		try {
+			writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+					"<configuration>\n" +
+					"	<section name=\"PlatformConfiguration\">\n" +
+					"		<property name=\"activatedEDA\">eu.excitementproject.eop.core.MaxEntClassificationEDA</property>\n" +
+					"		<property name=\"language\">EN</property>\n" +
+					"	</section>\n" +
+					"	<section name=\"BagOfWordsScoring\">\n" +
+					"	</section>\n" +
+					"	<section name=\"BagOfLemmasScoring\">\n" +
+					"	</section>\n" +
+					"	<section name=\"eu.excitementproject.eop.core.MaxEntClassificationEDA\">\n" +
+					"		<property name=\"modelFile\">" + new File("./src/main/resources/model/MaxEntClassificationEDAModel_Base_EN").getAbsolutePath() + "</property>\n" +
+					"		<property name=\"classifier\">10000,1</property>\n" +
+					"		<property name=\"Components\">BagOfWordsScoring,BagOfLemmasScoring</property>\n" +
+					"		<property name=\"threads\">3</property>\n" +
+					"	</section>\n" +
+					"</configuration>\n");
+		} finally {
+			writer.close();
+		}
+		return configFile;
+
+	}
+
+}
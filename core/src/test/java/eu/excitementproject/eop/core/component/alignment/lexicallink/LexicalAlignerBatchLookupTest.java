@@ -0,0 +1,186 @@
+package eu.excitementproject.eop.core.component.alignment.lexicallink;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.uima.jcas.JCas;
+import org.junit.Test;
+import org.uimafit.util.JCasUtil;
+
+import eu.excitement.type.alignment.Link;
+import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalResource;
+import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalResourceCloseException;
+import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalResourceException;
+import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalRule;
+import eu.excitementproject.eop.common.component.lexicalknowledge.RuleInfo;
+import eu.excitementproject.eop.common.exception.ConfigurationException;
+import eu.excitementproject.eop.common.representation.partofspeech.BySimplerCanonicalPartOfSpeech;
+import eu.excitementproject.eop.common.representation.partofspeech.PartOfSpeech;
+import eu.excitementproject.eop.common.representation.partofspeech.SimplerCanonicalPosTag;
+import eu.excitementproject.eop.common.representation.partofspeech.UnsupportedPosTagStringException;
+import eu.excitementproject.eop.common.utilities.configuration.ConfigurationParams;
+import eu.excitementproject.eop.common.utilities.configuration.ImplCommonConfig;
+import eu.excitementproject.eop.core.component.lexicalknowledge.EmptyRuleInfo;
+import eu.excitementproject.eop.lap.implbase.ExampleLAP;
+import eu.excitementproject.eop.lap.implbase.LAP_ImplBase;
+
+/**
+ * Checks that the <code>batchLookup</code> mode of {@link LexicalAligner}, with and without
+ * <code>parallelResources</code>, adds the alignment links that the exhaustive look-up of every
+ * pair of phrases adds. The resources are two small in-memory rule sets, one of surface words
+ * and one of lemmas (the lemmas of {@link ExampleLAP} are the lower-cased tokens).
+ */
+public class LexicalAlignerBatchLookupTest {
+
+	@Test
+	public void testBatchedLinksEqualExhaustiveLinks() throws Exception {
+
+		ExampleLAP lap = new ExampleLAP();
+		String[][] pairs = {
+				{ "The assassin was convicted and sentenced to death penalty", "The killer has been accused of murder and doomed to capital punishment" },
+				{ "Kennedy was killed in Dallas", "Kennedy was wounded and died in Texas" },
+				{ "The cat saw the cat and the dog", "An animal saw the animal" },
+				{ "Nothing matches here", "At all" },
+		};
+
+		LexicalAligner exhaustive = createAligner(false, false);
+		LexicalAligner batched = createAligner(true, false);
+		LexicalAligner parallel = createAligner(true, true);
+		try {
+			int numberOfLinks = 0;
+			for (String[] pair : pairs) {
+				List<String> expected = align(exhaustive, lap, pair);
+				assertEquals("batched: " + pair[0] + " / " + pair[1], expected, align(batched, lap, pair));
+				assertEquals("parallel: " + pair[0] + " / " + pair[1], expected, align(parallel, lap, pair));
+				numberOfLinks += expected.size();
+			}
+			assertTrue("no link was found", numberOfLinks > 0);
+		} finally {
+			exhaustive.cleanUp();
+			batched.cleanUp();
+			parallel.cleanUp();
+		}
+	}
+
+	/**
+	 * Aligns a new CAS of the pair
+	 * @return A description of each link, sorted
+	 */
+	private static List<String> align(LexicalAligner aligner, ExampleLAP lap, String[] pair) throws Exception {
+
+		JCas jcas = lap.generateSingleTHPairCAS(pair[0], pair[1]);
+		aligner.annotate(jcas);
+
+		List<String> links = new ArrayList<String>();
+		for (Link link : JCasUtil.select(jcas.getView(LAP_ImplBase.HYPOTHESISVIEW), Link.class)) {
+			links.add(link.getTSideTarget().getCoveredText() + " [" + link.getTSideTarget().getBegin() + "] -> " +
+					link.getHSideTarget().getCoveredText() + " [" + link.getHSideTarget().getBegin() + "] " +
+					link.getDirection() + " " + link.getStrength() + " " + link.getAlignerID() + " " +
+					link.getAlignerVersion() + " " + link.getLinkInfo());
+		}
+		Collections.sort(links);
+		return links;
+	}
+
+	private static LexicalAligner createAligner(boolean batchLookup, boolean parallelResources) throws Exception {
+
+		File configFile = File.createTempFile("LexicalAlignerBatchLookupTest", ".xml");
+		configFile.deleteOnExit();
+		Writer writer = new OutputStreamWriter(new FileOutputStream(configFile), "UTF-8");
+		try {
+			writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+					"<configuration>\n" +
+					"	<section name=\"GeneralParameters\">\n" +
+					"		<property name=\"maxPhraseLength\">3</property>\n" +
+					"		<property name=\"batchLookup\">" + batchLookup + "</property>\n" +
+					"		<property name=\"parallelResources\">" + parallelResources + "</property>\n" +
+					"	</section>\n" +
+					"	<section name=\"LexicalResources\">\n" +
+					"		<property name=\"words\">" + WordRulesResource.class.getName() + "</property>\n" +
+					"		<property name=\"lemmas\">" + LemmaRulesResource.class.getName() + "</property>\n" +
+					"	</section>\n" +
+					"	<section name=\"words\">\n" +
+					"		<property name=\"useLemma\">false</property>\n" +
+					"		<property name=\"version\">1.0</property>\n" +
+					"		<property name=\"rules\">The assassin>The killer,assassin>killer,killer>assassin,death penalty>capital punishment,Dallas>Texas,killed>died</property>\n" +
+					"	</section>\n" +
+					"	<section name=\"lemmas\">\n" +
+					"		<property name=\"useLemma\">true</property>\n" +
+					"		<property name=\"version\">2.0</property>\n" +
+					"		<property name=\"rules\">the assassin>the killer,cat>animal,animal>cat,dog>animal,the cat>an animal,killed>wounded,texas>dallas</property>\n" +
+					"	</section>\n" +
+					"</configuration>\n");
+		} finally {
+			writer.close();
+		}
+		return new LexicalAligner(new ImplCommonConfig(configFile));
+	}
+
+
+	/**
+	 * An in-memory resource, whose rules are given by the "rules" parameter
+	 * as a comma separated list of <code>lhs>rhs</code>
+	 */
+	private abstract static class RulesResource implements LexicalResource<RuleInfo> {
+
+		protected RulesResource(ConfigurationParams params) throws ConfigurationException {
+			try {
+				otherPos = new BySimplerCanonicalPartOfSpeech(SimplerCanonicalPosTag.OTHER);
+			} catch (UnsupportedPosTagStringException e) {
+				throw new ConfigurationException(e.getMessage(), e);
+			}
+			for (String rule : params.getString("rules").split(",")) {
+				String[] sides = rule.split(">");
+				leftLemmas.add(sides[0]);
+				rightLemmas.add(sides[1]);
+			}
+		}
+
+		public List<LexicalRule<? extends RuleInfo>> getRulesForRight(String lemma, PartOfSpeech pos) throws LexicalResourceException {
+			return getRules(null, null, lemma, pos);
+		}
+
+		public List<LexicalRule<? extends RuleInfo>> getRulesForLeft(String lemma, PartOfSpeech pos) throws LexicalResourceException {
+			return getRules(lemma, pos, null, null);
+		}
+
+		public List<LexicalRule<? extends RuleInfo>> getRules(String leftLemma, PartOfSpeech leftPos, String rightLemma, PartOfSpeech rightPos) throws LexicalResourceException {
+			List<LexicalRule<? extends RuleInfo>> rules = new ArrayList<LexicalRule<? extends RuleInfo>>();
+			for (int index = 0; index < leftLemmas.size(); index++) {
+				if ( (leftLemma == null || leftLemmas.get(index).equals(leftLemma)) && (rightLemma == null || rightLemmas.get(index).equals(rightLemma)) )
+					rules.add(new LexicalRule<RuleInfo>(leftLemmas.get(index), otherPos, rightLemmas.get(index), otherPos, 0.5, "test", getClass().getSimpleName(), EmptyRuleInfo.getInstance()));
+			}
+			return rules;
+		}
+
+		public void close() throws LexicalResourceCloseException {
+		}
+
+		// the rules have no part of speech, but LexicalRule requires one
+		private final PartOfSpeech otherPos;
+		private final List<String> leftLemmas = new ArrayList<String>();
+		private final List<String> rightLemmas = new ArrayList<String>();
+	}
+
+	// The aligner keeps the information of the resources by their class names, so each resource has its own class
+
+	public static class WordRulesResource extends RulesResource {
+		public WordRulesResource(ConfigurationParams params) throws ConfigurationException {
+			super(params);
+		}
+	}
+
+	public static class LemmaRulesResource extends RulesResource {
+		public LemmaRulesResource(ConfigurationParams params) throws ConfigurationException {
+			super(params);
+		}
+	}
+
+}
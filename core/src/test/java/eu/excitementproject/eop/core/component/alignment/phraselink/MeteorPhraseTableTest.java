@@ -2,6 +2,10 @@ package eu.excitementproject.eop.core.component.alignment.phraselink;
 
 import static org.junit.Assert.*;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import org.apache.log4j.BasicConfigurator;
@@ -66,4 +70,47 @@ public class MeteorPhraseTableTest {
 		}
 	}
 
+	@Test
+	public void testConvertedTableEqualsTextTable() throws Exception {
+		
+		// a small table in the format of the meteor tables, with several RHSs of a LHS and a repeated (lhs, rhs) entry 
+		String resourcePath = "/phraselink/paraphrase-test"; 
+		MeteorPhraseTable textTable = new MeteorPhraseTable(resourcePath); 
+		
+		File fromResource = File.createTempFile("MeteorPhraseTableTest", ".resource.table"); 
+		fromResource.deleteOnExit(); 
+		assertEquals(11, MeteorPhraseTable.convert(resourcePath, fromResource)); 
+		File fromFile = File.createTempFile("MeteorPhraseTableTest", ".file.table"); 
+		fromFile.deleteOnExit(); 
+		assertEquals(11, MeteorPhraseTable.convert(new File("./src/test/resources/phraselink/paraphrase-test"), fromFile)); 
+		
+		MeteorPhraseTable[] mappedTables = { new MeteorPhraseTable(fromResource), new MeteorPhraseTable(fromFile) }; 
+		List<String> phrases = Arrays.asList("all those who have", "killer", "capital punishment", "death penalty", "\u00fcber", "a", 
+				"assassin", "all those who", "Killer", "bikini atoll", ""); 
+		for (MeteorPhraseTable mappedTable : mappedTables)
+		{
+			for (String phrase : phrases)
+			{
+				assertEquals(phrase, toStrings(textTable.lookupParaphrasesFor(phrase)), toStrings(mappedTable.lookupParaphrasesFor(phrase))); 
+			}
+			assertEquals(Arrays.asList("all those having 0.125", "all who have 0.5", "everyone who has 0.25", "those who have 0.0625"), 
+					toStrings(mappedTable.lookupParaphrasesFor("all those who have"))); 
+			// the later entry replaces the earlier one, as in the text table 
+			assertEquals(Arrays.asList("assassin 0.75", "murderer 0.4"), toStrings(mappedTable.lookupParaphrasesFor("killer"))); 
+			assertEquals(0, mappedTable.lookupParaphrasesFor("assassin").size()); 
+		}
+	}
+	
+	// the (rhs, probability) pairs, sorted, since the order of the text table is the order of a hash map  
+	private static List<String> toStrings(List<ScoredString> rhsAndProbList)
+	{
+		List<String> strings = new ArrayList<String>(); 
+		for (ScoredString rhsProbTuple : rhsAndProbList)
+		{
+			strings.add(rhsProbTuple.getString() + " " + (float) rhsProbTuple.getScore()); 
+		}
+		Collections.sort(strings); 
+		return strings; 
+	}
+
 }
@@ -0,0 +1,103 @@
+package eu.excitementproject.eop.core.component.distance;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalResource;
+import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalResourceCloseException;
+import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalResourceException;
+import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalRule;
+import eu.excitementproject.eop.common.component.lexicalknowledge.RuleInfo;
+import eu.excitementproject.eop.common.representation.partofspeech.ByCanonicalPartOfSpeech;
+import eu.excitementproject.eop.common.representation.partofspeech.PartOfSpeech;
+import eu.excitementproject.eop.core.component.lexicalknowledge.EmptyRuleInfo;
+
+/**
+ * Checks that the lexical match cache of {@link FixedWeightEditDistance}, which is shared
+ * among all the instances, does not mix the matches of differently configured instances.
+ */
+public class FixedWeightEditDistanceLexicalCacheTest {
+
+	@Test
+	public void testDifferentResourcesDoNotShareMatches() throws Exception {
+
+		PartOfSpeech noun = new ByCanonicalPartOfSpeech("N");
+		// a lemma pair which is unlikely to be cached by other tests
+		String left = "lexical-cache-test-left-" + System.nanoTime();
+		String right = "lexical-cache-test-right-" + System.nanoTime();
+
+		FixedWeightLemmaEditDistance withRule = new FixedWeightLemmaEditDistance();
+		withRule.addLexicalResource(new SingleRuleResource(left, right), "test:with-rule");
+		FixedWeightLemmaEditDistance withoutRule = new FixedWeightLemmaEditDistance();
+		withoutRule.addLexicalResource(new SingleRuleResource("other-left", "other-right"), "test:without-rule");
+
+		assertTrue("the rule was not found", withRule.getRulesFromResource(left, noun, right, noun));
+		assertFalse("the match of another configuration was returned", withoutRule.getRulesFromResource(left, noun, right, noun));
+		// and again, now that both answers are cached
+		assertTrue("the rule was not found", withRule.getRulesFromResource(left, noun, right, noun));
+		assertFalse("the match of another configuration was returned", withoutRule.getRulesFromResource(left, noun, right, noun));
+
+	}
+
+	@Test
+	public void testSameConfigurationSharesMatches() throws Exception {
+
+		PartOfSpeech noun = new ByCanonicalPartOfSpeech("N");
+		String left = "lexical-cache-test-shared-left-" + System.nanoTime();
+		String right = "lexical-cache-test-shared-right-" + System.nanoTime();
+
+		SingleRuleResource resource = new SingleRuleResource(left, right);
+		FixedWeightLemmaEditDistance first = new FixedWeightLemmaEditDistance();
+		first.addLexicalResource(resource, "test:shared");
+		FixedWeightLemmaEditDistance second = new FixedWeightLemmaEditDistance();
+		second.addLexicalResource(resource, "test:shared");
+
+		assertTrue(first.getRulesFromResource(left, noun, right, noun));
+		assertTrue(second.getRulesFromResource(left, noun, right, noun));
+		assertEquals("the second instance did not use the cached match", 1, resource.getNumberOfQueries());
+
+	}
+
+	/**
+	 * A resource with a single rule, which counts the queries it answers.
+	 */
+	private static class SingleRuleResource implements LexicalResource<RuleInfo> {
+
+		public SingleRuleResource(String leftLemma, String rightLemma) {
+			this.leftLemma = leftLemma;
+			this.rightLemma = rightLemma;
+		}
+
+		public List<LexicalRule<? extends RuleInfo>> getRulesForRight(String lemma, PartOfSpeech pos) throws LexicalResourceException {
+			return getRules(null, null, lemma, pos);
+		}
+
+		public List<LexicalRule<? extends RuleInfo>> getRulesForLeft(String lemma, PartOfSpeech pos) throws LexicalResourceException {
+			return getRules(lemma, pos, null, null);
+		}
+
+		public synchronized List<LexicalRule<? extends RuleInfo>> getRules(String leftLemma, PartOfSpeech leftPos, String rightLemma, PartOfSpeech rightPos) throws LexicalResourceException {
+			numberOfQueries++;
+			List<LexicalRule<? extends RuleInfo>> rules = new ArrayList<LexicalRule<? extends RuleInfo>>();
+			if ( (leftLemma == null || this.leftLemma.equals(leftLemma)) && (rightLemma == null || this.rightLemma.equals(rightLemma)) )
+				rules.add(new LexicalRule<RuleInfo>(this.leftLemma, leftPos, this.rightLemma, rightPos, "test", "SingleRuleResource", EmptyRuleInfo.getInstance()));
+			return rules;
+		}
+
+		public void close() throws LexicalResourceCloseException {
+		}
+
+		public synchronized int getNumberOfQueries() {
+			return numberOfQueries;
+		}
+
+		private final String leftLemma;
+		private final String rightLemma;
+		private int numberOfQueries = 0;
+	}
+
+}
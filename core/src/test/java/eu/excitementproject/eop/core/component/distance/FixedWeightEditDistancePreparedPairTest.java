@@ -0,0 +1,61 @@
+package eu.excitementproject.eop.core.component.distance;
+
+import static org.junit.Assert.*;
+
+import org.apache.uima.jcas.JCas;
+import org.junit.Test;
+
+import eu.excitementproject.eop.common.component.distance.DistanceValue;
+import eu.excitementproject.eop.lap.implbase.ExampleLAP;
+
+/**
+ * Checks that the distance of a pair prepared by {@link FixedWeightEditDistance#prepare(JCas)} is
+ * the distance calculated from the CAS of the pair, for the same weights, also when the weights
+ * change after the pair was prepared.
+ */
+public class FixedWeightEditDistancePreparedPairTest {
+
+	@Test
+	public void testPreparedPairDistanceEqualsCalculation() throws Exception {
+
+		ExampleLAP lap = new ExampleLAP();
+		String[][] pairs = {
+				{ "The person is hired as a postdoc.", "The person must have a PhD." },
+				{ "The cat sat on the mat and the cat slept.", "The cat slept on the mat." },
+				{ "Nobody came.", "Nobody came." },
+				{ "A dog barks at the postman every morning.", "A man walks." },
+		};
+		double[][] weights = {
+				// match, delete, insert, substitute
+				{ 0.0, 0.0, 1.0, 1.0 },
+				{ 0.0, 1.0, 1.0, 1.0 },
+				{ 0.0, 0.3, 0.7, 2.5 },
+				{ 0.1, 2.0, 0.5, 0.2 },
+		};
+
+		FixedWeightLemmaEditDistance lemmaEditDistance = new FixedWeightLemmaEditDistance();
+		FixedWeightTokenEditDistance tokenEditDistance = new FixedWeightTokenEditDistance();
+		for (FixedWeightEditDistance editDistance : new FixedWeightEditDistance[] { lemmaEditDistance, tokenEditDistance }) {
+			for (String[] pair : pairs) {
+				JCas jcas = lap.generateSingleTHPairCAS(pair[0], pair[1], "ENTAILMENT");
+				// the pair is prepared once, and measured with all the weights
+				FixedWeightEditDistance.PreparedPair preparedPair = editDistance.prepare(jcas);
+				for (double[] weight : weights) {
+					editDistance.setmMatchWeight(weight[0]);
+					editDistance.setmDeleteWeight(weight[1]);
+					editDistance.setmInsertWeight(weight[2]);
+					editDistance.setmSubstituteWeight(weight[3]);
+
+					String message = editDistance.getComponentName() + " " + pair[0] + " / " + pair[1] + " with " + weight[0] + ", " + weight[1] + ", " + weight[2] + ", " + weight[3];
+					DistanceValue expected = editDistance.calculation(jcas);
+					DistanceValue distance = editDistance.distance(preparedPair);
+					assertEquals(message, expected.getDistance(), distance.getDistance(), 0.0);
+					assertEquals(message, expected.getUnnormalizedValue(), distance.getUnnormalizedValue(), 0.0);
+					assertEquals(message, expected.isSimBased(), distance.isSimBased());
+				}
+			}
+		}
+
+	}
+
+}
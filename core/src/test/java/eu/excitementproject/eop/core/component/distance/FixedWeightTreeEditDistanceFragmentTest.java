@@ -0,0 +1,264 @@
+package eu.excitementproject.eop.core.component.distance;
+
+import static org.apache.uima.fit.util.JCasUtil.select;
+import static org.apache.uima.fit.util.JCasUtil.selectCovered;
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.uima.jcas.JCas;
+import org.junit.Test;
+
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Sentence;
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
+import de.tudarmstadt.ukp.dkpro.core.api.syntax.type.dependency.Dependency;
+import eu.excitementproject.eop.lap.dkpro.MaltParserEN;
+import eu.excitementproject.eop.lap.implbase.LAP_ImplBase;
+
+/**
+ * Checks that the fragments that {@link FixedWeightTreeEditDistance} builds from the Token and
+ * Dependency annotations are the fragments of the former CoNLL-X path, which wrote each view in
+ * the CoNLL-X format, merged the sentences, removed the punctuation and parsed the string again.
+ * That path is kept below as the reference, as it was.
+ */
+public class FixedWeightTreeEditDistanceFragmentTest {
+
+	@Test
+	public void testFragmentsEqualCoNLLXFragments() throws Exception {
+
+		MaltParserEN lap = new MaltParserEN();
+		String[][] pairs = {
+				{ "The assassin was convicted and sentenced to death penalty.", "The killer has been accused of murder and doomed to capital punishment." },
+				{ "Kennedy was killed in Dallas, Texas. He died in the hospital.", "Kennedy was wounded, and died in Texas." },
+				{ "A soccer ball is not rolling into a goal net. The players, however, run; they shout!", "A ball rolls." },
+		};
+
+		for (String[] pair : pairs) {
+			JCas jcas = lap.generateSingleTHPairCAS(pair[0], pair[1]);
+			for (String viewName : new String[] { LAP_ImplBase.TEXTVIEW, LAP_ImplBase.HYPOTHESISVIEW }) {
+				JCas view = jcas.getView(viewName);
+				for (boolean punctuationRemoval : new boolean[] { false, true }) {
+					String message = view.getDocumentText() + (punctuationRemoval ? " without punctuation" : "");
+					assertSameFragment(message, coNLLXFragment(view, punctuationRemoval),
+							FixedWeightTreeEditDistance.getFragment(view, punctuationRemoval));
+				}
+			}
+		}
+
+	}
+
+	/**
+	 * Compares the fragments node by node: id, form, lemma, POS, dependency relation and parent
+	 */
+	private static void assertSameFragment(String message, Fragment expected, Fragment fragment) {
+
+		assertEquals(message + ": wrong number of nodes", expected.size(), fragment.size());
+		for (int tokenId = 1; tokenId <= expected.size(); tokenId++) {
+			FToken expectedToken = expected.getToken(tokenId);
+			FToken token = fragment.getToken(tokenId);
+			String tokenMessage = message + ": node " + tokenId;
+			assertEquals(tokenMessage, expectedToken.getId(), token.getId());
+			assertEquals(tokenMessage, expectedToken.getForm(), token.getForm());
+			assertEquals(tokenMessage, expectedToken.getLemma(), token.getLemma());
+			assertEquals(tokenMessage, expectedToken.getPOS(), token.getPOS());
+			assertEquals(tokenMessage, expectedToken.getDeprel(), token.getDeprel());
+			assertEquals(tokenMessage, expectedToken.getHead(), token.getHead());
+		}
+
+	}
+
+	/**
+	 * The fragment of a view, as FixedWeightTreeEditDistance built it from the CoNLL-X format
+	 */
+	private static Fragment coNLLXFragment(JCas view, boolean punctuationRemoval) throws Exception {
+
+		String tree = cas2CoNLLX(view);
+		if (checkMultiTree(tree))
+			tree = mergeTrees(tree);
+		if (punctuationRemoval)
+			tree = removePunctuation(tree);
+		return getFragment(tree);
+
+	}
+
+	private static Fragment getFragment(String dependencyTree) {
+
+		Fragment fragment = new Fragment();
+
+		String[] lines = dependencyTree.split("\n");
+
+		for (int i = 0; i < lines.length; i++) {
+			String[] fields = lines[i].split("\\s");
+			int tokenId = Integer.parseInt(fields[0]) - 1;
+			String form = fields[1];
+			String lemma = fields[2];
+			String pos = fields[3];
+
+			int head;
+			if (fields[6].equals("_")) {
+				head = -1;
+			}
+			else
+				head = Integer.parseInt(fields[6]) - 1;
+
+			String deprel = fields[7];
+			fragment.addToken(new FToken(tokenId, form, lemma, pos, head, deprel));
+		}
+
+		return fragment;
+
+	}
+
+	private static boolean checkMultiTree(String tree) {
+		String[] trees = tree.split("\n\n");
+		return trees.length > 1;
+	}
+
+	private static String mergeTrees(String multiTree) {
+		String[] trees = multiTree.split("\n\n");
+		String newTree = "";
+		//add new node
+		newTree += "1\t_\t_\t_\t_\t_\t_\t_\t_\t_\n";
+		int prevtreelenght = 1;
+		for (int i = 0; i < trees.length; i++) {
+			String tree = trees[i];
+			String[] lines = tree.split("\n");
+			for (int j = 0; j < lines.length; j++) {
+				String[] fields = lines[j].split("\\s");
+				int tokenId = Integer.parseInt(fields[0]);
+				fields[0] = (tokenId + prevtreelenght) + "";
+				if (fields[6].equals("_")) {
+					fields[6] = "1";
+				}
+				else {
+					fields[6] = (Integer.parseInt(fields[6]) + prevtreelenght) + "";
+				}
+				String line = "";
+				for (String field : fields) {
+					line += field + "\t";
+				}
+				lines[j] = line;
+				newTree += line + "\n";
+			}
+			prevtreelenght += lines.length;
+		}
+		return newTree;
+	}
+
+	private static String cas2CoNLLX(JCas aJCas) {
+
+		StringBuffer result = new StringBuffer();
+
+		for (Sentence sentence : select(aJCas, Sentence.class)) {
+			// Map of token and the dependent (token address used as a Key)
+			Map<Integer, Integer> dependentMap = new HashMap<Integer, Integer>();
+			// Map of governor token address and its token position
+			Map<Integer, Integer> dependencyMap = new HashMap<Integer, Integer>();
+			// Map of governor token address and its dependency function value
+			Map<Integer, String> dependencyTypeMap = new HashMap<Integer, String>();
+
+			for (Dependency dependecny : selectCovered(Dependency.class, sentence)) {
+				dependentMap.put(dependecny.getDependent().getAddress(), dependecny.getGovernor().getAddress());
+			}
+
+			int i = 1;
+			for (Token token : selectCovered(Token.class, sentence)) {
+				dependencyMap.put(token.getAddress(), i);
+				i++;
+			}
+
+			for (Dependency dependecny : selectCovered(Dependency.class, sentence)) {
+				dependencyTypeMap.put(dependecny.getDependent().getAddress(), dependecny.getDependencyType());
+			}
+
+			int j = 1;
+			for (Token token : selectCovered(Token.class, sentence)) {
+				String lemma = token.getLemma() == null ? "_" : token.getLemma().getValue();
+				String pos = token.getPos() == null ? "_" : token.getPos().getPosValue();
+				String dependent = "_";
+
+				if (dependentMap.get(token.getAddress()) != null) {
+					if (dependencyMap.get(dependentMap.get(token.getAddress())) != null) {
+						dependent = "" + dependencyMap.get(dependentMap.get(token.getAddress()));
+					}
+				}
+				String type = dependencyTypeMap.get(token.getAddress()) == null ? "_"
+						: dependencyTypeMap.get(token.getAddress());
+
+				if (dependentMap.get(token.getAddress()) != null
+						&& dependencyMap.get(dependentMap.get(token.getAddress())) != null
+						&& j == dependencyMap.get(dependentMap.get(token.getAddress()))) {
+					result.append(j + "\t" + token.getCoveredText() + "\t" + lemma + "\t" + pos
+							+ "\t_\t_\t" + 0 + "\t" + type + "\t_\t_\n");
+				}
+				else {
+					result.append(j + "\t" + token.getCoveredText() + "\t" + lemma + "\t" + pos
+							+ "\t_\t_\t" + dependent + "\t" + type + "\t_\t_\n");
+				}
+				j++;
+			}
+
+			result.append("\n");
+		}
+
+		return result.toString();
+
+	}
+
+	private static String removePunctuation(String dependencyTree) {
+
+		String cleaned_tree = "";
+
+		Boolean hasChild = false;
+		String[] lines = dependencyTree.split("\n");
+
+		for (int i = 0; i < lines.length; i++) {
+			if (!lines[i].isEmpty()) {
+				String[] fields = lines[i].split("\\s");
+				int tokenId = Integer.parseInt(fields[0]);
+				if (fields[7].equals("punct")) {
+					//checking for children
+					for (int j = 0; j < lines.length; j++) {
+						if (!lines[j].isEmpty()) {
+							String[] fieldsj = lines[j].split("\\s");
+							if (fieldsj[6].equals(tokenId + "")) {
+								hasChild = true;
+							}
+						}
+					}
+					//update stage
+					if (!hasChild) {
+						lines[i] = "";
+						for (int j = 0; j < lines.length; j++) {
+							if (!lines[j].isEmpty()) {
+								String[] fieldsj = lines[j].split("\\s");
+								//updating the IDs for the deletion
+								if (Integer.parseInt(fieldsj[0]) >= tokenId) {
+									fieldsj[0] = (Integer.parseInt(fieldsj[0]) - 1) + "";
+								}
+								//updating the heads
+								if (!fieldsj[6].equals("_") && Integer.parseInt(fieldsj[6]) > tokenId) {
+									fieldsj[6] = (Integer.parseInt(fieldsj[6]) - 1) + "";
+								}
+								String line = "";
+								for (String field : fieldsj) {
+									line += field + "\t";
+								}
+								lines[j] = line;
+							}
+						}
+					}
+				}
+			}
+		}
+		for (int i = 0; i < lines.length; i++) {
+			if (!lines[i].isEmpty())
+				cleaned_tree += lines[i] + "\n";
+		}
+
+		return cleaned_tree + "\n";
+
+	}
+
+}
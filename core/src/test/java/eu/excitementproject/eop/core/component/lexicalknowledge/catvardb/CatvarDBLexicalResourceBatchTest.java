@@ -0,0 +1,100 @@
+package eu.excitementproject.eop.core.component.lexicalknowledge.catvardb;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import eu.excitementproject.eop.common.component.lexicalknowledge.BatchLexicalResourceUtils;
+import eu.excitementproject.eop.common.component.lexicalknowledge.LemmaPos;
+import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalRule;
+import eu.excitementproject.eop.common.component.lexicalknowledge.RuleInfo;
+import eu.excitementproject.eop.common.representation.partofspeech.BySimplerCanonicalPartOfSpeech;
+import eu.excitementproject.eop.common.representation.partofspeech.PartOfSpeech;
+import eu.excitementproject.eop.common.representation.partofspeech.SimplerCanonicalPosTag;
+
+/**
+ * Checks that the batch queries of {@link CatvarDBLexicalResource} give each term the same rules as its single queries,
+ * over a {@link FakeCatvarDatabase}.
+ */
+@SuppressWarnings("deprecation")
+public class CatvarDBLexicalResourceBatchTest {
+
+	@Before
+	public void setUp() throws Exception {
+		noun = new BySimplerCanonicalPartOfSpeech(SimplerCanonicalPosTag.NOUN);
+		verb = new BySimplerCanonicalPartOfSpeech(SimplerCanonicalPosTag.VERB);
+		adjective = new BySimplerCanonicalPartOfSpeech(SimplerCanonicalPosTag.ADJECTIVE);
+
+		db = new FakeCatvarDatabase();
+		db.addCluster(new String[][] { { "destroy", "v" }, { "destruction", "n" }, { "destructive", "a" } });
+		db.addCluster(new String[][] { { "light", "n" }, { "light", "v" }, { "lighting", "n" } });
+		db.addCluster(new String[][] { { "Paris", "n" }, { "Parisian", "a" } });
+		resource = new CatvarDBLexicalResource(db.getConnection());
+	}
+
+	@Test
+	public void testBatchEqualsSingleQueries() throws Exception {
+		List<LemmaPos> terms = Arrays.asList(
+				new LemmaPos("destroy", verb),
+				new LemmaPos("destroy", noun),		// no term with this POS
+				new LemmaPos("destruction", null),	// all the POSs
+				new LemmaPos("light", noun),		// the same lemma with another POS is in the cluster
+				new LemmaPos("light", null),
+				new LemmaPos("paris", noun),		// the DB has it in another case
+				new LemmaPos("Paris", noun),
+				new LemmaPos("destructive", adjective),
+				new LemmaPos("unicorn", noun),		// no rules
+				new LemmaPos("destroy", verb));		// a duplicate
+
+		Map<LemmaPos, List<LexicalRule<? extends RuleInfo>>> left = resource.getRulesForLeft(terms);
+		Map<LemmaPos, List<LexicalRule<? extends RuleInfo>>> right = resource.getRulesForRight(terms);
+		int numberOfRules = 0;
+		for (LemmaPos term : terms) {
+			List<String> expectedLeft = toStrings(resource.getRulesForLeft(term.getLemma(), term.getPos()));
+			assertEquals("left rules of " + term, expectedLeft, toStrings(left.get(term)));
+			assertEquals("right rules of " + term, toStrings(resource.getRulesForRight(term.getLemma(), term.getPos())), toStrings(right.get(term)));
+			numberOfRules += expectedLeft.size();
+		}
+		assertTrue("no rules were found", numberOfRules > 0);
+		// one query for each of the POSs (verb, noun, null and adjective) and each side
+		assertEquals(8, db.getNumberOfBatchQueries());
+	}
+
+	@Test
+	public void testBatchLargerThanOneQuery() throws Exception {
+		List<LemmaPos> terms = new ArrayList<LemmaPos>();
+		for (int index = 0; index < BatchLexicalResourceUtils.MAXIMUM_TERMS_PER_QUERY; index++) {
+			terms.add(new LemmaPos("unknown" + index, noun));
+		}
+		terms.add(new LemmaPos("destruction", noun));
+
+		Map<LemmaPos, List<LexicalRule<? extends RuleInfo>>> left = resource.getRulesForLeft(terms);
+		assertEquals("the lemmas are queried in two parts", 2, db.getNumberOfBatchQueries());
+		assertEquals(terms.size(), left.size());
+		assertEquals(toStrings(resource.getRulesForLeft("destruction", noun)), toStrings(left.get(new LemmaPos("destruction", noun))));
+		assertEquals(2, left.get(new LemmaPos("destruction", noun)).size());
+		assertTrue(left.get(new LemmaPos("unknown0", noun)).isEmpty());
+	}
+
+	// the rules, by their sides and POS
+	private static List<String> toStrings(List<LexicalRule<? extends RuleInfo>> rules) {
+		assertNotNull("no rules for a term of the batch", rules);
+		List<String> strings = new ArrayList<String>();
+		for (LexicalRule<? extends RuleInfo> rule : rules) {
+			strings.add(rule.getLLemma() + "/" + CatvarPosUtils.toShortPos(rule.getLPos()) + " -> " + rule.getRLemma() + "/" + CatvarPosUtils.toShortPos(rule.getRPos()));
+		}
+		return strings;
+	}
+
+	private FakeCatvarDatabase db;
+	private CatvarDBLexicalResource resource;
+	private PartOfSpeech noun;
+	private PartOfSpeech verb;
+	private PartOfSpeech adjective;
+}
@@ -0,0 +1,110 @@
+package eu.excitementproject.eop.core.component.lexicalknowledge.catvardb;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalRule;
+import eu.excitementproject.eop.common.component.lexicalknowledge.RuleInfo;
+import eu.excitementproject.eop.common.representation.partofspeech.BySimplerCanonicalPartOfSpeech;
+import eu.excitementproject.eop.common.representation.partofspeech.PartOfSpeech;
+import eu.excitementproject.eop.common.representation.partofspeech.SimplerCanonicalPosTag;
+import eu.excitementproject.eop.common.utilities.file.MappedRecordsFileWriter;
+
+/**
+ * Checks the lookups of {@link CatvarFileLexicalResource}, over a small file written like {@link CatvarDBFileExporter} writes it.
+ */
+public class CatvarFileLexicalResourceTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Before
+	public void setUp() throws Exception {
+		noun = new BySimplerCanonicalPartOfSpeech(SimplerCanonicalPosTag.NOUN);
+		verb = new BySimplerCanonicalPartOfSpeech(SimplerCanonicalPosTag.VERB);
+		adjective = new BySimplerCanonicalPartOfSpeech(SimplerCanonicalPosTag.ADJECTIVE);
+
+		File file = folder.newFile("catvar.records");
+		MappedRecordsFileWriter writer = new MappedRecordsFileWriter(file);
+		// two clusters: every pair of their terms, including each term with itself, like the query of the exporter
+		addCluster(writer, new String[][] { { "destroy", "v" }, { "destruction", "n" }, { "destructive", "a" } });
+		addCluster(writer, new String[][] { { "light", "n" }, { "light", "v" }, { "lighting", "n" } });
+		writer.close();
+		resource = new CatvarFileLexicalResource(file);
+	}
+
+	@Test
+	public void testRulesForLeft() throws Exception {
+		assertEquals(set("destroy/v -> destruction/n", "destroy/v -> destructive/a"), rules(resource.getRulesForLeft("destroy", verb)));
+		assertEquals(set("destroy/v -> destruction/n", "destroy/v -> destructive/a"), rules(resource.getRulesForLeft("destroy", null)));
+		assertEquals("the POS of the lemma doesn't match", set(), rules(resource.getRulesForLeft("destroy", noun)));
+		// a lemma with two POSs in its cluster: the same lemma with the other POS is not a reflexive rule
+		assertEquals(set("light/n -> light/v", "light/n -> lighting/n"), rules(resource.getRulesForLeft("light", noun)));
+		assertEquals(set("light/n -> light/v", "light/n -> lighting/n", "light/v -> light/n", "light/v -> lighting/n"),
+				rules(resource.getRulesForLeft("light", null)));
+	}
+
+	@Test
+	public void testRulesForRight() throws Exception {
+		assertEquals(set("destroy/v -> destruction/n", "destructive/a -> destruction/n"), rules(resource.getRulesForRight("destruction", noun)));
+		assertEquals(set("destroy/v -> destructive/a", "destruction/n -> destructive/a"), rules(resource.getRulesForRight("destructive", adjective)));
+		assertEquals(set("light/n -> light/v", "lighting/n -> light/v"), rules(resource.getRulesForRight("light", verb)));
+	}
+
+	@Test
+	public void testRules() throws Exception {
+		assertEquals(set("destroy/v -> destruction/n"), rules(resource.getRules("destroy", verb, "destruction", noun)));
+		// the lemmas are looked up ignoring case
+		assertEquals(set("Destroy/v -> DESTRUCTION/n"), rules(resource.getRules("Destroy", null, "DESTRUCTION", null)));
+		assertEquals("the POS of the rhs doesn't match", set(), rules(resource.getRules("destroy", verb, "destruction", verb)));
+		assertEquals("the lemmas are in different clusters", set(), rules(resource.getRules("destroy", null, "light", null)));
+	}
+
+	@Test
+	public void testMissingLemmas() throws Exception {
+		assertTrue(resource.getRulesForLeft("unicorn", null).isEmpty());
+		assertTrue(resource.getRulesForRight("unicorn", noun).isEmpty());
+		assertTrue(resource.getRules("unicorn", null, "destroy", null).isEmpty());
+		assertTrue(resource.getRules("destroy", null, "unicorn", null).isEmpty());
+		// keys before the first key and after the last key of the file
+		assertTrue(resource.getRulesForLeft("aaa", null).isEmpty());
+		assertTrue(resource.getRulesForLeft("zzz", null).isEmpty());
+	}
+
+	private static void addCluster(MappedRecordsFileWriter writer, String[][] terms) throws Exception {
+		for (String[] term : terms) {
+			for (String[] otherTerm : terms) {
+				CatvarDBFileExporter.addPair(writer, term[0], term[1], otherTerm[0], otherTerm[1]);
+			}
+		}
+	}
+
+	// the rules as "lhs/catvar pos -> rhs/catvar pos"
+	private static Set<String> rules(List<LexicalRule<? extends RuleInfo>> rules) {
+		Set<String> strings = new TreeSet<String>();
+		for (LexicalRule<? extends RuleInfo> rule : rules) {
+			String string = rule.getLLemma() + "/" + CatvarPosUtils.toShortPos(rule.getLPos()) + " -> " + rule.getRLemma() + "/" + CatvarPosUtils.toShortPos(rule.getRPos());
+			assertTrue("a duplicate rule " + string, strings.add(string));
+		}
+		return strings;
+	}
+
+	private static Set<String> set(String... strings) {
+		return new TreeSet<String>(Arrays.asList(strings));
+	}
+
+	private PartOfSpeech noun;
+	private PartOfSpeech verb;
+	private PartOfSpeech adjective;
+	private CatvarFileLexicalResource resource;
+}
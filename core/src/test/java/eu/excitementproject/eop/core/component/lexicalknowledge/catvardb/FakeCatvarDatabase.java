@@ -0,0 +1,195 @@
+package eu.excitementproject.eop.core.component.lexicalknowledge.catvardb;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * An in-memory stand-in for the catvar DB: a JDBC {@link Connection} whose statements answer the cluster term
+ * queries that {@link CatvarDBLexicalResource} makes, over a list of <code>(cluster, lemma, pos)</code> terms.
+ * The lemmas are compared ignoring case, like the DB does.
+ * <P>
+ * Only the cluster term queries are supported; executing any other query fails.
+ */
+class FakeCatvarDatabase
+{
+	/**
+	 * Adds the terms of a cluster, each given as <code>{lemma, pos}</code>
+	 */
+	void addCluster(String[][] terms)
+	{
+		int cluster = numberOfClusters++;
+		for (String[] term : terms)
+			this.terms.add(new String[] { Integer.toString(cluster), term[0], term[1] });
+	}
+
+	Connection getConnection()
+	{
+		return connection;
+	}
+
+	/**
+	 * @return the number of batch queries executed
+	 */
+	int getNumberOfBatchQueries()
+	{
+		return batchQueries.get();
+	}
+
+
+	/**
+	 * Runs a cluster term query of {@link CatvarDBLexicalResource}
+	 *
+	 * @return the rows of the result, as strings
+	 */
+	private List<String[]> execute(String sql, Map<Integer, Object> parameters) throws SQLException
+	{
+		Matcher single = SINGLE_QUERY.matcher(sql);
+		if (single.matches())
+		{
+			String pos = (single.group(1) != null) ? (String) parameters.get(2) : null;
+			List<String[]> rows = new ArrayList<String[]>();
+			for (String[] term : terms)
+			{
+				if (term[1].equalsIgnoreCase((String) parameters.get(1)) && (pos == null || term[2].equals(pos)))
+				{
+					for (String[] clusterTerm : clusterTerms(term[0]))
+						rows.add(new String[] { clusterTerm[1], clusterTerm[2], term[2] });
+				}
+			}
+			return rows;
+		}
+
+		Matcher batch = BATCH_QUERY.matcher(sql);
+		if (batch.matches())
+		{
+			batchQueries.incrementAndGet();
+			int numberOfLemmas = batch.group(1).split(",").length;
+			List<String> lemmas = new ArrayList<String>();
+			for (int index = 1; index <= numberOfLemmas; index++)
+				lemmas.add(((String) parameters.get(index)).toLowerCase());
+			String pos = (batch.group(2) != null) ? (String) parameters.get(numberOfLemmas + 1) : null;
+			// like IN (...), each term is selected once, even if several of the lemmas match it
+			List<String[]> rows = new ArrayList<String[]>();
+			for (String[] term : terms)
+			{
+				if (lemmas.contains(term[1].toLowerCase()) && (pos == null || term[2].equals(pos)))
+				{
+					for (String[] clusterTerm : clusterTerms(term[0]))
+						rows.add(new String[] { clusterTerm[1], clusterTerm[2], term[2], term[1] });
+				}
+			}
+			return rows;
+		}
+
+		throw new SQLException("Unsupported query: " + sql);
+	}
+
+	private List<String[]> clusterTerms(String cluster)
+	{
+		List<String[]> clusterTerms = new ArrayList<String[]>();
+		for (String[] term : terms)
+		{
+			if (term[0].equals(cluster))
+				clusterTerms.add(term);
+		}
+		return clusterTerms;
+	}
+
+	private PreparedStatement newStatement(final String sql)
+	{
+		final Map<Integer, Object> parameters = new HashMap<Integer, Object>();
+		return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { PreparedStatement.class }, new InvocationHandler()
+		{
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+			{
+				String name = method.getName();
+				if (name.equals("setString"))
+				{
+					parameters.put((Integer) args[0], args[1]);
+					return null;
+				}
+				if (name.equals("executeQuery"))
+					return newResultSet(execute(sql, parameters));
+				if (name.equals("close"))
+					return null;
+				if (name.equals("toString"))
+					return sql;
+				if (name.equals("hashCode"))
+					return System.identityHashCode(proxy);
+				if (name.equals("equals"))
+					return proxy == args[0];
+				throw new UnsupportedOperationException(name);
+			}
+		});
+	}
+
+	private static ResultSet newResultSet(final List<String[]> rows)
+	{
+		return (ResultSet) Proxy.newProxyInstance(FakeCatvarDatabase.class.getClassLoader(), new Class<?>[] { ResultSet.class }, new InvocationHandler()
+		{
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+			{
+				String name = method.getName();
+				if (name.equals("first"))
+				{
+					position = 0;
+					return !rows.isEmpty();
+				}
+				if (name.equals("next"))
+					return ++position < rows.size();
+				if (name.equals("getString"))
+					return rows.get(position)[(Integer) args[0] - 1];
+				if (name.equals("close"))
+					return null;
+				throw new UnsupportedOperationException(name);
+			}
+
+			private int position = -1;
+		});
+	}
+
+	private final List<String[]> terms = new ArrayList<String[]>();
+	private int numberOfClusters = 0;
+	private final AtomicInteger batchQueries = new AtomicInteger();
+	private final Connection connection = (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Connection.class }, new InvocationHandler()
+	{
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+		{
+			String name = method.getName();
+			if (name.equals("prepareStatement") && args.length == 1)
+				return newStatement((String) args[0]);
+			if (name.equals("hashCode"))
+				return System.identityHashCode(proxy);
+			if (name.equals("equals"))
+				return proxy == args[0];
+			if (name.equals("toString"))
+				return "fake catvar DB";
+			throw new UnsupportedOperationException(name);
+		}
+	});
+
+	private static final String CLUSTER_TERMS_END = "\\) termClusters WHERE ct.cluster_id = termClusters.cluster_id AND term.term_id = ct.term_id";
+	// the terms of the clusters of the lemma[ with the pos]: (lemma, pos, pos of the queried term)
+	private static final Pattern SINGLE_QUERY = Pattern.compile(
+			"select lemma, term.pos, termClusters.pos FROM term, cluster_term ct, \\(SELECT cluster_id, pos FROM cluster_term ct, term " +
+			"WHERE term.term_id = ct.term_id and lemma = \\?( and pos = \\?)?" + CLUSTER_TERMS_END);
+	// the terms of the clusters of the lemmas[ with the pos]: (lemma, pos, pos of the queried term, lemma of the queried term)
+	private static final Pattern BATCH_QUERY = Pattern.compile(
+			"select lemma, term.pos, termClusters.pos, termClusters.queried_lemma FROM term, cluster_term ct, \\(SELECT cluster_id, pos, lemma AS queried_lemma " +
+			"FROM cluster_term ct, term WHERE term.term_id = ct.term_id and lemma IN \\(([?, ]+)\\)( and pos = \\?)?" + CLUSTER_TERMS_END);
+}
@@ -0,0 +1,95 @@
+package eu.excitementproject.eop.core.component.lexicalknowledge.similarity;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import eu.excitementproject.eop.common.component.lexicalknowledge.LemmaPos;
+import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalRule;
+import eu.excitementproject.eop.common.component.lexicalknowledge.RuleInfo;
+import eu.excitementproject.eop.common.representation.partofspeech.PartOfSpeech;
+
+/**
+ * Checks that the batch queries of {@link AbstractSimilarityLexicalResource} give each term the same rules as
+ * its single queries, in particular that the limit on the retrieved rules applies to each lemma of the batch.
+ */
+public class AbstractSimilarityLexicalResourceBatchTest {
+
+	@Test
+	public void testBatchEqualsSingleQueriesWithoutLimit() throws Exception {
+		assertBatchEqualsSingleQueries(0);
+	}
+
+	@Test
+	public void testBatchEqualsSingleQueriesWithLimit() throws Exception {
+		assertBatchEqualsSingleQueries(2);
+	}
+
+	@Test
+	public void testLimitAppliesToEachLemma() throws Exception {
+		FakeSimilarityDatabase db = newDatabase();
+		FakeSimilarityDatabase.Resource resource = db.new Resource(2);
+		PartOfSpeech noun = resource.getNoun();
+		Map<LemmaPos, List<LexicalRule<? extends RuleInfo>>> batch = resource.getRulesForLeft(
+				Arrays.asList(new LemmaPos("dog", noun), new LemmaPos("cat", noun)));
+		// both lemmas have more than two rules, so a limit on the whole batch would leave the second one without rules
+		assertEquals(2, batch.get(new LemmaPos("dog", noun)).size());
+		assertEquals(2, batch.get(new LemmaPos("cat", noun)).size());
+	}
+
+	private static void assertBatchEqualsSingleQueries(int limit) throws Exception {
+		FakeSimilarityDatabase db = newDatabase();
+		FakeSimilarityDatabase.Resource resource = db.new Resource(limit);
+		PartOfSpeech noun = resource.getNoun();
+		PartOfSpeech verb = resource.getVerb();
+		List<LemmaPos> terms = Arrays.asList(
+				new LemmaPos("dog", noun),
+				new LemmaPos("Dog", noun),		// the same rows as "dog", in another case
+				new LemmaPos("cat", noun),
+				new LemmaPos("run", verb),
+				new LemmaPos("run", null),		// both tables
+				new LemmaPos("unicorn", noun),	// no rules
+				new LemmaPos("dog", noun));		// a duplicate
+
+		Map<LemmaPos, List<LexicalRule<? extends RuleInfo>>> left = resource.getRulesForLeft(terms);
+		Map<LemmaPos, List<LexicalRule<? extends RuleInfo>>> right = resource.getRulesForRight(terms);
+		for (LemmaPos term : terms) {
+			assertEquals("left rules of " + term, toStrings(resource.getRulesForLeft(term.getLemma(), term.getPos())), toStrings(left.get(term)));
+			assertEquals("right rules of " + term, toStrings(resource.getRulesForRight(term.getLemma(), term.getPos())), toStrings(right.get(term)));
+		}
+	}
+
+	// the rules, by their sides, POS and score
+	private static List<String> toStrings(List<LexicalRule<? extends RuleInfo>> rules) {
+		assertNotNull("no rules for a term of the batch", rules);
+		List<String> strings = new ArrayList<String>();
+		for (LexicalRule<? extends RuleInfo> rule : rules) {
+			strings.add(rule.getLLemma() + "/" + rule.getLPos() + " -> " + rule.getRLemma() + "/" + rule.getRPos() + " : " + rule.getConfidence());
+		}
+		return strings;
+	}
+
+	// the similarities are distinct, so the rules of each lemma have a single order
+	private static FakeSimilarityDatabase newDatabase() {
+		FakeSimilarityDatabase db = new FakeSimilarityDatabase();
+		db.addRow(FakeSimilarityDatabase.NOUN_TABLE, "dog", "cat", 0.9);
+		db.addRow(FakeSimilarityDatabase.NOUN_TABLE, "dog", "puppy", 0.8);
+		db.addRow(FakeSimilarityDatabase.NOUN_TABLE, "dog", "wolf", 0.7);
+		db.addRow(FakeSimilarityDatabase.NOUN_TABLE, "Dog", "hound", 0.6);
+		db.addRow(FakeSimilarityDatabase.NOUN_TABLE, "cat", "dog", 0.85);
+		db.addRow(FakeSimilarityDatabase.NOUN_TABLE, "cat", "kitten", 0.75);
+		db.addRow(FakeSimilarityDatabase.NOUN_TABLE, "cat", "tiger", 0.5);
+		db.addRow(FakeSimilarityDatabase.NOUN_TABLE, "puppy", "dog", 0.65);
+		db.addRow(FakeSimilarityDatabase.NOUN_TABLE, "run", "race", 0.3);
+		db.addRow(FakeSimilarityDatabase.VERB_TABLE, "run", "walk", 0.55);
+		db.addRow(FakeSimilarityDatabase.VERB_TABLE, "run", "jog", 0.45);
+		db.addRow(FakeSimilarityDatabase.VERB_TABLE, "run", "sprint", 0.35);
+		db.addRow(FakeSimilarityDatabase.VERB_TABLE, "walk", "run", 0.4);
+		return db;
+	}
+}
@@ -0,0 +1,55 @@
+package eu.excitementproject.eop.core.component.lexicalknowledge.similarity;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+/**
+ * Checks that {@link AbstractSimilarityLexicalResource#close()} closes the statements that each thread
+ * prepared for its queries.
+ */
+public class AbstractSimilarityLexicalResourceCloseTest {
+
+	@Test
+	public void testCloseClosesTheStatementsOfAllThreads() throws Exception {
+		FakeSimilarityDatabase db = new FakeSimilarityDatabase();
+		db.addRow(FakeSimilarityDatabase.NOUN_TABLE, "dog", "cat", 0.9);
+		db.addRow(FakeSimilarityDatabase.VERB_TABLE, "run", "walk", 0.5);
+		final FakeSimilarityDatabase.Resource resource = db.new Resource(0);
+		// the statements of the subclass are its own to close
+		int subclassStatements = db.getNumberOfOpenStatements();
+
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		try {
+			List<Callable<Integer>> queries = new ArrayList<Callable<Integer>>();
+			for (int i = 0; i < THREADS * 4; i++) {
+				queries.add(new Callable<Integer>() {
+					@Override
+					public Integer call() throws Exception {
+						// two different queries: all the rules, and the top rules
+						return resource.getRulesForLeft("dog", null).size() + resource.getTopRulesForRight("walk", null, 1, 0.1).size();
+					}
+				});
+			}
+			for (Future<Integer> result : executor.invokeAll(queries)) {
+				assertEquals(2, result.get().intValue());
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+		assertTrue("the threads prepared no statements", db.getNumberOfOpenStatements() > subclassStatements);
+
+		resource.close();
+		assertEquals("statements of the threads were left open", subclassStatements, db.getNumberOfOpenStatements());
+	}
+
+	private static final int THREADS = 4;
+}
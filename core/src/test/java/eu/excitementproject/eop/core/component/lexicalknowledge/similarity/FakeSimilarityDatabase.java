@@ -0,0 +1,318 @@
+package eu.excitementproject.eop.core.component.lexicalknowledge.similarity;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import eu.excitementproject.eop.common.representation.partofspeech.PartOfSpeech;
+
+/**
+ * An in-memory stand-in for the DB of the similarity resources: a JDBC {@link Connection} whose statements
+ * answer the queries that {@link AbstractSimilarityLexicalResource} makes, over tables of
+ * <code>(lhs, rhs, sim)</code> rows. The lemmas are compared ignoring case, like the DB does.
+ * <P>
+ * Only the query shapes of {@link AbstractSimilarityLexicalResource} are supported; any other query fails.
+ */
+class FakeSimilarityDatabase
+{
+	static final String L_COL = "lhs";
+	static final String R_COL = "rhs";
+	static final String SIM_COL = "sim";
+
+	/**
+	 * Adds a row to a table (creating the table if needed)
+	 */
+	void addRow(String table, String leftLemma, String rightLemma, double similarity)
+	{
+		List<String[]> rows = tables.get(table);
+		if (rows == null)
+		{
+			rows = new ArrayList<String[]>();
+			tables.put(table, rows);
+		}
+		rows.add(new String[] { leftLemma, rightLemma, Double.toString(similarity) });
+	}
+
+	Connection getConnection()
+	{
+		return connection;
+	}
+
+	/**
+	 * @return the number of statements prepared by the connection, which were not closed
+	 */
+	int getNumberOfOpenStatements()
+	{
+		return openStatements.get();
+	}
+
+	/**
+	 * A resource with a table for nouns and a table for verbs, queried through this DB
+	 */
+	class Resource extends AbstractSimilarityLexicalResource
+	{
+		Resource(int limitOnRetrievedRules) throws Exception
+		{
+			super(limitOnRetrievedRules);
+			nounRules = new PreparedStatementAndPos(connection.prepareStatement(getRulesForLeftQueryStr(NOUN_TABLE)), NOUN, NOUN_TABLE);
+			verbRules = new PreparedStatementAndPos(connection.prepareStatement(getRulesForLeftQueryStr(VERB_TABLE)), VERB, VERB_TABLE);
+		}
+
+		@Override
+		protected String L_COL()
+		{
+			return L_COL;
+		}
+
+		@Override
+		protected String R_COL()
+		{
+			return R_COL;
+		}
+
+		@Override
+		protected String SIM_COL()
+		{
+			return SIM_COL;
+		}
+
+		@Override
+		protected Set<PreparedStatementAndPos> posToRulesStmts(PartOfSpeech pos, boolean isRHS)
+		{
+			Set<PreparedStatementAndPos> stmts = new LinkedHashSet<PreparedStatementAndPos>();
+			if (pos == null || pos.equals(NOUN))
+				stmts.add(nounRules);
+			if (pos == null || pos.equals(VERB))
+				stmts.add(verbRules);
+			return stmts;
+		}
+
+		@Override
+		protected Set<PreparedStatementAndPos> posToScoreStmt(PartOfSpeech pos)
+		{
+			return Collections.emptySet();
+		}
+
+		@Override
+		protected String getResourceName()
+		{
+			return "fake similarity";
+		}
+
+		PartOfSpeech getNoun()
+		{
+			return NOUN;
+		}
+
+		PartOfSpeech getVerb()
+		{
+			return VERB;
+		}
+
+		private final PreparedStatementAndPos nounRules;
+		private final PreparedStatementAndPos verbRules;
+	}
+
+	static final String NOUN_TABLE = "nouns";
+	static final String VERB_TABLE = "verbs";
+
+
+	/**
+	 * Runs a query of {@link AbstractSimilarityLexicalResource}
+	 *
+	 * @return the rows of the result, as strings
+	 */
+	private List<String[]> execute(String sql, Map<Integer, Object> parameters) throws SQLException
+	{
+		Matcher single = SINGLE_QUERY.matcher(sql);
+		if (single.matches())
+		{
+			// the lemma, then the minimum similarity and the limit, if in the query
+			int parameterIndex = 1;
+			String lemma = (String) parameters.get(parameterIndex++);
+			double minimumSimilarity = (single.group(5) != null) ? (Double) parameters.get(parameterIndex++) : Double.NEGATIVE_INFINITY;
+			int limit = (single.group(7) != null) ? (Integer) parameters.get(parameterIndex++) : 0;
+			List<String[]> rows = new ArrayList<String[]>();
+			for (String[] row : select(single.group(3), single.group(4), lemma, single.group(1), limit))
+			{
+				if (Double.parseDouble(row[1]) >= minimumSimilarity)
+					rows.add(row);
+			}
+			return rows;
+		}
+
+		if (sql.startsWith("(SELECT ") && sql.endsWith(" ORDER BY 1, 3 DESC"))
+		{
+			final List<String[]> rows = new ArrayList<String[]>();
+			Matcher sub = SUB_QUERY.matcher(sql);
+			int subQueries = 0;
+			while (sub.find())
+			{
+				String lemma = (String) parameters.get(++subQueries);
+				int limit = (sub.group(7) != null) ? Integer.parseInt(sub.group(7)) : 0;
+				for (String[] row : select(sub.group(4), sub.group(5), lemma, sub.group(2), limit))
+				{
+					rows.add(new String[] { sub.group(1), row[0], row[1] });
+				}
+			}
+			if (subQueries == 0)
+				throw new SQLException("Unsupported query: " + sql);
+			Collections.sort(rows, new Comparator<String[]>()
+			{
+				@Override
+				public int compare(String[] row1, String[] row2)
+				{
+					int byIndex = Integer.valueOf(row1[0]).compareTo(Integer.valueOf(row2[0]));
+					return (byIndex != 0) ? byIndex : Double.compare(Double.parseDouble(row2[2]), Double.parseDouble(row1[2]));
+				}
+			});
+			return rows;
+		}
+
+		throw new SQLException("Unsupported query: " + sql);
+	}
+
+	/**
+	 * @return the (other lemma, similarity) rows of the table, whose key column is the lemma, in decreasing order of similarity
+	 */
+	private List<String[]> select(String table, String keyColumn, String lemma, String otherColumn, int limit) throws SQLException
+	{
+		List<String[]> tableRows = tables.get(table);
+		if (tableRows == null)
+			throw new SQLException("No such table: " + table);
+		int keyIndex = column(keyColumn);
+		int otherIndex = column(otherColumn);
+		List<String[]> rows = new ArrayList<String[]>();
+		for (String[] row : tableRows)
+		{
+			if (row[keyIndex].equalsIgnoreCase(lemma))
+				rows.add(new String[] { row[otherIndex], row[2] });
+		}
+		Collections.sort(rows, new Comparator<String[]>()
+		{
+			@Override
+			public int compare(String[] row1, String[] row2)
+			{
+				return Double.compare(Double.parseDouble(row2[1]), Double.parseDouble(row1[1]));
+			}
+		});
+		return (limit > 0 && rows.size() > limit) ? new ArrayList<String[]>(rows.subList(0, limit)) : rows;
+	}
+
+	private static int column(String name) throws SQLException
+	{
+		if (L_COL.equals(name)) return 0;
+		if (R_COL.equals(name)) return 1;
+		throw new SQLException("No such column: " + name);
+	}
+
+	private PreparedStatement newStatement(final String sql)
+	{
+		openStatements.incrementAndGet();
+		final Map<Integer, Object> parameters = new HashMap<Integer, Object>();
+		return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { PreparedStatement.class }, new InvocationHandler()
+		{
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+			{
+				String name = method.getName();
+				if (name.equals("setString") || name.equals("setDouble") || name.equals("setInt"))
+				{
+					parameters.put((Integer) args[0], args[1]);
+					return null;
+				}
+				if (name.equals("executeQuery"))
+				{
+					if (closed)
+						throw new SQLException("The statement is closed");
+					return newResultSet(execute(sql, parameters));
+				}
+				if (name.equals("getConnection"))
+					return connection;
+				if (name.equals("close"))
+				{
+					if (!closed)
+						openStatements.decrementAndGet();
+					closed = true;
+					return null;
+				}
+				if (name.equals("isClosed"))
+					return closed;
+				if (name.equals("toString"))
+					return sql;
+				if (name.equals("hashCode"))
+					return System.identityHashCode(proxy);
+				if (name.equals("equals"))
+					return proxy == args[0];
+				throw new UnsupportedOperationException(name);
+			}
+
+			private boolean closed = false;
+		});
+	}
+
+	private static ResultSet newResultSet(final List<String[]> rows)
+	{
+		return (ResultSet) Proxy.newProxyInstance(FakeSimilarityDatabase.class.getClassLoader(), new Class<?>[] { ResultSet.class }, new InvocationHandler()
+		{
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+			{
+				String name = method.getName();
+				if (name.equals("next"))
+					return ++position < rows.size();
+				if (name.equals("getString"))
+					return rows.get(position)[(Integer) args[0] - 1];
+				if (name.equals("getInt"))
+					return Integer.parseInt(rows.get(position)[(Integer) args[0] - 1]);
+				if (name.equals("close"))
+					return null;
+				throw new UnsupportedOperationException(name);
+			}
+
+			private int position = -1;
+		});
+	}
+
+	private final Map<String, List<String[]>> tables = new HashMap<String, List<String[]>>();
+	private final AtomicInteger openStatements = new AtomicInteger();
+	private final Connection connection = (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Connection.class }, new InvocationHandler()
+	{
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+		{
+			String name = method.getName();
+			if (name.equals("prepareStatement") && args.length == 1)
+				return newStatement((String) args[0]);
+			if (name.equals("hashCode"))
+				return System.identityHashCode(proxy);
+			if (name.equals("equals"))
+				return proxy == args[0];
+			if (name.equals("toString"))
+				return "fake similarity DB";
+			throw new UnsupportedOperationException(name);
+		}
+	});
+
+	// SELECT other, sim FROM table WHERE key = ?[ AND sim >= ?] ORDER BY sim DESC[ LIMIT ?]
+	private static final Pattern SINGLE_QUERY = Pattern.compile(
+			"SELECT (\\w+), (\\w+) FROM (\\w+) WHERE (\\w+) = \\?( AND (\\w+) >= \\?)? ORDER BY \\w+ DESC( LIMIT \\?)?");
+	// (SELECT index, other, sim FROM table WHERE key = ? ORDER BY sim DESC[ LIMIT n])
+	private static final Pattern SUB_QUERY = Pattern.compile(
+			"\\(SELECT (\\d+), (\\w+), (\\w+) FROM (\\w+) WHERE (\\w+) = \\? ORDER BY \\w+ DESC( LIMIT (\\d+))?\\)");
+}
@@ -0,0 +1,123 @@
+package eu.excitementproject.eop.core.component.lexicalknowledge.wikipedia;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalRule;
+import eu.excitementproject.eop.common.utilities.file.MappedRecordsFileWriter;
+
+/**
+ * Checks the lookups of {@link WikiLexicalResourceFileServices}, over a small file written like {@link WikiDBFileExporter} writes it.
+ */
+public class WikiLexicalResourceFileServicesTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Before
+	public void setUp() throws Exception {
+		file = folder.newFile("wiki.records");
+		MappedRecordsFileWriter writer = new MappedRecordsFileWriter(file);
+		WikiDBFileExporter.addRule(writer, "Barack Obama", "president", "Redirect", 0.9, 0.5);
+		WikiDBFileExporter.addRule(writer, "Barack Obama", "politician", "BeComp@Link", 0.5, 0.05);
+		// the same rule as the first one, in another case and with another extraction type: the two are consolidated
+		WikiDBFileExporter.addRule(writer, "barack obama", "President", "Link", 0.3, 0.7);
+		// a rule with no stats
+		WikiDBFileExporter.addRule(writer, "senator", "politician", "AllNouns", 0.7, Double.NaN);
+		writer.close();
+	}
+
+	@Test
+	public void testRulesWithoutThreshold() throws Exception {
+		WikiLexicalResourceFileServices services = new WikiLexicalResourceFileServices(file, null, ALL_TYPES);
+		// in decreasing order of rank
+		assertEquals(Arrays.asList(
+					"barack obama -> president [Link, Redirect] " + Integer.MAX_VALUE,
+					"barack obama -> politician [BeComp, Link] " + Integer.MAX_VALUE),
+				rules(services.getRulesForSideImpl("Barack Obama", false)));
+		assertEquals(Arrays.asList(
+					"barack obama -> politician [BeComp, Link] " + Integer.MAX_VALUE,
+					"senator -> politician [AllNounsTop] " + Integer.MAX_VALUE),
+				rules(services.getRulesForSideImpl("politician", true)));
+		assertEquals(Arrays.asList("barack obama -> president [Link, Redirect] " + Integer.MAX_VALUE),
+				rules(services.getRulesForSideImpl("PRESIDENT", true)));
+	}
+
+	@Test
+	public void testRulesWithThreshold() throws Exception {
+		WikiLexicalResourceFileServices services = new WikiLexicalResourceFileServices(file, 0.1, ALL_TYPES);
+		// the consolidated rule has the highest cooccurrence of its rules
+		assertEquals(Arrays.asList("barack obama -> president [Link, Redirect] 0.7"), rules(services.getRulesForSideImpl("barack obama", false)));
+		// one rule is below the threshold, and the other has no stats
+		assertEquals(Arrays.asList(), rules(services.getRulesForSideImpl("politician", true)));
+	}
+
+	@Test
+	public void testPermittedExtractionTypes() throws Exception {
+		Set<WikiExtractionType> withoutRedirect = EnumSet.allOf(WikiExtractionType.class);
+		withoutRedirect.remove(WikiExtractionType.REDIRECT);
+		WikiLexicalResourceFileServices services = new WikiLexicalResourceFileServices(file, null, withoutRedirect);
+		assertEquals(Arrays.asList(
+					"barack obama -> politician [BeComp, Link] " + Integer.MAX_VALUE,
+					"barack obama -> president [Link] " + Integer.MAX_VALUE),
+				rules(services.getRulesForSideImpl("barack obama", false)));
+	}
+
+	@Test
+	public void testRulesOfBothSides() throws Exception {
+		WikiLexicalResourceFileServices services = new WikiLexicalResourceFileServices(file, 0.1, ALL_TYPES);
+		// the first matching rule, like the DB query
+		assertEquals(Arrays.asList("barack obama -> president [Redirect] 0.5"), rules(services.getRulesFromDb("barack obama", "PRESIDENT")));
+		assertEquals("below the threshold", Arrays.asList(), rules(services.getRulesFromDb("Barack Obama", "politician")));
+		assertEquals("a rule from right to left", Arrays.asList(), rules(services.getRulesFromDb("president", "barack obama")));
+	}
+
+	@Test
+	public void testMissingTerms() throws Exception {
+		WikiLexicalResourceFileServices services = new WikiLexicalResourceFileServices(file, null, ALL_TYPES);
+		assertTrue(services.getRulesForSideImpl("unicorn", false).isEmpty());
+		assertTrue(services.getRulesForSideImpl("unicorn", true).isEmpty());
+		assertTrue(services.getRulesFromDb("unicorn", "president").isEmpty());
+		assertTrue(services.getRulesFromDb("barack obama", "unicorn").isEmpty());
+		// keys before the first key and after the last key of the file
+		assertTrue(services.getRulesForSideImpl("aaa", false).isEmpty());
+		assertTrue(services.getRulesForSideImpl("zzz", true).isEmpty());
+
+		Map<String, List<LexicalRule<? extends WikiRuleInfo>>> batch = services.getRulesForSideImpl(Arrays.asList("unicorn", "barack obama"), false);
+		assertEquals(2, batch.size());
+		assertTrue(batch.get("unicorn").isEmpty());
+		assertEquals(rules(services.getRulesForSideImpl("barack obama", false)), rules(batch.get("barack obama")));
+	}
+
+	// the rules as "lhs -> rhs [extraction types] cooccurrence", with the lemmas in lower case
+	private static List<String> rules(List<LexicalRule<? extends WikiRuleInfo>> rules) {
+		List<String> strings = new ArrayList<String>();
+		for (LexicalRule<? extends WikiRuleInfo> rule : rules) {
+			Set<String> types = new TreeSet<String>();
+			for (WikiExtractionType type : rule.getInfo().getExtractionTypes().getMutableSetCopy()) {
+				types.add(type.toString());
+			}
+			double cooccurrence = rule.getInfo().getCoocurenceScore();
+			strings.add(rule.getLLemma().toLowerCase() + " -> " + rule.getRLemma().toLowerCase() + " " + types + " " +
+					(cooccurrence == Integer.MAX_VALUE ? Integer.toString(Integer.MAX_VALUE) : Double.toString(cooccurrence)));
+		}
+		return strings;
+	}
+
+	private static final Set<WikiExtractionType> ALL_TYPES = EnumSet.allOf(WikiExtractionType.class);
+
+	private File file;
+}
@@ -0,0 +1,202 @@
+package eu.excitementproject.eop.core.component.lexicalknowledge.wordnet;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.AfterClass;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalRule;
+import eu.excitementproject.eop.common.representation.partofspeech.BySimplerCanonicalPartOfSpeech;
+import eu.excitementproject.eop.common.representation.partofspeech.PartOfSpeech;
+import eu.excitementproject.eop.common.representation.partofspeech.SimplerCanonicalPosTag;
+import eu.excitementproject.eop.common.utilities.configuration.ConfigurationFile;
+import eu.excitementproject.eop.common.utilities.configuration.ImplCommonConfig;
+import eu.excitementproject.eop.core.utilities.dictionary.wordnet.Synset;
+import eu.excitementproject.eop.core.utilities.dictionary.wordnet.WordNetRelation;
+
+/**
+ * Checks that a {@link WordnetLexicalResource} that answers from a {@link WordnetClosureIndex}, built by
+ * {@link WordnetClosureIndexBuilder} from the bundled Wordnet dictionary for a few lemmas, gives the rules
+ * of these lemmas that the resource gives from Wordnet itself.
+ */
+public class WordnetClosureIndexTest {
+
+	@BeforeClass
+	public static void setUp() throws Exception {
+		// the index is built from all the files of the dictionary, and some checkouts come without the noun files
+		Assume.assumeTrue(new File(WORDNET_DIR, "index.noun").exists() && new File(WORDNET_DIR, "data.noun").exists());
+
+		indexFile = File.createTempFile("WordnetClosureIndexTest", ".index");
+		indexFile.deleteOnExit();
+		WordnetClosureIndexBuilder builder = new WordnetClosureIndexBuilder(WORDNET_DIR, RELATIONS, CHAINING_LENGTH, null);
+		try {
+			builder.build(indexFile, new HashSet<String>(Arrays.asList(LEMMAS)));
+		} finally {
+			builder.close();
+		}
+
+		wordnet = new WordnetLexicalResource(WORDNET_DIR, false, false, RELATIONS, CHAINING_LENGTH);
+		indexed = createIndexedResource();
+
+		noun = new BySimplerCanonicalPartOfSpeech(SimplerCanonicalPosTag.NOUN);
+		poss = Arrays.<PartOfSpeech>asList(null, noun, new BySimplerCanonicalPartOfSpeech(SimplerCanonicalPosTag.VERB),
+				new BySimplerCanonicalPartOfSpeech(SimplerCanonicalPosTag.ADJECTIVE), new BySimplerCanonicalPartOfSpeech(SimplerCanonicalPosTag.ADVERB));
+	}
+
+	@AfterClass
+	public static void tearDown() {
+		if (wordnet != null)
+			wordnet.close();
+		if (indexed != null)
+			indexed.close();
+	}
+
+	@Test
+	public void testIndexHeader() throws Exception {
+		WordnetClosureIndex index = new WordnetClosureIndex(indexFile);
+		assertEquals(CHAINING_LENGTH, index.getChainingLength());
+		assertEquals(RELATIONS, index.getRelations());
+	}
+
+	@Test
+	public void testRulesForLeftAndRight() throws Exception {
+		int numberOfRules = 0;
+		for (String lemma : queriedLemmas()) {
+			for (PartOfSpeech pos : poss) {
+				String message = lemma + "/" + pos;
+				List<String> expectedLeft = toStrings(wordnet.getRulesForLeft(lemma, pos));
+				assertEquals("left rules of " + message, expectedLeft, toStrings(indexed.getRulesForLeft(lemma, pos)));
+				assertEquals("right rules of " + message, toStrings(wordnet.getRulesForRight(lemma, pos)), toStrings(indexed.getRulesForRight(lemma, pos)));
+				numberOfRules += expectedLeft.size();
+			}
+		}
+		assertTrue("no rules were found", numberOfRules > 0);
+	}
+
+	@Test
+	public void testRulesForLeftAndRightWithRelationsAndSenses() throws Exception {
+		Set<WordNetRelation> hypernym = Collections.singleton(WordNetRelation.HYPERNYM);
+		for (String lemma : queriedLemmas()) {
+			for (PartOfSpeech pos : poss) {
+				for (WordnetRuleInfo info : senses()) {
+					String message = lemma + "/" + pos + " " + info.getLeftSenseNo() + "-" + info.getRightSenseNo();
+					assertEquals("left rules of " + message, toStrings(wordnet.getRulesForLeft(lemma, pos, hypernym, info)),
+							toStrings(indexed.getRulesForLeft(lemma, pos, hypernym, info)));
+					assertEquals("right rules of " + message, toStrings(wordnet.getRulesForRight(lemma, pos, hypernym, info)),
+							toStrings(indexed.getRulesForRight(lemma, pos, hypernym, info)));
+					assertEquals("left rules of " + message, toStrings(wordnet.getRulesForLeft(lemma, pos, RELATIONS, info)),
+							toStrings(indexed.getRulesForLeft(lemma, pos, RELATIONS, info)));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testRules() throws Exception {
+		int numberOfRules = 0;
+		for (String lemma : LEMMAS) {
+			// pairs with the other sides of the rules of the lemma, with the lemma itself, and with an unrelated lemma
+			Set<String> rightLemmas = new TreeSet<String>(Arrays.asList(lemma, "unrelated"));
+			for (LexicalRule<? extends WordnetRuleInfo> rule : wordnet.getRulesForLeft(lemma, null)) {
+				if (rightLemmas.size() < 10)
+					rightLemmas.add(rule.getRLemma());
+			}
+			for (String rightLemma : rightLemmas) {
+				for (PartOfSpeech pos : Arrays.asList(null, noun)) {
+					String message = lemma + " -> " + rightLemma + " " + pos;
+					List<String> expected = toStrings(wordnet.getRules(lemma, pos, rightLemma, pos));
+					assertEquals(message, expected, toStrings(indexed.getRules(lemma, pos, rightLemma, pos)));
+					for (WordnetRuleInfo info : senses())
+						assertEquals(message, toStrings(wordnet.getRules(lemma, pos, rightLemma, pos, RELATIONS, info)),
+								toStrings(indexed.getRules(lemma, pos, rightLemma, pos, RELATIONS, info)));
+					numberOfRules += expected.size();
+				}
+			}
+		}
+		assertTrue("no rules were found", numberOfRules > 0);
+	}
+
+	/**
+	 * The resource of the index, as configured with the <code>closure-index-file</code> parameter
+	 */
+	private static WordnetLexicalResource createIndexedResource() throws Exception {
+		File configFile = File.createTempFile("WordnetClosureIndexTest", ".xml");
+		configFile.deleteOnExit();
+		Writer writer = new OutputStreamWriter(new FileOutputStream(configFile), "UTF-8");
+		try {
+			writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+					"<configuration>\n" +
+					"	<section name=\"wordnet\">\n" +
+					"		<property name=\"" + WordnetLexicalResource.PARAM_WN_DIR + "\">" + WORDNET_DIR.getPath() + "</property>\n" +
+					"		<property name=\"" + WordnetLexicalResource.PARAM_CLOSURE_INDEX_FILE + "\">" + indexFile.getPath() + "</property>\n" +
+					"		<property name=\"" + WordnetLexicalResource.PARAM_ONLY_FIRST_LEFT + "\">false</property>\n" +
+					"		<property name=\"" + WordnetLexicalResource.PARAM_ONLY_FIRST_RIGHT + "\">false</property>\n" +
+					"		<property name=\"" + WordnetLexicalResource.PARAM_DEFAULT_RELATIONS + "\">SYNONYM,HYPERNYM</property>\n" +
+					"		<property name=\"" + WordnetLexicalResource.PARAM_CHAINING_LENGTH + "\">" + CHAINING_LENGTH + "</property>\n" +
+					"	</section>\n" +
+					"</configuration>\n");
+		} finally {
+			writer.close();
+		}
+		return new WordnetLexicalResource(new ConfigurationFile(new ImplCommonConfig(configFile)).getModuleConfiguration("wordnet"));
+	}
+
+	// the indexed lemmas, and some of them in another case
+	private static List<String> queriedLemmas() {
+		List<String> lemmas = new ArrayList<String>(Arrays.asList(LEMMAS));
+		lemmas.add("Dog");
+		lemmas.add("BANK");
+		return lemmas;
+	}
+
+	private static List<WordnetRuleInfo> senses() throws Exception {
+		return Arrays.<WordnetRuleInfo>asList(new WordnetRuleInfoWithSenseNumsOnly(1, -1), new WordnetRuleInfoWithSenseNumsOnly(-1, 1),
+				new WordnetRuleInfoWithSenseNumsOnly(2, 1));
+	}
+
+	/**
+	 * The synsets of the index are not equal to the synsets of Wordnet, so the rules are compared by their sides, relation, sense numbers
+	 * and senses. The order of the rules may differ, so the strings are sorted.
+	 */
+	private static List<String> toStrings(List<LexicalRule<? extends WordnetRuleInfo>> rules) throws Exception {
+		List<String> strings = new ArrayList<String>();
+		for (LexicalRule<? extends WordnetRuleInfo> rule : rules) {
+			WordnetRuleInfo info = rule.getInfo();
+			strings.add(rule.getLLemma() + "/" + rule.getLPos() + " -> " + rule.getRLemma() + "/" + rule.getRPos() + " " + rule.getRelation() +
+					" " + info.getTypedRelation() + " " + info.getLeftSenseNo() + " " + toString(info.getLeftSense()) +
+					" " + info.getRightSenseNo() + " " + toString(info.getRightSense()));
+		}
+		Collections.sort(strings);
+		return strings;
+	}
+
+	private static String toString(Synset synset) throws Exception {
+		return synset.getPartOfSpeech() + ":" + synset.getOffset() + new TreeSet<String>(synset.getWords());
+	}
+
+	private static final File WORDNET_DIR = new File("./src/main/resources/ontologies/EnglishWordNet-dict");
+	private static final Set<WordNetRelation> RELATIONS = EnumSet.of(WordNetRelation.SYNONYM, WordNetRelation.HYPERNYM);
+	private static final int CHAINING_LENGTH = 2;
+	private static final String[] LEMMAS = { "dog", "cat", "run", "bank", "light", "good", "quickly", "hot dog" };
+
+	private static File indexFile;
+	private static WordnetLexicalResource wordnet;
+	private static WordnetLexicalResource indexed;
+	private static PartOfSpeech noun;
+	private static List<PartOfSpeech> poss;
+}
@@ -0,0 +1,89 @@
+package eu.excitementproject.eop.core.component.scoring;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import eu.excitementproject.eop.common.component.lexicalknowledge.LexicalRule;
+import eu.excitementproject.eop.common.component.lexicalknowledge.RuleInfo;
+import eu.excitementproject.eop.core.component.lexicalknowledge.verb_ocean.RelationType;
+import eu.excitementproject.eop.core.component.lexicalknowledge.verb_ocean.VerbOceanLexicalResource;
+
+/**
+ * Checks that the memo of {@link BagOfLexesScoringEN} gives the same right-hand side lemmas as querying the lexical
+ * resource directly, for prewarmed lemmas and for lemmas memoized when they are first scored.
+ */
+public class BagOfLexesScoringENMemoTest {
+
+	@Test
+	public void testMemoizedLemmasEqualDirectQueries() throws Exception {
+		File voFile = new File(VO_PATH);
+		Assume.assumeTrue(voFile.exists());
+
+		BagOfLexesScoringEN scoring = new BagOfLexesScoringEN(false, null, false, false, false, null,
+				true, new String[] { "strongerthan", "similar" }, true, VO_PATH);
+		VerbOceanLexicalResource resource = new VerbOceanLexicalResource(1, voFile,
+				new LinkedHashSet<RelationType>(Arrays.asList(RelationType.STRONGER_THAN, RelationType.SIMILAR)));
+		try {
+			List<String> lemmas = new ArrayList<String>(readLemmas(voFile, 200));
+			lemmas.add("no-such-verb");
+			lemmas.add("Abandon");
+
+			// half of the lemmas are prewarmed, the others are memoized on their first lookup
+			scoring.prewarm(resource, lemmas.subList(0, lemmas.size() / 2));
+			for (String lemma : lemmas) {
+				List<String> expected = rightLemmas(resource.getRulesForLeft(lemma, null));
+				List<String> first = scoring.getRightLemmas(resource, lemma);
+				assertEquals("the rules of " + lemma, expected, first);
+				assertSame("the second lookup of " + lemma + " is not memoized", first, scoring.getRightLemmas(resource, lemma));
+			}
+			// prewarming lemmas which are already memoized keeps their rules
+			List<String> memoized = scoring.getRightLemmas(resource, lemmas.get(0));
+			scoring.prewarm(resource, lemmas);
+			assertSame(memoized, scoring.getRightLemmas(resource, lemmas.get(0)));
+		}
+		finally {
+			scoring.close();
+			resource.close();
+		}
+	}
+
+	// the first lemmas of the file, in their order
+	private static Set<String> readLemmas(File voFile, int count) throws Exception {
+		Set<String> lemmas = new LinkedHashSet<String>();
+		BufferedReader reader = new BufferedReader(new FileReader(voFile));
+		try {
+			String line;
+			while (lemmas.size() < count && (line = reader.readLine()) != null) {
+				if (!line.startsWith("#") && line.contains(" ")) {
+					lemmas.add(line.substring(0, line.indexOf(' ')));
+				}
+			}
+		}
+		finally {
+			reader.close();
+		}
+		return lemmas;
+	}
+
+	private static List<String> rightLemmas(List<? extends LexicalRule<? extends RuleInfo>> rules) {
+		List<String> lemmas = new ArrayList<String>();
+		for (LexicalRule<? extends RuleInfo> rule : rules) {
+			lemmas.add(rule.getRLemma());
+		}
+		return Collections.unmodifiableList(lemmas);
+	}
+
+	private static final String VO_PATH = "./src/main/resources/VerbOcean/verbocean.unrefined.2004-05-20.txt";
+}
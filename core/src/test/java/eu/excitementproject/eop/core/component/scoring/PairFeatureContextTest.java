@@ -0,0 +1,99 @@
+package eu.excitementproject.eop.core.component.scoring;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Vector;
+import java.util.logging.Logger;
+
+import org.apache.uima.jcas.JCas;
+import org.junit.Assume;
+import org.junit.Test;
+
+import eu.excitementproject.eop.common.component.scoring.ScoringComponent;
+import eu.excitementproject.eop.common.component.scoring.ScoringComponentException;
+import eu.excitementproject.eop.common.exception.ConfigurationException;
+import eu.excitementproject.eop.lap.LAPAccess;
+import eu.excitementproject.eop.lap.LAPException;
+import eu.excitementproject.eop.lap.dkpro.MaltParserEN;
+
+/**
+ * Checks that the scoring components give the same scores with and without a
+ * {@link PairFeatureContext}, and logs the time per pair of each way.
+ */
+public class PairFeatureContextTest {
+
+	static Logger logger = Logger.getLogger(PairFeatureContextTest.class
+			.getName());
+
+	private static final int ROUNDS = 1000;
+
+	@Test
+	public void test() throws ScoringComponentException, ConfigurationException {
+		JCas aCas = null;
+		try {
+			LAPAccess lap = new MaltParserEN("poly");
+			aCas = lap.generateSingleTHPairCAS(
+					"The person is hired as a postdoc.",
+					"The person must have a PhD.");
+		} catch (LAPException e) {
+			logger.info(e.getMessage());
+		}
+		Assume.assumeNotNull(aCas);
+
+		List<ScoringComponent> components = new ArrayList<ScoringComponent>();
+		components.add(new BagOfWordsScoring());
+		components.add(new BagOfLemmasScoring());
+		components.add(new BagOfDepsScoring());
+		components.add(new BagOfDepsPosScoring());
+		components.add(new TreeSkeletonScoring());
+
+		assertEquals(scoreStandalone(components, aCas),
+				scoreWithContext(components, aCas));
+
+		// warm up
+		for (int i = 0; i < ROUNDS; i++) {
+			scoreStandalone(components, aCas);
+			scoreWithContext(components, aCas);
+		}
+
+		long startTime = System.nanoTime();
+		for (int i = 0; i < ROUNDS; i++) {
+			scoreStandalone(components, aCas);
+		}
+		long standaloneTime = System.nanoTime() - startTime;
+
+		startTime = System.nanoTime();
+		for (int i = 0; i < ROUNDS; i++) {
+			scoreWithContext(components, aCas);
+		}
+		long contextTime = System.nanoTime() - startTime;
+
+		logger.info("Time per pair without a context (microseconds): "
+				+ standaloneTime / ROUNDS / 1000);
+		logger.info("Time per pair with a context (microseconds): "
+				+ contextTime / ROUNDS / 1000);
+	}
+
+	private static List<Vector<Double>> scoreStandalone(
+			List<ScoringComponent> components, JCas aCas)
+			throws ScoringComponentException {
+		List<Vector<Double>> scores = new ArrayList<Vector<Double>>();
+		for (ScoringComponent comp : components) {
+			scores.add(comp.calculateScores(aCas));
+		}
+		return scores;
+	}
+
+	private static List<Vector<Double>> scoreWithContext(
+			List<ScoringComponent> components, JCas aCas)
+			throws ScoringComponentException {
+		PairFeatureContext context = PairFeatureContext.open(aCas);
+		try {
+			return scoreStandalone(components, aCas);
+		} finally {
+			context.close();
+		}
+	}
+}
@@ -0,0 +1,174 @@
+package eu.excitementproject.eop.core.metaeda;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.uima.jcas.JCas;
+import org.junit.Test;
+
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
+import eu.excitement.type.entailment.Pair;
+import eu.excitementproject.eop.common.DecisionLabel;
+import eu.excitementproject.eop.common.EDABasic;
+import eu.excitementproject.eop.common.EDAException;
+import eu.excitementproject.eop.common.TEDecision;
+import eu.excitementproject.eop.common.configuration.CommonConfig;
+import eu.excitementproject.eop.common.exception.ComponentException;
+import eu.excitementproject.eop.common.exception.ConfigurationException;
+import eu.excitementproject.eop.lap.PlatformCASProber;
+
+/**
+ * Checks that the EDABasic instances of {@link SimpleMetaEDAConfidenceFeatures}, which add
+ * annotations to the JCas they process, give the same features when they run concurrently
+ * (each lane on its own copy of the JCas) as when they run one after the other.
+ */
+public class SimpleMetaEDAConfidenceFeaturesConcurrencyTest {
+
+	@Test
+	public void testConcurrentFeaturesEqualSequentialFeatures() throws Exception {
+		SimpleMetaEDAConfidenceFeatures concurrent = new SimpleMetaEDAConfidenceFeatures(newMembers());
+		SimpleMetaEDAConfidenceFeatures sequential = new SimpleMetaEDAConfidenceFeatures(newMembers());
+		sequential.setConcurrentMembers(false);
+		try {
+			for (int i = 0; i < PAIRS; i++) {
+				// each run gets a fresh JCas, since the members annotate it
+				JCas concurrentJCas = newPair(i);
+				JCas sequentialJCas = newPair(i);
+				MetaTEDecision concurrentDecision = concurrent.process(concurrentJCas);
+				MetaTEDecision sequentialDecision = sequential.process(sequentialJCas);
+				assertEquals(sequentialDecision.getDecision(), concurrentDecision.getDecision());
+				assertArrayEquals("features of pair " + i,
+						sequential.getResults().get(i), concurrent.getResults().get(i), 0.0);
+			}
+		}
+		finally {
+			concurrent.shutdown();
+			sequential.shutdown();
+		}
+	}
+
+	@Test
+	public void testEachLaneAnnotatesItsOwnCopy() throws Exception {
+		SimpleMetaEDAConfidenceFeatures concurrent = new SimpleMetaEDAConfidenceFeatures(newMembers());
+		try {
+			JCas aJCas = newPair(0);
+			concurrent.process(aJCas);
+			// only the first lane processes the given JCas: the tokens of the other members are on their copies
+			assertEquals(words(HYPOTHESES[0]).length, tokenCount(aJCas.getView(HYPOTHESIS_VIEW)));
+		}
+		finally {
+			concurrent.shutdown();
+		}
+	}
+
+	private static ArrayList<EDABasic<? extends TEDecision>> newMembers() {
+		ArrayList<EDABasic<? extends TEDecision>> members = new ArrayList<EDABasic<? extends TEDecision>>();
+		for (int i = 0; i < MEMBERS; i++) {
+			members.add(new AnnotatingOverlapEDA(0.2 * (i + 1)));
+		}
+		return members;
+	}
+
+	private static JCas newPair(int pairID) throws Exception {
+		String text = TEXTS[pairID % TEXTS.length];
+		String hypothesis = HYPOTHESES[pairID % HYPOTHESES.length];
+		JCas aJCas = PlatformCASProber.newJCas();
+		JCas textView = aJCas.createView(TEXT_VIEW);
+		textView.setDocumentText(text);
+		textView.setDocumentLanguage("EN");
+		JCas hypothesisView = aJCas.createView(HYPOTHESIS_VIEW);
+		hypothesisView.setDocumentText(hypothesis);
+		hypothesisView.setDocumentLanguage("EN");
+		Pair pair = new Pair(aJCas);
+		pair.setPairID(Integer.toString(pairID));
+		pair.addToIndexes();
+		return aJCas;
+	}
+
+	private static String[] words(String sentence) {
+		return sentence.split(" ");
+	}
+
+	private static int tokenCount(JCas view) {
+		return view.getAnnotationIndex(Token.type).size();
+	}
+
+	/**
+	 * A member EDA that annotates the tokens of the hypothesis (it writes to the JCas, as the
+	 * aligners do), and decides by the fraction of the hypothesis tokens that occur in the text.
+	 */
+	private static class AnnotatingOverlapEDA implements EDABasic<TEDecision> {
+
+		public AnnotatingOverlapEDA(double threshold) {
+			this.threshold = threshold;
+		}
+
+		@Override
+		public void initialize(CommonConfig config) throws ConfigurationException, EDAException, ComponentException {
+		}
+
+		@Override
+		public TEDecision process(JCas aCas) throws EDAException, ComponentException {
+			try {
+				JCas textView = aCas.getView(TEXT_VIEW);
+				JCas hypothesisView = aCas.getView(HYPOTHESIS_VIEW);
+				Set<String> textWords = new HashSet<String>(Arrays.asList(words(textView.getDocumentText())));
+
+				int tokensBefore = tokenCount(hypothesisView);
+				int begin = 0;
+				int covered = 0;
+				String[] hypothesisWords = words(hypothesisView.getDocumentText());
+				for (String word : hypothesisWords) {
+					new Token(hypothesisView, begin, begin + word.length()).addToIndexes();
+					begin += word.length() + 1;
+					if (textWords.contains(word)) {
+						covered++;
+					}
+				}
+				if (tokenCount(hypothesisView) != tokensBefore + hypothesisWords.length) {
+					throw new EDAException("Lost token annotations");
+				}
+
+				double overlap = ((double) covered) / hypothesisWords.length;
+				DecisionLabel label = (overlap >= threshold) ? DecisionLabel.Entailment : DecisionLabel.NonEntailment;
+				return new MetaTEDecision(label, Math.abs(overlap - threshold), null);
+			}
+			catch (EDAException e) {
+				throw e;
+			}
+			catch (Exception e) {
+				throw new EDAException("Failed to process the pair", e);
+			}
+		}
+
+		@Override
+		public void shutdown() {
+		}
+
+		@Override
+		public void startTraining(CommonConfig c) throws ConfigurationException, EDAException, ComponentException {
+		}
+
+		private final double threshold;
+	}
+
+	private static final int PAIRS = 40;
+	private static final int MEMBERS = 4;
+	private static final String TEXT_VIEW = "TextView";
+	private static final String HYPOTHESIS_VIEW = "HypothesisView";
+	private static final String[] TEXTS = {
+		"The cat sat on the mat near the door",
+		"A man is playing a guitar on the stage",
+		"The company reported higher profits this year",
+	};
+	private static final String[] HYPOTHESES = {
+		"The cat sat on the mat",
+		"A woman is singing a song",
+		"The company reported losses",
+		"A man is playing",
+	};
+}
@@ -0,0 +1,126 @@
+package eu.excitementproject.eop.lap;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+import org.apache.uima.jcas.JCas;
+
+/**
+ * Reads the CASes of a container file written by {@link CASContainerWriter}. The index
+ * of the container is read when the reader is opened; then any CAS can be read by its
+ * position. read() can be called by many threads at the same time.
+ */
+public class CASContainerReader {
+
+	/**
+	 * @param containerFile the container file
+	 * @throws LAPException if the file can't be read, or is not a container file
+	 */
+	public CASContainerReader(File containerFile) throws LAPException
+	{
+		this.containerFile = containerFile;
+		try {
+			this.file = new RandomAccessFile(containerFile, "r");
+		} catch (FileNotFoundException e) {
+			throw new LAPException("No such container file", e);
+		}
+		this.channel = file.getChannel();
+
+		try {
+			byte[] magic = new byte[CASContainerWriter.MAGIC.length];
+			file.readFully(magic);
+			if (!Arrays.equals(magic, CASContainerWriter.MAGIC))
+				throw new LAPException(containerFile.getName() + " is not a container of CASes");
+			int version = file.readInt();
+			if (version != CASContainerWriter.VERSION)
+				throw new LAPException("Unsupported version of the container file " + containerFile.getName() + ": " + version);
+
+			// the offset of the index is at the end of the file
+			file.seek(file.length() - 8);
+			file.seek(file.readLong());
+			int size = file.readInt();
+			this.ids = new String[size];
+			this.offsets = new long[size];
+			this.lengths = new int[size];
+			for (int i = 0; i < size; i++)
+			{
+				ids[i] = file.readUTF();
+				offsets[i] = file.readLong();
+				lengths[i] = file.readInt();
+			}
+		} catch (IOException e) {
+			close();
+			throw new LAPException("Failed to read the index of the container file " + containerFile.getName(), e);
+		} catch (LAPException e) {
+			close();
+			throw e;
+		}
+	}
+
+	/**
+	 * @return the number of CASes in the container
+	 */
+	public int size()
+	{
+		return ids.length;
+	}
+
+	/**
+	 * @param index the position of the CAS in the container
+	 * @return the ID of the CAS (e.g. the pair ID)
+	 */
+	public String getId(int index)
+	{
+		return ids[index];
+	}
+
+	/**
+	 * Reads a CAS of the container into the given (empty) JCas.
+	 *
+	 * @param index the position of the CAS in the container
+	 * @param aJCas the JCas that will hold the CAS
+	 * @throws LAPException
+	 */
+	public void read(int index, JCas aJCas) throws LAPException
+	{
+		ByteBuffer buffer = ByteBuffer.allocate(lengths[index]);
+		try {
+			// positional reads don't change the position of the channel, so they can be concurrent
+			long position = offsets[index];
+			while (buffer.hasRemaining())
+			{
+				int n = channel.read(buffer, position);
+				if (n < 0)
+					throw new LAPException("The container file " + containerFile.getName() + " is truncated");
+				position += n;
+			}
+		} catch (IOException e) {
+			throw new LAPException("I/O error while reading the container file " + containerFile.getName(), e);
+		}
+		CASSerialization.deserializeBinary(buffer.array(), aJCas);
+	}
+
+	/**
+	 * Closes the container file.
+	 */
+	public void close()
+	{
+		try {
+			file.close();
+		} catch (IOException e) {
+			// nothing to do: the file was only read
+		}
+	}
+
+	private final File containerFile;
+	private final RandomAccessFile file;
+	private final FileChannel channel;
+	private String[] ids;
+	private long[] offsets;
+	private int[] lengths;
+}
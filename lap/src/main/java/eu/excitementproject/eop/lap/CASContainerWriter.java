@@ -0,0 +1,126 @@
+package eu.excitementproject.eop.lap;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.uima.jcas.JCas;
+
+/**
+ * Writes the CASes of many pairs into a single container file, so that a whole dataset
+ * is read back with one sequential read (see {@link CASContainerReader}).
+ *
+ * <P>
+ * The layout of the file is:
+ * <LI> the header: the 4 magic bytes "EOPC", and the format version (int)
+ * <LI> the binary CASes (see CASSerialization.serializeBinary()), one after the other
+ * <LI> the index: the number of CASes (int), then for each CAS its ID (UTF), offset (long) and length (int)
+ * <LI> the offset of the index (long)
+ */
+public class CASContainerWriter {
+
+	/**
+	 * @param containerFile the file to write (it is overwritten)
+	 * @throws LAPException
+	 */
+	public CASContainerWriter(File containerFile) throws LAPException
+	{
+		this.containerFile = containerFile;
+		try {
+			this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(containerFile)));
+		} catch (FileNotFoundException e) {
+			throw new LAPException("Unable to create/open the file" + containerFile.toString(), e);
+		}
+		try {
+			out.write(MAGIC);
+			out.writeInt(VERSION);
+		} catch (IOException e) {
+			closeQuietly();
+			throw new LAPException("Unable to write the file" + containerFile.toString(), e);
+		}
+		this.offset = MAGIC.length + 4;
+		this.ids = new ArrayList<String>();
+		this.offsets = new ArrayList<Long>();
+		this.lengths = new ArrayList<Integer>();
+	}
+
+	/**
+	 * Appends a CAS to the container.
+	 *
+	 * @param id the ID of the CAS (e.g. the pair ID), can be null
+	 * @param aJCas the CAS
+	 * @throws LAPException
+	 */
+	public void add(String id, JCas aJCas) throws LAPException
+	{
+		add(id, CASSerialization.serializeBinary(aJCas));
+	}
+
+	/**
+	 * Appends a CAS that is already serialized to the container.
+	 *
+	 * @param id the ID of the CAS (e.g. the pair ID), can be null
+	 * @param bytes the binary serialization of the CAS (see CASSerialization.serializeBinary())
+	 * @throws LAPException
+	 */
+	public void add(String id, byte[] bytes) throws LAPException
+	{
+		try {
+			out.write(bytes);
+		} catch (IOException e) {
+			throw new LAPException("Unable to write the file" + containerFile.toString(), e);
+		}
+		ids.add(id == null ? "" : id);
+		offsets.add(offset);
+		lengths.add(bytes.length);
+		offset += bytes.length;
+	}
+
+	/**
+	 * Writes the index and closes the file. The container can't be read before this call.
+	 *
+	 * @throws LAPException
+	 */
+	public void close() throws LAPException
+	{
+		try {
+			long indexOffset = offset;
+			out.writeInt(ids.size());
+			for (int i = 0; i < ids.size(); i++)
+			{
+				out.writeUTF(ids.get(i));
+				out.writeLong(offsets.get(i));
+				out.writeInt(lengths.get(i));
+			}
+			out.writeLong(indexOffset);
+			out.close();
+		} catch (IOException e) {
+			closeQuietly();
+			throw new LAPException("Unable to access/close the file" + containerFile.toString(), e);
+		}
+	}
+
+	private void closeQuietly()
+	{
+		try {
+			out.close();
+		} catch (IOException e) {
+			// the original exception is reported by the caller
+		}
+	}
+
+	static final byte[] MAGIC = { 'E', 'O', 'P', 'C' };
+	static final int VERSION = 1;
+
+	private final File containerFile;
+	private final DataOutputStream out;
+	private long offset;
+	private final List<String> ids;
+	private final List<Long> offsets;
+	private final List<Integer> lengths;
+}
@@ -0,0 +1,33 @@
+package eu.excitementproject.eop.lap;
+
+/**
+ * The formats, in which LAP_ImplBase.processRawInputFormat() can write the CASes
+ * of the pairs. All of them can be read back with PlatformCASProber.probeXmi()
+ * (that detects the format from the file content), or
+ * PlatformCASProber.probeXmiDirectory().
+ *
+ * <LI> XMI: one XMI file per pair (the default, human-readable format).
+ * <LI> BINARY: one binary CAS file per pair. Much faster to read than XMI.
+ * <LI> CONTAINER: a single file that holds the binary CASes of all the pairs,
+ * followed by an index of their offsets (see {@link CASContainerWriter}).
+ */
+public enum CASSerialFormat {
+	XMI(".xmi"),
+	BINARY(".bcas"),
+	CONTAINER(".bcasc");
+
+	private CASSerialFormat(String fileExtension)
+	{
+		this.fileExtension = fileExtension;
+	}
+
+	/**
+	 * @return the extension of the files written in this format (with the dot)
+	 */
+	public String getFileExtension()
+	{
+		return fileExtension;
+	}
+
+	private final String fileExtension;
+}
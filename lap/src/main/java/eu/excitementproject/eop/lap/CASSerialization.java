@@ -0,0 +1,162 @@
+package eu.excitementproject.eop.lap;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import org.apache.uima.cas.impl.Serialization;
+import org.apache.uima.cas.impl.XmiCasDeserializer;
+import org.apache.uima.cas.impl.XmiCasSerializer;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.util.XMLSerializer;
+import org.xml.sax.SAXException;
+
+/**
+ * Static methods that write and read the CAS files of the formats of {@link CASSerialFormat}.
+ * The binary format is the binary serialization of UIMA (Serialization.serializeCAS(), which is
+ * available in uimaj-core 2.4.0). When reading, the format is detected from the first bytes of the
+ * file (and not from its extension).
+ */
+public final class CASSerialization {
+
+	private CASSerialization()
+	{
+	}
+
+	/**
+	 * Writes the CAS into a file, as XMI or as binary CAS.
+	 *
+	 * @param aJCas the CAS
+	 * @param outFile the file to write
+	 * @param format XMI or BINARY (CONTAINER files are written with {@link CASContainerWriter})
+	 * @throws LAPException
+	 */
+	public static void serialize(JCas aJCas, File outFile, CASSerialFormat format) throws LAPException
+	{
+		if (format == CASSerialFormat.CONTAINER)
+			throw new LAPException("Container files must be written with CASContainerWriter");
+
+		try (OutputStream out = new BufferedOutputStream(new FileOutputStream(outFile))) {
+			if (format == CASSerialFormat.XMI)
+			{
+				XmiCasSerializer ser = new XmiCasSerializer(aJCas.getTypeSystem());
+				XMLSerializer xmlSer = new XMLSerializer(out, false);
+				ser.serialize(aJCas.getCas(), xmlSer.getContentHandler());
+			}
+			else
+			{
+				out.write(serializeBinary(aJCas));
+			}
+		} catch (FileNotFoundException e) {
+			throw new LAPException("Unable to create/open the file" + outFile.toString(), e);
+		} catch (SAXException e) {
+			throw new LAPException("Failed to serialize the CAS into XML", e);
+		} catch (IOException e) {
+			throw new LAPException("Unable to access/close the file" + outFile.toString(), e);
+		}
+	}
+
+	/**
+	 * @param aJCas the CAS
+	 * @return the binary serialization of the CAS
+	 * @throws LAPException
+	 */
+	public static byte[] serializeBinary(JCas aJCas) throws LAPException
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try {
+			Serialization.serializeCAS(aJCas.getCas(), bytes);
+		} catch (Exception e) {
+			throw new LAPException("Failed to serialize the CAS into binary format", e);
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Reads a CAS written by serializeBinary() into the given (empty) JCas.
+	 *
+	 * @param bytes the binary serialization of the CAS
+	 * @param aJCas the JCas that will hold the CAS
+	 * @throws LAPException
+	 */
+	public static void deserializeBinary(byte[] bytes, JCas aJCas) throws LAPException
+	{
+		try {
+			Serialization.deserializeCAS(aJCas.getCas(), new ByteArrayInputStream(bytes));
+		} catch (Exception e) {
+			throw new LAPException("Failed to deserialize the binary CAS", e);
+		}
+	}
+
+	/**
+	 * Reads an XMI file or a binary CAS file into the given (empty) JCas.
+	 * The format is detected from the content of the file.
+	 *
+	 * @param inFile the file
+	 * @param aJCas the JCas that will hold the CAS
+	 * @throws LAPException if the file can't be read, or if it is a container file
+	 */
+	public static void deserialize(File inFile, JCas aJCas) throws LAPException
+	{
+		CASSerialFormat format = detectFormat(inFile);
+		if (format == CASSerialFormat.CONTAINER)
+			throw new LAPException(inFile.getName() + " is a container of CASes: read it with CASContainerReader");
+
+		try (InputStream in = new BufferedInputStream(new FileInputStream(inFile))) {
+			if (format == CASSerialFormat.XMI)
+				XmiCasDeserializer.deserialize(in, aJCas.getCas());
+			else
+				Serialization.deserializeCAS(aJCas.getCas(), in);
+		} catch (FileNotFoundException e) {
+			throw new LAPException("No such CAS file", e);
+		} catch (SAXException e) {
+			throw new LAPException("Failed to parse the XMI file", e);
+		} catch (IOException e) {
+			throw new LAPException("I/O error while reading the CAS file", e);
+		} catch (RuntimeException e) {
+			// UIMA reports corrupted binary CASes with CASRuntimeException
+			throw new LAPException("Failed to deserialize the CAS file " + inFile.getName(), e);
+		}
+	}
+
+	/**
+	 * Detects the format of a CAS file from its first bytes.
+	 *
+	 * @param inFile the file
+	 * @return the format of the file (XMI if it is neither a binary CAS nor a container)
+	 * @throws LAPException
+	 */
+	public static CASSerialFormat detectFormat(File inFile) throws LAPException
+	{
+		byte[] head = new byte[4];
+		int read = 0;
+		try (InputStream in = new FileInputStream(inFile)) {
+			int n;
+			while (read < head.length && (n = in.read(head, read, head.length - read)) > 0)
+				read += n;
+		} catch (FileNotFoundException e) {
+			throw new LAPException("No such CAS file", e);
+		} catch (IOException e) {
+			throw new LAPException("I/O error while reading the CAS file", e);
+		}
+
+		if (read == head.length && Arrays.equals(head, CASContainerWriter.MAGIC))
+			return CASSerialFormat.CONTAINER;
+		if (read == head.length && (Arrays.equals(head, UIMA_BINARY_MAGIC) || Arrays.equals(head, UIMA_BINARY_MAGIC_LITTLE_ENDIAN)))
+			return CASSerialFormat.BINARY;
+		return CASSerialFormat.XMI;
+	}
+
+	// every binary serialization of UIMA starts with these bytes
+	private static final byte[] UIMA_BINARY_MAGIC = { 'U', 'I', 'M', 'A' };
+	private static final byte[] UIMA_BINARY_MAGIC_LITTLE_ENDIAN = { 'A', 'M', 'I', 'U' };
+}
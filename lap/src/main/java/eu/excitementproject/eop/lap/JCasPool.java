@@ -0,0 +1,94 @@
+package eu.excitementproject.eop.lap;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.apache.uima.jcas.JCas;
+
+/**
+ * A thread-safe pool of JCases, that have the type system of the EXCITEMENT 
+ * platform (see {@link PlatformCASProber#newJCas()}). Making a new JCas is a 
+ * costly operation: processing many pairs, borrow a JCas from the pool, use it 
+ * (e.g. with PlatformCASProber.probeXmi(File, PrintStream, JCas)) and release it. 
+ * 
+ * <P>
+ * The JCases are created when needed, up to the capacity of the pool; when all of 
+ * them are in use, borrow() waits until one is released. A released JCas is reset. 
+ */
+public class JCasPool {
+
+	/**
+	 * @param capacity the maximum number of JCases of the pool 
+	 */
+	public JCasPool(int capacity)
+	{
+		if (capacity < 1)
+			throw new IllegalArgumentException("The capacity of the JCas pool must be positive"); 
+		this.capacity = capacity; 
+		this.freeJCases = new LinkedBlockingQueue<JCas>(capacity); 
+		this.created = 0; 
+	}
+	
+	/**
+	 * Borrows an empty JCas from the pool, waiting if all the JCases are in use. 
+	 * The JCas must be given back with release(). 
+	 * 
+	 * @return the JCas
+	 * @throws LAPException if the JCas can't be created, or the thread was interrupted while waiting
+	 */
+	public JCas borrow() throws LAPException
+	{
+		JCas aJCas = freeJCases.poll(); 
+		if (aJCas != null)
+			return aJCas; 
+		
+		synchronized(this)
+		{
+			if (created < capacity)
+			{
+				created++; 
+				try {
+					return PlatformCASProber.newJCas(); 
+				}
+				catch (LAPException e)
+				{
+					created--; 
+					throw e; 
+				}
+			}
+		}
+		
+		try {
+			return freeJCases.take(); 
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt(); 
+			throw new LAPException("Interrupted while waiting for a JCas of the pool", e); 
+		}
+	}
+	
+	/**
+	 * Gives back to the pool a JCas borrowed with borrow(). The JCas is reset, so 
+	 * it must not be used after this call. 
+	 * 
+	 * @param aJCas the JCas
+	 */
+	public void release(JCas aJCas)
+	{
+		aJCas.reset(); 
+		freeJCases.offer(aJCas); 
+	}
+	
+	/**
+	 * @return the maximum number of JCases of the pool
+	 */
+	public int getCapacity()
+	{
+		return capacity; 
+	}
+	
+	private final int capacity; 
+	private final BlockingQueue<JCas> freeJCases; 
+	private int created; 
+}
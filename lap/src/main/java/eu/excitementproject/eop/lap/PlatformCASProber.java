@@ -216,13 +216,15 @@ public class PlatformCASProber {
 	/**
 	 * Reads in an XMI file, deserialize the file, and does 
 	 * probeCAS() on it. See probeCAS() for argument meaning and behavior. 
+	 * (A binary CAS file is also accepted, see {@link CASSerialFormat}.) 
      * 
 	 * Note that this static method returns the resulting JCas. So it is possible 
 	 * to use this as a XMI reader, (with aOut null), which will check the format, and 
 	 * does a sanity check, and returns the CAS to you ... 
 	 *  (If you process more than single XMI, this is bad strategy --- in terms of efficiency, 
 	 *  this method generates a new JCas every time it is called. It is a costly operation (making  
-	 *  a new JCas). and not efficient. ) 
+	 *  a new JCas). Use probeXmi(File, PrintStream, JCas) with a JCas borrowed from a 
+	 *  {@link JCasPool}, or probeXmiDirectory(), instead.) 
 	 *  
 	 * @param xmiFile
 	 * @param aOut
@@ -230,45 +232,143 @@ public class PlatformCASProber {
 	 * @throws LAPException
 	 */
 	public static JCas probeXmi(File xmiFile, PrintStream aOut) throws LAPException
+	{
+		JCas aJCas = newJCas(); 
+		probeXmi(xmiFile, aOut, aJCas); 
+		return aJCas; 
+	}
+	
+	/**
+	 * Same as probeXmi(File, PrintStream), but the XMI file is deserialized into the given 
+	 * JCas, (e.g. one borrowed from a {@link JCasPool}) instead of a new one. The JCas is 
+	 * reset before the deserialization. 
+	 * <P>
+	 * The file can also be a binary CAS file, written by processRawInputFormat() 
+	 * with {@link CASSerialFormat#BINARY}: the format is detected from the content of the file. 
+	 * 
+	 * @param xmiFile
+	 * @param aOut
+	 * @param aJCas the JCas that will hold the content of the XMI file. 
+	 * @throws LAPException
+	 */
+	public static void probeXmi(File xmiFile, PrintStream aOut, JCas aJCas) throws LAPException
 	{
 		//
 		// 1. deserialize the XMI file 
-		JCas aJCas = null; 
-		try {			
-			// prepare AE that has the type system, and get JCas 	
-			InputStream s = PlatformCASProber.class.getResourceAsStream("/desc/DummyAE.xml"); // This AE does nothing, but holding all types. 
-			XMLInputSource in = new XMLInputSource(s, null);
-			//XMLInputSource in = new XMLInputSource("./src/main/resources/desc/DummyAE.xml");  
-			ResourceSpecifier specifier = UIMAFramework.getXMLParser().parseResourceSpecifier(in);		
-			AnalysisEngine ae = UIMAFramework.produceAnalysisEngine(specifier); 
-
-			aJCas = ae.newJCas(); 
-		}
-//		catch (IOException e) {
-//			throw new LAPException("Unable to open the AE descriptor file", e); 
-//		}
-		catch (InvalidXMLException e) {
-			throw new LAPException("Invalid XML descriptor for AE", e); 
-		} catch (ResourceInitializationException e) {
-			throw new LAPException("Failed to produce the AE for typesystem", e); 
+		aJCas.reset(); 
+		if (CASSerialization.detectFormat(xmiFile) != CASSerialFormat.XMI)
+		{
+			// a binary CAS file (or a container, which is refused) 
+			CASSerialization.deserialize(xmiFile, aJCas); 
 		}
-		
-		try {	
-			//Load the XMI to the JCas 
-			FileInputStream inputStream = new FileInputStream(xmiFile);
-			XmiCasDeserializer.deserialize(inputStream, aJCas.getCas()); 
-			inputStream.close();
-		} catch (FileNotFoundException e) {
-			throw new LAPException("No such XMI file", e); 
-		} catch (SAXException e) {
-			throw new LAPException("XMI file failed to parse as XML. Corrupted file?", e);
-		} catch (IOException e) {
-			throw new LAPException("Unable to access the XMI file",e); 
+		else
+		{
+			try {	
+				//Load the XMI to the JCas 
+				FileInputStream inputStream = new FileInputStream(xmiFile);
+				try {
+					XmiCasDeserializer.deserialize(inputStream, aJCas.getCas()); 
+				}
+				finally {
+					inputStream.close();
+				}
+			} catch (FileNotFoundException e) {
+				throw new LAPException("No such XMI file", e); 
+			} catch (SAXException e) {
+				throw new LAPException("XMI file failed to parse as XML. Corrupted file?", e);
+			} catch (IOException e) {
+				throw new LAPException("Unable to access the XMI file",e); 
+			}
 		}
 		
 		// 2. run probeCas with it 
 		probeCas(aJCas, aOut); 
-		return aJCas; 
+	}
+	
+	/**
+	 * Reads in all the XMI files (files with .xmi extension) of a directory, in the order of 
+	 * File.listFiles(). The files are deserialized in parallel by the given number of threads, 
+	 * into JCases borrowed from the given pool, and probeCAS() is done on each of them. 
+	 * <P>
+	 * The returned iterator streams the JCases: the JCas returned by its next() is valid until 
+	 * the following call of next() (or close()), when it goes back to the pool. So, don't keep 
+	 * the references of the returned JCases. The pool capacity must be larger than the number 
+	 * of threads. 
+	 * <P>
+	 * The binary CAS files (.bcas) of the directory are read too. xmiDir can also be 
+	 * a container file (see {@link CASSerialFormat#CONTAINER}): then, its CASes are read. 
+	 * 
+	 * @param xmiDir the directory with the XMI files, or a container file
+	 * @param aOut
+	 * @param pool the pool the JCases are borrowed from
+	 * @param threads the number of threads that deserialize the files 
+	 * @return the iterator over the JCases of the XMI files 
+	 * @throws LAPException
+	 */
+	public static XmiDirectoryIterator probeXmiDirectory(File xmiDir, PrintStream aOut, JCasPool pool, int threads) throws LAPException
+	{
+		return new XmiDirectoryIterator(xmiDir, aOut, pool, threads); 
+	}
+	
+	/**
+	 * Same as probeXmiDirectory(File, PrintStream, JCasPool, int), with as many threads as the 
+	 * available processors, and a new JCas pool of its own. The pool is sized to the JCases the 
+	 * iterator holds at once (one per thread, plus the one returned by next()), so the 
+	 * iterator never waits for JCases held by another iterator. 
+	 * 
+	 * @param xmiDir the directory with the XMI files, or a container file
+	 * @param aOut
+	 * @return the iterator over the JCases of the XMI files 
+	 * @throws LAPException
+	 */
+	public static XmiDirectoryIterator probeXmiDirectory(File xmiDir, PrintStream aOut) throws LAPException
+	{
+		int threads = Runtime.getRuntime().availableProcessors(); 
+		return probeXmiDirectory(xmiDir, aOut, new JCasPool(threads + 1), threads); 
+	}
+	
+	/**
+	 * Returns a new, empty JCas that knows all the types of the EXCITEMENT platform. 
+	 * The type system is read only once (at the first call); it is then cached. 
+	 * 
+	 * @return the new JCas
+	 * @throws LAPException
+	 */
+	public static JCas newJCas() throws LAPException
+	{
+		try {
+			return getTypeSystemAE().newJCas(); 
+		} catch (ResourceInitializationException e) {
+			throw new LAPException("Failed to produce a JCas with the typesystem", e); 
+		}
+	}
+	
+	/**
+	 * Returns the AE that holds the type system (the AE does nothing). It is produced 
+	 * only once, from /desc/DummyAE.xml. 
+	 * 
+	 * @return the AE
+	 * @throws LAPException
+	 */
+	private static synchronized AnalysisEngine getTypeSystemAE() throws LAPException
+	{
+		if (typeSystemAE == null)
+		{
+			try {			
+				// prepare AE that has the type system 	
+				InputStream s = PlatformCASProber.class.getResourceAsStream("/desc/DummyAE.xml"); // This AE does nothing, but holding all types. 
+				XMLInputSource in = new XMLInputSource(s, null);
+				//XMLInputSource in = new XMLInputSource("./src/main/resources/desc/DummyAE.xml");  
+				ResourceSpecifier specifier = UIMAFramework.getXMLParser().parseResourceSpecifier(in);		
+				typeSystemAE = UIMAFramework.produceAnalysisEngine(specifier); 
+			}
+			catch (InvalidXMLException e) {
+				throw new LAPException("Invalid XML descriptor for AE", e); 
+			} catch (ResourceInitializationException e) {
+				throw new LAPException("Failed to produce the AE for typesystem", e); 
+			}
+		}
+		return typeSystemAE; 
 	}
 	
 	/**
@@ -369,6 +469,9 @@ public class PlatformCASProber {
 		
 	private static final String TVIEW = "TextView";
 	private static final String HVIEW = "HypothesisView"; 
+	
+	// the AE holding the type system; created at first use 
+	private static AnalysisEngine typeSystemAE = null; 
 
 	
 	//
@@ -0,0 +1,204 @@
+package eu.excitementproject.eop.lap;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.uima.jcas.JCas;
+
+/**
+ * Iterates over the XMI files (files with .xmi extension) of a directory, 
+ * returning their JCases in the order of File.listFiles(). The files are 
+ * deserialized (and probed) in advance, in parallel, into JCases borrowed from 
+ * a {@link JCasPool}. See PlatformCASProber.probeXmiDirectory(). 
+ * 
+ * <P>
+ * The binary CAS files (.bcas) of the directory are also returned. 
+ * If the given file is a container of CASes (see {@link CASContainerReader}) 
+ * instead of a directory, the iterator returns the CASes of the container. 
+ * 
+ * <P>
+ * The JCas returned by next() is valid until the following call of next() or 
+ * close(): it is then given back to the pool. close() must be called if the 
+ * iteration is stopped before its end. 
+ */
+public class XmiDirectoryIterator {
+
+	XmiDirectoryIterator(File xmiDir, PrintStream aOut, JCasPool pool, int threads) throws LAPException
+	{
+		if (threads < 1 || threads >= pool.getCapacity())
+			throw new LAPException("The number of threads (" + threads + ") must be positive and smaller than the capacity of the JCas pool (" + pool.getCapacity() + ")"); 
+		
+		if (xmiDir.isFile() && CASSerialization.detectFormat(xmiDir) == CASSerialFormat.CONTAINER)
+		{
+			this.container = new CASContainerReader(xmiDir); 
+			this.xmiFiles = null; 
+		}
+		else if (xmiDir.isDirectory())
+		{
+			this.container = null; 
+			this.xmiFiles = new ArrayList<File>(); 
+			for (File file : xmiDir.listFiles())
+			{
+				if (file.getName().endsWith(CASSerialFormat.XMI.getFileExtension()) || file.getName().endsWith(CASSerialFormat.BINARY.getFileExtension()))
+					xmiFiles.add(file); 
+			}
+		}
+		else
+			throw new LAPException("No such directory or container file: " + xmiDir.getAbsolutePath()); 
+		
+		this.aOut = aOut; 
+		this.pool = pool; 
+		this.nextFileToSubmit = 0; 
+		this.pending = new LinkedList<Future<JCas>>(); 
+		this.current = null; 
+		this.executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) 
+			{
+				// the reading threads must not keep the JVM alive
+				Thread thread = new Thread(r, "xmi-reader"); 
+				thread.setDaemon(true); 
+				return thread; 
+			}
+		}); 
+		
+		// keep all the threads busy 
+		for (int i = 0; i < threads; i++)
+			submitNextFile(); 
+	}
+	
+	/**
+	 * @return the number of XMI files in the directory (or CASes in the container) 
+	 */
+	public int size()
+	{
+		return container != null ? container.size() : xmiFiles.size(); 
+	}
+	
+	/**
+	 * @return true if there are more JCases
+	 */
+	public boolean hasNext()
+	{
+		return !pending.isEmpty(); 
+	}
+	
+	/**
+	 * Returns the JCas of the next XMI file. The JCas returned by the previous 
+	 * call goes back to the pool. 
+	 * 
+	 * @return the JCas
+	 * @throws LAPException if the XMI file can't be read or doesn't pass probeCas() 
+	 */
+	public JCas next() throws LAPException
+	{
+		releaseCurrent(); 
+		
+		if (pending.isEmpty())
+			throw new LAPException("No more XMI files"); 
+		
+		Future<JCas> future = pending.removeFirst(); 
+		submitNextFile(); 
+		try {
+			current = future.get(); 
+		}
+		catch (InterruptedException e) 
+		{
+			Thread.currentThread().interrupt(); 
+			close(); 
+			throw new LAPException("Interrupted while reading the XMI files", e); 
+		}
+		catch (ExecutionException e) 
+		{
+			close(); 
+			if (e.getCause() instanceof LAPException)
+				throw (LAPException) e.getCause(); 
+			throw new LAPException("Failed to read the XMI file", e.getCause()); 
+		}
+		
+		if (pending.isEmpty())
+			executor.shutdown(); 
+		
+		return current; 
+	}
+	
+	/**
+	 * Stops the iteration, and gives back all the JCases to the pool.
+	 */
+	public void close()
+	{
+		releaseCurrent(); 
+		executor.shutdown(); 
+		for (Future<JCas> future : pending)
+		{
+			try {
+				pool.release(future.get()); 
+			}
+			catch (Exception e) 
+			{
+				// the JCas has already been given back by the failed task 
+			}
+		}
+		pending.clear(); 
+		if (container != null)
+			container.close(); 
+	}
+	
+	private void releaseCurrent()
+	{
+		if (current != null)
+		{
+			pool.release(current); 
+			current = null; 
+		}
+	}
+	
+	private void submitNextFile()
+	{
+		if (nextFileToSubmit >= size())
+			return; 
+		
+		final int index = nextFileToSubmit++; 
+		pending.addLast(executor.submit(new Callable<JCas>() {
+			@Override
+			public JCas call() throws LAPException 
+			{
+				JCas aJCas = pool.borrow(); 
+				try {
+					if (container != null)
+					{
+						container.read(index, aJCas); 
+						PlatformCASProber.probeCas(aJCas, aOut); 
+					}
+					else
+						PlatformCASProber.probeXmi(xmiFiles.get(index), aOut, aJCas); 
+				}
+				catch (LAPException e)
+				{
+					pool.release(aJCas); 
+					String name = container != null ? container.getId(index) : xmiFiles.get(index).getName(); 
+					throw new LAPException("Failed to read " + name + ": " + e.getMessage(), e); 
+				}
+				return aJCas; 
+			}
+		})); 
+	}
+	
+	private final PrintStream aOut; 
+	private final JCasPool pool; 
+	private final List<File> xmiFiles; 
+	private final CASContainerReader container; 
+	private int nextFileToSubmit; 
+	private final LinkedList<Future<JCas>> pending; 
+	private JCas current; 
+	private final ExecutorService executor; 
+}
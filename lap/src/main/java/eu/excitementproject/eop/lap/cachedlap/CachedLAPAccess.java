@@ -2,6 +2,9 @@ package eu.excitementproject.eop.lap.cachedlap;
 
 import java.io.File;
 import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 
 import org.apache.log4j.Logger;
 import org.apache.uima.UIMAFramework;
@@ -17,11 +20,13 @@ import eu.excitement.type.entailment.EntailmentMetadata;
 import eu.excitement.type.entailment.Hypothesis;
 import eu.excitement.type.entailment.Pair;
 import eu.excitement.type.entailment.Text;
+import eu.excitementproject.eop.lap.CASSerialFormat;
+import eu.excitementproject.eop.lap.CASSerialization;
 import eu.excitementproject.eop.lap.LAPAccess;
 import eu.excitementproject.eop.lap.LAPException;
 import eu.excitementproject.eop.lap.implbase.LAP_ImplBase;
 //import eu.excitementproject.tl.laputils.CASUtils;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 //import java.util.Iterator;
 import java.util.Map;
 
@@ -51,6 +56,12 @@ import org.apache.uima.util.XMLInputSource;
  * part of LAPAccess interface. This methods gets one CAS, and uses that CAS to annotate,
  * and this reduces the time needed to generate a new CAS.
  *
+ * The cache has two tiers. The in-memory tier keeps the annotated CASes of the most recently
+ * used strings, up to a given capacity (least recently used ones are evicted). The optional
+ * on-disk tier keeps the binary CASes of all annotated strings in a directory,
+ * keyed by a hash of the LAP (class, instance and the given configuration), the language and
+ * the string. It survives restarts: repeated runs over the same strings skip the LAP entirely.
+ *
  * @author Tae-Gil Noh
  *
  */
@@ -58,8 +69,30 @@ public class CachedLAPAccess implements LAPAccess {
 
 	public JCas workJCas;
 
+	/**
+	 * A cached LAP with an in-memory cache of DEFAULT_CAPACITY strings, and no on-disk cache.
+	 *
+	 * @param underlyingLAP the LAP that annotates the strings that are not in cache
+	 * @throws LAPException
+	 */
 	public CachedLAPAccess(LAPAccess underlyingLAP) throws LAPException
 	{
+		this(underlyingLAP, DEFAULT_CAPACITY, null, null);
+	}
+
+	/**
+	 * @param underlyingLAP the LAP that annotates the strings that are not in cache
+	 * @param capacity the maximum number of strings whose CASes are kept in memory
+	 * @param diskCacheDir the directory of the on-disk cache, or null for no on-disk cache
+	 * @param lapConfiguration anything that distinguishes the configuration of the underlying LAP
+	 * (e.g. the models it loads) from other configurations of the same LAP class, that may share
+	 * the on-disk cache directory. Can be null.
+	 * @throws LAPException
+	 */
+	public CachedLAPAccess(LAPAccess underlyingLAP, int capacity, File diskCacheDir, String lapConfiguration) throws LAPException
+	{
+		if (capacity < 1)
+			throw new LAPException("The capacity of the cache must be positive");
 		// setting up the AE for type system
 		// note that you need at least one AE to get a JCAS. (valina UIMA)
 		try {
@@ -80,15 +113,31 @@ public class CachedLAPAccess implements LAPAccess {
 
 		// setting basic
 		this.underlyingLAP = underlyingLAP;
-		this.textviewCache = new HashMap<String, JCas>();
-		this.hypoviewCache = new HashMap<String, JCas>();
-		this.receivedCall = 0;
-		this.actualCall = 0;
+		this.capacity = capacity;
+		// access ordered: the eldest entry is the least recently used one
+		this.cache = new LinkedHashMap<String, JCas>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, JCas> eldest)
+			{
+				if (size() <= CachedLAPAccess.this.capacity)
+					return false;
+				evictionCount++;
+				// the CAS of the evicted entry is reused for the next string
+				spareJCas = eldest.getValue();
+				return true;
+			}
+		};
+		this.diskCacheDir = diskCacheDir;
+		this.hitCount = 0;
+		this.diskHitCount = 0;
+		this.missCount = 0;
+		this.evictionCount = 0;
 		theLogger = Logger.getLogger("eu.excitementproject.tl.laputils.CachedLAPAccess");
 
 		// make a call and get language ID (loading models also...)
 		JCas test = underlyingLAP.generateSingleTHPairCAS("This is a text.", "This is a hypothesis.");
-		actualCall++;
 
 		try {
 			this.languageId = test.getView(LAP_ImplBase.TEXTVIEW).getDocumentLanguage();
@@ -106,6 +155,12 @@ public class CachedLAPAccess implements LAPAccess {
 		// initialize our working CAS
 		workJCas = createNewJCas(); 
 
+		if (diskCacheDir != null)
+		{
+			if (!diskCacheDir.isDirectory() && !diskCacheDir.mkdirs())
+				throw new LAPException("Unable to create the cache directory " + diskCacheDir.getAbsolutePath());
+			this.keyPrefix = underlyingLAP.getClass().getName() + "\n" + underlyingLAP.getInstanceName() + "\n" + lapConfiguration + "\n" + languageId + "\n";
+		}
 	}
 
 	//
@@ -146,29 +201,13 @@ public class CachedLAPAccess implements LAPAccess {
 		// reset the CAS (clears all)
 		aJCas.reset();
 
-		receivedCall ++; // for checking number of saved calls to underlying LAP
-
-		// if we don't have the cache for text input and/or hypothesis input
-		// First we fill the cache with them.
-
-		// if text is not in cache;
-		if (!textviewCache.containsKey(text))
-		{
-			// we make a cached CAS that holds both views
-			// that has "text", and put it in the both cache.
-			JCas aCacheJCas = createNewJCas(); 
-			prepareCacheContent(aCacheJCas, text);
-			textviewCache.put(text, aCacheJCas);
-			hypoviewCache.put(text, aCacheJCas);
-		}
-
-		if (!hypoviewCache.containsKey(hypothesis))
-		{
-			JCas aCacheJCas = createNewJCas(); 
-			prepareCacheContent(aCacheJCas, hypothesis);
-			textviewCache.put(hypothesis, aCacheJCas);
-			hypoviewCache.put(hypothesis, aCacheJCas);
-		}
+		// get the cached CASes of text and hypothesis (filling the cache if needed).
+		// the cached CAS of a string holds both views, so it serves as text and as hypothesis.
+		// (getting the hypothesis may evict the text when capacity is 1. This is safe: the evicted
+		// CAS only becomes the spare CAS, which is not reset before the next miss, and so the text
+		// CAS stays intact until it is copied below.)
+		CAS textCas = getCachedJCas(text).getCas();
+		CAS hypoCas = getCachedJCas(hypothesis).getCas();
 
 		// // note that we simply put both text/string on both cache.
 		// // assuming that text will be used as hypothesis on some other cases
@@ -192,8 +231,6 @@ public class CachedLAPAccess implements LAPAccess {
 		// Okay. we are fully sure that each annotated view exist in the cache.
 		// make up CAS by using the cache value
 
-		CAS textCas = textviewCache.get(text).getCas();
-		CAS hypoCas = hypoviewCache.get(hypothesis).getCas();
 		CAS aCas = aJCas.getCas();
 
 		CasCopier textCopier = new CasCopier(textCas, aCas);
@@ -245,9 +282,41 @@ public class CachedLAPAccess implements LAPAccess {
 
 		// DONE!
 		// now the aJCas has "annotated" views and Entailment Pair annotation.
-		theLogger.info("Number of actual call / received call: " + Integer.toString(actualCall) + " / " + Integer.toString(receivedCall) );
+		theLogger.info("Cache hits (memory / disk) / misses / evictions: " + hitCount + " / " + diskHitCount + " / " + missCount + " / " + evictionCount);
 
 	}
+	/**
+	 * @return the number of strings found in the in-memory cache
+	 */
+	public long getHitCount()
+	{
+		return hitCount;
+	}
+
+	/**
+	 * @return the number of strings found in the on-disk cache (but not in memory)
+	 */
+	public long getDiskHitCount()
+	{
+		return diskHitCount;
+	}
+
+	/**
+	 * @return the number of strings annotated by the underlying LAP
+	 */
+	public long getMissCount()
+	{
+		return missCount;
+	}
+
+	/**
+	 * @return the number of CASes evicted from the in-memory cache
+	 */
+	public long getEvictionCount()
+	{
+		return evictionCount;
+	}
+
 	//
 	// Un-cached methods - directly calls underlying LAP
 	@Override
@@ -293,6 +362,96 @@ public class CachedLAPAccess implements LAPAccess {
 	}
 
 
+	/**
+	 * Returns the cached CAS of the string: from memory, from disk, or annotated by the
+	 * underlying LAP (and then stored in both tiers).
+	 */
+	private JCas getCachedJCas(String input) throws LAPException
+	{
+		JCas aCacheJCas = cache.get(input);
+		if (aCacheJCas != null)
+		{
+			hitCount++;
+			return aCacheJCas;
+		}
+
+		// we make a cached CAS that holds both views that have the string.
+		aCacheJCas = spareJCas != null ? spareJCas : createNewJCas();
+		spareJCas = null;
+		aCacheJCas.reset();
+
+		File cacheFile = getDiskCacheFile(input);
+		if (cacheFile != null && cacheFile.isFile() && readDiskCache(cacheFile, aCacheJCas))
+		{
+			diskHitCount++;
+		}
+		else
+		{
+			missCount++;
+			prepareCacheContent(aCacheJCas, input);
+			if (cacheFile != null)
+				writeDiskCache(cacheFile, aCacheJCas);
+		}
+		cache.put(input, aCacheJCas);
+		return aCacheJCas;
+	}
+
+	/**
+	 * @return the file of the string in the on-disk cache, or null if there is no on-disk cache
+	 */
+	private File getDiskCacheFile(String input) throws LAPException
+	{
+		if (diskCacheDir == null)
+			return null;
+
+		String hash;
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-1");
+			byte[] bytes = digest.digest((keyPrefix + input).getBytes("UTF-8"));
+			StringBuilder hex = new StringBuilder();
+			for (byte b : bytes)
+				hex.append(String.format("%02x", b));
+			hash = hex.toString();
+		}
+		catch (NoSuchAlgorithmException | UnsupportedEncodingException e)
+		{
+			throw new LAPException("Unable to hash the cache key", e);
+		}
+		// a sub-directory per first two digits keeps the directories small
+		return new File(new File(diskCacheDir, hash.substring(0, 2)), hash + CASSerialFormat.BINARY.getFileExtension());
+	}
+
+	private boolean readDiskCache(File cacheFile, JCas aJCas)
+	{
+		try {
+			CASSerialization.deserialize(cacheFile, aJCas);
+			return true;
+		}
+		catch (LAPException e)
+		{
+			// a corrupted file (e.g. an interrupted write) is simply annotated again
+			theLogger.warn("Ignoring the unreadable cache file " + cacheFile + ": " + e.getMessage());
+			aJCas.reset();
+			return false;
+		}
+	}
+
+	private void writeDiskCache(File cacheFile, JCas aJCas) throws LAPException
+	{
+		File dir = cacheFile.getParentFile();
+		if (!dir.isDirectory() && !dir.mkdirs())
+			throw new LAPException("Unable to create the cache directory " + dir.getAbsolutePath());
+
+		// write then rename, so that a reader never sees a half written file
+		File tempFile = new File(dir, cacheFile.getName() + ".tmp");
+		CASSerialization.serialize(aJCas, tempFile, CASSerialFormat.BINARY);
+		if (!tempFile.renameTo(cacheFile))
+		{
+			tempFile.delete();
+			theLogger.warn("Unable to write the cache file " + cacheFile);
+		}
+	}
+
 	private void prepareCacheContent(JCas aJCas, String input) throws LAPException {
 
 		// generate views and set SOFA
@@ -325,18 +484,27 @@ public class CachedLAPAccess implements LAPAccess {
 		underlyingLAP.addAnnotationOn(aJCas, LAP_ImplBase.HYPOTHESISVIEW);
 
 		// done. aJCas is updated to be used for cache.
-		actualCall ++;
 	}
 
 	//
 	// private data
 	private LAPAccess underlyingLAP;
-	private Map<String, JCas> textviewCache;
-	private Map<String, JCas> hypoviewCache;
+	private int capacity;
+	private Map<String, JCas> cache;
+	private JCas spareJCas;
+	private File diskCacheDir;
+	private String keyPrefix;
 	private AnalysisEngine typeAE;
 
-	private int receivedCall;
-	private int actualCall;
+	private long hitCount;
+	private long diskHitCount;
+	private long missCount;
+	private long evictionCount;
 	private String languageId;
 	Logger theLogger;
+
+	/**
+	 * The default capacity of the in-memory cache (number of strings)
+	 */
+	public static final int DEFAULT_CAPACITY = 10000;
 }
\ No newline at end of file
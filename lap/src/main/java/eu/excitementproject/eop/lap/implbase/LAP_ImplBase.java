@@ -1,10 +1,15 @@
 package eu.excitementproject.eop.lap.implbase;
 
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
-import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 //import org.apache.log4j.BasicConfigurator;
 //import org.apache.log4j.Level;
@@ -13,19 +18,20 @@ import org.apache.uima.UIMAFramework;
 import org.apache.uima.analysis_engine.AnalysisEngine;
 import org.apache.uima.cas.CASException;
 import org.apache.uima.cas.CASRuntimeException;
-import org.apache.uima.cas.impl.XmiCasSerializer;
 import org.apache.uima.jcas.JCas;
 import org.apache.uima.resource.ResourceInitializationException;
 import org.apache.uima.resource.ResourceSpecifier;
 import org.apache.uima.util.InvalidXMLException;
 import org.apache.uima.util.XMLInputSource;
-import org.apache.uima.util.XMLSerializer;
-import org.xml.sax.SAXException;
 
 import eu.excitement.type.entailment.EntailmentMetadata;
 import eu.excitement.type.entailment.Hypothesis;
 import eu.excitement.type.entailment.Pair;
 import eu.excitement.type.entailment.Text;
+import eu.excitementproject.eop.lap.CASContainerWriter;
+import eu.excitementproject.eop.lap.CASSerialFormat;
+import eu.excitementproject.eop.lap.CASSerialization;
+import eu.excitementproject.eop.lap.JCasPool;
 import eu.excitementproject.eop.lap.LAPAccess;
 import eu.excitementproject.eop.lap.LAPException;
 
@@ -99,6 +105,23 @@ public abstract class LAP_ImplBase implements LAPAccess {
 	@Override
 	public void processRawInputFormat(File inputFile, File outputDir)
 			throws LAPException {
+		processRawInputFormat(inputFile, outputDir, CASSerialFormat.XMI); 
+	}
+	
+	/**
+	 * Same as processRawInputFormat(File, File), but the CASes are written in the given format. 
+	 * With XMI and BINARY, each pair is written in its own file (pairID.xmi, or pairID.bcas). 
+	 * With CONTAINER, all pairs are written into a single file of outputDir, named after the 
+	 * input file (e.g. RTE3_dev.bcasc for RTE3_dev.xml). All of them can be read back by 
+	 * PlatformCASProber.probeXmi() or PlatformCASProber.probeXmiDirectory(). 
+	 * 
+	 * @param inputFile
+	 * @param outputDir
+	 * @param format the format of the output files 
+	 * @throws LAPException
+	 */
+	public void processRawInputFormat(File inputFile, File outputDir, CASSerialFormat format)
+			throws LAPException {
 		JCas aJCas = null; 
 		try {
 			aJCas = typeAE.newJCas(); 
@@ -123,6 +146,15 @@ public abstract class LAP_ImplBase implements LAPAccess {
 		@SuppressWarnings("unused")
 		String channel = input.getChannel(); 
 		
+		// a container holds all the pairs 
+		File containerFile = null; 
+		CASContainerWriter container = null; 
+		if (format == CASSerialFormat.CONTAINER)
+		{
+			containerFile = getContainerFile(inputFile, outputDir); 
+			container = new CASContainerWriter(containerFile); 
+		}
+		
 		// for each Pair data 
 		while(input.hasNextPair())
 		{
@@ -143,27 +175,202 @@ public abstract class LAP_ImplBase implements LAPAccess {
 			addAnnotationOn(aJCas, HYPOTHESISVIEW);
 			
 			// serialize 
-			String xmiName = pair.getId() + ".xmi"; 
-			File xmiOutFile = new File(outputDir, xmiName); 
-			
-			try {
-				FileOutputStream out = new FileOutputStream(xmiOutFile);
-				XmiCasSerializer ser = new XmiCasSerializer(aJCas.getTypeSystem());
-				XMLSerializer xmlSer = new XMLSerializer(out, false);
-				ser.serialize(aJCas.getCas(), xmlSer.getContentHandler());
-				out.close();
-			} catch (FileNotFoundException e) {
-				throw new LAPException("Unable to create/open the file" + xmiOutFile.toString(), e);
-			} catch (SAXException e) {
-				throw new LAPException("Failed to serialize the CAS into XML", e); 
-			} catch (IOException e) {
-				throw new LAPException("Unable to access/close the file" + xmiOutFile.toString(), e);
+			if (container != null)
+			{
+				container.add(pair.getId(), aJCas); 
+				logger.info("Pair " + pair.getId() + "\tadded to " + containerFile.toString()); 
+			}
+			else
+			{
+				String casName = pair.getId() + format.getFileExtension(); 
+				File casOutFile = new File(outputDir, casName); 
+				CASSerialization.serialize(aJCas, casOutFile, format); 
+				logger.info("Pair " + pair.getId() + "\twritten as " + casOutFile.toString() ); 
 			}
 
-			logger.info("Pair " + pair.getId() + "\twritten as " + xmiOutFile.toString() ); 
 			// prepare next round
 			aJCas.reset(); 
 		}
+		
+		if (container != null)
+		{
+			container.close(); 
+			logger.info("All pairs written into " + containerFile.toString()); 
+		}
+	}
+
+	/**
+	 * Same as processRawInputFormat(File, File), but the pairs are processed by the given number 
+	 * of threads at the same time. See processRawInputFormat(File, File, CASSerialFormat, int). 
+	 * 
+	 * @param inputFile
+	 * @param outputDir
+	 * @param threads the number of threads that process the pairs 
+	 * @throws LAPException
+	 */
+	public void processRawInputFormat(File inputFile, File outputDir, int threads)
+			throws LAPException {
+		processRawInputFormat(inputFile, outputDir, CASSerialFormat.XMI, threads); 
+	}
+	
+	/**
+	 * Same as processRawInputFormat(File, File, CASSerialFormat), but the pairs are processed 
+	 * by the given number of threads at the same time, each on its own JCas. The outputs are the 
+	 * same as the single thread version: the pairs are written in the order of the input file. 
+	 * 
+	 * <P>
+	 * The linguistic annotation (addAnnotationOn()) is done concurrently only if the LAP 
+	 * supports it, see prepareConcurrentAnnotation(). Otherwise only the preparation and the 
+	 * serialization of the CASes are concurrent, and addAnnotationOn() calls are serialized. 
+	 * 
+	 * @param inputFile
+	 * @param outputDir
+	 * @param format the format of the output files 
+	 * @param threads the number of threads that process the pairs 
+	 * @throws LAPException
+	 */
+	public void processRawInputFormat(File inputFile, File outputDir, final CASSerialFormat format, int threads)
+			throws LAPException {
+		if (threads <= 1)
+		{
+			processRawInputFormat(inputFile, outputDir, format); 
+			return; 
+		}
+		
+		// read all the pairs 
+		RawDataFormatReader input = null;
+		List<RawDataFormatReader.PairXMLData> pairs = new ArrayList<RawDataFormatReader.PairXMLData>(); 
+		try {
+			input = new RawDataFormatReader(inputFile); 
+			while(input.hasNextPair())
+			{
+				pairs.add(input.nextPair()); 
+			}
+		}
+		catch (RawFormatReaderException e)
+		{
+			throw new LAPException("Failed to read XML input format", e); 
+		}
+		
+		// a container holds all the pairs 
+		File containerFile = null; 
+		CASContainerWriter container = null; 
+		if (format == CASSerialFormat.CONTAINER)
+		{
+			containerFile = getContainerFile(inputFile, outputDir); 
+			container = new CASContainerWriter(containerFile); 
+		}
+		
+		final boolean concurrentAnnotation = prepareConcurrentAnnotation(threads); 
+		logger.info("Processing " + pairs.size() + " pairs with " + threads + " threads" + (concurrentAnnotation ? "" : " (annotation is not concurrent)")); 
+		
+		final JCasPool pool = new JCasPool(threads); 
+		ExecutorService executor = Executors.newFixedThreadPool(threads); 
+		LinkedList<Future<byte[]>> pending = new LinkedList<Future<byte[]>>(); 
+		int nextPair = 0; 
+		try {
+			for (int i = 0; i < pairs.size(); i++)
+			{
+				// keep a bounded number of pairs ahead of the writing  
+				while (nextPair < pairs.size() && pending.size() < 2 * threads)
+				{
+					final RawDataFormatReader.PairXMLData pair = pairs.get(nextPair++); 
+					final File outputFile = new File(outputDir, pair.getId() + format.getFileExtension()); 
+					pending.addLast(executor.submit(new Callable<byte[]>() {
+						@Override
+						public byte[] call() throws LAPException 
+						{
+							JCas aJCas = pool.borrow(); 
+							try {
+								addTEViewAndAnnotations(aJCas, pair.getText(), pair.getHypothesis(), pair.getId(), pair.getTask(), pair.getGoldAnswer()); 
+								if (concurrentAnnotation)
+								{
+									addAnnotationOn(aJCas, TEXTVIEW);
+									addAnnotationOn(aJCas, HYPOTHESISVIEW);
+								}
+								else
+								{
+									synchronized(LAP_ImplBase.this)
+									{
+										addAnnotationOn(aJCas, TEXTVIEW);
+										addAnnotationOn(aJCas, HYPOTHESISVIEW);
+									}
+								}
+								
+								if (format == CASSerialFormat.CONTAINER)
+									return CASSerialization.serializeBinary(aJCas); 
+								CASSerialization.serialize(aJCas, outputFile, format); 
+								return null; 
+							}
+							finally {
+								pool.release(aJCas); 
+							}
+						}
+					})); 
+				}
+				
+				// write the outputs in the order of the input 
+				byte[] bytes = pending.removeFirst().get(); 
+				String pairId = pairs.get(i).getId(); 
+				if (container != null)
+				{
+					container.add(pairId, bytes); 
+					logger.info("Pair " + pairId + "\tadded to " + containerFile.toString()); 
+				}
+				else
+				{
+					logger.info("Pair " + pairId + "\twritten as " + new File(outputDir, pairId + format.getFileExtension()).toString()); 
+				}
+			}
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt(); 
+			throw new LAPException("Interrupted while processing the pairs", e); 
+		}
+		catch (ExecutionException e)
+		{
+			if (e.getCause() instanceof LAPException)
+				throw (LAPException) e.getCause(); 
+			throw new LAPException("Failed to process a pair", e.getCause()); 
+		}
+		finally {
+			executor.shutdownNow(); 
+		}
+		
+		if (container != null)
+		{
+			container.close(); 
+			logger.info("All pairs written into " + containerFile.toString()); 
+		}
+	}
+	
+	/**
+	 * @return the container file of processRawInputFormat(): it is named after the input file 
+	 */
+	private static File getContainerFile(File inputFile, File outputDir)
+	{
+		String containerName = inputFile.getName().replaceFirst("\\.[^.]*$", "") + CASSerialFormat.CONTAINER.getFileExtension(); 
+		return new File(outputDir, containerName); 
+	}
+	
+	/**
+	 * Called by the multi-threaded processRawInputFormat() before the processing starts. 
+	 * An extension that can annotate many CASes at the same time (i.e. addAnnotationOn() can 
+	 * be called concurrently by the given number of threads) should prepare itself for that, 
+	 * and return true. 
+	 * 
+	 * <P> 
+	 * This implementation base knows nothing about the annotator, so it returns false, and the 
+	 * calls of addAnnotationOn() are serialized. 
+	 * 
+	 * @param threads the number of threads that will call addAnnotationOn() 
+	 * @return true if addAnnotationOn() can be called concurrently 
+	 * @throws LAPException
+	 */
+	protected boolean prepareConcurrentAnnotation(int threads) throws LAPException
+	{
+		return false; 
 	}
 
 	@Override
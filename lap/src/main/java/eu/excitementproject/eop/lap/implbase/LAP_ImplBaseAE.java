@@ -4,6 +4,7 @@ import org.apache.uima.jcas.JCas;
 import org.apache.uima.resource.ResourceInitializationException;
 
 import eu.excitementproject.eop.lap.LAPException;
+import org.apache.uima.UIMAFramework;
 import org.apache.uima.analysis_engine.AnalysisEngine;
 import org.apache.uima.analysis_engine.AnalysisEngineDescription;
 import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
@@ -137,6 +138,11 @@ public abstract class LAP_ImplBaseAE extends LAP_ImplBase {
 			}
 			engineForView.put(v, aae); 
 		}
+		
+		// kept for prepareConcurrentAnnotation() 
+		this.views = views; 
+		this.descList = descList; 
+		this.concurrentInstances = 1; 
 	}
 	
 	/**
@@ -172,8 +178,55 @@ public abstract class LAP_ImplBaseAE extends LAP_ImplBase {
 			
 		}	
 	}
+	/**
+	 * Prepares the pipelines for the multi-threaded processRawInputFormat(): each view gets a 
+	 * pipeline with a pool of as many instances of the AAE as the threads (a UIMA multiprocessing 
+	 * AE), so that addAnnotationOn() can be called concurrently. Note that each instance has its 
+	 * own AEs, thus its own models (except for AEs that share a single instance of their tool, 
+	 * like the BIU AEs, see SingletonSynchronizedAnnotator). 
+	 */
+	@Override
+	protected synchronized boolean prepareConcurrentAnnotation(int threads) throws LAPException
+	{
+		if (descList == null)
+			return false; // initializeViews() was not called 
+		if (threads <= concurrentInstances)
+			return true; 
+		
+		HashMap<String, AnalysisEngine> engines = new HashMap<String, AnalysisEngine>(); 
+		for (String v : views)
+		{
+			AggregateBuilder builder = new AggregateBuilder();
+			for (AnalysisEngineDescription d : descList)
+			{
+				builder.add(d, INITIALVIEW, v); // maps view name v, to AE's default view. 				
+			}
+			
+			try {
+				// process() of this AE waits for a free instance of the AAE (no timeout) 
+				engines.put(v, UIMAFramework.produceAnalysisEngine(builder.createAggregateDescription(), threads, 0)); 
+			}
+			catch (ResourceInitializationException e)
+			{
+				throw new LAPException("Unable to create the pool of AAEs from AE descriptions", e); 
+			}
+		}
+		
+		for (AnalysisEngine aae : engineForView.values())
+		{
+			aae.destroy(); 
+		}
+		engineForView = engines; 
+		concurrentInstances = threads; 
+		return true; 
+	}
+	
 	protected HashMap<String, AnalysisEngine> engineForView; 
 	
+	private String[] views; 
+	private AnalysisEngineDescription[] descList; 
+	private int concurrentInstances; 
+	
 	
 	
 	//
@@ -0,0 +1,125 @@
+package eu.excitementproject.eop.lap;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.jcas.tcas.Annotation;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
+
+/**
+ * Writes CASes in each of the formats of {@link CASSerialFormat}, and checks that they are
+ * read back (with their format detected from the content) with the same views and annotations.
+ */
+public class CASSerializationTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testBinaryBytesRoundTrip() throws Exception {
+		JCas original = newPairCAS(TEXT, HYPOTHESIS);
+		JCas read = PlatformCASProber.newJCas();
+		CASSerialization.deserializeBinary(CASSerialization.serializeBinary(original), read);
+		assertSamePair(original, read);
+	}
+
+	@Test
+	public void testXmiFileRoundTrip() throws Exception {
+		assertFileRoundTrip(CASSerialFormat.XMI);
+	}
+
+	@Test
+	public void testBinaryFileRoundTrip() throws Exception {
+		assertFileRoundTrip(CASSerialFormat.BINARY);
+	}
+
+	@Test
+	public void testContainerRoundTrip() throws Exception {
+		JCas first = newPairCAS(TEXT, HYPOTHESIS);
+		JCas second = newPairCAS(HYPOTHESIS, TEXT);
+		File containerFile = folder.newFile("pairs" + CASSerialFormat.CONTAINER.getFileExtension());
+		CASContainerWriter writer = new CASContainerWriter(containerFile);
+		writer.add("1", first);
+		writer.add("2", second);
+		writer.close();
+
+		assertEquals(CASSerialFormat.CONTAINER, CASSerialization.detectFormat(containerFile));
+		CASContainerReader reader = new CASContainerReader(containerFile);
+		try {
+			assertEquals(2, reader.size());
+			assertEquals("1", reader.getId(0));
+			assertEquals("2", reader.getId(1));
+			// read in the reverse order: any CAS can be read by its position
+			JCas read = PlatformCASProber.newJCas();
+			reader.read(1, read);
+			assertSamePair(second, read);
+			read.reset();
+			reader.read(0, read);
+			assertSamePair(first, read);
+		}
+		finally {
+			reader.close();
+		}
+	}
+
+	private void assertFileRoundTrip(CASSerialFormat format) throws Exception {
+		JCas original = newPairCAS(TEXT, HYPOTHESIS);
+		File file = folder.newFile("pair" + format.getFileExtension());
+		CASSerialization.serialize(original, file, format);
+
+		assertEquals(format, CASSerialization.detectFormat(file));
+		JCas read = PlatformCASProber.newJCas();
+		CASSerialization.deserialize(file, read);
+		assertSamePair(original, read);
+	}
+
+	private static JCas newPairCAS(String text, String hypothesis) throws Exception {
+		JCas aJCas = PlatformCASProber.newJCas();
+		addView(aJCas, TEXT_VIEW, text);
+		addView(aJCas, HYPOTHESIS_VIEW, hypothesis);
+		return aJCas;
+	}
+
+	// a view with its text, and a token for each word
+	private static void addView(JCas aJCas, String viewName, String text) throws Exception {
+		JCas view = aJCas.createView(viewName);
+		view.setDocumentLanguage("EN");
+		view.setDocumentText(text);
+		int begin = 0;
+		for (String word : text.split(" ")) {
+			new Token(view, begin, begin + word.length()).addToIndexes();
+			begin += word.length() + 1;
+		}
+	}
+
+	private static void assertSamePair(JCas expected, JCas actual) throws Exception {
+		for (String viewName : new String[] { TEXT_VIEW, HYPOTHESIS_VIEW }) {
+			JCas expectedView = expected.getView(viewName);
+			JCas actualView = actual.getView(viewName);
+			assertEquals(expectedView.getDocumentText(), actualView.getDocumentText());
+			assertEquals(expectedView.getDocumentLanguage(), actualView.getDocumentLanguage());
+			assertEquals(tokens(expectedView), tokens(actualView));
+		}
+	}
+
+	private static List<String> tokens(JCas view) {
+		List<String> tokens = new ArrayList<String>();
+		for (Annotation token : view.getAnnotationIndex(Token.type)) {
+			tokens.add(token.getBegin() + "-" + token.getEnd() + ":" + token.getCoveredText());
+		}
+		return tokens;
+	}
+
+	private static final String TEXT_VIEW = "TextView";
+	private static final String HYPOTHESIS_VIEW = "HypothesisView";
+	private static final String TEXT = "This is a pipe.";
+	private static final String HYPOTHESIS = "Holy, this is not a pipe!";
+}
@@ -2,7 +2,11 @@ package eu.excitementproject.eop.lap.cachedlap;
 
 import static org.junit.Assert.*;
 
+import java.io.File;
+
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import org.apache.log4j.BasicConfigurator;
 import org.apache.log4j.Level;
@@ -13,6 +17,7 @@ import eu.excitementproject.eop.lap.cachedlap.CachedLAPAccess;
 import eu.excitementproject.eop.lap.LAPAccess;
 import eu.excitementproject.eop.lap.PlatformCASProber;
 import eu.excitementproject.eop.lap.dkpro.OpenNLPTaggerEN;
+import eu.excitementproject.eop.lap.implbase.LAP_ImplBase;
 
 /**
  * 
@@ -29,6 +34,9 @@ import eu.excitementproject.eop.lap.dkpro.OpenNLPTaggerEN;
  */
 public class CachedLAPAccessTest {
 
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
 	@Test
 	public void test() {
 
@@ -123,6 +131,8 @@ public class CachedLAPAccessTest {
 			originalCAS = underlyingLAP.generateSingleTHPairCAS(hypo, text);
 			PlatformCASProber.probeCas(originalCAS, null); 
 			PlatformCASProber.probeCas(cachedCAS, null); 
+			assertSameViews(originalCAS, cachedCAS, hypo, text); 
+			assertSameViews(originalCAS, workJCas, text, hypo); 
 			
 			//PlatformCASProber.probeCasAndPrintContent(originalCAS, System.out);
 			//PlatformCASProber.probeCasAndPrintContent(cachedCAS, System.out);
@@ -132,6 +142,34 @@ public class CachedLAPAccessTest {
 			fail(e.getMessage());
 		}	
 
+		// two strings: annotated once, then always found in memory 
+		assertEquals(2, cachedLAP.getMissCount()); 
+		assertEquals(6, cachedLAP.getHitCount()); 
+		assertEquals(0, cachedLAP.getEvictionCount()); 
+
+		// a cache of a single string in memory, with the on-disk cache 
+		// a second cached LAP on the same directory finds both strings on disk 
+		try {
+			File cacheDir = folder.newFolder("cachedlap"); 
+			CachedLAPAccess diskCachedLAP = new CachedLAPAccess(underlyingLAP, 1, cacheDir, null); 
+			// the hypothesis evicts the text: the text view must still be the text
+			cachedCAS = diskCachedLAP.generateSingleTHPairCAS(text, hypo); 
+			assertEquals(1, diskCachedLAP.getEvictionCount()); 
+			assertEquals(2, diskCachedLAP.getMissCount()); 
+			assertSameViews(originalCAS, cachedCAS, text, hypo); 
+			
+			CachedLAPAccess restartedLAP = new CachedLAPAccess(underlyingLAP, 1, cacheDir, null); 
+			cachedCAS = restartedLAP.generateSingleTHPairCAS(text, hypo); 
+			PlatformCASProber.probeCas(cachedCAS, null); 
+			assertEquals(0, restartedLAP.getMissCount()); 
+			assertEquals(2, restartedLAP.getDiskHitCount()); 
+			assertSameViews(originalCAS, cachedCAS, text, hypo); 
+		}
+		catch (Exception e)
+		{
+			fail(e.getMessage());
+		}	
+
 		// use the following codes to test "speed" on repeated calls. 
 		// 
 //		try {
@@ -151,4 +189,23 @@ public class CachedLAPAccessTest {
 
 	}
 
+	/**
+	 * Checks that the views of the given CAS have the given text and hypothesis, in the
+	 * language of the underlying LAP (whose CAS is given as reference). 
+	 */
+	private static void assertSameViews(JCas referenceCAS, JCas aJCas, String text, String hypo)
+	{
+		try {
+			assertEquals(text, aJCas.getView(LAP_ImplBase.TEXTVIEW).getDocumentText()); 
+			assertEquals(hypo, aJCas.getView(LAP_ImplBase.HYPOTHESISVIEW).getDocumentText()); 
+			String language = referenceCAS.getView(LAP_ImplBase.TEXTVIEW).getDocumentLanguage(); 
+			assertEquals(language, aJCas.getView(LAP_ImplBase.TEXTVIEW).getDocumentLanguage()); 
+			assertEquals(language, aJCas.getView(LAP_ImplBase.HYPOTHESISVIEW).getDocumentLanguage()); 
+		}
+		catch (Exception e)
+		{
+			fail(e.getMessage());
+		}
+	}
+
 }
\ No newline at end of file
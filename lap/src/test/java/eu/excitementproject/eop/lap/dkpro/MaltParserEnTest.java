@@ -20,6 +20,8 @@ import de.tudarmstadt.ukp.dkpro.core.api.syntax.type.dependency.Dependency;
 import eu.excitementproject.eop.lap.LAPAccess;
 import eu.excitementproject.eop.lap.LAPException;
 import eu.excitementproject.eop.lap.PlatformCASProber;
+import eu.excitementproject.eop.lap.implbase.LAP_ImplBase;
+import eu.excitementproject.eop.lap.implbase.ThroughputReport;
 
 public class MaltParserEnTest {
 	
@@ -98,6 +100,14 @@ public class MaltParserEnTest {
 			fail(e.getMessage()); 
 		}
 
+		// the same with 4 threads: the throughput of both is logged 
+		try {
+			ThroughputReport.report((LAP_ImplBase) lap, input, 4, testlogger); 
+		} catch (LAPException e)
+		{
+			fail(e.getMessage()); 
+		}
+
 		// Now time to open up the XMI files. 
 		// PlatformCASPRober also provides a probe method 
 		// for XMI files: probeXmi() --- this does the same thing 
@@ -4,12 +4,15 @@ import static org.junit.Assert.*;
 
 import java.io.File;
 
+import org.apache.log4j.Logger;
 import org.apache.uima.jcas.JCas;
 import org.junit.Test;
 
 import eu.excitementproject.eop.lap.LAPAccess;
 import eu.excitementproject.eop.lap.LAPException;
 import eu.excitementproject.eop.lap.PlatformCASProber;
+import eu.excitementproject.eop.lap.implbase.LAP_ImplBase;
+import eu.excitementproject.eop.lap.implbase.ThroughputReport;
 import eu.excitementproject.eop.lap.dkpro.OpenNLPTaggerEN;
 
 public class OpenNLPTaggerENTest {
@@ -54,6 +57,14 @@ public class OpenNLPTaggerENTest {
 			fail(e.getMessage()); 
 		}
 
+		// the same with 4 threads: the throughput of both is logged 
+		try {
+			ThroughputReport.report((LAP_ImplBase) lap, input, 4, Logger.getLogger("eu.excitementproject.eop.lap.dkpro.OpenNLPTaggerENTest")); 
+		} catch (LAPException e)
+		{
+			fail(e.getMessage()); 
+		}
+
 		// Now time to open up the XMI files. 
 		// PlatformCASPRober also provides a probe method 
 		// for XMI files: probeXmi() --- this does the same thing 
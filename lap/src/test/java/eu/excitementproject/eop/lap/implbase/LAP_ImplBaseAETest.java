@@ -90,6 +90,14 @@ public class LAP_ImplBaseAETest {
 			fail(e.getMessage()); 
 		}
 
+		// the same with 4 threads: the throughput of both is logged 
+		try {
+			ThroughputReport.report((LAP_ImplBase) lap, input, 4, testlogger); 
+		} catch (LAPException e)
+		{
+			fail(e.getMessage()); 
+		}
+
 		// Now time to open up the XMI files. 
 		// PlatformCASPRober also provides a probe method 
 		// for XMI files: probeXmi() --- this does the same thing 
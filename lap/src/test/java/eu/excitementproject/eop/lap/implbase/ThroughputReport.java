@@ -0,0 +1,58 @@
+package eu.excitementproject.eop.lap.implbase;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.apache.log4j.Logger;
+
+import eu.excitementproject.eop.lap.LAPException;
+
+/**
+ * Test utility: runs processRawInputFormat() of a LAP with a single thread and with many
+ * threads, logs the throughput (pairs per second) of both, and checks that both wrote the
+ * same XMI files.
+ */
+public class ThroughputReport {
+
+	public static void report(LAP_ImplBase lap, File input, int threads, Logger logger) throws LAPException
+	{
+		File outputDir = new File("./target/throughput/" + lap.getClass().getSimpleName());
+		File sequentialDir = new File(outputDir, "sequential");
+		File concurrentDir = new File(outputDir, "concurrent");
+		sequentialDir.mkdirs();
+		concurrentDir.mkdirs();
+
+		long start = System.currentTimeMillis();
+		lap.processRawInputFormat(input, sequentialDir);
+		long sequentialTime = System.currentTimeMillis() - start;
+
+		start = System.currentTimeMillis();
+		lap.processRawInputFormat(input, concurrentDir, threads);
+		long concurrentTime = System.currentTimeMillis() - start;
+
+		File[] xmis = sequentialDir.listFiles();
+		for (File xmi : xmis)
+		{
+			try {
+				assertTrue(xmi.getName() + " differs", Arrays.equals(Files.readAllBytes(xmi.toPath()), Files.readAllBytes(new File(concurrentDir, xmi.getName()).toPath())));
+			}
+			catch (IOException e)
+			{
+				fail(e.getMessage());
+			}
+		}
+
+		logger.info(String.format("Throughput of %s on %s (%d pairs): 1 thread: %.2f pairs/s, %d threads: %.2f pairs/s",
+				lap.getClass().getSimpleName(), input.getName(), xmis.length,
+				pairsPerSecond(xmis.length, sequentialTime), threads, pairsPerSecond(xmis.length, concurrentTime)));
+	}
+
+	private static double pairsPerSecond(int pairs, long millis)
+	{
+		return pairs * 1000.0 / Math.max(millis, 1);
+	}
+}
@@ -1,5 +1,6 @@
 package eu.excitementproject.eop.transformations.operations.finders;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
 
 import org.apache.log4j.Logger;
@@ -13,12 +14,10 @@ import eu.excitementproject.eop.common.representation.parse.tree.TreeIterator;
 import eu.excitementproject.eop.common.representation.parse.tree.dependency.basic.BasicNode;
 import eu.excitementproject.eop.common.representation.parse.tree.match.AllEmbeddedMatcher;
 import eu.excitementproject.eop.common.representation.parse.tree.match.MatcherException;
-import eu.excitementproject.eop.common.utilities.Cache;
-import eu.excitementproject.eop.common.utilities.CacheFactory;
 import eu.excitementproject.eop.transformations.operations.OperationException;
 import eu.excitementproject.eop.transformations.operations.finders.auxiliary.AllowedRootsByAffectedNodesUtility;
+import eu.excitementproject.eop.transformations.operations.finders.auxiliary.BagOfRulesIndex;
 import eu.excitementproject.eop.transformations.operations.finders.auxiliary.LemmaAndSimplerCanonicalPos;
-import eu.excitementproject.eop.transformations.operations.finders.auxiliary.ParseTreeCharacteristics;
 import eu.excitementproject.eop.transformations.operations.finders.auxiliary.ParseTreeCharacteristicsCollector;
 import eu.excitementproject.eop.transformations.operations.finders.auxiliary.PosRelPos;
 import eu.excitementproject.eop.transformations.operations.finders.auxiliary.SingleItemBidirectionalMap;
@@ -28,16 +27,15 @@ import eu.excitementproject.eop.transformations.operations.specifications.RuleSp
 import eu.excitementproject.eop.transformations.representation.ExtendedInfo;
 import eu.excitementproject.eop.transformations.representation.ExtendedMatchCriteria;
 import eu.excitementproject.eop.transformations.representation.ExtendedNode;
-import static eu.excitementproject.eop.transformations.utilities.Constants.CACHE_SIZE_BAG_OF_RULES;
 
 /**
  * This {@link Finder} returns a set of {@link RuleSpecification}s, based on the
  * given text tree and a rule base. The rule-base is given as a set of rules,
  * implemented as {@link BagOfRulesRuleBase}.
  * <P>
- * Note that {@link BagOfRulesRuleBase} and this finder are not very efficient,
- * since finding a matching rules is done by trying to find a match for each rule,
- * with no prior rule filtering. 
+ * Only the rules that might match the text tree, by the characteristics of their
+ * left-hand-sides, are matched against it. They are found by a {@link BagOfRulesIndex}
+ * of the rule base, which is built once per rule base.
  * 
  * @author Asher Stern
  * @since Feb 24, 2011
@@ -70,39 +68,38 @@ public class RulesByBagOfRulesRuleBaseFinder implements Finder<RuleSpecification
 			Set<ExtendedNode> allowedRoots = null;
 			if (affectedNodes!=null) {allowedRoots = AllowedRootsByAffectedNodesUtility.findAllowedRootsByAffectedNodes(textTree, affectedNodes);}
 			specs = new LinkedHashSet<RuleSpecification>();
-			debug_numberOfFilteredRules=0;
-			for (RuleWithConfidenceAndDescription<Info, BasicNode> rule : ruleBase.getRules())
+			BagOfRulesIndex<Info, BasicNode> index = BagOfRulesIndex.indexOf(ruleBase);
+			List<RuleWithConfidenceAndDescription<Info, BasicNode>> candidates = index.getCandidates(posRelPosTree, lemmaAndPosTree);
+			debug_numberOfFilteredRules=index.size()-candidates.size();
+			for (RuleWithConfidenceAndDescription<Info, BasicNode> rule : candidates)
 			{
-				if (mightMatch(rule))
+				if (!(rule.getRule().getLeftHandSide().hasChildren()))
 				{
-					if (!(rule.getRule().getLeftHandSide().hasChildren()))
+					findForSingleNodeRule(rule);
+				}
+				else
+				{
+					AllEmbeddedMatcher<ExtendedInfo, Info, ExtendedNode, BasicNode> matcher = 
+							new AllEmbeddedMatcher<ExtendedInfo, Info, ExtendedNode, BasicNode>(matchCriteria);
+					if (allowedRoots!=null)
 					{
-						findForSingleNodeRule(rule);
+						matcher.setAllowedRoots(allowedRoots);
 					}
-					else
-					{
-						AllEmbeddedMatcher<ExtendedInfo, Info, ExtendedNode, BasicNode> matcher = 
-								new AllEmbeddedMatcher<ExtendedInfo, Info, ExtendedNode, BasicNode>(matchCriteria);
-						if (allowedRoots!=null)
-						{
-							matcher.setAllowedRoots(allowedRoots);
-						}
 
-						matcher.setTrees(this.textTree.getTree(), rule.getRule().getLeftHandSide());
-						matcher.findMatches();
-						Set<BidirectionalMap<ExtendedNode, BasicNode>> matches = matcher.getMatches();
+					matcher.setTrees(this.textTree.getTree(), rule.getRule().getLeftHandSide());
+					matcher.findMatches();
+					Set<BidirectionalMap<ExtendedNode, BasicNode>> matches = matcher.getMatches();
 
-						for (BidirectionalMap<ExtendedNode, BasicNode> singleLhsMatch : matches)
+					for (BidirectionalMap<ExtendedNode, BasicNode> singleLhsMatch : matches)
+					{
+						BidirectionalMap<BasicNode, ExtendedNode> mapLhsToTree = new FlippedBidirectionalMap<BasicNode, ExtendedNode>(singleLhsMatch);
+						boolean introduction = false;
+						if (rule.getRule().isExtraction()!=null)
 						{
-							BidirectionalMap<BasicNode, ExtendedNode> mapLhsToTree = new FlippedBidirectionalMap<BasicNode, ExtendedNode>(singleLhsMatch);
-							boolean introduction = false;
-							if (rule.getRule().isExtraction()!=null)
-							{
-								introduction = rule.getRule().isExtraction().booleanValue();
-							}
-
-							specs.add(new RuleSpecification(this.ruleBaseName,rule,mapLhsToTree,introduction));
+							introduction = rule.getRule().isExtraction().booleanValue();
 						}
+
+						specs.add(new RuleSpecification(this.ruleBaseName,rule,mapLhsToTree,introduction));
 					}
 				}
 			}
@@ -149,24 +146,6 @@ public class RulesByBagOfRulesRuleBaseFinder implements Finder<RuleSpecification
 		}
 	}
 	
-	private ParseTreeCharacteristics<Info, BasicNode> getCharacteristicsOfRule(RuleWithConfidenceAndDescription<Info, BasicNode> rule)
-	{
-		ParseTreeCharacteristics<Info, BasicNode> ret = null;
-		BasicNode lhs = rule.getRule().getLeftHandSide();
-		if (ruleBaseCharacteristicsCache.containsKey(lhs))
-		{
-			ret = ruleBaseCharacteristicsCache.get(lhs);
-		}
-		else
-		{
-			ParseTreeCharacteristicsCollector<Info, BasicNode> collector = new ParseTreeCharacteristicsCollector<Info, BasicNode>(lhs);
-			collector.extract();
-			ret = new ParseTreeCharacteristics<Info, BasicNode>(collector.getPosRelPosSet(),collector.getLemmaAndPosSet());
-			ruleBaseCharacteristicsCache.put(lhs, ret);
-		}
-		return ret;
-	}
-	
 	private void extractGivenTreeCharacteristics()
 	{
 		ParseTreeCharacteristicsCollector<ExtendedInfo,ExtendedNode> collector = new ParseTreeCharacteristicsCollector<ExtendedInfo,ExtendedNode>(textTree.getTree());
@@ -183,21 +162,6 @@ public class RulesByBagOfRulesRuleBaseFinder implements Finder<RuleSpecification
 	}
 	
 	
-	private boolean mightMatch(RuleWithConfidenceAndDescription<Info, BasicNode> rule)
-	{
-		boolean ret = false;
-		ParseTreeCharacteristics<Info, BasicNode> ruleCharacteristics = getCharacteristicsOfRule(rule);
-		if (posRelPosTree.containsAll(ruleCharacteristics.getPosRelPosSet()))
-		{
-			if (lemmaAndPosTree.containsAll(ruleCharacteristics.getLemmaAndPosSet()))
-			{
-				ret = true;
-			}
-		}
-		if (!ret) {++debug_numberOfFilteredRules;}
-		return ret;
-	}
-	
 	private static <T> String printSet(Set<T> set)
 	{
 		StringBuilder sb = new StringBuilder();
@@ -233,8 +197,6 @@ public class RulesByBagOfRulesRuleBaseFinder implements Finder<RuleSpecification
 	private Set<PosRelPos> posRelPosTree;
 	private Set<LemmaAndSimplerCanonicalPos> lemmaAndPosTree;
 	
-	private Cache<BasicNode, ParseTreeCharacteristics<Info, BasicNode>> ruleBaseCharacteristicsCache = new CacheFactory<BasicNode, ParseTreeCharacteristics<Info, BasicNode>>().getCache(CACHE_SIZE_BAG_OF_RULES);
-	
 	private int debug_numberOfFilteredRules = 0;
 	
 	// output
@@ -0,0 +1,228 @@
+package eu.excitementproject.eop.transformations.operations.finders.auxiliary;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import eu.excitementproject.eop.common.component.syntacticknowledge.RuleWithConfidenceAndDescription;
+import eu.excitementproject.eop.common.datastructures.immutable.ImmutableSet;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.Info;
+import eu.excitementproject.eop.common.representation.parse.tree.AbstractNode;
+import eu.excitementproject.eop.transformations.operations.rules.BagOfRulesRuleBase;
+import eu.excitementproject.eop.transformations.operations.rules.RuleBaseException;
+
+/**
+ * An index of the left-hand-sides of the rules of a {@link BagOfRulesRuleBase}, by their
+ * {@link ParseTreeCharacteristics}.
+ * <P>
+ * A rule can match a tree only if all the characteristics of its left-hand-side (lemma+POS of the nodes, and
+ * POS-relation-POS of the edges) are characteristics of the tree. So each rule is indexed under one of them,
+ * its anchor, which is the characteristic shared by the fewest rules of the rule base. The candidates for a tree
+ * are the rules indexed under the characteristics of the tree (and the rules with no characteristics at all),
+ * filtered by all of their characteristics. They are exactly the rules that pass that filter when all the rules
+ * are examined, in the same order, but only a few buckets are examined.
+ * <P>
+ * The index of a rule base is built once, and shared (see {@link #indexOf(BagOfRulesRuleBase)}).
+ * <P>
+ * <B>Thread safe</B>
+ *
+ * @param <I>
+ * @param <S>
+ */
+public class BagOfRulesIndex<I extends Info, S extends AbstractNode<I,S>>
+{
+	/**
+	 * Returns the index of the given rule base. It is built when it is first asked for, and built again
+	 * only if the rule base returns another set of rules.
+	 * @param ruleBase
+	 * @return
+	 * @throws RuleBaseException
+	 */
+	public static <I extends Info, S extends AbstractNode<I,S>> BagOfRulesIndex<I, S> indexOf(BagOfRulesRuleBase<I, S> ruleBase) throws RuleBaseException
+	{
+		ImmutableSet<RuleWithConfidenceAndDescription<I, S>> rules = ruleBase.getRules();
+		synchronized(indexes)
+		{
+			@SuppressWarnings("unchecked")
+			BagOfRulesIndex<I, S> index = (BagOfRulesIndex<I, S>) indexes.get(ruleBase);
+			if ( (null==index) || (index.indexedRules!=rules) )
+			{
+				index = new BagOfRulesIndex<I, S>(rules);
+				indexes.put(ruleBase, index);
+			}
+			return index;
+		}
+	}
+
+	/**
+	 * Returns the rules that might match a tree that has the given characteristics.
+	 * @param posRelPosTree
+	 * @param lemmaAndPosTree
+	 * @return The rules whose left-hand-side characteristics are all contained in the given ones, in the order of the rule base.
+	 */
+	public List<RuleWithConfidenceAndDescription<I, S>> getCandidates(Set<PosRelPos> posRelPosTree, Set<LemmaAndSimplerCanonicalPos> lemmaAndPosTree)
+	{
+		BitSet candidates = new BitSet(rules.size());
+		addAll(candidates, unanchoredRules);
+		for (PosRelPos posRelPos : posRelPosTree)
+		{
+			addAll(candidates, rulesByPosRelPos.get(posRelPos));
+		}
+		for (LemmaAndSimplerCanonicalPos lemmaAndPos : lemmaAndPosTree)
+		{
+			addAll(candidates, rulesByLemmaAndPos.get(lemmaAndPos));
+		}
+
+		List<RuleWithConfidenceAndDescription<I, S>> ret = new ArrayList<RuleWithConfidenceAndDescription<I, S>>();
+		for (int index=candidates.nextSetBit(0);index>=0;index=candidates.nextSetBit(index+1))
+		{
+			ParseTreeCharacteristics<I, S> ruleCharacteristics = characteristics.get(index);
+			if ( posRelPosTree.containsAll(ruleCharacteristics.getPosRelPosSet()) && lemmaAndPosTree.containsAll(ruleCharacteristics.getLemmaAndPosSet()) )
+			{
+				ret.add(rules.get(index));
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * @return the number of indexed rules
+	 */
+	public int size()
+	{
+		return rules.size();
+	}
+
+
+
+
+	private BagOfRulesIndex(ImmutableSet<RuleWithConfidenceAndDescription<I, S>> indexedRules)
+	{
+		this.indexedRules = indexedRules;
+		this.rules = new ArrayList<RuleWithConfidenceAndDescription<I, S>>(indexedRules.size());
+		this.characteristics = new ArrayList<ParseTreeCharacteristics<I, S>>(indexedRules.size());
+
+		Map<PosRelPos, Integer> posRelPosFrequencies = new HashMap<>();
+		Map<LemmaAndSimplerCanonicalPos, Integer> lemmaAndPosFrequencies = new HashMap<>();
+		for (RuleWithConfidenceAndDescription<I, S> rule : indexedRules)
+		{
+			ParseTreeCharacteristicsCollector<I, S> collector = new ParseTreeCharacteristicsCollector<I, S>(rule.getRule().getLeftHandSide());
+			collector.extract();
+			rules.add(rule);
+			characteristics.add(new ParseTreeCharacteristics<I, S>(collector.getPosRelPosSet(),collector.getLemmaAndPosSet()));
+			for (PosRelPos posRelPos : collector.getPosRelPosSet())
+			{
+				increment(posRelPosFrequencies, posRelPos);
+			}
+			for (LemmaAndSimplerCanonicalPos lemmaAndPos : collector.getLemmaAndPosSet())
+			{
+				increment(lemmaAndPosFrequencies, lemmaAndPos);
+			}
+		}
+
+		// Each rule is indexed under its rarest characteristic
+		Map<PosRelPos, List<Integer>> posRelPosBuckets = new HashMap<>();
+		Map<LemmaAndSimplerCanonicalPos, List<Integer>> lemmaAndPosBuckets = new HashMap<>();
+		List<Integer> unanchored = new ArrayList<Integer>();
+		for (int index=0;index<rules.size();++index)
+		{
+			PosRelPos posRelPosAnchor = null;
+			LemmaAndSimplerCanonicalPos lemmaAndPosAnchor = null;
+			int anchorFrequency = Integer.MAX_VALUE;
+			for (LemmaAndSimplerCanonicalPos lemmaAndPos : characteristics.get(index).getLemmaAndPosSet())
+			{
+				int frequency = lemmaAndPosFrequencies.get(lemmaAndPos);
+				if (frequency<anchorFrequency)
+				{
+					lemmaAndPosAnchor = lemmaAndPos;
+					anchorFrequency = frequency;
+				}
+			}
+			for (PosRelPos posRelPos : characteristics.get(index).getPosRelPosSet())
+			{
+				int frequency = posRelPosFrequencies.get(posRelPos);
+				if (frequency<anchorFrequency)
+				{
+					posRelPosAnchor = posRelPos;
+					lemmaAndPosAnchor = null;
+					anchorFrequency = frequency;
+				}
+			}
+
+			if (posRelPosAnchor!=null)
+				bucket(posRelPosBuckets, posRelPosAnchor).add(index);
+			else if (lemmaAndPosAnchor!=null)
+				bucket(lemmaAndPosBuckets, lemmaAndPosAnchor).add(index);
+			else
+				unanchored.add(index);
+		}
+
+		this.rulesByPosRelPos = toArrays(posRelPosBuckets);
+		this.rulesByLemmaAndPos = toArrays(lemmaAndPosBuckets);
+		this.unanchoredRules = toArray(unanchored);
+	}
+
+	private static void addAll(BitSet bitSet, int[] indexes)
+	{
+		if (indexes!=null)
+		{
+			for (int index : indexes)
+			{
+				bitSet.set(index);
+			}
+		}
+	}
+
+	private static <K> void increment(Map<K, Integer> frequencies, K key)
+	{
+		Integer frequency = frequencies.get(key);
+		frequencies.put(key, (null==frequency)?1:frequency+1);
+	}
+
+	private static <K> List<Integer> bucket(Map<K, List<Integer>> buckets, K key)
+	{
+		List<Integer> bucket = buckets.get(key);
+		if (null==bucket)
+		{
+			bucket = new ArrayList<Integer>();
+			buckets.put(key, bucket);
+		}
+		return bucket;
+	}
+
+	private static <K> Map<K, int[]> toArrays(Map<K, List<Integer>> buckets)
+	{
+		Map<K, int[]> ret = new HashMap<>();
+		for (Map.Entry<K, List<Integer>> entry : buckets.entrySet())
+		{
+			ret.put(entry.getKey(), toArray(entry.getValue()));
+		}
+		return ret;
+	}
+
+	private static int[] toArray(List<Integer> list)
+	{
+		int[] ret = new int[list.size()];
+		for (int index=0;index<ret.length;++index)
+		{
+			ret[index] = list.get(index);
+		}
+		return ret;
+	}
+
+
+
+	private final ImmutableSet<RuleWithConfidenceAndDescription<I, S>> indexedRules;
+	private final List<RuleWithConfidenceAndDescription<I, S>> rules;
+	private final List<ParseTreeCharacteristics<I, S>> characteristics;
+
+	private final Map<PosRelPos, int[]> rulesByPosRelPos;
+	private final Map<LemmaAndSimplerCanonicalPos, int[]> rulesByLemmaAndPos;
+	private final int[] unanchoredRules;
+
+	private static final Map<BagOfRulesRuleBase<?, ?>, BagOfRulesIndex<?, ?>> indexes = new WeakHashMap<BagOfRulesRuleBase<?, ?>, BagOfRulesIndex<?, ?>>();
+}
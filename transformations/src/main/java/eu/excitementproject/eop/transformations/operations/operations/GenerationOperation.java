@@ -10,6 +10,7 @@ import eu.excitementproject.eop.transformations.operations.finders.Finder;
 import eu.excitementproject.eop.transformations.operations.finders.SubstitutionMultiWordUnderlyingFinder;
 import eu.excitementproject.eop.transformations.operations.specifications.Specification;
 import eu.excitementproject.eop.transformations.representation.AdditionalNodeInformation;
+import eu.excitementproject.eop.transformations.utilities.IncrementalTreeEvaluations;
 
 /**
  * A generation operation creates a new tree, based on an existing one.
@@ -143,6 +144,15 @@ public abstract class GenerationOperation<I extends Info, N extends AbstractNode
 	
 	
 	
+	/**
+	 * Returns the nodes of the new tree that were modified or added by this operation.
+	 * Together with {@link #getMapOriginalToGenerated()}, they describe which parts of the
+	 * original tree were touched, such that the new tree can be evaluated incrementally
+	 * (see {@link IncrementalTreeEvaluations}).
+	 * 
+	 * @return The affected nodes (a non-empty set of nodes of the new tree).
+	 * @throws OperationException
+	 */
 	public Set<N> getAffectedNodes() throws OperationException
 	{
 		if (affectedNodes!=null)
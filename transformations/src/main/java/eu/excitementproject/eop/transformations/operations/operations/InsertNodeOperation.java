@@ -1,16 +1,24 @@
 package eu.excitementproject.eop.transformations.operations.operations;
+import java.util.Collections;
 import java.util.LinkedHashSet;
 
 import eu.excitementproject.eop.common.datastructures.BidirectionalMap;
 import eu.excitementproject.eop.common.datastructures.SimpleBidirectionalMap;
+import eu.excitementproject.eop.common.representation.parse.tree.SharingTreeCopier;
 import eu.excitementproject.eop.common.representation.parse.tree.TreeAndParentMap;
+import eu.excitementproject.eop.common.representation.parse.tree.TreeCopier;
 import eu.excitementproject.eop.transformations.datastructures.FromBidirectionalMapValueSetMap;
 import eu.excitementproject.eop.transformations.operations.OperationException;
 import eu.excitementproject.eop.transformations.representation.ExtendedInfo;
 import eu.excitementproject.eop.transformations.representation.ExtendedNode;
+import eu.excitementproject.eop.transformations.representation.ExtendedNodeConstructor;
+import eu.excitementproject.eop.transformations.utilities.Constants;
 
 /**
  * An on-the-fly operation that inserts a new node to a tree.
+ * <P>
+ * If {@link Constants#SHARE_UNCHANGED_SUBTREES_OF_GENERATED_TREES} is true, only the parent of the
+ * inserted node and its ancestors are copied, and the other subtrees are shared with the original tree.
  * 
  * @author Asher Stern
  * @since 2011
@@ -32,9 +40,30 @@ public class InsertNodeOperation extends GenerationOperationForExtendedNode
 	protected void generateTheTree() throws OperationException
 	{
 		this.affectedNodes = new LinkedHashSet<ExtendedNode>();
-		mapOrigToGenerated = new SimpleBidirectionalMap<ExtendedNode, ExtendedNode>();
-		this.generatedTree = copyTree(this.textTree.getTree());
-		updateAntecedents();
+		if (Constants.SHARE_UNCHANGED_SUBTREES_OF_GENERATED_TREES)
+		{
+			// whereToInsert is copied, so the new node can be added to its copy.
+			SharingTreeCopier<ExtendedInfo, ExtendedNode> copier = new SharingTreeCopier<ExtendedInfo, ExtendedNode>(
+					this.textTree.getTree(),
+					new TreeCopier.InfoConverter<ExtendedNode, ExtendedInfo>()
+					{
+						public ExtendedInfo convert(ExtendedNode node)
+						{
+							return node.getInfo();
+						}
+					},
+					new ExtendedNodeConstructor(),
+					Collections.singleton(whereToInsert));
+			copier.copy();
+			this.generatedTree = copier.getGeneratedTree();
+			mapOrigToGenerated = copier.getNodesMap();
+		}
+		else
+		{
+			mapOrigToGenerated = new SimpleBidirectionalMap<ExtendedNode, ExtendedNode>();
+			this.generatedTree = copyTree(this.textTree.getTree());
+			updateAntecedents();
+		}
 		
 		ExtendedNode parent = mapOrigToGenerated.leftGet(whereToInsert);
 		ExtendedNode insertedNode = new ExtendedNode(nodeToInsert);
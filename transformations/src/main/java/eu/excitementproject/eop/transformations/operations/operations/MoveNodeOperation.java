@@ -7,15 +7,22 @@ import java.util.Set;
 import eu.excitementproject.eop.common.datastructures.BidirectionalMap;
 import eu.excitementproject.eop.common.datastructures.SimpleBidirectionalMap;
 import eu.excitementproject.eop.common.representation.parse.representation.basic.EdgeInfo;
+import eu.excitementproject.eop.common.representation.parse.tree.SharingTreeCopier;
 import eu.excitementproject.eop.common.representation.parse.tree.TreeAndParentMap;
+import eu.excitementproject.eop.common.representation.parse.tree.TreeCopier;
 import eu.excitementproject.eop.transformations.datastructures.FromBidirectionalMapValueSetMap;
 import eu.excitementproject.eop.transformations.operations.OperationException;
 import eu.excitementproject.eop.transformations.representation.ExtendedInfo;
 import eu.excitementproject.eop.transformations.representation.ExtendedNode;
+import eu.excitementproject.eop.transformations.representation.ExtendedNodeConstructor;
+import eu.excitementproject.eop.transformations.utilities.Constants;
 
 
 /**
  * An on-the-fly operation that moves a node from one location to another location in the tree.
+ * <P>
+ * If {@link Constants#SHARE_UNCHANGED_SUBTREES_OF_GENERATED_TREES} is true, only the moved node, its
+ * new parent and their ancestors are copied, and the other subtrees are shared with the original tree.
  *  
  * @author Asher Stern
  * @since Dec 30, 2010
@@ -58,12 +65,77 @@ public class MoveNodeOperation extends GenerationOperationForExtendedNode
 	{
 		if (textTree.getTree()==nodeToMove) throw new OperationException("Moving the root is illegal.");
 		affectedNodes = new LinkedHashSet<ExtendedNode>();
-		mapOrigToCopy = new SimpleBidirectionalMap<ExtendedNode, ExtendedNode>();
-		this.generatedTree = recursiveGenerate(textTree.getTree(),null,false);
-		updateAntecedentInformation();
+		// When newParent is a descendant of nodeToMove, the subtree of nodeToMove is dropped, and its nodes
+		// are not mapped at all (see isNodeToMoveNotExistInGeneratedTree()), while SharingTreeCopier maps
+		// every node of the original tree. So the whole tree is copied in that case.
+		if (Constants.SHARE_UNCHANGED_SUBTREES_OF_GENERATED_TREES && isMovedToAnotherSubTree())
+		{
+			generateSharingTree();
+		}
+		else
+		{
+			mapOrigToCopy = new SimpleBidirectionalMap<ExtendedNode, ExtendedNode>();
+			this.generatedTree = recursiveGenerate(textTree.getTree(),null,false);
+			updateAntecedentInformation();
+		}
 		this.nodeToMoveNotExistInGeneratedTree = !nodeHasAlreadyBeenMoved;
 	}
 	
+	/**
+	 * Returns <tt>true</tt> in the normal case, in which both nodeToMove and newParent are
+	 * nodes of the original tree, and newParent is not in the subtree of nodeToMove.
+	 */
+	protected boolean isMovedToAnotherSubTree()
+	{
+		if (!textTree.getParentMap().containsKey(nodeToMove)) return false;
+		ExtendedNode ancestor = newParent;
+		while (textTree.getParentMap().containsKey(ancestor))
+		{
+			if (ancestor==nodeToMove) return false;
+			ancestor = textTree.getParentMap().get(ancestor);
+		}
+		return (ancestor==textTree.getTree());
+	}
+	
+	/**
+	 * Creates the generated tree by path copying: only nodeToMove, newParent and their ancestors
+	 * are copied, and the other subtrees (including the subtree of nodeToMove) are shared with the
+	 * original tree.
+	 */
+	protected void generateSharingTree()
+	{
+		Set<ExtendedNode> nodesToCopy = new LinkedHashSet<ExtendedNode>();
+		nodesToCopy.add(nodeToMove);
+		nodesToCopy.add(newParent);
+		SharingTreeCopier<ExtendedInfo, ExtendedNode> copier = new SharingTreeCopier<ExtendedInfo, ExtendedNode>(
+				textTree.getTree(), new MoveInfoConverter(), new ExtendedNodeConstructor(), nodesToCopy);
+		copier.copy();
+		this.generatedTree = copier.getGeneratedTree();
+		mapOrigToCopy = copier.getNodesMap();
+		
+		// The old parent and the new parent are copied nodes, so their children can be changed.
+		ExtendedNode movedNode = mapOrigToCopy.leftGet(nodeToMove);
+		mapOrigToCopy.leftGet(textTree.getParentMap().get(nodeToMove)).getChildren().remove(movedNode);
+		mapOrigToCopy.leftGet(newParent).addChild(movedNode);
+		nodeHasAlreadyBeenMoved = true;
+		affectedNodes.add(movedNode);
+	}
+	
+	private class MoveInfoConverter implements TreeCopier.InfoConverter<ExtendedNode, ExtendedInfo>
+	{
+		public ExtendedInfo convert(ExtendedNode node)
+		{
+			if ( (node==nodeToMove) && (newEdgeInfo!=null) )
+			{
+				return new ExtendedInfo(node.getInfo().getId(), node.getInfo().getNodeInfo(), newEdgeInfo, node.getInfo().getAdditionalNodeInformation());
+			}
+			else
+			{
+				return node.getInfo();
+			}
+		}
+	}
+	
 	
 	/**
 	 * Returns <tt>true</tt> in an abnormal case which the nodeToMove
@@ -69,7 +69,7 @@ public class OperationPostProcess
 
 	private void postProcessContentAncestor() throws TeEngineMlException
 	{
-		ContentAncestorSetter ancestorSetter = new ContentAncestorSetter(generatedTree);
+		ContentAncestorSetter ancestorSetter = new ContentAncestorSetter(generatedTree, Constants.SHARE_UNCHANGED_SUBTREES_OF_GENERATED_TREES);
 		ancestorSetter.generate();
 		BidirectionalMap<ExtendedNode, ExtendedNode> mapping = ancestorSetter.getNodesMap();
 		ExtendedNode newTree = mapping.leftGet(generatedTree);
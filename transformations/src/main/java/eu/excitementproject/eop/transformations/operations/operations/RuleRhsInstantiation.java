@@ -52,6 +52,28 @@ public class RuleRhsInstantiation<IT , ST extends AbstractNode<IT, ST>, IR, SR e
 			AbstractNodeConstructor<IT, ST> nodeConstructor, ST tree,
 			SyntacticRule<IR, SR> rule, BidirectionalMap<SR, ST> mapRuleLhsToTree,
 			IT edgeInfoForRoot)
+	{
+		this(infoServices, nodeConstructor, tree, rule, mapRuleLhsToTree, edgeInfoForRoot, false);
+	}
+
+	/**
+	 * 
+	 * @param infoServices
+	 * @param nodeConstructor
+	 * @param tree
+	 * @param rule
+	 * @param mapRuleLhsToTree
+	 * @param edgeInfoForRoot may be null. See the other constructor.
+	 * @param shareNonRuleSubTrees if <tt>true</tt>, the sub trees of the original tree that hang
+	 * on the left-hand-side instance but are not matched by the rule are not copied, but are
+	 * added as they are to the instantiation, and mapped to themselves (see
+	 * {@link eu.excitementproject.eop.common.representation.parse.tree.SharingTreeCopier}).
+	 * A sub tree in which a node has an antecedent is copied anyway.
+	 */
+	public RuleRhsInstantiation(InfoServices<IT, IR> infoServices,
+			AbstractNodeConstructor<IT, ST> nodeConstructor, ST tree,
+			SyntacticRule<IR, SR> rule, BidirectionalMap<SR, ST> mapRuleLhsToTree,
+			IT edgeInfoForRoot, boolean shareNonRuleSubTrees)
 	{
 		this.infoServices = infoServices;
 		this.nodeConstructor = nodeConstructor;
@@ -59,6 +81,7 @@ public class RuleRhsInstantiation<IT , ST extends AbstractNode<IT, ST>, IR, SR e
 		this.rule = rule;
 		this.mapRuleLhsToTree = mapRuleLhsToTree;
 		this.edgeInfoForRoot = edgeInfoForRoot;
+		this.shareNonRuleSubTrees = shareNonRuleSubTrees;
 	}
 
 
@@ -89,6 +112,11 @@ public class RuleRhsInstantiation<IT , ST extends AbstractNode<IT, ST>, IR, SR e
 
 	protected ST copyNonRuleSubTree(ST subtree)
 	{
+		if (shareNonRuleSubTrees && canBeShared(subtree))
+		{
+			mapSharedSubTree(subtree);
+			return subtree;
+		}
 		ST ret = nodeConstructor.newNode(subtree.getInfo());
 		if (subtree.getChildren()!=null)
 		{
@@ -104,6 +132,36 @@ public class RuleRhsInstantiation<IT , ST extends AbstractNode<IT, ST>, IR, SR e
 		return ret;
 	}
 	
+	/**
+	 * A sub tree can be shared if none of its nodes is matched by the rule, and none of its
+	 * nodes has an antecedent (which might not be a node of the generated tree).
+	 */
+	protected boolean canBeShared(ST subtree)
+	{
+		if (mapRuleLhsToTree.rightContains(subtree)) return false;
+		if (subtree.getAntecedent()!=null) return false;
+		if (subtree.getChildren()!=null)
+		{
+			for (ST child : subtree.getChildren())
+			{
+				if (!canBeShared(child)) return false;
+			}
+		}
+		return true;
+	}
+	
+	protected void mapSharedSubTree(ST subtree)
+	{
+		mapOrigToGenerated.put(subtree, subtree);
+		if (subtree.getChildren()!=null)
+		{
+			for (ST child : subtree.getChildren())
+			{
+				mapSharedSubTree(child);
+			}
+		}
+	}
+	
 	
 	/**
 	 * 
@@ -215,6 +273,7 @@ public class RuleRhsInstantiation<IT , ST extends AbstractNode<IT, ST>, IR, SR e
 	protected SyntacticRule<IR,SR> rule;
 	protected BidirectionalMap<SR, ST> mapRuleLhsToTree;
 	protected IT edgeInfoForRoot;
+	protected boolean shareNonRuleSubTrees;
 	
 	protected ST generatedTree;
 	protected BidirectionalMap<ST, ST> mapOrigToGenerated;
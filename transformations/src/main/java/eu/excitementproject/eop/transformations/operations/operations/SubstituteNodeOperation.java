@@ -7,12 +7,16 @@ import eu.excitementproject.eop.common.datastructures.BidirectionalMap;
 import eu.excitementproject.eop.common.datastructures.SimpleBidirectionalMap;
 import eu.excitementproject.eop.common.representation.parse.representation.basic.NodeInfo;
 import eu.excitementproject.eop.common.representation.parse.tree.AbstractNodeUtils;
+import eu.excitementproject.eop.common.representation.parse.tree.SharingTreeCopier;
 import eu.excitementproject.eop.common.representation.parse.tree.TreeAndParentMap;
+import eu.excitementproject.eop.common.representation.parse.tree.TreeCopier;
 import eu.excitementproject.eop.transformations.datastructures.FromBidirectionalMapValueSetMap;
 import eu.excitementproject.eop.transformations.operations.OperationException;
 import eu.excitementproject.eop.transformations.representation.AdditionalNodeInformation;
 import eu.excitementproject.eop.transformations.representation.ExtendedInfo;
 import eu.excitementproject.eop.transformations.representation.ExtendedNode;
+import eu.excitementproject.eop.transformations.representation.ExtendedNodeConstructor;
+import eu.excitementproject.eop.transformations.utilities.Constants;
 
 
 /**
@@ -21,6 +25,9 @@ import eu.excitementproject.eop.transformations.representation.ExtendedNode;
  * <BR>
  * An example is a lexical-rule application which is a substitution of node's
  * contents according to the rule's left-hand-side and right-hand-side.
+ * <P>
+ * If {@link Constants#SHARE_UNCHANGED_SUBTREES_OF_GENERATED_TREES} is true, only the substituted node
+ * and its ancestors are copied, and the other subtrees are shared with the original tree.
  * 
  * @author Asher Stern
  * @since Jan 16, 2011
@@ -40,10 +47,22 @@ public class SubstituteNodeOperation extends GenerationOperationForExtendedNode
 	@Override
 	protected void generateTheTree() throws OperationException
 	{
-		mapOrigToGenerated = new SimpleBidirectionalMap<ExtendedNode, ExtendedNode>();
 		affectedNodes = new LinkedHashSet<ExtendedNode>();
-		this.generatedTree = copySubTree(this.textTree.getTree());
-		updateAntecedents();
+		if (Constants.SHARE_UNCHANGED_SUBTREES_OF_GENERATED_TREES)
+		{
+			SharingTreeCopier<ExtendedInfo, ExtendedNode> copier = new SharingTreeCopier<ExtendedInfo, ExtendedNode>(
+					this.textTree.getTree(), new SubstitutionInfoConverter(), new ExtendedNodeConstructor());
+			copier.copy();
+			this.generatedTree = copier.getGeneratedTree();
+			mapOrigToGenerated = copier.getNodesMap();
+			affectedNodes.add(mapOrigToGenerated.leftGet(nodeToSubstitute));
+		}
+		else
+		{
+			mapOrigToGenerated = new SimpleBidirectionalMap<ExtendedNode, ExtendedNode>();
+			this.generatedTree = copySubTree(this.textTree.getTree());
+			updateAntecedents();
+		}
 	}
 	
 	
@@ -57,17 +76,29 @@ public class SubstituteNodeOperation extends GenerationOperationForExtendedNode
 	}
 
 	
-	private ExtendedNode copySubTree(ExtendedNode root)
+	private ExtendedInfo generatedInfo(ExtendedNode node)
 	{
-		ExtendedInfo generatedRootInfo = null;
-		if (root==nodeToSubstitute)
+		if (node==nodeToSubstitute)
 		{
-			generatedRootInfo = new ExtendedInfo(root.getInfo().getId(), newNodeInfo, root.getInfo().getEdgeInfo(), newAdditionalNodeInformation);
+			return new ExtendedInfo(node.getInfo().getId(), newNodeInfo, node.getInfo().getEdgeInfo(), newAdditionalNodeInformation);
 		}
 		else
 		{
-			generatedRootInfo = root.getInfo();
+			return node.getInfo();
+		}
+	}
+	
+	private class SubstitutionInfoConverter implements TreeCopier.InfoConverter<ExtendedNode, ExtendedInfo>
+	{
+		public ExtendedInfo convert(ExtendedNode node)
+		{
+			return generatedInfo(node);
 		}
+	}
+	
+	private ExtendedNode copySubTree(ExtendedNode root)
+	{
+		ExtendedInfo generatedRootInfo = generatedInfo(root);
 		
 		ArrayList<ExtendedNode> generatedChildren = null;
 		if (root.getChildren()!=null)
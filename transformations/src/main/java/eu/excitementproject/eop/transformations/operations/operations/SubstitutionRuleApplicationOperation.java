@@ -1,4 +1,8 @@
 package eu.excitementproject.eop.transformations.operations.operations;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
 import eu.excitementproject.eop.common.component.syntacticknowledge.SyntacticRule;
 import eu.excitementproject.eop.common.datastructures.BidirectionalMap;
 import eu.excitementproject.eop.common.datastructures.SimpleBidirectionalMap;
@@ -6,10 +10,14 @@ import eu.excitementproject.eop.common.representation.parse.representation.basic
 import eu.excitementproject.eop.common.representation.parse.representation.basic.InfoGetFields;
 import eu.excitementproject.eop.common.representation.parse.tree.AbstractNode;
 import eu.excitementproject.eop.common.representation.parse.tree.AbstractNodeConstructor;
+import eu.excitementproject.eop.common.representation.parse.tree.AbstractNodeUtils;
+import eu.excitementproject.eop.common.representation.parse.tree.SharingTreeCopier;
 import eu.excitementproject.eop.common.representation.parse.tree.TreeAndParentMap;
+import eu.excitementproject.eop.common.representation.parse.tree.TreeCopier;
 import eu.excitementproject.eop.transformations.datastructures.DsUtils;
 import eu.excitementproject.eop.transformations.datastructures.FromBidirectionalMapValueSetMap;
 import eu.excitementproject.eop.transformations.operations.OperationException;
+import eu.excitementproject.eop.transformations.utilities.Constants;
 import eu.excitementproject.eop.transformations.utilities.InfoServices;
 import eu.excitementproject.eop.transformations.utilities.TeEngineMlException;
 
@@ -17,6 +25,10 @@ import eu.excitementproject.eop.transformations.utilities.TeEngineMlException;
  * This class performs the regular <B>rule application</B>.
  * It replaces the left-hand-side instance in the given tree by the instantiation
  * of the right hand side. 
+ * <P>
+ * If {@link Constants#SHARE_UNCHANGED_SUBTREES_OF_GENERATED_TREES} is true, only the ancestors of the
+ * left-hand-side instance are copied, and the sub trees that are not changed by the rule are shared with
+ * the original tree.
  * 
  * @author Asher Stern
  * @since February  2011
@@ -64,7 +76,14 @@ public abstract class SubstitutionRuleApplicationOperation
 		}
 		try
 		{
-			generatedTree = copySubTree(this.textTree.getTree());
+			if (Constants.SHARE_UNCHANGED_SUBTREES_OF_GENERATED_TREES)
+			{
+				generateSharingTree();
+			}
+			else
+			{
+				generatedTree = copySubTree(this.textTree.getTree());
+			}
 		}
 		catch(TeEngineMlException e)
 		{
@@ -131,6 +150,81 @@ public abstract class SubstitutionRuleApplicationOperation
 	}
 
 	
+	/**
+	 * Creates the generated tree by path copying: only the ancestors of the left-hand-side instance are copied,
+	 * and the left-hand-side instance is replaced by the instantiation of the right-hand-side, which shares the
+	 * sub trees that are not matched by the rule. The other sub trees are shared with the original tree.
+	 * <BR>
+	 * A node outside the left-hand-side instance whose antecedent is in that instance is copied as well. The
+	 * antecedent of a copied node is the generated node of its original antecedent (or <tt>null</tt> if the rule
+	 * has removed it).
+	 * 
+	 * @throws TeEngineMlException
+	 */
+	protected void generateSharingTree() throws TeEngineMlException
+	{
+		TN originalTree = this.textTree.getTree();
+		Set<TN> instanceNodes = AbstractNodeUtils.treeToLinkedHashSet(rootOfLhsInTree);
+		Set<TN> nodesToCopy = new LinkedHashSet<TN>();
+		nodesToCopy.add(rootOfLhsInTree);
+		for (TN node : AbstractNodeUtils.treeToLinkedHashSet(originalTree))
+		{
+			if ( (!instanceNodes.contains(node)) && (instanceNodes.contains(node.getAntecedent())) )
+			{
+				nodesToCopy.add(node);
+			}
+		}
+		SharingTreeCopier<TI, TN> copier = new SharingTreeCopier<TI, TN>(originalTree, new IdentityInfoConverter(), nodeConstructor, nodesToCopy);
+		copier.copy();
+		BidirectionalMap<TN, TN> copierMap = copier.getNodesMap();
+		for (TN originalNode : copierMap.leftSet())
+		{
+			if (!instanceNodes.contains(originalNode))
+			{
+				bidiMapOrigToGenerated.put(originalNode, copierMap.leftGet(originalNode));
+			}
+		}
+		
+		rhsInstantiation = new RuleRhsInstantiation<TI, TN, RI, RN>(
+				getNewInfoServices(), nodeConstructor, originalTree,
+				rule, mapLhsToTree, rootOfLhsInTree.getInfo(), true);
+		rhsInstantiation.generate();
+		TN generatedInstance = rhsInstantiation.getGeneratedTree();
+		DsUtils.BidiMapAddAll(bidiMapOrigToGenerated, rhsInstantiation.getMapOrigToGenerated());
+		affectedNodes = rhsInstantiation.getAffectedNodes();
+		
+		if (originalTree==rootOfLhsInTree)
+		{
+			generatedTree = generatedInstance;
+		}
+		else
+		{
+			generatedTree = copier.getGeneratedTree();
+			// the parent is a copied node, so its children can be changed.
+			List<TN> generatedParentChildren = copierMap.leftGet(textTree.getParentMap().get(rootOfLhsInTree)).getChildren();
+			generatedParentChildren.set(generatedParentChildren.indexOf(copierMap.leftGet(rootOfLhsInTree)), generatedInstance);
+		}
+		
+		// The shared nodes have antecedents that are shared as well. The antecedent of each new node is the
+		// generated node of its original antecedent.
+		for (TN originalNode : bidiMapOrigToGenerated.leftSet())
+		{
+			TN generatedNode = bidiMapOrigToGenerated.leftGet(originalNode);
+			if ( (generatedNode!=originalNode) && (originalNode.getAntecedent()!=null) )
+			{
+				generatedNode.setAntecedent(bidiMapOrigToGenerated.leftGet(originalNode.getAntecedent()));
+			}
+		}
+	}
+	
+	private class IdentityInfoConverter implements TreeCopier.InfoConverter<TN, TI>
+	{
+		public TI convert(TN node)
+		{
+			return node.getInfo();
+		}
+	}
+	
 	/**
 	 * return a new implementation of {@link AbstractNodeConstructor} to match the generic types
 	 * @return
@@ -74,6 +74,13 @@ public class DirtDBRuleBase implements RuleBase<Info,BasicNode>
 	{
 		try
 		{
+			// Load from a rules file (written by DirtRulesFileExporter) - the file is mapped to memory, and the data-base is not queried at all.
+			if (params.containsKey(TransformationsConfigurationParametersNames.DIRT_LIKE_RULES_FILE_PARAMETER_NAME))
+			{
+				File rulesFile = params.getFile(TransformationsConfigurationParametersNames.DIRT_LIKE_RULES_FILE_PARAMETER_NAME);
+				return new DirtDBRuleBase(rulesFile,ruleBaseName,params.getInt(LIMIT_NUMBER_OF_RULES),parser);
+			}
+
 			// Load from ser file - means that the data-base is stored in a set file, so we do not query the data-base at all.
 			// This option is NOT RECOMMENDED, and NOT IN USE!
 			boolean loadFromSerFile = false;
@@ -188,6 +195,35 @@ public class DirtDBRuleBase implements RuleBase<Info,BasicNode>
 		}
 	}
 
+	/**
+	 * Creates the rule-base from a {@link DirtRulesFile} (written by {@link DirtRulesFileExporter}), instead of the data-base.
+	 * The file is mapped to memory, and shared by all the rule-bases of the same file in this JVM.
+	 * @param rulesFile
+	 * @param ruleBaseName
+	 * @param limitNumberOfRules the maximum number of rules retrieved for a template (the limit of the data-base queries).
+	 * @param parser
+	 * @throws RuleBaseException
+	 */
+	public DirtDBRuleBase(File rulesFile, String ruleBaseName, int limitNumberOfRules, PARSER parser) throws RuleBaseException
+	{
+		this.parser = parser;
+
+		if (!constantsOK()) throw new RuleBaseException("constants no OK");
+
+		this.ruleBaseName = ruleBaseName;
+		this.limitNumberOfRules = limitNumberOfRules;
+		try
+		{
+			logger.info("DirtDBRuleBase "+this.ruleBaseName+": Mapping rules file "+rulesFile.getPath()+"...");
+			this.rulesFile = DirtRulesFile.open(rulesFile);
+			logger.info("done. "+this.rulesFile.getNumberOfTemplates()+" templates and "+this.rulesFile.getNumberOfRules()+" rules are in the file.");
+		}
+		catch (IOException e)
+		{
+			throw new RuleBaseException("Failed to map the rules file for rule base: "+ruleBaseName+".",e);
+		}
+	}
+
 	public void terminate()
 	{
 		try
@@ -195,6 +231,7 @@ public class DirtDBRuleBase implements RuleBase<Info,BasicNode>
 			if (logger.isDebugEnabled()){logger.debug("Terminating rule base: "+this.ruleBaseName);}
 			this.mapTemplateToId=null;
 			this.mapAllRules=null;
+			this.rulesFile=null;
 			if (this.connection!=null)
 				this.connection.close();
 		}
@@ -307,7 +344,15 @@ public class DirtDBRuleBase implements RuleBase<Info,BasicNode>
 	protected Integer getIdForTemplate(String template) throws SQLException
 	{
 		Integer id = null;
-		if(mapTemplateToId!=null)
+		if (rulesFile!=null)
+		{
+			int idInFile = rulesFile.getId(template);
+			if (idInFile>=0)
+			{
+				id = idInFile;
+			}
+		}
+		else if(mapTemplateToId!=null)
 		{
 			if (this.mapTemplateToId.leftContains(template))
 			{
@@ -375,24 +420,34 @@ public class DirtDBRuleBase implements RuleBase<Info,BasicNode>
 			else
 			{
 				rhsResults = new LinkedHashSet<TemplateAndScore>();
-				
-				// Execute a query which returns all right-hand-sides of rules that have the given template as "left-hand-side".
-				// Remember that in the data-base the "right-hand-side" is stored in "left" column, and "left-hand-side" is stored
-				// in "right" column.
-				statementRuleForId.setInt(1, id);
-				ResultSet resultSet = statementRuleForId.executeQuery();
-				while (resultSet.next())
+
+				if (rulesFile!=null) // The rules file keeps the right-hand-sides of each left-hand-side, in decreasing order of score.
 				{
-					// Get the template of the "right-hand-side"
-					String description = resultSet.getString("description");
-					// description = description.trim();
-					
-					// Get the score of the rule.
-					double score = resultSet.getDouble("score");
-					rhsResults.add(new TemplateAndScore(description, score));
+					for (IdAndScore idAndScore : rulesFile.getEntailedTemplates(id, limitNumberOfRules))
+					{
+						rhsResults.add(new TemplateAndScore(rulesFile.getTemplate(idAndScore.getId()), idAndScore.getScore()));
+					}
+				}
+				else
+				{
+					// Execute a query which returns all right-hand-sides of rules that have the given template as "left-hand-side".
+					// Remember that in the data-base the "right-hand-side" is stored in "left" column, and "left-hand-side" is stored
+					// in "right" column.
+					statementRuleForId.setInt(1, id);
+					ResultSet resultSet = statementRuleForId.executeQuery();
+					while (resultSet.next())
+					{
+						// Get the template of the "right-hand-side"
+						String description = resultSet.getString("description");
+						// description = description.trim();
+
+						// Get the score of the rule.
+						double score = resultSet.getDouble("score");
+						rhsResults.add(new TemplateAndScore(description, score));
+					}
 				}
 				cache.put(template, rhsResults);
-				if (logger.isDebugEnabled()){logger.debug(""+rhsResults.size()+" templates loaded from data-base for template"+template);}
+				if (logger.isDebugEnabled()){logger.debug(""+rhsResults.size()+" templates loaded from rule base for template"+template);}
 			}
 			
 			// For each "right-hand-side" and "score" - we can build a rule, since we know the left-hand-side - it is the given template.
@@ -750,7 +805,11 @@ public class DirtDBRuleBase implements RuleBase<Info,BasicNode>
 		{
 			results = new LinkedHashSet<IdAndScore>();
 			Integer id = getIdForTemplate(hypothesisTemplate);
-			if (id != null)
+			if ( (id != null) && (rulesFile!=null) )
+			{
+				results.addAll(rulesFile.getEntailingTemplates(id, limitNumberOfRules));
+			}
+			else if (id != null)
 			{
 				statementRightElementIdForGivenLeftElementId.setInt(1, id);
 				ResultSet resultSet = statementRightElementIdForGivenLeftElementId.executeQuery();
@@ -826,6 +885,13 @@ public class DirtDBRuleBase implements RuleBase<Info,BasicNode>
 	protected BidirectionalMap<String, Integer> mapTemplateToId = null;
 	
 	protected ValueSetMap<Integer, IdAndScore> mapAllRules = null;
+
+	/**
+	 * The memory-mapped rules, if the rule base was created from a rules file (and not from the data-base).
+	 * Its IDs are not the IDs of the data-base.
+	 */
+	protected DirtRulesFile rulesFile = null;
+	protected int limitNumberOfRules;
 	
 	/**
 	 * A cache that stores sets of right-hand-sides for given left-hand-sides
@@ -0,0 +1,237 @@
+package eu.excitementproject.eop.transformations.operations.rules.distsimnew;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import eu.excitementproject.eop.common.codeannotations.ThreadSafe;
+
+/**
+ * A read-only, memory-mapped file of a DIRT-like rule base, written by {@link DirtRulesFileExporter}.
+ * It replaces the data-base (and the serialization file of {@link WholeDBLoader}) in {@link DirtDBRuleBase}.
+ * <P>
+ * The file is columnar: a table of all the templates, sorted by their UTF-8 bytes (a template's ID in the
+ * file is its index in the table, so a template is found by a binary search), and the rules twice, as
+ * adjacency lists of template IDs (offsets, IDs and <code>float</code> scores), once by the entailing
+ * template and once by the entailed template, each list in decreasing order of score.
+ * <P>
+ * Nothing is loaded to the heap. The file is mapped once per JVM (see {@link #open(File)}), so all the threads
+ * share it, and the pages are shared by all the JVMs on the host through the operating-system's page cache.
+ * <P>
+ * <B>Thread safe</B>
+ *
+ * @see DirtRulesFileExporter
+ */
+@ThreadSafe
+public final class DirtRulesFile
+{
+	/**
+	 * Returns the mapping of the given file. The file is mapped when it is first opened, and the same
+	 * instance is returned to all the callers in this JVM.
+	 *
+	 * @param file a file written by {@link DirtRulesFileExporter}
+	 * @return the mapped file
+	 * @throws IOException
+	 */
+	public static DirtRulesFile open(File file) throws IOException
+	{
+		String path = file.getCanonicalPath();
+		synchronized(openFiles)
+		{
+			DirtRulesFile rulesFile = openFiles.get(path);
+			if (null==rulesFile)
+			{
+				rulesFile = new DirtRulesFile(file);
+				openFiles.put(path, rulesFile);
+			}
+			return rulesFile;
+		}
+	}
+
+	/**
+	 * @return the number of templates in the file
+	 */
+	public int getNumberOfTemplates()
+	{
+		return numberOfTemplates;
+	}
+
+	/**
+	 * @return the number of rules in the file
+	 */
+	public int getNumberOfRules()
+	{
+		return numberOfRules;
+	}
+
+	/**
+	 * Given a template, returns its ID in the file, or -1 if the file does not contain it.
+	 * (These IDs are not the IDs of the data-base).
+	 * @param template
+	 * @return
+	 */
+	public int getId(String template)
+	{
+		byte[] key = template.getBytes(UTF8);
+		int low = 0;
+		int high = numberOfTemplates-1;
+		while (low<=high)
+		{
+			int middle = (low+high)>>>1;
+			int comparison = compare(middle, key);
+			if (comparison<0)
+				low = middle+1;
+			else if (comparison>0)
+				high = middle-1;
+			else
+				return middle;
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the template of the given ID
+	 * @param id an ID in the file, as returned by {@link #getId(String)}
+	 * @return
+	 */
+	public String getTemplate(int id)
+	{
+		checkId(id);
+		int start = buffer.getInt(templateOffsetsPosition+4*id);
+		int end = buffer.getInt(templateOffsetsPosition+4*(id+1));
+		byte[] bytes = new byte[end-start];
+		ByteBuffer duplicate = buffer.duplicate();
+		duplicate.position(templatesPosition+start);
+		duplicate.get(bytes);
+		return new String(bytes, UTF8);
+	}
+
+	/**
+	 * Returns the templates entailed by the template of the given ID, i.e. the right-hand-sides of the rules
+	 * whose left-hand-side is that template (in the data-base: the left elements of the rows whose right
+	 * element is that template).
+	 * @param id
+	 * @param limit the maximum number of rules
+	 * @return The IDs of the entailed templates and the scores of the rules, in decreasing order of score.
+	 */
+	public List<IdAndScore> getEntailedTemplates(int id, int limit)
+	{
+		return adjacency(byEntailingPosition, id, limit);
+	}
+
+	/**
+	 * Returns the templates that entail the template of the given ID, i.e. the left-hand-sides of the rules
+	 * whose right-hand-side is that template (in the data-base: the right elements of the rows whose left
+	 * element is that template).
+	 * @param id
+	 * @param limit the maximum number of rules
+	 * @return The IDs of the entailing templates and the scores of the rules, in decreasing order of score.
+	 */
+	public List<IdAndScore> getEntailingTemplates(int id, int limit)
+	{
+		return adjacency(byEntailedPosition, id, limit);
+	}
+
+
+
+	private DirtRulesFile(File file) throws IOException
+	{
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+		try
+		{
+			FileChannel channel = randomAccessFile.getChannel();
+			if (channel.size()>Integer.MAX_VALUE) throw new IOException(file+" is too large to be mapped to memory");
+			this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).asReadOnlyBuffer();
+		}
+		finally
+		{
+			randomAccessFile.close();
+		}
+		if ( (buffer.capacity()<HEADER_SIZE) || (buffer.getInt(0)!=MAGIC) ) throw new IOException(file+" is not a DIRT rules file");
+		int version = buffer.getInt(4);
+		if (version!=VERSION) throw new IOException(file+" has version "+version+", expected "+VERSION);
+		this.numberOfTemplates = buffer.getInt(8);
+		this.numberOfRules = buffer.getInt(12);
+
+		this.templateOffsetsPosition = HEADER_SIZE;
+		this.templatesPosition = templateOffsetsPosition+4*(numberOfTemplates+1);
+		this.byEntailingPosition = templatesPosition+buffer.getInt(templatesPosition-4);
+		this.byEntailedPosition = byEntailingPosition+adjacencySize();
+		if (byEntailedPosition+adjacencySize()!=buffer.capacity()) throw new IOException(file+" is truncated or malformed");
+	}
+
+	private int adjacencySize()
+	{
+		return 4*(numberOfTemplates+1)+8*numberOfRules;
+	}
+
+	/**
+	 * An adjacency block starts with the offsets of the lists (int[numberOfTemplates+1]), followed by
+	 * the IDs (int[numberOfRules]) and the scores (float[numberOfRules]) of all the lists.
+	 */
+	private List<IdAndScore> adjacency(int position, int id, int limit)
+	{
+		checkId(id);
+		int start = buffer.getInt(position+4*id);
+		int end = buffer.getInt(position+4*(id+1));
+		if ( (limit>=0) && (end-start>limit) )
+			end = start+limit;
+		int idsPosition = position+4*(numberOfTemplates+1);
+		int scoresPosition = idsPosition+4*numberOfRules;
+		List<IdAndScore> ret = new ArrayList<IdAndScore>(end-start);
+		for (int index=start;index<end;++index)
+		{
+			ret.add(new IdAndScore(buffer.getInt(idsPosition+4*index), buffer.getFloat(scoresPosition+4*index)));
+		}
+		return ret;
+	}
+
+	/**
+	 * Compares the template of the given ID with the given key, by their unsigned bytes
+	 */
+	private int compare(int id, byte[] key)
+	{
+		int start = templatesPosition+buffer.getInt(templateOffsetsPosition+4*id);
+		int length = templatesPosition+buffer.getInt(templateOffsetsPosition+4*(id+1))-start;
+		int common = Math.min(length, key.length);
+		for (int index=0;index<common;++index)
+		{
+			int difference = (buffer.get(start+index) & 0xFF) - (key[index] & 0xFF);
+			if (difference!=0) return difference;
+		}
+		return length-key.length;
+	}
+
+	private void checkId(int id)
+	{
+		if ( (id<0) || (id>=numberOfTemplates) ) throw new IndexOutOfBoundsException("Template ID "+id+" is not in the file. Number of templates: "+numberOfTemplates);
+	}
+
+
+	/**
+	 * The file starts with {@link #MAGIC}, {@link #VERSION}, the number of templates and the number of rules,
+	 * followed by the offsets of the templates (int[numberOfTemplates+1]), the templates (UTF-8), and two
+	 * adjacency blocks (see {@link #adjacency(int, int, int)}): by the entailing template, and by the entailed
+	 * template. All the numbers are big-endian.
+	 */
+	static final int MAGIC = 0x44495254; // "DIRT"
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 16;
+	static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private static final Map<String, DirtRulesFile> openFiles = new HashMap<String, DirtRulesFile>();
+
+	private final ByteBuffer buffer;
+	private final int numberOfTemplates;
+	private final int numberOfRules;
+	private final int templateOffsetsPosition;
+	private final int templatesPosition;
+	private final int byEntailingPosition;
+	private final int byEntailedPosition;
+}
@@ -0,0 +1,345 @@
+package eu.excitementproject.eop.transformations.operations.rules.distsimnew;
+import static eu.excitementproject.eop.transformations.utilities.TransformationsConfigurationParametersNames.DB_DRIVER;
+import static eu.excitementproject.eop.transformations.utilities.TransformationsConfigurationParametersNames.DB_URL;
+import static eu.excitementproject.eop.transformations.utilities.TransformationsConfigurationParametersNames.RULES_TABLE_NAME;
+import static eu.excitementproject.eop.transformations.utilities.TransformationsConfigurationParametersNames.TEMPLATES_TABLE_NAME;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+
+import eu.excitementproject.eop.common.utilities.ExceptionUtil;
+import eu.excitementproject.eop.common.utilities.configuration.ConfigurationFile;
+import eu.excitementproject.eop.common.utilities.configuration.ConfigurationParams;
+import eu.excitementproject.eop.common.utilities.log4j.BasicVerySimpleLoggerInitializer;
+import eu.excitementproject.eop.transformations.operations.rules.RuleBaseException;
+
+/**
+ * Exports a DIRT-like data-base (a templates table and a rules table) to a {@link DirtRulesFile}.
+ * <P>
+ * The data-base is read by two queries (one per table), whose rows are streamed. All the rules are
+ * exported, regardless of the limit on the number of rules, which {@link DirtDBRuleBase} applies when
+ * it reads the file. Rules one of whose templates is not in the templates table (or has an empty
+ * description) are dropped, since they can never be matched.
+ * <P>
+ * Usage: <code>DirtRulesFileExporter &lt;configuration file&gt; &lt;module&gt; &lt;output file&gt;</code>, where the
+ * module has the data-base parameters of the rule base (driver, url, templates table and rules table).
+ *
+ * @see DirtRulesFile
+ */
+public class DirtRulesFileExporter
+{
+	public DirtRulesFileExporter(Connection connection, String templatesTableName, String rulesTableName)
+	{
+		super();
+		this.connection = connection;
+		this.templatesTableName = templatesTableName;
+		this.rulesTableName = rulesTableName;
+	}
+
+	/**
+	 * Writes the data-base to the given file
+	 * @param file
+	 * @return the number of exported rules
+	 * @throws SQLException
+	 * @throws IOException
+	 * @throws RuleBaseException
+	 */
+	public int export(File file) throws SQLException, IOException, RuleBaseException
+	{
+		logger.info("Loading templates...");
+		loadTemplates();
+		logger.info("Loading templates done. "+templates.length+" templates were loaded.");
+		logger.info("Loading rules...");
+		loadRules();
+		logger.info("Loading rules done. "+numberOfRules+" rules were loaded.");
+
+		DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+		try
+		{
+			output.writeInt(DirtRulesFile.MAGIC);
+			output.writeInt(DirtRulesFile.VERSION);
+			output.writeInt(templates.length);
+			output.writeInt(numberOfRules);
+
+			int offset = 0;
+			output.writeInt(offset);
+			for (byte[] template : templates)
+			{
+				offset += template.length;
+				output.writeInt(offset);
+			}
+			for (byte[] template : templates)
+			{
+				output.write(template);
+			}
+
+			// in the data-base, "right" entails "left"
+			writeAdjacency(output, rights, lefts);
+			writeAdjacency(output, lefts, rights);
+		}
+		finally
+		{
+			output.close();
+		}
+		return numberOfRules;
+	}
+
+	/**
+	 * Stores DB in a {@link DirtRulesFile}
+	 * @param args
+	 */
+	public static void main(String[] args)
+	{
+		try
+		{
+			if (args.length<3)
+			{
+				System.out.println("Usage: eu.excitementproject.eop.transformations.operations.rules.distsimnew.DirtRulesFileExporter <configuration file> <module> <output file>");
+				System.exit(0);
+			}
+			new BasicVerySimpleLoggerInitializer().initLogger();
+			ConfigurationFile confFile = new ConfigurationFile(args[0]);
+			ConfigurationParams params = confFile.getModuleConfiguration(args[1]);
+
+			Class.forName(params.get(DB_DRIVER));
+			Connection connection = DriverManager.getConnection(params.get(DB_URL));
+			try
+			{
+				DirtRulesFileExporter exporter = new DirtRulesFileExporter(connection, params.get(TEMPLATES_TABLE_NAME), params.get(RULES_TABLE_NAME));
+				System.out.println("Exported "+exporter.export(new File(args[2]))+" rules.");
+			}
+			finally
+			{
+				connection.close();
+			}
+		}
+		catch(Exception e)
+		{
+			ExceptionUtil.outputException(e, System.out);
+			try{ExceptionUtil.logException(e, logger);}catch(Exception ex){}
+		}
+	}
+
+
+	////////////////////////////////////////////////// PRIVATE	///////////////////////////////////////////////////
+
+	/**
+	 * Reads the templates, and sorts them by their UTF-8 bytes, so that the ID of a template in the file is its index.
+	 * Builds the map from the data-base IDs to the file IDs (dbIds, sorted, and fileIds).
+	 */
+	private void loadTemplates() throws SQLException, RuleBaseException
+	{
+		List<DbTemplate> dbTemplates = new ArrayList<DbTemplate>();
+		Statement statement = streamingStatement();
+		try
+		{
+			ResultSet resultSet = statement.executeQuery("SELECT id,description FROM "+templatesTableName);
+			while (resultSet.next())
+			{
+				String description = resultSet.getString("description");
+				if (!description.isEmpty()) // as in WholeDBLoader: rows with an empty description are duplicates of other rows
+				{
+					dbTemplates.add(new DbTemplate(resultSet.getInt("id"), description.getBytes(DirtRulesFile.UTF8)));
+				}
+			}
+			resultSet.close();
+		}
+		finally
+		{
+			statement.close();
+		}
+
+		Collections.sort(dbTemplates, new Comparator<DbTemplate>()
+		{
+			@Override
+			public int compare(DbTemplate template1, DbTemplate template2)
+			{
+				return compareBytes(template1.description, template2.description);
+			}
+		});
+		templates = new byte[dbTemplates.size()][];
+		for (int index=0;index<templates.length;++index)
+		{
+			templates[index] = dbTemplates.get(index).description;
+			if ( (index>0) && (compareBytes(templates[index-1], templates[index])==0) )
+				throw new RuleBaseException("Malformed rule base. Template "+new String(templates[index], DirtRulesFile.UTF8)+" appears more than once.");
+		}
+
+		// sorting the pairs (dbId, fileId) by dbId
+		long[] idPairs = new long[templates.length];
+		for (int index=0;index<templates.length;++index)
+		{
+			idPairs[index] = (((long)dbTemplates.get(index).id)<<32) | index;
+		}
+		Arrays.sort(idPairs);
+		dbIds = new int[templates.length];
+		fileIds = new int[templates.length];
+		for (int index=0;index<idPairs.length;++index)
+		{
+			dbIds[index] = (int)(idPairs[index]>>>32);
+			fileIds[index] = (int)idPairs[index];
+			if ( (index>0) && (dbIds[index-1]==dbIds[index]) ) throw new RuleBaseException("Malformed rule base. Template ID "+dbIds[index]+" appears more than once.");
+		}
+	}
+
+	/**
+	 * Reads the rules into the columns lefts, rights and scores, with file IDs
+	 */
+	private void loadRules() throws SQLException
+	{
+		lefts = new int[INITIAL_CAPACITY];
+		rights = new int[INITIAL_CAPACITY];
+		scores = new float[INITIAL_CAPACITY];
+		numberOfRules = 0;
+		Statement statement = streamingStatement();
+		try
+		{
+			ResultSet resultSet = statement.executeQuery("SELECT left_element_id,right_element_id,score FROM "+rulesTableName);
+			while (resultSet.next())
+			{
+				int left = fileId(resultSet.getInt("left_element_id"));
+				int right = fileId(resultSet.getInt("right_element_id"));
+				if ( (left<0) || (right<0) ) continue;
+				if (numberOfRules==lefts.length)
+				{
+					int capacity = lefts.length*2;
+					lefts = Arrays.copyOf(lefts, capacity);
+					rights = Arrays.copyOf(rights, capacity);
+					scores = Arrays.copyOf(scores, capacity);
+				}
+				lefts[numberOfRules] = left;
+				rights[numberOfRules] = right;
+				scores[numberOfRules] = (float)resultSet.getDouble("score");
+				++numberOfRules;
+			}
+			resultSet.close();
+		}
+		finally
+		{
+			statement.close();
+		}
+	}
+
+	/**
+	 * Writes the rules grouped by the given keys: the offsets of the groups, then the values and the scores,
+	 * each group in decreasing order of score.
+	 */
+	private void writeAdjacency(DataOutputStream output, int[] keys, int[] values) throws IOException
+	{
+		int[] offsets = new int[templates.length+1];
+		for (int index=0;index<numberOfRules;++index)
+		{
+			++offsets[keys[index]+1];
+		}
+		for (int key=0;key<templates.length;++key)
+		{
+			offsets[key+1] += offsets[key];
+		}
+
+		// Each rule is placed in its group as (score, rule index), encoded in a long whose natural order
+		// is decreasing score.
+		long[] group = new long[numberOfRules];
+		int[] next = Arrays.copyOf(offsets, templates.length);
+		for (int index=0;index<numberOfRules;++index)
+		{
+			group[next[keys[index]]++] = (((long)~sortableBits(scores[index]))<<32) | index;
+		}
+		for (int key=0;key<templates.length;++key)
+		{
+			Arrays.sort(group, offsets[key], offsets[key+1]);
+		}
+
+		for (int offset : offsets)
+		{
+			output.writeInt(offset);
+		}
+		for (long rule : group)
+		{
+			output.writeInt(values[(int)rule]);
+		}
+		for (long rule : group)
+		{
+			output.writeFloat(scores[(int)rule]);
+		}
+	}
+
+	/**
+	 * @return an int whose signed order is the order of the given float
+	 */
+	private static int sortableBits(float score)
+	{
+		int bits = Float.floatToIntBits(score);
+		return bits ^ ((bits>>31) & 0x7FFFFFFF);
+	}
+
+	/**
+	 * @return the file ID of the given data-base ID, or -1 if the templates table does not contain it
+	 */
+	private int fileId(int dbId)
+	{
+		int index = Arrays.binarySearch(dbIds, dbId);
+		return (index<0) ? -1 : fileIds[index];
+	}
+
+	private Statement streamingStatement() throws SQLException
+	{
+		Statement statement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+		statement.setFetchSize(Integer.MIN_VALUE);	// stream the rows (MySQL)
+		return statement;
+	}
+
+	private static int compareBytes(byte[] bytes1, byte[] bytes2)
+	{
+		int common = Math.min(bytes1.length, bytes2.length);
+		for (int index=0;index<common;++index)
+		{
+			int difference = (bytes1[index] & 0xFF) - (bytes2[index] & 0xFF);
+			if (difference!=0) return difference;
+		}
+		return bytes1.length-bytes2.length;
+	}
+
+	private static final class DbTemplate
+	{
+		public DbTemplate(int id, byte[] description)
+		{
+			this.id = id;
+			this.description = description;
+		}
+		private final int id;
+		private final byte[] description;
+	}
+
+
+	private static final int INITIAL_CAPACITY = 1<<16;
+
+	private final Connection connection;
+	private final String templatesTableName;
+	private final String rulesTableName;
+
+	private byte[][] templates;
+	private int[] dbIds;
+	private int[] fileIds;
+
+	private int[] lefts;
+	private int[] rights;
+	private float[] scores;
+	private int numberOfRules;
+
+	private static final Logger logger = Logger.getLogger(DirtRulesFileExporter.class);
+}
@@ -373,14 +373,31 @@ public class AdditionalNodeInformation implements Serializable
 		if (getClass() != obj.getClass())
 			return false;
 		AdditionalNodeInformation other = (AdditionalNodeInformation) obj;
-		if (clauseTruth != other.clauseTruth)
-			return false;
 		if (contentAncestor == null)
 		{
 			if (other.contentAncestor != null)
 				return false;
 		} else if (!contentAncestor.equals(other.contentAncestor))
 			return false;
+		return equalsIgnoreContentAncestor(other);
+	}
+	
+	/**
+	 * Returns <tt>true</tt> if all the fields of this object and the given object, except the
+	 * content ancestor, are equal.
+	 * @param other
+	 * @return
+	 */
+	public boolean equalsIgnoreContentAncestor(AdditionalNodeInformation other)
+	{
+		if (this == other)
+			return true;
+		if (other == null)
+			return false;
+		if (getClass() != other.getClass())
+			return false;
+		if (clauseTruth != other.clauseTruth)
+			return false;
 		if (corefGroupId == null)
 		{
 			if (other.corefGroupId != null)
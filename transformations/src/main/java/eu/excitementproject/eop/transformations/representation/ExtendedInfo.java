@@ -33,6 +33,25 @@ public class ExtendedInfo extends DefaultInfo
 		return additionalNodeInformation;
 	}
 	
+	/**
+	 * Returns <tt>true</tt> if this information is equal to the given information, except,
+	 * maybe, their content ancestors (see {@link AdditionalNodeInformation#getContentAncestor()}).
+	 * @param other
+	 * @return
+	 */
+	public boolean equalsIgnoreContentAncestor(ExtendedInfo other)
+	{
+		if (this == other)
+			return true;
+		if (!super.equals(other))
+			return false;
+		if (getClass() != other.getClass())
+			return false;
+		if (additionalNodeInformation == null)
+			return (other.additionalNodeInformation == null);
+		return additionalNodeInformation.equalsIgnoreContentAncestor(other.additionalNodeInformation);
+	}
+	
 	
 
 
@@ -89,6 +89,31 @@ public class Constants
 	public static final boolean APPLY_CHANGE_ANNOTATION = REQUIRE_PREDICATE_TRUTH_EQUALITY && true;
 
 	public static final boolean USE_ADVANCED_EQUALITIES = true;
+	
+	/**
+	 * If true, the missing nodes and missing relations of {@link eu.excitementproject.eop.transformations.utilities.parsetreeutils.AdvancedEqualities}
+	 * are found by hash look-ups in an index of the text tree, rather than by comparing each hypothesis node with each text node.
+	 * The results are identical.
+	 */
+	public static final boolean USE_ADVANCED_EQUALITIES_TEXT_INDEX = true;
+	
+	/**
+	 * If true, the trees generated by some of the generation operations (and by their post-processing) share
+	 * the unchanged subtrees with the original tree, rather than copying the whole tree.
+	 * See {@link eu.excitementproject.eop.common.representation.parse.tree.SharingTreeCopier}
+	 * <P>
+	 * {@link eu.excitementproject.eop.transformations.operations.operations.SubstituteNodeOperation},
+	 * {@link eu.excitementproject.eop.transformations.operations.operations.InsertNodeOperation},
+	 * {@link eu.excitementproject.eop.transformations.operations.operations.MoveNodeOperation},
+	 * {@link eu.excitementproject.eop.transformations.operations.operations.SubstitutionRuleApplicationOperation}
+	 * and the content-ancestor post-processing share subtrees. The other operations copy the whole tree.
+	 * <BR>
+	 * A shared node belongs to several trees, so the generated trees must not be changed. The only code that
+	 * changes nodes after they are created is {@link eu.excitementproject.eop.transformations.operations.operations.DuplicateAndMoveNodeOperation},
+	 * which changes its own full copy of the tree, and the truth-teller annotation, which changes the initial
+	 * trees before any tree is generated from them.
+	 */
+	public static final boolean SHARE_UNCHANGED_SUBTREES_OF_GENERATED_TREES = true;
 
 
 	public static final int LEMMATIZER_CACHE_CAPACITY = 7000;
@@ -0,0 +1,399 @@
+package eu.excitementproject.eop.transformations.utilities;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import eu.excitementproject.eop.common.datastructures.ValueSetMap;
+import eu.excitementproject.eop.common.datastructures.immutable.ImmutableSet;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.InfoGetFields;
+import eu.excitementproject.eop.common.representation.parse.tree.AbstractNodeUtils;
+import eu.excitementproject.eop.common.representation.parse.tree.TreeAndParentMap;
+import eu.excitementproject.eop.common.representation.parse.tree.TreeAndParentMap.TreeAndParentMapException;
+import eu.excitementproject.eop.common.representation.parse.tree.TreeIterator;
+import eu.excitementproject.eop.transformations.alignment.AlignmentCalculator;
+import eu.excitementproject.eop.transformations.alignment.AlignmentCriteria;
+import eu.excitementproject.eop.transformations.alignment.DefaultAlignmentCriteria;
+import eu.excitementproject.eop.transformations.operations.OperationException;
+import eu.excitementproject.eop.transformations.operations.operations.GenerationOperation;
+import eu.excitementproject.eop.transformations.representation.ExtendedInfo;
+import eu.excitementproject.eop.transformations.representation.ExtendedNode;
+
+
+/**
+ * Calculates the {@link SingleTreeEvaluations} of the trees generated during a search, such that
+ * the evaluation of a generated tree is based on the evaluation of the tree it was generated from.
+ * <P>
+ * For each hypothesis node, the number of text nodes that are similar to it (see
+ * {@link AlignmentCriteria#nodesSimilar(TreeAndParentMap, TreeAndParentMap, eu.excitementproject.eop.common.representation.parse.tree.AbstractNode, eu.excitementproject.eop.common.representation.parse.tree.AbstractNode)}),
+ * and the number of text nodes whose triple is aligned to its triple (see
+ * {@link AlignmentCriteria#triplesAligned(TreeAndParentMap, TreeAndParentMap, eu.excitementproject.eop.common.representation.parse.tree.AbstractNode, eu.excitementproject.eop.common.representation.parse.tree.AbstractNode)})
+ * are stored, as well as the number of text nodes of each hypothesis lemma.
+ * A {@link GenerationOperation} changes only a few nodes of the tree. So the counts of the generated tree are the counts of
+ * the original tree, minus the contributions of the nodes that were removed or changed, plus the contributions
+ * of the nodes that were added or changed. Only those nodes are compared with the hypothesis nodes.
+ * <P>
+ * {@link #update(TreeAndParentMap, ValueSetMap, Set)} visits only the nodes of each tree that are not nodes of the other tree,
+ * i.e., the nodes that were copied, changed, added or removed (a subtree shared by both trees, see
+ * {@link Constants#SHARE_UNCHANGED_SUBTREES_OF_GENERATED_TREES}, is not visited). A copied node is considered unchanged
+ * only if it is not an affected node, it is the only node to which its original node is mapped, and its information
+ * equals the information of the original node.
+ * <P>
+ * The results are identical to those of {@link AlignmentCalculator#getEvaluations(Set, int)}, given that the
+ * alignment criteria are local: whether two nodes are similar depends only on their information, and whether two triples
+ * are aligned depends only on the information of the nodes and of their parents, and on whether they are roots.
+ * This is the case for {@link DefaultAlignmentCriteria}.
+ * <P>
+ * The evaluations that are kept for later (e.g., by the states of a search) need only the counts, and not the
+ * parent map of their tree, which is as large as the tree. {@link #withoutTextTree()} returns such evaluations,
+ * and {@link #withTextTree(TreeAndParentMap)} gives them back a parent map of their tree, when the trees generated from
+ * it are evaluated. The counts are never changed once calculated, so these evaluations share them.
+ *
+ * @see SingleTreeEvaluations
+ * @see AlignmentCalculator
+ *
+ */
+public class IncrementalTreeEvaluations
+{
+	/**
+	 * Calculates the evaluations of the given text tree from scratch.
+	 *
+	 * @param alignmentCriteria
+	 * @param textTree
+	 * @param hypothesis
+	 * @param hypothesisLemmasLowerCase
+	 * @param numberOfHypothesisNodes
+	 * @return
+	 */
+	public static IncrementalTreeEvaluations create(AlignmentCriteria<ExtendedInfo, ExtendedNode> alignmentCriteria,
+			TreeAndParentMap<ExtendedInfo, ExtendedNode> textTree,
+			TreeAndParentMap<ExtendedInfo, ExtendedNode> hypothesis,
+			Set<String> hypothesisLemmasLowerCase,
+			int numberOfHypothesisNodes)
+	{
+		HypothesisInformation hypothesisInformation = new HypothesisInformation(alignmentCriteria, hypothesis, hypothesisLemmasLowerCase, numberOfHypothesisNodes);
+		IncrementalTreeEvaluations ret = new IncrementalTreeEvaluations(hypothesisInformation, textTree,
+				new int[hypothesisInformation.nodes.size()], new int[hypothesisInformation.nodes.size()], new int[hypothesisInformation.lemmas.size()]);
+		for (ExtendedNode textNode : TreeIterator.iterableTree(textTree.getTree()))
+		{
+			ret.addNode(textTree, textNode, 1);
+			ret.addTriple(textTree, textNode, 1);
+		}
+		return ret;
+	}
+
+	/**
+	 * Calculates the evaluations of the tree generated by the given operation, which was applied on the
+	 * tree of this object.
+	 *
+	 * @param operation a generation operation, after {@link GenerationOperation#generate()}
+	 * @return
+	 * @throws OperationException
+	 * @throws TeEngineMlException
+	 */
+	public IncrementalTreeEvaluations update(GenerationOperation<ExtendedInfo, ExtendedNode> operation) throws OperationException, TeEngineMlException
+	{
+		try
+		{
+			return update(new TreeAndParentMap<ExtendedInfo, ExtendedNode>(operation.getGeneratedTree()), operation.getMapOriginalToGenerated(), operation.getAffectedNodes());
+		}
+		catch (TreeAndParentMapException e)
+		{
+			throw new TeEngineMlException("Failed to create the parent map of the generated tree. See nested exception.",e);
+		}
+	}
+
+	/**
+	 * Calculates the evaluations of a tree that was generated from the tree of this object.
+	 *
+	 * @param generatedTree the generated tree
+	 * @param mapOriginalToGenerated a mapping from the nodes of the tree of this object to the nodes of the generated tree
+	 * @param affectedNodes the nodes of the generated tree that were modified or added (see {@link GenerationOperation#getAffectedNodes()})
+	 * @return
+	 * @throws TeEngineMlException if this object has no text tree (see {@link #withTextTree(TreeAndParentMap)})
+	 */
+	public IncrementalTreeEvaluations update(TreeAndParentMap<ExtendedInfo, ExtendedNode> generatedTree,
+			ValueSetMap<ExtendedNode, ExtendedNode> mapOriginalToGenerated,
+			Set<ExtendedNode> affectedNodes) throws TeEngineMlException
+	{
+		if (null==textTree) throw new TeEngineMlException("The evaluations have no text tree. Call withTextTree() first.");
+		IncrementalTreeEvaluations ret = new IncrementalTreeEvaluations(hypothesisInformation, generatedTree,
+				nodeMatches.clone(), tripleMatches.clone(), lemmaOccurrences.clone());
+
+		List<ExtendedNode> originalNodes = nodesNotInOtherTree(textTree, generatedTree);
+		List<ExtendedNode> generatedNodes = nodesNotInOtherTree(generatedTree, textTree);
+		Set<ExtendedNode> copiedNodes = new HashSet<ExtendedNode>(generatedNodes);
+
+		// The original node of each copied node that is unchanged.
+		Map<ExtendedNode, ExtendedNode> originalOf = new HashMap<ExtendedNode, ExtendedNode>();
+		Set<ExtendedNode> keptNodes = new HashSet<ExtendedNode>();
+		for (ExtendedNode original : originalNodes)
+		{
+			if (!mapOriginalToGenerated.containsKey(original)) continue;
+			ImmutableSet<ExtendedNode> generatedNodesOfOriginal = mapOriginalToGenerated.get(original);
+			if (generatedNodesOfOriginal.size()!=1) continue;
+			ExtendedNode generatedNode = generatedNodesOfOriginal.iterator().next();
+			if (!copiedNodes.contains(generatedNode)) continue;
+			if (affectedNodes.contains(generatedNode)) continue;
+			if (originalOf.containsKey(generatedNode)) continue;
+			if (!sameInfo(original.getInfo(), generatedNode.getInfo())) continue;
+			originalOf.put(generatedNode, original);
+			keptNodes.add(original);
+		}
+
+		// Add the contributions of the changed nodes of the generated tree, and find the triples which are kept.
+		// The triples of the roots of the shared subtrees are the only triples of shared nodes that might have changed.
+		Set<ExtendedNode> keptTriples = new HashSet<ExtendedNode>();
+		List<ExtendedNode> rootsOfSharedSubtrees = new ArrayList<ExtendedNode>();
+		if (!copiedNodes.contains(generatedTree.getTree()))
+		{
+			rootsOfSharedSubtrees.add(generatedTree.getTree());
+		}
+		for (ExtendedNode generatedNode : generatedNodes)
+		{
+			ExtendedNode original = originalOf.get(generatedNode);
+			if (null==original)
+			{
+				ret.addNode(generatedTree, generatedNode, 1);
+			}
+			if ( (original!=null) && (sameTriple(original, generatedNode, generatedTree, copiedNodes, originalOf)) )
+			{
+				keptTriples.add(original);
+			}
+			else
+			{
+				ret.addTriple(generatedTree, generatedNode, 1);
+			}
+			if (generatedNode.hasChildren())
+			{
+				for (ExtendedNode child : generatedNode.getChildren())
+				{
+					if (!copiedNodes.contains(child))
+					{
+						rootsOfSharedSubtrees.add(child);
+					}
+				}
+			}
+		}
+		for (ExtendedNode sharedNode : rootsOfSharedSubtrees)
+		{
+			if (!sameTriple(sharedNode, sharedNode, generatedTree, copiedNodes, originalOf))
+			{
+				ret.addTriple(textTree, sharedNode, -1);
+				ret.addTriple(generatedTree, sharedNode, 1);
+			}
+		}
+
+		// Subtract the contributions of the removed or changed nodes of the original tree
+		for (ExtendedNode original : originalNodes)
+		{
+			if (!keptNodes.contains(original))
+			{
+				ret.addNode(textTree, original, -1);
+			}
+			if (!keptTriples.contains(original))
+			{
+				ret.addTriple(textTree, original, -1);
+			}
+		}
+
+		return ret;
+	}
+
+	/**
+	 * Returns the evaluations of the tree of this object. They are identical to those returned by
+	 * {@link AlignmentCalculator#getEvaluations(Set, int)}.
+	 * @return
+	 */
+	public SingleTreeEvaluations getEvaluations()
+	{
+		int missingNodes = countZeros(nodeMatches);
+		int missingTriples = countZeros(tripleMatches);
+		int missingLemmas = countZeros(lemmaOccurrences);
+		int numberOfHypothesisNodes = hypothesisInformation.numberOfHypothesisNodes;
+
+		double missingNodesPortion = ((double)missingNodes) / ((double)numberOfHypothesisNodes);
+		double missingTriplesPortion = ((double)missingTriples) / ((double)(numberOfHypothesisNodes-1));
+		double missingLemmasPortion = ((double)missingLemmas) / ((double)(hypothesisInformation.lemmas.size()));
+
+		return new SingleTreeEvaluations(missingNodes, missingTriples, missingLemmas, missingNodesPortion, missingTriplesPortion, missingLemmasPortion);
+	}
+
+	/**
+	 * Returns the tree of this object, or <code>null</code> if it was dropped by {@link #withoutTextTree()}.
+	 * @return
+	 */
+	public TreeAndParentMap<ExtendedInfo, ExtendedNode> getTextTree()
+	{
+		return textTree;
+	}
+
+	/**
+	 * Returns these evaluations without their tree, to be kept until the trees generated from the tree are evaluated.
+	 * Their {@link #getEvaluations()} is the same, but they cannot be updated before {@link #withTextTree(TreeAndParentMap)}.
+	 * @return
+	 */
+	public IncrementalTreeEvaluations withoutTextTree()
+	{
+		if (null==textTree) return this;
+		return new IncrementalTreeEvaluations(hypothesisInformation, null, nodeMatches, tripleMatches, lemmaOccurrences);
+	}
+
+	/**
+	 * Returns these evaluations with the given tree, which must be the tree they were calculated for (e.g., a new
+	 * parent map of the tree of evaluations returned by {@link #withoutTextTree()}).
+	 * @param textTree
+	 * @return
+	 */
+	public IncrementalTreeEvaluations withTextTree(TreeAndParentMap<ExtendedInfo, ExtendedNode> textTree)
+	{
+		return new IncrementalTreeEvaluations(hypothesisInformation, textTree, nodeMatches, tripleMatches, lemmaOccurrences);
+	}
+
+
+
+	private IncrementalTreeEvaluations(HypothesisInformation hypothesisInformation,
+			TreeAndParentMap<ExtendedInfo, ExtendedNode> textTree,
+			int[] nodeMatches, int[] tripleMatches, int[] lemmaOccurrences)
+	{
+		super();
+		this.hypothesisInformation = hypothesisInformation;
+		this.textTree = textTree;
+		this.nodeMatches = nodeMatches;
+		this.tripleMatches = tripleMatches;
+		this.lemmaOccurrences = lemmaOccurrences;
+	}
+
+	private void addNode(TreeAndParentMap<ExtendedInfo, ExtendedNode> tree, ExtendedNode textNode, int delta)
+	{
+		List<ExtendedNode> hypothesisNodes = hypothesisInformation.nodes;
+		for (int index=0;index<hypothesisNodes.size();++index)
+		{
+			if (hypothesisInformation.alignmentCriteria.nodesSimilar(tree, hypothesisInformation.hypothesis, textNode, hypothesisNodes.get(index)))
+			{
+				nodeMatches[index] += delta;
+			}
+		}
+
+		// as in TreeUtilities.constructSetLemmasLowerCase()
+		String lemma = InfoGetFields.getLemma(textNode.getInfo());
+		if (lemma.length()>0)
+		{
+			Integer lemmaIndex = hypothesisInformation.lemmaIndexes.get(lemma.toLowerCase());
+			if (lemmaIndex!=null)
+			{
+				lemmaOccurrences[lemmaIndex] += delta;
+			}
+		}
+	}
+
+	private void addTriple(TreeAndParentMap<ExtendedInfo, ExtendedNode> tree, ExtendedNode textNode, int delta)
+	{
+		List<ExtendedNode> hypothesisNodes = hypothesisInformation.nodes;
+		for (int index=0;index<hypothesisNodes.size();++index)
+		{
+			if (hypothesisInformation.alignmentCriteria.triplesAligned(tree, hypothesisInformation.hypothesis, textNode, hypothesisNodes.get(index)))
+			{
+				tripleMatches[index] += delta;
+			}
+		}
+	}
+
+	/**
+	 * Returns <tt>true</tt> if the triple of the generated node is the triple of the original node, i.e., both are roots,
+	 * or the parent of the generated node is the parent of the original node, or its unchanged copy.
+	 * Both nodes are assumed to have the same information.
+	 */
+	private boolean sameTriple(ExtendedNode original, ExtendedNode generatedNode, TreeAndParentMap<ExtendedInfo, ExtendedNode> generatedTree,
+			Set<ExtendedNode> copiedNodes, Map<ExtendedNode, ExtendedNode> originalOf)
+	{
+		ExtendedNode originalParent = textTree.getParentMap().get(original);
+		ExtendedNode generatedParent = generatedTree.getParentMap().get(generatedNode);
+		if ( (originalParent==null) || (generatedParent==null) )
+		{
+			return (originalParent==null) && (generatedParent==null);
+		}
+		ExtendedNode originalOfGeneratedParent = copiedNodes.contains(generatedParent) ? originalOf.get(generatedParent) : generatedParent;
+		return (originalOfGeneratedParent==originalParent);
+	}
+
+	/**
+	 * Returns the nodes of the given tree that are not nodes of the other tree. Since a shared node has the same
+	 * children in both trees, the subtrees of the shared nodes are not visited.
+	 */
+	private static List<ExtendedNode> nodesNotInOtherTree(TreeAndParentMap<ExtendedInfo, ExtendedNode> tree, TreeAndParentMap<ExtendedInfo, ExtendedNode> otherTree)
+	{
+		List<ExtendedNode> ret = new ArrayList<ExtendedNode>();
+		List<ExtendedNode> stack = new ArrayList<ExtendedNode>();
+		stack.add(tree.getTree());
+		while (!stack.isEmpty())
+		{
+			ExtendedNode node = stack.remove(stack.size()-1);
+			if ( (node==otherTree.getTree()) || (otherTree.getParentMap().containsKey(node)) )
+				continue;
+			ret.add(node);
+			if (node.hasChildren())
+			{
+				stack.addAll(node.getChildren());
+			}
+		}
+		return ret;
+	}
+
+	private static boolean sameInfo(ExtendedInfo original, ExtendedInfo generated)
+	{
+		return (original==generated) || ( (original!=null) && (original.equals(generated)) );
+	}
+
+	private static int countZeros(int[] counts)
+	{
+		int ret = 0;
+		for (int count : counts)
+		{
+			if (0==count) ++ret;
+		}
+		return ret;
+	}
+
+	/**
+	 * The hypothesis and the alignment criteria, shared by all the evaluations of one search.
+	 */
+	private static final class HypothesisInformation
+	{
+		public HypothesisInformation(AlignmentCriteria<ExtendedInfo, ExtendedNode> alignmentCriteria,
+				TreeAndParentMap<ExtendedInfo, ExtendedNode> hypothesis,
+				Set<String> hypothesisLemmasLowerCase, int numberOfHypothesisNodes)
+		{
+			this.alignmentCriteria = alignmentCriteria;
+			this.hypothesis = hypothesis;
+			this.numberOfHypothesisNodes = numberOfHypothesisNodes;
+			this.nodes = new ArrayList<ExtendedNode>(AbstractNodeUtils.treeToLinkedHashSet(hypothesis.getTree()));
+			this.lemmas = new ArrayList<String>(hypothesisLemmasLowerCase);
+			this.lemmaIndexes = new HashMap<String, Integer>();
+			for (int index=0;index<lemmas.size();++index)
+			{
+				lemmaIndexes.put(lemmas.get(index), index);
+			}
+		}
+
+		private final AlignmentCriteria<ExtendedInfo, ExtendedNode> alignmentCriteria;
+		private final TreeAndParentMap<ExtendedInfo, ExtendedNode> hypothesis;
+		private final int numberOfHypothesisNodes;
+		private final List<ExtendedNode> nodes;
+		private final List<String> lemmas;
+		private final Map<String, Integer> lemmaIndexes;
+	}
+
+
+	private final HypothesisInformation hypothesisInformation;
+	// null if dropped by withoutTextTree()
+	private final TreeAndParentMap<ExtendedInfo, ExtendedNode> textTree;
+
+	// indexed as hypothesisInformation.nodes. Not changed once calculated, so they may be shared.
+	private final int[] nodeMatches;
+	private final int[] tripleMatches;
+	// indexed as hypothesisInformation.lemmas
+	private final int[] lemmaOccurrences;
+}
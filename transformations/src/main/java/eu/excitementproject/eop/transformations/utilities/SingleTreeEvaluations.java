@@ -9,6 +9,7 @@ import eu.excitementproject.eop.transformations.representation.ExtendedNode;
 //import eu.excitementproject.eop.transformations.rteflow.macro.search.local_creative.LocalCreativeTextTreesProcessor;
 //import eu.excitementproject.eop.transformations.rteflow.macro.search.old_beam_search.BeamSearchTextTreesProcessor;
 import eu.excitementproject.eop.transformations.utilities.parsetreeutils.AdvancedEqualities;
+import eu.excitementproject.eop.transformations.utilities.parsetreeutils.AdvancedEqualitiesTextIndex;
 import eu.excitementproject.eop.transformations.utilities.parsetreeutils.TreeUtilities;
 
 
@@ -38,6 +39,8 @@ import eu.excitementproject.eop.transformations.utilities.parsetreeutils.TreeUti
  * <LI></LI>
  * </UL>
  * 
+ * @see IncrementalTreeEvaluations
+ * 
  * @author Asher Stern
  * @since Jun 10, 2011
  *
@@ -62,7 +65,14 @@ public class SingleTreeEvaluations
 		int missingNodes;
 		int missingRelations;
 		int missingLemmas;
-		if (AdvancedEqualities.USE_ADVANCED_EQUALITIES)
+		if (AdvancedEqualities.USE_ADVANCED_EQUALITIES && AdvancedEqualities.USE_TEXT_INDEX)
+		{
+			// the text tree is indexed once, for both queries
+			AdvancedEqualitiesTextIndex textIndex = new AdvancedEqualitiesTextIndex(textTree);
+			missingNodes = AdvancedEqualities.findMissingNodes(textIndex, hypothesis).size();
+			missingRelations = AdvancedEqualities.findMissingRelations(textIndex, hypothesis).size();
+		}
+		else if (AdvancedEqualities.USE_ADVANCED_EQUALITIES)
 		{
 			missingNodes = AdvancedEqualities.findMissingNodes(textTree, hypothesis).size();
 			missingRelations = AdvancedEqualities.findMissingRelations(textTree, hypothesis).size();			
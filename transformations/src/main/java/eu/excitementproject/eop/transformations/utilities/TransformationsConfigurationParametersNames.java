@@ -82,6 +82,8 @@ public class TransformationsConfigurationParametersNames
 	public static final String LIMIT_NUMBER_OF_RULES = "limit_number_of_rules";
 	@ConfigurationDirtParameterAnnotation(mandatoryLevel=MandatoryLevel.IGNORE)
 	public static final String DIRT_LIKE_SER_FILE_PARAMETER_NAME = "serialization_file";
+	@ConfigurationDirtParameterAnnotation(mandatoryLevel=MandatoryLevel.IGNORE)
+	public static final String DIRT_LIKE_RULES_FILE_PARAMETER_NAME = "rules_file";
 	
 	@ConfigurationKnowledgeParameterAnnotation(knowledgeResources=KnowledgeResource.SYNTACTIC)
 	public static final String SYNTACTIC_RULES_FILE = "syntactic_rules_file";
@@ -50,6 +50,12 @@ public class AdvancedEqualities
 {
 	public static boolean USE_ADVANCED_EQUALITIES = Constants.USE_ADVANCED_EQUALITIES;
 	
+	/**
+	 * If true, {@link #findMissingNodes(TreeAndParentMap, TreeAndParentMap)} and {@link #findMissingRelations(TreeAndParentMap, TreeAndParentMap)}
+	 * use an {@link AdvancedEqualitiesTextIndex}. The results are identical.
+	 */
+	public static boolean USE_TEXT_INDEX = Constants.USE_ADVANCED_EQUALITIES_TEXT_INDEX;
+	
 	/**
 	 * Returns <tt>true</tt> if lemma and pos are equal.
 	 * @param textNode
@@ -211,6 +217,11 @@ public class AdvancedEqualities
 	 */
 	public static Set<ExtendedNode> findMissingNodes(TreeAndParentMap<ExtendedInfo, ExtendedNode> text,TreeAndParentMap<ExtendedInfo, ExtendedNode> hypothesis)
 	{
+		if (USE_TEXT_INDEX)
+		{
+			return findMissingNodes(new AdvancedEqualitiesTextIndex(text), hypothesis);
+		}
+		
 		Set<ExtendedNode> ret = new LinkedHashSet<ExtendedNode>();
 		
 		for (ExtendedNode hypothesisNode : TreeIterator.iterableTree(hypothesis.getTree()))
@@ -262,6 +273,11 @@ public class AdvancedEqualities
 	// TODO: Code duplicate with method findMatchingRelations()
 	public static Set<ExtendedNode> findMissingRelations(TreeAndParentMap<ExtendedInfo, ExtendedNode> text,TreeAndParentMap<ExtendedInfo, ExtendedNode> hypothesis)
 	{
+		if (USE_TEXT_INDEX)
+		{
+			return findMissingRelations(new AdvancedEqualitiesTextIndex(text), hypothesis);
+		}
+		
 		Set<ExtendedNode> ret = new LinkedHashSet<ExtendedNode>();
 		Set<ExtendedNode> textNodes = AbstractNodeUtils.treeToLinkedHashSet(text.getTree());
 		Set<ExtendedNode> hypothesisNodes = AbstractNodeUtils.treeToLinkedHashSet(hypothesis.getTree());
@@ -306,6 +322,48 @@ public class AdvancedEqualities
 		return ret;
 	}
 	
+	/**
+	 * The same as {@link #findMissingNodes(TreeAndParentMap, TreeAndParentMap)}, but the text is given as
+	 * an index, which can be built once and used for several hypothesis queries.
+	 * 
+	 * @param text an index of the text-parse-tree
+	 * @param hypothesis the hypothesis-parse-tree
+	 * @return
+	 */
+	public static Set<ExtendedNode> findMissingNodes(AdvancedEqualitiesTextIndex text,TreeAndParentMap<ExtendedInfo, ExtendedNode> hypothesis)
+	{
+		Set<ExtendedNode> ret = new LinkedHashSet<ExtendedNode>();
+		for (ExtendedNode hypothesisNode : TreeIterator.iterableTree(hypothesis.getTree()))
+		{
+			if (!text.containsEqualNode(hypothesisNode))
+			{
+				ret.add(hypothesisNode);
+			}
+		}
+		return ret;
+	}
+	
+	/**
+	 * The same as {@link #findMissingRelations(TreeAndParentMap, TreeAndParentMap)}, but the text is given as
+	 * an index, which can be built once and used for several hypothesis queries.
+	 * 
+	 * @param text an index of the text-parse-tree
+	 * @param hypothesis the hypothesis-parse-tree
+	 * @return
+	 */
+	public static Set<ExtendedNode> findMissingRelations(AdvancedEqualitiesTextIndex text,TreeAndParentMap<ExtendedInfo, ExtendedNode> hypothesis)
+	{
+		Set<ExtendedNode> ret = new LinkedHashSet<ExtendedNode>();
+		for (ExtendedNode hypothesisNode : AbstractNodeUtils.treeToLinkedHashSet(hypothesis.getTree()))
+		{
+			if (!text.containsEqualRelation(hypothesisNode, hypothesis.getParentMap().get(hypothesisNode)))
+			{
+				ret.add(hypothesisNode);
+			}
+		}
+		return ret;
+	}
+	
 	@Deprecated
 	public static ValueSetMap<ExtendedNode, ExtendedNode> findMatchingNodes(ExtendedNode textTree, ExtendedNode hypothesisTree)
 	{
@@ -0,0 +1,260 @@
+package eu.excitementproject.eop.transformations.utilities.parsetreeutils;
+import static eu.excitementproject.eop.common.representation.partofspeech.SimplerPosTagConvertor.simplerPos;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import eu.excitementproject.eop.common.representation.parse.representation.basic.InfoGetFields;
+import eu.excitementproject.eop.common.representation.parse.tree.TreeAndParentMap;
+import eu.excitementproject.eop.common.representation.parse.tree.TreeIterator;
+import eu.excitementproject.eop.common.representation.partofspeech.SimplerCanonicalPosTag;
+import eu.excitementproject.eop.transformations.representation.ExtendedInfo;
+import eu.excitementproject.eop.transformations.representation.ExtendedInfoGetFields;
+import eu.excitementproject.eop.transformations.representation.ExtendedNode;
+
+
+/**
+ * An index of the nodes and the relations of a text tree, which answers the queries of
+ * {@link AdvancedEqualities#findMissingNodes(AdvancedEqualitiesTextIndex, TreeAndParentMap)} and
+ * {@link AdvancedEqualities#findMissingRelations(AdvancedEqualitiesTextIndex, TreeAndParentMap)}
+ * by hash look-ups, instead of comparing each hypothesis node with each text node.
+ * <P>
+ * The text nodes are indexed by the parts of {@link AdvancedEqualities#nodesEqual(ExtendedInfo, ExtendedInfo)}
+ * that are equivalences: the lemma (ignoring case), the simpler part-of-speech, and the lemma of the
+ * content ancestor (ignoring case). The relations are indexed by the keys of the node and of its parent,
+ * and by the relation to the parent. The predicate-truth match is not an equivalence, so the nodes
+ * found by a look-up are checked by the original equality functions, and the results are identical
+ * to those of the nested loops.
+ * <P>
+ * The index is built once per text tree, and can be used for any number of hypothesis trees.
+ *
+ * @see AdvancedEqualities
+ *
+ */
+public class AdvancedEqualitiesTextIndex
+{
+	public AdvancedEqualitiesTextIndex(TreeAndParentMap<ExtendedInfo, ExtendedNode> text)
+	{
+		this.text = text;
+		Map<ExtendedNode, NodeKey> nodeKeys = new HashMap<ExtendedNode, NodeKey>();
+		for (ExtendedNode textNode : TreeIterator.iterableTree(text.getTree()))
+		{
+			NodeKey key = new NodeKey(textNode.getInfo());
+			nodeKeys.put(textNode, key);
+			add(nodes, key, textNode);
+		}
+		for (ExtendedNode textNode : TreeIterator.iterableTree(text.getTree()))
+		{
+			ExtendedNode textParent = text.getParentMap().get(textNode);
+			if (null==textParent)
+			{
+				add(relations, new RelationKey(nodeKeys.get(textNode), null, null), textNode);
+			}
+			else
+			{
+				add(relations, new RelationKey(nodeKeys.get(textNode), InfoGetFields.getRelation(textNode.getInfo()), nodeKeys.get(textParent)), textNode);
+			}
+		}
+	}
+
+	public TreeAndParentMap<ExtendedInfo, ExtendedNode> getText()
+	{
+		return text;
+	}
+
+	/**
+	 * @param hypothesisNode
+	 * @return <tt>true</tt> if there is a text node for which {@link AdvancedEqualities#nodesEqual(ExtendedInfo, ExtendedInfo)}
+	 * returns <tt>true</tt>
+	 */
+	public boolean containsEqualNode(ExtendedNode hypothesisNode)
+	{
+		List<ExtendedNode> candidates = nodes.get(new NodeKey(hypothesisNode.getInfo()));
+		if (candidates!=null)
+		{
+			for (ExtendedNode textNode : candidates)
+			{
+				if (AdvancedEqualities.nodesEqual(textNode.getInfo(),hypothesisNode.getInfo()))
+				{
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @param hypothesisNode
+	 * @param hypothesisParent the parent of the hypothesis node, or <code>null</code> if it is the root
+	 * @return <tt>true</tt> if there is a text node whose relation matches the relation of the hypothesis node,
+	 * as defined in {@link AdvancedEqualities#findMissingRelations(TreeAndParentMap, TreeAndParentMap)}
+	 */
+	public boolean containsEqualRelation(ExtendedNode hypothesisNode, ExtendedNode hypothesisParent)
+	{
+		RelationKey key = null;
+		if (null==hypothesisParent)
+			key = new RelationKey(new NodeKey(hypothesisNode.getInfo()), null, null);
+		else
+			key = new RelationKey(new NodeKey(hypothesisNode.getInfo()), InfoGetFields.getRelation(hypothesisNode.getInfo()), new NodeKey(hypothesisParent.getInfo()));
+
+		List<ExtendedNode> candidates = relations.get(key);
+		if (candidates!=null)
+		{
+			for (ExtendedNode textNode : candidates)
+			{
+				if (AdvancedEqualities.nodesEqual(textNode.getInfo(),hypothesisNode.getInfo()))
+				{
+					if (null==hypothesisParent)
+					{
+						return true;
+					}
+					else if (AdvancedEqualities.edgesEqual(textNode, hypothesisNode))
+					{
+						if (AdvancedEqualities.nodesEqual(text.getParentMap().get(textNode).getInfo(), hypothesisParent.getInfo()))
+						{
+							return true;
+						}
+					}
+				}
+			}
+		}
+		return false;
+	}
+
+
+
+	private static <K> void add(Map<K, List<ExtendedNode>> map, K key, ExtendedNode node)
+	{
+		List<ExtendedNode> list = map.get(key);
+		if (null==list)
+		{
+			list = new ArrayList<ExtendedNode>(1);
+			map.put(key, list);
+		}
+		list.add(node);
+	}
+
+	/**
+	 * Folds the case of the given string, such that two strings are
+	 * {@link String#equalsIgnoreCase(String)} if and only if their foldings are equal.
+	 */
+	private static String foldCase(String str)
+	{
+		if (null==str) return null;
+		char[] chars = str.toCharArray();
+		for (int index=0;index<chars.length;++index)
+		{
+			chars[index] = Character.toLowerCase(Character.toUpperCase(chars[index]));
+		}
+		return new String(chars);
+	}
+
+	private static boolean equalsOrBothNull(Object object1, Object object2)
+	{
+		return (null==object1)?(null==object2):object1.equals(object2);
+	}
+
+	private static int hashCodeOrZero(Object object)
+	{
+		return (null==object)?0:object.hashCode();
+	}
+
+	/**
+	 * The lemma, part-of-speech and content-ancestor lemma of a node.
+	 */
+	private static final class NodeKey
+	{
+		public NodeKey(ExtendedInfo info)
+		{
+			this.lemma = foldCase(InfoGetFields.getLemma(info));
+			this.pos = simplerPos(InfoGetFields.getPartOfSpeechObject(info).getCanonicalPosTag());
+			ExtendedInfo contentAncestor = ExtendedInfoGetFields.getContentAncestor(info);
+			this.hasContentAncestor = (contentAncestor!=null);
+			this.contentAncestorLemma = hasContentAncestor?foldCase(InfoGetFields.getLemma(contentAncestor)):null;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			final int prime = 31;
+			int result = 1;
+			result = prime * result + hashCodeOrZero(lemma);
+			result = prime * result + hashCodeOrZero(pos);
+			result = prime * result + (hasContentAncestor?1231:1237);
+			result = prime * result + hashCodeOrZero(contentAncestorLemma);
+			return result;
+		}
+
+		@Override
+		public boolean equals(Object obj)
+		{
+			if (this == obj)
+				return true;
+			if (obj == null)
+				return false;
+			if (getClass() != obj.getClass())
+				return false;
+			NodeKey other = (NodeKey) obj;
+			return equalsOrBothNull(lemma, other.lemma)
+					&& (pos == other.pos)
+					&& (hasContentAncestor == other.hasContentAncestor)
+					&& equalsOrBothNull(contentAncestorLemma, other.contentAncestorLemma);
+		}
+
+		private final String lemma;
+		private final SimplerCanonicalPosTag pos;
+		private final boolean hasContentAncestor;
+		private final String contentAncestorLemma;
+	}
+
+	/**
+	 * The keys of a node and of its parent, and the relation between them. Both the relation and the parent
+	 * key are <code>null</code> for the root.
+	 */
+	private static final class RelationKey
+	{
+		public RelationKey(NodeKey node, String relation, NodeKey parent)
+		{
+			this.node = node;
+			this.relation = relation;
+			this.parent = parent;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			final int prime = 31;
+			int result = 1;
+			result = prime * result + node.hashCode();
+			result = prime * result + hashCodeOrZero(relation);
+			result = prime * result + hashCodeOrZero(parent);
+			return result;
+		}
+
+		@Override
+		public boolean equals(Object obj)
+		{
+			if (this == obj)
+				return true;
+			if (obj == null)
+				return false;
+			if (getClass() != obj.getClass())
+				return false;
+			RelationKey other = (RelationKey) obj;
+			return node.equals(other.node)
+					&& equalsOrBothNull(relation, other.relation)
+					&& equalsOrBothNull(parent, other.parent);
+		}
+
+		private final NodeKey node;
+		private final String relation;
+		private final NodeKey parent;
+	}
+
+
+	private final TreeAndParentMap<ExtendedInfo, ExtendedNode> text;
+	private final Map<NodeKey, List<ExtendedNode>> nodes = new HashMap<NodeKey, List<ExtendedNode>>();
+	private final Map<RelationKey, List<ExtendedNode>> relations = new HashMap<RelationKey, List<ExtendedNode>>();
+}
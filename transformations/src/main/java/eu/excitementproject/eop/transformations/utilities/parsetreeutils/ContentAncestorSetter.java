@@ -6,12 +6,14 @@ import java.util.Set;
 
 import eu.excitementproject.eop.common.datastructures.BidirectionalMap;
 import eu.excitementproject.eop.common.representation.parse.representation.basic.InfoGetFields;
+import eu.excitementproject.eop.common.representation.parse.tree.SharingTreeCopier;
 import eu.excitementproject.eop.common.representation.parse.tree.TreeCopier;
 import eu.excitementproject.eop.common.representation.partofspeech.SimplerCanonicalPosTag;
 import eu.excitementproject.eop.common.representation.partofspeech.SimplerPosTagConvertor;
 import eu.excitementproject.eop.transformations.representation.AdditionalInformationServices;
 import eu.excitementproject.eop.transformations.representation.AdditionalNodeInformation;
 import eu.excitementproject.eop.transformations.representation.ExtendedInfo;
+import eu.excitementproject.eop.transformations.representation.ExtendedInfoGetFields;
 import eu.excitementproject.eop.transformations.representation.ExtendedNode;
 import eu.excitementproject.eop.transformations.representation.ExtendedNodeConstructor;
 import eu.excitementproject.eop.transformations.utilities.TeEngineMlException;
@@ -46,6 +48,10 @@ import eu.excitementproject.eop.transformations.utilities.TeEngineMlException;
  * </LI>
  * </OL>
  * 
+ * <P>
+ * If constructed with <code>shareUnchangedSubtrees = true</code>, the nodes whose content ancestor is
+ * already set correctly (i.e., it equals the one that would be set, except, maybe, for its own content
+ * ancestor) are not copied, and the unchanged subtrees are shared with the given tree (see {@link SharingTreeCopier}).
  * 
  * @author Asher Stern
  * @since May 23, 2011
@@ -74,9 +80,15 @@ public class ContentAncestorSetter
 
 	// Constructor
 	public ContentAncestorSetter(ExtendedNode tree)
+	{
+		this(tree,false);
+	}
+
+	public ContentAncestorSetter(ExtendedNode tree, boolean shareUnchangedSubtrees)
 	{
 		super();
 		this.tree = tree;
+		this.shareUnchangedSubtrees = shareUnchangedSubtrees;
 	}
 
 	public void generate()
@@ -85,11 +97,23 @@ public class ContentAncestorSetter
 		fillMapContentAncestor(this.tree,null);
 		ContentAncestorSetterInfoConverter infoConverter = new ContentAncestorSetterInfoConverter();
 		
-		treeCopier =
-			new TreeCopier<ExtendedInfo, ExtendedNode, ExtendedInfo, ExtendedNode>(tree, infoConverter, new ExtendedNodeConstructor());
-		
-		treeCopier.copy();
-		generatedTree = treeCopier.getGeneratedTree();
+		if (shareUnchangedSubtrees)
+		{
+			SharingTreeCopier<ExtendedInfo, ExtendedNode> sharingTreeCopier =
+				new SharingTreeCopier<ExtendedInfo, ExtendedNode>(tree, infoConverter, new ExtendedNodeConstructor());
+			sharingTreeCopier.copy();
+			generatedTree = sharingTreeCopier.getGeneratedTree();
+			nodesMap = sharingTreeCopier.getNodesMap();
+		}
+		else
+		{
+			TreeCopier<ExtendedInfo, ExtendedNode, ExtendedInfo, ExtendedNode> treeCopier =
+				new TreeCopier<ExtendedInfo, ExtendedNode, ExtendedInfo, ExtendedNode>(tree, infoConverter, new ExtendedNodeConstructor());
+			
+			treeCopier.copy();
+			generatedTree = treeCopier.getGeneratedTree();
+			nodesMap = treeCopier.getNodesMap();
+		}
 	}
 	
 	public ExtendedNode getGeneratedTree() throws TeEngineMlException
@@ -100,8 +124,8 @@ public class ContentAncestorSetter
 	
 	public BidirectionalMap<ExtendedNode, ExtendedNode> getNodesMap() throws TeEngineMlException
 	{
-		if (null==treeCopier) throw new TeEngineMlException("Not generated");
-		return treeCopier.getNodesMap();
+		if (null==nodesMap) throw new TeEngineMlException("Not generated");
+		return nodesMap;
 	}
 
 
@@ -113,6 +137,13 @@ public class ContentAncestorSetter
 		{
 			ExtendedNode theContentAncestorNode = mapNodeToItsContentAncestor.get(oi);
 			ExtendedInfo contentAncestor = (null==theContentAncestorNode)?null:theContentAncestorNode.getInfo();
+			if (shareUnchangedSubtrees)
+			{
+				if (sameContentAncestor(ExtendedInfoGetFields.getContentAncestor(oi.getInfo()), contentAncestor))
+				{
+					return oi.getInfo();
+				}
+			}
 			AdditionalNodeInformation additionalInfo = AdditionalInformationServices.setContentAncestor(oi.getInfo().getAdditionalNodeInformation(), contentAncestor);
 			return new ExtendedInfo(oi.getInfo(),additionalInfo);
 		}
@@ -135,6 +166,15 @@ public class ContentAncestorSetter
 		}
 	}
 	
+	private static boolean sameContentAncestor(ExtendedInfo currentContentAncestor, ExtendedInfo contentAncestor)
+	{
+		if ( (null==currentContentAncestor) || (null==contentAncestor) )
+		{
+			return ( (null==currentContentAncestor) && (null==contentAncestor) );
+		}
+		return currentContentAncestor.equalsIgnoreContentAncestor(contentAncestor);
+	}
+	
 	private boolean isContent(ExtendedNode node)
 	{
 		return contentPoses.contains(
@@ -145,9 +185,10 @@ public class ContentAncestorSetter
 	
 	
 	private ExtendedNode tree;
+	private boolean shareUnchangedSubtrees;
 	
 	private Map<ExtendedNode, ExtendedNode> mapNodeToItsContentAncestor;
 
-	private TreeCopier<ExtendedInfo, ExtendedNode, ExtendedInfo, ExtendedNode> treeCopier;
+	private BidirectionalMap<ExtendedNode, ExtendedNode> nodesMap = null;
 	private ExtendedNode generatedTree = null;
 }
@@ -0,0 +1,218 @@
+package eu.excitementproject.eop.transformations.operations.finders.auxiliary;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import eu.excitementproject.eop.common.component.syntacticknowledge.RuleWithConfidenceAndDescription;
+import eu.excitementproject.eop.common.component.syntacticknowledge.SyntacticRule;
+import eu.excitementproject.eop.common.datastructures.SimpleBidirectionalMap;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.DefaultEdgeInfo;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.DefaultInfo;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.DefaultNodeInfo;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.DefaultSyntacticInfo;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.DependencyRelation;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.Info;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.NodeInfo;
+import eu.excitementproject.eop.common.representation.parse.tree.dependency.basic.BasicNode;
+import eu.excitementproject.eop.common.representation.partofspeech.BySimplerCanonicalPartOfSpeech;
+import eu.excitementproject.eop.common.representation.partofspeech.PartOfSpeech;
+import eu.excitementproject.eop.common.representation.partofspeech.SimplerCanonicalPosTag;
+import eu.excitementproject.eop.common.representation.partofspeech.WildcardPartOfSpeech;
+import eu.excitementproject.eop.transformations.operations.rules.BagOfRulesRuleBase;
+import eu.excitementproject.eop.transformations.operations.rules.SetBagOfRulesRuleBase;
+
+/**
+ * Checks that the candidates of a {@link BagOfRulesIndex} are the rules that pass the characteristics filter when all
+ * the rules of the rule base are examined, in the order of the rule base.
+ */
+public class BagOfRulesIndexTest
+{
+	@Test
+	public void testCandidatesEqualExaminingAllRules() throws Exception
+	{
+		// a small vocabulary, so that the rules share most of their characteristics
+		Random random = new Random(3);
+		Set<RuleWithConfidenceAndDescription<Info, BasicNode>> rules = new LinkedHashSet<RuleWithConfidenceAndDescription<Info, BasicNode>>();
+		for (int index=0;index<300;++index)
+		{
+			rules.add(rule(randomTree(random, 1+random.nextInt(3)), "rule "+index));
+		}
+		BagOfRulesRuleBase<Info, BasicNode> ruleBase = SetBagOfRulesRuleBase.fromSetWithConfidenceAndDescription(rules);
+		BagOfRulesIndex<Info, BasicNode> index = BagOfRulesIndex.indexOf(ruleBase);
+		assertEquals(rules.size(), index.size());
+
+		int numberOfCandidates = 0;
+		for (int tree=0;tree<300;++tree)
+		{
+			List<RuleWithConfidenceAndDescription<Info, BasicNode>> candidates = assertCandidatesEqualExaminingAllRules(ruleBase, randomTree(random, 1+random.nextInt(4)));
+			numberOfCandidates += candidates.size();
+		}
+		assertTrue("no rule was a candidate", numberOfCandidates>0);
+	}
+
+	@Test
+	public void testRulesWithDuplicateAndSharedCharacteristics() throws Exception
+	{
+		BasicNode single = node("buy", SimplerCanonicalPosTag.VERB, null);
+		BasicNode withSubject = node("buy", SimplerCanonicalPosTag.VERB, null, node("john", SimplerCanonicalPosTag.NOUN, "subj"));
+		// the same left-hand-side as the previous rule
+		BasicNode withSameSubject = node("buy", SimplerCanonicalPosTag.VERB, null, node("john", SimplerCanonicalPosTag.NOUN, "subj"));
+		// the same characteristic twice in one left-hand-side
+		BasicNode withTwoObjects = node("buy", SimplerCanonicalPosTag.VERB, null, node("car", SimplerCanonicalPosTag.NOUN, "obj"), node("car", SimplerCanonicalPosTag.NOUN, "obj"));
+		// a variable instead of the verb: all its characteristics are shared with the rule above
+		BasicNode variableWithObject = variable(1, SimplerCanonicalPosTag.VERB, null, node("car", SimplerCanonicalPosTag.NOUN, "obj"));
+		// no characteristics at all
+		BasicNode variable = variable(2, SimplerCanonicalPosTag.NOUN, null);
+		BasicNode wildcard = new BasicNode(new DefaultInfo("1", new DefaultNodeInfo("x", "x", 0, null, new DefaultSyntacticInfo(WildcardPartOfSpeech.getWildcardPOS())), new DefaultEdgeInfo(new DependencyRelation("", null))));
+
+		Set<RuleWithConfidenceAndDescription<Info, BasicNode>> rules = new LinkedHashSet<RuleWithConfidenceAndDescription<Info, BasicNode>>();
+		BasicNode[] leftHandSides = {single, withSubject, withSameSubject, withTwoObjects, variableWithObject, variable, wildcard};
+		for (int index=0;index<leftHandSides.length;++index)
+		{
+			rules.add(rule(leftHandSides[index], "rule "+index));
+		}
+		BagOfRulesRuleBase<Info, BasicNode> ruleBase = SetBagOfRulesRuleBase.fromSetWithConfidenceAndDescription(rules);
+		List<RuleWithConfidenceAndDescription<Info, BasicNode>> allRules = new ArrayList<RuleWithConfidenceAndDescription<Info, BasicNode>>(rules);
+
+		// a tree with all the characteristics
+		assertEquals(allRules, assertCandidatesEqualExaminingAllRules(ruleBase,
+				node("buy", SimplerCanonicalPosTag.VERB, null, node("john", SimplerCanonicalPosTag.NOUN, "subj"), node("car", SimplerCanonicalPosTag.NOUN, "obj"))));
+		// no subject
+		assertEquals(sublist(allRules, 0, 3, 4, 5, 6), assertCandidatesEqualExaminingAllRules(ruleBase,
+				node("buy", SimplerCanonicalPosTag.VERB, null, node("car", SimplerCanonicalPosTag.NOUN, "obj"))));
+		// the edge without the lemma of the verb
+		assertEquals(sublist(allRules, 4, 5, 6), assertCandidatesEqualExaminingAllRules(ruleBase,
+				node("sell", SimplerCanonicalPosTag.VERB, null, node("car", SimplerCanonicalPosTag.NOUN, "obj"))));
+		// the lemmas without the edge
+		assertEquals(sublist(allRules, 0, 5, 6), assertCandidatesEqualExaminingAllRules(ruleBase,
+				node("buy", SimplerCanonicalPosTag.VERB, null, node("car", SimplerCanonicalPosTag.NOUN, "mod"))));
+		// nothing in common
+		assertEquals(sublist(allRules, 5, 6), assertCandidatesEqualExaminingAllRules(ruleBase, node("red", SimplerCanonicalPosTag.ADJECTIVE, null)));
+	}
+
+	@Test
+	public void testIndexOfRuleBase() throws Exception
+	{
+		Set<RuleWithConfidenceAndDescription<Info, BasicNode>> rules = new LinkedHashSet<RuleWithConfidenceAndDescription<Info, BasicNode>>();
+		rules.add(rule(node("buy", SimplerCanonicalPosTag.VERB, null), "buy"));
+		BagOfRulesRuleBase<Info, BasicNode> ruleBase = SetBagOfRulesRuleBase.fromSetWithConfidenceAndDescription(rules);
+		BagOfRulesIndex<Info, BasicNode> index = BagOfRulesIndex.indexOf(ruleBase);
+		assertSame(index, BagOfRulesIndex.indexOf(ruleBase));
+		assertNotSame(index, BagOfRulesIndex.indexOf(SetBagOfRulesRuleBase.fromSetWithConfidenceAndDescription(rules)));
+	}
+
+
+	/**
+	 * Asserts that the candidates of the index of the rule base for the given tree are the rules whose left-hand-side
+	 * characteristics are all characteristics of the tree, in the order of the rule base.
+	 * @return the candidates
+	 */
+	private static List<RuleWithConfidenceAndDescription<Info, BasicNode>> assertCandidatesEqualExaminingAllRules(BagOfRulesRuleBase<Info, BasicNode> ruleBase, BasicNode tree) throws Exception
+	{
+		ParseTreeCharacteristicsCollector<Info, BasicNode> treeCollector = new ParseTreeCharacteristicsCollector<Info, BasicNode>(tree);
+		treeCollector.extract();
+		Set<PosRelPos> posRelPosTree = treeCollector.getPosRelPosSet();
+		Set<LemmaAndSimplerCanonicalPos> lemmaAndPosTree = treeCollector.getLemmaAndPosSet();
+
+		List<RuleWithConfidenceAndDescription<Info, BasicNode>> expected = new ArrayList<RuleWithConfidenceAndDescription<Info, BasicNode>>();
+		for (RuleWithConfidenceAndDescription<Info, BasicNode> rule : ruleBase.getRules())
+		{
+			ParseTreeCharacteristicsCollector<Info, BasicNode> ruleCollector = new ParseTreeCharacteristicsCollector<Info, BasicNode>(rule.getRule().getLeftHandSide());
+			ruleCollector.extract();
+			if ( posRelPosTree.containsAll(ruleCollector.getPosRelPosSet()) && lemmaAndPosTree.containsAll(ruleCollector.getLemmaAndPosSet()) )
+			{
+				expected.add(rule);
+			}
+		}
+		List<RuleWithConfidenceAndDescription<Info, BasicNode>> candidates = BagOfRulesIndex.indexOf(ruleBase).getCandidates(posRelPosTree, lemmaAndPosTree);
+		assertEquals(tree.toString(), descriptions(expected), descriptions(candidates));
+		return candidates;
+	}
+
+	private static BasicNode randomTree(Random random, int depth) throws Exception
+	{
+		BasicNode root = randomNode(random, (random.nextInt(4)==0)?null:RELATIONS[random.nextInt(RELATIONS.length)]);
+		if (depth>1)
+		{
+			int children = random.nextInt(3);
+			for (int child=0;child<children;++child)
+			{
+				BasicNode childTree = randomTree(random, depth-1);
+				root.addChild(childTree);
+			}
+		}
+		return root;
+	}
+
+	private static BasicNode randomNode(Random random, String relation) throws Exception
+	{
+		SimplerCanonicalPosTag pos = POS_TAGS[random.nextInt(POS_TAGS.length)];
+		switch (random.nextInt(10))
+		{
+		case 0: return variable(random.nextInt(3), pos, relation);
+		case 1: return node("", pos, relation);
+		default: return node(LEMMAS[random.nextInt(LEMMAS.length)], pos, relation);
+		}
+	}
+
+	private static BasicNode node(String lemma, SimplerCanonicalPosTag pos, String relation, BasicNode... children) throws Exception
+	{
+		return tree(new DefaultNodeInfo(lemma, lemma, 0, null, new DefaultSyntacticInfo(partOfSpeech(pos))), relation, children);
+	}
+
+	private static BasicNode variable(int variableId, SimplerCanonicalPosTag pos, String relation, BasicNode... children) throws Exception
+	{
+		return tree(DefaultNodeInfo.newVariableDefaultNodeInfo(variableId, new DefaultSyntacticInfo(partOfSpeech(pos))), relation, children);
+	}
+
+	private static BasicNode tree(NodeInfo nodeInfo, String relation, BasicNode... children)
+	{
+		BasicNode node = new BasicNode(new DefaultInfo("1", nodeInfo, new DefaultEdgeInfo(new DependencyRelation((null==relation)?"":relation, null))));
+		for (BasicNode child : children)
+		{
+			node.addChild(child);
+		}
+		return node;
+	}
+
+	private static PartOfSpeech partOfSpeech(SimplerCanonicalPosTag pos) throws Exception
+	{
+		return new BySimplerCanonicalPartOfSpeech(pos);
+	}
+
+	private static RuleWithConfidenceAndDescription<Info, BasicNode> rule(BasicNode leftHandSide, String description)
+	{
+		return new RuleWithConfidenceAndDescription<Info, BasicNode>(
+				new SyntacticRule<Info, BasicNode>(leftHandSide, leftHandSide, new SimpleBidirectionalMap<BasicNode, BasicNode>()), 0.5, description);
+	}
+
+	private static List<String> descriptions(List<RuleWithConfidenceAndDescription<Info, BasicNode>> rules)
+	{
+		List<String> ret = new ArrayList<String>();
+		for (RuleWithConfidenceAndDescription<Info, BasicNode> rule : rules)
+		{
+			ret.add(rule.getDescription());
+		}
+		return ret;
+	}
+
+	private static <T> List<T> sublist(List<T> list, int... indexes)
+	{
+		List<T> ret = new ArrayList<T>();
+		for (int index : indexes)
+		{
+			ret.add(list.get(index));
+		}
+		return ret;
+	}
+
+	private static final String[] LEMMAS = {"a", "b", "c", "d"};
+	private static final SimplerCanonicalPosTag[] POS_TAGS = {SimplerCanonicalPosTag.NOUN, SimplerCanonicalPosTag.VERB, SimplerCanonicalPosTag.ADJECTIVE};
+	private static final String[] RELATIONS = {"subj", "obj", "mod"};
+}
@@ -0,0 +1,351 @@
+package eu.excitementproject.eop.transformations.operations.operations;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import eu.excitementproject.eop.common.component.syntacticknowledge.SyntacticRule;
+import eu.excitementproject.eop.common.datastructures.BidirectionalMap;
+import eu.excitementproject.eop.common.datastructures.SimpleBidirectionalMap;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.DefaultEdgeInfo;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.DefaultInfo;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.DefaultNodeInfo;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.DefaultSyntacticInfo;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.DependencyRelation;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.EdgeInfo;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.Info;
+import eu.excitementproject.eop.common.representation.parse.tree.AbstractNodeUtils;
+import eu.excitementproject.eop.common.representation.parse.tree.TreeAndParentMap;
+import eu.excitementproject.eop.common.representation.parse.tree.dependency.basic.BasicNode;
+import eu.excitementproject.eop.common.representation.partofspeech.BySimplerCanonicalPartOfSpeech;
+import eu.excitementproject.eop.common.representation.partofspeech.SimplerCanonicalPosTag;
+import eu.excitementproject.eop.transformations.operations.OperationException;
+import eu.excitementproject.eop.transformations.representation.AdditionalInformationServices;
+import eu.excitementproject.eop.transformations.representation.ExtendedInfo;
+import eu.excitementproject.eop.transformations.representation.ExtendedNode;
+import eu.excitementproject.eop.transformations.utilities.Constants;
+import eu.excitementproject.eop.transformations.utilities.parsetreeutils.ContentAncestorSetter;
+
+/**
+ * Checks that {@link MoveNodeOperation} and {@link ExtendedSubstitutionRuleApplicationOperation}, which share the unchanged
+ * subtrees of the original tree when {@link Constants#SHARE_UNCHANGED_SUBTREES_OF_GENERATED_TREES} is <tt>true</tt>, generate
+ * the trees, the mappings and the affected nodes that they generate by copying the whole tree, and do not change the original tree.
+ */
+public class SharingGenerationOperationsTest
+{
+	@Test
+	public void testMoveNodeEqualsFullCopy() throws Exception
+	{
+		assertTrue(Constants.SHARE_UNCHANGED_SUBTREES_OF_GENERATED_TREES);
+		Random random = new Random(4);
+		int numberOfSharedNodes = 0;
+		for (int treeNumber=0;treeNumber<50;++treeNumber)
+		{
+			TreeAndParentMap<ExtendedInfo, ExtendedNode> textTree = new TreeAndParentMap<ExtendedInfo, ExtendedNode>(randomTree(random, 4, true));
+			String originalTree = describe(textTree.getTree());
+			List<ExtendedNode> nodes = new ArrayList<ExtendedNode>(AbstractNodeUtils.treeToLinkedHashSet(textTree.getTree()));
+			for (int moveNumber=0;moveNumber<10;++moveNumber)
+			{
+				ExtendedNode nodeToMove = nodes.get(1+random.nextInt(nodes.size()-1));
+				ExtendedNode newParent = nodes.get(random.nextInt(nodes.size()));
+				EdgeInfo edgeInfo = (random.nextBoolean()) ? null : edgeInfo(RELATIONS[random.nextInt(RELATIONS.length)]);
+				MoveNodeOperation sharing = new MoveNodeOperation(textTree, textTree, nodeToMove, newParent, edgeInfo);
+				sharing.generate();
+				MoveNodeOperation fullCopy = new MoveNodeOperation(textTree, textTree, nodeToMove, newParent, edgeInfo)
+				{
+					@Override
+					protected boolean isMovedToAnotherSubTree()
+					{
+						return false;
+					}
+				};
+				fullCopy.generate();
+
+				assertEquals(fullCopy.isNodeToMoveNotExistInGeneratedTree(), sharing.isNodeToMoveNotExistInGeneratedTree());
+				assertEquals(AbstractNodeUtils.treeToLinkedHashSet(nodeToMove).contains(newParent), sharing.isNodeToMoveNotExistInGeneratedTree());
+				assertOperationsEqual(nodes, fullCopy, sharing);
+				assertEquals(originalTree, describe(textTree.getTree()));
+				numberOfSharedNodes += numberOfSharedNodes(nodes, sharing);
+			}
+		}
+		assertTrue("no subtree was shared", numberOfSharedNodes>0);
+	}
+
+	@Test
+	public void testRuleApplicationEqualsFullCopy() throws Exception
+	{
+		Random random = new Random(6);
+		int numberOfSharedNodes = 0;
+		for (int treeNumber=0;treeNumber<50;++treeNumber)
+		{
+			// the whole tree copy does not copy the antecedents, so the trees are compared without them
+			TreeAndParentMap<ExtendedInfo, ExtendedNode> textTree = new TreeAndParentMap<ExtendedInfo, ExtendedNode>(randomTree(random, 4, false));
+			String originalTree = describe(textTree.getTree());
+			List<ExtendedNode> nodes = new ArrayList<ExtendedNode>(AbstractNodeUtils.treeToLinkedHashSet(textTree.getTree()));
+			for (ExtendedNode child : nodes)
+			{
+				ExtendedNode parent = textTree.getParentMap().get(child);
+				if (null==parent) continue;
+				for (SyntacticRule<Info, BasicNode> rule : rules())
+				{
+					BidirectionalMap<BasicNode, ExtendedNode> mapLhsToTree = new SimpleBidirectionalMap<BasicNode, ExtendedNode>();
+					mapLhsToTree.put(rule.getLeftHandSide(), parent);
+					mapLhsToTree.put(rule.getLeftHandSide().getChildren().get(0), child);
+					ExtendedSubstitutionRuleApplicationOperation sharing = new ExtendedSubstitutionRuleApplicationOperation(textTree, textTree, rule, mapLhsToTree);
+					sharing.generate();
+					ExtendedSubstitutionRuleApplicationOperation fullCopy = new ExtendedSubstitutionRuleApplicationOperation(textTree, textTree, rule, mapLhsToTree)
+					{
+						@Override
+						protected void generateTheTree() throws OperationException
+						{
+							bidiMapOrigToGenerated = new SimpleBidirectionalMap<ExtendedNode, ExtendedNode>();
+							rootOfLhsInTree = parent(mapLhsToTree);
+							try
+							{
+								generatedTree = copySubTree(textTree.getTree());
+							}
+							catch (Exception e)
+							{
+								throw new OperationException("copy failed", e);
+							}
+						}
+					};
+					fullCopy.generate();
+
+					assertOperationsEqual(nodes, fullCopy, sharing);
+					assertEquals(originalTree, describe(textTree.getTree()));
+					numberOfSharedNodes += numberOfSharedNodes(nodes, sharing);
+				}
+			}
+		}
+		assertTrue("no subtree was shared", numberOfSharedNodes>0);
+	}
+
+	@Test
+	public void testRuleApplicationKeepsAntecedents() throws Exception
+	{
+		// "it" refers to "car", which is replaced by the rule, and "him" refers to "john", which is not changed.
+		ExtendedNode car = node("car", "obj");
+		ExtendedNode john = node("john", "subj");
+		ExtendedNode it = node("it", "obj");
+		ExtendedNode him = node("him", "iobj");
+		it.setAntecedent(car);
+		him.setAntecedent(john);
+		ExtendedNode buy = node("buy", null, john, car, node("sell", "conj", it, him));
+		TreeAndParentMap<ExtendedInfo, ExtendedNode> textTree = new TreeAndParentMap<ExtendedInfo, ExtendedNode>(buy);
+
+		SyntacticRule<Info, BasicNode> rule = rules().get(0);
+		BidirectionalMap<BasicNode, ExtendedNode> mapLhsToTree = new SimpleBidirectionalMap<BasicNode, ExtendedNode>();
+		mapLhsToTree.put(rule.getLeftHandSide(), buy);
+		mapLhsToTree.put(rule.getLeftHandSide().getChildren().get(0), car);
+		ExtendedSubstitutionRuleApplicationOperation operation = new ExtendedSubstitutionRuleApplicationOperation(textTree, textTree, rule, mapLhsToTree);
+		operation.generate();
+
+		Set<ExtendedNode> generatedNodes = AbstractNodeUtils.treeToLinkedHashSet(operation.getGeneratedTree());
+		ExtendedNode generatedIt = single(operation.getMapOriginalToGenerated().get(it));
+		ExtendedNode generatedHim = single(operation.getMapOriginalToGenerated().get(him));
+		assertTrue(generatedNodes.contains(generatedIt));
+		assertSame(single(operation.getMapOriginalToGenerated().get(car)), generatedIt.getAntecedent());
+		assertTrue(generatedNodes.contains(generatedHim.getAntecedent()));
+		assertEquals("john", generatedHim.getAntecedent().getInfo().getNodeInfo().getWordLemma());
+		assertSame(car, it.getAntecedent());
+	}
+
+
+	private static void assertOperationsEqual(List<ExtendedNode> originalNodes, GenerationOperation<ExtendedInfo, ExtendedNode> expected,
+			GenerationOperation<ExtendedInfo, ExtendedNode> actual) throws Exception
+	{
+		List<ExtendedNode> expectedNodes = new ArrayList<ExtendedNode>(AbstractNodeUtils.treeToLinkedHashSet(expected.getGeneratedTree()));
+		List<ExtendedNode> actualNodes = new ArrayList<ExtendedNode>(AbstractNodeUtils.treeToLinkedHashSet(actual.getGeneratedTree()));
+		String message = describe(expected.getGeneratedTree())+" / "+describe(actual.getGeneratedTree());
+		assertEquals(message, describe(expected.getGeneratedTree()), describe(actual.getGeneratedTree()));
+		for (ExtendedNode originalNode : originalNodes)
+		{
+			assertEquals(message, positions(expectedNodes, expected.getMapOriginalToGenerated().get(originalNode)),
+					positions(actualNodes, actual.getMapOriginalToGenerated().get(originalNode)));
+		}
+		assertEquals(message, positions(expectedNodes, expected.getAffectedNodes()), positions(actualNodes, actual.getAffectedNodes()));
+		for (ExtendedNode node : actualNodes)
+		{
+			assertTrue(message, (null==node.getAntecedent()) || (actualNodes.contains(node.getAntecedent())));
+		}
+	}
+
+	private static int numberOfSharedNodes(List<ExtendedNode> originalNodes, GenerationOperation<ExtendedInfo, ExtendedNode> operation) throws Exception
+	{
+		Set<ExtendedNode> generatedNodes = AbstractNodeUtils.treeToLinkedHashSet(operation.getGeneratedTree());
+		int shared = 0;
+		for (ExtendedNode originalNode : originalNodes)
+		{
+			if (generatedNodes.contains(originalNode))
+				++shared;
+		}
+		return shared;
+	}
+
+	private static List<Integer> positions(List<ExtendedNode> nodes, Iterable<ExtendedNode> someNodes)
+	{
+		List<Integer> positions = new ArrayList<Integer>();
+		if (someNodes!=null)
+		{
+			for (ExtendedNode node : someNodes)
+			{
+				positions.add(nodes.indexOf(node));
+			}
+		}
+		return positions;
+	}
+
+	private static ExtendedNode single(Iterable<ExtendedNode> nodes)
+	{
+		ExtendedNode ret = null;
+		for (ExtendedNode node : nodes)
+		{
+			assertNull(ret);
+			ret = node;
+		}
+		assertNotNull(ret);
+		return ret;
+	}
+
+	/**
+	 * The tree, with the information and the antecedent of each node
+	 */
+	private static String describe(ExtendedNode tree)
+	{
+		List<ExtendedNode> nodes = new ArrayList<ExtendedNode>(AbstractNodeUtils.treeToLinkedHashSet(tree));
+		StringBuilder sb = new StringBuilder();
+		describe(tree, nodes, sb);
+		return sb.toString();
+	}
+
+	private static void describe(ExtendedNode subtree, List<ExtendedNode> nodes, StringBuilder sb)
+	{
+		sb.append("(").append(subtree.getInfo().getNodeInfo().getWordLemma()).append(":").append(subtree.getInfo().getEdgeInfo().getDependencyRelation().getStringRepresentation());
+		sb.append(" ").append(subtree.getInfo().getAdditionalNodeInformation());
+		if (subtree.getAntecedent()!=null)
+		{
+			sb.append(" ->").append(nodes.indexOf(subtree.getAntecedent()));
+		}
+		if (subtree.getChildren()!=null)
+		{
+			for (ExtendedNode child : subtree.getChildren())
+			{
+				describe(child, nodes, sb);
+			}
+		}
+		sb.append(")");
+	}
+
+	/**
+	 * Rules whose left-hand-side is a variable with one variable child, which match any node and its parent
+	 */
+	private static List<SyntacticRule<Info, BasicNode>> rules() throws Exception
+	{
+		List<SyntacticRule<Info, BasicNode>> rules = new ArrayList<SyntacticRule<Info, BasicNode>>();
+
+		// X -> Y  ==>  Y -> be -> X
+		BasicNode lhsX = ruleNode(1, null, null);
+		BasicNode lhsY = ruleNode(2, null, "obj");
+		lhsX.addChild(lhsY);
+		BasicNode rhsY = ruleNode(2, null, null);
+		BasicNode rhsBe = ruleNode(null, "be", "cop");
+		BasicNode rhsX = ruleNode(1, null, "subj");
+		rhsY.addChild(rhsBe);
+		rhsBe.addChild(rhsX);
+		BidirectionalMap<BasicNode, BasicNode> mapNodes = new SimpleBidirectionalMap<BasicNode, BasicNode>();
+		mapNodes.put(lhsX, rhsX);
+		mapNodes.put(lhsY, rhsY);
+		rules.add(new SyntacticRule<Info, BasicNode>(lhsX, rhsY, mapNodes));
+
+		// X -> Y  ==>  X -> new, in which Y is removed
+		lhsX = ruleNode(1, null, null);
+		lhsY = ruleNode(2, null, "obj");
+		lhsX.addChild(lhsY);
+		rhsX = ruleNode(1, null, null);
+		rhsX.addChild(ruleNode(null, "new", "mod"));
+		mapNodes = new SimpleBidirectionalMap<BasicNode, BasicNode>();
+		mapNodes.put(lhsX, rhsX);
+		rules.add(new SyntacticRule<Info, BasicNode>(lhsX, rhsX, mapNodes));
+
+		return rules;
+	}
+
+	private static BasicNode ruleNode(Integer variableId, String lemma, String relation) throws Exception
+	{
+		DefaultSyntacticInfo syntacticInfo = new DefaultSyntacticInfo(new BySimplerCanonicalPartOfSpeech(SimplerCanonicalPosTag.OTHER));
+		DefaultNodeInfo nodeInfo = (variableId!=null) ? DefaultNodeInfo.newVariableDefaultNodeInfo(variableId, syntacticInfo)
+				: new DefaultNodeInfo(lemma, lemma, 0, null, syntacticInfo);
+		return new BasicNode(new DefaultInfo("r", nodeInfo, edgeInfo(relation)));
+	}
+
+	private static ExtendedNode parent(BidirectionalMap<BasicNode, ExtendedNode> mapLhsToTree)
+	{
+		for (BasicNode ruleNode : mapLhsToTree.leftSet())
+		{
+			if (ruleNode.hasChildren())
+				return mapLhsToTree.leftGet(ruleNode);
+		}
+		return null;
+	}
+
+	/**
+	 * A random tree with its content ancestors, as the trees of the search have.
+	 * @param withAntecedents if <tt>true</tt>, some of the nodes refer to other nodes of the tree as their antecedents
+	 */
+	private static ExtendedNode randomTree(Random random, int depth, boolean withAntecedents) throws Exception
+	{
+		ExtendedNode root = ContentAncestorSetter.generateWithAncestorInformation(randomTree(random, depth, null));
+		if (withAntecedents)
+		{
+			List<ExtendedNode> nodes = new ArrayList<ExtendedNode>(AbstractNodeUtils.treeToLinkedHashSet(root));
+			for (ExtendedNode node : nodes)
+			{
+				if (random.nextInt(8)==0)
+				{
+					node.setAntecedent(nodes.get(random.nextInt(nodes.size())));
+				}
+			}
+		}
+		return root;
+	}
+
+	private static ExtendedNode randomTree(Random random, int depth, String relation) throws Exception
+	{
+		ExtendedNode root = node(LEMMAS[random.nextInt(LEMMAS.length)], relation);
+		if (depth>1)
+		{
+			// the root keeps a child when one of its children is moved (a generated root that is a leaf cannot be sealed)
+			int children = ((null==relation)?2:0)+random.nextInt(3);
+			for (int child=0;child<children;++child)
+			{
+				root.addChild(randomTree(random, depth-1, RELATIONS[random.nextInt(RELATIONS.length)]));
+			}
+		}
+		return root;
+	}
+
+	private static ExtendedNode node(String lemma, String relation, ExtendedNode... children) throws Exception
+	{
+		ExtendedNode node = new ExtendedNode(new ExtendedInfo("1",
+				new DefaultNodeInfo(lemma, lemma, 0, null, new DefaultSyntacticInfo(new BySimplerCanonicalPartOfSpeech(SimplerCanonicalPosTag.NOUN))),
+				edgeInfo(relation), AdditionalInformationServices.emptyInformation()));
+		for (ExtendedNode child : children)
+		{
+			node.addChild(child);
+		}
+		return node;
+	}
+
+	private static EdgeInfo edgeInfo(String relation)
+	{
+		return new DefaultEdgeInfo(new DependencyRelation((null==relation)?"":relation, null));
+	}
+
+	private static final String[] LEMMAS = {"buy", "car", "john", "red", "of"};
+	private static final String[] RELATIONS = {"subj", "obj", "mod"};
+}
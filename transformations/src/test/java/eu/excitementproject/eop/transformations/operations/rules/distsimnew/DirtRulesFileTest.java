@@ -0,0 +1,330 @@
+package eu.excitementproject.eop.transformations.operations.rules.distsimnew;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import eu.excitementproject.eop.transformations.operations.rules.distsim.DistSimParameters;
+
+/**
+ * Checks that a {@link DirtRulesFile} written by {@link DirtRulesFileExporter} gives the same templates and rules
+ * as the data-base it was exported from, queried the way {@link DirtDBRuleBase} queries it.
+ */
+public class DirtRulesFileTest
+{
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Before
+	public void setUp() throws Exception
+	{
+		database = new FakeDirtDatabase();
+		// The data-base IDs are not in the order of the templates. Some templates are not ASCII, since the file sorts
+		// them by their unsigned UTF-8 bytes.
+		String[] descriptions = {"v:buy:v>obj>n", "n<subj<v:purchase:v", "v:acquire:v>obj>n", "v:ach\u00e8te:v>obj>n",
+				"v:zap:v", "v:\u03a9:v", "n<nn<n:car:n", "v:sell:v>obj>n"};
+		for (int index=0;index<descriptions.length;++index)
+		{
+			int id = 100-7*index;
+			database.addTemplate(id, descriptions[index]);
+			templates.put(id, descriptions[index]);
+		}
+		// a row with an empty description, which is ignored
+		database.addTemplate(3, "");
+
+		// Each template has a few rules in each direction, all with distinct scores, which floats keep exactly.
+		int rule = 0;
+		List<Integer> ids = new ArrayList<Integer>(templates.keySet());
+		Collections.sort(ids);
+		for (int left=0;left<ids.size();++left)
+		{
+			for (int right=0;right<ids.size();++right)
+			{
+				if ( (left!=right) && ((left*right+left)%3!=0) )
+				{
+					database.addRule(ids.get(left), ids.get(right), (++rule)/64.0);
+				}
+			}
+		}
+		numberOfRules = rule;
+		// Rules of templates which are not in the templates table, or have an empty description: they are dropped, so
+		// their scores are below the scores of the other rules, and the limit of the data-base queries doesn't reach them.
+		database.addRule(ids.get(0), 5000, 1/1024.0);
+		database.addRule(5000, ids.get(0), 2/1024.0);
+		database.addRule(3, ids.get(1), 3/1024.0);
+
+		file = folder.newFile("dirt.rules");
+		assertEquals(numberOfRules, new DirtRulesFileExporter(database.getConnection(), FakeDirtDatabase.TEMPLATES_TABLE, FakeDirtDatabase.RULES_TABLE).export(file));
+	}
+
+	@Test
+	public void testTemplates() throws Exception
+	{
+		DirtRulesFile rulesFile = DirtRulesFile.open(file);
+		assertSame(rulesFile, DirtRulesFile.open(file));
+		assertEquals(templates.size(), rulesFile.getNumberOfTemplates());
+		assertEquals(numberOfRules, rulesFile.getNumberOfRules());
+
+		List<String> sorted = new ArrayList<String>();
+		for (int id=0;id<rulesFile.getNumberOfTemplates();++id)
+		{
+			String template = rulesFile.getTemplate(id);
+			assertEquals(id, rulesFile.getId(template));
+			sorted.add(template);
+		}
+		// all the templates, sorted by their code points (the order of their UTF-8 bytes)
+		List<String> expected = new ArrayList<String>(templates.values());
+		Collections.sort(expected, new Comparator<String>()
+		{
+			@Override
+			public int compare(String template1, String template2)
+			{
+				return compareCodePoints(template1, template2);
+			}
+		});
+		assertEquals(expected, sorted);
+
+		assertEquals(-1, rulesFile.getId(""));
+		assertEquals(-1, rulesFile.getId("v:buy:v"));
+		assertEquals(-1, rulesFile.getId("a"));
+		assertEquals(-1, rulesFile.getId("\uffff"));
+		try
+		{
+			rulesFile.getTemplate(rulesFile.getNumberOfTemplates());
+			fail("a template which is not in the file");
+		}
+		catch(IndexOutOfBoundsException e){}
+	}
+
+	@Test
+	public void testRulesWithoutLimit() throws Exception
+	{
+		assertRulesEqualDataBase(Integer.MAX_VALUE);
+	}
+
+	@Test
+	public void testRulesWithLimit() throws Exception
+	{
+		assertRulesEqualDataBase(2);
+	}
+
+	@Test
+	public void testRuleBaseOfFileEqualsRuleBaseOfDataBase() throws Exception
+	{
+		int limit = 3;
+		DirtDBRuleBase ofDataBase = new DirtDBRuleBase(database.getConnection(), "db",
+				new DistSimParameters(FakeDirtDatabase.TEMPLATES_TABLE, FakeDirtDatabase.RULES_TABLE, limit, 0, 0), null);
+		DirtDBRuleBase ofFile = new DirtDBRuleBase(file, "file", limit, null);
+
+		for (String template : new String[]{"v:buy:v>obj>n", "v:sell:v>obj>n", "v:ach\u00e8te:v>obj>n", "v:\u03a9:v", "unknown", ""})
+		{
+			Integer dbId = ofDataBase.getIdForTemplate(template);
+			Integer fileId = ofFile.getIdForTemplate(template);
+			assertEquals(template, (dbId==null), (fileId==null));
+			if (dbId!=null)
+			{
+				assertEquals(template, templates.get(dbId), ofFile.rulesFile.getTemplate(fileId));
+			}
+
+			List<String> entailingOfDataBase = new ArrayList<String>();
+			for (IdAndScore idAndScore : ofDataBase.queryAllRulesForGivenHypothesisTemplate(template))
+			{
+				addRule(entailingOfDataBase, templates.get(idAndScore.getId()), idAndScore.getScore());
+			}
+			assertEquals(template, entailingOfDataBase, toStrings(ofFile.rulesFile, ofFile.queryAllRulesForGivenHypothesisTemplate(template)));
+		}
+	}
+
+	@Test
+	public void testHeaderChecks() throws Exception
+	{
+		assertNotOpened(rewrite("magic.rules", 0, 0x12345678), "is not a DIRT rules file");
+		assertNotOpened(rewrite("version.rules", 4, DirtRulesFile.VERSION+1), "has version "+(DirtRulesFile.VERSION+1));
+		assertNotOpened(rewrite("rules.rules", 12, numberOfRules+1), "is truncated or malformed");
+
+		File truncated = copy("truncated.rules");
+		RandomAccessFile randomAccessFile = new RandomAccessFile(truncated, "rw");
+		try
+		{
+			randomAccessFile.setLength(randomAccessFile.length()-4);
+		}
+		finally
+		{
+			randomAccessFile.close();
+		}
+		assertNotOpened(truncated, "is truncated or malformed");
+
+		File tooShort = folder.newFile("short.rules");
+		FileOutputStream output = new FileOutputStream(tooShort);
+		try
+		{
+			output.write(new byte[]{0x44, 0x49, 0x52, 0x54});
+		}
+		finally
+		{
+			output.close();
+		}
+		assertNotOpened(tooShort, "is not a DIRT rules file");
+	}
+
+
+	/**
+	 * Compares the rules of every template of the file, in both directions, with the queries of {@link DirtDBRuleBase}
+	 * on the data-base (the same queries, which it prepares, for the entailed templates and for the entailing templates)
+	 */
+	private void assertRulesEqualDataBase(int limit) throws Exception
+	{
+		DirtRulesFile rulesFile = DirtRulesFile.open(file);
+		DirtDBRuleBase ofDataBase = new DirtDBRuleBase(database.getConnection(), "db",
+				new DistSimParameters(FakeDirtDatabase.TEMPLATES_TABLE, FakeDirtDatabase.RULES_TABLE, limit, 0, 0), null);
+		int rulesOfLimit = 0;
+		for (Map.Entry<Integer, String> template : templates.entrySet())
+		{
+			int id = rulesFile.getId(template.getValue());
+
+			List<String> entailed = new ArrayList<String>();
+			ofDataBase.statementRuleForId.setInt(1, template.getKey());
+			ResultSet resultSet = ofDataBase.statementRuleForId.executeQuery();
+			while (resultSet.next())
+			{
+				addRule(entailed, resultSet.getString("description"), resultSet.getDouble("score"));
+			}
+			assertEquals(template.getValue(), entailed, toStrings(rulesFile, rulesFile.getEntailedTemplates(id, limit)));
+
+			List<String> entailing = new ArrayList<String>();
+			ofDataBase.statementRightElementIdForGivenLeftElementId.setInt(1, template.getKey());
+			resultSet = ofDataBase.statementRightElementIdForGivenLeftElementId.executeQuery();
+			while (resultSet.next())
+			{
+				addRule(entailing, templates.get(resultSet.getInt("right_element_id")), resultSet.getDouble("score"));
+			}
+			assertEquals(template.getValue(), entailing, toStrings(rulesFile, rulesFile.getEntailingTemplates(id, limit)));
+
+			rulesOfLimit += entailed.size();
+		}
+		assertTrue("no rules", rulesOfLimit>0);
+		if (limit>=numberOfRules)
+		{
+			assertEquals(numberOfRules, rulesOfLimit);
+		}
+	}
+
+	/**
+	 * Adds a rule of the data-base as "template score", unless its template is missing or empty (the file drops these rules).
+	 */
+	private static void addRule(List<String> rules, String template, double score)
+	{
+		if ( (template!=null) && (!template.isEmpty()) )
+		{
+			rules.add(template+" "+(float)score);
+		}
+	}
+
+	private static List<String> toStrings(DirtRulesFile rulesFile, Iterable<IdAndScore> rules)
+	{
+		List<String> strings = new ArrayList<String>();
+		for (IdAndScore idAndScore : rules)
+		{
+			strings.add(rulesFile.getTemplate(idAndScore.getId())+" "+(float)idAndScore.getScore());
+		}
+		return strings;
+	}
+
+	private File copy(String name) throws IOException
+	{
+		File copy = folder.newFile(name);
+		RandomAccessFile input = new RandomAccessFile(file, "r");
+		try
+		{
+			byte[] bytes = new byte[(int)input.length()];
+			input.readFully(bytes);
+			FileOutputStream output = new FileOutputStream(copy);
+			try
+			{
+				output.write(bytes);
+			}
+			finally
+			{
+				output.close();
+			}
+		}
+		finally
+		{
+			input.close();
+		}
+		return copy;
+	}
+
+	/**
+	 * @return a copy of the file, with the given int at the given position of its header
+	 */
+	private File rewrite(String name, int position, int value) throws IOException
+	{
+		File copy = copy(name);
+		RandomAccessFile randomAccessFile = new RandomAccessFile(copy, "rw");
+		try
+		{
+			randomAccessFile.seek(position);
+			randomAccessFile.writeInt(value);
+		}
+		finally
+		{
+			randomAccessFile.close();
+		}
+		return copy;
+	}
+
+	private static void assertNotOpened(File file, String message)
+	{
+		try
+		{
+			DirtRulesFile.open(file);
+			fail(file.getName()+" was opened");
+		}
+		catch(IOException e)
+		{
+			assertTrue(e.getMessage(), e.getMessage().contains(message));
+		}
+	}
+
+	private static int compareCodePoints(String string1, String string2)
+	{
+		int[] codePoints1 = codePoints(string1);
+		int[] codePoints2 = codePoints(string2);
+		for (int index=0;index<Math.min(codePoints1.length, codePoints2.length);++index)
+		{
+			if (codePoints1[index]!=codePoints2[index]) return codePoints1[index]-codePoints2[index];
+		}
+		return codePoints1.length-codePoints2.length;
+	}
+
+	private static int[] codePoints(String string)
+	{
+		int[] codePoints = new int[string.codePointCount(0, string.length())];
+		for (int index=0, offset=0;index<codePoints.length;++index)
+		{
+			codePoints[index] = string.codePointAt(offset);
+			offset += Character.charCount(codePoints[index]);
+		}
+		return codePoints;
+	}
+
+	private FakeDirtDatabase database;
+	private final Map<Integer, String> templates = new HashMap<Integer, String>();
+	private int numberOfRules;
+	private File file;
+}
@@ -0,0 +1,218 @@
+package eu.excitementproject.eop.transformations.operations.rules.distsimnew;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * An in-memory stand-in for a DIRT-like data-base: a JDBC {@link Connection} whose statements answer
+ * the queries of {@link DirtRulesFileExporter}, {@link WholeDBLoader} and {@link DirtDBRuleBase}, over a
+ * templates table of <code>(id, description)</code> rows and a rules table of
+ * <code>(left_element_id, right_element_id, score)</code> rows.
+ * <P>
+ * Only the query shapes of these classes are supported; any other query fails.
+ */
+class FakeDirtDatabase
+{
+	static final String TEMPLATES_TABLE = "templates";
+	static final String RULES_TABLE = "rules";
+
+	void addTemplate(int id, String description)
+	{
+		Map<String, Object> row = new HashMap<String, Object>();
+		row.put("id", id);
+		row.put("description", description);
+		templates.add(row);
+	}
+
+	/**
+	 * Adds a rule. In the data-base, the right element entails the left element.
+	 */
+	void addRule(int leftElementId, int rightElementId, double score)
+	{
+		Map<String, Object> row = new HashMap<String, Object>();
+		row.put("left_element_id", leftElementId);
+		row.put("right_element_id", rightElementId);
+		row.put("score", score);
+		rules.add(row);
+	}
+
+	Connection getConnection()
+	{
+		return connection;
+	}
+
+
+	/**
+	 * Runs a query
+	 * @return the rows of the result, by their column labels
+	 */
+	private List<Map<String, Object>> execute(String sql, Map<Integer, Object> parameters) throws SQLException
+	{
+		if (sql.equals("SELECT id,description FROM "+TEMPLATES_TABLE))
+		{
+			return templates;
+		}
+		if (sql.equals("SELECT left_element_id,right_element_id,score FROM "+RULES_TABLE))
+		{
+			return rules;
+		}
+		if (sql.equals("SELECT id FROM "+TEMPLATES_TABLE+" WHERE description = ?"))
+		{
+			List<Map<String, Object>> rows = new ArrayList<Map<String, Object>>();
+			for (Map<String, Object> template : templates)
+			{
+				if (template.get("description").equals(parameters.get(1)))
+					rows.add(template);
+			}
+			return rows;
+		}
+		Matcher matcher = RULES_FOR_ID.matcher(sql);
+		if (matcher.matches())
+		{
+			String keyColumn = matcher.group(1);
+			boolean joined = (matcher.group(2)!=null);
+			int limit = Integer.parseInt(matcher.group(3));
+
+			List<Map<String, Object>> rows = new ArrayList<Map<String, Object>>();
+			for (Map<String, Object> rule : rules)
+			{
+				if (!rule.get(keyColumn).equals(parameters.get(1)))
+					continue;
+				if (joined)
+				{
+					// the description of the left element
+					for (Map<String, Object> template : templates)
+					{
+						if (template.get("id").equals(rule.get("left_element_id")))
+						{
+							Map<String, Object> row = new LinkedHashMap<String, Object>();
+							row.put("description", template.get("description"));
+							row.put("score", rule.get("score"));
+							rows.add(row);
+						}
+					}
+				}
+				else
+				{
+					rows.add(rule);
+				}
+			}
+			Collections.sort(rows, new Comparator<Map<String, Object>>()
+			{
+				@Override
+				public int compare(Map<String, Object> row1, Map<String, Object> row2)
+				{
+					return Double.compare((Double)row2.get("score"), (Double)row1.get("score"));
+				}
+			});
+			return (rows.size()>limit) ? new ArrayList<Map<String, Object>>(rows.subList(0, limit)) : rows;
+		}
+		throw new SQLException("Unsupported query: "+sql);
+	}
+
+	private Statement newStatement()
+	{
+		return (Statement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Statement.class}, new InvocationHandler()
+		{
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+			{
+				String name = method.getName();
+				if (name.equals("executeQuery"))
+					return newResultSet(execute((String)args[0], Collections.<Integer, Object>emptyMap()));
+				if (name.equals("setFetchSize") || name.equals("close"))
+					return null;
+				throw new UnsupportedOperationException(name);
+			}
+		});
+	}
+
+	private PreparedStatement newPreparedStatement(final String sql)
+	{
+		final Map<Integer, Object> parameters = new HashMap<Integer, Object>();
+		return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{PreparedStatement.class}, new InvocationHandler()
+		{
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+			{
+				String name = method.getName();
+				if (name.equals("setString") || name.equals("setInt"))
+				{
+					parameters.put((Integer)args[0], args[1]);
+					return null;
+				}
+				if (name.equals("executeQuery") && (null==args))
+					return newResultSet(execute(sql, parameters));
+				if (name.equals("close"))
+					return null;
+				throw new UnsupportedOperationException(name);
+			}
+		});
+	}
+
+	private static ResultSet newResultSet(final List<Map<String, Object>> rows)
+	{
+		return (ResultSet) Proxy.newProxyInstance(FakeDirtDatabase.class.getClassLoader(), new Class<?>[]{ResultSet.class}, new InvocationHandler()
+		{
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+			{
+				String name = method.getName();
+				if (name.equals("next"))
+					return ++position<rows.size();
+				if (name.equals("getString") || name.equals("getInt") || name.equals("getDouble"))
+				{
+					Object value = rows.get(position).get(args[0]);
+					if (null==value) throw new SQLException("No such column: "+args[0]);
+					return value;
+				}
+				if (name.equals("close"))
+					return null;
+				throw new UnsupportedOperationException(name);
+			}
+
+			private int position = -1;
+		});
+	}
+
+	private final List<Map<String, Object>> templates = new ArrayList<Map<String, Object>>();
+	private final List<Map<String, Object>> rules = new ArrayList<Map<String, Object>>();
+	private final Connection connection = (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class}, new InvocationHandler()
+	{
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+		{
+			String name = method.getName();
+			if (name.equals("createStatement"))
+				return newStatement();
+			if (name.equals("prepareStatement") && (args.length==1))
+				return newPreparedStatement((String)args[0]);
+			if (name.equals("close"))
+				return null;
+			throw new UnsupportedOperationException(name);
+		}
+	});
+
+	// The queries of DirtDBRuleBase: the entailed templates of a template (joined with the templates table), and the entailing
+	// templates of a template.
+	private static final Pattern RULES_FOR_ID = Pattern.compile(
+			"SELECT (?:"+TEMPLATES_TABLE+"\\.description, "+RULES_TABLE+"\\.score FROM "+TEMPLATES_TABLE+", "+RULES_TABLE+" |"+
+			RULES_TABLE+"\\.right_element_id, "+RULES_TABLE+"\\.score FROM "+RULES_TABLE+" )"+
+			"WHERE "+RULES_TABLE+"\\.(right_element_id|left_element_id)=\\? "+
+			"(AND "+RULES_TABLE+"\\.left_element_id="+TEMPLATES_TABLE+"\\.id )?"+
+			"ORDER BY "+RULES_TABLE+"\\.score DESC LIMIT (\\d+)");
+}
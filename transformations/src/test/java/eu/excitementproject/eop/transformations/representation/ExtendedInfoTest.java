@@ -0,0 +1,96 @@
+package eu.excitementproject.eop.transformations.representation;
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import eu.excitementproject.eop.common.representation.parse.representation.basic.DefaultEdgeInfo;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.DefaultNodeInfo;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.DefaultSyntacticInfo;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.DependencyRelation;
+import eu.excitementproject.eop.common.representation.partofspeech.BySimplerCanonicalPartOfSpeech;
+import eu.excitementproject.eop.common.representation.partofspeech.SimplerCanonicalPosTag;
+import eu.excitementproject.eop.transformations.representation.annotations.PredTruth;
+
+/**
+ * Checks {@link ExtendedInfo#equalsIgnoreContentAncestor(ExtendedInfo)} against {@link ExtendedInfo#equals(Object)}.
+ */
+public class ExtendedInfoTest
+{
+	@Test
+	public void testOnlyTheContentAncestorDiffers() throws Exception
+	{
+		ExtendedInfo buy = info("buy", SimplerCanonicalPosTag.VERB, AdditionalInformationServices.emptyInformation());
+		ExtendedInfo sell = info("sell", SimplerCanonicalPosTag.VERB, AdditionalInformationServices.emptyInformation());
+		ExtendedInfo carUnderBuy = withContentAncestor(info("car", SimplerCanonicalPosTag.NOUN, AdditionalInformationServices.emptyInformation()), buy);
+		ExtendedInfo carUnderSell = withContentAncestor(info("car", SimplerCanonicalPosTag.NOUN, AdditionalInformationServices.emptyInformation()), sell);
+		ExtendedInfo carWithoutAncestor = info("car", SimplerCanonicalPosTag.NOUN, AdditionalInformationServices.emptyInformation());
+
+		assertEqualsIgnoreContentAncestor(true, false, carUnderBuy, carUnderSell);
+		assertEqualsIgnoreContentAncestor(true, false, carUnderBuy, carWithoutAncestor);
+		assertEqualsIgnoreContentAncestor(true, true, carUnderBuy,
+				withContentAncestor(info("car", SimplerCanonicalPosTag.NOUN, AdditionalInformationServices.emptyInformation()), buy));
+		assertTrue(carUnderBuy.equalsIgnoreContentAncestor(carUnderBuy));
+
+		// The content ancestors differ only in their own content ancestors, which equals() compares as well.
+		ExtendedInfo redUnderCarUnderBuy = withContentAncestor(info("red", SimplerCanonicalPosTag.ADJECTIVE, AdditionalInformationServices.emptyInformation()), carUnderBuy);
+		ExtendedInfo redUnderCarUnderSell = withContentAncestor(info("red", SimplerCanonicalPosTag.ADJECTIVE, AdditionalInformationServices.emptyInformation()), carUnderSell);
+		assertEqualsIgnoreContentAncestor(true, false, redUnderCarUnderBuy, redUnderCarUnderSell);
+	}
+
+	@Test
+	public void testOtherFieldsDiffer() throws Exception
+	{
+		ExtendedInfo buy = info("buy", SimplerCanonicalPosTag.VERB, AdditionalInformationServices.emptyInformation());
+		ExtendedInfo car = withContentAncestor(info("car", SimplerCanonicalPosTag.NOUN, AdditionalInformationServices.emptyInformation()), buy);
+
+		// the node information
+		assertEqualsIgnoreContentAncestor(false, false, car,
+				withContentAncestor(info("bus", SimplerCanonicalPosTag.NOUN, AdditionalInformationServices.emptyInformation()), buy));
+		assertEqualsIgnoreContentAncestor(false, false, car,
+				withContentAncestor(info("car", SimplerCanonicalPosTag.VERB, AdditionalInformationServices.emptyInformation()), buy));
+		// the edge information
+		assertEqualsIgnoreContentAncestor(false, false, car, new ExtendedInfo(car.getId(), car.getNodeInfo(),
+				new DefaultEdgeInfo(new DependencyRelation("subj", null)), car.getAdditionalNodeInformation()));
+		// the other additional information
+		assertEqualsIgnoreContentAncestor(false, false, car, new ExtendedInfo(car,
+				AdditionalInformationServices.setPredTruth(car.getAdditionalNodeInformation(), PredTruth.N)));
+		assertEqualsIgnoreContentAncestor(false, false, car, new ExtendedInfo(car,
+				AdditionalInformationServices.setContentAncestor(AdditionalInformationServices.generateFromCorefGroup(1, 1), buy)));
+	}
+
+	@Test
+	public void testNullAdditionalInformation() throws Exception
+	{
+		ExtendedInfo withoutInformation = info("car", SimplerCanonicalPosTag.NOUN, null);
+		ExtendedInfo withEmptyInformation = info("car", SimplerCanonicalPosTag.NOUN, AdditionalInformationServices.emptyInformation());
+
+		assertEqualsIgnoreContentAncestor(true, true, withoutInformation, info("car", SimplerCanonicalPosTag.NOUN, null));
+		assertFalse(withoutInformation.equalsIgnoreContentAncestor(withEmptyInformation));
+		assertFalse(withEmptyInformation.equalsIgnoreContentAncestor(withoutInformation));
+		assertFalse(withEmptyInformation.equalsIgnoreContentAncestor(null));
+	}
+
+
+	/**
+	 * Asserts the results of {@link ExtendedInfo#equalsIgnoreContentAncestor(ExtendedInfo)} and {@link ExtendedInfo#equals(Object)},
+	 * in both directions. Infos that are equal must be equal also when their content ancestors are ignored.
+	 */
+	private static void assertEqualsIgnoreContentAncestor(boolean expectedIgnoringContentAncestor, boolean expectedEquals, ExtendedInfo info1, ExtendedInfo info2)
+	{
+		assertEquals(info1+" / "+info2, expectedIgnoringContentAncestor, info1.equalsIgnoreContentAncestor(info2));
+		assertEquals(info2+" / "+info1, expectedIgnoringContentAncestor, info2.equalsIgnoreContentAncestor(info1));
+		assertEquals(info1+" / "+info2, expectedEquals, info1.equals(info2));
+		assertEquals(info2+" / "+info1, expectedEquals, info2.equals(info1));
+	}
+
+	private static ExtendedInfo withContentAncestor(ExtendedInfo info, ExtendedInfo contentAncestor)
+	{
+		return new ExtendedInfo(info, AdditionalInformationServices.setContentAncestor(info.getAdditionalNodeInformation(), contentAncestor));
+	}
+
+	private static ExtendedInfo info(String lemma, SimplerCanonicalPosTag pos, AdditionalNodeInformation additionalNodeInformation) throws Exception
+	{
+		return new ExtendedInfo("1", new DefaultNodeInfo(lemma, lemma, 0, null, new DefaultSyntacticInfo(new BySimplerCanonicalPartOfSpeech(pos))),
+				new DefaultEdgeInfo(new DependencyRelation("obj", null)), additionalNodeInformation);
+	}
+}
@@ -0,0 +1,449 @@
+package eu.excitementproject.eop.transformations.utilities;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import eu.excitementproject.eop.common.datastructures.BidirectionalMap;
+import eu.excitementproject.eop.common.datastructures.SimpleValueSetMap;
+import eu.excitementproject.eop.common.datastructures.ValueSetMap;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.DefaultEdgeInfo;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.DefaultNodeInfo;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.DefaultSyntacticInfo;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.DependencyRelation;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.EdgeInfo;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.InfoGetFields;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.NodeInfo;
+import eu.excitementproject.eop.common.representation.parse.tree.AbstractNodeUtils;
+import eu.excitementproject.eop.common.representation.parse.tree.SharingTreeCopier;
+import eu.excitementproject.eop.common.representation.parse.tree.TreeAndParentMap;
+import eu.excitementproject.eop.common.representation.parse.tree.TreeCopier;
+import eu.excitementproject.eop.common.representation.partofspeech.BySimplerCanonicalPartOfSpeech;
+import eu.excitementproject.eop.common.representation.partofspeech.SimplerCanonicalPosTag;
+import eu.excitementproject.eop.transformations.alignment.AbstractAlignmentCriteria;
+import eu.excitementproject.eop.transformations.alignment.AlignmentCalculator;
+import eu.excitementproject.eop.transformations.alignment.DefaultAlignmentCriteria;
+import eu.excitementproject.eop.transformations.operations.operations.GenerationOperation;
+import eu.excitementproject.eop.transformations.operations.operations.InsertNodeOperation;
+import eu.excitementproject.eop.transformations.operations.operations.MoveNodeOperation;
+import eu.excitementproject.eop.transformations.operations.operations.SubstituteNodeOperation;
+import eu.excitementproject.eop.transformations.representation.AdditionalInformationServices;
+import eu.excitementproject.eop.transformations.representation.ExtendedInfo;
+import eu.excitementproject.eop.transformations.representation.ExtendedNode;
+import eu.excitementproject.eop.transformations.representation.ExtendedNodeConstructor;
+import eu.excitementproject.eop.transformations.utilities.parsetreeutils.AdvancedEqualities;
+import eu.excitementproject.eop.transformations.utilities.parsetreeutils.ContentAncestorSetter;
+import eu.excitementproject.eop.transformations.utilities.parsetreeutils.TreeUtilities;
+
+/**
+ * Checks that the evaluations of {@link IncrementalTreeEvaluations}, updated along a sequence of operations, are
+ * the evaluations calculated from scratch for each generated tree, by {@link AlignmentCalculator} and, with the
+ * criteria of {@link AdvancedEqualities}, by {@link SingleTreeEvaluations#create(TreeAndParentMap, TreeAndParentMap, Set, int)}.
+ */
+public class IncrementalTreeEvaluationsTest
+{
+	@Test
+	public void testUpdateEqualsCreateOverOperations() throws Exception
+	{
+		Random random = new Random(5);
+		for (int pair=0;pair<30;++pair)
+		{
+			TreeAndParentMap<ExtendedInfo, ExtendedNode> hypothesis = new TreeAndParentMap<ExtendedInfo, ExtendedNode>(
+					ContentAncestorSetter.generateWithAncestorInformation(randomTree(random, 3, 0)));
+			TreeAndParentMap<ExtendedInfo, ExtendedNode> textTree = new TreeAndParentMap<ExtendedInfo, ExtendedNode>(
+					ContentAncestorSetter.generateWithAncestorInformation(randomTree(random, 5, 1)));
+			Evaluations evaluations = new Evaluations(hypothesis, textTree);
+			for (int step=0;step<20;++step)
+			{
+				GenerationOperation<ExtendedInfo, ExtendedNode> operation = randomOperation(random, evaluations.getTextTree(), hypothesis);
+				operation.generate();
+				evaluations.update(operation);
+			}
+		}
+	}
+
+	@Test
+	public void testUpdateEqualsCreateOverSharedTrees() throws Exception
+	{
+		Random random = new Random(8);
+		int numberOfSharedNodes = 0;
+		for (int pair=0;pair<30;++pair)
+		{
+			TreeAndParentMap<ExtendedInfo, ExtendedNode> hypothesis = new TreeAndParentMap<ExtendedInfo, ExtendedNode>(
+					ContentAncestorSetter.generateWithAncestorInformation(randomTree(random, 3, 0)));
+			TreeAndParentMap<ExtendedInfo, ExtendedNode> textTree = new TreeAndParentMap<ExtendedInfo, ExtendedNode>(
+					ContentAncestorSetter.generateWithAncestorInformation(randomTree(random, 5, 1)));
+			Evaluations evaluations = new Evaluations(hypothesis, textTree);
+			for (int step=0;step<20;++step)
+			{
+				SharedEdit edit = new SharedEdit(random, evaluations.getTextTree());
+				evaluations.update(edit.generatedTree, edit.mapOriginalToGenerated, edit.affectedNodes);
+				numberOfSharedNodes += edit.numberOfSharedNodes;
+			}
+		}
+		assertTrue("no subtree was shared", numberOfSharedNodes>0);
+	}
+
+	@Test(expected=TeEngineMlException.class)
+	public void testUpdateWithoutTextTree() throws Exception
+	{
+		TreeAndParentMap<ExtendedInfo, ExtendedNode> hypothesis = new TreeAndParentMap<ExtendedInfo, ExtendedNode>(
+				node("buy", SimplerCanonicalPosTag.VERB, null, node("car", SimplerCanonicalPosTag.NOUN, "obj")));
+		TreeAndParentMap<ExtendedInfo, ExtendedNode> textTree = new TreeAndParentMap<ExtendedInfo, ExtendedNode>(
+				node("buy", SimplerCanonicalPosTag.VERB, null, node("john", SimplerCanonicalPosTag.NOUN, "subj")));
+		IncrementalTreeEvaluations evaluations = IncrementalTreeEvaluations.create(new DefaultAlignmentCriteria(), textTree, hypothesis,
+				TreeUtilities.constructSetLemmasLowerCase(hypothesis), 2).withoutTextTree();
+		assertEquals(1, evaluations.getEvaluations().getMissingNodes());
+		evaluations.update(textTree, identityMap(textTree.getTree()), Collections.<ExtendedNode>emptySet());
+	}
+
+	@Test
+	public void testSubstitutedParentOfUnchangedNode() throws Exception
+	{
+		// "car" is not changed when its parent, which is not a content word, is substituted, but its triple is changed.
+		TreeAndParentMap<ExtendedInfo, ExtendedNode> hypothesis = new TreeAndParentMap<ExtendedInfo, ExtendedNode>(ContentAncestorSetter.generateWithAncestorInformation(
+				node("buy", SimplerCanonicalPosTag.VERB, null, node("in", SimplerCanonicalPosTag.PREPOSITION, "prep", node("car", SimplerCanonicalPosTag.NOUN, "pobj")))));
+		TreeAndParentMap<ExtendedInfo, ExtendedNode> textTree = new TreeAndParentMap<ExtendedInfo, ExtendedNode>(ContentAncestorSetter.generateWithAncestorInformation(
+				node("buy", SimplerCanonicalPosTag.VERB, null, node("of", SimplerCanonicalPosTag.PREPOSITION, "prep", node("car", SimplerCanonicalPosTag.NOUN, "pobj")))));
+		Evaluations evaluations = new Evaluations(hypothesis, textTree);
+		assertEquals(2, evaluations.incremental.getEvaluations().getMissingRelations());
+
+		ExtendedNode of = textTree.getTree().getChildren().get(0);
+		GenerationOperation<ExtendedInfo, ExtendedNode> operation = new SubstituteNodeOperation(textTree, hypothesis, of,
+				nodeInfo("in", SimplerCanonicalPosTag.PREPOSITION), of.getInfo().getAdditionalNodeInformation());
+		operation.generate();
+		evaluations.update(operation);
+		assertEquals(0, evaluations.incremental.getEvaluations().getMissingRelations());
+	}
+
+	@Test
+	public void testSharedRootAndMovedSharedSubtree() throws Exception
+	{
+		ExtendedNode hypothesisRoot = node("buy", SimplerCanonicalPosTag.VERB, null,
+				node("john", SimplerCanonicalPosTag.NOUN, "subj"),
+				node("car", SimplerCanonicalPosTag.NOUN, "obj", node("a", SimplerCanonicalPosTag.DETERMINER, "det")));
+		// no content ancestors are set, so they don't change when the subtrees are moved
+		TreeAndParentMap<ExtendedInfo, ExtendedNode> hypothesis = new TreeAndParentMap<ExtendedInfo, ExtendedNode>(hypothesisRoot);
+
+		ExtendedNode car = node("car", SimplerCanonicalPosTag.NOUN, "obj", node("a", SimplerCanonicalPosTag.DETERMINER, "det"));
+		ExtendedNode john = node("john", SimplerCanonicalPosTag.NOUN, "subj");
+		ExtendedNode sell = node("sell", SimplerCanonicalPosTag.VERB, "conj", car);
+		ExtendedNode buy = node("buy", SimplerCanonicalPosTag.VERB, null, john, sell);
+		TreeAndParentMap<ExtendedInfo, ExtendedNode> textTree = new TreeAndParentMap<ExtendedInfo, ExtendedNode>(buy);
+		Evaluations evaluations = new Evaluations(hypothesis, textTree);
+		assertEquals(1, evaluations.incremental.getEvaluations().getMissingRelations());
+
+		// "car" moves from "sell" to "buy": "buy" and "sell" are copied, while the subtree of "car" is shared,
+		// under another parent.
+		ExtendedNode generatedSell = new ExtendedNode(sell.getInfo());
+		ExtendedNode generatedBuy = new ExtendedNode(buy.getInfo());
+		generatedBuy.addChild(john);
+		generatedBuy.addChild(generatedSell);
+		generatedBuy.addChild(car);
+		ValueSetMap<ExtendedNode, ExtendedNode> map = identityMap(buy);
+		map.remove(buy);
+		map.remove(sell);
+		map.put(buy, generatedBuy);
+		map.put(sell, generatedSell);
+		evaluations.update(new TreeAndParentMap<ExtendedInfo, ExtendedNode>(generatedBuy), map, Collections.singleton(car));
+		assertEquals(0, evaluations.incremental.getEvaluations().getMissingRelations());
+
+		// A new root is added above the shared tree, and then it is copied, with only one of the shared subtrees.
+		ExtendedNode newRoot = node("x", SimplerCanonicalPosTag.OTHER, null, generatedBuy);
+		map = identityMap(generatedBuy);
+		evaluations.update(new TreeAndParentMap<ExtendedInfo, ExtendedNode>(newRoot), map, Collections.singleton(newRoot));
+		assertEquals(1, evaluations.incremental.getEvaluations().getMissingRelations());
+		ExtendedNode generatedX = new ExtendedNode(newRoot.getInfo());
+		generatedX.addChild(john);
+		map = identityMap(newRoot);
+		map.remove(newRoot);
+		map.put(newRoot, generatedX);
+		evaluations.update(new TreeAndParentMap<ExtendedInfo, ExtendedNode>(generatedX), map, Collections.<ExtendedNode>emptySet());
+		assertEquals(4, evaluations.incremental.getEvaluations().getMissingRelations());
+	}
+
+
+	/**
+	 * The incremental evaluations of a tree, and the evaluations of the tree calculated from scratch,
+	 * which are compared after each update.
+	 */
+	private static class Evaluations
+	{
+		public Evaluations(TreeAndParentMap<ExtendedInfo, ExtendedNode> hypothesis, TreeAndParentMap<ExtendedInfo, ExtendedNode> textTree) throws Exception
+		{
+			this.hypothesis = hypothesis;
+			this.hypothesisLemmas = TreeUtilities.constructSetLemmasLowerCase(hypothesis);
+			this.numberOfHypothesisNodes = AbstractNodeUtils.treeToLinkedHashSet(hypothesis.getTree()).size();
+			this.incremental = IncrementalTreeEvaluations.create(new DefaultAlignmentCriteria(), textTree, hypothesis, hypothesisLemmas, numberOfHypothesisNodes);
+			this.incrementalOfAdvancedEqualities = IncrementalTreeEvaluations.create(new AdvancedEqualitiesCriteria(), textTree, hypothesis, hypothesisLemmas, numberOfHypothesisNodes);
+			assertEqualsCreate();
+		}
+
+		public TreeAndParentMap<ExtendedInfo, ExtendedNode> getTextTree()
+		{
+			return incremental.getTextTree();
+		}
+
+		public void update(GenerationOperation<ExtendedInfo, ExtendedNode> operation) throws Exception
+		{
+			incremental = incremental.update(operation);
+			// as the search does: the evaluations are kept without their tree, and get a new parent map of it when the tree is expanded
+			IncrementalTreeEvaluations withoutTextTree = incrementalOfAdvancedEqualities.update(operation).withoutTextTree();
+			assertNull(withoutTextTree.getTextTree());
+			incrementalOfAdvancedEqualities = withoutTextTree.withTextTree(new TreeAndParentMap<ExtendedInfo, ExtendedNode>(operation.getGeneratedTree()));
+			assertEqualsCreate();
+		}
+
+		public void update(TreeAndParentMap<ExtendedInfo, ExtendedNode> generatedTree, ValueSetMap<ExtendedNode, ExtendedNode> mapOriginalToGenerated,
+				Set<ExtendedNode> affectedNodes) throws Exception
+		{
+			incremental = incremental.update(generatedTree, mapOriginalToGenerated, affectedNodes);
+			incrementalOfAdvancedEqualities = incrementalOfAdvancedEqualities.update(generatedTree, mapOriginalToGenerated, affectedNodes);
+			assertEqualsCreate();
+		}
+
+		private void assertEqualsCreate() throws Exception
+		{
+			TreeAndParentMap<ExtendedInfo, ExtendedNode> textTree = incremental.getTextTree();
+			String message = TreeUtilities.treeToString(textTree.getTree());
+			assertEvaluationsEqual(message, new AlignmentCalculator(new DefaultAlignmentCriteria(), textTree, hypothesis).getEvaluations(hypothesisLemmas, numberOfHypothesisNodes),
+					incremental.getEvaluations());
+			@SuppressWarnings("deprecation")
+			SingleTreeEvaluations ofAdvancedEqualities = SingleTreeEvaluations.create(textTree, hypothesis, hypothesisLemmas, numberOfHypothesisNodes);
+			assertEvaluationsEqual(message, ofAdvancedEqualities, incrementalOfAdvancedEqualities.getEvaluations());
+		}
+
+		private final TreeAndParentMap<ExtendedInfo, ExtendedNode> hypothesis;
+		private final Set<String> hypothesisLemmas;
+		private final int numberOfHypothesisNodes;
+		private IncrementalTreeEvaluations incremental;
+		private IncrementalTreeEvaluations incrementalOfAdvancedEqualities;
+	}
+
+	/**
+	 * The criteria of {@link SingleTreeEvaluations#create(TreeAndParentMap, TreeAndParentMap, Set, int)}
+	 */
+	private static class AdvancedEqualitiesCriteria extends AbstractAlignmentCriteria<ExtendedInfo, ExtendedNode>
+	{
+		@Override
+		public boolean nodesSimilar(TreeAndParentMap<ExtendedInfo, ExtendedNode> textTree, TreeAndParentMap<ExtendedInfo, ExtendedNode> hypothesisTree,
+				ExtendedNode textNode, ExtendedNode hypothesisNode)
+		{
+			return AdvancedEqualities.nodesEqual(textNode.getInfo(), hypothesisNode.getInfo());
+		}
+
+		@Override
+		public boolean nodesAligned(TreeAndParentMap<ExtendedInfo, ExtendedNode> textTree, TreeAndParentMap<ExtendedInfo, ExtendedNode> hypothesisTree,
+				ExtendedNode textNode, ExtendedNode hypothesisNode)
+		{
+			return AdvancedEqualities.nodesEqual(textNode.getInfo(), hypothesisNode.getInfo());
+		}
+
+		@Override
+		public boolean edgesAligned(TreeAndParentMap<ExtendedInfo, ExtendedNode> textTree, TreeAndParentMap<ExtendedInfo, ExtendedNode> hypothesisTree,
+				ExtendedNode textEdge, ExtendedNode hypothesisEdge)
+		{
+			return AdvancedEqualities.edgesEqual(textEdge, hypothesisEdge);
+		}
+	}
+
+	/**
+	 * Substitutes, inserts or moves a node, sharing the unchanged subtrees of the given tree (as the operations do when
+	 * {@link Constants#SHARE_UNCHANGED_SUBTREES_OF_GENERATED_TREES} is <tt>true</tt>), and then sets the content ancestors
+	 * of the generated tree, sharing its unchanged subtrees as well.
+	 */
+	private static class SharedEdit
+	{
+		public SharedEdit(Random random, TreeAndParentMap<ExtendedInfo, ExtendedNode> textTree) throws Exception
+		{
+			List<ExtendedNode> nodes = new ArrayList<ExtendedNode>(AbstractNodeUtils.treeToLinkedHashSet(textTree.getTree()));
+			final ExtendedNode node = nodes.get(random.nextInt(nodes.size()));
+			final ExtendedInfo newInfo = randomInfo(random, InfoGetFields.getRelation(node.getInfo()));
+			ExtendedNode parent = textTree.getParentMap().get(node);
+			ExtendedNode newParent = nodes.get(random.nextInt(nodes.size()));
+			int kind = random.nextInt(3);
+			if ( (2==kind) && ( (null==parent) || (AbstractNodeUtils.treeToLinkedHashSet(node).contains(newParent)) ) )
+			{
+				kind = 0;
+			}
+
+			Set<ExtendedNode> nodesToCopy = new LinkedHashSet<ExtendedNode>();
+			TreeCopier.InfoConverter<ExtendedNode, ExtendedInfo> infoConverter = new TreeCopier.InfoConverter<ExtendedNode, ExtendedInfo>()
+			{
+				public ExtendedInfo convert(ExtendedNode original)
+				{
+					return (original==node) ? newInfo : original.getInfo();
+				}
+			};
+			if (1==kind)
+			{
+				nodesToCopy.add(node);
+				infoConverter = IDENTITY;
+			}
+			else if (2==kind)
+			{
+				nodesToCopy.add(parent);
+				nodesToCopy.add(newParent);
+				infoConverter = IDENTITY;
+			}
+			SharingTreeCopier<ExtendedInfo, ExtendedNode> copier = new SharingTreeCopier<ExtendedInfo, ExtendedNode>(
+					textTree.getTree(), infoConverter, new ExtendedNodeConstructor(), nodesToCopy);
+			copier.copy();
+			BidirectionalMap<ExtendedNode, ExtendedNode> copierMap = copier.getNodesMap();
+			Set<ExtendedNode> affected = new LinkedHashSet<ExtendedNode>();
+			if (0==kind)
+			{
+				affected.add(copierMap.leftGet(node));
+			}
+			else if (1==kind)
+			{
+				ExtendedNode inserted = new ExtendedNode(newInfo);
+				copierMap.leftGet(node).addChild(inserted);
+				affected.add(inserted);
+			}
+			else
+			{
+				// the moved subtree keeps its edge, so it can stay shared
+				ExtendedNode moved = copierMap.leftGet(node);
+				copierMap.leftGet(parent).getChildren().remove(moved);
+				copierMap.leftGet(newParent).addChild(moved);
+				affected.add(moved);
+			}
+
+			ContentAncestorSetter setter = new ContentAncestorSetter(copier.getGeneratedTree(), true);
+			setter.generate();
+			BidirectionalMap<ExtendedNode, ExtendedNode> setterMap = setter.getNodesMap();
+			generatedTree = new TreeAndParentMap<ExtendedInfo, ExtendedNode>(setter.getGeneratedTree());
+			mapOriginalToGenerated = new SimpleValueSetMap<ExtendedNode, ExtendedNode>();
+			for (ExtendedNode original : nodes)
+			{
+				mapOriginalToGenerated.put(original, setterMap.leftGet(copierMap.leftGet(original)));
+			}
+			affectedNodes = new LinkedHashSet<ExtendedNode>();
+			for (ExtendedNode affectedNode : affected)
+			{
+				affectedNodes.add(setterMap.leftGet(affectedNode));
+			}
+			for (ExtendedNode original : nodes)
+			{
+				if (generatedTree.getParentMap().containsKey(original))
+					++numberOfSharedNodes;
+			}
+		}
+
+		private final TreeAndParentMap<ExtendedInfo, ExtendedNode> generatedTree;
+		private final ValueSetMap<ExtendedNode, ExtendedNode> mapOriginalToGenerated;
+		private final Set<ExtendedNode> affectedNodes;
+		private int numberOfSharedNodes = 0;
+	}
+
+
+	private static GenerationOperation<ExtendedInfo, ExtendedNode> randomOperation(Random random,
+			TreeAndParentMap<ExtendedInfo, ExtendedNode> textTree, TreeAndParentMap<ExtendedInfo, ExtendedNode> hypothesis) throws Exception
+	{
+		List<ExtendedNode> nodes = new ArrayList<ExtendedNode>(AbstractNodeUtils.treeToLinkedHashSet(textTree.getTree()));
+		ExtendedNode node = nodes.get(random.nextInt(nodes.size()));
+		switch (random.nextInt(3))
+		{
+		case 0:
+			ExtendedInfo info = randomInfo(random, null);
+			return new SubstituteNodeOperation(textTree, hypothesis, node, info.getNodeInfo(), node.getInfo().getAdditionalNodeInformation());
+		case 1:
+			return new InsertNodeOperation(textTree, hypothesis, randomInfo(random, RELATIONS[random.nextInt(RELATIONS.length)]), node);
+		default:
+			ExtendedNode newParent = nodes.get(random.nextInt(nodes.size()));
+			if ( (node==textTree.getTree()) || (AbstractNodeUtils.treeToLinkedHashSet(node).contains(newParent)) )
+			{
+				return new InsertNodeOperation(textTree, hypothesis, randomInfo(random, RELATIONS[random.nextInt(RELATIONS.length)]), node);
+			}
+			return new MoveNodeOperation(textTree, hypothesis, node, newParent, randomEdgeInfo(random));
+		}
+	}
+
+	/**
+	 * @param minimumChildren the minimal number of children of the root (a generated tree whose root is a leaf cannot be sealed)
+	 */
+	private static ExtendedNode randomTree(Random random, int depth, int minimumChildren) throws Exception
+	{
+		ExtendedNode root = new ExtendedNode(randomInfo(random, (minimumChildren>0)?null:RELATIONS[random.nextInt(RELATIONS.length)]));
+		if (depth>1)
+		{
+			int children = minimumChildren+random.nextInt(4-minimumChildren);
+			for (int child=0;child<children;++child)
+			{
+				root.addChild(randomTree(random, depth-1, 0));
+			}
+		}
+		return root;
+	}
+
+	private static ExtendedInfo randomInfo(Random random, String relation) throws Exception
+	{
+		NodeInfo nodeInfo = nodeInfo(LEMMAS[random.nextInt(LEMMAS.length)], POS_TAGS[random.nextInt(POS_TAGS.length)]);
+		return new ExtendedInfo("1", nodeInfo, new DefaultEdgeInfo(new DependencyRelation((null==relation)?"":relation, null)),
+				AdditionalInformationServices.emptyInformation());
+	}
+
+	private static EdgeInfo randomEdgeInfo(Random random)
+	{
+		return new DefaultEdgeInfo(new DependencyRelation(RELATIONS[random.nextInt(RELATIONS.length)], null));
+	}
+
+	private static ExtendedNode node(String lemma, SimplerCanonicalPosTag pos, String relation, ExtendedNode... children) throws Exception
+	{
+		ExtendedNode node = new ExtendedNode(new ExtendedInfo("1", nodeInfo(lemma, pos),
+				new DefaultEdgeInfo(new DependencyRelation((null==relation)?"":relation, null)), AdditionalInformationServices.emptyInformation()));
+		for (ExtendedNode child : children)
+		{
+			node.addChild(child);
+		}
+		return node;
+	}
+
+	private static NodeInfo nodeInfo(String lemma, SimplerCanonicalPosTag pos) throws Exception
+	{
+		return new DefaultNodeInfo(lemma, lemma, 0, null, new DefaultSyntacticInfo(new BySimplerCanonicalPartOfSpeech(pos)));
+	}
+
+	/**
+	 * Maps each node of the given tree to itself.
+	 */
+	private static ValueSetMap<ExtendedNode, ExtendedNode> identityMap(ExtendedNode tree)
+	{
+		ValueSetMap<ExtendedNode, ExtendedNode> map = new SimpleValueSetMap<ExtendedNode, ExtendedNode>();
+		for (ExtendedNode node : AbstractNodeUtils.treeToLinkedHashSet(tree))
+		{
+			map.put(node, node);
+		}
+		return map;
+	}
+
+	private static void assertEvaluationsEqual(String message, SingleTreeEvaluations expected, SingleTreeEvaluations actual)
+	{
+		assertEquals(message, expected.getMissingNodes(), actual.getMissingNodes());
+		assertEquals(message, expected.getMissingRelations(), actual.getMissingRelations());
+		assertEquals(message, expected.getMissingLemmas(), actual.getMissingLemmas());
+		assertEquals(message, expected.getMissingNodesPortion(), actual.getMissingNodesPortion(), 0.0);
+		assertEquals(message, expected.getMissingRelationsPortion(), actual.getMissingRelationsPortion(), 0.0);
+		assertEquals(message, expected.getMissingLemmasPortion(), actual.getMissingLemmasPortion(), 0.0);
+	}
+
+	private static final TreeCopier.InfoConverter<ExtendedNode, ExtendedInfo> IDENTITY = new TreeCopier.InfoConverter<ExtendedNode, ExtendedInfo>()
+	{
+		public ExtendedInfo convert(ExtendedNode original)
+		{
+			return original.getInfo();
+		}
+	};
+
+	// a small vocabulary, so that many text nodes match hypothesis nodes
+	private static final String[] LEMMAS = {"buy", "car", "John", "john", "of", "red", ""};
+	private static final SimplerCanonicalPosTag[] POS_TAGS = {SimplerCanonicalPosTag.NOUN, SimplerCanonicalPosTag.VERB, SimplerCanonicalPosTag.PREPOSITION};
+	private static final String[] RELATIONS = {"subj", "SUBJ", "obj", "mod"};
+}
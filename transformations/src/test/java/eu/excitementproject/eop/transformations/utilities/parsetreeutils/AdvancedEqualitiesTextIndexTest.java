@@ -0,0 +1,181 @@
+package eu.excitementproject.eop.transformations.utilities.parsetreeutils;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import eu.excitementproject.eop.common.representation.parse.representation.basic.DefaultEdgeInfo;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.DefaultNodeInfo;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.DefaultSyntacticInfo;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.DependencyRelation;
+import eu.excitementproject.eop.common.representation.parse.tree.TreeAndParentMap;
+import eu.excitementproject.eop.common.representation.partofspeech.BySimplerCanonicalPartOfSpeech;
+import eu.excitementproject.eop.common.representation.partofspeech.SimplerCanonicalPosTag;
+import eu.excitementproject.eop.transformations.representation.AdditionalInformationServices;
+import eu.excitementproject.eop.transformations.representation.AdditionalNodeInformation;
+import eu.excitementproject.eop.transformations.representation.ExtendedInfo;
+import eu.excitementproject.eop.transformations.representation.ExtendedNode;
+import eu.excitementproject.eop.transformations.representation.annotations.PredTruth;
+
+/**
+ * Checks that {@link AdvancedEqualities#findMissingNodes(TreeAndParentMap, TreeAndParentMap)} and
+ * {@link AdvancedEqualities#findMissingRelations(TreeAndParentMap, TreeAndParentMap)} give the same results, in the same
+ * order, with {@link AdvancedEqualities#USE_TEXT_INDEX} on (an {@link AdvancedEqualitiesTextIndex}) and off (nested loops).
+ * The trees are random trees over a small vocabulary of lemmas that differ in case, with content ancestors and truth values.
+ */
+public class AdvancedEqualitiesTextIndexTest
+{
+	@Test
+	public void testTextIndexEqualsNestedLoops() throws Exception
+	{
+		Random random = new Random(3);
+		int numberOfMissingNodes = 0;
+		int numberOfFoundNodes = 0;
+		for (int pair=0;pair<300;++pair)
+		{
+			TreeAndParentMap<ExtendedInfo, ExtendedNode> text = new TreeAndParentMap<ExtendedInfo, ExtendedNode>(
+					ContentAncestorSetter.generateWithAncestorInformation(randomTree(random, 1+random.nextInt(5))));
+			TreeAndParentMap<ExtendedInfo, ExtendedNode> hypothesis = new TreeAndParentMap<ExtendedInfo, ExtendedNode>(
+					ContentAncestorSetter.generateWithAncestorInformation(randomTree(random, 1+random.nextInt(4))));
+
+			List<ExtendedNode> missingNodes = assertModesEqual(text, hypothesis);
+			numberOfMissingNodes += missingNodes.size();
+			numberOfFoundNodes += hypothesis.getParentMap().size()+1-missingNodes.size();
+		}
+		assertTrue("no hypothesis node was missing", numberOfMissingNodes>0);
+		assertTrue("no hypothesis node was found", numberOfFoundNodes>0);
+	}
+
+	@Test
+	public void testRootOnlyMatches() throws Exception
+	{
+		// the roots match each other only, since the other nodes differ in their relations or content ancestors
+		ExtendedNode hypothesisRoot = node("Buy", SimplerCanonicalPosTag.VERB, null, null,
+				node("car", SimplerCanonicalPosTag.NOUN, "obj", PredTruth.P),
+				node("of", SimplerCanonicalPosTag.PREPOSITION, "mod", null, node("john", SimplerCanonicalPosTag.NOUN, "pobj", null)));
+		ExtendedNode textRoot = node("buy", SimplerCanonicalPosTag.VERB, null, null,
+				node("CAR", SimplerCanonicalPosTag.NOUN, "subj", PredTruth.P),
+				node("red", SimplerCanonicalPosTag.ADJECTIVE, "mod", null, node("of", SimplerCanonicalPosTag.PREPOSITION, "mod", null,
+						node("John", SimplerCanonicalPosTag.NOUN, "pobj", null))));
+		TreeAndParentMap<ExtendedInfo, ExtendedNode> text = new TreeAndParentMap<ExtendedInfo, ExtendedNode>(
+				ContentAncestorSetter.generateWithAncestorInformation(textRoot));
+		TreeAndParentMap<ExtendedInfo, ExtendedNode> hypothesis = new TreeAndParentMap<ExtendedInfo, ExtendedNode>(
+				ContentAncestorSetter.generateWithAncestorInformation(hypothesisRoot));
+		assertModesEqual(text, hypothesis);
+
+		// a text of a root only, and a text whose only match of the hypothesis root is not a root
+		assertModesEqual(new TreeAndParentMap<ExtendedInfo, ExtendedNode>(node("buy", SimplerCanonicalPosTag.VERB, null, null)), hypothesis);
+		assertModesEqual(new TreeAndParentMap<ExtendedInfo, ExtendedNode>(ContentAncestorSetter.generateWithAncestorInformation(
+				node("of", SimplerCanonicalPosTag.PREPOSITION, null, null, node("BUY", SimplerCanonicalPosTag.VERB, "mod", null)))), hypothesis);
+	}
+
+	@Test
+	public void testIndexOfSeveralHypotheses() throws Exception
+	{
+		Random random = new Random(11);
+		for (int textNumber=0;textNumber<30;++textNumber)
+		{
+			TreeAndParentMap<ExtendedInfo, ExtendedNode> text = new TreeAndParentMap<ExtendedInfo, ExtendedNode>(
+					ContentAncestorSetter.generateWithAncestorInformation(randomTree(random, 4)));
+			AdvancedEqualitiesTextIndex index = new AdvancedEqualitiesTextIndex(text);
+			for (int hypothesisNumber=0;hypothesisNumber<5;++hypothesisNumber)
+			{
+				TreeAndParentMap<ExtendedInfo, ExtendedNode> hypothesis = new TreeAndParentMap<ExtendedInfo, ExtendedNode>(
+						ContentAncestorSetter.generateWithAncestorInformation(randomTree(random, 3)));
+				List<ExtendedNode> missingNodes = new ArrayList<ExtendedNode>(findMissingNodes(false, text, hypothesis));
+				List<ExtendedNode> missingRelations = new ArrayList<ExtendedNode>(findMissingRelations(false, text, hypothesis));
+				assertEquals(missingNodes, new ArrayList<ExtendedNode>(AdvancedEqualities.findMissingNodes(index, hypothesis)));
+				assertEquals(missingRelations, new ArrayList<ExtendedNode>(AdvancedEqualities.findMissingRelations(index, hypothesis)));
+			}
+		}
+	}
+
+	/**
+	 * @return the missing nodes
+	 */
+	private static List<ExtendedNode> assertModesEqual(TreeAndParentMap<ExtendedInfo, ExtendedNode> text, TreeAndParentMap<ExtendedInfo, ExtendedNode> hypothesis) throws Exception
+	{
+		String message = TreeUtilities.treeToString(text.getTree())+" / "+TreeUtilities.treeToString(hypothesis.getTree());
+		List<ExtendedNode> missingNodes = new ArrayList<ExtendedNode>(findMissingNodes(false, text, hypothesis));
+		assertEquals(message, missingNodes, new ArrayList<ExtendedNode>(findMissingNodes(true, text, hypothesis)));
+		assertEquals(message, new ArrayList<ExtendedNode>(findMissingRelations(false, text, hypothesis)),
+				new ArrayList<ExtendedNode>(findMissingRelations(true, text, hypothesis)));
+		return missingNodes;
+	}
+
+	private static Set<ExtendedNode> findMissingNodes(boolean useTextIndex, TreeAndParentMap<ExtendedInfo, ExtendedNode> text, TreeAndParentMap<ExtendedInfo, ExtendedNode> hypothesis)
+	{
+		boolean originalMode = AdvancedEqualities.USE_TEXT_INDEX;
+		AdvancedEqualities.USE_TEXT_INDEX = useTextIndex;
+		try
+		{
+			return AdvancedEqualities.findMissingNodes(text, hypothesis);
+		}
+		finally
+		{
+			AdvancedEqualities.USE_TEXT_INDEX = originalMode;
+		}
+	}
+
+	private static Set<ExtendedNode> findMissingRelations(boolean useTextIndex, TreeAndParentMap<ExtendedInfo, ExtendedNode> text, TreeAndParentMap<ExtendedInfo, ExtendedNode> hypothesis)
+	{
+		boolean originalMode = AdvancedEqualities.USE_TEXT_INDEX;
+		AdvancedEqualities.USE_TEXT_INDEX = useTextIndex;
+		try
+		{
+			return AdvancedEqualities.findMissingRelations(text, hypothesis);
+		}
+		finally
+		{
+			AdvancedEqualities.USE_TEXT_INDEX = originalMode;
+		}
+	}
+
+	private static ExtendedNode randomTree(Random random, int depth) throws Exception
+	{
+		return randomTree(random, depth, null);
+	}
+
+	private static ExtendedNode randomTree(Random random, int depth, String relation) throws Exception
+	{
+		ExtendedNode root = node(LEMMAS[random.nextInt(LEMMAS.length)], POS_TAGS[random.nextInt(POS_TAGS.length)], relation,
+				PRED_TRUTHS[random.nextInt(PRED_TRUTHS.length)]);
+		if (depth>1)
+		{
+			int children = random.nextInt(4);
+			for (int child=0;child<children;++child)
+			{
+				root.addChild(randomTree(random, depth-1, RELATIONS[random.nextInt(RELATIONS.length)]));
+			}
+		}
+		return root;
+	}
+
+	private static ExtendedNode node(String lemma, SimplerCanonicalPosTag pos, String relation, PredTruth predTruth, ExtendedNode... children) throws Exception
+	{
+		AdditionalNodeInformation information = AdditionalInformationServices.emptyInformation();
+		if (predTruth!=null)
+		{
+			information = AdditionalInformationServices.setPredTruth(information, predTruth);
+		}
+		ExtendedNode node = new ExtendedNode(new ExtendedInfo("1",
+				new DefaultNodeInfo(lemma, lemma, 0, null, new DefaultSyntacticInfo(new BySimplerCanonicalPartOfSpeech(pos))),
+				new DefaultEdgeInfo(new DependencyRelation((null==relation)?"":relation, null)), information));
+		for (ExtendedNode child : children)
+		{
+			node.addChild(child);
+		}
+		return node;
+	}
+
+	// a small vocabulary of lemmas that differ in case, including letters whose upper case and title case differ
+	private static final String[] LEMMAS = {"buy", "Buy", "BUY", "car", "Car", "of", "red", "\u01c4", "\u01c5", "\u01c6", "stra\u00dfe", "STRASSE", ""};
+	private static final SimplerCanonicalPosTag[] POS_TAGS = {SimplerCanonicalPosTag.NOUN, SimplerCanonicalPosTag.VERB, SimplerCanonicalPosTag.PREPOSITION,
+		SimplerCanonicalPosTag.ADJECTIVE};
+	private static final PredTruth[] PRED_TRUTHS = {null, null, PredTruth.P, PredTruth.N, PredTruth.U};
+	private static final String[] RELATIONS = {"subj", "SUBJ", "obj", "mod"};
+}
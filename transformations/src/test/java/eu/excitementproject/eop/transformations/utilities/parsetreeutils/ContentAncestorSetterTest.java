@@ -0,0 +1,209 @@
+package eu.excitementproject.eop.transformations.utilities.parsetreeutils;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import eu.excitementproject.eop.common.datastructures.BidirectionalMap;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.DefaultEdgeInfo;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.DefaultNodeInfo;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.DefaultSyntacticInfo;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.DependencyRelation;
+import eu.excitementproject.eop.common.representation.parse.representation.basic.InfoGetFields;
+import eu.excitementproject.eop.common.representation.parse.tree.AbstractNodeUtils;
+import eu.excitementproject.eop.common.representation.parse.tree.SharingTreeCopier;
+import eu.excitementproject.eop.common.representation.parse.tree.TreeCopier;
+import eu.excitementproject.eop.common.representation.partofspeech.BySimplerCanonicalPartOfSpeech;
+import eu.excitementproject.eop.common.representation.partofspeech.SimplerCanonicalPosTag;
+import eu.excitementproject.eop.transformations.representation.AdditionalInformationServices;
+import eu.excitementproject.eop.transformations.representation.ExtendedInfo;
+import eu.excitementproject.eop.transformations.representation.ExtendedInfoGetFields;
+import eu.excitementproject.eop.transformations.representation.ExtendedNode;
+import eu.excitementproject.eop.transformations.representation.ExtendedNodeConstructor;
+
+/**
+ * Checks that {@link ContentAncestorSetter}, with <code>shareUnchangedSubtrees = true</code>, generates the
+ * tree generated without sharing, while sharing the nodes whose content ancestors are already set.
+ * The content ancestors of the shared nodes might differ from those set without sharing only in their
+ * own content ancestors.
+ */
+public class ContentAncestorSetterTest
+{
+	@Test
+	public void testTreeWithContentAncestorsIsShared() throws Exception
+	{
+		ExtendedNode tree = ContentAncestorSetter.generateWithAncestorInformation(
+				node("buy", SimplerCanonicalPosTag.VERB, node("of", SimplerCanonicalPosTag.PREPOSITION, node("car", SimplerCanonicalPosTag.NOUN))));
+		ContentAncestorSetter setter = generate(tree, true);
+		assertSame(tree, setter.getGeneratedTree());
+		for (ExtendedNode node : AbstractNodeUtils.treeToList(tree))
+		{
+			assertSame(node, setter.getNodesMap().leftGet(node));
+		}
+	}
+
+	@Test
+	public void testOnlyNodesWithChangedContentAncestorsAreCopied() throws Exception
+	{
+		ExtendedNode red = node("red", SimplerCanonicalPosTag.ADJECTIVE);
+		ExtendedNode car = node("car", SimplerCanonicalPosTag.NOUN, red);
+		ExtendedNode of = node("of", SimplerCanonicalPosTag.PREPOSITION, car);
+		ExtendedNode john = node("john", SimplerCanonicalPosTag.NOUN);
+		ExtendedNode buy = node("buy", SimplerCanonicalPosTag.VERB, john, of);
+		ContentAncestorSetter setter = generate(buy, false);
+		BidirectionalMap<ExtendedNode, ExtendedNode> withAncestors = setter.getNodesMap();
+
+		// "buy" is substituted by "sell", as an operation would do, without updating the content ancestors
+		ExtendedNode tree = substitute(setter.getGeneratedTree(), withAncestors.leftGet(buy), "sell", SimplerCanonicalPosTag.VERB);
+		ContentAncestorSetter sharingSetter = generate(tree, true);
+		assertSameAsCopying(tree, sharingSetter);
+
+		// The content ancestor of "john", "of" and "car" is "sell". The content ancestor of "red" is "car", which
+		// is changed only in its own content ancestor, so "red" is shared.
+		BidirectionalMap<ExtendedNode, ExtendedNode> map = sharingSetter.getNodesMap();
+		ExtendedNode generatedRed = map.leftGet(withAncestors.leftGet(red));
+		assertSame(withAncestors.leftGet(red), generatedRed);
+		for (ExtendedNode node : new ExtendedNode[]{john, of, car})
+		{
+			ExtendedNode inTree = withAncestors.leftGet(node);
+			assertNotSame(inTree, map.leftGet(inTree));
+			assertEquals("sell", InfoGetFields.getLemma(ExtendedInfoGetFields.getContentAncestor(map.leftGet(inTree).getInfo())));
+		}
+		assertEquals("car", InfoGetFields.getLemma(ExtendedInfoGetFields.getContentAncestor(generatedRed.getInfo())));
+	}
+
+	@Test
+	public void testSharingEqualsCopying() throws Exception
+	{
+		Random random = new Random(6);
+		int numberOfSharedNodes = 0;
+		for (int iteration=0;iteration<200;++iteration)
+		{
+			ExtendedNode tree = ContentAncestorSetter.generateWithAncestorInformation(randomTree(random, 5));
+			// a few nodes are substituted, while their descendants keep their old content ancestors
+			for (int substitution=random.nextInt(3);substitution>0;--substitution)
+			{
+				List<ExtendedNode> nodes = AbstractNodeUtils.treeToList(tree);
+				tree = substitute(tree, nodes.get(random.nextInt(nodes.size())), LEMMAS[random.nextInt(LEMMAS.length)], POS_TAGS[random.nextInt(POS_TAGS.length)]);
+			}
+			ContentAncestorSetter setter = generate(tree, true);
+			assertSameAsCopying(tree, setter);
+			for (ExtendedNode node : AbstractNodeUtils.treeToList(tree))
+			{
+				if (setter.getNodesMap().leftGet(node)==node) ++numberOfSharedNodes;
+			}
+		}
+		assertTrue("no node was shared", numberOfSharedNodes>0);
+	}
+
+
+	/**
+	 * Asserts that the tree generated with sharing has the same structure and information as the tree generated
+	 * without sharing (except for the content ancestors of the content ancestors), and that the given tree is not changed.
+	 */
+	private static void assertSameAsCopying(ExtendedNode tree, ContentAncestorSetter sharingSetter) throws Exception
+	{
+		List<ExtendedNode> nodes = AbstractNodeUtils.treeToList(tree);
+		List<ExtendedInfo> infos = new ArrayList<ExtendedInfo>();
+		for (ExtendedNode node : nodes)
+		{
+			infos.add(node.getInfo());
+		}
+
+		ContentAncestorSetter copyingSetter = generate(tree, false);
+		BidirectionalMap<ExtendedNode, ExtendedNode> sharingMap = sharingSetter.getNodesMap();
+		BidirectionalMap<ExtendedNode, ExtendedNode> copyingMap = copyingSetter.getNodesMap();
+		assertSame(sharingMap.leftGet(tree), sharingSetter.getGeneratedTree());
+		assertEquals(nodes.size(), AbstractNodeUtils.treeToList(sharingSetter.getGeneratedTree()).size());
+		for (int index=0;index<nodes.size();++index)
+		{
+			ExtendedNode node = nodes.get(index);
+			assertSame("the given tree was changed", infos.get(index), node.getInfo());
+			ExtendedNode shared = sharingMap.leftGet(node);
+			ExtendedNode copied = copyingMap.leftGet(node);
+			assertTrue(shared.getInfo()+" / "+copied.getInfo(), shared.getInfo().equalsIgnoreContentAncestor(copied.getInfo()));
+			ExtendedInfo sharedContentAncestor = ExtendedInfoGetFields.getContentAncestor(shared.getInfo());
+			ExtendedInfo copiedContentAncestor = ExtendedInfoGetFields.getContentAncestor(copied.getInfo());
+			if (null==copiedContentAncestor)
+			{
+				assertNull(sharedContentAncestor);
+			}
+			else
+			{
+				assertTrue(sharedContentAncestor+" / "+copiedContentAncestor, copiedContentAncestor.equalsIgnoreContentAncestor(sharedContentAncestor));
+			}
+			List<ExtendedNode> expectedChildren = new ArrayList<ExtendedNode>();
+			if (node.getChildren()!=null)
+			{
+				for (ExtendedNode child : node.getChildren())
+				{
+					expectedChildren.add(sharingMap.leftGet(child));
+				}
+			}
+			assertEquals(expectedChildren, (shared.getChildren()==null)?new ArrayList<ExtendedNode>():shared.getChildren());
+		}
+	}
+
+	private static ContentAncestorSetter generate(ExtendedNode tree, boolean shareUnchangedSubtrees)
+	{
+		ContentAncestorSetter setter = new ContentAncestorSetter(tree, shareUnchangedSubtrees);
+		setter.generate();
+		return setter;
+	}
+
+	/**
+	 * @return a tree which shares the unchanged subtrees of the given tree, in which the given node has a new lemma and part-of-speech,
+	 * but the other information of the node (including its content ancestor) is not changed.
+	 */
+	private static ExtendedNode substitute(ExtendedNode tree, final ExtendedNode node, String lemma, SimplerCanonicalPosTag pos) throws Exception
+	{
+		final ExtendedInfo newInfo = new ExtendedInfo(node.getInfo().getId(), nodeInfo(lemma, pos), node.getInfo().getEdgeInfo(), node.getInfo().getAdditionalNodeInformation());
+		SharingTreeCopier<ExtendedInfo, ExtendedNode> copier = new SharingTreeCopier<ExtendedInfo, ExtendedNode>(tree,
+				new TreeCopier.InfoConverter<ExtendedNode, ExtendedInfo>()
+				{
+					public ExtendedInfo convert(ExtendedNode original)
+					{
+						return (original==node) ? newInfo : original.getInfo();
+					}
+				},
+				new ExtendedNodeConstructor());
+		copier.copy();
+		return copier.getGeneratedTree();
+	}
+
+	private static ExtendedNode randomTree(Random random, int depth) throws Exception
+	{
+		ExtendedNode root = node(LEMMAS[random.nextInt(LEMMAS.length)], POS_TAGS[random.nextInt(POS_TAGS.length)]);
+		if (depth>1)
+		{
+			int children = random.nextInt(4);
+			for (int child=0;child<children;++child)
+			{
+				root.addChild(randomTree(random, depth-1));
+			}
+		}
+		return root;
+	}
+
+	private static ExtendedNode node(String lemma, SimplerCanonicalPosTag pos, ExtendedNode... children) throws Exception
+	{
+		ExtendedNode node = new ExtendedNode(new ExtendedInfo("1", nodeInfo(lemma, pos), new DefaultEdgeInfo(new DependencyRelation("dep", null)),
+				AdditionalInformationServices.emptyInformation()));
+		for (ExtendedNode child : children)
+		{
+			node.addChild(child);
+		}
+		return node;
+	}
+
+	private static DefaultNodeInfo nodeInfo(String lemma, SimplerCanonicalPosTag pos) throws Exception
+	{
+		return new DefaultNodeInfo(lemma, lemma, 0, null, new DefaultSyntacticInfo(new BySimplerCanonicalPartOfSpeech(pos)));
+	}
+
+	private static final String[] LEMMAS = {"buy", "car", "of", "red"};
+	private static final SimplerCanonicalPosTag[] POS_TAGS = {SimplerCanonicalPosTag.NOUN, SimplerCanonicalPosTag.VERB, SimplerCanonicalPosTag.PREPOSITION, SimplerCanonicalPosTag.ADJECTIVE};
+}
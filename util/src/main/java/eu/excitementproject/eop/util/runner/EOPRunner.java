@@ -21,6 +21,7 @@ import eu.excitementproject.eop.common.exception.ComponentException;
 import eu.excitementproject.eop.common.exception.ConfigurationException;
 import eu.excitementproject.eop.common.utilities.configuration.ImplCommonConfig;
 import eu.excitementproject.eop.lap.PlatformCASProber;
+import eu.excitementproject.eop.lap.XmiDirectoryIterator;
 import eu.excitementproject.eop.util.eval.EDAScorer;
 
 /**
@@ -207,15 +208,18 @@ public class EOPRunner {
 			OutputStream out = Files.newOutputStream(Paths.get(resultsFile));
 			BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out));
 			
-			for (File xmi : (testDir.listFiles())) {
-				if (!xmi.getName().endsWith(".xmi")) {
-					continue;
+			// the xmi files are read in parallel into pooled JCases
+			XmiDirectoryIterator xmiIterator = PlatformCASProber.probeXmiDirectory(testDir, System.out);
+			try {
+				while (xmiIterator.hasNext()) {
+					JCas cas = xmiIterator.next();
+					TEDecision teDecision = eda.process(cas);
+					
+					writer.write(OutputUtils.getPairID(cas) + "\t" + OutputUtils.getGoldLabel(cas) + "\t"  + teDecision.getDecision().toString() + "\t" + teDecision.getConfidence() + "\n");
+//					hasGoldLabel = OutputUtils.getGoldLabel(cas);
 				}
-				JCas cas = PlatformCASProber.probeXmi(xmi, System.out);
-				TEDecision teDecision = eda.process(cas);
-				
-				writer.write(OutputUtils.getPairID(cas) + "\t" + OutputUtils.getGoldLabel(cas) + "\t"  + teDecision.getDecision().toString() + "\t" + teDecision.getConfidence() + "\n");
-//				hasGoldLabel = OutputUtils.getGoldLabel(cas);
+			} finally {
+				xmiIterator.close();
 			}
 			writer.close();
 			out.close();